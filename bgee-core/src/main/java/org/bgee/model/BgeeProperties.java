@@ -40,7 +40,7 @@ import org.apache.logging.log4j.Logger;
  * @author  Frederic Bastian
  * @author  Mathieu Seppey
  * @author  Valentine Rech de Laval
- * @version Bgee 14, Mar. 2019
+ * @version Bgee 14, Jan. 2020
  * @since   Bgee 13
  */
 public class BgeeProperties {
@@ -123,6 +123,53 @@ public class BgeeProperties {
      * @see #BGEE_SEARCH_SERVER_PORT_KEY
      */
     public final static String BGEE_SEARCH_SERVER_PORT_DEFAULT = null;
+    /**
+     * A {@code String} that is the key to access to the System property that defines
+     * whether the gene search should use an in-memory index rather than the Sphinx search server.
+     *
+     * @see #BGEE_SEARCH_INDEX_EMBEDDED_DEFAULT
+     * @see #BGEE_SEARCH_INDEX_FILE_KEY
+     */
+    public final static String BGEE_SEARCH_INDEX_EMBEDDED_KEY = "org.bgee.search.index.embedded";
+    /**
+     * A {@code boolean} that is the default value defining whether the gene search
+     * should use an in-memory index.
+     *
+     * @see #BGEE_SEARCH_INDEX_EMBEDDED_KEY
+     */
+    public final static boolean BGEE_SEARCH_INDEX_EMBEDDED_DEFAULT = false;
+    /**
+     * A {@code String} that is the key to access to the System property that contains the path
+     * to the file storing the in-memory gene search index. If not defined, the index is built
+     * from the data source.
+     *
+     * @see #BGEE_SEARCH_INDEX_FILE_DEFAULT
+     * @see #BGEE_SEARCH_INDEX_EMBEDDED_KEY
+     */
+    public final static String BGEE_SEARCH_INDEX_FILE_KEY = "org.bgee.search.index.file";
+    /**
+     * A {@code String} that is the default value of the path to the file storing
+     * the in-memory gene search index.
+     *
+     * @see #BGEE_SEARCH_INDEX_FILE_KEY
+     */
+    public final static String BGEE_SEARCH_INDEX_FILE_DEFAULT = null;
+    /**
+     * A {@code String} that is the key to access to the System property that contains the path
+     * to the file storing the gene autocomplete trie, memory-mapped to serve autocomplete
+     * suggestions. If not defined, suggestions are retrieved from the gene search index
+     * or the Sphinx search server.
+     *
+     * @see #BGEE_SEARCH_AUTOCOMPLETE_FILE_DEFAULT
+     */
+    public final static String BGEE_SEARCH_AUTOCOMPLETE_FILE_KEY = "org.bgee.search.autocomplete.file";
+    /**
+     * A {@code String} that is the default value of the path to the file storing
+     * the gene autocomplete trie.
+     *
+     * @see #BGEE_SEARCH_AUTOCOMPLETE_FILE_KEY
+     */
+    public final static String BGEE_SEARCH_AUTOCOMPLETE_FILE_DEFAULT = null;
 
     //TopAnat
     /**
@@ -204,6 +251,37 @@ public class BgeeProperties {
      * @see #MAX_JOB_COUNT_PER_USER_KEY
      */
     public final static int MAX_JOB_COUNT_PER_USER_DEFAULT = 0;
+
+    /**
+     * A {@code String} that is the key to access to the System property that contains
+     * the maximum number of IDs to resolve per query to the data source, when retrieving
+     * genes from any IDs (see {@code org.bgee.model.gene.GeneService#loadGenesByAnyId}).
+     *
+     * @see #ID_RESOLUTION_BATCH_SIZE_DEFAULT
+     */
+    public final static String ID_RESOLUTION_BATCH_SIZE_KEY = "org.bgee.core.idResolutionBatchSize";
+    /**
+     * An {@code int} that is the default value of the maximum number of IDs to resolve per query.
+     *
+     * @see #ID_RESOLUTION_BATCH_SIZE_KEY
+     */
+    public final static int ID_RESOLUTION_BATCH_SIZE_DEFAULT = 1000;
+    /**
+     * A {@code String} that is the key to access to the System property that contains
+     * the number of batches of IDs that can be resolved concurrently, each using
+     * its own connection to the data source. If equals to 1, batches are resolved
+     * sequentially, using the connection of the calling thread.
+     *
+     * @see #ID_RESOLUTION_THREAD_COUNT_DEFAULT
+     */
+    public final static String ID_RESOLUTION_THREAD_COUNT_KEY = "org.bgee.core.idResolutionThreadCount";
+    /**
+     * An {@code int} that is the default value of the number of batches of IDs
+     * resolved concurrently.
+     *
+     * @see #ID_RESOLUTION_THREAD_COUNT_KEY
+     */
+    public final static int ID_RESOLUTION_THREAD_COUNT_DEFAULT = 1;
     
     /**
      * A {@code ConcurrentMap} used to store {@code BgeeProperties}, 
@@ -688,6 +766,15 @@ public class BgeeProperties {
         searchUrlPort = getStringOption(prop, SYS_PROPS, FILE_PROPS,
                 BGEE_SEARCH_SERVER_PORT_KEY,
                 BGEE_SEARCH_SERVER_PORT_DEFAULT);
+        searchIndexEmbedded = getBooleanOption(prop, SYS_PROPS, FILE_PROPS,
+                BGEE_SEARCH_INDEX_EMBEDDED_KEY,
+                BGEE_SEARCH_INDEX_EMBEDDED_DEFAULT);
+        searchIndexFile = getStringOption(prop, SYS_PROPS, FILE_PROPS,
+                BGEE_SEARCH_INDEX_FILE_KEY,
+                BGEE_SEARCH_INDEX_FILE_DEFAULT);
+        searchAutocompleteFile = getStringOption(prop, SYS_PROPS, FILE_PROPS,
+                BGEE_SEARCH_AUTOCOMPLETE_FILE_KEY,
+                BGEE_SEARCH_AUTOCOMPLETE_FILE_DEFAULT);
         topAnatRScriptExecutable = getStringOption(prop, SYS_PROPS, FILE_PROPS, 
                 TOP_ANAT_R_SCRIPT_EXECUTABLE_KEY,  
                 TOP_ANAT_R_SCRIPT_EXECUTABLE_DEFAULT);
@@ -703,6 +790,12 @@ public class BgeeProperties {
         maxJobCountPerUser = getIntegerOption(prop, SYS_PROPS, FILE_PROPS, 
                 MAX_JOB_COUNT_PER_USER_KEY,
                 MAX_JOB_COUNT_PER_USER_DEFAULT);
+        idResolutionBatchSize = getIntegerOption(prop, SYS_PROPS, FILE_PROPS, 
+                ID_RESOLUTION_BATCH_SIZE_KEY,
+                ID_RESOLUTION_BATCH_SIZE_DEFAULT);
+        idResolutionThreadCount = getIntegerOption(prop, SYS_PROPS, FILE_PROPS, 
+                ID_RESOLUTION_THREAD_COUNT_KEY,
+                ID_RESOLUTION_THREAD_COUNT_DEFAULT);
         log.debug("Initialization done.");
         log.exit();
     }
@@ -729,6 +822,22 @@ public class BgeeProperties {
      */
     private final String searchUrlPort;
 
+    /**
+     * A {@code boolean} defining whether the gene search should use an in-memory index
+     * rather than the Sphinx search server.
+     */
+    private final boolean searchIndexEmbedded;
+
+    /**
+     * A {@code String} that is the path to the file storing the in-memory gene search index.
+     */
+    private final String searchIndexFile;
+
+    /**
+     * A {@code String} that is the path to the file storing the gene autocomplete trie.
+     */
+    private final String searchAutocompleteFile;
+
     /**
      * A {@code String} that is the path of RScript Executable file 
      * which is used to execute the R code.
@@ -779,6 +888,14 @@ public class BgeeProperties {
      * @see #getMaxJobCountPerUser()
      */
     private final int maxJobCountPerUser; 
+    /**
+     * @see #getIdResolutionBatchSize()
+     */
+    private final int idResolutionBatchSize;
+    /**
+     * @see #getIdResolutionThreadCount()
+     */
+    private final int idResolutionThreadCount;
 
     //******************
     // RELEASE METHODS
@@ -838,6 +955,27 @@ public class BgeeProperties {
     public String getSearchServerPort() {
         return searchUrlPort;
     }
+    /**
+     * @return  A {@code boolean} defining whether the gene search should use an in-memory index
+     *          rather than the Sphinx search server.
+     */
+    public boolean isSearchIndexEmbedded() {
+        return searchIndexEmbedded;
+    }
+    /**
+     * @return  A {@code String} that is the path to the file storing the in-memory gene search
+     *          index, {@code null} if the index should be built from the data source.
+     */
+    public String getSearchIndexFile() {
+        return searchIndexFile;
+    }
+    /**
+     * @return  A {@code String} that is the path to the file storing the gene autocomplete trie,
+     *          {@code null} if autocomplete suggestions should not be retrieved from a trie.
+     */
+    public String getSearchAutocompleteFile() {
+        return searchAutocompleteFile;
+    }
 
     //TopAnat
     /**
@@ -877,6 +1015,24 @@ public class BgeeProperties {
     public int getMaxJobCountPerUser() {
         return maxJobCountPerUser;
     }
+
+    //ID resolution
+    /**
+     * @return  An {@code int} that is the maximum number of IDs to resolve per query
+     *          to the data source.
+     * @see #ID_RESOLUTION_BATCH_SIZE_KEY
+     */
+    public int getIdResolutionBatchSize() {
+        return idResolutionBatchSize;
+    }
+    /**
+     * @return  An {@code int} that is the number of batches of IDs that can be resolved
+     *          concurrently.
+     * @see #ID_RESOLUTION_THREAD_COUNT_KEY
+     */
+    public int getIdResolutionThreadCount() {
+        return idResolutionThreadCount;
+    }
     
     @Override
     public String toString() {
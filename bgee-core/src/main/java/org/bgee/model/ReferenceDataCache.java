@@ -0,0 +1,174 @@
+package org.bgee.model;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.anatdev.multispemapping.AnatEntitySimilarity;
+import org.bgee.model.anatdev.multispemapping.AnatEntitySimilarityIndex;
+import org.bgee.model.expressiondata.baseelements.DataType;
+import org.bgee.model.gene.GeneBioType;
+import org.bgee.model.source.Source;
+import org.bgee.model.species.Species;
+
+/**
+ * A cache of the reference data used to instantiate objects retrieved from the data source
+ * ({@code Species}, {@code GeneBioType}s, {@code Source}s), or computed from them
+ * ({@code AnatEntitySimilarity}s), that only change between releases.
+ * Each reference data is loaded at the first request, using the {@code ServiceFactory}
+ * or the loader provided, and is then returned unmodifiable to all callers.
+ * <p>
+ * A {@code ServiceFactory} uses by default its own {@code ReferenceDataCache}, so that data
+ * are loaded at most once during its lifetime. A same {@code ReferenceDataCache} can be provided
+ * to several {@code ServiceFactory}s, for instance by a webapp that instantiates
+ * a new {@code ServiceFactory} for each request (see
+ * {@link ServiceFactory#ServiceFactory(org.bgee.model.dao.api.DAOManager, BgeeProperties,
+ * ReferenceDataCache)}). This class is thread-safe.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class ReferenceDataCache {
+    private final static Logger log = LogManager.getLogger(ReferenceDataCache.class.getName());
+
+    /**
+     * A {@code Set} of {@code DataType}s containing all data types, that is an enum
+     * and does not need to be loaded from the data source.
+     */
+    private static final Set<DataType> DATA_TYPES = Collections.unmodifiableSet(
+            EnumSet.allOf(DataType.class));
+
+    /**
+     * A {@code Map} where keys are {@code Boolean}s defining whether the species were loaded
+     * with their data source information, the associated value being the unmodifiable
+     * {@code Map} of all {@code Species}, with species IDs as keys.
+     */
+    private final Map<Boolean, Map<Integer, Species>> speciesMaps;
+    //The following maps are the cached values, stored in a Map to be computed atomically,
+    //with a single key.
+    private final Map<Boolean, Map<Integer, GeneBioType>> geneBioTypeMaps;
+    private final Map<Boolean, Map<Integer, Source>> sourceMaps;
+    /**
+     * A {@code Map} where keys are {@code String}s generated by {@link #getTaxonKey(int, boolean)},
+     * the associated value being the unmodifiable {@code Set} of positive
+     * {@code AnatEntitySimilarity}s valid for the taxon.
+     */
+    private final Map<String, Set<AnatEntitySimilarity>> anatEntitySimilarities;
+    /**
+     * A {@code Map} where keys are {@code String}s generated by {@link #getTaxonKey(int, boolean)},
+     * the associated value being the {@code AnatEntitySimilarityIndex} for the taxon.
+     */
+    private final Map<String, AnatEntitySimilarityIndex> anatEntitySimilarityIndexes;
+
+    public ReferenceDataCache() {
+        this.speciesMaps = new ConcurrentHashMap<>();
+        this.geneBioTypeMaps = new ConcurrentHashMap<>();
+        this.sourceMaps = new ConcurrentHashMap<>();
+        this.anatEntitySimilarities = new ConcurrentHashMap<>();
+        this.anatEntitySimilarityIndexes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param serviceFactory    The {@code ServiceFactory} to use to load the species,
+     *                          if not already loaded.
+     * @param withSpeciesInfo   A {@code boolean} defining whether data sources of the species
+     *                          should be retrieved.
+     * @return                  An unmodifiable {@code Map} where keys are {@code Integer}s
+     *                          that are species IDs, the associated value being
+     *                          the corresponding {@code Species}, for all species
+     *                          in the data source.
+     */
+    public Map<Integer, Species> getSpeciesMap(ServiceFactory serviceFactory, boolean withSpeciesInfo) {
+        log.entry(serviceFactory, withSpeciesInfo);
+        return log.exit(this.speciesMaps.computeIfAbsent(withSpeciesInfo,
+                k -> Collections.unmodifiableMap(new HashMap<>(
+                        serviceFactory.getSpeciesService().loadSpeciesMap(null, k)))));
+    }
+    /**
+     * @param serviceFactory    The {@code ServiceFactory} to use to load the gene biotypes,
+     *                          if not already loaded.
+     * @return                  An unmodifiable {@code Map} where keys are {@code Integer}s
+     *                          that are gene biotype IDs, the associated value being
+     *                          the corresponding {@code GeneBioType}.
+     */
+    public Map<Integer, GeneBioType> getGeneBioTypeMap(ServiceFactory serviceFactory) {
+        log.entry(serviceFactory);
+        return log.exit(this.geneBioTypeMaps.computeIfAbsent(true,
+                k -> Collections.unmodifiableMap(CommonService.loadGeneBioTypeMap(
+                        serviceFactory.getDAOManager().getGeneDAO()))));
+    }
+    /**
+     * @param serviceFactory    The {@code ServiceFactory} to use to load the sources,
+     *                          if not already loaded.
+     * @return                  An unmodifiable {@code Map} where keys are {@code Integer}s
+     *                          that are source IDs, the associated value being
+     *                          the corresponding {@code Source}.
+     */
+    public Map<Integer, Source> getSourceMap(ServiceFactory serviceFactory) {
+        log.entry(serviceFactory);
+        return log.exit(this.sourceMaps.computeIfAbsent(true,
+                k -> Collections.unmodifiableMap(new HashMap<>(
+                        serviceFactory.getSourceService().loadSourcesByIds(null)))));
+    }
+    /**
+     * @param taxonId       An {@code int} that is the NCBI ID of the taxon the similarities
+     *                      are valid for.
+     * @param onlyTrusted   A {@code boolean} defining whether the similarities are restricted
+     *                      to "trusted" annotations.
+     * @param loader        A {@code Supplier} of the {@code Set} of {@code AnatEntitySimilarity}s,
+     *                      called if they were not already loaded.
+     * @return              The unmodifiable {@code Set} of {@code AnatEntitySimilarity}s
+     *                      for the requested parameters.
+     */
+    public Set<AnatEntitySimilarity> getPositiveAnatEntitySimilarities(int taxonId,
+            boolean onlyTrusted, Supplier<Set<AnatEntitySimilarity>> loader) {
+        log.entry(taxonId, onlyTrusted, loader);
+        return log.exit(this.anatEntitySimilarities.computeIfAbsent(
+                getTaxonKey(taxonId, onlyTrusted),
+                k -> Collections.unmodifiableSet(loader.get())));
+    }
+    /**
+     * @param taxonId       An {@code int} that is the NCBI ID of the taxon the similarities
+     *                      are valid for.
+     * @param onlyTrusted   A {@code boolean} defining whether the similarities are restricted
+     *                      to "trusted" annotations.
+     * @param loader        A {@code Supplier} of the {@code AnatEntitySimilarityIndex},
+     *                      called if it was not already built.
+     * @return              The {@code AnatEntitySimilarityIndex} for the requested parameters.
+     */
+    public AnatEntitySimilarityIndex getAnatEntitySimilarityIndex(int taxonId,
+            boolean onlyTrusted, Supplier<AnatEntitySimilarityIndex> loader) {
+        log.entry(taxonId, onlyTrusted, loader);
+        return log.exit(this.anatEntitySimilarityIndexes.computeIfAbsent(
+                getTaxonKey(taxonId, onlyTrusted), k -> loader.get()));
+    }
+    private static String getTaxonKey(int taxonId, boolean onlyTrusted) {
+        return taxonId + "_" + onlyTrusted;
+    }
+    /**
+     * @return  An unmodifiable {@code Set} of all {@code DataType}s.
+     */
+    public Set<DataType> getDataTypes() {
+        return DATA_TYPES;
+    }
+
+    /**
+     * Remove all cached data, to be reloaded at the next request (for instance,
+     * after a data source update).
+     */
+    public void clear() {
+        log.entry();
+        this.speciesMaps.clear();
+        this.geneBioTypeMaps.clear();
+        this.sourceMaps.clear();
+        this.anatEntitySimilarities.clear();
+        this.anatEntitySimilarityIndexes.clear();
+        log.exit();
+    }
+}
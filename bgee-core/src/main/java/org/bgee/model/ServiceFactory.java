@@ -57,7 +57,7 @@ import org.sphx.api.SphinxClient;
  * 
  * @author  Frederic Bastian
  * @author  Valentine Rech de Laval
- * @version Bgee 14, Apr. 2019
+ * @version Bgee 14, Jan. 2020
  * @since   Bgee 13, Sept. 2015
  */
 //XXX: should we put all Services in a same package, so that the constructors are protected 
@@ -74,6 +74,14 @@ public class ServiceFactory implements AutoCloseable {
      * @see #getDAOManager()
      */
     private final DAOManager daoManager;
+    /**
+     * @see #getBgeeProperties()
+     */
+    private final BgeeProperties bgeeProperties;
+    /**
+     * @see #getReferenceDataCache()
+     */
+    private final ReferenceDataCache referenceDataCache;
     
     /**
      * 0-arg constructor that will cause this {@code ServiceFactory} to use 
@@ -101,11 +109,30 @@ public class ServiceFactory implements AutoCloseable {
      * @throws IllegalArgumentException If {@code daoManager} is {@code null} or closed.
      */
     public ServiceFactory(DAOManager daoManager) throws IllegalArgumentException {
-        log.entry(daoManager);
+        this(daoManager, null, null);
+    }
+    /**
+     * @param daoManager            The {@code DAOManager} to be used by this {@code ServiceFactory},  
+     *                              to be provided to {@code Service}s it instantiates. 
+     * @param bgeeProperties        The {@code BgeeProperties} to be used by the {@code Service}s
+     *                              this {@code ServiceFactory} instantiates. If {@code null},
+     *                              default values are used.
+     * @param referenceDataCache    The {@code ReferenceDataCache} to be used by the {@code Service}s
+     *                              this {@code ServiceFactory} instantiates, possibly shared
+     *                              between several {@code ServiceFactory}s. If {@code null},
+     *                              a new {@code ReferenceDataCache} is used.
+     * @throws IllegalArgumentException If {@code daoManager} is {@code null} or closed.
+     */
+    public ServiceFactory(DAOManager daoManager, BgeeProperties bgeeProperties,
+            ReferenceDataCache referenceDataCache) throws IllegalArgumentException {
+        log.entry(daoManager, bgeeProperties, referenceDataCache);
         if (daoManager == null || daoManager.isClosed()) {
             throw log.throwing(new IllegalArgumentException("Invalid DAOManager"));
         }
         this.daoManager = daoManager;
+        this.bgeeProperties = bgeeProperties;
+        this.referenceDataCache = referenceDataCache != null? referenceDataCache:
+            new ReferenceDataCache();
         log.exit();
     }
     
@@ -272,6 +299,21 @@ public class ServiceFactory implements AutoCloseable {
     public DAOManager getDAOManager() {
         return this.daoManager;
     }
+    /**
+     * @return  The {@code BgeeProperties} to be used by the {@code Service}s
+     *          this {@code ServiceFactory} instantiates. Can be {@code null},
+     *          in which case default values should be used.
+     */
+    public BgeeProperties getBgeeProperties() {
+        return this.bgeeProperties;
+    }
+    /**
+     * @return  The {@code ReferenceDataCache} to be used by the {@code Service}s
+     *          this {@code ServiceFactory} instantiates.
+     */
+    public ReferenceDataCache getReferenceDataCache() {
+        return this.referenceDataCache;
+    }
     
     /**
      * Release all resources hold by this {@code ServiceFactory} (notably releasing 
@@ -0,0 +1,125 @@
+package org.bgee.model.anatdev.multispemapping;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.anatdev.AnatEntity;
+
+/**
+ * An index of {@code AnatEntitySimilarity}s valid for a taxon, allowing to retrieve
+ * in constant time the similarity groups a source anatomical entity belongs to.
+ * Each {@code AnatEntitySimilarity} is identified in this index by an {@code int}
+ * group ID, from 0 to {@link #getGroupCount()} - 1, so that sets of groups can be handled
+ * as {@code BitSet}s and calls bucketed into arrays. An anatomical entity can belong
+ * to several groups, for non-transitive similarity relations.
+ * <p>
+ * This class is immutable and thread-safe, it is meant to be cached, see
+ * {@link org.bgee.model.ReferenceDataCache#getAnatEntitySimilarityIndex(int, boolean,
+ * java.util.function.Supplier)}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class AnatEntitySimilarityIndex {
+    private final static Logger log = LogManager.getLogger(AnatEntitySimilarityIndex.class.getName());
+
+    private static final int[] NO_GROUP = new int[0];
+
+    /**
+     * A {@code List} of {@code AnatEntitySimilarity}s, the index of each element being its group ID.
+     */
+    private final List<AnatEntitySimilarity> similarities;
+    /**
+     * A {@code Map} where keys are {@code String}s that are IDs of source anatomical entities,
+     * the associated value being an {@code int} array containing the IDs of the groups
+     * they belong to, in ascending order.
+     */
+    private final Map<String, int[]> groupIdsByAnatEntityId;
+
+    /**
+     * @param similarities  A {@code Collection} of {@code AnatEntitySimilarity}s to index.
+     *                      Group IDs are assigned in iteration order.
+     */
+    public AnatEntitySimilarityIndex(Collection<AnatEntitySimilarity> similarities) {
+        log.entry(similarities);
+        this.similarities = Collections.unmodifiableList(new ArrayList<>(similarities));
+        Map<String, List<Integer>> groupIdLists = new HashMap<>();
+        for (int groupId = 0; groupId < this.similarities.size(); groupId++) {
+            for (AnatEntity anatEntity: this.similarities.get(groupId).getSourceAnatEntities()) {
+                groupIdLists.computeIfAbsent(anatEntity.getId(), k -> new ArrayList<>()).add(groupId);
+            }
+        }
+        this.groupIdsByAnatEntityId = Collections.unmodifiableMap(groupIdLists.entrySet().stream()
+                .collect(Collectors.toMap(e -> e.getKey(),
+                        e -> e.getValue().stream().mapToInt(Integer::intValue).distinct().toArray())));
+        log.exit();
+    }
+
+    /**
+     * @param anatEntityId  A {@code String} that is the ID of an anatomical entity.
+     * @return              An {@code int} array containing the IDs of the groups
+     *                      the anatomical entity is a source entity of, in ascending order.
+     *                      Empty if none. This array must not be modified.
+     */
+    public int[] getGroupIds(String anatEntityId) {
+        return this.groupIdsByAnatEntityId.getOrDefault(anatEntityId, NO_GROUP);
+    }
+    /**
+     * @param anatEntityIds A {@code Collection} of {@code String}s that are IDs of anatomical entities.
+     * @return              A {@code BitSet} where the bits set are the IDs of the groups having
+     *                      at least one of the anatomical entities as source entity.
+     */
+    public BitSet getGroupIds(Collection<String> anatEntityIds) {
+        log.entry(anatEntityIds);
+        BitSet groupIds = new BitSet(this.similarities.size());
+        for (String anatEntityId: anatEntityIds) {
+            for (int groupId: this.getGroupIds(anatEntityId)) {
+                groupIds.set(groupId);
+            }
+        }
+        return log.exit(groupIds);
+    }
+    /**
+     * @return  A {@code BitSet} where all the group IDs of this index are set.
+     */
+    public BitSet getAllGroupIds() {
+        BitSet groupIds = new BitSet(this.similarities.size());
+        groupIds.set(0, this.similarities.size());
+        return groupIds;
+    }
+    /**
+     * @param groupId   An {@code int} that is the ID of a group.
+     * @return          The {@code AnatEntitySimilarity} with this group ID.
+     * @throws IndexOutOfBoundsException    If {@code groupId} is not a valid group ID.
+     */
+    public AnatEntitySimilarity getSimilarity(int groupId) throws IndexOutOfBoundsException {
+        return this.similarities.get(groupId);
+    }
+    /**
+     * @param groupIds  A {@code BitSet} where the bits set are IDs of groups.
+     * @return          A {@code Set} of {@code String}s that are the IDs of the source
+     *                  anatomical entities of these groups.
+     */
+    public Set<String> getAnatEntityIds(BitSet groupIds) {
+        log.entry(groupIds);
+        return log.exit(groupIds.stream().mapToObj(this::getSimilarity)
+                .flatMap(s -> s.getSourceAnatEntities().stream())
+                .map(AnatEntity::getId)
+                .collect(Collectors.toSet()));
+    }
+    /**
+     * @return  An {@code int} that is the number of groups in this index.
+     */
+    public int getGroupCount() {
+        return this.similarities.size();
+    }
+}
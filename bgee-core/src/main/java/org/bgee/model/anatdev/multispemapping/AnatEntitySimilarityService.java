@@ -18,6 +18,7 @@ import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bgee.model.ReferenceDataCache;
 import org.bgee.model.Service;
 import org.bgee.model.ServiceFactory;
 import org.bgee.model.anatdev.AnatEntity;
@@ -34,7 +35,7 @@ import org.bgee.model.species.Taxon;
  * A {@code Service} for {@code AnatEntitySimilarity}.
  *
  * @author Frederic Bastian
- * @version Bgee 14 Mar. 2019
+ * @version Bgee 14 Jan. 2020
  * @since Bgee 14 Mar. 2019
  */
 public class AnatEntitySimilarityService extends Service {
@@ -52,18 +53,28 @@ public class AnatEntitySimilarityService extends Service {
     /**
      * Load positive anatomical entity similarities valid for the requested {@code taxonId}.
      * See {@link #loadPositiveAnatEntitySimilarities(int, boolean, Collection)} for details.
+     * <p>
+     * As the computation of the similarities is costly, the results are memoized
+     * in the {@code ReferenceDataCache} of the {@code ServiceFactory} used,
+     * see {@link ServiceFactory#getReferenceDataCache()}.
      *
      * @param taxonId                   An {@code Integer} that is the NCBI ID of the taxon for which
      *                                  the similarity annotations should be valid for.
      * @param onlyTrusted               A {@code boolean} defining whether results should be restricted
      *                                  to "trusted" annotations. If {@code true}, only trusted annotations
      *                                  are returned.
-     * @return                          The {@code Stream} of {@link AnatEntitySimilarity}s.
+     * @return                          The unmodifiable {@code Set} of {@link AnatEntitySimilarity}s.
      * @see #loadPositiveAnatEntitySimilarities(int, boolean, Collection)
      */
     public Set<AnatEntitySimilarity> loadPositiveAnatEntitySimilarities(int taxonId, boolean onlyTrusted) {
         log.entry(taxonId, onlyTrusted);
-        return log.exit(this.loadPositiveAnatEntitySimilarities(taxonId, onlyTrusted, null));
+        ReferenceDataCache cache = this.getServiceFactory().getReferenceDataCache();
+        if (cache == null) {
+            return log.exit(Collections.unmodifiableSet(
+                    this.loadPositiveAnatEntitySimilarities(taxonId, onlyTrusted, null)));
+        }
+        return log.exit(cache.getPositiveAnatEntitySimilarities(taxonId, onlyTrusted,
+                () -> this.loadPositiveAnatEntitySimilarities(taxonId, onlyTrusted, null)));
     }
     /**
      * Load positive anatomical entity similarities valid for the requested {@code taxonId}.
@@ -3,10 +3,13 @@ package org.bgee.model.expressiondata;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -18,6 +21,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -76,7 +80,7 @@ import org.bgee.model.species.Species;
  * @author  Frederic Bastian
  * @author  Valentine Rech de Laval
  * @author  Julien Wollbrett
- * @version Bgee 14, Apr. 2019
+ * @version Bgee 14, Jan. 2020
  * @since   Bgee 13, Oct. 2015
  */
 //******************
@@ -698,6 +702,12 @@ public class CallService extends CommonService {
         orderingAttributes.put(OrderingAttribute.ANAT_ENTITY_ID, Service.Direction.ASC);
 
 
+        //We index the requested genes, so that the genes with data in each anat. entity
+        //are stored as BitSets, rather than as copies of the requested genes
+        final List<Gene> geneList = Collections.unmodifiableList(new ArrayList<>(genes));
+        final Map<Gene, Integer> geneToIndex = IntStream.range(0, geneList.size()).boxed()
+                .collect(Collectors.toMap(i -> geneList.get(i), i -> i));
+
         Stream<ExpressionCall> callStream = this.loadExpressionCalls(callFilter, attributes, orderingAttributes);
         //We're going to group the calls per anat. entity, to be able to compare expression
         //of all genes in anat. entities
@@ -705,29 +715,36 @@ public class CallService extends CommonService {
         Stream<List<ExpressionCall>> callsByAnatEntity = StreamSupport.stream(
                 new ElementGroupFromListSpliterator<>(callStream, ExpressionCall::getCondition, comp),
                 false);
-        Map<Condition, MultiGeneExprCounts> condToCounts = callsByAnatEntity
+        //The grouping has to be sequential since calls are retrieved ordered by anat. entity,
+        //but each group can then be aggregated independently, in parallel.
+        List<List<ExpressionCall>> callGroups = callsByAnatEntity
         //We keep only conditions where at least one gene has observed data in it
         .filter(list -> list.stream()
                 .anyMatch(c -> Boolean.TRUE.equals(c.getDataPropagation().isIncludingObservedData())))
-        //Now we create for each Condition an Entry<Condition, MultiGeneExprCounts>
-        .map(list -> {
-            Map<ExpressionSummary, Collection<Gene>> callTypeToGenes = list.stream()
-                    .collect(Collectors.toMap(
-                            c -> c.getSummaryCallType(),
-                            c -> new HashSet<>(Arrays.asList(c.getGene())),
-                            (v1, v2) -> {v1.addAll(v2); return v1;}));
-            //Store expression score info for each Gene with data
-            Map<Gene, ExpressionLevelInfo> geneToExprScore = list.stream()
-            //Collectors.toMap does not accept null values,
-            //see https://stackoverflow.com/a/24634007/1768736
-            .collect(HashMap::new, (m, v) -> m.put(v.getGene(), v.getExpressionLevelInfo()), Map::putAll);
-            Set<Gene> genesWithNoData = new HashSet<>(genes);
-            genesWithNoData.removeAll(geneToExprScore.keySet());
-            return new AbstractMap.SimpleEntry<>(list.iterator().next().getCondition(),
-                    new MultiGeneExprCounts(callTypeToGenes, genesWithNoData, geneToExprScore));
-        })
-        //And we create the final Map condToCounts
-        .collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue()));
+        .collect(Collectors.toList());
+
+        //Now we create for each Condition a MultiGeneExprCounts
+        Map<Condition, MultiGeneExprCounts> condToCounts = callGroups.parallelStream()
+        .collect(Collectors.toMap(list -> list.iterator().next().getCondition(), list -> {
+            Map<ExpressionSummary, BitSet> callTypeToGeneBits = new EnumMap<>(ExpressionSummary.class);
+            BitSet geneWithDataBits = new BitSet(geneList.size());
+            for (ExpressionCall call: list) {
+                Integer geneIndex = geneToIndex.get(call.getGene());
+                if (geneIndex == null) {
+                    throw log.throwing(new IllegalStateException(
+                            "Call retrieved for a gene not requested: " + call.getGene()));
+                }
+                callTypeToGeneBits.computeIfAbsent(call.getSummaryCallType(),
+                        k -> new BitSet(geneList.size())).set(geneIndex);
+                geneWithDataBits.set(geneIndex);
+            }
+            return new MultiGeneExprCounts(geneList, callTypeToGeneBits, geneWithDataBits,
+                    //Expression score info for each Gene with data, computed only when requested.
+                    //Collectors.toMap does not accept null values,
+                    //see https://stackoverflow.com/a/24634007/1768736
+                    () -> list.stream().collect(HashMap::new,
+                            (m, v) -> m.put(v.getGene(), v.getExpressionLevelInfo()), Map::putAll));
+        }));
 
         return log.exit(new SingleSpeciesExprAnalysis(genes, condToCounts));
     }
@@ -1,11 +1,16 @@
 package org.bgee.model.expressiondata;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.bgee.model.expressiondata.baseelements.ExpressionLevelInfo;
@@ -22,7 +27,7 @@ import org.bgee.model.gene.Gene;
  * while {@code MultiSpeciesExprAnalysis} returns the comparison using {@code MultiSpeciesCondition}s.
  *
  * @author Frederic Bastian
- * @version Bgee 14 May 2019
+ * @version Bgee 14 Jan. 2020
  * @since Bgee 14 May 2019
  *
  * @param <T>   The type of conditions used to return the gene expression comparison.
@@ -33,15 +38,44 @@ public abstract class MultiGeneExprAnalysis<T> {
     //***************************************
     // INNER CLASSES AND STATIC ATTRIBUTES
     //***************************************
+    /**
+     * Stores the results of a comparison of expression between genes in a condition.
+     * This class can be instantiated either from already built {@code Collection}s of genes,
+     * or from {@code BitSet}s over the {@code List} of requested genes, in which case
+     * the {@code Set}s of genes are materialized only when requested, and the expression level
+     * information are computed by the provided {@code Supplier} only when first requested.
+     * This allows to aggregate the calls of a large number of genes in many conditions
+     * without copying the requested genes for each condition.
+     */
     public static final class MultiGeneExprCounts {
 
-        private final Map<ExpressionSummary, Set<Gene>> callTypeToGenes;
-        private final Set<Gene> genesWithNoData;
-        private final Map<Gene, ExpressionLevelInfo> geneToExprLevelInfo;
+        /**
+         * The {@code List} of {@code Gene}s that were requested, the index of each {@code Gene}
+         * being the index of its bit in {@link #callTypeToGeneBits} and {@link #geneWithDataBits}.
+         * {@code null} if this {@code MultiGeneExprCounts} was instantiated with {@code Collection}s
+         * of {@code Gene}s. Shared between all {@code MultiGeneExprCounts} of a same analysis.
+         */
+        private final List<Gene> requestedGenes;
+        private final Map<ExpressionSummary, BitSet> callTypeToGeneBits;
+        private final BitSet geneWithDataBits;
+        /**
+         * The {@code Supplier} of the expression level information of the genes with data,
+         * released once called.
+         */
+        private Supplier<Map<Gene, ExpressionLevelInfo>> geneToExprLevelInfoSupplier;
+
+        private Map<ExpressionSummary, Set<Gene>> callTypeToGenes;
+        private Set<Gene> genesWithNoData;
+        private Map<Gene, ExpressionLevelInfo> geneToExprLevelInfo;
 
         public MultiGeneExprCounts(Map<ExpressionSummary, Collection<Gene>> callTypeToGenes,
                 Collection<Gene> genesWithNoData, Map<Gene, ExpressionLevelInfo> geneToExprLevelInfo) {
 
+            this.requestedGenes = null;
+            this.callTypeToGeneBits = null;
+            this.geneWithDataBits = null;
+            this.geneToExprLevelInfoSupplier = null;
+
             this.callTypeToGenes = Collections.unmodifiableMap(
                     callTypeToGenes == null? new HashMap<>():
                             callTypeToGenes.entrySet().stream()
@@ -55,30 +89,97 @@ public abstract class MultiGeneExprAnalysis<T> {
             this.geneToExprLevelInfo = Collections.unmodifiableMap(
                     geneToExprLevelInfo == null? new HashMap<>(): new HashMap<>(geneToExprLevelInfo));
         }
+        /**
+         * @param requestedGenes                A {@code List} of {@code Gene}s that were requested,
+         *                                      the index of each {@code Gene} being the index of its bit
+         *                                      in the provided {@code BitSet}s. It is not copied,
+         *                                      so that it can be shared between all the
+         *                                      {@code MultiGeneExprCounts} of an analysis,
+         *                                      and must not be modified afterwards.
+         * @param callTypeToGeneBits            A {@code Map} where keys are {@code ExpressionSummary}s,
+         *                                      the associated value being a {@code BitSet} where
+         *                                      the bits set are the indexes of the genes with
+         *                                      this call type.
+         * @param geneWithDataBits              A {@code BitSet} where the bits set are the indexes
+         *                                      of the genes with data.
+         * @param geneToExprLevelInfoSupplier   A {@code Supplier} of a {@code Map} where keys are
+         *                                      {@code Gene}s with data, the associated value being
+         *                                      their {@code ExpressionLevelInfo} (can be {@code null}),
+         *                                      called at most once, when first requested.
+         * @throws IllegalArgumentException     If {@code requestedGenes} is {@code null}.
+         */
+        public MultiGeneExprCounts(List<Gene> requestedGenes,
+                Map<ExpressionSummary, BitSet> callTypeToGeneBits, BitSet geneWithDataBits,
+                Supplier<Map<Gene, ExpressionLevelInfo>> geneToExprLevelInfoSupplier)
+                        throws IllegalArgumentException {
+            if (requestedGenes == null) {
+                throw new IllegalArgumentException("The requested genes must be provided.");
+            }
+            this.requestedGenes = requestedGenes;
+            this.callTypeToGeneBits = new EnumMap<>(ExpressionSummary.class);
+            if (callTypeToGeneBits != null) {
+                this.callTypeToGeneBits.putAll(callTypeToGeneBits);
+            }
+            this.geneWithDataBits = geneWithDataBits == null? new BitSet(): (BitSet) geneWithDataBits.clone();
+            this.geneToExprLevelInfoSupplier = geneToExprLevelInfoSupplier == null? () -> null:
+                geneToExprLevelInfoSupplier;
+
+            this.callTypeToGenes = null;
+            this.genesWithNoData = null;
+            this.geneToExprLevelInfo = null;
+        }
+
+        private Set<Gene> getGenes(BitSet geneBits) {
+            return Collections.unmodifiableSet(geneBits.stream().mapToObj(this.requestedGenes::get)
+                    .collect(Collectors.toSet()));
+        }
 
-        public Map<ExpressionSummary, Set<Gene>> getCallTypeToGenes() {
+        public synchronized Map<ExpressionSummary, Set<Gene>> getCallTypeToGenes() {
+            if (this.callTypeToGenes == null) {
+                this.callTypeToGenes = Collections.unmodifiableMap(this.callTypeToGeneBits.entrySet()
+                        .stream()
+                        .collect(Collectors.toMap(e -> e.getKey(), e -> this.getGenes(e.getValue()))));
+            }
             return callTypeToGenes;
         }
-        public Set<Gene> getGenesWithNoData() {
+        public synchronized Set<Gene> getGenesWithNoData() {
+            if (this.genesWithNoData == null) {
+                BitSet geneWithNoDataBits = new BitSet(this.requestedGenes.size());
+                geneWithNoDataBits.set(0, this.requestedGenes.size());
+                geneWithNoDataBits.andNot(this.geneWithDataBits);
+                this.genesWithNoData = this.getGenes(geneWithNoDataBits);
+            }
             return genesWithNoData;
         }
+        /**
+         * @return  An {@code int} that is the number of requested genes with no data,
+         *          computed without materializing {@link #getGenesWithNoData()}.
+         */
+        public int getGenesWithNoDataCount() {
+            if (this.requestedGenes == null) {
+                return this.genesWithNoData.size();
+            }
+            return this.requestedGenes.size() - this.geneWithDataBits.cardinality();
+        }
         /**
          * @return  An unmodifiable {@code Map} where keys are {@code Gene}s with data, the associated value
          *          being a {@code ExpressionLevelInfo} containing the gene min rank in the condition, if any
          *          (can be {@code null} if no rank available for the gene).
          */
-        public Map<Gene, ExpressionLevelInfo> getGeneToExprLevelInfo() {
+        public synchronized Map<Gene, ExpressionLevelInfo> getGeneToExprLevelInfo() {
+            if (this.geneToExprLevelInfo == null) {
+                Map<Gene, ExpressionLevelInfo> map = this.geneToExprLevelInfoSupplier.get();
+                this.geneToExprLevelInfo = Collections.unmodifiableMap(
+                        map == null? new HashMap<>(): new HashMap<>(map));
+                this.geneToExprLevelInfoSupplier = null;
+            }
             return geneToExprLevelInfo;
         }
 
         @Override
         public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + ((callTypeToGenes == null) ? 0 : callTypeToGenes.hashCode());
-            result = prime * result + ((genesWithNoData == null) ? 0 : genesWithNoData.hashCode());
-            result = prime * result + ((geneToExprLevelInfo == null) ? 0 : geneToExprLevelInfo.hashCode());
-            return result;
+            return Objects.hash(this.getCallTypeToGenes(), this.getGenesWithNoData(),
+                    this.getGeneToExprLevelInfo());
         }
         @Override
         public boolean equals(Object obj) {
@@ -92,36 +193,17 @@ public abstract class MultiGeneExprAnalysis<T> {
                 return false;
             }
             MultiGeneExprCounts other = (MultiGeneExprCounts) obj;
-            if (callTypeToGenes == null) {
-                if (other.callTypeToGenes != null) {
-                    return false;
-                }
-            } else if (!callTypeToGenes.equals(other.callTypeToGenes)) {
-                return false;
-            }
-            if (genesWithNoData == null) {
-                if (other.genesWithNoData != null) {
-                    return false;
-                }
-            } else if (!genesWithNoData.equals(other.genesWithNoData)) {
-                return false;
-            }
-            if (geneToExprLevelInfo == null) {
-                if (other.geneToExprLevelInfo != null) {
-                    return false;
-                }
-            } else if (!geneToExprLevelInfo.equals(other.geneToExprLevelInfo)) {
-                return false;
-            }
-            return true;
+            return Objects.equals(this.getCallTypeToGenes(), other.getCallTypeToGenes()) &&
+                    Objects.equals(this.getGenesWithNoData(), other.getGenesWithNoData()) &&
+                    Objects.equals(this.getGeneToExprLevelInfo(), other.getGeneToExprLevelInfo());
         }
 
         @Override
         public String toString() {
             StringBuilder builder = new StringBuilder();
-            builder.append("MultiGeneExprCounts [callTypeToGenes=").append(callTypeToGenes)
-                   .append(", genesWithNoData=") .append(genesWithNoData)
-                   .append(", geneToExprLevelInfo=") .append(geneToExprLevelInfo)
+            builder.append("MultiGeneExprCounts [callTypeToGenes=").append(this.getCallTypeToGenes())
+                   .append(", genesWithNoData=") .append(this.getGenesWithNoData())
+                   .append(", geneToExprLevelInfo=") .append(this.getGeneToExprLevelInfo())
                    .append("]");
             return builder.toString();
         }
@@ -6,9 +6,11 @@ import java.util.AbstractMap.SimpleEntry;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -20,6 +22,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -27,11 +30,11 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bgee.model.CommonService;
 import org.bgee.model.ElementGroupFromListSpliterator;
-import org.bgee.model.Entity;
 import org.bgee.model.Service;
+import org.bgee.model.ReferenceDataCache;
 import org.bgee.model.ServiceFactory;
-import org.bgee.model.anatdev.AnatEntity;
 import org.bgee.model.anatdev.multispemapping.AnatEntitySimilarity;
+import org.bgee.model.anatdev.multispemapping.AnatEntitySimilarityIndex;
 import org.bgee.model.anatdev.multispemapping.AnatEntitySimilarityService;
 import org.bgee.model.anatdev.multispemapping.DevStageSimilarity;
 import org.bgee.model.anatdev.multispemapping.DevStageSimilarityService;
@@ -63,7 +66,7 @@ import org.bgee.model.species.TaxonomyFilter;
  * @author  Frederic Bastian
  * @author  Valentine Rech de Laval
  * @author  Julien Wollbrett
- * @version Bgee 14, Mar. 2019
+ * @version Bgee 14, Jan. 2020
  * @since   Bgee 13, May 2016
  */
 public class MultiSpeciesCallService extends CommonService {
@@ -779,29 +782,15 @@ public class MultiSpeciesCallService extends CommonService {
                             new HashSet<>(geneFilters));
 
         // Retrieve AnatEntitySimilarity from the provided taxon
-        Set<AnatEntitySimilarity> anatEntitySimilarities = anatEntitySimilarityService
-                .loadPositiveAnatEntitySimilarities(taxonId, onlyTrusted);
-        if (conditionFilter != null) {
-                // we keep anat. entity similarities with at least one anat. entity from condition filters
-            anatEntitySimilarities = anatEntitySimilarities.stream()
-                    .filter(s -> s.getSourceAnatEntities().stream()
-                            .anyMatch(ae -> conditionFilter.getAnatEntityIds().contains(ae.getId())))
-                .collect(Collectors.toSet());
-        }
+        AnatEntitySimilarityIndex similarityIndex = this.loadAnatEntitySimilarityIndex(
+                taxonId, onlyTrusted);
+        // we keep anat. entity similarities with at least one anat. entity from condition filters
+        BitSet retainedGroupIds = conditionFilter == null? similarityIndex.getAllGroupIds():
+            similarityIndex.getGroupIds(conditionFilter.getAnatEntityIds());
 
         // Build a new condition filter based on retrieved anat. entity similarities
-        //FIXME: actually, for non-transitive similarity relations, an AnatEntity
-        //could be part of several AnatEntitySimilaritys, so this should be
-        //a Map<AnatEntity, Set<AnatEntitySimilarity>>
-        Map<AnatEntity, AnatEntitySimilarity> similaritiesByAnatEntity =
-                anatEntitySimilarities.stream()
-                        .flatMap(sim -> sim.getSourceAnatEntities().stream()
-                                .map(ae -> new SimpleEntry<>(ae, sim)))
-                        .collect(Collectors.toMap(SimpleEntry::getKey, SimpleEntry::getValue));
-        Set<String> allAnatEntityIds = similaritiesByAnatEntity.keySet().stream()
-                .map(Entity::getId)
-                .collect(Collectors.toSet());
-        ConditionFilter newConditionFilter = new ConditionFilter(allAnatEntityIds, null);
+        ConditionFilter newConditionFilter = new ConditionFilter(
+                similarityIndex.getAnatEntityIds(retainedGroupIds), null);
 
         Map<ExpressionSummary, SummaryQuality> summaryCallTypeQualityFilter = new HashMap<>();
         summaryCallTypeQualityFilter.put(ExpressionSummary.EXPRESSED, SummaryQuality.BRONZE);
@@ -832,14 +821,8 @@ public class MultiSpeciesCallService extends CommonService {
         Stream<SimilarityExpressionCall> similarityExpressionCallStream =
                 callsByGene.flatMap(callList -> {
                     Gene gene = callList.get(0).getGene();
-                    LinkedHashMap<AnatEntitySimilarity, List<ExpressionCall>> callsPerSimilarity = callList.stream()
-                            .collect(Collectors.toMap(
-                                    c -> similaritiesByAnatEntity.get(c.getCondition().getAnatEntity()),
-                                    c -> new ArrayList<>(Arrays.asList(c)),
-                                    (v1, v2) -> {v1.addAll(v2); return v1;},
-                                    //Need compiler hint on my Eclipse version
-                                    () -> new LinkedHashMap<AnatEntitySimilarity, List<ExpressionCall>>()));
-                    return callsPerSimilarity.entrySet().stream().map(e -> {
+                    return groupCallsBySimilarity(callList, similarityIndex, retainedGroupIds)
+                            .entrySet().stream().map(e -> {
                         MultiSpeciesCondition cond = new MultiSpeciesCondition(e.getKey(), null);
                         boolean hasExpression = e.getValue().stream()
                                 .anyMatch(c -> ExpressionSummary.EXPRESSED.equals(c.getSummaryCallType()));
@@ -882,19 +865,13 @@ public class MultiSpeciesCallService extends CommonService {
         final Set<String> providedAnatEntityIds = callFilter.getConditionFilters().stream()
                 .flatMap(f -> f.getAnatEntityIds().stream())
                 .collect(Collectors.toSet());
-        Set<AnatEntitySimilarity> anatEntitySimilarities = anatEntitySimilarityService
-                .loadPositiveAnatEntitySimilarities(taxonId, onlyTrusted).stream()
-                // we keep anat. entity similarities with at least one anat. entity from condition filters
-                .filter(s -> s.getSourceAnatEntities().stream()
-                        .anyMatch(ae -> providedAnatEntityIds.contains(ae.getId())))
-                .collect(Collectors.toSet());
+        AnatEntitySimilarityIndex similarityIndex = this.loadAnatEntitySimilarityIndex(
+                taxonId, onlyTrusted);
+        // we keep anat. entity similarities with at least one anat. entity from condition filters
+        BitSet retainedGroupIds = similarityIndex.getGroupIds(providedAnatEntityIds);
 
         // Build the condition filter based on the AnatEntitySimilarity
-        Set<String> retrievedAnatEntityIds = anatEntitySimilarities.stream()
-                .map(AnatEntitySimilarity::getSourceAnatEntities)
-                .flatMap(Set::stream)
-                .map(Entity::getId)
-                .collect(Collectors.toSet());
+        Set<String> retrievedAnatEntityIds = similarityIndex.getAnatEntityIds(retainedGroupIds);
         // FIXME not sure we can have only one condition filter if there are several ones in provided callFilter
         // FIXME: We can simply remove from each ConditionFilter any anat. entity ID not present
         // in the AnatEntitySimilarities.
@@ -929,18 +906,70 @@ public class MultiSpeciesCallService extends CommonService {
         Stream<SimilarityExpressionCall> similarityExpressionCallStream =
                 callsByGene.flatMap(callList -> {
                     Gene gene = callList.get(0).getGene();
-                    return anatEntitySimilarities.stream()
-                            .map(anatEntitySimilarity -> {
-                                MultiSpeciesCondition cond = new MultiSpeciesCondition(anatEntitySimilarity, null);
-                                List<ExpressionCall> filteredCalls = callList.stream()
-                                        .filter(c -> anatEntitySimilarity.getSourceAnatEntities().contains(c.getCondition().getAnatEntity()))
-                                        .collect(Collectors.toList());
-                                return new SimilarityExpressionCall(gene, cond, filteredCalls, null);
-                            }).filter(s -> !s.getCalls().isEmpty());
+                    return groupCallsBySimilarity(callList, similarityIndex, retainedGroupIds)
+                            .entrySet().stream()
+                            .map(e -> new SimilarityExpressionCall(gene,
+                                    new MultiSpeciesCondition(e.getKey(), null), e.getValue(), null));
                 });
         return log.exit(similarityExpressionCallStream);
     }
 
+    /**
+     * Load the {@code AnatEntitySimilarityIndex} for the requested taxon. The index is memoized
+     * in the {@code ReferenceDataCache} of the {@code ServiceFactory} used, if any.
+     *
+     * @param taxonId       An {@code int} that is the NCBI ID of the taxon for which
+     *                      the similarities should be valid.
+     * @param onlyTrusted   A {@code boolean} defining whether results should be restricted
+     *                      to "trusted" annotations.
+     * @return              The {@code AnatEntitySimilarityIndex} for the requested parameters.
+     */
+    private AnatEntitySimilarityIndex loadAnatEntitySimilarityIndex(int taxonId, boolean onlyTrusted) {
+        log.entry(taxonId, onlyTrusted);
+        ReferenceDataCache cache = this.getServiceFactory().getReferenceDataCache();
+        if (cache == null) {
+            return log.exit(new AnatEntitySimilarityIndex(anatEntitySimilarityService
+                    .loadPositiveAnatEntitySimilarities(taxonId, onlyTrusted)));
+        }
+        return log.exit(cache.getAnatEntitySimilarityIndex(taxonId, onlyTrusted,
+                () -> new AnatEntitySimilarityIndex(anatEntitySimilarityService
+                        .loadPositiveAnatEntitySimilarities(taxonId, onlyTrusted))));
+    }
+
+    /**
+     * Group the calls of a gene by the {@code AnatEntitySimilarity}s their anat. entity
+     * is part of, in a single pass over the calls.
+     *
+     * @param callList          A {@code List} of {@code ExpressionCall}s of a same gene.
+     * @param similarityIndex   The {@code AnatEntitySimilarityIndex} to retrieve similarities from.
+     * @param retainedGroupIds  A {@code BitSet} where the bits set are the IDs
+     *                          of the similarity groups to consider.
+     * @return                  A {@code LinkedHashMap} where keys are {@code AnatEntitySimilarity}s,
+     *                          in order of first appearance in {@code callList}, the associated
+     *                          value being the {@code List} of {@code ExpressionCall}s in it.
+     */
+    private static LinkedHashMap<AnatEntitySimilarity, List<ExpressionCall>> groupCallsBySimilarity(
+            List<ExpressionCall> callList, AnatEntitySimilarityIndex similarityIndex,
+            BitSet retainedGroupIds) {
+        log.entry(callList, similarityIndex, retainedGroupIds);
+        //calls are first bucketed by group ID, in order of first appearance of the group
+        LinkedHashMap<Integer, List<ExpressionCall>> callsPerGroupId = new LinkedHashMap<>();
+        for (ExpressionCall call: callList) {
+            for (int groupId: similarityIndex.getGroupIds(
+                    call.getCondition().getAnatEntity().getId())) {
+                if (retainedGroupIds.get(groupId)) {
+                    callsPerGroupId.computeIfAbsent(groupId, k -> new ArrayList<>()).add(call);
+                }
+            }
+        }
+        LinkedHashMap<AnatEntitySimilarity, List<ExpressionCall>> callsPerSimilarity =
+                new LinkedHashMap<>();
+        for (Entry<Integer, List<ExpressionCall>> e: callsPerGroupId.entrySet()) {
+            callsPerSimilarity.put(similarityIndex.getSimilarity(e.getKey()), e.getValue());
+        }
+        return log.exit(callsPerSimilarity);
+    }
+
     //TODO: equivalent method accepting ExpressionCallFilter
     //XXX: Maybe we need a DataPropagation attribute in SimilarityExpressionCall,
     //otherwise here we can retrieve calls in conditions with no observed data for any of the genes
@@ -964,52 +993,70 @@ public class MultiSpeciesCallService extends CommonService {
                 ).getId();
 
 
+        //We index the requested genes, so that the genes with data in each condition
+        //are stored as BitSets, rather than as copies of the requested genes
+        final List<Gene> geneList = Collections.unmodifiableList(new ArrayList<>(clonedGenes));
+        final Map<Gene, Integer> geneToIndex = IntStream.range(0, geneList.size()).boxed()
+                .collect(Collectors.toMap(i -> geneList.get(i), i -> i));
+
         Stream<SimilarityExpressionCall> callStream = this.loadSimilarityExpressionCalls(
                 lcaId, geneFilters, null, false);
         Map<MultiSpeciesCondition, MultiGeneExprCounts> condToCounts = callStream
                 //produces a Map<MultiSpeciesCondition, List<SimilarityExpressionCall>>
                 .collect(Collectors.groupingBy(c -> c.getMultiSpeciesCondition()))
-                //streaming Entry<MultiSpeciesCondition, List<SimilarityExpressionCall>>
-                .entrySet().stream()
+                //streaming Entry<MultiSpeciesCondition, List<SimilarityExpressionCall>>,
+                //each condition being aggregated independently, in parallel
+                .entrySet().parallelStream()
                 //Keep only conditions where at least one gene has observed data in it
                 .filter(e -> e.getValue().stream().anyMatch(sc -> sc.getCalls().stream()
                         .anyMatch(c -> Boolean.TRUE.equals(c.getDataPropagation().isIncludingObservedData()))))
-                //mapping Entry<MultiSpeciesCondition, List<SimilarityExpressionCall>>
-                //to Entry<MultiSpeciesCondition, MultiGeneExprCounts>
-                .map(e -> {
-                    List<SimilarityExpressionCall> list = e.getValue();
-                    Map<ExpressionSummary, Collection<Gene>> callTypeToGenes = list.stream()
-                            .collect(Collectors.toMap(
-                                    c -> c.getSummaryCallType(),
-                                    c -> new HashSet<>(Arrays.asList(c.getGene())),
-                                    (v1, v2) -> {v1.addAll(v2); return v1;}));
-                    Set<Gene> genesWithData = list.stream().map(c -> c.getGene()).collect(Collectors.toSet());
-                    Set<Gene> genesWithNoData = new HashSet<>(clonedGenes);
-                    genesWithNoData.removeAll(genesWithData);
-
-                    //For each gene with an expression score, we find the max expression score
-                    Map<Gene, Optional<ExpressionLevelInfo>> geneToMaxExprScoreOptional = list.stream()
-                    .flatMap(sc -> sc.getCalls().stream())
-                    .filter(c -> c.getExpressionScore() != null)
-                    .collect(Collectors.groupingBy(c -> c.getGene(),
-                            Collectors.mapping(c -> c.getExpressionLevelInfo(),
-                                    //Need a compiler hint with my local version of Java
-                                    Collectors.maxBy(Comparator.comparing(eli -> eli.getExpressionScore())))));
-                    //We insert in the Map all genes with data, with a null expr score if they don't have one
-                    Map<Gene, ExpressionLevelInfo> geneToMaxExprScore = genesWithData.stream()
-                    .map(g -> new AbstractMap.SimpleEntry<>(g, geneToMaxExprScoreOptional.containsKey(g)? geneToMaxExprScoreOptional.get(g).get(): null))
-                    //Collectors.toMap does not accept null values,
-                    //see https://stackoverflow.com/a/24634007/1768736
-                    .collect(HashMap::new, (m, v) -> m.put(v.getKey(), v.getValue()), Map::putAll);
- 
-                    return new AbstractMap.SimpleEntry<>(e.getKey(),
-                            new MultiGeneExprCounts(callTypeToGenes, genesWithNoData, geneToMaxExprScore));
-                })
                 //And we create the final Map condToCounts
-                .collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue()));
+                .collect(Collectors.toMap(e -> e.getKey(), e -> {
+                    List<SimilarityExpressionCall> list = e.getValue();
+                    Map<ExpressionSummary, BitSet> callTypeToGeneBits = new EnumMap<>(ExpressionSummary.class);
+                    BitSet geneWithDataBits = new BitSet(geneList.size());
+                    for (SimilarityExpressionCall call: list) {
+                        Integer geneIndex = geneToIndex.get(call.getGene());
+                        if (geneIndex == null) {
+                            throw log.throwing(new IllegalStateException(
+                                    "Call retrieved for a gene not requested: " + call.getGene()));
+                        }
+                        callTypeToGeneBits.computeIfAbsent(call.getSummaryCallType(),
+                                k -> new BitSet(geneList.size())).set(geneIndex);
+                        geneWithDataBits.set(geneIndex);
+                    }
+                    return new MultiGeneExprCounts(geneList, callTypeToGeneBits, geneWithDataBits,
+                            //The max expression score of each gene is computed only when requested
+                            () -> loadGeneToMaxExprLevelInfo(list));
+                }));
 
         return log.exit(new MultiSpeciesExprAnalysis(clonedGenes, condToCounts));
     }
+    /**
+     * @param calls A {@code List} of {@code SimilarityExpressionCall}s in a same condition.
+     * @return      A {@code Map} where keys are the {@code Gene}s with data, the associated value
+     *              being the {@code ExpressionLevelInfo} with the max expression score of the gene
+     *              in the condition, {@code null} if none.
+     */
+    private static Map<Gene, ExpressionLevelInfo> loadGeneToMaxExprLevelInfo(
+            List<SimilarityExpressionCall> calls) {
+        log.entry(calls);
+        //For each gene with an expression score, we find the max expression score
+        Map<Gene, Optional<ExpressionLevelInfo>> geneToMaxExprScoreOptional = calls.stream()
+        .flatMap(sc -> sc.getCalls().stream())
+        .filter(c -> c.getExpressionScore() != null)
+        .collect(Collectors.groupingBy(c -> c.getGene(),
+                Collectors.mapping(c -> c.getExpressionLevelInfo(),
+                        //Need a compiler hint with my local version of Java
+                        Collectors.maxBy(Comparator.comparing(eli -> eli.getExpressionScore())))));
+        //We insert in the Map all genes with data, with a null expr score if they don't have one
+        Map<Gene, ExpressionLevelInfo> geneToMaxExprScore = new HashMap<>();
+        for (SimilarityExpressionCall call: calls) {
+            Optional<ExpressionLevelInfo> maxExprScore = geneToMaxExprScoreOptional.get(call.getGene());
+            geneToMaxExprScore.put(call.getGene(), maxExprScore == null? null: maxExprScore.get());
+        }
+        return log.exit(geneToMaxExprScore);
+    }
     //TODO: Once the method loadSimilarityExpressionCalls accepting an ExpressionCallFiter
     //will be ready, add a method to accept an ExpressionCallFilter rather than geneFilters,
     //as in CallService
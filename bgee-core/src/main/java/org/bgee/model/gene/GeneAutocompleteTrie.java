@@ -0,0 +1,470 @@
+package org.bgee.model.gene;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * An immutable prefix trie providing autocomplete suggestions for the gene search,
+ * with the best {@link #getK()} completions precomputed for each node, so that a lookup
+ * only walks down the trie, without any sorting of the completions or locking.
+ * <p>
+ * The trie is path-compressed (edges are labeled with strings), and stored in a single
+ * {@code ByteBuffer} with the layout of the file written by {@link #writeToFile(Path)}.
+ * It is built offline (see {@link Builder}), and the file is memory-mapped
+ * by {@link #map(Path)}, so that the trie does not use the Java heap.
+ * <p>
+ * Each completion has a score, for instance reflecting its popularity, the higher the better.
+ * Completions are ranked by descending score, then by ascending length, then
+ * in alphabetical order. Lookups are case-insensitive.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @see GeneMatchResultService#autocomplete(String, int)
+ * @since   Bgee 14, Jan. 2020
+ */
+public class GeneAutocompleteTrie {
+    private final static Logger log = LogManager.getLogger(GeneAutocompleteTrie.class.getName());
+
+    /**
+     * An {@code int} written at the beginning of trie files, to check their format.
+     */
+    private final static int MAGIC_NUMBER = 0x42474154;
+    /**
+     * An {@code int} that is the version of the format of trie files.
+     */
+    private final static int FILE_FORMAT_VERSION = 1;
+    /**
+     * An {@code int} that is the default number of completions precomputed per node.
+     */
+    public final static int DEFAULT_K = 20;
+    /**
+     * An {@code int} that is the maximum length of completions, longer ones are ignored.
+     */
+    private final static int MAX_COMPLETION_LENGTH = 1000;
+    //Header: magic number, version, k, completion count, position of the root node.
+    private final static int HEADER_SIZE = 5 * Integer.BYTES;
+    private final static int ROOT_POSITION_OFFSET = 4 * Integer.BYTES;
+
+    /**
+     * @param term  A {@code String} to normalize.
+     * @return      A {@code String} that is the key of {@code term} in the trie.
+     */
+    private static String toKey(String term) {
+        return StringUtils.normalizeSpace(term).toLowerCase();
+    }
+
+    /**
+     * A builder of {@code GeneAutocompleteTrie}s. Not thread-safe.
+     *
+     * @version Bgee 14, Jan. 2020
+     * @since   Bgee 14, Jan. 2020
+     */
+    public static class Builder {
+        private final int k;
+        /**
+         * A {@code Map} where keys are {@code String}s that are the keys of completions,
+         * the associated value being an {@code Array} of two {@code Object}s:
+         * the label of the completion, and its {@code Long} score.
+         */
+        private final Map<String, Object[]> completions;
+
+        /**
+         * @param k An {@code int} that is the number of completions to precompute per node.
+         */
+        public Builder(int k) {
+            if (k <= 0) {
+                throw log.throwing(new IllegalArgumentException("k must be greater than 0"));
+            }
+            this.k = k;
+            this.completions = new HashMap<>();
+        }
+
+        /**
+         * Add a completion. If a completion with the same key (case-insensitive)
+         * was already added, the scores are summed, and the first label added is kept.
+         *
+         * @param completion    A {@code String} that is the completion to add.
+         * @param score         A {@code long} that is the score of the completion,
+         *                      the higher the better.
+         * @return              This {@code Builder}.
+         */
+        public Builder add(String completion, long score) {
+            if (StringUtils.isBlank(completion) || completion.length() > MAX_COMPLETION_LENGTH) {
+                return this;
+            }
+            String label = StringUtils.normalizeSpace(completion);
+            Object[] existing = this.completions.putIfAbsent(toKey(label), new Object[]{label, score});
+            if (existing != null) {
+                existing[1] = (Long) existing[1] + score;
+            }
+            return this;
+        }
+
+        /**
+         * @return  The {@code GeneAutocompleteTrie} built from the completions added,
+         *          stored in the heap.
+         */
+        public GeneAutocompleteTrie build() {
+            log.entry();
+            String[] keys = this.completions.keySet().toArray(new String[0]);
+            Arrays.sort(keys);
+            String[] labels = new String[keys.length];
+            long[] scores = new long[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                Object[] completion = this.completions.get(keys[i]);
+                labels[i] = (String) completion[0];
+                scores[i] = (Long) completion[1];
+            }
+            int[] byRank = IntStream.range(0, keys.length).boxed()
+                    .sorted(Comparator.<Integer>comparingLong(i -> -scores[i])
+                            .thenComparingInt(i -> labels[i].length())
+                            .thenComparing(i -> keys[i]))
+                    .mapToInt(Integer::intValue).toArray();
+            int[] ranks = new int[keys.length];
+            for (int rank = 0; rank < byRank.length; rank++) {
+                ranks[byRank[rank]] = rank;
+            }
+
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(MAGIC_NUMBER);
+                out.writeInt(FILE_FORMAT_VERSION);
+                out.writeInt(this.k);
+                out.writeInt(keys.length);
+                out.writeInt(0); //position of the root node, set at the end
+                for (int rank: ranks) {
+                    out.writeInt(rank);
+                }
+                //positions of the labels of completions
+                int labelPosition = HEADER_SIZE + 2 * Integer.BYTES * keys.length;
+                for (String label: labels) {
+                    out.writeInt(labelPosition);
+                    labelPosition += Short.BYTES + Character.BYTES * label.length();
+                }
+                for (String label: labels) {
+                    writeChars(out, label);
+                }
+                int rootPosition = new NodeWriter(out, keys, ranks, this.k)
+                        .writeNode(0, keys.length, 0, "").position;
+                out.flush();
+
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                buffer.putInt(ROOT_POSITION_OFFSET, rootPosition);
+                return log.exit(new GeneAutocompleteTrie(buffer));
+            } catch (IOException e) {
+                //cannot happen when writing in memory
+                throw log.throwing(new UncheckedIOException(e));
+            }
+        }
+    }
+
+    /**
+     * Write the nodes of the trie in post-order, so that the position of the children
+     * is known when writing a node. Each node stores: the label of the edge leading to it,
+     * the range of the sorted completions under it, its children (first character
+     * of their edge and position), and the indexes of its best completions in rank order,
+     * only if it has more than {@code k} completions under it.
+     */
+    private static class NodeWriter {
+        private final DataOutputStream out;
+        private final String[] keys;
+        private final int[] ranks;
+        private final int k;
+
+        private static class WrittenNode {
+            private final int position;
+            private final int[] top;
+            private WrittenNode(int position, int[] top) {
+                this.position = position;
+                this.top = top;
+            }
+        }
+
+        private NodeWriter(DataOutputStream out, String[] keys, int[] ranks, int k) {
+            this.out = out;
+            this.keys = keys;
+            this.ranks = ranks;
+            this.k = k;
+        }
+
+        /**
+         * @param from      An {@code int} that is the index of the first completion under the node.
+         * @param to        An {@code int} that is the index after the last completion under the node.
+         * @param depth     An {@code int} that is the length of the prefix shared by all
+         *                  completions under the node.
+         * @param edge      A {@code String} that is the label of the edge leading to the node.
+         * @return          The {@code WrittenNode} storing the position of the node,
+         *                  and the indexes of its best completions in rank order.
+         */
+        private WrittenNode writeNode(int from, int to, int depth, String edge) throws IOException {
+            List<Integer> candidates = new ArrayList<>();
+            List<Character> childChars = new ArrayList<>();
+            List<Integer> childPositions = new ArrayList<>();
+            int i = from;
+            //completion ending at this node, if any (it comes first as keys are sorted)
+            if (i < to && this.keys[i].length() == depth) {
+                candidates.add(i);
+                i++;
+            }
+            while (i < to) {
+                char c = this.keys[i].charAt(depth);
+                int groupEnd = i + 1;
+                while (groupEnd < to && this.keys[groupEnd].charAt(depth) == c) {
+                    groupEnd++;
+                }
+                //longest common prefix of the group: the one of its first and last keys
+                String first = this.keys[i];
+                String last = this.keys[groupEnd - 1];
+                int prefixEnd = depth + 1;
+                while (prefixEnd < first.length() && prefixEnd < last.length() &&
+                        first.charAt(prefixEnd) == last.charAt(prefixEnd)) {
+                    prefixEnd++;
+                }
+                WrittenNode child = this.writeNode(i, groupEnd, prefixEnd,
+                        first.substring(depth, prefixEnd));
+                childChars.add(c);
+                childPositions.add(child.position);
+                for (int index: child.top) {
+                    candidates.add(index);
+                }
+                i = groupEnd;
+            }
+            int[] top = candidates.stream()
+                    .sorted(Comparator.comparingInt(index -> this.ranks[index]))
+                    .limit(this.k)
+                    .mapToInt(Integer::intValue).toArray();
+
+            int position = this.out.size();
+            writeChars(this.out, edge);
+            this.out.writeInt(from);
+            this.out.writeInt(to);
+            this.out.writeShort(childChars.size());
+            for (int j = 0; j < childChars.size(); j++) {
+                this.out.writeChar(childChars.get(j));
+                this.out.writeInt(childPositions.get(j));
+            }
+            //for small nodes, completions are sorted at lookup
+            int[] storedTop = to - from > this.k? top: new int[0];
+            this.out.writeByte(storedTop.length);
+            for (int index: storedTop) {
+                this.out.writeInt(index);
+            }
+            return new WrittenNode(position, top);
+        }
+    }
+
+    private static void writeChars(DataOutputStream out, String value) throws IOException {
+        out.writeShort(value.length());
+        out.writeChars(value);
+    }
+    private String readChars(int position) {
+        int length = this.buffer.getShort(position);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = this.buffer.getChar(position + Short.BYTES + i * Character.BYTES);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Memory-map a trie file written by {@link #writeToFile(Path)}.
+     *
+     * @param file          A {@code Path} that is the trie file to map.
+     * @return              The {@code GeneAutocompleteTrie} stored in {@code file}.
+     * @throws IOException  If an error occurred while mapping the file,
+     *                      or if it is not a trie file.
+     */
+    public static GeneAutocompleteTrie map(Path file) throws IOException {
+        log.entry(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC_NUMBER) {
+                throw log.throwing(new IOException("Not a gene autocomplete file: " + file));
+            }
+            if (buffer.getInt(Integer.BYTES) != FILE_FORMAT_VERSION) {
+                throw log.throwing(new IOException("Unsupported version of gene autocomplete file: "
+                        + buffer.getInt(Integer.BYTES)));
+            }
+            return log.exit(new GeneAutocompleteTrie(buffer));
+        }
+    }
+
+    /**
+     * The {@code ByteBuffer} storing the trie. Only absolute get methods are used,
+     * so that it can be read concurrently.
+     */
+    private final ByteBuffer buffer;
+    private final int k;
+    private final int completionCount;
+    private final int rootPosition;
+
+    private GeneAutocompleteTrie(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.k = buffer.getInt(2 * Integer.BYTES);
+        this.completionCount = buffer.getInt(3 * Integer.BYTES);
+        this.rootPosition = buffer.getInt(ROOT_POSITION_OFFSET);
+    }
+
+    /**
+     * Retrieve the best completions starting with {@code searchTerm}.
+     *
+     * @param searchTerm    A {@code String} that is the prefix to complete.
+     * @param resultPerPage An {@code int} that is the number of completions to return.
+     *                      At most {@link #getK()} completions are returned.
+     * @return              A {@code List} of {@code String}s that are the best completions,
+     *                      in rank order.
+     */
+    public List<String> lookup(String searchTerm, int resultPerPage) {
+        log.entry(searchTerm, resultPerPage);
+        if (StringUtils.isBlank(searchTerm) || resultPerPage <= 0) {
+            return log.exit(new ArrayList<>());
+        }
+        String remaining = toKey(searchTerm);
+        int node = this.rootPosition;
+        while (!remaining.isEmpty()) {
+            int child = this.findChild(node, remaining.charAt(0));
+            if (child < 0) {
+                return log.exit(new ArrayList<>());
+            }
+            String edge = this.readChars(child);
+            if (remaining.startsWith(edge)) {
+                remaining = remaining.substring(edge.length());
+            } else if (!edge.startsWith(remaining)) {
+                return log.exit(new ArrayList<>());
+            } else {
+                remaining = "";
+            }
+            node = child;
+        }
+        return log.exit(this.getCompletions(node, resultPerPage));
+    }
+
+    /**
+     * @param node  An {@code int} that is the position of a node.
+     * @return      An {@code int} that is the position of the fields of the node
+     *              following its edge label.
+     */
+    private int getFieldsPosition(int node) {
+        return node + Short.BYTES + Character.BYTES * this.buffer.getShort(node);
+    }
+    /**
+     * @param node  An {@code int} that is the position of a node.
+     * @param c     A {@code char} that is the first character of the edge to follow.
+     * @return      An {@code int} that is the position of the child, -1 if none.
+     */
+    private int findChild(int node, char c) {
+        int childrenPosition = this.getFieldsPosition(node) + 2 * Integer.BYTES;
+        int childCount = this.buffer.getShort(childrenPosition) & 0xFFFF;
+        int entriesPosition = childrenPosition + Short.BYTES;
+        int entrySize = Character.BYTES + Integer.BYTES;
+        int low = 0;
+        int high = childCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = this.buffer.getChar(entriesPosition + mid * entrySize);
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return this.buffer.getInt(entriesPosition + mid * entrySize + Character.BYTES);
+            }
+        }
+        return -1;
+    }
+    /**
+     * @param node          An {@code int} that is the position of a node.
+     * @param resultPerPage An {@code int} that is the number of completions to return.
+     * @return              A {@code List} of {@code String}s that are the best completions
+     *                      under the node, in rank order.
+     */
+    private List<String> getCompletions(int node, int resultPerPage) {
+        int fieldsPosition = this.getFieldsPosition(node);
+        int from = this.buffer.getInt(fieldsPosition);
+        int to = this.buffer.getInt(fieldsPosition + Integer.BYTES);
+        int childrenPosition = fieldsPosition + 2 * Integer.BYTES;
+        int childCount = this.buffer.getShort(childrenPosition) & 0xFFFF;
+        int topPosition = childrenPosition + Short.BYTES
+                + childCount * (Character.BYTES + Integer.BYTES);
+        int topCount = this.buffer.get(topPosition) & 0xFF;
+
+        int[] indexes;
+        if (topCount > 0) {
+            indexes = new int[topCount];
+            for (int i = 0; i < topCount; i++) {
+                indexes[i] = this.buffer.getInt(topPosition + 1 + i * Integer.BYTES);
+            }
+        } else {
+            indexes = IntStream.range(from, to).boxed()
+                    .sorted(Comparator.comparingInt(this::getRank))
+                    .mapToInt(Integer::intValue).toArray();
+        }
+        List<String> completions = new ArrayList<>();
+        for (int i = 0; i < indexes.length && i < resultPerPage; i++) {
+            completions.add(this.getLabel(indexes[i]));
+        }
+        return completions;
+    }
+    private int getRank(int completionIndex) {
+        return this.buffer.getInt(HEADER_SIZE + completionIndex * Integer.BYTES);
+    }
+    private String getLabel(int completionIndex) {
+        return this.readChars(this.buffer.getInt(
+                HEADER_SIZE + (this.completionCount + completionIndex) * Integer.BYTES));
+    }
+
+    /**
+     * @return  An {@code int} that is the number of completions precomputed per node,
+     *          the maximum number of completions returned by a lookup.
+     */
+    public int getK() {
+        return this.k;
+    }
+    /**
+     * @return  An {@code int} that is the number of completions in this trie.
+     */
+    public int getCompletionCount() {
+        return this.completionCount;
+    }
+
+    /**
+     * Write this trie into {@code file}, to be memory-mapped with {@link #map(Path)}.
+     * The file is written to a temporary file first, then moved to {@code file}.
+     *
+     * @param file          A {@code Path} that is the file to write.
+     * @throws IOException  If an error occurred while writing the file.
+     */
+    public void writeToFile(Path file) throws IOException {
+        log.entry(file);
+        Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer toWrite = this.buffer.duplicate();
+            toWrite.clear();
+            while (toWrite.hasRemaining()) {
+                channel.write(toWrite);
+            }
+        }
+        Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+        log.exit();
+    }
+}
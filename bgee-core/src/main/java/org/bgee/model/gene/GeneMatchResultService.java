@@ -6,12 +6,18 @@ import org.apache.logging.log4j.Logger;
 import org.bgee.model.BgeeProperties;
 import org.bgee.model.CommonService;
 import org.bgee.model.ServiceFactory;
+import org.bgee.model.dao.api.DAOManager;
+import org.bgee.model.dao.api.gene.GeneNameSynonymDAO.GeneNameSynonymTO;
+import org.bgee.model.dao.api.gene.GeneXRefDAO;
 import org.bgee.model.species.Species;
 import org.sphx.api.SphinxClient;
 import org.sphx.api.SphinxException;
 import org.sphx.api.SphinxMatch;
 import org.sphx.api.SphinxResult;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -20,6 +26,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static org.bgee.model.gene.GeneMatch.MatchSource.DESCRIPTION;
@@ -29,6 +36,12 @@ import static org.bgee.model.gene.GeneMatch.MatchSource.XREF;
 
 /**
  * Class allowing to manage and retrieve {@code GeneMatchResult}s.
+ * <p>
+ * Searches are performed either by a Sphinx search server, or by an in-memory
+ * {@link GeneSearchIndex} if {@link BgeeProperties#isSearchIndexEmbedded()} returns {@code true}.
+ * The in-memory index is loaded at first use and shared by all threads, from the file
+ * returned by {@link BgeeProperties#getSearchIndexFile()} if defined,
+ * or from the data source otherwise.
  *
  * @author  Valentine Rech de Laval
  * @version Bgee 14, May 2019
@@ -44,17 +57,57 @@ public class GeneMatchResultService extends CommonService {
 
 
     private static final String SPHINX_SEPARATOR = "\\|\\|";
+    /**
+     * A {@code String} that is the key in {@link #SHARED_SEARCH_INDEXES} of the index
+     * built from the data source.
+     */
+    private static final String DATA_SOURCE_INDEX_KEY = "";
+    /**
+     * A {@code Map} where keys are {@code String}s that are paths to index files
+     * (or {@link #DATA_SOURCE_INDEX_KEY}), the associated value being the {@code GeneSearchIndex}
+     * loaded from it, shared by all threads.
+     */
+    private static final Map<String, GeneSearchIndex> SHARED_SEARCH_INDEXES = new ConcurrentHashMap<>();
+    /**
+     * A {@code Map} where keys are {@code String}s that are paths to autocomplete trie files,
+     * the associated value being the {@code GeneAutocompleteTrie} memory-mapped from it,
+     * shared by all threads.
+     */
+    private static final Map<String, GeneAutocompleteTrie> SHARED_AUTOCOMPLETE_TRIES =
+            new ConcurrentHashMap<>();
+
     /**
      * @see #getSphinxClient()
      */
     private final SphinxClient sphinxClient;
+    /**
+     * @see #getSearchIndex()
+     */
+    private final GeneSearchIndex searchIndex;
+    /**
+     * @see #getAutocompleteTrie()
+     */
+    private final GeneAutocompleteTrie autocompleteTrie;
 
     /**
      * Construct a new {@code GeneMatchResultService} using the provided {@code BgeeProperties}. 
+     * If {@link BgeeProperties#isSearchIndexEmbedded()} returns {@code true}, the shared 
+     * in-memory {@code GeneSearchIndex} is used, and loaded if needed. If
+     * {@link BgeeProperties#getSearchAutocompleteFile()} is defined, the shared
+     * {@code GeneAutocompleteTrie} mapped from this file is used for autocomplete suggestions.
      */
     public GeneMatchResultService(BgeeProperties props, ServiceFactory serviceFactory) {
-        this(new SphinxClient(props.getSearchServerURL(), Integer.valueOf(props.getSearchServerPort())),
-                serviceFactory);
+        super(serviceFactory);
+        if (props.isSearchIndexEmbedded()) {
+            this.sphinxClient = null;
+            this.searchIndex = this.getSharedSearchIndex(props.getSearchIndexFile());
+        } else {
+            this.sphinxClient = new SphinxClient(props.getSearchServerURL(),
+                    Integer.valueOf(props.getSearchServerPort()));
+            this.searchIndex = null;
+        }
+        this.autocompleteTrie = StringUtils.isBlank(props.getSearchAutocompleteFile())? null:
+            getSharedAutocompleteTrie(props.getSearchAutocompleteFile());
     }
     /**
      * Construct a new {@code GeneMatchResultService} using the provided {@code SphinxClient}. 
@@ -62,14 +115,146 @@ public class GeneMatchResultService extends CommonService {
     public GeneMatchResultService(SphinxClient sphinxClient, ServiceFactory serviceFactory) {
         super(serviceFactory);
         this.sphinxClient = sphinxClient;
+        this.searchIndex = null;
+        this.autocompleteTrie = null;
+    }
+    /**
+     * Construct a new {@code GeneMatchResultService} using the provided {@code GeneSearchIndex}. 
+     */
+    public GeneMatchResultService(GeneSearchIndex searchIndex, ServiceFactory serviceFactory) {
+        super(serviceFactory);
+        this.sphinxClient = null;
+        this.searchIndex = searchIndex;
+        this.autocompleteTrie = null;
     }
 
     /**
-     * @return  The {@code SphinxClient} used by this {@code GeneMatchResultService}.
+     * @return  The {@code SphinxClient} used by this {@code GeneMatchResultService},
+     *          {@code null} if it uses a {@code GeneSearchIndex}.
      */
     public SphinxClient getSphinxClient() {
         return sphinxClient;
     }
+    /**
+     * @return  The {@code GeneSearchIndex} used by this {@code GeneMatchResultService},
+     *          {@code null} if it uses a {@code SphinxClient}.
+     */
+    public GeneSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+    /**
+     * @return  The {@code GeneAutocompleteTrie} used by this {@code GeneMatchResultService}
+     *          for autocomplete suggestions, {@code null} if none is used.
+     */
+    public GeneAutocompleteTrie getAutocompleteTrie() {
+        return autocompleteTrie;
+    }
+
+    /**
+     * @param trieFile  A {@code String} that is the path to the trie file to map.
+     * @return          The {@code GeneAutocompleteTrie} shared by all threads for {@code trieFile},
+     *                  mapped at the first call.
+     * @throws IllegalStateException    If the trie file could not be mapped.
+     */
+    private static GeneAutocompleteTrie getSharedAutocompleteTrie(String trieFile)
+            throws IllegalStateException {
+        log.entry(trieFile);
+        return log.exit(SHARED_AUTOCOMPLETE_TRIES.computeIfAbsent(trieFile, k -> {
+            try {
+                return GeneAutocompleteTrie.map(Paths.get(k));
+            } catch (IOException e) {
+                throw log.throwing(new IllegalStateException(
+                        "Could not map the gene autocomplete file " + k, e));
+            }
+        }));
+    }
+
+    /**
+     * @param indexFile A {@code String} that is the path to the index file to load,
+     *                  {@code null} to build the index from the data source.
+     * @return          The {@code GeneSearchIndex} shared by all threads for {@code indexFile},
+     *                  loaded at the first call.
+     * @throws IllegalStateException    If the index file could not be read.
+     */
+    private GeneSearchIndex getSharedSearchIndex(String indexFile) throws IllegalStateException {
+        log.entry(indexFile);
+        String key = StringUtils.isBlank(indexFile)? DATA_SOURCE_INDEX_KEY: indexFile;
+        //threads requesting an index being loaded wait for the end of the loading
+        return log.exit(SHARED_SEARCH_INDEXES.computeIfAbsent(key, k -> {
+            if (DATA_SOURCE_INDEX_KEY.equals(k)) {
+                return loadSearchIndex(this.getServiceFactory());
+            }
+            try {
+                return loadSearchIndex(Paths.get(k), this.getServiceFactory());
+            } catch (IOException e) {
+                throw log.throwing(new IllegalStateException(
+                        "Could not load the gene search index file " + k, e));
+            }
+        }));
+    }
+
+    /**
+     * Build a {@code GeneSearchIndex} over all genes of the data source,
+     * with their synonyms and cross-references.
+     *
+     * @param serviceFactory    The {@code ServiceFactory} to use to retrieve the data.
+     * @return                  The {@code GeneSearchIndex} built.
+     */
+    public static GeneSearchIndex loadSearchIndex(ServiceFactory serviceFactory) {
+        log.entry(serviceFactory);
+        DAOManager daoManager = serviceFactory.getDAOManager();
+
+        Map<Integer, List<String>> synonyms = daoManager.getGeneNameSynonymDAO()
+                .getGeneNameSynonyms(null).stream()
+                .collect(Collectors.groupingBy(GeneNameSynonymTO::getBgeeGeneId,
+                        Collectors.mapping(GeneNameSynonymTO::getGeneNameSynonym, Collectors.toList())));
+        Map<Integer, List<String>> xRefs = new HashMap<>();
+        daoManager.getGeneXRefDAO().getAllGeneXRefs(Arrays.asList(
+                GeneXRefDAO.Attribute.BGEE_GENE_ID, GeneXRefDAO.Attribute.XREF_ID,
+                GeneXRefDAO.Attribute.XREF_NAME)).stream()
+                .forEach(to -> {
+                    List<String> geneXRefs = xRefs.computeIfAbsent(to.getBgeeGeneId(),
+                            k -> new ArrayList<>());
+                    geneXRefs.add(to.getXRefId());
+                    geneXRefs.add(to.getXRefName());
+                });
+        List<GeneSearchIndex.IndexedGene> genes = daoManager.getGeneDAO()
+                .getAllGenes().stream()
+                .map(to -> new GeneSearchIndex.IndexedGene(to.getGeneId(), to.getName(),
+                        to.getDescription(), synonyms.get(to.getId()), xRefs.get(to.getId()),
+                        to.getSpeciesId(), to.getGeneBioTypeId(),
+                        to.getGeneMappedToGeneIdCount() == null? 1: to.getGeneMappedToGeneIdCount()))
+                .collect(Collectors.toList());
+
+        return log.exit(new GeneSearchIndex(genes, loadAllSpecies(serviceFactory),
+                loadGeneBioTypeMap(daoManager.getGeneDAO())));
+    }
+    /**
+     * Load a {@code GeneSearchIndex} from a file written with
+     * {@link GeneSearchIndex#writeToFile(Path)}. Species and biotypes are retrieved
+     * from the data source.
+     *
+     * @param indexFile         A {@code Path} that is the index file to load.
+     * @param serviceFactory    The {@code ServiceFactory} to use to retrieve species and biotypes.
+     * @return                  The loaded {@code GeneSearchIndex}.
+     * @throws IOException      If an error occurred while reading the file.
+     */
+    public static GeneSearchIndex loadSearchIndex(Path indexFile, ServiceFactory serviceFactory)
+            throws IOException {
+        log.entry(indexFile, serviceFactory);
+        return log.exit(GeneSearchIndex.readFromFile(indexFile, loadAllSpecies(serviceFactory),
+                loadGeneBioTypeMap(serviceFactory.getDAOManager().getGeneDAO())));
+    }
+    /**
+     * @param serviceFactory    The {@code ServiceFactory} to use to retrieve species.
+     * @return                  A {@code Map} where keys are {@code Integer}s that are IDs
+     *                          of all species in the data source, the associated value
+     *                          being the corresponding {@code Species}.
+     */
+    private static Map<Integer, Species> loadAllSpecies(ServiceFactory serviceFactory) {
+        log.entry(serviceFactory);
+        return log.exit(serviceFactory.getSpeciesService().loadSpeciesMap(null, false));
+    }
 
     /**
      * Search the genes.
@@ -89,6 +274,10 @@ public class GeneMatchResultService extends CommonService {
             throw new UnsupportedOperationException("Search with species parameter is not implemented");
         }
 
+        if (this.searchIndex != null) {
+            return log.exit(this.searchIndex.search(searchTerm, limitStart, resultPerPage));
+        }
+
         // We need to get the formatted term here, even if the term is formatted 
         // in the method getSphinxResult(), to set correctly GeneMatches.
         String formattedTerm = this.getFormattedTerm(searchTerm);
@@ -144,6 +333,13 @@ public class GeneMatchResultService extends CommonService {
     public List<String> autocomplete(final String searchTerm, int resultPerPage) {
         log.entry(searchTerm, resultPerPage);
 
+        if (this.autocompleteTrie != null && resultPerPage <= this.autocompleteTrie.getK()) {
+            return log.exit(this.autocompleteTrie.lookup(searchTerm, resultPerPage));
+        }
+        if (this.searchIndex != null) {
+            return log.exit(this.searchIndex.autocomplete(searchTerm, resultPerPage));
+        }
+
         // The index of the first element is not necessary, as it's for the autocomplete we start at 0.
         // We use the ranker SPH_RANK_SPH04 to get field equals the exact query first.
         SphinxResult result = this.getSphinxResult(searchTerm, 0, resultPerPage, "bgee_autocomplete",
@@ -0,0 +1,540 @@
+package org.bgee.model.gene;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.ServiceFactory;
+import org.bgee.model.species.Species;
+
+/**
+ * An immutable in-memory search index over gene IDs, names, descriptions, synonyms
+ * and cross-references, used by {@link GeneMatchResultService} as an alternative
+ * to the Sphinx search server. It is thread-safe and meant to be shared by all threads.
+ * <p>
+ * Fields are split into lower case tokens (runs of letters and digits), stored
+ * in an inverted index. A search retrieves the genes having, for each token of the query,
+ * a token starting with it, then ranks them as {@link GeneMatch}es are ordered
+ * (see {@link GeneMatch#compareTo(GeneMatch)}), before applying pagination.
+ * Autocomplete suggestions are the gene IDs, names and synonyms starting with the query.
+ * <p>
+ * An index can be built from the data source (see {@link GeneMatchResultService#loadSearchIndex(ServiceFactory)}),
+ * or from a file previously written with {@link #writeToFile(Path)}
+ * (see {@link GeneMatchResultService#loadSearchIndex(Path, ServiceFactory)}).
+ *
+ * @version Bgee 14, Jan. 2020
+ * @see GeneMatchResultService
+ * @since   Bgee 14, Jan. 2020
+ */
+public class GeneSearchIndex {
+    private final static Logger log = LogManager.getLogger(GeneSearchIndex.class.getName());
+
+    /**
+     * A {@code String} written at the beginning of index files, to check their format.
+     */
+    private final static String FILE_HEADER = "bgee-gene-search-index";
+    /**
+     * An {@code int} that is the version of the format of index files.
+     */
+    private final static int FILE_FORMAT_VERSION = 1;
+    /**
+     * A {@code Pattern} matching the separators of tokens.
+     */
+    private final static Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * The information indexed for a gene. Empty {@code String}s are used for missing values,
+     * to be written in index files.
+     *
+     * @version Bgee 14, Jan. 2020
+     * @since   Bgee 14, Jan. 2020
+     */
+    static class IndexedGene {
+        private final String geneId;
+        private final String name;
+        private final String description;
+        private final String[] synonyms;
+        private final String[] xRefs;
+        private final int speciesId;
+        private final int geneBioTypeId;
+        private final int geneMappedToSameGeneIdCount;
+
+        /**
+         * @param geneId                        A {@code String} that is the Ensembl gene ID.
+         * @param name                          A {@code String} that is the gene name.
+         * @param description                   A {@code String} that is the gene description.
+         * @param synonyms                      A {@code Collection} of {@code String}s that are
+         *                                      the synonyms of the gene name.
+         * @param xRefs                         A {@code Collection} of {@code String}s that are
+         *                                      the IDs and names of cross-references.
+         * @param speciesId                     An {@code int} that is the ID of the species.
+         * @param geneBioTypeId                 An {@code int} that is the ID of the biotype.
+         * @param geneMappedToSameGeneIdCount   An {@code int} that is the number of genes
+         *                                      with the same Ensembl gene ID in Bgee.
+         */
+        IndexedGene(String geneId, String name, String description, Collection<String> synonyms,
+                Collection<String> xRefs, int speciesId, int geneBioTypeId,
+                int geneMappedToSameGeneIdCount) {
+            this.geneId = geneId;
+            this.name = name == null? "": name;
+            this.description = description == null? "": description;
+            this.synonyms = synonyms == null? new String[0]: synonyms.stream()
+                    .filter(StringUtils::isNotBlank).distinct().toArray(String[]::new);
+            this.xRefs = xRefs == null? new String[0]: xRefs.stream()
+                    .filter(StringUtils::isNotBlank).distinct().toArray(String[]::new);
+            this.speciesId = speciesId;
+            this.geneBioTypeId = geneBioTypeId;
+            this.geneMappedToSameGeneIdCount = geneMappedToSameGeneIdCount;
+        }
+    }
+
+    /**
+     * A candidate result of a search, with the keys used to rank it computed once,
+     * so that {@code Gene}s are instantiated only for the requested page.
+     */
+    private static class RankedGene {
+        private final int geneIndex;
+        private final GeneMatch.MatchSource matchSource;
+        private final String term;
+        private final String match;
+        private final Integer displayOrder;
+
+        private RankedGene(int geneIndex, GeneMatch.MatchSource matchSource, String term,
+                String match, Integer displayOrder) {
+            this.geneIndex = geneIndex;
+            this.matchSource = matchSource;
+            this.term = term;
+            this.match = match;
+            this.displayOrder = displayOrder;
+        }
+        private Integer getMatchLength() {
+            return this.match == null? null: this.match.length();
+        }
+    }
+    /**
+     * Same ordering as for {@code GeneMatch}es, see {@link GeneMatch#compareTo(GeneMatch)}.
+     */
+    private final static Comparator<RankedGene> RANKED_GENE_COMPARATOR = Comparator
+            .comparing(RankedGene::getMatchLength, Comparator.nullsLast(Integer::compareTo))
+            .thenComparing(rg -> rg.displayOrder, Comparator.nullsLast(Integer::compareTo))
+            .thenComparing(rg -> rg.matchSource.ordinal())
+            .thenComparing(rg -> rg.match, Comparator.nullsLast(String::compareTo));
+
+    /**
+     * A growable array of {@code int}s, used to build posting lists without boxing.
+     */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        private void addIfNotLast(int value) {
+            if (this.size > 0 && this.values[this.size - 1] == value) {
+                return;
+            }
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.size * 2);
+            }
+            this.values[this.size++] = value;
+        }
+        private int[] toArray() {
+            return Arrays.copyOf(this.values, this.size);
+        }
+    }
+
+    /**
+     * @param text  A {@code String} to split into tokens.
+     * @return      A {@code Set} of lower case {@code String}s that are the tokens of {@code text}.
+     */
+    static Set<String> tokenize(String text) {
+        log.entry(text);
+        if (StringUtils.isBlank(text)) {
+            return log.exit(new LinkedHashSet<>());
+        }
+        return log.exit(Arrays.stream(TOKEN_SEPARATOR.split(text.toLowerCase()))
+                .filter(t -> !t.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+    }
+    /**
+     * @param sortedKeys    An {@code Array} of {@code String}s sorted in natural order.
+     * @param prefix        A {@code String} that is the prefix to look for.
+     * @return              An {@code int} that is the index of the first element of
+     *                      {@code sortedKeys} greater than or equal to {@code prefix}.
+     */
+    private static int lowerBound(String[] sortedKeys, String prefix) {
+        int index = Arrays.binarySearch(sortedKeys, prefix);
+        return index < 0? -index - 1: index;
+    }
+
+    private final IndexedGene[] genes;
+    /**
+     * An {@code Array} of distinct {@code String}s that are the tokens of all genes,
+     * sorted in natural order.
+     */
+    private final String[] tokens;
+    /**
+     * An {@code Array} storing at each index the sorted indexes in {@link #genes}
+     * of the genes having the token at the same index in {@link #tokens}.
+     */
+    private final int[][] postings;
+    /**
+     * An {@code Array} of lower case {@code String}s that are the keys of the autocomplete
+     * suggestions, sorted in natural order.
+     */
+    private final String[] completionKeys;
+    /**
+     * An {@code Array} of {@code String}s that are the autocomplete suggestions
+     * corresponding to the keys at the same index in {@link #completionKeys}.
+     */
+    private final String[] completions;
+    private final Map<Integer, Species> speciesMap;
+    private final Map<Integer, GeneBioType> geneBioTypeMap;
+
+    /**
+     * @param genes             A {@code Collection} of {@code IndexedGene}s to index.
+     * @param speciesMap        A {@code Map} where keys are {@code Integer}s that are species IDs,
+     *                          the associated value being the corresponding {@code Species}.
+     * @param geneBioTypeMap    A {@code Map} where keys are {@code Integer}s that are
+     *                          biotype IDs, the associated value being the corresponding
+     *                          {@code GeneBioType}.
+     */
+    GeneSearchIndex(Collection<IndexedGene> genes, Map<Integer, Species> speciesMap,
+            Map<Integer, GeneBioType> geneBioTypeMap) {
+        log.entry(genes, speciesMap, geneBioTypeMap);
+        this.genes = genes.toArray(new IndexedGene[0]);
+        this.speciesMap = Collections.unmodifiableMap(new HashMap<>(speciesMap));
+        this.geneBioTypeMap = Collections.unmodifiableMap(new HashMap<>(geneBioTypeMap));
+
+        Map<String, IntList> tokenToGenes = new HashMap<>();
+        //we keep the first spelling encountered for each suggestion
+        Map<String, String> keyToCompletion = new TreeMap<>();
+        for (int i = 0; i < this.genes.length; i++) {
+            IndexedGene gene = this.genes[i];
+            List<String> completionTerms = new ArrayList<>();
+            completionTerms.add(gene.geneId);
+            completionTerms.add(gene.name);
+            completionTerms.addAll(Arrays.asList(gene.synonyms));
+
+            List<String> fields = new ArrayList<>(completionTerms);
+            fields.add(gene.description);
+            fields.addAll(Arrays.asList(gene.xRefs));
+            for (String field: fields) {
+                for (String token: tokenize(field)) {
+                    tokenToGenes.computeIfAbsent(token, k -> new IntList()).addIfNotLast(i);
+                }
+            }
+            for (String completion: completionTerms) {
+                if (StringUtils.isNotBlank(completion)) {
+                    keyToCompletion.putIfAbsent(completion.toLowerCase(), completion);
+                }
+            }
+        }
+        this.tokens = tokenToGenes.keySet().toArray(new String[0]);
+        Arrays.sort(this.tokens);
+        this.postings = new int[this.tokens.length][];
+        for (int i = 0; i < this.tokens.length; i++) {
+            this.postings[i] = tokenToGenes.get(this.tokens[i]).toArray();
+        }
+        this.completionKeys = keyToCompletion.keySet().toArray(new String[0]);
+        this.completions = keyToCompletion.values().toArray(new String[0]);
+
+        log.debug("Gene search index built: {} genes - {} tokens - {} suggestions",
+                this.genes.length, this.tokens.length, this.completions.length);
+        log.exit();
+    }
+
+    /**
+     * Search the genes.
+     *
+     * @param searchTerm    A {@code String} containing the query.
+     * @param limitStart    An {@code int} representing the index of the first element to return.
+     * @param resultPerPage An {@code int} representing the number of elements to return.
+     * @return              A {@code GeneMatchResult} of results (ordered).
+     */
+    public GeneMatchResult search(String searchTerm, int limitStart, int resultPerPage) {
+        log.entry(searchTerm, limitStart, resultPerPage);
+
+        String formattedTerm = StringUtils.normalizeSpace(searchTerm);
+        if (StringUtils.isBlank(formattedTerm)) {
+            return log.exit(new GeneMatchResult(0, null));
+        }
+        //Fix issue with term search such as "upk\3a", the backslash is not considered
+        final String termLowerCase = formattedTerm.toLowerCase();
+        final String termLowerCaseEscaped = termLowerCase.replaceAll("\\\\", "");
+
+        BitSet candidates = this.getCandidates(tokenize(termLowerCaseEscaped));
+        if (candidates.isEmpty()) {
+            return log.exit(new GeneMatchResult(0, null));
+        }
+        List<RankedGene> rankedGenes = new ArrayList<>(candidates.cardinality());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            rankedGenes.add(this.rank(i, termLowerCase, termLowerCaseEscaped));
+        }
+        rankedGenes.sort(RANKED_GENE_COMPARATOR);
+
+        int fromIndex = Math.min(Math.max(limitStart, 0), rankedGenes.size());
+        int toIndex = Math.min(fromIndex + Math.max(resultPerPage, 0), rankedGenes.size());
+        List<GeneMatch> geneMatches = rankedGenes.subList(fromIndex, toIndex).stream()
+                .map(rg -> new GeneMatch(this.toGene(this.genes[rg.geneIndex]), rg.term,
+                        rg.matchSource))
+                .collect(Collectors.toList());
+
+        return log.exit(new GeneMatchResult(rankedGenes.size(), geneMatches));
+    }
+
+    /**
+     * Retrieve autocomplete suggestions for the gene search from the provided {@code searchTerm}.
+     *
+     * @param searchTerm    A {@code String} containing the query.
+     * @param resultPerPage An {@code int} representing the number of elements to return.
+     * @return              A {@code List} of {@code String}s that are suggestions
+     *                      for the gene search autocomplete, the shortest first.
+     */
+    public List<String> autocomplete(String searchTerm, int resultPerPage) {
+        log.entry(searchTerm, resultPerPage);
+
+        String key = StringUtils.normalizeSpace(searchTerm);
+        if (StringUtils.isBlank(key) || resultPerPage <= 0) {
+            return log.exit(new ArrayList<>());
+        }
+        key = key.toLowerCase();
+        Comparator<Integer> comparator = Comparator
+                .comparingInt((Integer i) -> this.completions[i].length())
+                .thenComparing(i -> this.completionKeys[i]);
+        //bounded queue keeping the best suggestions, the worst one at the head
+        PriorityQueue<Integer> best = new PriorityQueue<>(resultPerPage + 1, comparator.reversed());
+        for (int i = lowerBound(this.completionKeys, key);
+                i < this.completionKeys.length && this.completionKeys[i].startsWith(key); i++) {
+            best.add(i);
+            if (best.size() > resultPerPage) {
+                best.poll();
+            }
+        }
+        return log.exit(best.stream().sorted(comparator)
+                .map(i -> this.completions[i])
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * @param queryTokens   A {@code Collection} of {@code String}s that are the tokens of a query.
+     * @return              A {@code BitSet} where set bits are the indexes in {@link #genes}
+     *                      of the genes having, for each query token, a token starting with it.
+     */
+    private BitSet getCandidates(Collection<String> queryTokens) {
+        log.entry(queryTokens);
+        BitSet candidates = null;
+        for (String queryToken: queryTokens) {
+            BitSet tokenCandidates = new BitSet(this.genes.length);
+            for (int i = lowerBound(this.tokens, queryToken);
+                    i < this.tokens.length && this.tokens[i].startsWith(queryToken); i++) {
+                for (int geneIndex: this.postings[i]) {
+                    tokenCandidates.set(geneIndex);
+                }
+            }
+            if (candidates == null) {
+                candidates = tokenCandidates;
+            } else {
+                candidates.and(tokenCandidates);
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+        }
+        return log.exit(candidates == null? new BitSet(): candidates);
+    }
+
+    /**
+     * Identify the field of a gene matching a query, in the same way as for results
+     * of the Sphinx search server.
+     *
+     * @param geneIndex             An {@code int} that is the index of the gene in {@link #genes}.
+     * @param termLowerCase         A {@code String} that is the lower case query.
+     * @param termLowerCaseEscaped  A {@code String} that is the lower case query
+     *                              with backslashes removed.
+     * @return                      The {@code RankedGene} for the gene.
+     */
+    private RankedGene rank(int geneIndex, String termLowerCase, String termLowerCaseEscaped) {
+        IndexedGene gene = this.genes[geneIndex];
+        Species species = this.speciesMap.get(gene.speciesId);
+        Integer displayOrder = species == null? null: species.getPreferredDisplayOrder();
+
+        if (contains(gene.geneId, termLowerCase, termLowerCaseEscaped)) {
+            return new RankedGene(geneIndex, GeneMatch.MatchSource.ID, null, gene.geneId,
+                    displayOrder);
+        }
+        if (contains(gene.name, termLowerCase, termLowerCaseEscaped)) {
+            return new RankedGene(geneIndex, GeneMatch.MatchSource.NAME, null, gene.name,
+                    displayOrder);
+        }
+        if (contains(gene.description, termLowerCase, termLowerCaseEscaped)) {
+            return new RankedGene(geneIndex, GeneMatch.MatchSource.DESCRIPTION, null,
+                    gene.description, displayOrder);
+        }
+        for (String synonym: gene.synonyms) {
+            if (contains(synonym, termLowerCase, termLowerCaseEscaped)) {
+                String term = synonym.toLowerCase();
+                return new RankedGene(geneIndex, GeneMatch.MatchSource.SYNONYM, term, term,
+                        displayOrder);
+            }
+        }
+        for (String xRef: gene.xRefs) {
+            if (contains(xRef, termLowerCase, termLowerCaseEscaped)) {
+                String term = xRef.toLowerCase();
+                return new RankedGene(geneIndex, GeneMatch.MatchSource.XREF, term, term,
+                        displayOrder);
+            }
+        }
+        return new RankedGene(geneIndex, GeneMatch.MatchSource.MULTIPLE, null, null, displayOrder);
+    }
+    private static boolean contains(String field, String termLowerCase, String termLowerCaseEscaped) {
+        String fieldLowerCase = field.toLowerCase();
+        return fieldLowerCase.contains(termLowerCase) || fieldLowerCase.contains(termLowerCaseEscaped);
+    }
+
+    /**
+     * @param gene  An {@code IndexedGene} to convert.
+     * @return      The {@code Gene} corresponding to {@code gene}. As for results
+     *              of the Sphinx search server, cross-references are not provided.
+     */
+    private Gene toGene(IndexedGene gene) {
+        return new Gene(gene.geneId, gene.name, gene.description, Arrays.asList(gene.synonyms),
+                null, this.speciesMap.get(gene.speciesId),
+                this.geneBioTypeMap.get(gene.geneBioTypeId), gene.geneMappedToSameGeneIdCount);
+    }
+
+    /**
+     * @return  An {@code int} that is the number of genes in this index.
+     */
+    public int getGeneCount() {
+        return this.genes.length;
+    }
+
+    /**
+     * Build a {@code GeneAutocompleteTrie} over the gene IDs, names and synonyms
+     * of this index. The score of a completion is summed over all genes having it,
+     * so that terms shared by genes from many species come first, with a weight
+     * of 3 for gene names, 2 for gene IDs, and 1 for synonyms.
+     *
+     * @param k An {@code int} that is the number of completions to precompute per node.
+     * @return  The {@code GeneAutocompleteTrie} built from this index.
+     */
+    public GeneAutocompleteTrie buildAutocompleteTrie(int k) {
+        log.entry(k);
+        GeneAutocompleteTrie.Builder builder = new GeneAutocompleteTrie.Builder(k);
+        for (IndexedGene gene: this.genes) {
+            builder.add(gene.name, 3);
+            builder.add(gene.geneId, 2);
+            for (String synonym: gene.synonyms) {
+                builder.add(synonym, 1);
+            }
+        }
+        return log.exit(builder.build());
+    }
+
+    /**
+     * Write the genes of this index into {@code file}, to be loaded with
+     * {@link #readFromFile(Path, Map, Map)}. Species and biotypes are not written,
+     * they are retrieved from the data source when loading the file.
+     * The file is written to a temporary file first, then moved to {@code file}.
+     *
+     * @param file          A {@code Path} that is the file to write.
+     * @throws IOException  If an error occurred while writing the file.
+     */
+    public void writeToFile(Path file) throws IOException {
+        log.entry(file);
+        Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(tmpFile))))) {
+            out.writeUTF(FILE_HEADER);
+            out.writeInt(FILE_FORMAT_VERSION);
+            out.writeInt(this.genes.length);
+            for (IndexedGene gene: this.genes) {
+                out.writeUTF(gene.geneId);
+                out.writeUTF(gene.name);
+                out.writeUTF(gene.description);
+                writeStrings(out, gene.synonyms);
+                writeStrings(out, gene.xRefs);
+                out.writeInt(gene.speciesId);
+                out.writeInt(gene.geneBioTypeId);
+                out.writeInt(gene.geneMappedToSameGeneIdCount);
+            }
+        }
+        Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+        log.exit();
+    }
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value: values) {
+            out.writeUTF(value);
+        }
+    }
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+
+    /**
+     * Load a {@code GeneSearchIndex} from a file written with {@link #writeToFile(Path)}.
+     *
+     * @param file              A {@code Path} that is the file to read.
+     * @param speciesMap        A {@code Map} where keys are {@code Integer}s that are species IDs,
+     *                          the associated value being the corresponding {@code Species}.
+     * @param geneBioTypeMap    A {@code Map} where keys are {@code Integer}s that are
+     *                          biotype IDs, the associated value being the corresponding
+     *                          {@code GeneBioType}.
+     * @return                  The loaded {@code GeneSearchIndex}.
+     * @throws IOException      If an error occurred while reading the file,
+     *                          or if it is not a gene search index file.
+     */
+    public static GeneSearchIndex readFromFile(Path file, Map<Integer, Species> speciesMap,
+            Map<Integer, GeneBioType> geneBioTypeMap) throws IOException {
+        log.entry(file, speciesMap, geneBioTypeMap);
+        List<IndexedGene> genes;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (!FILE_HEADER.equals(in.readUTF())) {
+                throw log.throwing(new IOException("Not a gene search index file: " + file));
+            }
+            int version = in.readInt();
+            if (version != FILE_FORMAT_VERSION) {
+                throw log.throwing(new IOException("Unsupported version of gene search index file: "
+                        + version));
+            }
+            int geneCount = in.readInt();
+            genes = new ArrayList<>(geneCount);
+            for (int i = 0; i < geneCount; i++) {
+                genes.add(new IndexedGene(in.readUTF(), in.readUTF(), in.readUTF(),
+                        readStrings(in), readStrings(in), in.readInt(), in.readInt(), in.readInt()));
+            }
+        }
+        return log.exit(new GeneSearchIndex(genes, speciesMap, geneBioTypeMap));
+    }
+}
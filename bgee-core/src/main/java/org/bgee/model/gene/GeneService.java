@@ -1,20 +1,31 @@
 package org.bgee.model.gene;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bgee.model.BgeeProperties;
 import org.bgee.model.CommonService;
+import org.bgee.model.ReferenceDataCache;
 import org.bgee.model.SearchResult;
 import org.bgee.model.ServiceFactory;
+import org.bgee.model.dao.api.DAOManager;
 import org.bgee.model.dao.api.EntityTO;
 import org.bgee.model.dao.api.gene.GeneDAO.GeneTO;
 import org.bgee.model.dao.api.gene.GeneNameSynonymDAO.GeneNameSynonymTO;
@@ -36,14 +47,44 @@ import java.util.Optional;
  * @author  Philippe Moret
  * @author  Frederic Bastian
  * @author  Valentine Rech de Laval
- * @version Bgee 14, Apr. 2019
+ * @version Bgee 14, Jan. 2020
  * @since   Bgee 13, Sept. 2015
  */
 public class GeneService extends CommonService {
     private static final Logger log = LogManager.getLogger(GeneService.class.getName());
 
+    /**
+     * A {@code String} that is the key in {@link #SHARED_ORTHOLOGY_INDEXES} of the index
+     * loaded from the data source.
+     */
+    private static final String DATA_SOURCE_INDEX_KEY = "";
+    /**
+     * A {@code Map} where keys are {@code String}s identifying the source of an index
+     * (only {@link #DATA_SOURCE_INDEX_KEY} for now), the associated value being
+     * the {@code OrthologyIndex} loaded from it, shared by all threads.
+     */
+    private static final Map<String, OrthologyIndex> SHARED_ORTHOLOGY_INDEXES =
+            new ConcurrentHashMap<>();
+
     private final SpeciesService speciesService;
     private final GeneDAO geneDAO;
+    /**
+     * The {@code OrthologyIndex} to use, or {@code null} to use the one shared by all threads.
+     * @see #getOrthologyIndex()
+     */
+    private final OrthologyIndex orthologyIndex;
+    /**
+     * The {@code ReferenceDataCache} used to retrieve species, gene biotypes and sources.
+     */
+    private final ReferenceDataCache referenceDataCache;
+    /**
+     * @see BgeeProperties#getIdResolutionBatchSize()
+     */
+    private final int idResolutionBatchSize;
+    /**
+     * @see BgeeProperties#getIdResolutionThreadCount()
+     */
+    private final int idResolutionThreadCount;
 
     /**
      * @param serviceFactory            The {@code ServiceFactory} to be used to obtain {@code Service}s 
@@ -51,9 +92,30 @@ public class GeneService extends CommonService {
      * @throws IllegalArgumentException If {@code serviceFactory} is {@code null}.
      */
     public GeneService(ServiceFactory serviceFactory) {
+        this(serviceFactory, null);
+    }
+    /**
+     * Constructor allowing to provide the {@code OrthologyIndex} to use,
+     * rather than the one shared by all threads. Useful for unit tests.
+     *
+     * @param serviceFactory            The {@code ServiceFactory} to be used to obtain {@code Service}s 
+     *                                  and {@code DAOManager}.
+     * @param orthologyIndex            The {@code OrthologyIndex} to use to retrieve orthologs.
+     *                                  If {@code null}, the index shared by all threads is used.
+     * @throws IllegalArgumentException If {@code serviceFactory} is {@code null}.
+     */
+    GeneService(ServiceFactory serviceFactory, OrthologyIndex orthologyIndex) {
         super(serviceFactory);
         this.speciesService = this.getServiceFactory().getSpeciesService();
         this.geneDAO = this.getDaoManager().getGeneDAO();
+        this.orthologyIndex = orthologyIndex;
+        this.referenceDataCache = this.getServiceFactory().getReferenceDataCache() != null?
+                this.getServiceFactory().getReferenceDataCache(): new ReferenceDataCache();
+        BgeeProperties props = this.getServiceFactory().getBgeeProperties();
+        this.idResolutionBatchSize = Math.max(1, props != null? props.getIdResolutionBatchSize():
+            BgeeProperties.ID_RESOLUTION_BATCH_SIZE_DEFAULT);
+        this.idResolutionThreadCount = Math.max(1, props != null? props.getIdResolutionThreadCount():
+            BgeeProperties.ID_RESOLUTION_THREAD_COUNT_DEFAULT);
     }
     
     /**
@@ -94,7 +156,8 @@ public class GeneService extends CommonService {
             throw log.throwing(new IllegalArgumentException(
                     "GeneFilters contain unrecognized species IDs: " + unrecognizedSpeciesIds));
         }
-        final Map<Integer, GeneBioType> geneBioTypeMap = Collections.unmodifiableMap(loadGeneBioTypeMap(this.geneDAO));
+        final Map<Integer, GeneBioType> geneBioTypeMap = this.referenceDataCache.getGeneBioTypeMap(
+                this.getServiceFactory());
         
         // We want to return a Stream without iterating the GeneTOs first,
         // so we won't load synonyms
@@ -197,14 +260,15 @@ public class GeneService extends CommonService {
             return log.exit(new HashSet<>());
         }
         final Map<Integer, Species> speciesMap = Collections.unmodifiableMap(loadSpeciesMap(geneTOs, withSpeciesInfo));
-        final Map<Integer, GeneBioType> geneBioTypeMap = Collections.unmodifiableMap(loadGeneBioTypeMap(this.geneDAO));
+        final Map<Integer, GeneBioType> geneBioTypeMap = this.referenceDataCache.getGeneBioTypeMap(
+                this.getServiceFactory());
         // we expect very few results from a single Ensembl ID, so we preload synonyms and x-refs
         // from database
         Map<Integer, Set<String>> synonymMap = loadSynonymsByBgeeGeneIds(geneTOs);
         Map<Integer, Set<GeneXRefTO>> xRefsMap = loadXrefTOsByBgeeGeneIds(geneTOs);
         //We load all sources, to be able to retrieve the Ensembl and Ensembl metazoa sources anyway
-        final Map<Integer, Source> sourceMap = getServiceFactory().getSourceService()
-                .loadSourcesByIds(null);
+        final Map<Integer, Source> sourceMap = this.referenceDataCache.getSourceMap(
+                this.getServiceFactory());
         
         return log.exit(mapGeneTOStreamToGeneStream(geneTOs.stream(), speciesMap, synonymMap,
                 xRefsMap, sourceMap, geneBioTypeMap)
@@ -236,8 +300,10 @@ public class GeneService extends CommonService {
         //we don't have access to the species ID information before getting the GeneTOs,
         //and we want to return a Stream without iterating the GeneTOs first,
         //so we load all species in database
-        final Map<Integer, Species> speciesMap = Collections.unmodifiableMap(this.speciesService.loadSpeciesMap(null, withSpeciesInfo));
-        final Map<Integer, GeneBioType> geneBioTypeMap = Collections.unmodifiableMap(loadGeneBioTypeMap(this.geneDAO));
+        final Map<Integer, Species> speciesMap = this.referenceDataCache.getSpeciesMap(
+                this.getServiceFactory(), withSpeciesInfo);
+        final Map<Integer, GeneBioType> geneBioTypeMap = this.referenceDataCache.getGeneBioTypeMap(
+                this.getServiceFactory());
 
         // As we want to return a Stream without iterating the GeneTOs first,
         // so we won't load synonyms
@@ -257,32 +323,27 @@ public class GeneService extends CommonService {
      * @return              The {@code Map} where keys are {@code Integer}s corresponding to 
      *                      OMA Node IDs, the associated value being a {@code Set} of {@code Integer}s
      *                      corresponding to their {@code Gene}.
+     * @throws IllegalArgumentException If {@code taxonId} is {@code null}.
      */
     public Map<Integer, Set<Gene>> getOrthologs(Integer taxonId, Set<Integer> speciesIds) {
         log.entry(taxonId, speciesIds);
-        throw log.throwing(new UnsupportedOperationException("To implement"));
-//        HierarchicalNodeToGeneTOResultSet resultSet = getDaoManager().getHierarchicalGroupDAO()
-//                .getOMANodeToGene(taxonId, speciesIds);
-//
-//        final Set<Integer> clnSpId =  speciesIds == null? new HashSet<>():
-//                Collections.unmodifiableSet(new HashSet<>(speciesIds));
-//        
-//        final Map<Integer, Species> speciesMap = getSpeciesMap(clnSpId, false);
-//
-//        final Map<Integer, Gene> geneMap = Collections.unmodifiableMap(this.geneDAO
-//            .getGenesBySpeciesIds(speciesIds).stream()
-//                .collect(Collectors.toMap(
-//                    gTO -> gTO.getId(),
-//                    gTO -> mapGeneTOToGene(gTO, speciesMap.get(gTO.getSpeciesId())))));
-//
-//        Map<Integer, Set<Gene>> results = resultSet.stream()
-//                .collect(Collectors.groupingBy(hg -> hg.getNodeId()))
-//                .entrySet().stream()
-//                .collect(Collectors.toMap(
-//                        e -> e.getKey(), 
-//                        e -> e.getValue().stream()
-//                            .map(to -> geneMap.get(to.getBgeeGeneId())).collect(Collectors.toSet())));
-//        return log.exit(results);
+        if (taxonId == null) {
+            throw log.throwing(new IllegalArgumentException("A taxon ID must be provided"));
+        }
+        OrthologyIndex index = this.getOrthologyIndex();
+        Map<Integer, int[]> geneIdsByNodeId = index.getGeneIdsByNodeId(taxonId);
+        Map<Integer, Gene> geneMap = this.loadGenesByBgeeIds(geneIdsByNodeId.values().stream()
+                .flatMapToInt(Arrays::stream).boxed().collect(Collectors.toSet()), speciesIds);
+
+        Map<Integer, Set<Gene>> results = new HashMap<>();
+        for (Entry<Integer, int[]> e: geneIdsByNodeId.entrySet()) {
+            Set<Gene> genes = Arrays.stream(e.getValue()).mapToObj(geneMap::get)
+                    .filter(g -> g != null).collect(Collectors.toSet());
+            if (!genes.isEmpty()) {
+                results.put(e.getKey(), genes);
+            }
+        }
+        return log.exit(results);
     }
 
     /**
@@ -294,52 +355,86 @@ public class GeneService extends CommonService {
      * 						all species. 
      * @param geneFilter	A {@code GeneFilter} corresponding to starting genes for
      * 						which orthologous genes should be returned.
-     * @return				A A {@code Stream} of {@code OrthologousGeneGroup}
+     * @return				A {@code Stream} of {@code OrthologousGeneGroup}s, one for each group
+     * 						containing a starting gene at the level of one of the requested taxa.
+     * @throws IllegalArgumentException If {@code geneFilter} is {@code null}.
      */
     public Stream<OrthologousGeneGroup> getOrthologs(Collection<Integer> taxonIds,
     		Collection<Integer> speciesIds, GeneFilter geneFilter) {
         log.entry(taxonIds, speciesIds, geneFilter);
-        throw log.throwing(new UnsupportedOperationException("To implement"));
-//        if(geneFilter == null || geneFilter.getSpeciesId() == null || geneFilter.getSpeciesId() == 0){
-//        	log.throwing(new IllegalArgumentException("No species id provided for the starting genes."));
-//        }
-//        final Collection<Integer> clnSpIds =  speciesIds == null? new HashSet<>():
-//            Collections.unmodifiableCollection(speciesIds);
-//        final Collection<Integer> clnTaxonIds =  taxonIds == null? new HashSet<>():
-//            Collections.unmodifiableCollection(taxonIds);
-//        // return OrthologousGeneGroup without genes by OMA node Id
-//        Map <Integer, OrthologousGeneGroup> geneGroupsByOMANodes = getDaoManager().getHierarchicalGroupDAO()
-//            .getOMANodesFromStartingGenes(clnTaxonIds, geneFilter.getSpeciesId(),
-//            		geneFilter.getEnsemblGeneIds())
-//            .getAllTOs().stream().collect(Collectors.toMap(
-//            		nTO -> nTO.getId(), 
-//            		nTO -> new OrthologousGeneGroup(nTO.getTaxonId(),
-//            				nTO.getOMAGroupId(), nTO.getTaxonId(), null)));
-//        //return all gene ids by OMA node id
-//        final Map<Integer, Set<Integer>> bgeeGeneIdsByNodeId = new HashMap<>();
-//    	getDaoManager().getHierarchicalGroupDAO()
-//    			.getGenesByNodeFromNodes(geneGroupsByOMANodes.keySet(), clnSpIds).getAllTOs()
-//    			.stream().forEach(e -> {
-//    				if(bgeeGeneIdsByNodeId.containsKey(e.getNodeId())){
-//    					bgeeGeneIdsByNodeId.get(e.getNodeId()).add(e.getBgeeGeneId());
-//    				}else{
-//    					bgeeGeneIdsByNodeId.put(e.getNodeId(), new HashSet<>());
-//    					bgeeGeneIdsByNodeId.get(e.getNodeId()).add(e.getBgeeGeneId());
-//    				}
-//    			}
-//    			);
-////    			.stream().map(hgToG -> hgToG.getBgeeGeneId())
-////				.collect(Collectors.groupingBy(hgToG -> hgToG.getNodeId()));
-//    	//XXX need to develop methods allowing to retrieve Genes by their bgeegeneId or 
-//    	// add genes to OrthologousGeneGroups
-//    	Map<Integer, Species> speciesMap = getSpeciesMap(new HashSet<>(speciesIds), true);
-//    	geneGroupsByOMANodes.entrySet().stream().forEach(e -> {
-//    		geneGroupsByOMANodes.get(e.getKey()).getGenes().addAll(
-//    				mapGeneTOStreamToGeneStream(this.geneDAO.getGenesByIds(
-//    		    			bgeeGeneIdsByNodeId.get(e.getKey())).stream(),speciesMap)
-//    				.collect(Collectors.toSet()));
-//    	});
-//    	return geneGroupsByOMANodes.entrySet().stream().map(e -> e.getValue());
+        if (geneFilter == null) {
+            throw log.throwing(new IllegalArgumentException("No starting genes provided."));
+        }
+        final Set<Integer> clnTaxonIds = taxonIds == null? new HashSet<>(): new HashSet<>(taxonIds);
+        OrthologyIndex index = this.getOrthologyIndex();
+
+        Set<Integer> startingGeneIds = this.geneDAO.getGenesBySpeciesAndGeneIds(
+                Collections.singletonMap(geneFilter.getSpeciesId(), geneFilter.getEnsemblGeneIds()))
+                .stream().map(GeneTO::getId).collect(Collectors.toSet());
+        //retrieve the IDs of the nodes containing the starting genes, at the level of each taxon
+        Map<Integer, Integer> taxonIdsByNodeId = new HashMap<>();
+        for (Integer geneId: startingGeneIds) {
+            for (Integer taxonId: clnTaxonIds) {
+                Integer nodeId = index.getNodeId(geneId, taxonId);
+                if (nodeId != null) {
+                    taxonIdsByNodeId.put(nodeId, taxonId);
+                }
+            }
+        }
+        Map<Integer, int[]> geneIdsByNodeId = taxonIdsByNodeId.keySet().stream()
+                .collect(Collectors.toMap(id -> id, id -> index.getGeneIds(id)));
+        Map<Integer, Gene> geneMap = this.loadGenesByBgeeIds(geneIdsByNodeId.values().stream()
+                .flatMapToInt(Arrays::stream).boxed().collect(Collectors.toSet()), speciesIds);
+
+        return log.exit(geneIdsByNodeId.entrySet().stream()
+                .map(e -> new OrthologousGeneGroup(taxonIdsByNodeId.get(e.getKey()),
+                        index.getOMAGroupId(e.getKey()), e.getKey(),
+                        Arrays.stream(e.getValue()).mapToObj(geneMap::get)
+                            .filter(g -> g != null).collect(Collectors.toSet()))));
+    }
+
+    /**
+     * Load the {@code Gene}s with the provided Bgee gene IDs, belonging to the requested species.
+     *
+     * @param bgeeGeneIds   A {@code Set} of {@code Integer}s that are the Bgee IDs of the genes
+     *                      to load.
+     * @param speciesIds    A {@code Collection} of {@code Integer}s that are the IDs of the species
+     *                      genes should belong to. If {@code null} or empty, genes of any species
+     *                      are returned.
+     * @return              A {@code Map} where keys are {@code Integer}s that are Bgee gene IDs,
+     *                      the associated value being the corresponding {@code Gene}.
+     */
+    private Map<Integer, Gene> loadGenesByBgeeIds(Set<Integer> bgeeGeneIds,
+            Collection<Integer> speciesIds) {
+        log.entry(bgeeGeneIds, speciesIds);
+        if (bgeeGeneIds.isEmpty()) {
+            return log.exit(new HashMap<>());
+        }
+        final Set<Integer> clnSpeIds = speciesIds == null? new HashSet<>(): new HashSet<>(speciesIds);
+        final Map<Integer, Species> speciesMap = this.referenceDataCache.getSpeciesMap(
+                this.getServiceFactory(), false);
+        final Map<Integer, GeneBioType> geneBioTypeMap = this.referenceDataCache.getGeneBioTypeMap(
+                this.getServiceFactory());
+        return log.exit(this.geneDAO.getGenesByBgeeIds(bgeeGeneIds).stream()
+                .filter(gTO -> clnSpeIds.isEmpty() || clnSpeIds.contains(gTO.getSpeciesId()))
+                .collect(Collectors.toMap(
+                        EntityTO::getId,
+                        gTO -> mapGeneTOToGene(gTO, speciesMap.get(gTO.getSpeciesId()), null, null,
+                                geneBioTypeMap.get(gTO.getGeneBioTypeId())))));
+    }
+
+    /**
+     * @return  The {@code OrthologyIndex} provided at instantiation, or the one shared
+     *          by all threads, loaded from the data source at the first call.
+     */
+    private OrthologyIndex getOrthologyIndex() {
+        log.entry();
+        if (this.orthologyIndex != null) {
+            return log.exit(this.orthologyIndex);
+        }
+        //threads requesting the index while it is being loaded wait for the end of the loading
+        return log.exit(SHARED_ORTHOLOGY_INDEXES.computeIfAbsent(DATA_SOURCE_INDEX_KEY,
+                k -> OrthologyIndex.load(this.getDaoManager().getHierarchicalGroupDAO())));
     }
 
     /**
@@ -363,25 +458,101 @@ public class GeneService extends CommonService {
 
         //we need to get the Species genes belong to, in order to instantiate Gene objects.
         //we don't have access to the species ID information before getting the GeneTOs,
-        //and we want to return a Stream without iterating the GeneTOs first,
-        //so we load all species in database
-        final Map<Integer, Species> speciesMap = this.speciesService.loadSpeciesMap(null, withSpeciesInfo);
-        final Map<Integer, GeneBioType> geneBioTypeMap = Collections.unmodifiableMap(loadGeneBioTypeMap(this.geneDAO));
+        //so we use the cached maps of all species and biotypes in database
+        final Map<Integer, Species> speciesMap = this.referenceDataCache.getSpeciesMap(
+                this.getServiceFactory(), withSpeciesInfo);
+        final Map<Integer, GeneBioType> geneBioTypeMap = this.referenceDataCache.getGeneBioTypeMap(
+                this.getServiceFactory());
+
+        //IDs are resolved by batches, to avoid huge queries. Each batch is resolved
+        //independently (cross-references, then genes), so that batches can be run concurrently,
+        //each with its own DAOManager.
+        List<Set<String>> batches = new ArrayList<>();
+        Set<String> currentBatch = new HashSet<>();
+        for (String id: clnMixedGeneIDs) {
+            if (currentBatch.size() == this.idResolutionBatchSize) {
+                batches.add(currentBatch);
+                currentBatch = new HashSet<>();
+            }
+            currentBatch.add(id);
+        }
+        if (!currentBatch.isEmpty()) {
+            batches.add(currentBatch);
+        }
+
+        Map<String, Set<Gene>> mapAnyIdToGenes = new HashMap<>();
+        Properties daoProps = this.getDaoManager().getParameters();
+        int threadCount = Math.min(this.idResolutionThreadCount, batches.size());
+        if (threadCount <= 1 || daoProps == null) {
+            for (Set<String> batch: batches) {
+                mapAnyIdToGenes.putAll(this.loadGenesByAnyIdBatch(batch, this.getDaoManager(),
+                        speciesMap, geneBioTypeMap));
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            try {
+                List<Future<Map<String, Set<Gene>>>> futures = new ArrayList<>();
+                for (Set<String> batch: batches) {
+                    //we need to acquire a different DAOManager than the one used
+                    //by the calling thread
+                    futures.add(executor.submit(() -> {
+                        try (DAOManager daoManager = DAOManager.getDAOManager(daoProps)) {
+                            return this.loadGenesByAnyIdBatch(batch, daoManager,
+                                    speciesMap, geneBioTypeMap);
+                        }
+                    }));
+                }
+                for (Future<Map<String, Set<Gene>>> future: futures) {
+                    mapAnyIdToGenes.putAll(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw log.throwing(new IllegalStateException("Interrupted while resolving IDs", e));
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw log.throwing((RuntimeException) e.getCause());
+                }
+                throw log.throwing(new IllegalStateException("Error while resolving IDs", e.getCause()));
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        return log.exit(mapAnyIdToGenes.entrySet().stream());
+    }
+
+    /**
+     * Retrieve {@code Gene}s for a batch of IDs (gene IDs or any cross-reference IDs),
+     * see {@link #loadGenesByAnyId(Collection, boolean)}.
+     *
+     * @param ids               A {@code Set} of {@code String}s that are the IDs to resolve.
+     * @param daoManager        The {@code DAOManager} to use to query the data source.
+     * @param speciesMap        A {@code Map} where keys are {@code Integer}s that are species IDs,
+     *                          the associated value being the corresponding {@code Species}.
+     * @param geneBioTypeMap    A {@code Map} where keys are {@code Integer}s that are gene biotype
+     *                          IDs, the associated value being the corresponding {@code GeneBioType}.
+     * @return                  The {@code Map} where keys are the provided IDs, the associated
+     *                          value being a {@code Set} of {@code Gene}s they correspond to
+     *                          (empty if no gene was found).
+     */
+    private Map<String, Set<Gene>> loadGenesByAnyIdBatch(Set<String> ids, DAOManager daoManager,
+            Map<Integer, Species> speciesMap, Map<Integer, GeneBioType> geneBioTypeMap) {
+        log.entry(ids, daoManager, speciesMap, geneBioTypeMap);
 
         // Get mapping between given IDs and Bgee gene IDs
         final Map<String, Set<Integer>> mapMixedIdToBgeeGeneIds = 
-                this.loadMappingXRefIdToBgeeGeneIds(clnMixedGeneIDs);
+                loadMappingXRefIdToBgeeGeneIds(ids, daoManager.getGeneXRefDAO());
         final Set<Integer> bgeeGeneIDs = mapMixedIdToBgeeGeneIds.values().stream()
                 .flatMap(Set::stream).collect(Collectors.toSet());
         
         // Get Genes from Bgee gene Ids
-        final Map<Integer, Gene> geneMap = Collections.unmodifiableMap(getDaoManager().getGeneDAO()
-                .getGenesByBgeeIds(bgeeGeneIDs).stream()
+        final Map<Integer, Gene> geneMap = bgeeGeneIDs.isEmpty()? new HashMap<>():
+            daoManager.getGeneDAO().getGenesByBgeeIds(bgeeGeneIDs).stream()
                 .collect(Collectors.toMap(
-                        EntityTO::getId,
+                        GeneTO::getId,
                         gTO -> mapGeneTOToGene(gTO, speciesMap.get(gTO.getSpeciesId()), null, null,
                                 geneBioTypeMap.get(gTO.getGeneBioTypeId()))
-                )));
+                ));
 
         // Build mapping between given IDs and genes
         Map<String, Set<Gene>> mapAnyIdToGenes = mapMixedIdToBgeeGeneIds.entrySet().stream()
@@ -391,22 +562,22 @@ public class GeneService extends CommonService {
 
 
         // Retrieve Genes that were not found using cross-reference IDs (i.e. Ensembl IDs)
-        Set<String> notXRefIds = clnMixedGeneIDs.stream()
+        Set<String> notXRefIds = ids.stream()
                     .filter(id -> !mapMixedIdToBgeeGeneIds.containsKey(id))
                     .collect(Collectors.toSet());
-        mapAnyIdToGenes.putAll(this.loadGenesByEnsemblIds(notXRefIds, withSpeciesInfo)
+        if (!notXRefIds.isEmpty()) {
+            mapAnyIdToGenes.putAll(mapGeneTOStreamToGeneStream(
+                    daoManager.getGeneDAO().getGenesByEnsemblGeneIds(notXRefIds).stream(),
+                    speciesMap, null, null, null, geneBioTypeMap)
                 .collect(Collectors.groupingBy(Gene::getEnsemblGeneId,
                         Collectors.mapping(x -> x, Collectors.toSet()))));
+        }
 
         // Add provided IDs with no gene found
-        clnMixedGeneIDs.removeAll(mapAnyIdToGenes.keySet());
-        if (!clnMixedGeneIDs.isEmpty()) {
-            for (String clnMixedGeneID : clnMixedGeneIDs) {
-                mapAnyIdToGenes.put(clnMixedGeneID, new HashSet<>());
-            }
+        for (String id: ids) {
+            mapAnyIdToGenes.putIfAbsent(id, new HashSet<>());
         }
-        // Build mapping between given IDs and genes
-        return log.exit(mapAnyIdToGenes.entrySet().stream());
+        return log.exit(mapAnyIdToGenes);
     }
 
     public Set<GeneBioType> loadGeneBioTypes() {
@@ -420,19 +591,21 @@ public class GeneService extends CommonService {
      * Retrieve the mapping between a given set of cross-reference IDs. 
      * and Bgee gene IDs of the data source.
      * 
-     * @param ids   A {@code Collection} of {@code String}s that are cross-reference IDs
-     *              for which to return the mapping. If empty or {@code null}, an empty {@code Map}
-     *              will be returned (and not all Bgee gene IDs in the database)
+     * @param ids           A {@code Collection} of {@code String}s that are cross-reference IDs
+     *                      for which to return the mapping. If empty or {@code null}, an empty
+     *                      {@code Map} will be returned (and not all Bgee gene IDs in the database)
+     * @param geneXRefDAO   The {@code GeneXRefDAO} to use to retrieve the mapping.
      * @return      The {@code Map} where keys are {@code String}s corresponding to provided IDs,
      *              and values are {@code Set} of {@code Integers}s that are the associated Bgee gene IDs.
      */
-    private Map<String, Set<Integer>> loadMappingXRefIdToBgeeGeneIds(Collection<String> ids) {
-        log.entry(ids);
+    private static Map<String, Set<Integer>> loadMappingXRefIdToBgeeGeneIds(Collection<String> ids,
+            GeneXRefDAO geneXRefDAO) {
+        log.entry(ids, geneXRefDAO);
         if (ids == null || ids.isEmpty()) {
             return log.exit(new HashMap<>());
         }
         
-        Map<String, Set<Integer>> xRefIdToGeneIds = getDaoManager().getGeneXRefDAO()
+        Map<String, Set<Integer>> xRefIdToGeneIds = geneXRefDAO
                 .getGeneXRefsByXRefIds(ids, Arrays.asList(GeneXRefDAO.Attribute.BGEE_GENE_ID, 
                         GeneXRefDAO.Attribute.XREF_ID)).stream()
                 .collect(Collectors.groupingBy(GeneXRefTO::getXRefId,
@@ -0,0 +1,289 @@
+package org.bgee.model.gene;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.api.exception.DAOException;
+import org.bgee.model.dao.api.gene.HierarchicalGroupDAO;
+import org.bgee.model.dao.api.gene.HierarchicalGroupDAO.HierarchicalNodeTO;
+import org.bgee.model.dao.api.gene.HierarchicalGroupDAO.HierarchicalNodeToGeneTO;
+
+/**
+ * An in-memory index of the OMA hierarchical orthologous groups (HOGs), allowing to retrieve
+ * the orthologs of a gene at any taxon level without querying the data source.
+ * <p>
+ * Nodes are stored in arrays ordered by their nested set left bound, with their right bound,
+ * taxon ID and parent. Each gene is associated to the most specific node it is mapped to,
+ * and genes are stored in an array ordered by the left bound of this node: the genes
+ * belonging to the subtree of a node are then stored contiguously, and are retrieved
+ * with two binary searches over the bounds of the node.
+ * <p>
+ * This class is immutable and thread-safe. It is meant to be loaded once
+ * (see {@link #load(HierarchicalGroupDAO)}) and shared, see {@link GeneService#getOrthologs(
+ * Integer, java.util.Set)}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class OrthologyIndex {
+    private final static Logger log = LogManager.getLogger(OrthologyIndex.class.getName());
+
+    /**
+     * Load the index from the data source.
+     *
+     * @param dao   The {@code HierarchicalGroupDAO} to retrieve nodes and gene mappings from.
+     * @return      The loaded {@code OrthologyIndex}.
+     * @throws DAOException If an error occurred when accessing the data source.
+     */
+    public static OrthologyIndex load(HierarchicalGroupDAO dao) throws DAOException {
+        log.entry(dao);
+        long startTime = System.currentTimeMillis();
+        List<HierarchicalNodeTO> nodeTOs = dao.getAllHierarchicalNodes().getAllTOs();
+        List<HierarchicalNodeToGeneTO> nodeToGeneTOs = dao.getAllHierarchicalNodeToGenes().getAllTOs();
+        OrthologyIndex index = new OrthologyIndex(nodeTOs, nodeToGeneTOs);
+        log.info("Orthology index loaded in {} ms: {} nodes, {} genes",
+                System.currentTimeMillis() - startTime, index.getNodeCount(), index.getGeneCount());
+        return log.exit(index);
+    }
+
+    //Nodes, ordered by left bound. The position of a node in these arrays is used
+    //as internal identifier.
+    private final int[] nodeIds;
+    private final String[] omaGroupIds;
+    private final int[] leftBounds;
+    private final int[] rightBounds;
+    private final int[] taxonIds;
+    /**
+     * An {@code int} array storing the position of the parent of each node, -1 for root nodes.
+     */
+    private final int[] parentPositions;
+    private final Map<Integer, Integer> positionsByNodeId;
+    private final Map<Integer, int[]> positionsByTaxonId;
+
+    //Genes, ordered by the left bound of the most specific node they are mapped to.
+    private final int[] geneIds;
+    private final int[] geneLeftBounds;
+    /**
+     * A {@code Map} where keys are {@code Integer}s that are Bgee gene IDs, the associated value
+     * being the position of the most specific node the gene is mapped to.
+     */
+    private final Map<Integer, Integer> nodePositionsByGeneId;
+
+    /**
+     * @param nodeTOs       A {@code Collection} of {@code HierarchicalNodeTO}s that are all
+     *                      the nodes of the hierarchical groups, with their bounds.
+     * @param nodeToGeneTOs A {@code Collection} of {@code HierarchicalNodeToGeneTO}s that are
+     *                      the mappings between nodes and genes.
+     * @throws IllegalArgumentException If a node has no bounds, or if a gene is mapped
+     *                                  to an unknown node.
+     */
+    public OrthologyIndex(Collection<HierarchicalNodeTO> nodeTOs,
+            Collection<HierarchicalNodeToGeneTO> nodeToGeneTOs) throws IllegalArgumentException {
+        log.entry(nodeTOs, nodeToGeneTOs);
+
+        List<HierarchicalNodeTO> sortedNodes = new ArrayList<>(nodeTOs);
+        if (sortedNodes.stream().anyMatch(n -> n.getId() == null || n.getLeftBound() == null ||
+                n.getRightBound() == null)) {
+            throw log.throwing(new IllegalArgumentException("Nodes must have an ID and bounds"));
+        }
+        sortedNodes.sort((n1, n2) -> Integer.compare(n1.getLeftBound(), n2.getLeftBound()));
+
+        int nodeCount = sortedNodes.size();
+        this.nodeIds = new int[nodeCount];
+        this.omaGroupIds = new String[nodeCount];
+        this.leftBounds = new int[nodeCount];
+        this.rightBounds = new int[nodeCount];
+        this.taxonIds = new int[nodeCount];
+        this.parentPositions = new int[nodeCount];
+        this.positionsByNodeId = new HashMap<>();
+        Map<Integer, List<Integer>> taxonToPositions = new HashMap<>();
+        //stack of the positions of the ancestors of the current node
+        Deque<Integer> ancestors = new ArrayDeque<>();
+        for (int i = 0; i < nodeCount; i++) {
+            HierarchicalNodeTO node = sortedNodes.get(i);
+            this.nodeIds[i] = node.getId();
+            this.omaGroupIds[i] = node.getOMAGroupId();
+            this.leftBounds[i] = node.getLeftBound();
+            this.rightBounds[i] = node.getRightBound();
+            this.taxonIds[i] = node.getTaxonId();
+            this.positionsByNodeId.put(node.getId(), i);
+            taxonToPositions.computeIfAbsent(this.taxonIds[i], k -> new ArrayList<>()).add(i);
+
+            while (!ancestors.isEmpty() && this.rightBounds[ancestors.peek()] < this.leftBounds[i]) {
+                ancestors.pop();
+            }
+            this.parentPositions[i] = ancestors.isEmpty()? -1: ancestors.peek();
+            ancestors.push(i);
+        }
+        this.positionsByTaxonId = taxonToPositions.entrySet().stream()
+                .collect(Collectors.toMap(e -> e.getKey(),
+                        e -> e.getValue().stream().mapToInt(Integer::intValue).toArray()));
+
+        //we keep for each gene the most specific node it is mapped to, i.e.,
+        //the node with the highest left bound, nodes of a gene being nested
+        this.nodePositionsByGeneId = new HashMap<>();
+        for (HierarchicalNodeToGeneTO nodeToGene: nodeToGeneTOs) {
+            Integer position = this.positionsByNodeId.get(nodeToGene.getNodeId());
+            if (position == null) {
+                throw log.throwing(new IllegalArgumentException("Gene mapped to unknown node: "
+                        + nodeToGene));
+            }
+            this.nodePositionsByGeneId.merge(nodeToGene.getBgeeGeneId(), position, Math::max);
+        }
+        List<Map.Entry<Integer, Integer>> sortedGenes = new ArrayList<>(
+                this.nodePositionsByGeneId.entrySet());
+        sortedGenes.sort(Map.Entry.<Integer, Integer>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey()));
+        this.geneIds = new int[sortedGenes.size()];
+        this.geneLeftBounds = new int[sortedGenes.size()];
+        for (int i = 0; i < sortedGenes.size(); i++) {
+            this.geneIds[i] = sortedGenes.get(i).getKey();
+            this.geneLeftBounds[i] = this.leftBounds[sortedGenes.get(i).getValue()];
+        }
+        log.exit();
+    }
+
+    /**
+     * @param nodeId    An {@code int} that is the ID of a node.
+     * @return          An {@code int} array containing the Bgee gene IDs of the genes
+     *                  belonging to the node or to its descendants, in ascending order
+     *                  of the left bound of their node. Empty if the node is unknown.
+     */
+    public int[] getGeneIds(int nodeId) {
+        log.entry(nodeId);
+        Integer position = this.positionsByNodeId.get(nodeId);
+        if (position == null) {
+            return log.exit(new int[0]);
+        }
+        return log.exit(this.getGeneIdsAtPosition(position));
+    }
+    private int[] getGeneIdsAtPosition(int position) {
+        int from = lowerBound(this.geneLeftBounds, this.leftBounds[position]);
+        int to = lowerBound(this.geneLeftBounds, this.rightBounds[position] + 1);
+        return Arrays.copyOfRange(this.geneIds, from, to);
+    }
+    /**
+     * @return  The index of the first element of {@code array} greater than or equal to
+     *          {@code value}, {@code array.length} if there is none.
+     */
+    private static int lowerBound(int[] array, int value) {
+        int low = 0;
+        int high = array.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param bgeeGeneId    An {@code int} that is the Bgee ID of a gene.
+     * @param taxonId       An {@code int} that is the NCBI ID of a taxon.
+     * @return              The {@code Integer} that is the ID of the node at the level of
+     *                      {@code taxonId} the gene belongs to, {@code null} if there is none.
+     */
+    public Integer getNodeId(int bgeeGeneId, int taxonId) {
+        log.entry(bgeeGeneId, taxonId);
+        Integer position = this.nodePositionsByGeneId.get(bgeeGeneId);
+        if (position == null) {
+            return log.exit(null);
+        }
+        int current = position;
+        while (current != -1 && this.taxonIds[current] != taxonId) {
+            current = this.parentPositions[current];
+        }
+        return log.exit(current == -1? null: this.nodeIds[current]);
+    }
+
+    /**
+     * @param bgeeGeneId    An {@code int} that is the Bgee ID of a gene.
+     * @param taxonId       An {@code int} that is the NCBI ID of a taxon.
+     * @return              An {@code int} array containing the Bgee gene IDs of the genes
+     *                      orthologous to the provided gene at the level of {@code taxonId},
+     *                      including the provided gene. Empty if the gene has no node
+     *                      at the level of this taxon.
+     */
+    public int[] getOrthologGeneIds(int bgeeGeneId, int taxonId) {
+        log.entry(bgeeGeneId, taxonId);
+        Integer nodeId = this.getNodeId(bgeeGeneId, taxonId);
+        if (nodeId == null) {
+            return log.exit(new int[0]);
+        }
+        return log.exit(this.getGeneIds(nodeId));
+    }
+
+    /**
+     * @param taxonId   An {@code int} that is the NCBI ID of a taxon.
+     * @return          An {@code int} array containing the IDs of the nodes at the level
+     *                  of {@code taxonId}.
+     */
+    public int[] getNodeIds(int taxonId) {
+        log.entry(taxonId);
+        int[] positions = this.positionsByTaxonId.get(taxonId);
+        if (positions == null) {
+            return log.exit(new int[0]);
+        }
+        return log.exit(Arrays.stream(positions).map(p -> this.nodeIds[p]).toArray());
+    }
+
+    /**
+     * @param nodeId    An {@code int} that is the ID of a node.
+     * @return          The {@code String} that is the OMA group ID of the node,
+     *                  {@code null} if the node is unknown.
+     */
+    public String getOMAGroupId(int nodeId) {
+        log.entry(nodeId);
+        Integer position = this.positionsByNodeId.get(nodeId);
+        return log.exit(position == null? null: this.omaGroupIds[position]);
+    }
+
+    /**
+     * @return  A {@code Map} where keys are {@code Integer}s that are IDs of nodes at the level
+     *          of {@code taxonId}, the associated value being an {@code int} array containing
+     *          the Bgee gene IDs of the genes belonging to the node. Nodes with no genes
+     *          are not returned.
+     * @param taxonId   An {@code int} that is the NCBI ID of a taxon.
+     */
+    public Map<Integer, int[]> getGeneIdsByNodeId(int taxonId) {
+        log.entry(taxonId);
+        int[] positions = this.positionsByTaxonId.get(taxonId);
+        if (positions == null) {
+            return log.exit(Collections.emptyMap());
+        }
+        Map<Integer, int[]> geneIdsByNodeId = new HashMap<>();
+        for (int position: positions) {
+            int[] nodeGeneIds = this.getGeneIdsAtPosition(position);
+            if (nodeGeneIds.length > 0) {
+                geneIdsByNodeId.put(this.nodeIds[position], nodeGeneIds);
+            }
+        }
+        return log.exit(geneIdsByNodeId);
+    }
+
+    /**
+     * @return  An {@code int} that is the number of nodes in this index.
+     */
+    public int getNodeCount() {
+        return this.nodeIds.length;
+    }
+    /**
+     * @return  An {@code int} that is the number of genes mapped to a node in this index.
+     */
+    public int getGeneCount() {
+        return this.geneIds.length;
+    }
+}
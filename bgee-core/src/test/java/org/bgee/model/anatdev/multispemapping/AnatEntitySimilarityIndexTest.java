@@ -0,0 +1,57 @@
+package org.bgee.model.anatdev.multispemapping;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.bgee.model.TestAncestor;
+import org.bgee.model.anatdev.AnatEntity;
+import org.bgee.model.species.Taxon;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link AnatEntitySimilarityIndex}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class AnatEntitySimilarityIndexTest extends TestAncestor {
+
+    /**
+     * Test the retrieval of similarity groups, including an anat. entity
+     * part of several groups.
+     */
+    @Test
+    public void shouldIndexSimilarities() {
+        Taxon taxon = new Taxon(10, null, null, "scientificName", 1, true);
+        List<AnatEntitySimilarityTaxonSummary> summaries = Collections.singletonList(
+                new AnatEntitySimilarityTaxonSummary(taxon, true, true));
+        AnatEntitySimilarity aeSim1 = new AnatEntitySimilarity(
+                Arrays.asList(new AnatEntity("ae1"), new AnatEntity("ae2")), null, taxon, summaries);
+        AnatEntitySimilarity aeSim2 = new AnatEntitySimilarity(
+                Arrays.asList(new AnatEntity("ae2"), new AnatEntity("ae3")), null, taxon, summaries);
+        AnatEntitySimilarity aeSim3 = new AnatEntitySimilarity(
+                Arrays.asList(new AnatEntity("ae4")), null, taxon, summaries);
+        AnatEntitySimilarityIndex index = new AnatEntitySimilarityIndex(
+                Arrays.asList(aeSim1, aeSim2, aeSim3));
+
+        assertEquals("Incorrect group count", 3, index.getGroupCount());
+        assertArrayEquals("Incorrect groups", new int[]{0}, index.getGroupIds("ae1"));
+        assertArrayEquals("Incorrect groups", new int[]{0, 1}, index.getGroupIds("ae2"));
+        assertArrayEquals("Incorrect groups", new int[0], index.getGroupIds("ae5"));
+        assertEquals("Incorrect similarity", aeSim2, index.getSimilarity(1));
+
+        BitSet groupIds = index.getGroupIds(Arrays.asList("ae3", "ae4"));
+        assertEquals("Incorrect groups", new HashSet<>(Arrays.asList(1, 2)),
+                groupIds.stream().boxed().collect(Collectors.toSet()));
+        assertEquals("Incorrect anat. entities", new HashSet<>(Arrays.asList("ae2", "ae3", "ae4")),
+                index.getAnatEntityIds(groupIds));
+        assertEquals("Incorrect groups", 3, index.getAllGroupIds().cardinality());
+    }
+}
@@ -0,0 +1,84 @@
+package org.bgee.model.expressiondata;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.TestAncestor;
+import org.bgee.model.expressiondata.MultiGeneExprAnalysis.MultiGeneExprCounts;
+import org.bgee.model.expressiondata.baseelements.ExpressionLevelInfo;
+import org.bgee.model.expressiondata.baseelements.SummaryCallType.ExpressionSummary;
+import org.bgee.model.gene.Gene;
+import org.bgee.model.gene.GeneBioType;
+import org.bgee.model.species.Species;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link MultiGeneExprAnalysis}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class MultiGeneExprAnalysisTest extends TestAncestor {
+    private final static Logger log = LogManager.getLogger(MultiGeneExprAnalysisTest.class.getName());
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Test that a {@code MultiGeneExprCounts} instantiated from {@code BitSet}s
+     * is equal to the one instantiated from {@code Collection}s of {@code Gene}s,
+     * and that the expression level information are computed only once.
+     */
+    @Test
+    public void shouldInstantiateCountsFromBitSets() {
+        Species spe1 = new Species(1);
+        Gene g1 = new Gene("geneId1", spe1, new GeneBioType("b"));
+        Gene g2 = new Gene("geneId2", spe1, new GeneBioType("b"));
+        Gene g3 = new Gene("geneId3", spe1, new GeneBioType("b"));
+        List<Gene> requestedGenes = Arrays.asList(g1, g2, g3);
+
+        Map<ExpressionSummary, Collection<Gene>> callTypeToGenes = new HashMap<>();
+        callTypeToGenes.put(ExpressionSummary.EXPRESSED, Arrays.asList(g1));
+        callTypeToGenes.put(ExpressionSummary.NOT_EXPRESSED, Arrays.asList(g3));
+        Map<Gene, ExpressionLevelInfo> geneToExprLevelInfo = new HashMap<>();
+        geneToExprLevelInfo.put(g1, new ExpressionLevelInfo(new BigDecimal("1.0")));
+        geneToExprLevelInfo.put(g3, null);
+        MultiGeneExprCounts expectedCounts = new MultiGeneExprCounts(callTypeToGenes,
+                Arrays.asList(g2), geneToExprLevelInfo);
+
+        Map<ExpressionSummary, BitSet> callTypeToGeneBits = new HashMap<>();
+        BitSet expressedBits = new BitSet();
+        expressedBits.set(0);
+        callTypeToGeneBits.put(ExpressionSummary.EXPRESSED, expressedBits);
+        BitSet notExpressedBits = new BitSet();
+        notExpressedBits.set(2);
+        callTypeToGeneBits.put(ExpressionSummary.NOT_EXPRESSED, notExpressedBits);
+        BitSet geneWithDataBits = new BitSet();
+        geneWithDataBits.set(0);
+        geneWithDataBits.set(2);
+        AtomicInteger supplierCallCount = new AtomicInteger(0);
+        MultiGeneExprCounts counts = new MultiGeneExprCounts(requestedGenes, callTypeToGeneBits,
+                geneWithDataBits, () -> {
+                    supplierCallCount.incrementAndGet();
+                    return geneToExprLevelInfo;
+                });
+
+        assertEquals("Incorrect count of genes with no data", 1, counts.getGenesWithNoDataCount());
+        assertEquals("Expression level info should be computed lazily", 0, supplierCallCount.get());
+        assertEquals("Incorrect counts", expectedCounts, counts);
+        assertEquals("Incorrect hashCode", expectedCounts.hashCode(), counts.hashCode());
+        assertEquals("Expression level info should be computed once", 1, supplierCallCount.get());
+    }
+}
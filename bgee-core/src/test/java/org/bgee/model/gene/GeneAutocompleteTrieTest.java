@@ -0,0 +1,98 @@
+package org.bgee.model.gene;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.bgee.model.TestAncestor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This class holds the unit tests for the {@code GeneAutocompleteTrie} class.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class GeneAutocompleteTrieTest extends TestAncestor {
+
+    @Rule
+    public final TemporaryFolder testFolder = new TemporaryFolder();
+
+    private static GeneAutocompleteTrie getTrie(int k) {
+        return new GeneAutocompleteTrie.Builder(k)
+                .add("BRCA2", 3)
+                .add("Brca2", 3)
+                .add("BRCA1", 3)
+                .add("BRCC2", 1)
+                .add("brcc  3", 1)
+                .add("Brd4", 1)
+                .add("UPK3A", 2)
+                .add(" ", 10)
+                .build();
+    }
+
+    /**
+     * Test {@link GeneAutocompleteTrie#lookup(String, int)}.
+     */
+    @Test
+    public void shouldLookup() {
+        //k lower than the number of completions under some nodes,
+        //so that both precomputed and computed completions are tested
+        GeneAutocompleteTrie trie = getTrie(2);
+        assertEquals(6, trie.getCompletionCount());
+        assertEquals(2, trie.getK());
+
+        //scores of completions with the same key are summed
+        assertEquals(Arrays.asList("BRCA2", "BRCA1"), trie.lookup("b", 10));
+        assertEquals(Arrays.asList("BRCA2"), trie.lookup("Br", 1));
+        //then completions are ordered by length, then alphabetically
+        assertEquals(Arrays.asList("BRCA2", "BRCA1", "Brd4", "BRCC2", "brcc 3"),
+                getTrie(10).lookup("br", 10));
+        //lookup ending in the middle of an edge
+        assertEquals(Arrays.asList("BRCC2", "brcc 3"), trie.lookup("brcc", 10));
+        assertEquals(Arrays.asList("brcc 3"), trie.lookup("BRCC 3", 10));
+        assertEquals(Arrays.asList("UPK3A"), trie.lookup("upk", 10));
+
+        assertEquals(Collections.emptyList(), trie.lookup("brcd", 10));
+        assertEquals(Collections.emptyList(), trie.lookup("x", 10));
+        assertEquals(Collections.emptyList(), trie.lookup("", 10));
+    }
+
+    /**
+     * Test {@link GeneAutocompleteTrie#writeToFile(Path)} and
+     * {@link GeneAutocompleteTrie#map(Path)}.
+     */
+    @Test
+    public void shouldWriteAndMapFile() throws Exception {
+        Path file = testFolder.getRoot().toPath().resolve("genes.trie");
+        getTrie(2).writeToFile(file);
+
+        GeneAutocompleteTrie trie = GeneAutocompleteTrie.map(file);
+        assertEquals(6, trie.getCompletionCount());
+        assertEquals(Arrays.asList("BRCA2", "BRCA1"), trie.lookup("br", 10));
+        assertEquals(Arrays.asList("BRCC2", "brcc 3"), trie.lookup("brcc", 10));
+    }
+
+    /**
+     * Test {@link GeneSearchIndex#buildAutocompleteTrie(int)}.
+     */
+    @Test
+    public void shouldBuildFromIndex() {
+        GeneSearchIndex index = new GeneSearchIndex(Arrays.asList(
+                new GeneSearchIndex.IndexedGene("ENSG0001", "BRCA2", "breast cancer 2",
+                        Arrays.asList("FANCD1", "BRCC2"), null, 9606, 1, 1),
+                new GeneSearchIndex.IndexedGene("ENSMUSG0001", "Brca2", "breast cancer 2",
+                        Arrays.asList("Fancd1"), null, 10090, 1, 1),
+                new GeneSearchIndex.IndexedGene("ENSG0002", "BRCC3", "BRCA1/BRCA2-containing complex",
+                        null, null, 9606, 1, 1)),
+                Collections.emptyMap(), Collections.emptyMap());
+        GeneAutocompleteTrie trie = index.buildAutocompleteTrie(GeneAutocompleteTrie.DEFAULT_K);
+        assertEquals(7, trie.getCompletionCount());
+        //the name shared by two genes comes first, then names before synonyms
+        assertEquals(Arrays.asList("BRCA2", "BRCC3", "BRCC2"), trie.lookup("br", 10));
+    }
+}
@@ -0,0 +1,125 @@
+package org.bgee.model.gene;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.bgee.model.TestAncestor;
+import org.bgee.model.species.Species;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This class holds the unit tests for the {@code GeneSearchIndex} class.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class GeneSearchIndexTest extends TestAncestor {
+
+    @Rule
+    public final TemporaryFolder testFolder = new TemporaryFolder();
+
+    private static GeneSearchIndex getIndex() {
+        Map<Integer, Species> speciesMap = new HashMap<>();
+        speciesMap.put(9606, new Species(9606, "human", null, "Homo", "sapiens",
+                null, null, null, null, null, null, 1));
+        speciesMap.put(10090, new Species(10090, "mouse", null, "Mus", "musculus",
+                null, null, null, null, null, null, 2));
+        Map<Integer, GeneBioType> bioTypeMap = Collections.singletonMap(1, new GeneBioType("type1"));
+        return new GeneSearchIndex(Arrays.asList(
+                new GeneSearchIndex.IndexedGene("ENSG0001", "BRCA2", "breast cancer 2",
+                        Arrays.asList("FANCD1", "BRCC2"), Arrays.asList("HGNC:1101", "P51587"),
+                        9606, 1, 1),
+                new GeneSearchIndex.IndexedGene("ENSMUSG0001", "Brca2", "breast cancer 2",
+                        Arrays.asList("Fancd1"), null, 10090, 1, 1),
+                new GeneSearchIndex.IndexedGene("ENSG0002", "UPK3A", "uroplakin 3A",
+                        null, Arrays.asList("HGNC:12579"), 9606, 1, 1)),
+                speciesMap, bioTypeMap);
+    }
+
+    /**
+     * Test {@link GeneSearchIndex#search(String, int, int)}.
+     */
+    @Test
+    public void shouldSearch() {
+        GeneSearchIndex index = getIndex();
+
+        GeneMatchResult result = index.search("brca2", 0, 10);
+        assertEquals(2, result.getTotalMatchCount());
+        assertEquals(Arrays.asList("ENSG0001", "ENSMUSG0001"), result.getGeneMatches().stream()
+                .map(gm -> gm.getGene().getEnsemblGeneId()).collect(Collectors.toList()));
+        assertEquals(GeneMatch.MatchSource.NAME, result.getGeneMatches().get(0).getMatchSource());
+
+        //pagination
+        result = index.search("brca2", 1, 10);
+        assertEquals(2, result.getTotalMatchCount());
+        assertEquals(1, result.getGeneMatches().size());
+        assertEquals("ENSMUSG0001", result.getGeneMatches().get(0).getGene().getEnsemblGeneId());
+
+        //match on synonyms and xrefs, with terms returned in lower case
+        result = index.search("fancd", 0, 10);
+        assertEquals(2, result.getTotalMatchCount());
+        assertEquals(new GeneMatch(result.getGeneMatches().get(0).getGene(), "fancd1",
+                GeneMatch.MatchSource.SYNONYM), result.getGeneMatches().get(0));
+        result = index.search("HGNC:12579", 0, 10);
+        assertEquals(1, result.getTotalMatchCount());
+        assertEquals(GeneMatch.MatchSource.XREF, result.getGeneMatches().get(0).getMatchSource());
+        assertEquals("hgnc:12579", result.getGeneMatches().get(0).getTerm());
+
+        //backslashes are ignored
+        result = index.search("upk\\3a", 0, 10);
+        assertEquals(1, result.getTotalMatchCount());
+        assertEquals("ENSG0002", result.getGeneMatches().get(0).getGene().getEnsemblGeneId());
+
+        //multi-token queries
+        result = index.search("breast cancer", 0, 10);
+        assertEquals(2, result.getTotalMatchCount());
+        assertEquals(GeneMatch.MatchSource.DESCRIPTION, result.getGeneMatches().get(0).getMatchSource());
+
+        result = index.search("unknown", 0, 10);
+        assertEquals(0, result.getTotalMatchCount());
+        assertNull(result.getGeneMatches());
+    }
+
+    /**
+     * Test {@link GeneSearchIndex#autocomplete(String, int)}.
+     */
+    @Test
+    public void shouldAutocomplete() {
+        GeneSearchIndex index = getIndex();
+        assertEquals(Arrays.asList("BRCA2", "BRCC2"), index.autocomplete("br", 10));
+        assertEquals(Arrays.asList("BRCA2"), index.autocomplete("br", 1));
+        assertEquals(Arrays.asList("ENSG0001", "ENSG0002"), index.autocomplete("ENSG", 10));
+        assertEquals(Collections.emptyList(), index.autocomplete("xyz", 10));
+    }
+
+    /**
+     * Test {@link GeneSearchIndex#writeToFile(Path)} and
+     * {@link GeneSearchIndex#readFromFile(Path, Map, Map)}.
+     */
+    @Test
+    public void shouldWriteAndReadFile() throws Exception {
+        GeneSearchIndex index = getIndex();
+        Path file = testFolder.getRoot().toPath().resolve("genes.idx");
+        index.writeToFile(file);
+
+        Map<Integer, Species> speciesMap = new HashMap<>();
+        speciesMap.put(9606, new Species(9606));
+        speciesMap.put(10090, new Species(10090));
+        GeneSearchIndex readIndex = GeneSearchIndex.readFromFile(file, speciesMap,
+                Collections.singletonMap(1, new GeneBioType("type1")));
+        assertEquals(3, readIndex.getGeneCount());
+        List<GeneMatch> matches = readIndex.search("fancd1", 0, 10).getGeneMatches();
+        assertEquals(2, matches.size());
+        assertEquals(Arrays.asList("BRCA2", "BRCC2"), readIndex.autocomplete("br", 10));
+    }
+}
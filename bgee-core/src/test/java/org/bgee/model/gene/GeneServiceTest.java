@@ -1,5 +1,6 @@
 package org.bgee.model.gene;
 
+import org.bgee.model.BgeeProperties;
 import org.bgee.model.Entity;
 import org.bgee.model.ServiceFactory;
 import org.bgee.model.TestAncestor;
@@ -13,24 +14,32 @@ import org.bgee.model.dao.api.gene.GeneXRefDAO;
 import org.bgee.model.dao.api.gene.GeneXRefDAO.GeneXRefTO;
 import org.bgee.model.dao.api.gene.GeneXRefDAO.GeneXRefTOResultSet;
 import org.bgee.model.dao.api.gene.HierarchicalGroupDAO;
+import org.bgee.model.dao.api.gene.HierarchicalGroupDAO.HierarchicalNodeTO;
+import org.bgee.model.dao.api.gene.HierarchicalGroupDAO.HierarchicalNodeTOResultSet;
 import org.bgee.model.dao.api.gene.HierarchicalGroupDAO.HierarchicalNodeToGeneTO;
 import org.bgee.model.dao.api.gene.HierarchicalGroupDAO.HierarchicalNodeToGeneTOResultSet;
 import org.bgee.model.species.Species;
 import org.bgee.model.species.SpeciesService;
-import org.junit.Ignore;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -39,7 +48,7 @@ import static org.mockito.Mockito.when;
  * @author  Valentine Rech de Laval
  * @author  Philippe Moret
  * @author  Julien Wollbrett
- * @version Bgee 14, Apr. 2019
+ * @version Bgee 14, Jan. 2020
  * @since   Bgee 13, Nov. 2015
  */
 public class GeneServiceTest extends TestAncestor {
@@ -125,14 +134,11 @@ public class GeneServiceTest extends TestAncestor {
                 Arrays.asList(GeneXRefDAO.Attribute.BGEE_GENE_ID, GeneXRefDAO.Attribute.XREF_ID)))
                 .thenReturn(mockGeneXRefRs);
 
-        // Mock the SpeciesService response
+        // Mock the SpeciesService response (all species are loaded once)
         Map<Integer, Species> speciesMap = new HashMap<>();
         speciesMap.put(1, new Species(1));
-        Map<Integer, Species> speciesMap2 = new HashMap<>();
-        speciesMap2.put(1, new Species(1));
-        speciesMap2.put(2, new Species(2));
-        //XXX: was null attribute before merge, let's see if it works like that
-        when(speciesService.loadSpeciesMap(null, false)).thenReturn(speciesMap).thenReturn(speciesMap2);
+        speciesMap.put(2, new Species(2));
+        when(speciesService.loadSpeciesMap(null, false)).thenReturn(speciesMap);
 
         // Mock the GeneDAO response from cross-ref ids
         Set<Integer> bgeeGeneIds = new HashSet<>(Arrays.asList(1, 2, 22, 4));
@@ -176,8 +182,93 @@ public class GeneServiceTest extends TestAncestor {
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
     }
     
+    /**
+     * Test {@link GeneService#loadGenesByAnyId(Collection, boolean)} when IDs
+     * are resolved by several batches.
+     */
+    @Test
+    public void shouldLoadGenesByAnyIdInBatches() {
+        // Initialize mocks
+        DAOManager managerMock = mock(DAOManager.class);
+        ServiceFactory serviceFactory = mock(ServiceFactory.class);
+        when(serviceFactory.getDAOManager()).thenReturn(managerMock);
+        BgeeProperties props = mock(BgeeProperties.class);
+        when(props.getIdResolutionBatchSize()).thenReturn(2);
+        when(props.getIdResolutionThreadCount()).thenReturn(1);
+        when(serviceFactory.getBgeeProperties()).thenReturn(props);
+        SpeciesService speciesService = mock(SpeciesService .class);
+        when(serviceFactory.getSpeciesService()).thenReturn(speciesService);
+        Map<Integer, Species> speciesMap = new HashMap<>();
+        speciesMap.put(1, new Species(1));
+        when(speciesService.loadSpeciesMap(null, false)).thenReturn(speciesMap);
+        GeneXRefDAO geneXrefDao = mock(GeneXRefDAO.class);
+        when(managerMock.getGeneXRefDAO()).thenReturn(geneXrefDao);
+        GeneDAO geneDao = mock(GeneDAO.class);
+        when(managerMock.getGeneDAO()).thenReturn(geneDao);
+        GeneBioTypeTOResultSet mockBioTypeRs = getMockResultSet(GeneBioTypeTOResultSet.class,
+                Arrays.asList(new GeneBioTypeTO(1, "type1")));
+        when(geneDao.getGeneBioTypes()).thenReturn(mockBioTypeRs);
+
+        List<GeneXRefTO> xRefTOs = Arrays.asList(new GeneXRefTO(1, "OtherID1", null, null),
+                new GeneXRefTO(2, "OtherID2", null, null));
+        List<GeneTO> geneTOs = Arrays.asList(
+                new GeneTO(1, "ID1", "Name1", null, 1, 1, null, null, 1),
+                new GeneTO(2, "ID2", "Name2", null, 1, 1, null, null, 1),
+                new GeneTO(3, "ID3", "Name3", null, 1, 1, null, null, 1));
+        when(geneXrefDao.getGeneXRefsByXRefIds(anyCollectionOf(String.class), 
+                eq(Arrays.asList(GeneXRefDAO.Attribute.BGEE_GENE_ID, GeneXRefDAO.Attribute.XREF_ID))))
+                .thenAnswer(new Answer<GeneXRefTOResultSet>() {
+                    public GeneXRefTOResultSet answer(InvocationOnMock invocation) {
+                        Collection<?> ids = (Collection<?>) invocation.getArguments()[0];
+                        assertTrue("Incorrect batch size", ids.size() <= 2);
+                        return getMockResultSet(GeneXRefTOResultSet.class, xRefTOs.stream()
+                                .filter(to -> ids.contains(to.getXRefId()))
+                                .collect(Collectors.toList()));
+                    }
+                });
+        when(geneDao.getGenesByBgeeIds(anyCollectionOf(Integer.class))).thenAnswer(
+                new Answer<GeneTOResultSet>() {
+                    public GeneTOResultSet answer(InvocationOnMock invocation) {
+                        Collection<?> ids = (Collection<?>) invocation.getArguments()[0];
+                        return getMockResultSet(GeneTOResultSet.class, geneTOs.stream()
+                                .filter(to -> ids.contains(to.getId()))
+                                .collect(Collectors.toList()));
+                    }
+                });
+        when(geneDao.getGenesByEnsemblGeneIds(anyCollectionOf(String.class))).thenAnswer(
+                new Answer<GeneTOResultSet>() {
+                    public GeneTOResultSet answer(InvocationOnMock invocation) {
+                        Collection<?> ids = (Collection<?>) invocation.getArguments()[0];
+                        return getMockResultSet(GeneTOResultSet.class, geneTOs.stream()
+                                .filter(to -> ids.contains(to.getGeneId()))
+                                .collect(Collectors.toList()));
+                    }
+                });
+
+        Map<String,Set<Gene>> expectedMap = new HashMap<>();
+        expectedMap.put("OtherID1", new HashSet<>(Arrays.asList(
+                new Gene("ID1", "Name1", null, null, null, new Species(1), new GeneBioType("type1"), 1))));
+        expectedMap.put("OtherID2", new HashSet<>(Arrays.asList(
+                new Gene("ID2", "Name2", null, null, null, new Species(1), new GeneBioType("type1"), 1))));
+        expectedMap.put("ID3", new HashSet<>(Arrays.asList(
+                new Gene("ID3", "Name3", null, null, null, new Species(1), new GeneBioType("type1"), 1))));
+        expectedMap.put("UnknownID", new HashSet<>());
+
+        GeneService service = new GeneService(serviceFactory);
+        assertEquals("Incorrect genes", expectedMap, service.loadGenesByAnyId(
+                Arrays.asList("OtherID1", "OtherID2", "ID3", "UnknownID"), false)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+        verify(geneXrefDao, times(2)).getGeneXRefsByXRefIds(anyCollectionOf(String.class), 
+                eq(Arrays.asList(GeneXRefDAO.Attribute.BGEE_GENE_ID, GeneXRefDAO.Attribute.XREF_ID)));
+        //reference data are loaded only once
+        verify(speciesService, times(1)).loadSpeciesMap(null, false);
+        verify(geneDao, times(1)).getGeneBioTypes();
+    }
+    
+    /**
+     * Test {@link GeneService#getOrthologs(Integer, Set)}.
+     */
     @Test
-    @Ignore("Test ignored until the method getOrthologs() is re-implemented.")
     public void testGetOrthologies() {
         DAOManager managerMock = mock(DAOManager.class);
         ServiceFactory serviceFactory = mock(ServiceFactory.class);
@@ -186,11 +277,17 @@ public class GeneServiceTest extends TestAncestor {
         // Mock HierarchicalGroupDAO
         HierarchicalGroupDAO hgDao = mock(HierarchicalGroupDAO.class);
         when(managerMock.getHierarchicalGroupDAO()).thenReturn(hgDao);
+        HierarchicalNodeTOResultSet nodeResultSet = getMockResultSet(HierarchicalNodeTOResultSet.class,
+                Arrays.asList(new HierarchicalNodeTO(10, "HOG:1", 1, 6, 999),
+                        new HierarchicalNodeTO(1, "HOG:1.1", 2, 3, 1234),
+                        new HierarchicalNodeTO(2, "HOG:1.2", 4, 5, 1234)));
+        when(hgDao.getAllHierarchicalNodes()).thenReturn(nodeResultSet);
         HierarchicalNodeToGeneTOResultSet resultSet = getMockResultSet(HierarchicalNodeToGeneTOResultSet.class, 
-                Arrays.asList(new HierarchicalNodeToGeneTO(1, 123, 3),
-                        new HierarchicalNodeToGeneTO(1, 124, 3),
-                        new HierarchicalNodeToGeneTO(2, 223, 4)));
-        when(hgDao.getOMANodeToGene(1234, null)).thenReturn(resultSet);
+                Arrays.asList(new HierarchicalNodeToGeneTO(10, 123, 999),
+                        new HierarchicalNodeToGeneTO(1, 123, 1234),
+                        new HierarchicalNodeToGeneTO(1, 124, 1234),
+                        new HierarchicalNodeToGeneTO(2, 223, 1234)));
+        when(hgDao.getAllHierarchicalNodeToGenes()).thenReturn(resultSet);
         
         // Mock SpeciesService
         SpeciesService speciesService = mock(SpeciesService.class);
@@ -199,7 +296,7 @@ public class GeneServiceTest extends TestAncestor {
         speciesMap.put(11, new Species(11));
         speciesMap.put(22, new Species(22));
         speciesMap.put(44, new Species(44));
-        when(speciesService.loadSpeciesMap(new HashSet<>(), false)).thenReturn(speciesMap);
+        when(speciesService.loadSpeciesMap(null, false)).thenReturn(speciesMap);
 
         
         // Mock GeneService
@@ -209,13 +306,14 @@ public class GeneServiceTest extends TestAncestor {
             Arrays.asList(new GeneTO(123, "ID1", "Name1", "Desc1", 11, 1, 1, true, 1),
                     new GeneTO(124, "ID2", "Name2", "Desc2", 22, 1, 1, true, 1),
                     new GeneTO(223, "ID4", "Name4", "Desc4", 44, 2, 1, true, 1)));
-        when(geneDao.getGenesBySpeciesIds(null)).thenReturn(mockGeneRs);
+        when(geneDao.getGenesByBgeeIds(new HashSet<>(Arrays.asList(123, 124, 223))))
+            .thenReturn(mockGeneRs);
         GeneBioTypeTOResultSet mockBioTypeRs = getMockResultSet(GeneBioTypeTOResultSet.class,
                 Arrays.asList(new GeneBioTypeTO(1, "type1"), new GeneBioTypeTO(2, "type2")));
         when(geneDao.getGeneBioTypes()).thenReturn(mockBioTypeRs);
 
         // Test
-        GeneService service = new GeneService(serviceFactory);
+        GeneService service = new GeneService(serviceFactory, OrthologyIndex.load(hgDao));
         Map<Integer, Set<Gene>> expected = new HashMap<>();
         expected.put(1, new HashSet<>(Arrays.asList(
             new Gene("ID1", "Name1", "Desc1", null, null, new Species(11), new GeneBioType("type1"), 1), 
@@ -0,0 +1,77 @@
+package org.bgee.model.gene;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.bgee.model.TestAncestor;
+import org.bgee.model.dao.api.gene.HierarchicalGroupDAO.HierarchicalNodeTO;
+import org.bgee.model.dao.api.gene.HierarchicalGroupDAO.HierarchicalNodeToGeneTO;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link OrthologyIndex}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class OrthologyIndexTest extends TestAncestor {
+
+    /**
+     * Test the retrieval of orthologs at different taxon levels, over two groups:
+     * <pre>
+     * HOG:1 (taxon 100, 1-10)
+     *   HOG:1.1 (taxon 200, 2-5)
+     *     HOG:1.1a (taxon 300, 3-4): genes 1, 2
+     *   HOG:1.2 (taxon 200, 6-9): gene 3
+     *     HOG:1.2a (taxon 300, 7-8): gene 4
+     * HOG:2 (taxon 100, 11-12): gene 5
+     * </pre>
+     */
+    @Test
+    public void shouldGetOrthologs() {
+        OrthologyIndex index = new OrthologyIndex(
+                Arrays.asList(new HierarchicalNodeTO(7, "HOG:1.2a", 7, 8, 300),
+                        new HierarchicalNodeTO(1, "HOG:1", 1, 10, 100),
+                        new HierarchicalNodeTO(2, "HOG:1.1", 2, 5, 200),
+                        new HierarchicalNodeTO(3, "HOG:1.1a", 3, 4, 300),
+                        new HierarchicalNodeTO(6, "HOG:1.2", 6, 9, 200),
+                        new HierarchicalNodeTO(8, "HOG:2", 11, 12, 100)),
+                Arrays.asList(new HierarchicalNodeToGeneTO(1, 1, 100),
+                        new HierarchicalNodeToGeneTO(2, 1, 200),
+                        new HierarchicalNodeToGeneTO(3, 1, 300),
+                        new HierarchicalNodeToGeneTO(3, 2, 300),
+                        new HierarchicalNodeToGeneTO(6, 3, 200),
+                        new HierarchicalNodeToGeneTO(7, 4, 300),
+                        new HierarchicalNodeToGeneTO(8, 5, 100)));
+
+        assertEquals("Incorrect node count", 6, index.getNodeCount());
+        assertEquals("Incorrect gene count", 5, index.getGeneCount());
+
+        assertArrayEquals("Incorrect genes", new int[]{1, 2, 3, 4}, index.getGeneIds(1));
+        assertArrayEquals("Incorrect genes", new int[]{3, 4}, index.getGeneIds(6));
+        assertArrayEquals("Incorrect genes", new int[]{5}, index.getGeneIds(8));
+        assertArrayEquals("Incorrect genes", new int[0], index.getGeneIds(99));
+
+        assertEquals("Incorrect node", Integer.valueOf(3), index.getNodeId(2, 300));
+        assertEquals("Incorrect node", Integer.valueOf(2), index.getNodeId(2, 200));
+        assertEquals("Incorrect node", Integer.valueOf(1), index.getNodeId(4, 100));
+        assertNull("Incorrect node", index.getNodeId(3, 300));
+        assertNull("Incorrect node", index.getNodeId(5, 200));
+
+        assertArrayEquals("Incorrect orthologs", new int[]{1, 2}, index.getOrthologGeneIds(1, 200));
+        assertArrayEquals("Incorrect orthologs", new int[]{3, 4}, index.getOrthologGeneIds(4, 200));
+        assertArrayEquals("Incorrect orthologs", new int[0], index.getOrthologGeneIds(3, 300));
+
+        assertArrayEquals("Incorrect nodes", new int[]{1, 8}, index.getNodeIds(100));
+        assertEquals("Incorrect OMA group ID", "HOG:1.2a", index.getOMAGroupId(7));
+
+        Map<Integer, int[]> geneIdsByNodeId = index.getGeneIdsByNodeId(300);
+        assertEquals("Incorrect nodes", 2, geneIdsByNodeId.size());
+        assertArrayEquals("Incorrect genes", new int[]{1, 2}, geneIdsByNodeId.get(3));
+        assertArrayEquals("Incorrect genes", new int[]{4}, geneIdsByNodeId.get(7));
+    }
+}
@@ -1,6 +1,9 @@
 package org.bgee.model.dao.api.expressiondata;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
@@ -10,7 +13,7 @@ import org.apache.logging.log4j.Logger;
  * Class allowing to store the count of experiments in support of {@link GlobalExpressionCallTO}s.
  * 
  * @author Frederic Bastian
- * @version Bgee 14 Mar. 2017
+ * @version Bgee 14 Jan. 2020
  * @see GlobalExpressionCallDAO.GlobalExpressionCallDataTO
  * @see DAOExperimentCountFilter
  * @see GlobalExpressionCallDAO
@@ -29,7 +32,122 @@ public class DAOExperimentCount {
     public static final Set<DAOPropagationState> ALLOWED_PROP_STATES = EnumSet.of(
             DAOPropagationState.ALL, DAOPropagationState.SELF,
             DAOPropagationState.ANCESTOR, DAOPropagationState.DESCENDANT);
-    
+
+    /**
+     * An {@code int} that is the length of the count vectors, see {@link #getCountVectorIndex(
+     * CallType, DataQuality, DAOPropagationState)}: 2 call types x 2 data qualities
+     * x 3 propagation states ("self", "descendant" for present calls or "ancestor"
+     * for absent calls, and "all").
+     */
+    public static final int COUNT_VECTOR_LENGTH = 12;
+    /**
+     * An {@code int} that is the value stored in count vectors for missing counts.
+     */
+    public static final int MISSING_COUNT = -1;
+
+    /**
+     * Get the index of a count in a fixed-layout count vector, allowing to store
+     * the counts of a data type in an {@code int} array of length {@link #COUNT_VECTOR_LENGTH},
+     * rather than in a {@code Set} of {@code DAOExperimentCount}s.
+     *
+     * @param callType              A {@code CallType}.
+     * @param dataQuality           A {@code DataQuality}.
+     * @param daoPropagationState   A {@code DAOPropagationState}, that can be {@code SELF},
+     *                              {@code ALL}, {@code DESCENDANT} for present calls,
+     *                              or {@code ANCESTOR} for absent calls.
+     * @return                      An {@code int} that is the index of the count
+     *                              in a count vector.
+     * @throws IllegalArgumentException If the combination of arguments is not stored
+     *                                  in count vectors.
+     */
+    public static int getCountVectorIndex(CallType callType, DataQuality dataQuality,
+            DAOPropagationState daoPropagationState) throws IllegalArgumentException {
+        int propIndex;
+        switch (daoPropagationState) {
+        case SELF:
+            propIndex = 0;
+            break;
+        case DESCENDANT:
+            if (!CallType.PRESENT.equals(callType)) {
+                throw log.throwing(new IllegalArgumentException("Unsupported count: " + callType
+                        + " - " + daoPropagationState));
+            }
+            propIndex = 1;
+            break;
+        case ANCESTOR:
+            if (!CallType.ABSENT.equals(callType)) {
+                throw log.throwing(new IllegalArgumentException("Unsupported count: " + callType
+                        + " - " + daoPropagationState));
+            }
+            propIndex = 1;
+            break;
+        case ALL:
+            propIndex = 2;
+            break;
+        default:
+            throw log.throwing(new IllegalArgumentException("Unsupported DAOPropagationState: "
+                    + daoPropagationState));
+        }
+        return propIndex * 4 + callType.ordinal() * 2 + dataQuality.ordinal();
+    }
+    /**
+     * @param counts    A {@code Collection} of {@code DAOExperimentCount}s to store
+     *                  in a count vector.
+     * @return          An {@code int} array that is the count vector storing {@code counts},
+     *                  see {@link #getCountVectorIndex(CallType, DataQuality, DAOPropagationState)}.
+     *                  Missing counts are equal to {@link #MISSING_COUNT}.
+     * @throws IllegalArgumentException If a combination of call type, data quality
+     *                                  and propagation state is not stored in count vectors,
+     *                                  or is present several times in {@code counts}.
+     */
+    public static int[] toCountVector(Collection<DAOExperimentCount> counts)
+            throws IllegalArgumentException {
+        log.entry(counts);
+        int[] countVector = new int[COUNT_VECTOR_LENGTH];
+        Arrays.fill(countVector, MISSING_COUNT);
+        for (DAOExperimentCount count: counts) {
+            int index = getCountVectorIndex(count.getCallType(), count.getDataQuality(),
+                    count.getPropagationState());
+            if (countVector[index] != MISSING_COUNT) {
+                throw log.throwing(new IllegalArgumentException("Several counts for "
+                        + count.getCallType() + " - " + count.getDataQuality() + " - "
+                        + count.getPropagationState() + ": " + counts));
+            }
+            countVector[index] = count.getCount();
+        }
+        return log.exit(countVector);
+    }
+    /**
+     * @param countVector   An {@code int} array that is a count vector, see {@link
+     *                      #getCountVectorIndex(CallType, DataQuality, DAOPropagationState)}.
+     * @return              A {@code Set} of {@code DAOExperimentCount}s for the counts
+     *                      in {@code countVector} that are not missing.
+     * @throws IllegalArgumentException If {@code countVector} has not the length
+     *                                  {@link #COUNT_VECTOR_LENGTH}.
+     */
+    public static Set<DAOExperimentCount> fromCountVector(int[] countVector)
+            throws IllegalArgumentException {
+        log.entry(countVector);
+        if (countVector.length != COUNT_VECTOR_LENGTH) {
+            throw log.throwing(new IllegalArgumentException("Invalid count vector: "
+                    + Arrays.toString(countVector)));
+        }
+        Set<DAOExperimentCount> counts = new HashSet<>();
+        for (int i = 0; i < COUNT_VECTOR_LENGTH; i++) {
+            if (countVector[i] == MISSING_COUNT) {
+                continue;
+            }
+            //inverse of getCountVectorIndex
+            CallType callType = CallType.values()[(i / 2) % 2];
+            DAOPropagationState propState = i < 4? DAOPropagationState.SELF:
+                i >= 8? DAOPropagationState.ALL:
+                CallType.PRESENT.equals(callType)? DAOPropagationState.DESCENDANT:
+                    DAOPropagationState.ANCESTOR;
+            counts.add(new DAOExperimentCount(callType, DataQuality.values()[i % 2], propState,
+                    countVector[i]));
+        }
+        return log.exit(counts);
+    }
 
     private final CallType callType;
     private final DataQuality dataQuality;
@@ -1,6 +1,7 @@
 package org.bgee.model.dao.api.expressiondata;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -272,9 +273,17 @@ public interface GlobalExpressionCallDAO extends DAO<GlobalExpressionCallDAO.Att
     /**
      * This {@code TransferObject} stores the supporting data of {@link GlobalExpressionCallTO}s
      * from a specific {@link org.bgee.model.dao.api.expressiondata.DAODataType DAODataType}.
+     * <p>
+     * The experiment counts are stored in a fixed-layout count vector (see
+     * {@link DAOExperimentCount#getCountVectorIndex(DAOExperimentCount.CallType,
+     * DAOExperimentCount.DataQuality, DAOPropagationState)}), that can be provided
+     * and retrieved directly, to avoid creating and looking up {@code DAOExperimentCount}s
+     * when inserting or reading large amounts of calls. The {@code Set} of
+     * {@code DAOExperimentCount}s returned by {@link #getExperimentCounts()} is created
+     * from the count vector if needed.
      * 
      * @author Frederic Bastian
-     * @version Bgee 14 Mar. 2017
+     * @version Bgee 14 Jan. 2020
      * @see GlobalExpressionCallTO
      * @since Bgee 14 Mar. 2017
      */
@@ -288,7 +297,16 @@ public interface GlobalExpressionCallDAO extends DAO<GlobalExpressionCallDAO.Att
 
         private final Map<ConditionDAO.Attribute, DAOPropagationState> dataPropagation;
 
-        private final Set<DAOExperimentCount> experimentCounts;
+        /**
+         * An {@code int} array that is the count vector storing the experiment counts,
+         * {@code null} if no counts were provided.
+         */
+        private final int[] experimentCountVector;
+        /**
+         * A {@code Set} of {@code DAOExperimentCount}s, either provided at instantiation,
+         * or lazily created from {@link #experimentCountVector}.
+         */
+        private volatile Set<DAOExperimentCount> experimentCounts;
 
         private final Integer propagatedCount;
 
@@ -296,20 +314,64 @@ public interface GlobalExpressionCallDAO extends DAO<GlobalExpressionCallDAO.Att
         private final BigDecimal rankNorm;
         private final BigDecimal weightForMeanRank;
 
+        /**
+         * @throws IllegalArgumentException If a condition parameter in {@code dataPropagation}
+         *                                  is invalid, or if {@code experimentCounts} contain
+         *                                  several counts, or invalid counts, for a same
+         *                                  call type, data quality and propagation state.
+         */
         public GlobalExpressionCallDataTO(DAODataType dataType, Boolean conditionObservedData,
                 Map<ConditionDAO.Attribute, DAOPropagationState> dataPropagation,
                 Set<DAOExperimentCount> experimentCounts, Integer propagatedCount,
-                BigDecimal rank, BigDecimal rankNorm, BigDecimal weightForMeanRank) {
+                BigDecimal rank, BigDecimal rankNorm, BigDecimal weightForMeanRank)
+                        throws IllegalArgumentException {
+            this(dataType, conditionObservedData, dataPropagation,
+                    experimentCounts == null? null: DAOExperimentCount.toCountVector(experimentCounts),
+                    false, propagatedCount, rank, rankNorm, weightForMeanRank);
+            this.experimentCounts = experimentCounts == null? null:
+                Collections.unmodifiableSet(new HashSet<>(experimentCounts));
+        }
+        /**
+         * Constructor providing the experiment counts as a count vector, see
+         * {@link DAOExperimentCount#getCountVectorIndex(DAOExperimentCount.CallType,
+         * DAOExperimentCount.DataQuality, DAOPropagationState)}.
+         *
+         * @param experimentCountVector An {@code int} array that is the count vector storing
+         *                              the experiment counts, missing counts being equal to
+         *                              {@link DAOExperimentCount#MISSING_COUNT}. It is copied.
+         * @throws IllegalArgumentException If a condition parameter in {@code dataPropagation}
+         *                                  is invalid, or {@code experimentCountVector}
+         *                                  has an invalid length.
+         */
+        public GlobalExpressionCallDataTO(DAODataType dataType, Boolean conditionObservedData,
+                Map<ConditionDAO.Attribute, DAOPropagationState> dataPropagation,
+                int[] experimentCountVector, Integer propagatedCount,
+                BigDecimal rank, BigDecimal rankNorm, BigDecimal weightForMeanRank)
+                        throws IllegalArgumentException {
+            this(dataType, conditionObservedData, dataPropagation,
+                    experimentCountVector == null? null: experimentCountVector.clone(), true,
+                    propagatedCount, rank, rankNorm, weightForMeanRank);
+        }
+        private GlobalExpressionCallDataTO(DAODataType dataType, Boolean conditionObservedData,
+                Map<ConditionDAO.Attribute, DAOPropagationState> dataPropagation,
+                int[] experimentCountVector, boolean checkCountVector, Integer propagatedCount,
+                BigDecimal rank, BigDecimal rankNorm, BigDecimal weightForMeanRank)
+                        throws IllegalArgumentException {
 
             if (dataPropagation != null && dataPropagation.keySet().stream().anyMatch(a -> !a.isConditionParameter())) {
                 throw log.throwing(new IllegalArgumentException("Invalid condition parameters: "
                         + dataPropagation.keySet()));
             }
+            if (checkCountVector && experimentCountVector != null &&
+                    experimentCountVector.length != DAOExperimentCount.COUNT_VECTOR_LENGTH) {
+                throw log.throwing(new IllegalArgumentException("Invalid count vector: "
+                        + Arrays.toString(experimentCountVector)));
+            }
             this.dataType = dataType;
             this.conditionObservedData = conditionObservedData;
             this.dataPropagation = dataPropagation == null? null: Collections.unmodifiableMap(new HashMap<>(dataPropagation));
 
-            this.experimentCounts = experimentCounts == null? null: Collections.unmodifiableSet(new HashSet<>(experimentCounts));
+            this.experimentCountVector = experimentCountVector;
             this.propagatedCount = propagatedCount;
 
             this.rank = rank;
@@ -341,8 +403,53 @@ public interface GlobalExpressionCallDAO extends DAO<GlobalExpressionCallDAO.Att
             return dataPropagation;
         }
 
+        /**
+         * @return  A {@code Set} of {@code DAOExperimentCount}s that are the experiment counts
+         *          of this call data. When this {@code GlobalExpressionCallDataTO} was created
+         *          from a count vector, the {@code Set} is created at first call.
+         * @see #getExperimentCountVector()
+         * @see #getExperimentCount(DAOExperimentCount.CallType, DAOExperimentCount.DataQuality,
+         *      DAOPropagationState)
+         */
         public Set<DAOExperimentCount> getExperimentCounts() {
-            return experimentCounts;
+            //benign race: the Set would be the same if created by several threads
+            Set<DAOExperimentCount> counts = this.experimentCounts;
+            if (counts == null && this.experimentCountVector != null) {
+                counts = Collections.unmodifiableSet(
+                        DAOExperimentCount.fromCountVector(this.experimentCountVector));
+                this.experimentCounts = counts;
+            }
+            return counts;
+        }
+        /**
+         * @return  An {@code int} array that is a copy of the count vector storing
+         *          the experiment counts of this call data, missing counts being equal to
+         *          {@link DAOExperimentCount#MISSING_COUNT}. {@code null} if no counts
+         *          were provided.
+         * @see DAOExperimentCount#getCountVectorIndex(DAOExperimentCount.CallType,
+         *      DAOExperimentCount.DataQuality, DAOPropagationState)
+         */
+        public int[] getExperimentCountVector() {
+            return this.experimentCountVector == null? null: this.experimentCountVector.clone();
+        }
+        /**
+         * @param callType              A {@code DAOExperimentCount.CallType}.
+         * @param dataQuality           A {@code DAOExperimentCount.DataQuality}.
+         * @param daoPropagationState   A {@code DAOPropagationState}.
+         * @return                      An {@code Integer} that is the requested count,
+         *                              {@code null} if missing.
+         * @throws IllegalArgumentException If the combination of arguments is not stored
+         *                                  in count vectors.
+         */
+        public Integer getExperimentCount(DAOExperimentCount.CallType callType,
+                DAOExperimentCount.DataQuality dataQuality, DAOPropagationState daoPropagationState)
+                        throws IllegalArgumentException {
+            if (this.experimentCountVector == null) {
+                return null;
+            }
+            int count = this.experimentCountVector[DAOExperimentCount.getCountVectorIndex(
+                    callType, dataQuality, daoPropagationState)];
+            return count == DAOExperimentCount.MISSING_COUNT? null: count;
         }
         public Integer getPropagatedCount() {
             return propagatedCount;
@@ -363,7 +470,7 @@ public interface GlobalExpressionCallDAO extends DAO<GlobalExpressionCallDAO.Att
             StringBuilder builder = new StringBuilder();
             builder.append("GlobalExpressionCallDataTO [dataType=").append(dataType)
                    .append(", dataPropagation=").append(dataPropagation)
-                   .append(", experimentCounts=").append(experimentCounts)
+                   .append(", experimentCounts=").append(getExperimentCounts())
                    .append(", propagatedCount=").append(propagatedCount)
                    .append(", rank=").append(rank)
                    .append(", rankNorm=").append(rankNorm)
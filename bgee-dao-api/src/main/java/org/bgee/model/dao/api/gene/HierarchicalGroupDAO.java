@@ -110,6 +110,37 @@ public interface HierarchicalGroupDAO extends DAO<HierarchicalGroupDAO.Attribute
 	public HierarchicalNodeToGeneTOResultSet getOMANodeToGene(Integer taxonId, 
 			Collection<Integer> speciesIds) throws DAOException, IllegalArgumentException;
 
+    /**
+     * Retrieve all the nodes of the OMA hierarchical groups, ordered by their left bound. 
+     * The {@code HierarchicalNodeTO}s retrieved contain the ID, the OMA group ID, 
+     * the left and right bounds, and the taxon ID of the nodes (0 for nodes 
+     * with no taxon, such as paralogous groups).
+     * <p>
+     * Note that using the {@code setAttributes} methods (see {@link DAO}) has no effect 
+     * on attributes retrieved in {@code HierarchicalNodeTO}s. Also, it is 
+     * the responsibility of the caller to close the returned {@code DAOResultSet} 
+     * once results are retrieved.
+     * 
+     * @return              A {@code HierarchicalNodeTOResultSet} allowing to retrieve 
+     *                      all {@code HierarchicalNodeTO}s.
+     * @throws DAOException If an error occurred when accessing the data source. 
+     */
+    public HierarchicalNodeTOResultSet getAllHierarchicalNodes() throws DAOException;
+
+    /**
+     * Retrieve all the mappings between nodes of the OMA hierarchical groups and genes. 
+     * <p>
+     * Note that using the {@code setAttributes} methods (see {@link DAO}) has no effect 
+     * on attributes retrieved in {@code HierarchicalNodeToGeneTO}s. Also, it is 
+     * the responsibility of the caller to close the returned {@code DAOResultSet} 
+     * once results are retrieved.
+     * 
+     * @return              A {@code HierarchicalNodeToGeneTOResultSet} allowing to retrieve 
+     *                      all {@code HierarchicalNodeToGeneTO}s.
+     * @throws DAOException If an error occurred when accessing the data source. 
+     */
+    public HierarchicalNodeToGeneTOResultSet getAllHierarchicalNodeToGenes() throws DAOException;
+
 	/**
      * {@code DAOResultSet} specifics to {@code HierarchicalNodeTO}s
      * 
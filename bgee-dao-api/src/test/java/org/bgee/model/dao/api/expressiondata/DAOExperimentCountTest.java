@@ -0,0 +1,114 @@
+package org.bgee.model.dao.api.expressiondata;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.api.TestAncestor;
+import org.bgee.model.dao.api.expressiondata.DAOExperimentCount.CallType;
+import org.bgee.model.dao.api.expressiondata.DAOExperimentCount.DataQuality;
+import org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO.GlobalExpressionCallDataTO;
+import org.junit.Test;
+
+/**
+ * Unit tests for the count vectors of {@link DAOExperimentCount}
+ * and {@link GlobalExpressionCallDataTO}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class DAOExperimentCountTest extends TestAncestor {
+    private final static Logger log = LogManager.getLogger(DAOExperimentCountTest.class.getName());
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Test that all the experiment counts stored in a count vector have a distinct index,
+     * see {@link DAOExperimentCount#getCountVectorIndex(CallType, DataQuality, DAOPropagationState)}.
+     */
+    @Test
+    public void shouldGetDistinctCountVectorIndexes() {
+        Set<Integer> indexes = new HashSet<>();
+        for (CallType callType: CallType.values()) {
+            for (DataQuality quality: DataQuality.values()) {
+                for (DAOPropagationState propState: EnumSet.of(DAOPropagationState.SELF,
+                        CallType.PRESENT.equals(callType)?
+                                DAOPropagationState.DESCENDANT: DAOPropagationState.ANCESTOR,
+                        DAOPropagationState.ALL)) {
+                    int index = DAOExperimentCount.getCountVectorIndex(callType, quality, propState);
+                    assertTrue("Index out of bounds: " + index,
+                            index >= 0 && index < DAOExperimentCount.COUNT_VECTOR_LENGTH);
+                    indexes.add(index);
+                }
+            }
+        }
+        assertEquals("Incorrect number of indexes", DAOExperimentCount.COUNT_VECTOR_LENGTH,
+                indexes.size());
+
+        try {
+            DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.HIGH,
+                    DAOPropagationState.ANCESTOR);
+            throw new AssertionError("An IllegalArgumentException should be thrown");
+        } catch (IllegalArgumentException e) {
+            //test passed
+        }
+    }
+
+    /**
+     * Test {@link DAOExperimentCount#toCountVector(java.util.Collection)} and
+     * {@link DAOExperimentCount#fromCountVector(int[])}, and the count vectors
+     * of {@code GlobalExpressionCallDataTO}s.
+     */
+    @Test
+    public void shouldConvertCountVectors() {
+        Set<DAOExperimentCount> counts = new HashSet<>(Arrays.asList(
+                new DAOExperimentCount(CallType.PRESENT, DataQuality.HIGH, DAOPropagationState.SELF, 2),
+                new DAOExperimentCount(CallType.PRESENT, DataQuality.LOW, DAOPropagationState.DESCENDANT, 0),
+                new DAOExperimentCount(CallType.ABSENT, DataQuality.LOW, DAOPropagationState.ANCESTOR, 1),
+                new DAOExperimentCount(CallType.ABSENT, DataQuality.HIGH, DAOPropagationState.ALL, 3)));
+        int[] countVector = DAOExperimentCount.toCountVector(counts);
+        int[] expectedVector = new int[DAOExperimentCount.COUNT_VECTOR_LENGTH];
+        Arrays.fill(expectedVector, DAOExperimentCount.MISSING_COUNT);
+        expectedVector[DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.HIGH,
+                DAOPropagationState.SELF)] = 2;
+        expectedVector[DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.LOW,
+                DAOPropagationState.DESCENDANT)] = 0;
+        expectedVector[DAOExperimentCount.getCountVectorIndex(CallType.ABSENT, DataQuality.LOW,
+                DAOPropagationState.ANCESTOR)] = 1;
+        expectedVector[DAOExperimentCount.getCountVectorIndex(CallType.ABSENT, DataQuality.HIGH,
+                DAOPropagationState.ALL)] = 3;
+        assertArrayEquals("Incorrect count vector", expectedVector, countVector);
+        assertEquals("Incorrect counts", counts, DAOExperimentCount.fromCountVector(countVector));
+
+        GlobalExpressionCallDataTO fromVector = new GlobalExpressionCallDataTO(DAODataType.AFFYMETRIX,
+                true, null, countVector, 3, null, null, null);
+        assertEquals("Incorrect counts", counts, fromVector.getExperimentCounts());
+        assertEquals("Incorrect count", Integer.valueOf(1), fromVector.getExperimentCount(
+                CallType.ABSENT, DataQuality.LOW, DAOPropagationState.ANCESTOR));
+        assertEquals("Incorrect count", null, fromVector.getExperimentCount(
+                CallType.ABSENT, DataQuality.LOW, DAOPropagationState.SELF));
+        GlobalExpressionCallDataTO fromSet = new GlobalExpressionCallDataTO(DAODataType.AFFYMETRIX,
+                true, null, counts, 3, null, null, null);
+        assertArrayEquals("Incorrect count vector", expectedVector, fromSet.getExperimentCountVector());
+        assertEquals("Incorrect counts", counts, fromSet.getExperimentCounts());
+
+        try {
+            DAOExperimentCount.toCountVector(Arrays.asList(
+                    new DAOExperimentCount(CallType.PRESENT, DataQuality.HIGH, DAOPropagationState.SELF, 2),
+                    new DAOExperimentCount(CallType.PRESENT, DataQuality.HIGH, DAOPropagationState.SELF, 1)));
+            throw new AssertionError("An IllegalArgumentException should be thrown");
+        } catch (IllegalArgumentException e) {
+            //test passed
+        }
+    }
+}
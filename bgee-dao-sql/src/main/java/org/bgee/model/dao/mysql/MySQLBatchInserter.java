@@ -0,0 +1,355 @@
+package org.bgee.model.dao.mysql;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.api.exception.DAOException;
+import org.bgee.model.dao.mysql.connector.BgeeConnection;
+import org.bgee.model.dao.mysql.connector.BgeePreparedStatement;
+import org.bgee.model.dao.mysql.connector.MySQLDAOManager;
+
+/**
+ * Class used by the {@code MySQLDAO}s to insert collections of rows. Rather than building
+ * a single {@code INSERT ... VALUES (?, ...), (?, ...)} statement for a whole collection,
+ * which can exceed the {@code max_allowed_packet} of the server, or the maximum number
+ * of parameters of a prepared statement, rows are inserted by chunks, whose size is defined by
+ * the parameters of the {@code MySQLDAOManager} used (see
+ * {@link MySQLDAOManager#getInsertMaxRowCount()} and {@link MySQLDAOManager#getInsertMaxBytes()}).
+ * <p>
+ * Rows can be inserted either using multi-row {@code INSERT} statements, the statement
+ * being prepared once for all the full chunks, and once for the last chunk; or using
+ * JDBC batches of single-row statements, when {@link MySQLDAOManager#isInsertUsingBatch()}
+ * returns {@code true}, to rely on the rewriting of batched statements by the driver
+ * (option {@code rewriteBatchedStatements=true} of MySQL Connector/J).
+ * <p>
+ * The number of rows inserted per second is logged at the end of each insertion.
+ * A {@code MySQLBatchInserter} holds no state related to an insertion, so that
+ * a same instance can be stored in a static field of a {@code MySQLDAO}
+ * and used concurrently by different threads, each with its own {@code MySQLDAOManager}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ *
+ * @param <T>   The type of the elements inserted, usually a {@code TransferObject}.
+ */
+public class MySQLBatchInserter<T> {
+    private final static Logger log = LogManager.getLogger(MySQLBatchInserter.class.getName());
+
+    /**
+     * Binds the parameters of one row to insert to a {@code BgeePreparedStatement}.
+     *
+     * @param <T>   The type of the elements inserted.
+     */
+    @FunctionalInterface
+    public static interface RowBinder<T> {
+        /**
+         * Sets the parameters of one row to {@code stmt}, starting at {@code paramIndex}.
+         *
+         * @param stmt          The {@code BgeePreparedStatement} to set parameters to.
+         * @param paramIndex    An {@code int} that is the index of the first parameter to set.
+         * @param element       The {@code T} to set the parameters from.
+         * @return              An {@code int} that is the index of the next parameter to set.
+         *                      Must be equal to {@code paramIndex} plus the number
+         *                      of parameters per row.
+         * @throws SQLException If an error occurred while setting the parameters.
+         */
+        public int bind(BgeePreparedStatement stmt, int paramIndex, T element) throws SQLException;
+    }
+
+    /**
+     * An {@code int} that is the default maximum number of rows inserted at once,
+     * see {@link MySQLDAOManager#getInsertMaxRowCount()}.
+     */
+    public final static int DEFAULT_MAX_ROW_COUNT = MySQLDAO.MAX_UPDATE_COUNT;
+    /**
+     * A {@code long} that is the default maximum estimated size in bytes of an insert statement,
+     * see {@link MySQLDAOManager#getInsertMaxBytes()}. It is the default
+     * {@code max_allowed_packet} of MySQL 5.7 (4 MB).
+     */
+    public final static long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+    /**
+     * An {@code int} that is the maximum number of parameters of a prepared statement
+     * accepted by MySQL.
+     */
+    public final static int MAX_PARAMETER_COUNT = 65535;
+    /**
+     * An {@code int} that is the estimated size in bytes of a parameter value,
+     * when inlined in the statement sent to the server, used to estimate the size
+     * of a statement when no estimate is provided at instantiation.
+     */
+    public final static int DEFAULT_BYTES_PER_PARAMETER = 32;
+
+    /**
+     * @see #getInsertClause()
+     */
+    private final String insertClause;
+    /**
+     * @see #getParameterCountPerRow()
+     */
+    private final int parameterCountPerRow;
+    /**
+     * A {@code String} that is the clause appended after the values
+     * (for instance, {@code ON DUPLICATE KEY UPDATE ...}), can be empty.
+     */
+    private final String endClause;
+    /**
+     * A {@code String} that is the placeholders of one row, for instance {@code (?, ?, ?)}.
+     */
+    private final String rowPlaceholders;
+    /**
+     * An {@code int} that is the estimated size in bytes of one row in a statement.
+     */
+    private final int estimatedBytesPerRow;
+    /**
+     * The {@code RowBinder} used to set the parameters of each row.
+     */
+    private final RowBinder<T> rowBinder;
+
+    /**
+     * Constructor using {@link #DEFAULT_BYTES_PER_PARAMETER} to estimate the size of the rows.
+     *
+     * @param insertClause          See {@link #getInsertClause()}.
+     * @param parameterCountPerRow  See {@link #getParameterCountPerRow()}.
+     * @param rowBinder             The {@code RowBinder} used to set the parameters of each row.
+     * @throws IllegalArgumentException If {@code insertClause} is blank, {@code rowBinder}
+     *                                  is {@code null}, or {@code parameterCountPerRow}
+     *                                  is not strictly positive.
+     */
+    public MySQLBatchInserter(String insertClause, int parameterCountPerRow,
+            RowBinder<T> rowBinder) throws IllegalArgumentException {
+        this(insertClause, parameterCountPerRow, null,
+                parameterCountPerRow * DEFAULT_BYTES_PER_PARAMETER, rowBinder);
+    }
+    /**
+     * @param insertClause          See {@link #getInsertClause()}.
+     * @param parameterCountPerRow  See {@link #getParameterCountPerRow()}.
+     * @param endClause             A {@code String} that is the clause appended after
+     *                              the values of the statements (for instance,
+     *                              {@code ON DUPLICATE KEY UPDATE ...}). Can be {@code null}.
+     * @param estimatedBytesPerRow  An {@code int} that is the estimated size in bytes
+     *                              of the values of one row, once inlined in the statement.
+     * @param rowBinder             The {@code RowBinder} used to set the parameters of each row.
+     * @throws IllegalArgumentException If {@code insertClause} is blank, {@code rowBinder}
+     *                                  is {@code null}, or {@code parameterCountPerRow}
+     *                                  or {@code estimatedBytesPerRow} is not strictly positive.
+     */
+    public MySQLBatchInserter(String insertClause, int parameterCountPerRow, String endClause,
+            int estimatedBytesPerRow, RowBinder<T> rowBinder) throws IllegalArgumentException {
+        if (insertClause == null || insertClause.trim().isEmpty() || rowBinder == null ||
+                parameterCountPerRow <= 0 || parameterCountPerRow > MAX_PARAMETER_COUNT ||
+                estimatedBytesPerRow <= 0) {
+            throw log.throwing(new IllegalArgumentException("Incorrect parameters: "
+                    + insertClause + " - " + parameterCountPerRow + " - " + estimatedBytesPerRow
+                    + " - " + rowBinder));
+        }
+        this.insertClause = insertClause.trim();
+        this.parameterCountPerRow = parameterCountPerRow;
+        this.endClause = endClause == null? "": endClause.trim();
+        this.rowPlaceholders = "(" + BgeePreparedStatement.generateParameterizedQueryString(
+                parameterCountPerRow) + ")";
+        this.estimatedBytesPerRow = estimatedBytesPerRow + this.rowPlaceholders.length() + 2;
+        this.rowBinder = rowBinder;
+    }
+
+    /**
+     * Insert {@code elements} using the {@code BgeeConnection} and the insert parameters
+     * of {@code manager}. If several statements are needed, they are not executed
+     * in a transaction, it is the responsibility of the caller to start one if needed.
+     *
+     * @param manager   The {@code MySQLDAOManager} to obtain the {@code BgeeConnection}
+     *                  and the insert parameters from.
+     * @param elements  A {@code Collection} of {@code T}s to insert.
+     * @return          An {@code int} that is the number of rows inserted, as reported
+     *                  by the driver.
+     * @throws DAOException If a {@code SQLException} occurred.
+     */
+    public int insert(MySQLDAOManager manager, Collection<? extends T> elements)
+            throws DAOException {
+        log.entry(manager, elements);
+        if (elements == null || elements.isEmpty()) {
+            return log.exit(0);
+        }
+        int rowsPerStatement = this.getRowCountPerStatement(manager.getInsertMaxRowCount(),
+                manager.getInsertMaxBytes());
+        long startTime = System.nanoTime();
+        int insertedCount = 0;
+        int statementCount = 0;
+        try {
+            BgeeConnection con = manager.getConnection();
+            if (manager.isInsertUsingBatch()) {
+                try (BgeePreparedStatement stmt = con.prepareStatement(this.generateSql(1))) {
+                    int rowCount = 0;
+                    for (T element: elements) {
+                        this.bind(stmt, 1, element);
+                        stmt.addBatch();
+                        rowCount++;
+                        if (rowCount % rowsPerStatement == 0 || rowCount == elements.size()) {
+                            insertedCount += sumUpdateCounts(stmt.executeBatch());
+                            statementCount++;
+                        }
+                    }
+                }
+            } else {
+                Iterator<? extends T> iterator = elements.iterator();
+                int fullChunkCount = elements.size() / rowsPerStatement;
+                if (fullChunkCount > 0) {
+                    try (BgeePreparedStatement stmt = con.prepareStatement(
+                            this.generateSql(rowsPerStatement))) {
+                        for (int i = 0; i < fullChunkCount; i++) {
+                            insertedCount += this.executeChunk(stmt, iterator, rowsPerStatement);
+                            statementCount++;
+                        }
+                    }
+                }
+                int remainingCount = elements.size() % rowsPerStatement;
+                if (remainingCount > 0) {
+                    try (BgeePreparedStatement stmt = con.prepareStatement(
+                            this.generateSql(remainingCount))) {
+                        insertedCount += this.executeChunk(stmt, iterator, remainingCount);
+                        statementCount++;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw log.throwing(new DAOException(e));
+        }
+        long duration = System.nanoTime() - startTime;
+        log.debug("{} rows inserted with {} {} of at most {} rows in {} ms ({} rows per second): {}",
+                insertedCount, statementCount, manager.isInsertUsingBatch()? "batches": "statements",
+                rowsPerStatement, TimeUnit.NANOSECONDS.toMillis(duration),
+                elements.size() * TimeUnit.SECONDS.toNanos(1) / Math.max(1, duration),
+                this.insertClause);
+        return log.exit(insertedCount);
+    }
+
+    /**
+     * Set the parameters of the next {@code rowCount} elements of {@code iterator}
+     * to {@code stmt}, and execute it.
+     *
+     * @param stmt      The {@code BgeePreparedStatement} to set the parameters to,
+     *                  with {@code rowCount} rows.
+     * @param iterator  An {@code Iterator} over the elements to insert.
+     * @param rowCount  An {@code int} that is the number of elements to insert.
+     * @return          An {@code int} that is the number of rows inserted.
+     * @throws SQLException If an error occurred while setting parameters or executing
+     *                      the statement.
+     */
+    private int executeChunk(BgeePreparedStatement stmt, Iterator<? extends T> iterator,
+            int rowCount) throws SQLException {
+        log.entry(stmt, iterator, rowCount);
+        int paramIndex = 1;
+        for (int i = 0; i < rowCount; i++) {
+            paramIndex = this.bind(stmt, paramIndex, iterator.next());
+        }
+        return log.exit(stmt.executeUpdate());
+    }
+
+    /**
+     * Delegates to the {@code RowBinder}, and checks the returned parameter index.
+     *
+     * @param stmt          See {@link RowBinder#bind(BgeePreparedStatement, int, Object)}.
+     * @param paramIndex    See {@link RowBinder#bind(BgeePreparedStatement, int, Object)}.
+     * @param element       See {@link RowBinder#bind(BgeePreparedStatement, int, Object)}.
+     * @return              See {@link RowBinder#bind(BgeePreparedStatement, int, Object)}.
+     * @throws SQLException See {@link RowBinder#bind(BgeePreparedStatement, int, Object)}.
+     * @throws IllegalStateException    If the {@code RowBinder} did not set the expected
+     *                                  number of parameters.
+     */
+    private int bind(BgeePreparedStatement stmt, int paramIndex, T element)
+            throws SQLException, IllegalStateException {
+        int nextIndex = this.rowBinder.bind(stmt, paramIndex, element);
+        if (nextIndex != paramIndex + this.parameterCountPerRow) {
+            throw log.throwing(new IllegalStateException("Incorrect number of parameters set: "
+                    + (nextIndex - paramIndex) + " - expected: " + this.parameterCountPerRow));
+        }
+        return nextIndex;
+    }
+
+    /**
+     * @param updateCounts  An {@code int} array returned by {@code executeBatch}.
+     * @return              An {@code int} that is the number of rows inserted. When the driver
+     *                      does not know the number of rows inserted by a statement
+     *                      ({@code Statement.SUCCESS_NO_INFO}, for instance when rewriting
+     *                      batched statements), the statement is counted as one row inserted.
+     */
+    private static int sumUpdateCounts(int[] updateCounts) {
+        log.entry(updateCounts);
+        int sum = 0;
+        for (int updateCount: updateCounts) {
+            if (updateCount == Statement.SUCCESS_NO_INFO) {
+                sum++;
+            } else if (updateCount > 0) {
+                sum += updateCount;
+            }
+        }
+        return log.exit(sum);
+    }
+
+    /**
+     * Computes the number of rows inserted per statement, or per batch.
+     *
+     * @param maxRowCount   An {@code int} that is the maximum number of rows per statement.
+     * @param maxBytes      A {@code long} that is the maximum estimated size in bytes
+     *                      of a statement.
+     * @return              An {@code int} that is the number of rows inserted per statement,
+     *                      at least 1.
+     */
+    int getRowCountPerStatement(int maxRowCount, long maxBytes) {
+        log.entry(maxRowCount, maxBytes);
+        long byBytes = (maxBytes - this.insertClause.length() - this.endClause.length())
+                / this.estimatedBytesPerRow;
+        long rowCount = Math.min(Math.min(maxRowCount, byBytes),
+                MAX_PARAMETER_COUNT / this.parameterCountPerRow);
+        return log.exit((int) Math.max(1, rowCount));
+    }
+
+    /**
+     * @param rowCount  An {@code int} that is the number of rows inserted by the statement.
+     * @return          A {@code String} that is the SQL statement to insert {@code rowCount} rows.
+     */
+    String generateSql(int rowCount) {
+        log.entry(rowCount);
+        StringBuilder sql = new StringBuilder(this.insertClause.length() + this.endClause.length()
+                + rowCount * (this.rowPlaceholders.length() + 2) + 10);
+        sql.append(this.insertClause).append(" VALUES ");
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(this.rowPlaceholders);
+        }
+        if (!this.endClause.isEmpty()) {
+            sql.append(" ").append(this.endClause);
+        }
+        return log.exit(sql.toString());
+    }
+
+    /**
+     * @return  A {@code String} that is the beginning of the insert statements, before
+     *          the {@code VALUES} keyword, for instance {@code INSERT INTO table (col1, col2)}.
+     */
+    public String getInsertClause() {
+        return this.insertClause;
+    }
+    /**
+     * @return  An {@code int} that is the number of parameters set for each row.
+     */
+    public int getParameterCountPerRow() {
+        return this.parameterCountPerRow;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("MySQLBatchInserter [insertClause=").append(insertClause)
+               .append(", parameterCountPerRow=").append(parameterCountPerRow)
+               .append(", endClause=").append(endClause)
+               .append(", estimatedBytesPerRow=").append(estimatedBytesPerRow).append("]");
+        return builder.toString();
+    }
+}
@@ -132,7 +132,7 @@ public class BgeeConnection implements AutoCloseable {
     public BgeePreparedStatement prepareStatement(String sql) throws SQLException {
         log.entry(sql);
         BgeePreparedStatement bgeeStmt = new BgeePreparedStatement(this, 
-                this.getRealConnection().prepareStatement(sql));
+                this.getRealConnection().prepareStatement(sql), sql);
         this.preparedStatements.add(bgeeStmt);
         return log.exit(bgeeStmt);
     }
@@ -7,6 +7,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -41,10 +42,13 @@ import org.bgee.model.dao.api.exception.QueryInterruptedException;
  * <p>
  * You can of course use {@code AutoCloseable} feature in methods that do not return 
  * a pointer to the results (for instance, an {@code INSERT} method). 
+ * <p>
+ * Each execution is profiled (execution time, time to first row, rows iterated, 
+ * cancellation), and reported to the {@link StatementProfiler}. 
  * 
  * @author Frederic Bastian
  * @author Valentine Rech de Laval
- * @version Bgee 13 Sept. 2015
+ * @version Bgee 14 Jan. 2020
  * @see MySQLDAOResultSet
  * @since Bgee 13
  */
@@ -100,6 +104,54 @@ public class BgeePreparedStatement implements AutoCloseable {
         T get() throws SQLException;
     }
 
+    /**
+     * A listener notified of the queries executed by {@code BgeePreparedStatement}s
+     * in the thread it was registered in (see {@link #setThreadQueryListener(QueryListener)}).
+     * It allows, for instance, to attribute the time spent executing queries
+     * to the request being processed by a thread.
+     *
+     * @version Bgee 14, Jan. 2020
+     * @since   Bgee 14, Jan. 2020
+     */
+    @FunctionalInterface
+    public static interface QueryListener {
+        /**
+         * Called after the execution of a query, even if the execution failed.
+         *
+         * @param sql               A {@code String} that is the SQL statement executed,
+         *                          without the parameter values. Can be {@code null}
+         *                          if unknown.
+         * @param durationInNanos   A {@code long} that is the time spent executing the query,
+         *                          in nanoseconds. For {@code SELECT} queries, the time
+         *                          to iterate the results is not included.
+         */
+        public void queryExecuted(String sql, long durationInNanos);
+    }
+    /**
+     * A {@code ThreadLocal} storing the {@code QueryListener} registered in each thread.
+     */
+    private final static ThreadLocal<QueryListener> THREAD_QUERY_LISTENER = new ThreadLocal<>();
+
+    /**
+     * Register {@code listener} to be notified of all queries executed in the current thread.
+     * Any listener previously registered in the current thread is replaced.
+     * The listener must be removed by calling {@link #removeThreadQueryListener()}
+     * when no longer needed, notably in application servers using pools of threads.
+     *
+     * @param listener  The {@code QueryListener} to register for the current thread.
+     */
+    public static void setThreadQueryListener(QueryListener listener) {
+        THREAD_QUERY_LISTENER.set(listener);
+    }
+    /**
+     * Remove the {@code QueryListener} registered in the current thread, if any.
+     *
+     * @see #setThreadQueryListener(QueryListener)
+     */
+    public static void removeThreadQueryListener() {
+        THREAD_QUERY_LISTENER.remove();
+    }
+
     /**
      * Returns a {@code String} to be used in a parameterized query with the number of parameters 
      * equals to the given {@code size}. For instance, if {@code size} is equal to {@code 3}, 
@@ -137,6 +189,16 @@ public class BgeePreparedStatement implements AutoCloseable {
      * The real {@code java.sql.PreparedStatement} that this class wraps.
      */
     private final PreparedStatement realPreparedStatement;
+    /**
+     * A {@code String} that is the SQL statement used to create {@link #realPreparedStatement},
+     * {@code null} if unknown.
+     */
+    private final String sql;
+    /**
+     * A {@code String} that is the shape of {@link #sql} (see
+     * {@link StatementProfiler#getSqlShape(String)}), computed once for profiling purpose.
+     */
+    private final String sqlShape;
     /**
      * An {@code boolean} set to {@code true} if the method {@code cancel} 
      * was called. A {@code BgeePreparedStatement} should then launch a 
@@ -151,6 +213,41 @@ public class BgeePreparedStatement implements AutoCloseable {
      * on this {@code BgeePreparedStatement}.
      */
     private boolean executed;
+    /**
+     * An {@code int} that is the number of parameters to bind to execute {@link #sql},
+     * for profiling purpose.
+     */
+    private final int parameterCount;
+    /**
+     * A {@code boolean} that is {@code true} if the profile of the last execution
+     * was not yet reported to the {@link StatementProfiler}.
+     */
+    private boolean profilePending;
+    /**
+     * A {@code boolean} that is {@code true} if the last execution is still running,
+     * so that its execution time is not yet known.
+     */
+    private boolean profileExecuting;
+    /**
+     * A {@code long} that is the value of {@code System.nanoTime()} when the last execution
+     * started, for profiling purpose.
+     */
+    private long profileStartNanos;
+    /**
+     * A {@code long} that is the duration in nanoseconds of the last execution,
+     * for profiling purpose.
+     */
+    private long profileExecutionNanos;
+    /**
+     * A {@code long} that is the time in nanoseconds between the start of the last execution
+     * and the retrieval of its first row, negative if no row was retrieved.
+     */
+    private long profileFirstRowNanos;
+    /**
+     * A {@code long} that is the number of rows iterated following the last execution,
+     * or the number of rows affected for updates.
+     */
+    private long profileRowCount;
     /**
      * Default constructor private, should not be used. 
      */
@@ -174,8 +271,31 @@ public class BgeePreparedStatement implements AutoCloseable {
      */
     BgeePreparedStatement(BgeeConnection connection, 
             PreparedStatement realPreparedStatement) {
+        this(connection, realPreparedStatement, null);
+    }  
+    /**
+     * Constructor used to provide the real {@code java.sql.PreparedStatement} 
+     * that this class wraps, the {@code BgeeConnection} used to obtain 
+     * this {@code BgeePreparedStatement}, for notification purpose, and the SQL statement
+     * used to create the {@code java.sql.PreparedStatement}, for monitoring purpose.
+     * <p>
+     * Constructor package-private, so that only a {@link BgeeConnection} can provide 
+     * a {@code BgeePreparedStatement}.
+     * 
+     * @param connection                The {@code BgeeConnection} that was used 
+     *                                  to obtain this {@code BgeePreparedStatement}.
+     * @param realPreparedStatement     The {@code java.sql.PreparedStatement} 
+     *                                  that this class wraps
+     * @param sql                       A {@code String} that is the SQL statement used
+     *                                  to create {@code realPreparedStatement}.
+     */
+    BgeePreparedStatement(BgeeConnection connection, 
+            PreparedStatement realPreparedStatement, String sql) {
         this.bgeeConnection = connection;
         this.realPreparedStatement = realPreparedStatement;
+        this.sql = sql;
+        this.sqlShape = StatementProfiler.getSqlShape(sql);
+        this.parameterCount = StatementProfiler.countParameters(sql);
         this.setCanceled(false);
     }  
     
@@ -636,11 +756,47 @@ public class BgeePreparedStatement implements AutoCloseable {
      */
     public int executeUpdate() throws QueryInterruptedException, SQLException {
         log.entry();
-        return log.exit(this.execute(this.getRealPreparedStatement()::executeUpdate));
+        int updateCount = this.execute(this.getRealPreparedStatement()::executeUpdate);
+        this.profileRowCount = updateCount;
+        this.recordProfile();
+        return log.exit(updateCount);
     }
-    
+
+    /**
+     * Delegated to {@link java.sql.PreparedStatement#addBatch()}.
+     *
+     * @throws SQLException See {@link PreparedStatement#addBatch()}.
+     * @see #executeBatch()
+     */
+    public void addBatch() throws SQLException {
+        log.entry();
+        try {
+            this.getRealPreparedStatement().addBatch();
+        } catch (SQLException e) {
+            throw log.throwing(e);
+        }
+        log.exit();
+    }
+
+    /**
+     * See {@link PreparedStatement#executeBatch()}. The batch is executed as a single
+     * execution, for profiling purpose.
+     *
+     * @return              See {@link PreparedStatement#executeBatch()}.
+     * @throws QueryInterruptedException    If the query was intentionally interrupted.
+     * @throws SQLException See {@link PreparedStatement#executeBatch()}.
+     * @see #addBatch()
+     */
+    public int[] executeBatch() throws QueryInterruptedException, SQLException {
+        log.entry();
+        int[] updateCounts = this.execute(this.getRealPreparedStatement()::executeBatch);
+        this.profileRowCount = Arrays.stream(updateCounts).filter(c -> c > 0).sum();
+        this.recordProfile();
+        return log.exit(updateCounts);
+    }
+
     /**
-     * Helper method to call either {@code executeQuery} or {@code executeUpdate} 
+     * Helper method to call either {@code executeQuery} or {@code executeUpdate}
      * on the {@code PreparedStatement} returned by {@link getRealPreparedStatement()}. 
      * This method notably manages query interruption requests. 
      * 
@@ -673,9 +829,20 @@ public class BgeePreparedStatement implements AutoCloseable {
         //another thread, to release the lock while the query is running. Without 
         //such a mechanism, the cancel method would not be able to acquire the lock 
         //before the end of the query...
+        //a same statement can be executed several times (see MySQLDAOResultSet),
+        //report the profile of the previous execution
+        this.recordProfile();
+        QueryListener listener = THREAD_QUERY_LISTENER.get();
+        long startTime = System.nanoTime();
+        this.startProfile(startTime);
         try {
             return log.exit(executeFunction.get());
         } finally {
+            long duration = System.nanoTime() - startTime;
+            if (listener != null) {
+                listener.queryExecuted(this.getSql(), duration);
+            }
+            this.endProfileExecution(duration);
             this.setExecuted(true);
             //check that we did not return from the executeQuery method because of 
             //a cancellation
@@ -685,6 +852,63 @@ public class BgeePreparedStatement implements AutoCloseable {
         }
     }
 
+    /**
+     * Start the profile of an execution, to be reported to the {@link StatementProfiler}
+     * by {@link #recordProfile()}.
+     *
+     * @param startNanos        A {@code long} that is the value of {@code System.nanoTime()}
+     *                          when the execution started.
+     */
+    private synchronized void startProfile(long startNanos) {
+        this.profileStartNanos = startNanos;
+        this.profileExecutionNanos = 0;
+        this.profileFirstRowNanos = -1;
+        this.profileRowCount = 0;
+        this.profileExecuting = true;
+        this.profilePending = true;
+    }
+    /**
+     * Store the execution time in the profile of the last execution, when it returns.
+     *
+     * @param executionNanos    A {@code long} that is the duration of the execution,
+     *                          in nanoseconds.
+     */
+    private synchronized void endProfileExecution(long executionNanos) {
+        this.profileExecutionNanos = executionNanos;
+        this.profileExecuting = false;
+    }
+    /**
+     * Notifies this {@code BgeePreparedStatement} that a row of the results
+     * of its last execution was iterated, for profiling purpose. This method is
+     * package-private, because only a {@link MySQLDAOResultSet} is supposed
+     * to perform this call.
+     */
+    void rowIterated() {
+        //not synchronized, this is called for each row: a profile reported concurrently
+        //by a thread canceling this statement might miss the last rows, which is acceptable.
+        if (this.profileRowCount == 0) {
+            this.profileFirstRowNanos = System.nanoTime() - this.profileStartNanos;
+        }
+        this.profileRowCount++;
+    }
+    /**
+     * Reports the profile of the last execution to the {@link StatementProfiler},
+     * if not already done. Synchronized as it is called by a thread canceling
+     * this statement (see {@link #cancel()}): if the execution is still running,
+     * its execution time is the time elapsed until the cancellation.
+     */
+    private synchronized void recordProfile() {
+        if (!this.profilePending) {
+            return;
+        }
+        this.profilePending = false;
+        long executionNanos = this.profileExecuting?
+                System.nanoTime() - this.profileStartNanos: this.profileExecutionNanos;
+        StatementProfiler.getInstance().record(this.getSql(), this.sqlShape, this.parameterCount,
+                executionNanos, this.profileFirstRowNanos, this.profileRowCount,
+                this.isCanceled());
+    }
+
     /**
      * Call {@code clearParameters} method on the real {@code PreparedStatement} 
      * that this class wraps.
@@ -705,7 +929,8 @@ public class BgeePreparedStatement implements AutoCloseable {
     /**
      * Close the real {@code PreparedStatement} that this class wraps, 
      * and notify of the closing the {@code BgeeConnection} used to obtain 
-     * this {@code BgeePreparedStatement}.
+     * this {@code BgeePreparedStatement}. The profile of the last execution 
+     * is reported to the {@link StatementProfiler}.
      * 
      * @throws SQLException     If the real {@code PreparedStatement} that this class 
      *                          wraps throws a {@code SQLException} when closing.  
@@ -713,6 +938,7 @@ public class BgeePreparedStatement implements AutoCloseable {
     @Override
     public void close() throws SQLException {
         log.entry();
+        this.recordProfile();
         try {
             if (!this.getRealPreparedStatement().isClosed()) {
                 this.getRealPreparedStatement().close();
@@ -746,6 +972,8 @@ public class BgeePreparedStatement implements AutoCloseable {
         //we can do, we can not simply use a lock in the other thread, otherwise 
         //we would need to wait for the query to end before entering this block...
         this.getRealPreparedStatement().cancel();
+        //report the canceled execution to the StatementProfiler
+        this.recordProfile();
         this.close();
     }
     
@@ -758,6 +986,14 @@ public class BgeePreparedStatement implements AutoCloseable {
     public PreparedStatement getRealPreparedStatement() {
         return realPreparedStatement;
     }
+    /**
+     * @return  A {@code String} that is the SQL statement used to create
+     *          the real {@code java.sql.PreparedStatement} that this class wraps,
+     *          {@code null} if unknown.
+     */
+    public String getSql() {
+        return sql;
+    }
     /**
      * @return {@code BgeeConnection} that was used  to obtain this 
      * {@code BgeePreparedStatement}.    
@@ -34,6 +34,7 @@ import org.bgee.model.dao.api.file.SpeciesDataGroupDAO;
 import org.bgee.model.dao.api.gene.GeneNameSynonymDAO;
 import org.bgee.model.dao.api.keyword.KeywordDAO;
 import org.bgee.model.dao.api.source.SourceToSpeciesDAO;
+import org.bgee.model.dao.mysql.MySQLBatchInserter;
 import org.bgee.model.dao.mysql.anatdev.MySQLAnatEntityDAO;
 import org.bgee.model.dao.mysql.anatdev.MySQLStageDAO;
 import org.bgee.model.dao.mysql.anatdev.MySQLTaxonConstraintDAO;
@@ -224,6 +225,59 @@ public class MySQLDAOManager extends DAOManager {
      * @see #EXPR_PROPAGATION_GENE_COUNT_KEY
      */
     public final static int DEFAULT_EXPR_PROPAGATION_GENE_COUNT = 1000;
+    /**
+     * A {@code String} that is the key to retrieve the threshold in milliseconds 
+     * above which statements are logged to the slow-query log, from the {@code Properties} 
+     * provided to the method {@code setParameters}. If not provided, 
+     * {@link StatementProfiler#DEFAULT_SLOW_QUERY_THRESHOLD_IN_MS} is used. 
+     * As the {@link StatementProfiler} is shared by all threads, the last value set 
+     * is used for all {@code MySQLDAOManager}s.
+     * 
+     * @see StatementProfiler#getSlowQueryThresholdInMs()
+     */
+    public final static String SLOW_QUERY_THRESHOLD_KEY = 
+            "bgee.dao.jdbc.slowQueryThreshold";
+    /**
+     * A {@code String} that is the key to retrieve the maximum number of rows inserted
+     * by a single statement, or by a single batch, from the {@code Properties} provided
+     * to the method {@code setParameters}. See {@link #getInsertMaxRowCount()} for more details.
+     *
+     * @see #getInsertMaxRowCount()
+     * @see MySQLBatchInserter#DEFAULT_MAX_ROW_COUNT
+     */
+    public final static String INSERT_MAX_ROW_COUNT_KEY = 
+            "bgee.dao.jdbc.insert.maxRowCount";
+    /**
+     * A {@code String} that is the key to retrieve the maximum estimated size in bytes
+     * of a single insert statement, from the {@code Properties} provided to the method
+     * {@code setParameters}. See {@link #getInsertMaxBytes()} for more details.
+     *
+     * @see #getInsertMaxBytes()
+     * @see MySQLBatchInserter#DEFAULT_MAX_BYTES
+     */
+    public final static String INSERT_MAX_BYTES_KEY = 
+            "bgee.dao.jdbc.insert.maxBytes";
+    /**
+     * A {@code String} that is the key to retrieve, from the {@code Properties} provided
+     * to the method {@code setParameters}, whether rows should be inserted using JDBC batches
+     * rather than multi-row statements. See {@link #isInsertUsingBatch()} for more details.
+     *
+     * @see #isInsertUsingBatch()
+     */
+    public final static String INSERT_USE_BATCH_KEY = 
+            "bgee.dao.jdbc.insert.useBatch";
+    /**
+     * @see #getInsertMaxRowCount()
+     */
+    private int insertMaxRowCount;
+    /**
+     * @see #getInsertMaxBytes()
+     */
+    private long insertMaxBytes;
+    /**
+     * @see #isInsertUsingBatch()
+     */
+    private boolean insertUsingBatch;
     
     
     /**
@@ -248,6 +302,8 @@ public class MySQLDAOManager extends DAOManager {
         this.connections = new HashMap<String, BgeeConnection>();
         this.jdbcDriverNames = new HashSet<String>();
         this.setExprPropagationGeneCount(DEFAULT_EXPR_PROPAGATION_GENE_COUNT);
+        this.setInsertParameters(MySQLBatchInserter.DEFAULT_MAX_ROW_COUNT,
+                MySQLBatchInserter.DEFAULT_MAX_BYTES, false);
     }
     
     //******************************************
@@ -768,6 +824,63 @@ public class MySQLDAOManager extends DAOManager {
     private void setExprPropagationGeneCount(int exprPropagationGeneCount) {
         this.exprPropagationGeneCount = exprPropagationGeneCount;
     }
+
+    /**
+     * Gets the maximum number of rows inserted by a single statement, or by a single batch
+     * if {@link #isInsertUsingBatch()} returns {@code true}, by the {@link MySQLBatchInserter}s
+     * used by the {@code DAO}s of this {@code MySQLDAOManager}. Collections of rows
+     * are inserted by chunks of at most this size.
+     * <p>
+     * See {@link MySQLBatchInserter#DEFAULT_MAX_ROW_COUNT} for default value.
+     *
+     * @return  An {@code int} that is the maximum number of rows inserted at once.
+     * @see #INSERT_MAX_ROW_COUNT_KEY
+     */
+    public int getInsertMaxRowCount() {
+        return this.insertMaxRowCount;
+    }
+    /**
+     * Gets the maximum estimated size in bytes of the statements sent to insert rows
+     * by the {@link MySQLBatchInserter}s used by the {@code DAO}s of this {@code MySQLDAOManager}.
+     * This value should be lower than the {@code max_allowed_packet} of the server.
+     * <p>
+     * See {@link MySQLBatchInserter#DEFAULT_MAX_BYTES} for default value.
+     *
+     * @return  A {@code long} that is the maximum estimated size in bytes of an insert statement.
+     * @see #INSERT_MAX_BYTES_KEY
+     */
+    public long getInsertMaxBytes() {
+        return this.insertMaxBytes;
+    }
+    /**
+     * Returns whether the {@link MySQLBatchInserter}s used by the {@code DAO}s
+     * of this {@code MySQLDAOManager} should insert rows using JDBC batches of single-row
+     * statements ({@code addBatch}/{@code executeBatch}), rather than multi-row
+     * {@code INSERT} statements. It is useful only if the JDBC driver rewrites
+     * batched statements into multi-row statements, for instance with the option
+     * {@code rewriteBatchedStatements=true} of MySQL Connector/J in the JDBC URL.
+     * <p>
+     * Default value is {@code false}.
+     *
+     * @return  A {@code boolean} that is {@code true} if rows should be inserted
+     *          using JDBC batches.
+     * @see #INSERT_USE_BATCH_KEY
+     */
+    public boolean isInsertUsingBatch() {
+        return this.insertUsingBatch;
+    }
+    /**
+     * Sets the parameters used by the {@link MySQLBatchInserter}s.
+     *
+     * @param maxRowCount   See {@link #getInsertMaxRowCount()}.
+     * @param maxBytes      See {@link #getInsertMaxBytes()}.
+     * @param useBatch      See {@link #isInsertUsingBatch()}.
+     */
+    private void setInsertParameters(int maxRowCount, long maxBytes, boolean useBatch) {
+        this.insertMaxRowCount = maxRowCount;
+        this.insertMaxBytes = maxBytes;
+        this.insertUsingBatch = useBatch;
+    }
     
     //******************************************
     // IMPLEMENT DAOManager ABSTRACT METHODS
@@ -870,6 +983,39 @@ public class MySQLDAOManager extends DAOManager {
             }
         }
 
+        String slowQueryThresholdStr = props.getProperty(SLOW_QUERY_THRESHOLD_KEY);
+        if (slowQueryThresholdStr != null) {
+            try {
+                StatementProfiler.getInstance().setSlowQueryThresholdInMs(
+                        Long.parseLong(slowQueryThresholdStr.trim()));
+            } catch (NumberFormatException e) {
+                throw log.throwing(new IllegalArgumentException("Incorrect format " +
+                        "when specifying slow query threshold, " +
+                        "parameter: " + SLOW_QUERY_THRESHOLD_KEY, e));
+            }
+        }
+
+        String insertMaxRowCountStr = props.getProperty(INSERT_MAX_ROW_COUNT_KEY);
+        String insertMaxBytesStr = props.getProperty(INSERT_MAX_BYTES_KEY);
+        try {
+            int insertMaxRowCount = insertMaxRowCountStr == null?
+                    MySQLBatchInserter.DEFAULT_MAX_ROW_COUNT:
+                    Integer.parseInt(insertMaxRowCountStr.trim());
+            long insertMaxBytes = insertMaxBytesStr == null?
+                    MySQLBatchInserter.DEFAULT_MAX_BYTES: Long.parseLong(insertMaxBytesStr.trim());
+            if (insertMaxRowCount <= 0 || insertMaxBytes <= 0) {
+                throw log.throwing(new IllegalArgumentException("Insert parameters must be "
+                        + "strictly positive, parameters: " + INSERT_MAX_ROW_COUNT_KEY + ", "
+                        + INSERT_MAX_BYTES_KEY));
+            }
+            this.setInsertParameters(insertMaxRowCount, insertMaxBytes,
+                    Boolean.parseBoolean(props.getProperty(INSERT_USE_BATCH_KEY)));
+        } catch (NumberFormatException e) {
+            throw log.throwing(new IllegalArgumentException("Incorrect format " +
+                    "when specifying insert parameters, " +
+                    "parameters: " + INSERT_MAX_ROW_COUNT_KEY + ", " + INSERT_MAX_BYTES_KEY, e));
+        }
+
 //      log.trace("New parameters set: DataSource name: {} - JDBC URL: {} - Driver names: {} - User: {} - Password: {}", 
 //              this.getDataSourceResourceName(), this.getJdbcUrl(), 
 //              this.getJdbcDriverNames(), this.getUser(), this.getPassword());
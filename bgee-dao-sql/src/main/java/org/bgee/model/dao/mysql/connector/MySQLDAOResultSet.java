@@ -540,6 +540,7 @@ public abstract class MySQLDAOResultSet<T extends TransferObject> implements DAO
             //we count this iteration even if it corresponds to a duplicated TO, 
             //as we need to know whether the database can potentially have other results.
             this.currentResultSetIterationCount++;
+            this.currentStatement.rowIterated();
             //check whether we need to filter duplicated TOs
             if (this.isFilterDuplicates()) {
                 T to = this.getTO();
@@ -0,0 +1,387 @@
+package org.bgee.model.dao.mysql.connector;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Aggregates the profiles of the statements executed through {@link BgeePreparedStatement}s,
+ * per SQL shape (see {@link #getSqlShape(String)}), and logs the slow statements
+ * to a dedicated {@code Logger} (see {@link #SLOW_QUERY_LOGGER_NAME}).
+ * <p>
+ * {@code BgeePreparedStatement}s report one profile per execution: execution time,
+ * time to retrieve the first row, number of rows iterated by the {@link MySQLDAOResultSet},
+ * and whether the statement was canceled (for instance, by a {@code TaskManager}
+ * through a call to {@code DAOManager.kill}). A single instance is shared
+ * by all threads, see {@link #getInstance()}. This class is thread-safe.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @see BgeePreparedStatement
+ * @since   Bgee 14, Jan. 2020
+ */
+public class StatementProfiler {
+    private final static Logger log = LogManager.getLogger(StatementProfiler.class.getName());
+
+    /**
+     * A {@code String} that is the name of the {@code Logger} statements slower than
+     * the threshold are logged to (see {@link #getSlowQueryThresholdInMs()}),
+     * so that they can be redirected to a dedicated file in the log4j configuration.
+     */
+    public final static String SLOW_QUERY_LOGGER_NAME = "org.bgee.model.dao.mysql.SlowQueryLog";
+    /**
+     * The {@code Logger} statements slower than the threshold are logged to.
+     */
+    private final static Logger slowQueryLog = LogManager.getLogger(SLOW_QUERY_LOGGER_NAME);
+    /**
+     * An {@code int} that is the maximum number of distinct SQL shapes tracked.
+     * Statements with a new shape once this limit is reached are aggregated
+     * under the shape {@link #OTHER_SHAPE}, so that queries generated with
+     * unexpected literals cannot exhaust the memory.
+     */
+    public final static int MAX_SHAPE_COUNT = 1000;
+    /**
+     * A {@code String} that is the shape statements are aggregated under
+     * when {@link #MAX_SHAPE_COUNT} is reached.
+     */
+    public final static String OTHER_SHAPE = "[other]";
+    /**
+     * A {@code long} that is the default threshold in milliseconds, see
+     * {@link #getSlowQueryThresholdInMs()}.
+     */
+    public final static long DEFAULT_SLOW_QUERY_THRESHOLD_IN_MS = 1000;
+
+    private final static Pattern WHITESPACES = Pattern.compile("\\s+");
+    private final static Pattern PARAMETER_LIST = Pattern.compile("\\?(?: ?, ?\\?)+");
+    private final static Pattern TUPLE_LIST = Pattern.compile(
+            "(\\( ?\\?\\+? ?\\))(?: ?, ?\\( ?\\?\\+? ?\\))+");
+
+    /**
+     * The {@code StatementProfiler} shared by all threads.
+     */
+    private final static StatementProfiler INSTANCE = new StatementProfiler();
+
+    /**
+     * @return  The {@code StatementProfiler} shared by all threads,
+     *          that {@code BgeePreparedStatement}s report to.
+     */
+    public static StatementProfiler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Normalizes {@code sql} so that statements differing only by the number
+     * of parameters in a list (for instance, {@code IN (?, ?, ?)}, or the tuples
+     * of a multiple-rows {@code INSERT}) share the same shape: runs of whitespaces
+     * are replaced by a single space, lists of parameters by {@code ?+},
+     * and lists of tuples by the first tuple followed by {@code +}.
+     *
+     * @param sql   A {@code String} that is the SQL statement to normalize.
+     * @return      A {@code String} that is the shape of {@code sql}. {@code null}
+     *              if {@code sql} is {@code null}.
+     */
+    public static String getSqlShape(String sql) {
+        log.entry(sql);
+        if (sql == null) {
+            return log.exit(null);
+        }
+        String shape = WHITESPACES.matcher(sql.trim()).replaceAll(" ");
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("?+");
+        shape = TUPLE_LIST.matcher(shape).replaceAll("$1+");
+        return log.exit(shape);
+    }
+    /**
+     * Counts the parameter markers in {@code sql}, ignoring question marks
+     * in quoted literals or identifiers.
+     *
+     * @param sql   A {@code String} that is the SQL statement to examine.
+     * @return      An {@code int} that is the number of parameters to bind
+     *              to execute {@code sql}. 0 if {@code sql} is {@code null}.
+     */
+    public static int countParameters(String sql) {
+        log.entry(sql);
+        if (sql == null) {
+            return log.exit(0);
+        }
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '?') {
+                count++;
+            }
+        }
+        return log.exit(count);
+    }
+
+    /**
+     * Statistics aggregated for the statements sharing a same SQL shape.
+     *
+     * @version Bgee 14, Jan. 2020
+     * @since   Bgee 14, Jan. 2020
+     */
+    public static class ShapeStatistics {
+        private final String shape;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalExecutionNanos = new LongAdder();
+        private final LongAccumulator maxExecutionNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder totalFirstRowNanos = new LongAdder();
+        private final LongAdder firstRowCount = new LongAdder();
+        private final LongAdder rowCount = new LongAdder();
+        private final LongAccumulator maxParameterCount = new LongAccumulator(Math::max, 0);
+        private final LongAdder canceledCount = new LongAdder();
+        private final LongAdder slowCount = new LongAdder();
+
+        private ShapeStatistics(String shape) {
+            this.shape = shape;
+        }
+
+        private void record(int parameterCount, long executionNanos, long firstRowNanos,
+                long rows, boolean canceled, boolean slow) {
+            this.count.increment();
+            this.totalExecutionNanos.add(executionNanos);
+            this.maxExecutionNanos.accumulate(executionNanos);
+            if (firstRowNanos >= 0) {
+                this.totalFirstRowNanos.add(firstRowNanos);
+                this.firstRowCount.increment();
+            }
+            this.rowCount.add(rows);
+            this.maxParameterCount.accumulate(parameterCount);
+            if (canceled) {
+                this.canceledCount.increment();
+            }
+            if (slow) {
+                this.slowCount.increment();
+            }
+        }
+
+        /**
+         * @return  A {@code String} that is the SQL shape these statistics are about.
+         */
+        public String getShape() {
+            return this.shape;
+        }
+        /**
+         * @return  A {@code String} that is a short identifier of the SQL shape,
+         *          used to name metrics and to relate them to the slow-query log.
+         */
+        public String getId() {
+            return getShapeId(this.shape);
+        }
+        /**
+         * @return  A {@code long} that is the number of executions.
+         */
+        public long getCount() {
+            return this.count.sum();
+        }
+        /**
+         * @return  A {@code long} that is the total execution time, in milliseconds.
+         */
+        public long getTotalExecutionInMs() {
+            return TimeUnit.NANOSECONDS.toMillis(this.totalExecutionNanos.sum());
+        }
+        /**
+         * @return  A {@code long} that is the maximum execution time, in milliseconds.
+         */
+        public long getMaxExecutionInMs() {
+            return TimeUnit.NANOSECONDS.toMillis(this.maxExecutionNanos.get());
+        }
+        /**
+         * @return  A {@code long} that is the mean time between the start of an execution
+         *          and the retrieval of its first row, in milliseconds, over the executions
+         *          that returned at least one row. 0 if there was no such execution.
+         */
+        public long getMeanTimeToFirstRowInMs() {
+            long executions = this.firstRowCount.sum();
+            if (executions == 0) {
+                return 0;
+            }
+            return TimeUnit.NANOSECONDS.toMillis(this.totalFirstRowNanos.sum() / executions);
+        }
+        /**
+         * @return  A {@code long} that is the total number of rows iterated.
+         */
+        public long getRowCount() {
+            return this.rowCount.sum();
+        }
+        /**
+         * @return  A {@code long} that is the maximum number of parameters bound
+         *          to a statement with this shape.
+         */
+        public long getMaxParameterCount() {
+            return this.maxParameterCount.get();
+        }
+        /**
+         * @return  A {@code long} that is the number of executions canceled.
+         */
+        public long getCanceledCount() {
+            return this.canceledCount.sum();
+        }
+        /**
+         * @return  A {@code long} that is the number of executions slower than the threshold.
+         */
+        public long getSlowCount() {
+            return this.slowCount.sum();
+        }
+    }
+
+    /**
+     * @param shape A {@code String} that is a SQL shape.
+     * @return      A {@code String} that is a short identifier of {@code shape}.
+     */
+    private static String getShapeId(String shape) {
+        return String.format("%08x", shape.hashCode());
+    }
+
+    /**
+     * A {@code ConcurrentMap} where keys are {@code String}s that are SQL shapes,
+     * the associated value being the {@code ShapeStatistics} aggregated for them.
+     */
+    private final ConcurrentMap<String, ShapeStatistics> statistics;
+    /**
+     * @see #getSlowQueryThresholdInMs()
+     */
+    private volatile long slowQueryThresholdInMs;
+
+    /**
+     * Constructor package-private for test purpose, {@code BgeePreparedStatement}s
+     * use the shared instance returned by {@link #getInstance()}.
+     */
+    StatementProfiler() {
+        this.statistics = new ConcurrentHashMap<>();
+        this.slowQueryThresholdInMs = DEFAULT_SLOW_QUERY_THRESHOLD_IN_MS;
+    }
+
+    /**
+     * Record the profile of one execution of a statement.
+     *
+     * @param sql               A {@code String} that is the SQL statement executed.
+     * @param parameterCount    An {@code int} that is the number of parameters bound.
+     * @param executionNanos    A {@code long} that is the execution time, in nanoseconds.
+     * @param firstRowNanos     A {@code long} that is the time between the start
+     *                          of the execution and the retrieval of the first row,
+     *                          in nanoseconds. Negative if no row was retrieved.
+     * @param rows              A {@code long} that is the number of rows iterated.
+     * @param canceled          A {@code boolean} that is {@code true} if the statement
+     *                          was canceled.
+     */
+    void record(String sql, int parameterCount, long executionNanos, long firstRowNanos,
+            long rows, boolean canceled) {
+        log.entry(sql, parameterCount, executionNanos, firstRowNanos, rows, canceled);
+        this.record(sql, getSqlShape(sql), parameterCount, executionNanos, firstRowNanos,
+                rows, canceled);
+        log.exit();
+    }
+    /**
+     * Record the profile of one execution of a statement whose shape was already computed,
+     * see {@link #getSqlShape(String)}. As this method is called for each execution,
+     * it does not normalize the SQL, and does not log its entry and exit.
+     *
+     * @param sql               A {@code String} that is the SQL statement executed.
+     * @param sqlShape          A {@code String} that is the shape of {@code sql}.
+     * @param parameterCount    An {@code int} that is the number of parameters bound.
+     * @param executionNanos    A {@code long} that is the execution time, in nanoseconds.
+     * @param firstRowNanos     A {@code long} that is the time between the start
+     *                          of the execution and the retrieval of the first row,
+     *                          in nanoseconds. Negative if no row was retrieved.
+     * @param rows              A {@code long} that is the number of rows iterated.
+     * @param canceled          A {@code boolean} that is {@code true} if the statement
+     *                          was canceled.
+     */
+    void record(String sql, String sqlShape, int parameterCount, long executionNanos,
+            long firstRowNanos, long rows, boolean canceled) {
+        String shape = sqlShape;
+        if (shape == null) {
+            shape = OTHER_SHAPE;
+        }
+        ShapeStatistics shapeStats = this.statistics.get(shape);
+        if (shapeStats == null) {
+            if (this.statistics.size() >= MAX_SHAPE_COUNT) {
+                shape = OTHER_SHAPE;
+            }
+            shapeStats = this.statistics.computeIfAbsent(shape, ShapeStatistics::new);
+        }
+
+        long threshold = this.slowQueryThresholdInMs;
+        boolean slow = threshold >= 0 &&
+                TimeUnit.NANOSECONDS.toMillis(executionNanos) >= threshold;
+        shapeStats.record(parameterCount, executionNanos, firstRowNanos, rows, canceled, slow);
+        if (slow) {
+            slowQueryLog.warn("Slow query [{}] - execution: {} ms - first row: {} ms - "
+                    + "rows: {} - parameters: {} - canceled: {} - SQL: {}",
+                    getShapeId(shape), TimeUnit.NANOSECONDS.toMillis(executionNanos),
+                    firstRowNanos < 0? "-": TimeUnit.NANOSECONDS.toMillis(firstRowNanos),
+                    rows, parameterCount, canceled, sql);
+        }
+    }
+
+    /**
+     * @return  An unmodifiable {@code Map} where keys are {@code String}s that are SQL shapes,
+     *          the associated value being the {@code ShapeStatistics} aggregated for them,
+     *          ordered by descending total execution time.
+     */
+    public Map<String, ShapeStatistics> getStatistics() {
+        log.entry();
+        Map<String, ShapeStatistics> sortedStats = new LinkedHashMap<>();
+        this.statistics.values().stream()
+                .sorted((s1, s2) -> Long.compare(s2.totalExecutionNanos.sum(),
+                        s1.totalExecutionNanos.sum()))
+                .forEach(s -> sortedStats.put(s.getShape(), s));
+        return log.exit(Collections.unmodifiableMap(sortedStats));
+    }
+    /**
+     * Log all {@code ShapeStatistics} to the slow-query log, for instance at the end
+     * of a pipeline run, to relate the identifiers used in metrics to their SQL shape.
+     */
+    public void logStatistics() {
+        log.entry();
+        for (ShapeStatistics s: this.getStatistics().values()) {
+            slowQueryLog.info("Query statistics [{}] - count: {} - total: {} ms - max: {} ms - "
+                    + "mean first row: {} ms - rows: {} - canceled: {} - slow: {} - SQL: {}",
+                    s.getId(), s.getCount(), s.getTotalExecutionInMs(), s.getMaxExecutionInMs(),
+                    s.getMeanTimeToFirstRowInMs(), s.getRowCount(), s.getCanceledCount(),
+                    s.getSlowCount(), s.getShape());
+        }
+        log.exit();
+    }
+    /**
+     * Remove all {@code ShapeStatistics} recorded.
+     */
+    public void clear() {
+        this.statistics.clear();
+    }
+
+    /**
+     * @return  A {@code long} that is the threshold in milliseconds above which statements
+     *          are logged to the slow-query log (see {@link #SLOW_QUERY_LOGGER_NAME}).
+     *          If 0, all statements are logged, if negative, none is.
+     * @see #DEFAULT_SLOW_QUERY_THRESHOLD_IN_MS
+     */
+    public long getSlowQueryThresholdInMs() {
+        return this.slowQueryThresholdInMs;
+    }
+    /**
+     * @param slowQueryThresholdInMs    A {@code long} that is the threshold in milliseconds
+     *                                  above which statements are logged to the slow-query log.
+     * @see #getSlowQueryThresholdInMs()
+     */
+    public void setSlowQueryThresholdInMs(long slowQueryThresholdInMs) {
+        this.slowQueryThresholdInMs = slowQueryThresholdInMs;
+    }
+}
@@ -13,7 +13,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -21,6 +20,7 @@ import org.bgee.model.dao.api.exception.DAOException;
 import org.bgee.model.dao.api.expressiondata.ConditionDAO;
 import org.bgee.model.dao.api.expressiondata.DAODataType;
 import org.bgee.model.dao.api.expressiondata.ConditionDAO.GlobalConditionToRawConditionTO.ConditionRelationOrigin;
+import org.bgee.model.dao.mysql.MySQLBatchInserter;
 import org.bgee.model.dao.mysql.MySQLDAO;
 import org.bgee.model.dao.mysql.connector.BgeePreparedStatement;
 import org.bgee.model.dao.mysql.connector.MySQLDAOManager;
@@ -32,7 +32,7 @@ import org.bgee.model.dao.mysql.exception.UnrecognizedColumnException;
  * 
  * @author  Valentine Rech de Laval
  * @author  Frederic Bastian
- * @version Bgee 14, Feb. 2017
+ * @version Bgee 14, Jan. 2020
  * @see org.bgee.model.dao.api.anatdev.ConditionDAO.ConditionTO
  * @since   Bgee 14, Feb. 2017
  */
@@ -47,6 +47,37 @@ public class MySQLConditionDAO extends MySQLDAO<ConditionDAO.Attribute> implemen
     public final static String GLOBAL_COND_ID_FIELD = "globalConditionId";
     private final static String COND_REL_ORIGIN_FIELD = "conditionRelationOrigin";
     public final static String ANAT_ENTITY_ID_FIELD = "anatEntityId";
+    /**
+     * A {@code List} of {@code ConditionDAO.Attribute}s that are the attributes inserted
+     * in the global condition table, in the order of the parameters of the insert statements.
+     */
+    private final static List<ConditionDAO.Attribute> GLOBAL_COND_INSERT_ATTRS =
+            Collections.unmodifiableList(new ArrayList<>(EnumSet.allOf(ConditionDAO.Attribute.class)));
+    /**
+     * The {@code MySQLBatchInserter} used to insert global conditions,
+     * see {@link #insertGlobalConditions(Collection)}.
+     */
+    private final static MySQLBatchInserter<ConditionTO> GLOBAL_COND_INSERTER =
+            new MySQLBatchInserter<>("INSERT INTO globalCond ("
+                    + GLOBAL_COND_INSERT_ATTRS.stream()
+                        .map(a -> getSelectExprFromAttribute(a, getColToAttributesMap()))
+                        .collect(Collectors.joining(", "))
+                    + ")",
+                    GLOBAL_COND_INSERT_ATTRS.size(), MySQLConditionDAO::setGlobalConditionParameters);
+    /**
+     * The {@code MySQLBatchInserter} used to insert relations between global and raw conditions,
+     * see {@link #insertGlobalConditionToRawCondition(Collection)}.
+     */
+    private final static MySQLBatchInserter<GlobalConditionToRawConditionTO> COND_TO_COND_INSERTER =
+            new MySQLBatchInserter<>("INSERT INTO globalCondToCond (" + RAW_COND_ID_FIELD + ", "
+                    + GLOBAL_COND_ID_FIELD + ", " + COND_REL_ORIGIN_FIELD + ")", 3,
+                    (stmt, paramIndex, to) -> {
+                        stmt.setInt(paramIndex, to.getRawConditionId());
+                        stmt.setInt(paramIndex + 1, to.getGlobalConditionId());
+                        stmt.setString(paramIndex + 2,
+                                to.getConditionRelationOrigin().getStringRepresentation());
+                        return paramIndex + 3;
+                    });
 
     /**
      * @param tableName             A {@code String} that is the name of the global condition table
@@ -297,54 +328,46 @@ public class MySQLConditionDAO extends MySQLDAO<ConditionDAO.Attribute> implemen
             throw log.throwing(new IllegalArgumentException("No condition provided"));
         }
 
-        Set<ConditionDAO.Attribute> attrs = EnumSet.allOf(ConditionDAO.Attribute.class);
-        //The order of the parameters is important for generating the query and then setting the parameters.
-        final List<ConditionDAO.Attribute> toPopulate = new ArrayList<>(attrs);
-
-        final Map<String, ConditionDAO.Attribute> colToAttrMap = getColToAttributesMap();
-        StringBuilder sql = new StringBuilder(); 
-        sql.append("INSERT INTO globalCond (")
-           .append(toPopulate.stream()
-                   .map(a -> getSelectExprFromAttribute(a, colToAttrMap))
-                   .collect(Collectors.joining(", ")))
-           .append(") VALUES ")
-           .append(conditionTOs.stream()
-                   .map(c -> "(" + BgeePreparedStatement.generateParameterizedQueryString(
-                           toPopulate.size()) + ")")
-                   .collect(Collectors.joining(", ")));
-
-        try (BgeePreparedStatement stmt = 
-                this.getManager().getConnection().prepareStatement(sql.toString())) {
-            int paramIndex = 1;
-            for (ConditionTO conditionTO: conditionTOs) {
-                for (ConditionDAO.Attribute attr: toPopulate) {
-                    switch (attr) {
-                    case ID:
-                        stmt.setInt(paramIndex, conditionTO.getId());
-                        paramIndex++;
-                        break;
-                    case SPECIES_ID:
-                        stmt.setInt(paramIndex, conditionTO.getSpeciesId());
-                        paramIndex++;
-                        break;
-                    case ANAT_ENTITY_ID:
-                        stmt.setString(paramIndex, conditionTO.getAnatEntityId());
-                        paramIndex++;
-                        break;
-                    case STAGE_ID:
-                        stmt.setString(paramIndex, conditionTO.getStageId());
-                        paramIndex++;
-                        break;
-                    default:
-                        log.throwing(new IllegalStateException("Unsupported attribute: " + attr));
-                    }
-                }
+        return log.exit(GLOBAL_COND_INSERTER.insert(this.getManager(), conditionTOs));
+    }
+
+    /**
+     * Sets the parameters of one {@code ConditionTO} to insert, used by
+     * {@link #GLOBAL_COND_INSERTER}. The order of the parameters is the order
+     * of the {@code ConditionDAO.Attribute}s in {@link #GLOBAL_COND_INSERT_ATTRS}.
+     *
+     * @param stmt          The {@code BgeePreparedStatement} to set parameters to.
+     * @param paramIndex    An {@code int} that is the index of the first parameter to set.
+     * @param conditionTO   The {@code ConditionTO} to insert.
+     * @return              An {@code int} that is the index of the next parameter to set.
+     * @throws SQLException If an error occurred while setting the parameters.
+     */
+    private static int setGlobalConditionParameters(BgeePreparedStatement stmt, int paramIndex,
+            ConditionTO conditionTO) throws SQLException {
+        log.entry(stmt, paramIndex, conditionTO);
+        for (ConditionDAO.Attribute attr: GLOBAL_COND_INSERT_ATTRS) {
+            switch (attr) {
+            case ID:
+                stmt.setInt(paramIndex, conditionTO.getId());
+                paramIndex++;
+                break;
+            case SPECIES_ID:
+                stmt.setInt(paramIndex, conditionTO.getSpeciesId());
+                paramIndex++;
+                break;
+            case ANAT_ENTITY_ID:
+                stmt.setString(paramIndex, conditionTO.getAnatEntityId());
+                paramIndex++;
+                break;
+            case STAGE_ID:
+                stmt.setString(paramIndex, conditionTO.getStageId());
+                paramIndex++;
+                break;
+            default:
+                throw log.throwing(new IllegalStateException("Unsupported attribute: " + attr));
             }
-            
-            return log.exit(stmt.executeUpdate());
-        } catch (SQLException e) {
-            throw log.throwing(new DAOException(e));
         }
+        return log.exit(paramIndex);
     }
 
     @Override
@@ -357,47 +380,7 @@ public class MySQLConditionDAO extends MySQLDAO<ConditionDAO.Attribute> implemen
             throw log.throwing(new IllegalArgumentException("No condition relation provided"));
         }
 
-        List<GlobalConditionToRawConditionTO> toList = new ArrayList<>(globalCondToRawCondTOs);
-        int maxElementCount = 5000;
-        int iterationCount = toList.size() < maxElementCount? 1: (int) Math.ceil((float) toList.size()/(float) maxElementCount);
-
-        int countUpdated = IntStream.range(0, iterationCount)
-        .mapToObj(i -> toList.subList(i * maxElementCount,
-                (i + 1) * maxElementCount < toList.size()? (i + 1) * maxElementCount: toList.size()))
-        //Warning, this stream must be sequential, our SQL accessors cannot be used in parallel
-        .mapToInt((partition) -> {
-            StringBuilder sql = new StringBuilder(); 
-            sql.append("INSERT INTO globalCondToCond (")
-            .append(RAW_COND_ID_FIELD).append(", ")
-            .append(GLOBAL_COND_ID_FIELD).append(", ")
-            .append(COND_REL_ORIGIN_FIELD)
-            .append(") VALUES ");
-            for (int i = 0; i < partition.size(); i++) {
-                if (i > 0) {
-                    sql.append(", ");
-                }
-                sql.append("(").append(BgeePreparedStatement.generateParameterizedQueryString(3))
-                .append(") ");
-            }
-            try (BgeePreparedStatement stmt =
-                    this.getManager().getConnection().prepareStatement(sql.toString())) {
-                int paramIndex = 1;
-                for (GlobalConditionToRawConditionTO to: partition) {
-                    stmt.setInt(paramIndex, to.getRawConditionId());
-                    paramIndex++;
-                    stmt.setInt(paramIndex, to.getGlobalConditionId());
-                    paramIndex++;
-                    stmt.setString(paramIndex, to.getConditionRelationOrigin().getStringRepresentation());
-                    paramIndex++;
-                }
-                return stmt.executeUpdate();
-            } catch (SQLException e) {
-                throw log.throwing(new DAOException(e));
-            }
-        })
-        .sum();
-        
-        return log.exit(countUpdated);
+        return log.exit(COND_TO_COND_INSERTER.insert(this.getManager(), globalCondToRawCondTOs));
     }
     
     /**
@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -35,6 +36,7 @@ import org.bgee.model.dao.api.expressiondata.DAOPropagationState;
 import org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO;
 import org.bgee.model.dao.api.expressiondata.DAOExperimentCount.CallType;
 import org.bgee.model.dao.api.expressiondata.DAOExperimentCount.DataQuality;
+import org.bgee.model.dao.mysql.MySQLBatchInserter;
 import org.bgee.model.dao.mysql.MySQLDAO;
 import org.bgee.model.dao.mysql.connector.BgeePreparedStatement;
 import org.bgee.model.dao.mysql.connector.MySQLDAOManager;
@@ -47,7 +49,7 @@ import org.bgee.model.dao.mysql.gene.MySQLGeneDAO;
  * 
  * @author  Frederic Bastian
  * @author  Valentine Rech de Laval
- * @version Bgee 14, Feb. 2019
+ * @version Bgee 14, Jan. 2020
  * @see org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO.GlobalExpressionCallTO
  * @see org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO.GlobalExpressionToRawExpressionTO
  * @since   Bgee 14, Feb. 2017
@@ -68,6 +70,72 @@ implements GlobalExpressionCallDAO {
     private static final String MIN_MAX_RANK_ENTITY_ID_FIELD = "entitiyId";
     private static final String MIN_MAX_RANK_MIN_RANK_FIELD = "minRank";
     private static final String MIN_MAX_RANK_MAX_RANK_FIELD = "maxRank";
+    /**
+     * An {@code int} array containing the indexes in the count vectors of
+     * {@code GlobalExpressionCallDataTO}s of the experiment counts, in the order
+     * of the count columns in the {@code globalExpression} table, for all data types
+     * except EST.
+     * @see DAOExperimentCount#getCountVectorIndex(CallType, DataQuality, DAOPropagationState)
+     */
+    private static final int[] INSERT_COUNT_INDEXES = new int[]{
+            DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.HIGH, DAOPropagationState.SELF),
+            DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.LOW, DAOPropagationState.SELF),
+            DAOExperimentCount.getCountVectorIndex(CallType.ABSENT, DataQuality.HIGH, DAOPropagationState.SELF),
+            DAOExperimentCount.getCountVectorIndex(CallType.ABSENT, DataQuality.LOW, DAOPropagationState.SELF),
+            DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.HIGH, DAOPropagationState.DESCENDANT),
+            DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.LOW, DAOPropagationState.DESCENDANT),
+            DAOExperimentCount.getCountVectorIndex(CallType.ABSENT, DataQuality.HIGH, DAOPropagationState.ANCESTOR),
+            DAOExperimentCount.getCountVectorIndex(CallType.ABSENT, DataQuality.LOW, DAOPropagationState.ANCESTOR),
+            DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.HIGH, DAOPropagationState.ALL),
+            DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.LOW, DAOPropagationState.ALL),
+            DAOExperimentCount.getCountVectorIndex(CallType.ABSENT, DataQuality.HIGH, DAOPropagationState.ALL),
+            DAOExperimentCount.getCountVectorIndex(CallType.ABSENT, DataQuality.LOW, DAOPropagationState.ALL)};
+    /**
+     * Same as {@link #INSERT_COUNT_INDEXES} for EST data, that have no absent counts.
+     */
+    private static final int[] EST_INSERT_COUNT_INDEXES = new int[]{
+            DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.HIGH, DAOPropagationState.SELF),
+            DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.LOW, DAOPropagationState.SELF),
+            DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.HIGH, DAOPropagationState.DESCENDANT),
+            DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.LOW, DAOPropagationState.DESCENDANT),
+            DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.HIGH, DAOPropagationState.ALL),
+            DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.LOW, DAOPropagationState.ALL)};
+    /**
+     * The {@code MySQLBatchInserter} used to insert {@code GlobalExpressionCallTO}s,
+     * see {@link #insertGlobalCalls(Collection)}.
+     */
+    private static final MySQLBatchInserter<GlobalExpressionCallTO> CALL_INSERTER =
+            new MySQLBatchInserter<>("INSERT INTO " + GLOBAL_EXPR_TABLE_NAME + " ("
+            + "globalExpressionId, bgeeGeneId, globalConditionId, "
+            + "estAnatEntityPropagationState, estStagePropagationState, "
+            + "estConditionObservedData, estLibPresentHighSelfCount, estLibPresentLowSelfCount, "
+            + "estLibPresentHighDescendantCount, estLibPresentLowDescendantCount, "
+            + "estLibPresentHighTotalCount, estLibPresentLowTotalCount, estLibPropagatedCount, "
+            + "affymetrixAnatEntityPropagationState, affymetrixStagePropagationState, "
+            + "affymetrixConditionObservedData, affymetrixExpPresentHighSelfCount, "
+            + "affymetrixExpPresentLowSelfCount, affymetrixExpAbsentHighSelfCount, "
+            + "affymetrixExpAbsentLowSelfCount, affymetrixExpPresentHighDescendantCount, "
+            + "affymetrixExpPresentLowDescendantCount, affymetrixExpAbsentHighParentCount, "
+            + "affymetrixExpAbsentLowParentCount, affymetrixExpPresentHighTotalCount, "
+            + "affymetrixExpPresentLowTotalCount, affymetrixExpAbsentHighTotalCount, "
+            + "affymetrixExpAbsentLowTotalCount, affymetrixExpPropagatedCount, "
+            + "inSituAnatEntityPropagationState, inSituStagePropagationState, "
+            + "inSituConditionObservedData, inSituExpPresentHighSelfCount, "
+            + "inSituExpPresentLowSelfCount, inSituExpAbsentHighSelfCount, "
+            + "inSituExpAbsentLowSelfCount, inSituExpPresentHighDescendantCount, "
+            + "inSituExpPresentLowDescendantCount, inSituExpAbsentHighParentCount, "
+            + "inSituExpAbsentLowParentCount, inSituExpPresentHighTotalCount, "
+            + "inSituExpPresentLowTotalCount, inSituExpAbsentHighTotalCount, "
+            + "inSituExpAbsentLowTotalCount, inSituExpPropagatedCount, "
+            + "rnaSeqAnatEntityPropagationState, rnaSeqStagePropagationState, "
+            + "rnaSeqConditionObservedData, rnaSeqExpPresentHighSelfCount, "
+            + "rnaSeqExpPresentLowSelfCount, rnaSeqExpAbsentHighSelfCount, "
+            + "rnaSeqExpAbsentLowSelfCount, rnaSeqExpPresentHighDescendantCount, "
+            + "rnaSeqExpPresentLowDescendantCount, rnaSeqExpAbsentHighParentCount, "
+            + "rnaSeqExpAbsentLowParentCount, rnaSeqExpPresentHighTotalCount, "
+            + "rnaSeqExpPresentLowTotalCount, rnaSeqExpAbsentHighTotalCount, "
+            + "rnaSeqExpAbsentLowTotalCount, rnaSeqExpPropagatedCount)",
+            61, MySQLGlobalExpressionCallDAO::setStatementCallParameters);
 
     private static String generateSelectClause(Collection<GlobalExpressionCallDAO.Attribute> attrs,
             Collection<GlobalExpressionCallDAO.OrderingAttribute> orderingAttrs,
@@ -1045,89 +1113,58 @@ implements GlobalExpressionCallDAO {
             throw log.throwing(new IllegalArgumentException("No calls provided"));
         }
 
-        StringBuilder sql = new StringBuilder(); 
-        sql.append("INSERT INTO ").append(GLOBAL_EXPR_TABLE_NAME).append(" (")
-
-           .append("globalExpressionId, bgeeGeneId, globalConditionId, ")
-
-           .append("estAnatEntityPropagationState, estStagePropagationState, ")
-           .append("estConditionObservedData, estLibPresentHighSelfCount, estLibPresentLowSelfCount, ")
-           .append("estLibPresentHighDescendantCount, estLibPresentLowDescendantCount, ")
-           .append("estLibPresentHighTotalCount, estLibPresentLowTotalCount, estLibPropagatedCount, ")
-
-           .append("affymetrixAnatEntityPropagationState, affymetrixStagePropagationState, ")
-           .append("affymetrixConditionObservedData, affymetrixExpPresentHighSelfCount, ")
-           .append("affymetrixExpPresentLowSelfCount, affymetrixExpAbsentHighSelfCount, ")
-           .append("affymetrixExpAbsentLowSelfCount, affymetrixExpPresentHighDescendantCount, ")
-           .append("affymetrixExpPresentLowDescendantCount, affymetrixExpAbsentHighParentCount, ")
-           .append("affymetrixExpAbsentLowParentCount, affymetrixExpPresentHighTotalCount, ")
-           .append("affymetrixExpPresentLowTotalCount, affymetrixExpAbsentHighTotalCount, ")
-           .append("affymetrixExpAbsentLowTotalCount, affymetrixExpPropagatedCount, ")
-
-           .append("inSituAnatEntityPropagationState, inSituStagePropagationState, ")
-           .append("inSituConditionObservedData, inSituExpPresentHighSelfCount, ")
-           .append("inSituExpPresentLowSelfCount, inSituExpAbsentHighSelfCount, ")
-           .append("inSituExpAbsentLowSelfCount, inSituExpPresentHighDescendantCount, ")
-           .append("inSituExpPresentLowDescendantCount, inSituExpAbsentHighParentCount, ")
-           .append("inSituExpAbsentLowParentCount, inSituExpPresentHighTotalCount, ")
-           .append("inSituExpPresentLowTotalCount, inSituExpAbsentHighTotalCount, ")
-           .append("inSituExpAbsentLowTotalCount, inSituExpPropagatedCount, ")
-
-           .append("rnaSeqAnatEntityPropagationState, rnaSeqStagePropagationState, ")
-           .append("rnaSeqConditionObservedData, rnaSeqExpPresentHighSelfCount, ")
-           .append("rnaSeqExpPresentLowSelfCount, rnaSeqExpAbsentHighSelfCount, ")
-           .append("rnaSeqExpAbsentLowSelfCount, rnaSeqExpPresentHighDescendantCount, ")
-           .append("rnaSeqExpPresentLowDescendantCount, rnaSeqExpAbsentHighParentCount, ")
-           .append("rnaSeqExpAbsentLowParentCount, rnaSeqExpPresentHighTotalCount, ")
-           .append("rnaSeqExpPresentLowTotalCount, rnaSeqExpAbsentHighTotalCount, ")
-           .append("rnaSeqExpAbsentLowTotalCount, rnaSeqExpPropagatedCount")
-           
-           .append(") VALUES ");
-        for (int i = 0; i < callTOs.size(); i++) {
-            if (i > 0) {
-                sql.append(", ");
-            }
-            sql.append("(").append(BgeePreparedStatement.generateParameterizedQueryString(61))
-               .append(") ");
-        }
-        try (BgeePreparedStatement stmt = 
-                this.getManager().getConnection().prepareStatement(sql.toString())) {
-            int paramIndex = 1;
-            for (GlobalExpressionCallTO callTO: callTOs) {
-                stmt.setInt(paramIndex, callTO.getId());
-                paramIndex++;
-                stmt.setInt(paramIndex, callTO.getBgeeGeneId());
-                paramIndex++;
-                stmt.setInt(paramIndex, callTO.getConditionId());
-                paramIndex++;
-                
-                //create a Map<DAODataType, GlobalExpressionCallDataTO>,
-                //to be able to select the appropriate data in the appropriate INSERT order.
-                Map<DAODataType, GlobalExpressionCallDataTO> dataTypeToCallDataTO =
-                        callTO.getCallDataTOs().stream()
-                        .collect(Collectors.toMap(c -> c.getDataType(), c -> c));
-
-                //Just to make sure we cover all data type cases
-                assert DAODataType.values().length == 4;
-                //the order in which we set the data types is important, see creation of the query.
-                //And we need to set all parameters even if there is no data for a data type.
-                paramIndex = setStatementCallDataParameters(stmt, paramIndex,
-                        dataTypeToCallDataTO.get(DAODataType.EST), DAODataType.EST);
-                paramIndex = setStatementCallDataParameters(stmt, paramIndex,
-                        dataTypeToCallDataTO.get(DAODataType.AFFYMETRIX), DAODataType.AFFYMETRIX);
-                paramIndex = setStatementCallDataParameters(stmt, paramIndex,
-                        dataTypeToCallDataTO.get(DAODataType.IN_SITU), DAODataType.IN_SITU);
-                paramIndex = setStatementCallDataParameters(stmt, paramIndex,
-                        dataTypeToCallDataTO.get(DAODataType.RNA_SEQ), DAODataType.RNA_SEQ);
+        return log.exit(CALL_INSERTER.insert(this.getManager(), callTOs));
+    }
+
+    /**
+     * Sets the parameters of one {@code GlobalExpressionCallTO} to insert, used by
+     * {@link #CALL_INSERTER}.
+     *
+     * @param stmt          The {@code BgeePreparedStatement} to set parameters to.
+     * @param paramIndex    An {@code int} that is the index of the first parameter to set.
+     * @param callTO        The {@code GlobalExpressionCallTO} to insert.
+     * @return              An {@code int} that is the index of the next parameter to set.
+     * @throws SQLException If an error occurred while setting the parameters.
+     * @throws IllegalArgumentException If {@code callTO} contains several
+     *                                  {@code GlobalExpressionCallDataTO}s for a same data type.
+     */
+    private static int setStatementCallParameters(BgeePreparedStatement stmt, int paramIndex,
+            GlobalExpressionCallTO callTO) throws SQLException, IllegalArgumentException {
+        log.entry(stmt, paramIndex, callTO);
+        stmt.setInt(paramIndex, callTO.getId());
+        paramIndex++;
+        stmt.setInt(paramIndex, callTO.getBgeeGeneId());
+        paramIndex++;
+        stmt.setInt(paramIndex, callTO.getConditionId());
+        paramIndex++;
+        
+        //create a Map<DAODataType, GlobalExpressionCallDataTO>,
+        //to be able to select the appropriate data in the appropriate INSERT order.
+        Map<DAODataType, GlobalExpressionCallDataTO> dataTypeToCallDataTO =
+                new EnumMap<>(DAODataType.class);
+        for (GlobalExpressionCallDataTO callDataTO: callTO.getCallDataTOs()) {
+            if (dataTypeToCallDataTO.put(callDataTO.getDataType(), callDataTO) != null) {
+                throw log.throwing(new IllegalArgumentException(
+                        "Several data for a same data type: " + callTO));
             }
-            
-            return log.exit(stmt.executeUpdate());
-        } catch (SQLException e) {
-            throw log.throwing(new DAOException(e));
         }
+
+        //Just to make sure we cover all data type cases
+        assert DAODataType.values().length == 4;
+        //the order in which we set the data types is important, see creation of the query.
+        //And we need to set all parameters even if there is no data for a data type.
+        paramIndex = setStatementCallDataParameters(stmt, paramIndex,
+                dataTypeToCallDataTO.get(DAODataType.EST), DAODataType.EST);
+        paramIndex = setStatementCallDataParameters(stmt, paramIndex,
+                dataTypeToCallDataTO.get(DAODataType.AFFYMETRIX), DAODataType.AFFYMETRIX);
+        paramIndex = setStatementCallDataParameters(stmt, paramIndex,
+                dataTypeToCallDataTO.get(DAODataType.IN_SITU), DAODataType.IN_SITU);
+        paramIndex = setStatementCallDataParameters(stmt, paramIndex,
+                dataTypeToCallDataTO.get(DAODataType.RNA_SEQ), DAODataType.RNA_SEQ);
+        return log.exit(paramIndex);
     }
     
-    private static int setStatementCallDataParameters(BgeePreparedStatement stmt, int paramIndex,
+    static int setStatementCallDataParameters(BgeePreparedStatement stmt, int paramIndex,
             GlobalExpressionCallDataTO callDataTO, DAODataType dataType) throws SQLException {
         log.entry(stmt, paramIndex, callDataTO, dataType);
         
@@ -1185,94 +1222,18 @@ implements GlobalExpressionCallDAO {
         newParamIndex++;
 
         //** Experiment expression counts **
-        //present high self
-        stmt.setInt(newParamIndex, callDataTO.getExperimentCounts().stream()
-                .filter(c -> DAOExperimentCount.CallType.PRESENT.equals(c.getCallType()) &&
-                             DAOExperimentCount.DataQuality.HIGH.equals(c.getDataQuality()) &&
-                             DAOPropagationState.SELF.equals(c.getPropagationState()))
-                .findFirst().orElseThrow(() -> new IllegalArgumentException()).getCount());
-        newParamIndex++;
-        //present low self
-        stmt.setInt(newParamIndex, callDataTO.getExperimentCounts().stream()
-                .filter(c -> DAOExperimentCount.CallType.PRESENT.equals(c.getCallType()) &&
-                             DAOExperimentCount.DataQuality.LOW.equals(c.getDataQuality()) &&
-                             DAOPropagationState.SELF.equals(c.getPropagationState()))
-                .findFirst().orElseThrow(() -> new IllegalArgumentException()).getCount());
-        newParamIndex++;
-        if (!DAODataType.EST.equals(dataType)) {
-            //absent high self
-            stmt.setInt(newParamIndex, callDataTO.getExperimentCounts().stream()
-                    .filter(c -> DAOExperimentCount.CallType.ABSENT.equals(c.getCallType()) &&
-                                 DAOExperimentCount.DataQuality.HIGH.equals(c.getDataQuality()) &&
-                                 DAOPropagationState.SELF.equals(c.getPropagationState()))
-                    .findFirst().orElseThrow(() -> new IllegalArgumentException()).getCount());
-            newParamIndex++;
-            //absent low self
-            stmt.setInt(newParamIndex, callDataTO.getExperimentCounts().stream()
-                    .filter(c -> DAOExperimentCount.CallType.ABSENT.equals(c.getCallType()) &&
-                                 DAOExperimentCount.DataQuality.LOW.equals(c.getDataQuality()) &&
-                                 DAOPropagationState.SELF.equals(c.getPropagationState()))
-                    .findFirst().orElseThrow(() -> new IllegalArgumentException()).getCount());
-            newParamIndex++;
+        //We use the count vector of the TO rather than looking up the DAOExperimentCounts,
+        //in the order of the columns: self, descendant/parent, total counts
+        int[] countVector = callDataTO.getExperimentCountVector();
+        if (countVector == null) {
+            throw log.throwing(new IllegalArgumentException("No count found in: " + callDataTO));
         }
-        //present high descendant
-        stmt.setInt(newParamIndex, callDataTO.getExperimentCounts().stream()
-                .filter(c -> DAOExperimentCount.CallType.PRESENT.equals(c.getCallType()) &&
-                             DAOExperimentCount.DataQuality.HIGH.equals(c.getDataQuality()) &&
-                             DAOPropagationState.DESCENDANT.equals(c.getPropagationState()))
-                .findFirst().orElseThrow(() -> new IllegalArgumentException()).getCount());
-        newParamIndex++;
-        //present low descendant
-        stmt.setInt(newParamIndex, callDataTO.getExperimentCounts().stream()
-                .filter(c -> DAOExperimentCount.CallType.PRESENT.equals(c.getCallType()) &&
-                             DAOExperimentCount.DataQuality.LOW.equals(c.getDataQuality()) &&
-                             DAOPropagationState.DESCENDANT.equals(c.getPropagationState()))
-                .findFirst().orElseThrow(() -> new IllegalArgumentException()).getCount());
-        newParamIndex++;
-        if (!DAODataType.EST.equals(dataType)) {
-            //absent high parent
-            stmt.setInt(newParamIndex, callDataTO.getExperimentCounts().stream()
-                    .filter(c -> DAOExperimentCount.CallType.ABSENT.equals(c.getCallType()) &&
-                                 DAOExperimentCount.DataQuality.HIGH.equals(c.getDataQuality()) &&
-                                 DAOPropagationState.ANCESTOR.equals(c.getPropagationState()))
-                    .findFirst().orElseThrow(() -> new IllegalArgumentException()).getCount());
-            newParamIndex++;
-            //absent low parent
-            stmt.setInt(newParamIndex, callDataTO.getExperimentCounts().stream()
-                    .filter(c -> DAOExperimentCount.CallType.ABSENT.equals(c.getCallType()) &&
-                                 DAOExperimentCount.DataQuality.LOW.equals(c.getDataQuality()) &&
-                                 DAOPropagationState.ANCESTOR.equals(c.getPropagationState()))
-                    .findFirst().orElseThrow(() -> new IllegalArgumentException()).getCount());
-            newParamIndex++;
-        }
-        //present high total
-        stmt.setInt(newParamIndex, callDataTO.getExperimentCounts().stream()
-                .filter(c -> DAOExperimentCount.CallType.PRESENT.equals(c.getCallType()) &&
-                             DAOExperimentCount.DataQuality.HIGH.equals(c.getDataQuality()) &&
-                             DAOPropagationState.ALL.equals(c.getPropagationState()))
-                .findFirst().orElseThrow(() -> new IllegalArgumentException()).getCount());
-        newParamIndex++;
-        //present low total
-        stmt.setInt(newParamIndex, callDataTO.getExperimentCounts().stream()
-                .filter(c -> DAOExperimentCount.CallType.PRESENT.equals(c.getCallType()) &&
-                             DAOExperimentCount.DataQuality.LOW.equals(c.getDataQuality()) &&
-                             DAOPropagationState.ALL.equals(c.getPropagationState()))
-                .findFirst().orElseThrow(() -> new IllegalArgumentException()).getCount());
-        newParamIndex++;
-        if (!DAODataType.EST.equals(dataType)) {
-            //absent high total
-            stmt.setInt(newParamIndex, callDataTO.getExperimentCounts().stream()
-                    .filter(c -> DAOExperimentCount.CallType.ABSENT.equals(c.getCallType()) &&
-                                 DAOExperimentCount.DataQuality.HIGH.equals(c.getDataQuality()) &&
-                                 DAOPropagationState.ALL.equals(c.getPropagationState()))
-                    .findFirst().orElseThrow(() -> new IllegalArgumentException()).getCount());
-            newParamIndex++;
-            //absent low total
-            stmt.setInt(newParamIndex, callDataTO.getExperimentCounts().stream()
-                    .filter(c -> DAOExperimentCount.CallType.ABSENT.equals(c.getCallType()) &&
-                                 DAOExperimentCount.DataQuality.LOW.equals(c.getDataQuality()) &&
-                                 DAOPropagationState.ALL.equals(c.getPropagationState()))
-                    .findFirst().orElseThrow(() -> new IllegalArgumentException()).getCount());
+        for (int countIndex: DAODataType.EST.equals(dataType)?
+                EST_INSERT_COUNT_INDEXES: INSERT_COUNT_INDEXES) {
+            if (countVector[countIndex] == DAOExperimentCount.MISSING_COUNT) {
+                throw log.throwing(new IllegalArgumentException("Missing count in: " + callDataTO));
+            }
+            stmt.setInt(newParamIndex, countVector[countIndex]);
             newParamIndex++;
         }
         //propagated count
@@ -1339,7 +1300,8 @@ implements GlobalExpressionCallDAO {
             final ResultSet currentResultSet = rs.getCurrentResultSet();
             Boolean conditionObservedData = null;
             Map<ConditionDAO.Attribute, DAOPropagationState> dataPropagation = new HashMap<>();
-            Set<DAOExperimentCount> experimentCounts = new HashSet<>();
+            int[] experimentCountVector = new int[DAOExperimentCount.COUNT_VECTOR_LENGTH];
+            Arrays.fill(experimentCountVector, DAOExperimentCount.MISSING_COUNT);
             Integer propagatedCount = null;
             BigDecimal rank = null, rankNorm = null, weightForMeanRank = null;
 
@@ -1435,18 +1397,14 @@ implements GlobalExpressionCallDAO {
 
                     weightForMeanRank = currentResultSet.getBigDecimal(columnName);
                     infoFound = true;
-                } else {
-                    DAOExperimentCount count = loadExperimentCount(currentResultSet,
-                            columnName, dataType);
-                    if (count != null) {
-                        experimentCounts.add(count);
-                        infoFound = true;
-                    }
+                } else if (loadExperimentCount(currentResultSet, columnName, dataType,
+                        experimentCountVector)) {
+                    infoFound = true;
                 }
             }
             if (!infoFound || (conditionObservedData == null
                     && (dataPropagation.isEmpty() || dataPropagation.values().stream().allMatch(dp -> dp == null))
-                    && (experimentCounts.isEmpty() || experimentCounts.stream().allMatch(c -> c.getCount() == 0))
+                    && Arrays.stream(experimentCountVector).allMatch(c -> c <= 0)
                     && (propagatedCount == null || propagatedCount == 0)
                     && rank == null && rankNorm == null
                     //Bug fix: for EST and in situ data, weightForMeanRank is retrieved from globalCond table,
@@ -1458,130 +1416,114 @@ implements GlobalExpressionCallDAO {
                 return log.exit(null);
             }
             return log.exit(new GlobalExpressionCallDataTO(dataType, conditionObservedData,
-                    dataPropagation, experimentCounts, propagatedCount,
+                    dataPropagation, experimentCountVector, propagatedCount,
                     rank, rankNorm, weightForMeanRank));
         }
         
-        private static DAOExperimentCount loadExperimentCount(ResultSet rs,
-                final String columnName, DAODataType dataType) throws SQLException {
-            log.entry(rs, columnName, dataType);
+        /**
+         * Load the experiment count stored in the column {@code columnName} into
+         * the count vector {@code countVector}, if {@code columnName} is a count column
+         * of {@code dataType}.
+         *
+         * @return  {@code true} if {@code columnName} is a count column of {@code dataType}.
+         * @see DAOExperimentCount#getCountVectorIndex(CallType, DataQuality, DAOPropagationState)
+         */
+        private static boolean loadExperimentCount(ResultSet rs,
+                final String columnName, DAODataType dataType, int[] countVector) throws SQLException {
+            log.entry(rs, columnName, dataType, countVector);
             
             if ("estLibPresentHighSelfCount".equals(columnName) && DAODataType.EST.equals(dataType) ||
             "affymetrixExpPresentHighSelfCount".equals(columnName) && DAODataType.AFFYMETRIX.equals(dataType) ||
             "inSituExpPresentHighSelfCount".equals(columnName) && DAODataType.IN_SITU.equals(dataType) ||
             "rnaSeqExpPresentHighSelfCount".equals(columnName) && DAODataType.RNA_SEQ.equals(dataType)) {
-                return log.exit(new DAOExperimentCount(
-                        DAOExperimentCount.CallType.PRESENT,
-                        DAOExperimentCount.DataQuality.HIGH,
-                        DAOPropagationState.SELF,
-                        rs.getInt(columnName)));
+                countVector[DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.HIGH,
+                        DAOPropagationState.SELF)] = rs.getInt(columnName);
+                return log.exit(true);
             }
             if ("estLibPresentLowSelfCount".equals(columnName) && DAODataType.EST.equals(dataType) ||
             "affymetrixExpPresentLowSelfCount".equals(columnName) && DAODataType.AFFYMETRIX.equals(dataType) ||
             "inSituExpPresentLowSelfCount".equals(columnName) && DAODataType.IN_SITU.equals(dataType) ||
             "rnaSeqExpPresentLowSelfCount".equals(columnName) && DAODataType.RNA_SEQ.equals(dataType)) {
-                return log.exit(new DAOExperimentCount(
-                        DAOExperimentCount.CallType.PRESENT,
-                        DAOExperimentCount.DataQuality.LOW,
-                        DAOPropagationState.SELF,
-                        rs.getInt(columnName)));
+                countVector[DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.LOW,
+                        DAOPropagationState.SELF)] = rs.getInt(columnName);
+                return log.exit(true);
             }
             if ("affymetrixExpAbsentHighSelfCount".equals(columnName) && DAODataType.AFFYMETRIX.equals(dataType) ||
             "inSituExpAbsentHighSelfCount".equals(columnName) && DAODataType.IN_SITU.equals(dataType) ||
             "rnaSeqExpAbsentHighSelfCount".equals(columnName) && DAODataType.RNA_SEQ.equals(dataType)) {
-                return log.exit(new DAOExperimentCount(
-                        DAOExperimentCount.CallType.ABSENT,
-                        DAOExperimentCount.DataQuality.HIGH,
-                        DAOPropagationState.SELF,
-                        rs.getInt(columnName)));
+                countVector[DAOExperimentCount.getCountVectorIndex(CallType.ABSENT, DataQuality.HIGH,
+                        DAOPropagationState.SELF)] = rs.getInt(columnName);
+                return log.exit(true);
             }
             if ("affymetrixExpAbsentLowSelfCount".equals(columnName) && DAODataType.AFFYMETRIX.equals(dataType) ||
             "inSituExpAbsentLowSelfCount".equals(columnName) && DAODataType.IN_SITU.equals(dataType) ||
             "rnaSeqExpAbsentLowSelfCount".equals(columnName) && DAODataType.RNA_SEQ.equals(dataType)) {
-                return log.exit(new DAOExperimentCount(
-                        DAOExperimentCount.CallType.ABSENT,
-                        DAOExperimentCount.DataQuality.LOW,
-                        DAOPropagationState.SELF,
-                        rs.getInt(columnName)));
+                countVector[DAOExperimentCount.getCountVectorIndex(CallType.ABSENT, DataQuality.LOW,
+                        DAOPropagationState.SELF)] = rs.getInt(columnName);
+                return log.exit(true);
             }
             if ("estLibPresentHighDescendantCount".equals(columnName) && DAODataType.EST.equals(dataType) ||
             "affymetrixExpPresentHighDescendantCount".equals(columnName) && DAODataType.AFFYMETRIX.equals(dataType) ||
             "inSituExpPresentHighDescendantCount".equals(columnName) && DAODataType.IN_SITU.equals(dataType) ||
             "rnaSeqExpPresentHighDescendantCount".equals(columnName) && DAODataType.RNA_SEQ.equals(dataType)) {
-                return log.exit(new DAOExperimentCount(
-                        DAOExperimentCount.CallType.PRESENT,
-                        DAOExperimentCount.DataQuality.HIGH,
-                        DAOPropagationState.DESCENDANT,
-                        rs.getInt(columnName)));
+                countVector[DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.HIGH,
+                        DAOPropagationState.DESCENDANT)] = rs.getInt(columnName);
+                return log.exit(true);
             }
             if ("estLibPresentLowDescendantCount".equals(columnName) && DAODataType.EST.equals(dataType) ||
             "affymetrixExpPresentLowDescendantCount".equals(columnName) && DAODataType.AFFYMETRIX.equals(dataType) ||
             "inSituExpPresentLowDescendantCount".equals(columnName) && DAODataType.IN_SITU.equals(dataType) ||
             "rnaSeqExpPresentLowDescendantCount".equals(columnName) && DAODataType.RNA_SEQ.equals(dataType)) {
-                return log.exit(new DAOExperimentCount(
-                        DAOExperimentCount.CallType.PRESENT,
-                        DAOExperimentCount.DataQuality.LOW,
-                        DAOPropagationState.DESCENDANT,
-                        rs.getInt(columnName)));
+                countVector[DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.LOW,
+                        DAOPropagationState.DESCENDANT)] = rs.getInt(columnName);
+                return log.exit(true);
             }
             if ("affymetrixExpAbsentHighParentCount".equals(columnName) && DAODataType.AFFYMETRIX.equals(dataType) ||
             "inSituExpAbsentHighParentCount".equals(columnName) && DAODataType.IN_SITU.equals(dataType) ||
             "rnaSeqExpAbsentHighParentCount".equals(columnName) && DAODataType.RNA_SEQ.equals(dataType)) {
-                return log.exit(new DAOExperimentCount(
-                        DAOExperimentCount.CallType.ABSENT,
-                        DAOExperimentCount.DataQuality.HIGH,
-                        DAOPropagationState.ANCESTOR,
-                        rs.getInt(columnName)));
+                countVector[DAOExperimentCount.getCountVectorIndex(CallType.ABSENT, DataQuality.HIGH,
+                        DAOPropagationState.ANCESTOR)] = rs.getInt(columnName);
+                return log.exit(true);
             }
             if ("affymetrixExpAbsentLowParentCount".equals(columnName) && DAODataType.AFFYMETRIX.equals(dataType) ||
             "inSituExpAbsentLowParentCount".equals(columnName) && DAODataType.IN_SITU.equals(dataType) ||
             "rnaSeqExpAbsentLowParentCount".equals(columnName) && DAODataType.RNA_SEQ.equals(dataType)) {
-                return log.exit(new DAOExperimentCount(
-                        DAOExperimentCount.CallType.ABSENT,
-                        DAOExperimentCount.DataQuality.LOW,
-                        DAOPropagationState.ANCESTOR,
-                        rs.getInt(columnName)));
+                countVector[DAOExperimentCount.getCountVectorIndex(CallType.ABSENT, DataQuality.LOW,
+                        DAOPropagationState.ANCESTOR)] = rs.getInt(columnName);
+                return log.exit(true);
             }
             if ("estLibPresentHighTotalCount".equals(columnName) && DAODataType.EST.equals(dataType) ||
             "affymetrixExpPresentHighTotalCount".equals(columnName) && DAODataType.AFFYMETRIX.equals(dataType) ||
             "inSituExpPresentHighTotalCount".equals(columnName) && DAODataType.IN_SITU.equals(dataType) ||
             "rnaSeqExpPresentHighTotalCount".equals(columnName) && DAODataType.RNA_SEQ.equals(dataType)) {
-                return log.exit(new DAOExperimentCount(
-                        DAOExperimentCount.CallType.PRESENT,
-                        DAOExperimentCount.DataQuality.HIGH,
-                        DAOPropagationState.ALL,
-                        rs.getInt(columnName)));
+                countVector[DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.HIGH,
+                        DAOPropagationState.ALL)] = rs.getInt(columnName);
+                return log.exit(true);
             }
             if ("estLibPresentLowTotalCount".equals(columnName) && DAODataType.EST.equals(dataType) ||
             "affymetrixExpPresentLowTotalCount".equals(columnName) && DAODataType.AFFYMETRIX.equals(dataType) ||
             "inSituExpPresentLowTotalCount".equals(columnName) && DAODataType.IN_SITU.equals(dataType) ||
             "rnaSeqExpPresentLowTotalCount".equals(columnName) && DAODataType.RNA_SEQ.equals(dataType)) {
-                return log.exit(new DAOExperimentCount(
-                        DAOExperimentCount.CallType.PRESENT,
-                        DAOExperimentCount.DataQuality.LOW,
-                        DAOPropagationState.ALL,
-                        rs.getInt(columnName)));
+                countVector[DAOExperimentCount.getCountVectorIndex(CallType.PRESENT, DataQuality.LOW,
+                        DAOPropagationState.ALL)] = rs.getInt(columnName);
+                return log.exit(true);
             }
             if ("affymetrixExpAbsentHighTotalCount".equals(columnName) && DAODataType.AFFYMETRIX.equals(dataType) ||
             "inSituExpAbsentHighTotalCount".equals(columnName) && DAODataType.IN_SITU.equals(dataType) ||
             "rnaSeqExpAbsentHighTotalCount".equals(columnName) && DAODataType.RNA_SEQ.equals(dataType)) {
-                return log.exit(new DAOExperimentCount(
-                        DAOExperimentCount.CallType.ABSENT,
-                        DAOExperimentCount.DataQuality.HIGH,
-                        DAOPropagationState.ALL,
-                        rs.getInt(columnName)));
+                countVector[DAOExperimentCount.getCountVectorIndex(CallType.ABSENT, DataQuality.HIGH,
+                        DAOPropagationState.ALL)] = rs.getInt(columnName);
+                return log.exit(true);
             }
             if ("affymetrixExpAbsentLowTotalCount".equals(columnName) && DAODataType.AFFYMETRIX.equals(dataType) ||
             "inSituExpAbsentLowTotalCount".equals(columnName) && DAODataType.IN_SITU.equals(dataType) ||
             "rnaSeqExpAbsentLowTotalCount".equals(columnName) && DAODataType.RNA_SEQ.equals(dataType)) {
-                return log.exit(new DAOExperimentCount(
-                        DAOExperimentCount.CallType.ABSENT,
-                        DAOExperimentCount.DataQuality.LOW,
-                        DAOPropagationState.ALL,
-                        rs.getInt(columnName)));
+                countVector[DAOExperimentCount.getCountVectorIndex(CallType.ABSENT, DataQuality.LOW,
+                        DAOPropagationState.ALL)] = rs.getInt(columnName);
+                return log.exit(true);
             }
             
-            return log.exit(null);
+            return log.exit(false);
         }
     }
 
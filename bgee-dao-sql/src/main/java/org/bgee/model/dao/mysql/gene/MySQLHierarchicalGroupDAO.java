@@ -10,6 +10,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bgee.model.dao.api.exception.DAOException;
 import org.bgee.model.dao.api.gene.HierarchicalGroupDAO;
+import org.bgee.model.dao.mysql.MySQLBatchInserter;
 import org.bgee.model.dao.mysql.MySQLDAO;
 import org.bgee.model.dao.mysql.connector.BgeePreparedStatement;
 /*
@@ -25,7 +26,7 @@ import org.bgee.model.dao.mysql.exception.UnrecognizedColumnException;
  * 
  * @author Valentine Rech de Laval
  * @author Julien Wollbrett
- * @version Bgee 14
+ * @version Bgee 14 Jan. 2020
  * @see org.bgee.model.dao.api.gene.HierarchicalGroupDAO.HierarchicalGroupTO
  * @since Bgee 13
  */
@@ -37,6 +38,38 @@ public class MySQLHierarchicalGroupDAO extends MySQLDAO<HierarchicalGroupDAO.Att
      */
     private final static Logger log = 
             LogManager.getLogger(MySQLHierarchicalGroupDAO.class.getName());
+    /**
+     * The {@code MySQLBatchInserter} used to insert hierarchical nodes,
+     * see {@link #insertHierarchicalNodes(Collection)}.
+     */
+    private final static MySQLBatchInserter<HierarchicalNodeTO> NODE_INSERTER =
+            new MySQLBatchInserter<>("INSERT INTO OMAHierarchicalGroup "
+                    + "(OMANodeId, OMAGroupId, OMANodeLeftBound, OMANodeRightBound, taxonId)", 5,
+                    (stmt, paramIndex, group) -> {
+                        stmt.setInt(paramIndex, group.getId());
+                        stmt.setString(paramIndex + 1, group.getOMAGroupId());
+                        stmt.setInt(paramIndex + 2, group.getLeftBound());
+                        stmt.setInt(paramIndex + 3, group.getRightBound());
+                        // taxonId could be null for paralogous groups
+                        if (group.getTaxonId() == 0) {
+                            stmt.setNull(paramIndex + 4, Types.INTEGER);
+                        } else {
+                            stmt.setInt(paramIndex + 4, group.getTaxonId());
+                        }
+                        return paramIndex + 5;
+                    });
+    /**
+     * The {@code MySQLBatchInserter} used to insert the mappings from hierarchical nodes
+     * to genes, see {@link #insertHierarchicalNodeToGene(Collection)}.
+     */
+    private final static MySQLBatchInserter<HierarchicalNodeToGeneTO> NODE_TO_GENE_INSERTER =
+            new MySQLBatchInserter<>("INSERT INTO geneToOma (OMANodeId, bgeeGeneId, taxonId)", 3,
+                    (stmt, paramIndex, groupToGene) -> {
+                        stmt.setInt(paramIndex, groupToGene.getNodeId());
+                        stmt.setInt(paramIndex + 1, groupToGene.getBgeeGeneId());
+                        stmt.setInt(paramIndex + 2, groupToGene.getTaxonId());
+                        return paramIndex + 3;
+                    });
 
     /**
      * Constructor providing the {@code MySQLDAOManager} that this {@code MySQLDAO} will
@@ -160,6 +193,37 @@ public class MySQLHierarchicalGroupDAO extends MySQLDAO<HierarchicalGroupDAO.Att
     	
     }
 
+    @Override
+    public HierarchicalNodeTOResultSet getAllHierarchicalNodes() throws DAOException {
+        log.entry();
+
+        String sql = "SELECT OMANodeId, OMAGroupId, OMANodeLeftBound, OMANodeRightBound, taxonId "
+                + "FROM OMAHierarchicalGroup ORDER BY OMANodeLeftBound";
+        //we don't use a try-with-resource, because we return a pointer to the results, 
+        //not the actual results, so we should not close this BgeePreparedStatement.
+        try {
+            return log.exit(new MySQLHierarchicalNodeTOResultSet(
+                    this.getManager().getConnection().prepareStatement(sql)));
+        } catch (SQLException e) {
+            throw log.throwing(new DAOException(e));
+        }
+    }
+
+    @Override
+    public HierarchicalNodeToGeneTOResultSet getAllHierarchicalNodeToGenes() throws DAOException {
+        log.entry();
+
+        String sql = "SELECT OMANodeId, bgeeGeneId, taxonId FROM geneToOma";
+        //we don't use a try-with-resource, because we return a pointer to the results, 
+        //not the actual results, so we should not close this BgeePreparedStatement.
+        try {
+            return log.exit(new MySQLHierarchicalNodeToGeneTOResultSet(
+                    this.getManager().getConnection().prepareStatement(sql)));
+        } catch (SQLException e) {
+            throw log.throwing(new DAOException(e));
+        }
+    }
+
     //***************************************************************************
     // METHODS NOT PART OF THE bgee-dao-api, USED BY THE PIPELINE AND NOT MEANT 
     //TO BE EXPOSED TO THE PUBLIC API.
@@ -174,34 +238,7 @@ public class MySQLHierarchicalGroupDAO extends MySQLDAO<HierarchicalGroupDAO.Att
                     "No hierarchical group is given, then no hierarchical group is inserted"));
         }
 
-        int groupInsertedCount = 0;
-
-        // To not overload MySQL with an error com.mysql.jdbc.PacketTooBigException, 
-        // and because of laziness, we insert terms one at a time
-        String sql = "INSERT INTO OMAHierarchicalGroup " +
-                     "(OMANodeId, OMAGroupId, OMANodeLeftBound, OMANodeRightBound, taxonId) " +
-                     "values (?, ?, ?, ?, ?)";
-
-    	try (BgeePreparedStatement stmt = 
-    			this.getManager().getConnection().prepareStatement(sql)) {
-    		for (HierarchicalNodeTO group: groups) {
-    			stmt.setInt(1, group.getId());
-    			stmt.setString(2, group.getOMAGroupId());
-    			stmt.setInt(3, group.getLeftBound());
-    			stmt.setInt(4, group.getRightBound());
-    			// taxonId could be null for paralogous groups
-    			if (group.getTaxonId() == 0) {
-    			    stmt.setNull(5, Types.INTEGER);
-    			} else {
-    			    stmt.setInt(5, group.getTaxonId());
-    			}
-    			groupInsertedCount += stmt.executeUpdate();
-    			stmt.clearParameters();
-    		}
-    		return log.exit(groupInsertedCount);
-    	} catch (SQLException e) {
-    		throw log.throwing(new DAOException(e));
-    	}
+        return log.exit(NODE_INSERTER.insert(this.getManager(), groups));
     }
 
     //XXX: how this was handled before?
@@ -215,28 +252,7 @@ public class MySQLHierarchicalGroupDAO extends MySQLDAO<HierarchicalGroupDAO.Att
                     "No hierarchical group to gene is given, then no group to gene mapping is inserted"));
         }
 
-        int groupToGeneInsertedCount = 0;
-
-        // To not overload MySQL with an error com.mysql.jdbc.PacketTooBigException,
-        // and because of laziness, we insert terms one at a time
-        String sql = "INSERT INTO geneToOma " +
-                     "(OMANodeId, bgeeGeneId, taxonId) " +
-                     "values (?, ?, ?)";
-
-    	try (BgeePreparedStatement stmt = 
-    			this.getManager().getConnection().prepareStatement(sql)) {
-    		
-    		for (HierarchicalNodeToGeneTO groupToGene: groupToGenes) {
-    			stmt.setInt(1, groupToGene.getNodeId());
-    			stmt.setInt(2, groupToGene.getBgeeGeneId());
-    			stmt.setInt(3, groupToGene.getTaxonId());
-    			groupToGeneInsertedCount += stmt.executeUpdate();
-    			stmt.clearParameters();
-    		}
-    		return log.exit(groupToGeneInsertedCount);
-    	} catch (SQLException e) {
-    		throw log.throwing(new DAOException(e));
-    	}
+        return log.exit(NODE_TO_GENE_INSERTER.insert(this.getManager(), groupToGenes));
     }
     
     /**
@@ -293,7 +309,7 @@ public class MySQLHierarchicalGroupDAO extends MySQLDAO<HierarchicalGroupDAO.Att
            log.entry();
 
            String hogId = null;
-           Integer taxonId = null, nodeId = null; 
+           Integer taxonId = null, nodeId = null, leftBound = null, rightBound = null; 
 
            for (Entry<Integer, String> column: this.getColumnLabels().entrySet()) {
                try {
@@ -306,6 +322,13 @@ public class MySQLHierarchicalGroupDAO extends MySQLDAO<HierarchicalGroupDAO.Att
                    } else if (column.getValue().equals("OMANodeId")) {
                 	   nodeId = this.getCurrentResultSet().getInt(column.getKey());
 
+                   } else if (column.getValue().equals("OMANodeLeftBound")) {
+                       leftBound = this.getCurrentResultSet().getInt(column.getKey());
+                   } else if (column.getValue().equals("OMANodeRightBound")) {
+                       rightBound = this.getCurrentResultSet().getInt(column.getKey());
+                   } else if (column.getValue().equals("taxonId")) {
+                       //taxonId is null for paralogous groups, getInt then returns 0
+                       taxonId = this.getCurrentResultSet().getInt(column.getKey());
                    } else {
                        throw log.throwing(new UnrecognizedColumnException(column.getValue()));
                    }
@@ -314,7 +337,7 @@ public class MySQLHierarchicalGroupDAO extends MySQLDAO<HierarchicalGroupDAO.Att
                    throw log.throwing(new DAOException(e));
                }
            }
-           return log.exit(new HierarchicalNodeTO(nodeId, hogId, null, null, taxonId));
+           return log.exit(new HierarchicalNodeTO(nodeId, hogId, leftBound, rightBound, taxonId));
        }
 
    }
@@ -13,6 +13,7 @@ import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.mysql.MySQLBatchInserter;
 import org.bgee.model.dao.mysql.MySQLDAO;
 import org.bgee.model.dao.mysql.connector.BgeePreparedStatement;
 import org.bgee.model.dao.mysql.connector.MySQLDAOManager;
@@ -28,7 +29,7 @@ import org.bgee.model.dao.api.ontologycommon.RelationDAO.RelationTO.RelationType
  * 
  * @author Valentine Rech de Laval
  * @author Frederic Bastian
- * @version Bgee 14 Mar. 2019
+ * @version Bgee 14 Jan. 2020
  * @since Bgee 13
  * @see org.bgee.model.dao.api.ontologycommon.RelationDAO.RelationTO
  */
@@ -40,6 +41,35 @@ public class MySQLRelationDAO extends MySQLDAO<RelationDAO.Attribute>
     private final static Logger log = LogManager.getLogger(MySQLRelationDAO.class.getName());
 
     private static final String NESTED_SET_MODEL_FAKE_RELATIONS_TEMP_TABLE_NAME = "tempTable";
+    /**
+     * The {@code MySQLBatchInserter} used to insert relations between anatomical entities,
+     * see {@link #insertAnatEntityRelations(Collection)}.
+     */
+    private static final MySQLBatchInserter<RelationTO<String>> ANAT_ENTITY_RELATION_INSERTER =
+            new MySQLBatchInserter<>("INSERT INTO anatEntityRelation "
+                    + "(anatEntityRelationId, anatEntitySourceId, anatEntityTargetId, "
+                    + "relationType, relationStatus)", 5,
+                    (stmt, paramIndex, relation) -> {
+                        stmt.setInt(paramIndex, relation.getId());
+                        stmt.setString(paramIndex + 1, relation.getSourceId());
+                        stmt.setString(paramIndex + 2, relation.getTargetId());
+                        stmt.setString(paramIndex + 3,
+                                relation.getRelationType().getStringRepresentation());
+                        stmt.setString(paramIndex + 4,
+                                relation.getRelationStatus().getStringRepresentation());
+                        return paramIndex + 5;
+                    });
+    /**
+     * The {@code MySQLBatchInserter} used to insert relations between Gene Ontology terms,
+     * see {@link #insertGeneOntologyRelations(Collection)}.
+     */
+    private static final MySQLBatchInserter<RelationTO<String>> GO_RELATION_INSERTER =
+            new MySQLBatchInserter<>("INSERT INTO geneOntologyRelation (goAllTargetId, goAllSourceId)", 2,
+                    (stmt, paramIndex, rel) -> {
+                        stmt.setString(paramIndex, rel.getTargetId());
+                        stmt.setString(paramIndex + 1, rel.getSourceId());
+                        return paramIndex + 2;
+                    });
     /**
      * Constructor providing the {@code MySQLDAOManager} that this {@code MySQLDAO} 
      * will use to obtain {@code BgeeConnection}s.
@@ -691,31 +721,7 @@ public class MySQLRelationDAO extends MySQLDAO<RelationDAO.Attribute>
                     "No anatomical entity relation is given, then no relation is inserted"));
         }
         
-        // And we need to build two different queries. 
-        String sqlExpression = "INSERT INTO anatEntityRelation " +
-                "(anatEntityRelationId, anatEntitySourceId, anatEntityTargetId, " +
-                " relationType, relationStatus) " +
-                "VALUES (?, ?, ?, ?, ?)";
-        
-        // To not overload MySQL with an error com.mysql.jdbc.PacketTooBigException, 
-        // and because of laziness, we insert expression calls one at a time
-        int relationInsertedCount = 0;
-        try (BgeePreparedStatement stmt = 
-                this.getManager().getConnection().prepareStatement(sqlExpression)) {
-            for (RelationTO<String> relation: relations) {
-                stmt.setInt(1, relation.getId());
-                stmt.setString(2, relation.getSourceId());
-                stmt.setString(3, relation.getTargetId());
-                stmt.setString(4, relation.getRelationType().getStringRepresentation());
-                stmt.setString(5, relation.getRelationStatus().getStringRepresentation());
-                relationInsertedCount += stmt.executeUpdate();
-                stmt.clearParameters();
-            }
-        } catch (SQLException e) {
-            throw log.throwing(new DAOException(e));
-        }
-
-        return log.exit(relationInsertedCount);
+        return log.exit(ANAT_ENTITY_RELATION_INSERTER.insert(this.getManager(), relations));
     }
 
     @Override
@@ -728,27 +734,7 @@ public class MySQLRelationDAO extends MySQLDAO<RelationDAO.Attribute>
                     "No Gene Ontology relation is given, then no relation is inserted"));
         }
 
-        //to not overload MySQL with an error com.mysql.jdbc.PacketTooBigException, 
-        //and because of laziness, we insert terms one at a time
-        int relInsertedCount = 0;
-        String sql = "Insert into geneOntologyRelation (goAllTargetId, goAllSourceId) " +
-                "values (?, ?) ";
-        
-        try (BgeePreparedStatement stmt = 
-                this.getManager().getConnection().prepareStatement(sql)) {
-            
-            for (RelationTO<String> rel: relations) {
-                stmt.setString(1, rel.getTargetId());
-                stmt.setString(2, rel.getSourceId());
-                relInsertedCount += stmt.executeUpdate();
-                stmt.clearParameters();
-            }
-            
-            return log.exit(relInsertedCount);
-            
-        } catch (SQLException e) {
-            throw log.throwing(new DAOException(e));
-        }
+        return log.exit(GO_RELATION_INSERTER.insert(this.getManager(), relations));
     }
     
     /**
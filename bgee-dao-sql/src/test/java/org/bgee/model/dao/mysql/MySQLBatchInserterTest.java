@@ -0,0 +1,138 @@
+package org.bgee.model.dao.mysql;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.mysql.connector.BgeeConnection;
+import org.bgee.model.dao.mysql.connector.BgeePreparedStatement;
+import org.bgee.model.dao.mysql.connector.MySQLDAOManager;
+import org.junit.Test;
+
+/**
+ * Unit tests for the class {@link MySQLBatchInserter}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class MySQLBatchInserterTest extends TestAncestor {
+    private final static Logger log = LogManager.getLogger(MySQLBatchInserterTest.class.getName());
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Test {@link MySQLBatchInserter#generateSql(int)} and
+     * {@link MySQLBatchInserter#getRowCountPerStatement(int, long)}.
+     */
+    @Test
+    public void shouldComputeStatements() {
+        MySQLBatchInserter<Integer> inserter = new MySQLBatchInserter<>(
+                "INSERT INTO myTable (col1, col2)", 2, "ON DUPLICATE KEY UPDATE col2 = col2",
+                20, (stmt, paramIndex, i) -> paramIndex + 2);
+        assertEquals("INSERT INTO myTable (col1, col2) VALUES (?, ?), (?, ?) "
+                + "ON DUPLICATE KEY UPDATE col2 = col2", inserter.generateSql(2));
+
+        assertEquals("Incorrect row count bounded by the row count", 10,
+                inserter.getRowCountPerStatement(10, 1000000));
+        //67 bytes for the insert and end clauses, one row estimated to 20 bytes
+        //+ 8 bytes of placeholders and separator
+        assertEquals("Incorrect row count bounded by the size", 10,
+                inserter.getRowCountPerStatement(1000, 67 + 10 * 28 + 27));
+        assertEquals("Incorrect row count bounded by the number of parameters",
+                MySQLBatchInserter.MAX_PARAMETER_COUNT / 2,
+                inserter.getRowCountPerStatement(Integer.MAX_VALUE, Long.MAX_VALUE));
+        assertEquals("At least one row should be inserted per statement", 1,
+                inserter.getRowCountPerStatement(1000, 10));
+    }
+
+    /**
+     * Test {@link MySQLBatchInserter#insert(MySQLDAOManager, java.util.Collection)}
+     * using multi-row statements.
+     */
+    @Test
+    public void shouldInsertByChunks() throws SQLException {
+        List<Integer> boundValues = new ArrayList<>();
+        MySQLBatchInserter<Integer> inserter = new MySQLBatchInserter<>(
+                "INSERT INTO myTable (col1)", 1, (stmt, paramIndex, i) -> {
+                    stmt.setInt(paramIndex, i);
+                    boundValues.add(i);
+                    return paramIndex + 1;
+                });
+        MySQLDAOManager manager = mock(MySQLDAOManager.class);
+        BgeeConnection con = mock(BgeeConnection.class);
+        BgeePreparedStatement fullStmt = mock(BgeePreparedStatement.class);
+        BgeePreparedStatement lastStmt = mock(BgeePreparedStatement.class);
+        when(manager.getConnection()).thenReturn(con);
+        when(manager.getInsertMaxRowCount()).thenReturn(10);
+        when(manager.getInsertMaxBytes()).thenReturn(MySQLBatchInserter.DEFAULT_MAX_BYTES);
+        when(manager.isInsertUsingBatch()).thenReturn(false);
+        when(con.prepareStatement(inserter.generateSql(10))).thenReturn(fullStmt);
+        when(con.prepareStatement(inserter.generateSql(5))).thenReturn(lastStmt);
+        when(fullStmt.executeUpdate()).thenReturn(10);
+        when(lastStmt.executeUpdate()).thenReturn(5);
+
+        List<Integer> values = IntStream.range(0, 25).boxed().collect(Collectors.toList());
+        assertEquals("Incorrect number of rows inserted", 25, inserter.insert(manager, values));
+        assertEquals("Incorrect values bound", values, boundValues);
+        //the statement for full chunks is prepared only once
+        verify(con, times(1)).prepareStatement(inserter.generateSql(10));
+        verify(fullStmt, times(2)).executeUpdate();
+        verify(fullStmt).setInt(1, 0);
+        verify(fullStmt).setInt(1, 10);
+        verify(lastStmt, times(1)).executeUpdate();
+        verify(lastStmt, times(5)).setInt(anyInt(), anyInt());
+        verify(fullStmt).close();
+        verify(lastStmt).close();
+    }
+
+    /**
+     * Test {@link MySQLBatchInserter#insert(MySQLDAOManager, java.util.Collection)}
+     * using JDBC batches.
+     */
+    @Test
+    public void shouldInsertByBatches() throws SQLException {
+        MySQLBatchInserter<Integer> inserter = new MySQLBatchInserter<>(
+                "INSERT INTO myTable (col1, col2)", 2, (stmt, paramIndex, i) -> {
+                    stmt.setInt(paramIndex, i);
+                    stmt.setInt(paramIndex + 1, i);
+                    return paramIndex + 2;
+                });
+        MySQLDAOManager manager = mock(MySQLDAOManager.class);
+        BgeeConnection con = mock(BgeeConnection.class);
+        BgeePreparedStatement stmt = mock(BgeePreparedStatement.class);
+        when(manager.getConnection()).thenReturn(con);
+        when(manager.getInsertMaxRowCount()).thenReturn(10);
+        when(manager.getInsertMaxBytes()).thenReturn(MySQLBatchInserter.DEFAULT_MAX_BYTES);
+        when(manager.isInsertUsingBatch()).thenReturn(true);
+        when(con.prepareStatement("INSERT INTO myTable (col1, col2) VALUES (?, ?)"))
+            .thenReturn(stmt);
+        //simulate a driver rewriting batched statements, not able to report update counts
+        int[] noInfo = new int[10];
+        Arrays.fill(noInfo, Statement.SUCCESS_NO_INFO);
+        when(stmt.executeBatch()).thenReturn(noInfo, noInfo, new int[]{1, 1, 1});
+
+        List<Integer> values = IntStream.range(0, 23).boxed().collect(Collectors.toList());
+        assertEquals("Incorrect number of rows inserted", 23, inserter.insert(manager, values));
+        verify(stmt, times(23)).addBatch();
+        verify(stmt, times(3)).executeBatch();
+        verify(stmt, times(23)).setInt(eq(1), anyInt());
+        verify(stmt).close();
+    }
+}
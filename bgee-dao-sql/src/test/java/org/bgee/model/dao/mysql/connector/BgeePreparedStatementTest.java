@@ -158,6 +158,37 @@ public class BgeePreparedStatementTest extends TestAncestor
         MockDriver.initialize();
     }
     
+    /**
+     * Test that a statement canceled during its execution is reported
+     * as canceled to the {@link StatementProfiler}.
+     */
+    @Test
+    public void shouldProfileCanceledExecution() throws SQLException {
+        MockDriver.initialize();
+        BgeeConnection con = mock(BgeeConnection.class);
+        String sql = "SELECT * FROM shouldProfileCanceledExecution WHERE geneId IN (?, ?)";
+        BgeePreparedStatement stmt = new BgeePreparedStatement(con,
+                MockDriver.getMockStatement(), sql);
+        //the statement is canceled, as by another thread, while being executed
+        when(MockDriver.getMockStatement().executeQuery()).then(invocation -> {
+            stmt.cancel();
+            return null;
+        });
+        try {
+            stmt.executeQuery();
+            //if we reach that point, test failed
+            throw new AssertionError("QueryInterruptedException not thrown as expected");
+        } catch (QueryInterruptedException e) {
+            //test passed
+        }
+        StatementProfiler.ShapeStatistics stats = StatementProfiler.getInstance().getStatistics()
+                .get(StatementProfiler.getSqlShape(sql));
+        assertEquals("Incorrect execution count", 1, stats.getCount());
+        assertEquals("Incorrect canceled count", 1, stats.getCanceledCount());
+
+        MockDriver.initialize();
+    }
+
     /**
      * Test {@link BgeePreparedStatement#getRealPreparedStatement()}.
      */
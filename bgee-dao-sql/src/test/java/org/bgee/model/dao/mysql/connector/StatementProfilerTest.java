@@ -0,0 +1,126 @@
+package org.bgee.model.dao.mysql.connector;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.mysql.TestAncestor;
+import org.bgee.model.dao.mysql.connector.mock.MockDriver;
+import org.junit.Test;
+
+/**
+ * Unit tests for the class {@link StatementProfiler}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class StatementProfilerTest extends TestAncestor {
+    private final static Logger log =
+            LogManager.getLogger(StatementProfilerTest.class.getName());
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Test {@link StatementProfiler#getSqlShape(String)} and
+     * {@link StatementProfiler#countParameters(String)}.
+     */
+    @Test
+    public void shouldNormalizeSql() {
+        assertEquals("SELECT * FROM gene WHERE geneId IN (?+) AND speciesId = ?",
+                StatementProfiler.getSqlShape("SELECT *   FROM gene\n WHERE geneId IN (?, ?,?) "
+                        + "AND speciesId = ?"));
+        assertEquals("SELECT * FROM gene WHERE geneId IN (?+) AND speciesId = ?",
+                StatementProfiler.getSqlShape("SELECT * FROM gene WHERE geneId IN (?, ?) "
+                        + "AND speciesId = ?"));
+        assertEquals("INSERT INTO gene (geneId, speciesId) VALUES (?+)+",
+                StatementProfiler.getSqlShape("INSERT INTO gene (geneId, speciesId) "
+                        + "VALUES (?, ?), (?, ?), (?, ?)"));
+
+        assertEquals(4, StatementProfiler.countParameters(
+                "SELECT * FROM gene WHERE geneId IN (?, ?, ?) AND geneName != '?' AND speciesId = ?"));
+        assertEquals(0, StatementProfiler.countParameters(null));
+    }
+
+    /**
+     * Test {@link StatementProfiler#record(String, int, long, long, long, boolean)}.
+     */
+    @Test
+    public void shouldAggregateStatistics() {
+        StatementProfiler profiler = new StatementProfiler();
+        profiler.setSlowQueryThresholdInMs(100);
+        profiler.record("SELECT * FROM gene WHERE geneId IN (?, ?)", 2,
+                TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(60), 2, false);
+        profiler.record("SELECT * FROM gene WHERE geneId IN (?, ?, ?)", 3,
+                TimeUnit.MILLISECONDS.toNanos(150), -1, 0, true);
+        profiler.record("SELECT 1", 0, TimeUnit.MILLISECONDS.toNanos(500),
+                TimeUnit.MILLISECONDS.toNanos(500), 1, false);
+
+        Map<String, StatementProfiler.ShapeStatistics> stats = profiler.getStatistics();
+        assertEquals(2, stats.size());
+        //ordered by descending total execution time
+        assertEquals("SELECT 1", stats.keySet().iterator().next());
+
+        StatementProfiler.ShapeStatistics geneStats =
+                stats.get("SELECT * FROM gene WHERE geneId IN (?+)");
+        assertEquals(2, geneStats.getCount());
+        assertEquals(200, geneStats.getTotalExecutionInMs());
+        assertEquals(150, geneStats.getMaxExecutionInMs());
+        assertEquals(60, geneStats.getMeanTimeToFirstRowInMs());
+        assertEquals(2, geneStats.getRowCount());
+        assertEquals(3, geneStats.getMaxParameterCount());
+        assertEquals(1, geneStats.getCanceledCount());
+        assertEquals(1, geneStats.getSlowCount());
+
+        profiler.clear();
+        assertEquals(0, profiler.getStatistics().size());
+    }
+
+    /**
+     * Test that executions of {@link BgeePreparedStatement}s are reported
+     * to the shared {@code StatementProfiler}.
+     */
+    @Test
+    public void shouldProfileStatements() throws SQLException {
+        MockDriver.initialize();
+        StatementProfiler profiler = StatementProfiler.getInstance();
+        profiler.clear();
+        when(MockDriver.getMockStatement().executeUpdate()).thenReturn(3);
+        String sql = "UPDATE gene SET geneName = ? WHERE geneId IN (?, ?, ?)";
+
+        try (BgeePreparedStatement stmt = new BgeePreparedStatement(
+                mock(BgeeConnection.class), MockDriver.getMockStatement(), sql)) {
+            stmt.executeUpdate();
+            stmt.executeUpdate();
+        }
+        StatementProfiler.ShapeStatistics stats = profiler.getStatistics().get(
+                StatementProfiler.getSqlShape(sql));
+        assertEquals(2, stats.getCount());
+        assertEquals(6, stats.getRowCount());
+        assertEquals(4, stats.getMaxParameterCount());
+        assertEquals(0, stats.getCanceledCount());
+
+        //rows iterated after a query are reported when the statement is closed
+        BgeePreparedStatement stmt = new BgeePreparedStatement(
+                mock(BgeeConnection.class), MockDriver.getMockStatement(), "SELECT 1");
+        stmt.executeQuery();
+        stmt.rowIterated();
+        stmt.rowIterated();
+        assertEquals(null, profiler.getStatistics().get("SELECT 1"));
+        stmt.close();
+        stats = profiler.getStatistics().get("SELECT 1");
+        assertEquals(1, stats.getCount());
+        assertEquals(2, stats.getRowCount());
+
+        profiler.clear();
+        MockDriver.initialize();
+    }
+}
@@ -0,0 +1,100 @@
+package org.bgee.model.dao.mysql.expressiondata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.api.expressiondata.DAODataType;
+import org.bgee.model.dao.api.expressiondata.DAOExperimentCount.CallType;
+import org.bgee.model.dao.api.expressiondata.DAOExperimentCount.DataQuality;
+import org.bgee.model.dao.api.expressiondata.DAOPropagationState;
+import org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO.GlobalExpressionCallDataTO;
+import org.bgee.model.dao.mysql.connector.BgeePreparedStatement;
+
+/**
+ * Micro-benchmark of the binding of the parameters of {@code GlobalExpressionCallDataTO}s
+ * to insert statements by {@link MySQLGlobalExpressionCallDAO}, using the count vectors,
+ * compared to looking up each count in the {@code Set} of {@code DAOExperimentCount}s,
+ * as previously done.
+ * <p>
+ * This is not a unit test, since it only measures timings: it is not run by surefire,
+ * and must be launched manually, e.g.:
+ * {@code java -cp <test classpath> org.bgee.model.dao.mysql.expressiondata.MySQLGlobalExpressionCallDAOBenchmark 20000 5}.
+ * The timings are logged, and printed to the standard output.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class MySQLGlobalExpressionCallDAOBenchmark {
+    private final static Logger log = LogManager.getLogger(MySQLGlobalExpressionCallDAOBenchmark.class.getName());
+
+    /**
+     * @param args  An {@code Array} of {@code String}s containing optionally
+     *              the number of {@code GlobalExpressionCallDataTO}s to bind (default 20000),
+     *              and the number of iterations (default 5), the first iterations
+     *              being warm-up.
+     * @throws Exception    If the fake statement could not be created.
+     */
+    public static void main(String[] args) throws Exception {
+        log.entry((Object[]) args);
+        int toCount = args.length > 0? Integer.parseInt(args[0]): 20000;
+        int iterations = args.length > 1? Integer.parseInt(args[1]): 5;
+
+        Object[] params = new Object[20];
+        BgeePreparedStatement stmt = MySQLGlobalExpressionCallDAOTest.getStatement(params);
+        List<GlobalExpressionCallDataTO> callDataTOs = new ArrayList<>(toCount);
+        for (int i = 0; i < toCount; i++) {
+            callDataTOs.add(MySQLGlobalExpressionCallDAOTest.getCallDataTO(DAODataType.AFFYMETRIX, i));
+        }
+
+        long vectorNanos = Long.MAX_VALUE;
+        long lookupNanos = Long.MAX_VALUE;
+        long checksum = 0;
+        //first iterations are warm-up, we keep the best time
+        for (int iter = 0; iter < iterations; iter++) {
+            long start = System.nanoTime();
+            for (GlobalExpressionCallDataTO callDataTO: callDataTOs) {
+                MySQLGlobalExpressionCallDAO.setStatementCallDataParameters(stmt, 1, callDataTO,
+                        DAODataType.AFFYMETRIX);
+            }
+            vectorNanos = Math.min(vectorNanos, System.nanoTime() - start);
+            checksum += (Integer) params[4];
+
+            start = System.nanoTime();
+            for (GlobalExpressionCallDataTO callDataTO: callDataTOs) {
+                int paramIndex = 4;
+                for (DAOPropagationState propState: Arrays.asList(DAOPropagationState.SELF,
+                        null, DAOPropagationState.ALL)) {
+                    for (CallType callType: CallType.values()) {
+                        DAOPropagationState state = propState != null? propState:
+                            CallType.PRESENT.equals(callType)? DAOPropagationState.DESCENDANT:
+                                DAOPropagationState.ANCESTOR;
+                        for (DataQuality quality: new DataQuality[]{DataQuality.HIGH, DataQuality.LOW}) {
+                            stmt.setInt(paramIndex, callDataTO.getExperimentCounts().stream()
+                                    .filter(c -> callType.equals(c.getCallType()) &&
+                                                 quality.equals(c.getDataQuality()) &&
+                                                 state.equals(c.getPropagationState()))
+                                    .findFirst().orElseThrow(() -> new IllegalArgumentException())
+                                    .getCount());
+                            paramIndex++;
+                        }
+                    }
+                }
+            }
+            lookupNanos = Math.min(lookupNanos, System.nanoTime() - start);
+            checksum += (Integer) params[4];
+        }
+        String result = "Binding of " + toCount + " call data: count vectors: "
+                + TimeUnit.NANOSECONDS.toMillis(vectorNanos) + " ms ("
+                + toCount * TimeUnit.SECONDS.toNanos(1) / Math.max(1, vectorNanos)
+                + " per second) - count lookups: " + TimeUnit.NANOSECONDS.toMillis(lookupNanos)
+                + " ms (" + toCount * TimeUnit.SECONDS.toNanos(1) / Math.max(1, lookupNanos)
+                + " per second) - checksum " + checksum;
+        log.info(result);
+        System.out.println(result);
+        log.exit();
+    }
+}
@@ -0,0 +1,117 @@
+package org.bgee.model.dao.mysql.expressiondata;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO;
+import org.bgee.model.dao.api.expressiondata.DAODataType;
+import org.bgee.model.dao.api.expressiondata.DAOExperimentCount;
+import org.bgee.model.dao.api.expressiondata.DAOExperimentCount.CallType;
+import org.bgee.model.dao.api.expressiondata.DAOExperimentCount.DataQuality;
+import org.bgee.model.dao.api.expressiondata.DAOPropagationState;
+import org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO.GlobalExpressionCallDataTO;
+import org.bgee.model.dao.mysql.TestAncestor;
+import org.bgee.model.dao.mysql.connector.BgeeConnection;
+import org.bgee.model.dao.mysql.connector.BgeePreparedStatement;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link MySQLGlobalExpressionCallDAO} not requiring a database.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class MySQLGlobalExpressionCallDAOTest extends TestAncestor {
+    private final static Logger log = LogManager.getLogger(MySQLGlobalExpressionCallDAOTest.class.getName());
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Test {@link MySQLGlobalExpressionCallDAO#setStatementCallDataParameters(
+     * BgeePreparedStatement, int, GlobalExpressionCallDataTO, DAODataType)}.
+     */
+    @Test
+    public void shouldSetCallDataParameters() throws Exception {
+        Object[] params = new Object[20];
+        BgeePreparedStatement stmt = getStatement(params);
+
+        int paramIndex = MySQLGlobalExpressionCallDAO.setStatementCallDataParameters(stmt, 1,
+                getCallDataTO(DAODataType.AFFYMETRIX, 1), DAODataType.AFFYMETRIX);
+        assertEquals("Incorrect parameter index", 17, paramIndex);
+        assertEquals("Incorrect parameters", Arrays.asList("self", null, true,
+                //self, descendant/parent, total counts
+                1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12,
+                //propagated count
+                13), Arrays.asList(params).subList(1, 17));
+
+        Arrays.fill(params, null);
+        paramIndex = MySQLGlobalExpressionCallDAO.setStatementCallDataParameters(stmt, 1,
+                getCallDataTO(DAODataType.EST, 1), DAODataType.EST);
+        assertEquals("Incorrect parameter index", 11, paramIndex);
+        assertEquals("Incorrect parameters", Arrays.asList("self", null, true,
+                1, 2, 5, 6, 9, 10, 13), Arrays.asList(params).subList(1, 11));
+    }
+
+    /**
+     * @param params    An {@code Object} array where the parameters set to the returned
+     *                  {@code BgeePreparedStatement} are stored, at their parameter index.
+     * @return          A {@code BgeePreparedStatement} wrapping a fake {@code PreparedStatement}.
+     */
+    static BgeePreparedStatement getStatement(Object[] params) throws Exception {
+        PreparedStatement realStmt = (PreparedStatement) Proxy.newProxyInstance(
+                MySQLGlobalExpressionCallDAOTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("setNull")) {
+                        params[(Integer) args[0]] = null;
+                    } else if (method.getName().startsWith("set") && args.length == 2) {
+                        params[(Integer) args[0]] = args[1];
+                    }
+                    return null;
+                });
+        //constructor package-private
+        Constructor<BgeePreparedStatement> constructor = BgeePreparedStatement.class
+                .getDeclaredConstructor(BgeeConnection.class, PreparedStatement.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance(null, realStmt);
+    }
+
+    /**
+     * @return  A {@code GlobalExpressionCallDataTO} with counts from {@code firstCount}
+     *          to {@code firstCount + 11} in the order of the count columns,
+     *          and a propagated count of {@code firstCount + 12}.
+     */
+    static GlobalExpressionCallDataTO getCallDataTO(DAODataType dataType, int firstCount) {
+        Set<DAOExperimentCount> counts = new HashSet<>();
+        int count = firstCount;
+        for (DAOPropagationState propState: Arrays.asList(DAOPropagationState.SELF,
+                null, DAOPropagationState.ALL)) {
+            for (CallType callType: CallType.values()) {
+                DAOPropagationState state = propState != null? propState:
+                    CallType.PRESENT.equals(callType)? DAOPropagationState.DESCENDANT:
+                        DAOPropagationState.ANCESTOR;
+                for (DataQuality quality: new DataQuality[]{DataQuality.HIGH, DataQuality.LOW}) {
+                    counts.add(new DAOExperimentCount(callType, quality, state, count));
+                    count++;
+                }
+            }
+        }
+        Map<ConditionDAO.Attribute, DAOPropagationState> dataProp = new HashMap<>();
+        dataProp.put(ConditionDAO.Attribute.ANAT_ENTITY_ID, DAOPropagationState.SELF);
+        dataProp.put(ConditionDAO.Attribute.STAGE_ID, null);
+        return new GlobalExpressionCallDataTO(dataType, true, dataProp, counts, count,
+                null, null, null);
+    }
+}
@@ -4,22 +4,27 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.mysql.connector.StatementProfiler;
 import org.bgee.pipeline.annotations.AnnotationCommon;
 import org.bgee.pipeline.annotations.InsertSimilarityAnnotation;
 import org.bgee.pipeline.annotations.SimilarityAnnotation;
 import org.bgee.pipeline.easybgee.BgeeToEasyBgee;
 import org.bgee.pipeline.expression.GenoFishProject;
+import org.bgee.pipeline.expression.DistributedPropagation;
 import org.bgee.pipeline.expression.InsertPropagatedCalls;
+import org.bgee.pipeline.expression.LoadPropagatedCalls;
 import org.bgee.pipeline.expression.downloadfile.GenerateExprFile2;
 import org.bgee.pipeline.expression.downloadfile.GenerateInsertGeneStats;
 import org.bgee.pipeline.expression.downloadfile.GenerateUniprotXRefWithExprInfo;
 import org.bgee.pipeline.expression.downloadfile.collaboration.GenerateBioSODAFile;
 import org.bgee.pipeline.expression.downloadfile.collaboration.GenerateOncoMXFile;
 import org.bgee.pipeline.expression.downloadfile.GenerateDiffExprFile;
+import org.bgee.pipeline.gene.GenerateGeneSearchIndex;
 import org.bgee.pipeline.gene.InsertGO;
 import org.bgee.pipeline.gene.ParseOrthoXML;
 import org.bgee.pipeline.ontologycommon.InsertCIO;
@@ -111,6 +116,11 @@ public class CommandRunner {
      * @see #parseListArgument(String)
      */
     public static final String EMPTY_ARG = "-";
+    /**
+     * A {@code String} that is the prefix of the {@link PipelineMetrics} reporting
+     * the statistics of the SQL statements executed, see {@link #getQueryMetrics()}.
+     */
+    public static final String SQL_METRIC_PREFIX = "sql";
 
     /**
      * Force configuration of loggers used by dependencies. 
@@ -188,9 +198,61 @@ public class CommandRunner {
             newArgs[i-1] = args[i];
         }
 
+        //metrics reports are enabled through System properties, see PipelineMetrics
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        metrics.startFromSystemProperties();
+        metrics.gaugeSet(SQL_METRIC_PREFIX, CommandRunner::getQueryMetrics);
+        try {
+            runAction(args[0], newArgs);
+        } finally {
+            //relate the identifiers of SQL shapes used in metrics to their SQL
+            StatementProfiler.getInstance().logStatistics();
+            metrics.close();
+        }
+
+        log.exit();
+    }
+
+    /**
+     * Provides the statistics aggregated by the {@code StatementProfiler} as metrics,
+     * named after the identifiers of the SQL shapes (for instance, {@code 1a2b3c4d.count}).
+     * The SQL of each shape is logged to the slow-query log at the end of the run.
+     *
+     * @return  A {@code Map} where keys are {@code String}s that are names of metrics,
+     *          the associated value being their current value.
+     * @see StatementProfiler#logStatistics()
+     */
+    static Map<String, Long> getQueryMetrics() {
+        log.entry();
+        Map<String, Long> queryMetrics = new LinkedHashMap<>();
+        for (StatementProfiler.ShapeStatistics stats:
+                StatementProfiler.getInstance().getStatistics().values()) {
+            queryMetrics.put(stats.getId() + ".count", stats.getCount());
+            queryMetrics.put(stats.getId() + ".totalMs", stats.getTotalExecutionInMs());
+            queryMetrics.put(stats.getId() + ".maxMs", stats.getMaxExecutionInMs());
+            queryMetrics.put(stats.getId() + ".firstRowMs", stats.getMeanTimeToFirstRowInMs());
+            queryMetrics.put(stats.getId() + ".rows", stats.getRowCount());
+            queryMetrics.put(stats.getId() + ".canceled", stats.getCanceledCount());
+            queryMetrics.put(stats.getId() + ".slow", stats.getSlowCount());
+        }
+        return log.exit(queryMetrics);
+    }
+
+    /**
+     * Dispatch the work to the class performing the requested action.
+     *
+     * @param action    A {@code String} that is the name of the action to perform.
+     * @param newArgs   An {@code Array} of {@code String}s that are the arguments
+     *                  of the action.
+     * @throws Exception    Any kind of {@code Exception} thrown by
+     *                      the class performing the action.
+     * @see #main(String[])
+     */
+    private static void runAction(String action, String[] newArgs) throws Exception {
+        log.entry(action, newArgs);
 
         //now choose the class to dispatch the work
-        switch(args[0]) {
+        switch(action) {
 
         //---------- species and taxonomy -----------
         case "GenerateTaxonOntology": 
@@ -262,6 +324,12 @@ public class CommandRunner {
         case "InsertPropagatedCalls": 
             InsertPropagatedCalls.main(newArgs);
             break;
+        case "LoadPropagatedCalls": 
+            LoadPropagatedCalls.main(newArgs);
+            break;
+        case "DistributedPropagation": 
+            DistributedPropagation.main(newArgs);
+            break;
         case "CorrectTaxonConstraints":
             CorrectTaxonConstraints.main(newArgs);
             break;
@@ -291,6 +359,9 @@ public class CommandRunner {
         case "GenerateBioSODAFile":
             GenerateBioSODAFile.main(newArgs);
             break;
+        case "GenerateGeneSearchIndex":
+            GenerateGeneSearchIndex.main(newArgs);
+            break;
         
         //---------- Generate EasyBgee database -----------
         case "GenerateEasyBgee":
@@ -310,7 +381,7 @@ public class CommandRunner {
 
         default: 
             throw log.throwing(new UnsupportedOperationException("The following action " +
-                    "is not recognized: " + args[0]));
+                    "is not recognized: " + action));
         }
 
         log.exit();
@@ -0,0 +1,286 @@
+package org.bgee.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs independent {@link Job}s using a dedicated pool with an explicit number of worker threads.
+ * This class is meant to replace nested parallel {@code Stream}s on the common fork-join pool
+ * for tasks performing blocking I/O (such as database queries): with parallel {@code Stream}s,
+ * the parallelism depends on the global property
+ * {@code java.util.concurrent.ForkJoinPool.common.parallelism}, and blocking tasks
+ * can starve the other ones.
+ * <p>
+ * Jobs are started by decreasing {@link Job#getSize() size}, so that the biggest jobs
+ * are not the last ones to be started. A {@code Job} failing is retried up to
+ * {@link #getMaxAttempts()} times. Once all jobs are completed, a summary providing
+ * for each job its duration and the number of rows it wrote is logged,
+ * and an {@code IllegalStateException} is thrown if some jobs failed after all retries.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class JobScheduler {
+    private final static Logger log = LogManager.getLogger(JobScheduler.class.getName());
+
+    private final static PipelineMetrics METRICS = PipelineMetrics.getInstance();
+    private final static PipelineMetrics.Counter JOBS_COMPLETED = METRICS.counter("jobs.completed");
+    private final static PipelineMetrics.Counter JOBS_FAILED_ATTEMPTS =
+            METRICS.counter("jobs.failedAttempts");
+    private final static PipelineMetrics.Counter JOBS_ROWS_WRITTEN = METRICS.counter("jobs.rowsWritten");
+    private final static PipelineMetrics.Timer JOBS_DURATION = METRICS.timer("jobs.duration");
+
+    /**
+     * A task run by a {@link Job}.
+     */
+    @FunctionalInterface
+    public static interface JobTask {
+        /**
+         * @return              A {@code long} that is the number of rows written by the task.
+         * @throws Exception    If an error occurred. The task might then be retried,
+         *                      so it must clean after itself, or be idempotent.
+         */
+        public long run() throws Exception;
+    }
+
+    /**
+     * A named {@code JobTask} with a size estimate, used to schedule biggest jobs first.
+     */
+    public static class Job {
+        private final String name;
+        private final long size;
+        private final JobTask task;
+
+        /**
+         * @param name  A {@code String} that is the name of the job, used in logs and summary.
+         * @param size  A {@code long} that is the estimated size of the job. Jobs are started
+         *              by decreasing size.
+         * @param task  The {@code JobTask} to run.
+         */
+        public Job(String name, long size, JobTask task) {
+            if (task == null) {
+                throw log.throwing(new IllegalArgumentException("A task must be provided"));
+            }
+            this.name = name;
+            this.size = size;
+            this.task = task;
+        }
+
+        public String getName() {
+            return name;
+        }
+        public long getSize() {
+            return size;
+        }
+        public JobTask getTask() {
+            return task;
+        }
+
+        @Override
+        public String toString() {
+            return "Job [name=" + name + ", size=" + size + "]";
+        }
+    }
+
+    /**
+     * The result of running a {@code Job}.
+     */
+    public static class JobResult {
+        private final Job job;
+        private final int attemptCount;
+        private final long durationInMs;
+        private final long rowCount;
+        private final Throwable error;
+
+        private JobResult(Job job, int attemptCount, long durationInMs, long rowCount, Throwable error) {
+            this.job = job;
+            this.attemptCount = attemptCount;
+            this.durationInMs = durationInMs;
+            this.rowCount = rowCount;
+            this.error = error;
+        }
+
+        public Job getJob() {
+            return job;
+        }
+        /**
+         * @return  An {@code int} that is the number of attempts used to run the job.
+         */
+        public int getAttemptCount() {
+            return attemptCount;
+        }
+        /**
+         * @return  A {@code long} that is the duration in milliseconds of the last attempt
+         *          to run the job.
+         */
+        public long getDurationInMs() {
+            return durationInMs;
+        }
+        /**
+         * @return  A {@code long} that is the number of rows written by the job.
+         */
+        public long getRowCount() {
+            return rowCount;
+        }
+        /**
+         * @return  The {@code Throwable} that made the last attempt fail,
+         *          {@code null} if the job succeeded.
+         */
+        public Throwable getError() {
+            return error;
+        }
+        /**
+         * @return  {@code true} if the job completed successfully.
+         */
+        public boolean isSuccessful() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return job.getName() + ": " + (this.isSuccessful()? "OK": "FAILED")
+                    + " - attempts: " + attemptCount + " - duration: " + durationInMs
+                    + " ms - rows written: " + rowCount;
+        }
+    }
+
+    /**
+     * An {@code int} that is the number of worker threads used to run jobs.
+     */
+    private final int workerCount;
+    /**
+     * An {@code int} that is the maximum number of attempts to run each job.
+     */
+    private final int maxAttempts;
+
+    /**
+     * @param workerCount   An {@code int} that is the number of worker threads used to run jobs.
+     * @param maxAttempts   An {@code int} that is the maximum number of attempts to run each job.
+     * @throws IllegalArgumentException If {@code workerCount} or {@code maxAttempts} is less than 1.
+     */
+    public JobScheduler(int workerCount, int maxAttempts) throws IllegalArgumentException {
+        if (workerCount < 1 || maxAttempts < 1) {
+            throw log.throwing(new IllegalArgumentException(
+                    "The number of workers and of attempts must be at least 1"));
+        }
+        this.workerCount = workerCount;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Run {@code jobs} and wait for their completion. Jobs are started by decreasing size,
+     * jobs with equal size being started in iteration order of {@code jobs}.
+     *
+     * @param jobs  A {@code Collection} of {@code Job}s to run.
+     * @return      A {@code List} of {@code JobResult}s, in the order the jobs were started.
+     * @throws IllegalStateException    If some jobs failed after all retries,
+     *                                  or if the current thread was interrupted.
+     */
+    public List<JobResult> run(Collection<Job> jobs) throws IllegalStateException {
+        log.entry(jobs);
+        //Stable sort, so that the order of jobs with a same size is preserved
+        List<Job> orderedJobs = jobs.stream()
+                .sorted(Comparator.comparingLong(Job::getSize).reversed())
+                .collect(Collectors.toList());
+        log.info("Running {} jobs with {} workers", orderedJobs.size(), this.workerCount);
+
+        final AtomicInteger threadCounter = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(this.workerCount, orderedJobs.size())),
+                r -> {
+                    Thread t = new Thread(r, "job-worker-" + threadCounter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        List<JobResult> results = new ArrayList<>();
+        try {
+            List<Future<JobResult>> futures = orderedJobs.stream()
+                    .map(job -> executor.submit(() -> this.runJob(job)))
+                    .collect(Collectors.toList());
+            for (Future<JobResult> future: futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw log.throwing(new IllegalStateException("Interrupted while waiting for jobs", e));
+        } catch (ExecutionException e) {
+            //should not happen, runJob catches all errors
+            throw log.throwing(new IllegalStateException(e.getCause()));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.info("Job summary:\n{}", results.stream().map(JobResult::toString)
+                .collect(Collectors.joining("\n")));
+        List<JobResult> failedResults = results.stream().filter(r -> !r.isSuccessful())
+                .collect(Collectors.toList());
+        if (!failedResults.isEmpty()) {
+            throw log.throwing(new IllegalStateException("Some jobs failed: "
+                    + failedResults.stream().map(r -> r.getJob().getName())
+                        .collect(Collectors.joining(", ")),
+                    failedResults.get(0).getError()));
+        }
+        return log.exit(results);
+    }
+
+    /**
+     * Run {@code job}, retrying it up to {@link #getMaxAttempts()} times if it fails.
+     *
+     * @param job   The {@code Job} to run.
+     * @return      The {@code JobResult} of the last attempt.
+     */
+    private JobResult runJob(Job job) {
+        log.entry(job);
+        JobResult result = null;
+        for (int attempt = 1; attempt <= this.maxAttempts; attempt++) {
+            log.info("Starting {}, attempt {}/{}", job.getName(), attempt, this.maxAttempts);
+            long startTime = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            try {
+                long rowCount = job.getTask().run();
+                result = new JobResult(job, attempt, System.currentTimeMillis() - startTime,
+                        rowCount, null);
+                JOBS_DURATION.recordSince(startNanos);
+                JOBS_COMPLETED.increment();
+                JOBS_ROWS_WRITTEN.add(rowCount);
+                log.info("Done {} in {} ms, {} rows written", job.getName(),
+                        result.getDurationInMs(), rowCount);
+                return log.exit(result);
+            } catch (Exception e) {
+                result = new JobResult(job, attempt, System.currentTimeMillis() - startTime, 0, e);
+                JOBS_FAILED_ATTEMPTS.increment();
+                log.catching(e);
+                log.warn("Attempt {}/{} of {} failed: {}", attempt, this.maxAttempts,
+                        job.getName(), e.getMessage());
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+        }
+        return log.exit(result);
+    }
+
+    /**
+     * @return  An {@code int} that is the number of worker threads used to run jobs.
+     */
+    public int getWorkerCount() {
+        return workerCount;
+    }
+    /**
+     * @return  An {@code int} that is the maximum number of attempts to run each job.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
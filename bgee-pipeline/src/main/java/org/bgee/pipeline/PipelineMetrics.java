@@ -0,0 +1,433 @@
+package org.bgee.pipeline;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Registry of metrics used to monitor long-running pipeline commands: {@link Counter}s
+ * (for instance, number of rows read or inserted), gauges (for instance, depth of a queue)
+ * and {@link Timer}s (for instance, busy time of a thread, or time spent waiting
+ * for the database). All metrics are thread-safe and cheap to update, they can be used
+ * from any thread.
+ * <p>
+ * A snapshot of the metrics can be periodically written to a TSV file
+ * (see {@link #startFileReport(Path, long)}), and served by a HTTP server listening
+ * on the loopback interface only (see {@link #startHttpServer(int)}). When using
+ * {@link CommandRunner}, these reports can be enabled with the System properties
+ * {@link #FILE_PROPERTY}, {@link #INTERVAL_PROPERTY} and {@link #PORT_PROPERTY}
+ * (see {@link #startFromSystemProperties()}).
+ * <p>
+ * Metrics are written one per line, with the name of the metric and its value,
+ * separated by a tab. A {@code Timer} named {@code name} is written as three metrics:
+ * {@code name.count}, {@code name.totalMs} and {@code name.maxMs}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class PipelineMetrics implements AutoCloseable {
+    private final static Logger log = LogManager.getLogger(PipelineMetrics.class.getName());
+
+    /**
+     * A {@code String} that is the name of the System property defining the path
+     * to the file where to periodically write the metrics.
+     */
+    public final static String FILE_PROPERTY = "bgee.pipeline.metrics.file";
+    /**
+     * A {@code String} that is the name of the System property defining the interval
+     * in seconds between two writings of the metrics file. Default is
+     * {@link #DEFAULT_INTERVAL_IN_SEC}.
+     */
+    public final static String INTERVAL_PROPERTY = "bgee.pipeline.metrics.interval";
+    /**
+     * A {@code String} that is the name of the System property defining the port
+     * on which to serve the metrics over HTTP, on the loopback interface.
+     */
+    public final static String PORT_PROPERTY = "bgee.pipeline.metrics.port";
+    /**
+     * A {@code long} that is the default interval in seconds between two writings
+     * of the metrics file.
+     */
+    public final static long DEFAULT_INTERVAL_IN_SEC = 30;
+    /**
+     * A {@code String} that is the path of the HTTP context serving the metrics.
+     */
+    public final static String HTTP_CONTEXT = "/metrics";
+
+    /**
+     * The {@code PipelineMetrics} instance shared by all pipeline tools.
+     */
+    private final static PipelineMetrics INSTANCE = new PipelineMetrics();
+
+    /**
+     * @return  The {@code PipelineMetrics} instance shared by all pipeline tools.
+     */
+    public static PipelineMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * A monotonically increasing count.
+     */
+    public static class Counter {
+        private final LongAdder adder = new LongAdder();
+
+        public void increment() {
+            this.adder.increment();
+        }
+        public void add(long value) {
+            this.adder.add(value);
+        }
+        public long getCount() {
+            return this.adder.sum();
+        }
+    }
+
+    /**
+     * Records durations: number of recorded events, total and maximum duration.
+     */
+    public static class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        /**
+         * @param durationInNanos   A {@code long} that is the duration to record, in nanoseconds.
+         */
+        public void record(long durationInNanos) {
+            this.count.increment();
+            this.totalNanos.add(durationInNanos);
+            this.maxNanos.accumulate(durationInNanos);
+        }
+        /**
+         * Record the time elapsed since {@code startNanos}.
+         *
+         * @param startNanos    A {@code long} that is a value previously returned
+         *                      by {@code System.nanoTime()}.
+         */
+        public void recordSince(long startNanos) {
+            this.record(System.nanoTime() - startNanos);
+        }
+        public long getCount() {
+            return this.count.sum();
+        }
+        public long getTotalInMs() {
+            return TimeUnit.NANOSECONDS.toMillis(this.totalNanos.sum());
+        }
+        public long getMaxInMs() {
+            return TimeUnit.NANOSECONDS.toMillis(this.maxNanos.get());
+        }
+    }
+
+    private final ConcurrentMap<String, Counter> counters;
+    private final ConcurrentMap<String, Timer> timers;
+    private final ConcurrentMap<String, LongSupplier> gauges;
+    private final ConcurrentMap<String, Supplier<Map<String, Long>>> gaugeSets;
+    /**
+     * A {@code long} that is the value of {@code System.currentTimeMillis()}
+     * when this object was instantiated.
+     */
+    private final long startTime;
+
+    private ScheduledExecutorService fileReporter;
+    private Path reportFile;
+    private HttpServer httpServer;
+
+    /**
+     * Constructor public for test purpose, pipeline tools should use
+     * the shared instance returned by {@link #getInstance()}.
+     */
+    public PipelineMetrics() {
+        this.counters = new ConcurrentHashMap<>();
+        this.timers = new ConcurrentHashMap<>();
+        this.gauges = new ConcurrentHashMap<>();
+        this.gaugeSets = new ConcurrentHashMap<>();
+        this.startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * @param name  A {@code String} that is the name of the requested {@code Counter}.
+     * @return      The {@code Counter} with name {@code name}, created if needed.
+     */
+    public Counter counter(String name) {
+        return this.counters.computeIfAbsent(name, k -> new Counter());
+    }
+    /**
+     * @param name  A {@code String} that is the name of the requested {@code Timer}.
+     * @return      The {@code Timer} with name {@code name}, created if needed.
+     */
+    public Timer timer(String name) {
+        return this.timers.computeIfAbsent(name, k -> new Timer());
+    }
+    /**
+     * Register a gauge, replacing any gauge previously registered with the same name.
+     *
+     * @param name      A {@code String} that is the name of the gauge.
+     * @param supplier  A {@code LongSupplier} providing the current value of the gauge.
+     */
+    public void gauge(String name, LongSupplier supplier) {
+        this.gauges.put(name, supplier);
+    }
+    /**
+     * @param name  A {@code String} that is the name of the gauge to remove.
+     */
+    public void removeGauge(String name) {
+        this.gauges.remove(name);
+    }
+    /**
+     * Register a set of gauges whose names are not known in advance, replacing any set
+     * previously registered with the same prefix. Each metric provided by {@code supplier}
+     * is reported with the name {@code prefix.name}.
+     *
+     * @param prefix    A {@code String} that is the prefix of the names of the gauges.
+     * @param supplier  A {@code Supplier} of {@code Map}s where keys are {@code String}s
+     *                  that are names of gauges, the associated value being their current value.
+     */
+    public void gaugeSet(String prefix, Supplier<Map<String, Long>> supplier) {
+        this.gaugeSets.put(prefix, supplier);
+    }
+    /**
+     * @param prefix    A {@code String} that is the prefix of the set of gauges to remove.
+     */
+    public void removeGaugeSet(String prefix) {
+        this.gaugeSets.remove(prefix);
+    }
+
+    /**
+     * @return  A {@code SortedMap} where keys are {@code String}s that are names of metrics,
+     *          the associated value being their current value.
+     */
+    public SortedMap<String, Long> snapshot() {
+        log.entry();
+        SortedMap<String, Long> snapshot = new TreeMap<>();
+        snapshot.put("timestamp", System.currentTimeMillis());
+        snapshot.put("uptimeMs", System.currentTimeMillis() - this.startTime);
+        for (Entry<String, Counter> e: this.counters.entrySet()) {
+            snapshot.put(e.getKey(), e.getValue().getCount());
+        }
+        for (Entry<String, Timer> e: this.timers.entrySet()) {
+            snapshot.put(e.getKey() + ".count", e.getValue().getCount());
+            snapshot.put(e.getKey() + ".totalMs", e.getValue().getTotalInMs());
+            snapshot.put(e.getKey() + ".maxMs", e.getValue().getMaxInMs());
+        }
+        for (Entry<String, LongSupplier> e: this.gauges.entrySet()) {
+            try {
+                snapshot.put(e.getKey(), e.getValue().getAsLong());
+            } catch (RuntimeException ex) {
+                //a failing gauge should not prevent reporting the other metrics
+                log.catching(ex);
+            }
+        }
+        for (Entry<String, Supplier<Map<String, Long>>> e: this.gaugeSets.entrySet()) {
+            try {
+                for (Entry<String, Long> gauge: e.getValue().get().entrySet()) {
+                    snapshot.put(e.getKey() + "." + gauge.getKey(), gauge.getValue());
+                }
+            } catch (RuntimeException ex) {
+                log.catching(ex);
+            }
+        }
+        return log.exit(snapshot);
+    }
+
+    /**
+     * Write a snapshot of the metrics to {@code writer}, one metric per line,
+     * with name and value separated by a tab.
+     *
+     * @param writer        The {@code Writer} to write into.
+     * @throws IOException  If an error occurred while writing.
+     */
+    public void write(Writer writer) throws IOException {
+        log.entry(writer);
+        for (Entry<String, Long> e: this.snapshot().entrySet()) {
+            writer.write(e.getKey() + "\t" + e.getValue() + "\n");
+        }
+        writer.flush();
+        log.exit();
+    }
+
+    /**
+     * Write a snapshot of the metrics to {@code file}. The metrics are first written
+     * to a temporary file that is then moved to {@code file}, so that a reader
+     * never sees a partially written file.
+     *
+     * @param file          The {@code Path} of the file to write.
+     * @throws IOException  If an error occurred while writing.
+     */
+    public void writeToFile(Path file) throws IOException {
+        log.entry(file);
+        Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+            this.write(writer);
+        }
+        Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+        log.exit();
+    }
+
+    /**
+     * Periodically write a snapshot of the metrics to {@code file}, using a daemon thread.
+     *
+     * @param file              The {@code Path} of the file to write.
+     * @param intervalInSec     A {@code long} that is the interval in seconds
+     *                          between two writings.
+     * @throws IllegalStateException    If the file report was already started.
+     */
+    public synchronized void startFileReport(Path file, long intervalInSec) {
+        log.entry(file, intervalInSec);
+        if (this.fileReporter != null) {
+            throw log.throwing(new IllegalStateException("File report already started"));
+        }
+        this.reportFile = file;
+        this.fileReporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-file-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        this.fileReporter.scheduleAtFixedRate(() -> {
+            try {
+                this.writeToFile(file);
+            } catch (IOException e) {
+                //we don't want to stop the pipeline because of the metrics
+                log.catching(e);
+            }
+        }, intervalInSec, intervalInSec, TimeUnit.SECONDS);
+        log.info("Writing pipeline metrics every {} s to {}", intervalInSec, file);
+        log.exit();
+    }
+
+    /**
+     * Serve the metrics over HTTP at {@link #HTTP_CONTEXT}, on the loopback interface only.
+     *
+     * @param port          An {@code int} that is the port to listen on. If 0,
+     *                      an ephemeral port is used, see {@link #getHttpPort()}.
+     * @throws IOException  If the server could not be started.
+     * @throws IllegalStateException    If the HTTP server was already started.
+     */
+    public synchronized void startHttpServer(int port) throws IOException {
+        log.entry(port);
+        if (this.httpServer != null) {
+            throw log.throwing(new IllegalStateException("HTTP server already started"));
+        }
+        this.httpServer = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.httpServer.createContext(HTTP_CONTEXT, exchange -> {
+            try {
+                StringWriter writer = new StringWriter();
+                this.write(writer);
+                byte[] response = writer.toString().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/tab-separated-values");
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(response);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        this.httpServer.start();
+        log.info("Serving pipeline metrics at http://{}:{}{}",
+                InetAddress.getLoopbackAddress().getHostAddress(), this.getHttpPort(), HTTP_CONTEXT);
+        log.exit();
+    }
+
+    /**
+     * @return  An {@code int} that is the port the HTTP server listens on,
+     *          -1 if the server is not started.
+     */
+    public synchronized int getHttpPort() {
+        if (this.httpServer == null) {
+            return -1;
+        }
+        return this.httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Start the file report and/or the HTTP server, depending on the System properties
+     * {@link #FILE_PROPERTY}, {@link #INTERVAL_PROPERTY} and {@link #PORT_PROPERTY}.
+     * Does nothing if none of these properties is defined.
+     *
+     * @throws IllegalArgumentException If the value of a property is incorrect.
+     * @throws UncheckedIOException     If the HTTP server could not be started.
+     */
+    public void startFromSystemProperties() throws IllegalArgumentException, UncheckedIOException {
+        log.entry();
+        Map<String, String> props = new TreeMap<>();
+        for (String prop: new String[]{FILE_PROPERTY, INTERVAL_PROPERTY, PORT_PROPERTY}) {
+            String value = System.getProperty(prop);
+            if (value != null && !value.trim().isEmpty()) {
+                props.put(prop, value.trim());
+            }
+        }
+        try {
+            if (props.containsKey(FILE_PROPERTY)) {
+                long interval = props.containsKey(INTERVAL_PROPERTY)?
+                        Long.parseLong(props.get(INTERVAL_PROPERTY)): DEFAULT_INTERVAL_IN_SEC;
+                if (interval < 1) {
+                    throw log.throwing(new IllegalArgumentException(
+                            "Incorrect interval: " + interval));
+                }
+                this.startFileReport(Paths.get(props.get(FILE_PROPERTY)), interval);
+            }
+            if (props.containsKey(PORT_PROPERTY)) {
+                this.startHttpServer(Integer.parseInt(props.get(PORT_PROPERTY)));
+            }
+        } catch (NumberFormatException e) {
+            throw log.throwing(new IllegalArgumentException("Incorrect metrics property: " + props, e));
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException(e));
+        }
+        log.exit();
+    }
+
+    /**
+     * Stop the file report and the HTTP server, if started. A last snapshot
+     * of the metrics is written to the report file, so that it contains the final values.
+     */
+    @Override
+    public synchronized void close() {
+        log.entry();
+        if (this.fileReporter != null) {
+            this.fileReporter.shutdownNow();
+            this.fileReporter = null;
+            try {
+                this.writeToFile(this.reportFile);
+            } catch (IOException e) {
+                log.catching(e);
+            }
+            this.reportFile = null;
+        }
+        if (this.httpServer != null) {
+            this.httpServer.stop(0);
+            this.httpServer = null;
+        }
+        log.exit();
+    }
+}
@@ -1,23 +1,34 @@
 package org.bgee.pipeline.easybgee;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -26,8 +37,6 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bgee.model.Service;
 import org.bgee.model.ServiceFactory;
-import org.bgee.model.anatdev.AnatEntity;
-import org.bgee.model.anatdev.DevStage;
 import org.bgee.model.dao.api.anatdev.AnatEntityDAO;
 import org.bgee.model.dao.api.anatdev.StageDAO;
 import org.bgee.model.dao.api.expressiondata.ConditionDAO;
@@ -38,9 +47,9 @@ import org.bgee.model.dao.api.species.SpeciesDAO;
 import org.bgee.model.dao.api.species.SpeciesDAO.SpeciesTOResultSet;
 import org.bgee.model.dao.mysql.connector.BgeePreparedStatement;
 import org.bgee.model.dao.mysql.connector.MySQLDAOManager;
+import org.bgee.model.expressiondata.Call.ExpressionCall;
 import org.bgee.model.expressiondata.CallFilter.ExpressionCallFilter;
 import org.bgee.model.expressiondata.CallService;
-import org.bgee.model.expressiondata.Condition;
 import org.bgee.model.expressiondata.baseelements.CallType;
 import org.bgee.model.expressiondata.baseelements.DataPropagation;
 import org.bgee.model.expressiondata.baseelements.PropagationState;
@@ -48,7 +57,6 @@ import org.bgee.model.expressiondata.baseelements.SummaryCallType;
 import org.bgee.model.expressiondata.baseelements.SummaryCallType.ExpressionSummary;
 import org.bgee.model.expressiondata.baseelements.SummaryQuality;
 import org.bgee.model.gene.GeneFilter;
-import org.bgee.model.species.Species;
 import org.bgee.pipeline.CommandRunner;
 import org.bgee.pipeline.MySQLDAOUser;
 import org.bgee.pipeline.Utils;
@@ -285,12 +293,25 @@ public class BgeeToEasyBgee extends MySQLDAOUser {
     private static String GLOBAL_EXPRESSION_ORIGIN = "ORIGIN";
     private static String GLOBAL_EXPRESSION_SUMMARY_CALL_TYPE = "CALL_TYPE";
     
+    /**
+     * An {@code EnumSet} of {@code TsvFile}s that are extracted per species, 
+     * first to part files, that are then concatenated.
+     * @see #getPartFile(TsvFile, Integer, String)
+     */
+    private static final EnumSet<TsvFile> SPECIES_PART_TSV_FILES = EnumSet.of(TsvFile.GENE_OUTPUT_FILE, 
+            TsvFile.GLOBALCOND_OUTPUT_FILE, TsvFile.GLOBALEXPRESSION_OUTPUT_FILE);
+    /**
+     * A {@code String} that is the extension of the part files written for each species.
+     * @see #getPartFile(TsvFile, Integer, String)
+     */
+    private static final String PART_FILE_EXTENSION = ".part";
+    
     private final static Logger log = LogManager.getLogger(BgeeToEasyBgee.class);
     /**
-     * The {@code ServiceFactory} used to acquire {@code Service}s (from the
-     * {@code bgee-core} module).
+     * A {@code Supplier} of {@code ServiceFactory}s used to acquire {@code Service}s 
+     * (from the {@code bgee-core} module), to be able to provide one to each thread.
      */
-    protected final ServiceFactory serviceFactory;
+    protected final Supplier<ServiceFactory> serviceFactorySupplier;
 
     /**
      * Several actions can be launched from this main method, depending on the
@@ -298,7 +319,7 @@ public class BgeeToEasyBgee extends MySQLDAOUser {
      * <ul>
      * <li>If the first element in {@code args} is "extractBgeeDatabase", the
      * action will be to export data from the Bgee database to TSV files (see
-     * {@link #extractBgeeDatabase(Collection, String)}). Following elements in
+     * {@link #extractBgeeDatabase(Collection, String, int)}). Following elements in
      * {@code args} must then be:
      * <ol>
      * <li>path to the output directory,
@@ -307,6 +328,8 @@ public class BgeeToEasyBgee extends MySQLDAOUser {
      * {@link CommandRunner#LIST_SEPARATOR}. If empty (see
      * {@link CommandRunner#EMPTY_LIST}), all species in database will be
      * exported.
+     * <li>optionally, the maximum number of species to extract in parallel. 
+     * If not provided, the number of available processors is used.
      * </ol>
      * </li>
      * <li>If the first element in {@code args} is "tsvToEasyBgee", the action
@@ -335,12 +358,16 @@ public class BgeeToEasyBgee extends MySQLDAOUser {
         BgeeToEasyBgee bgeeToEasyBgee = new BgeeToEasyBgee();
         if (args[0].equals("extractFromBgee")) {
             int expectedArgLength = 3;
-            if (args.length != expectedArgLength) {
+            if (args.length != expectedArgLength && args.length != expectedArgLength + 1) {
                 throw log.throwing(new IllegalArgumentException("Incorrect number of arguments provided, expected "
-                        + expectedArgLength + " arguments, " + args.length + " provided."));
+                        + expectedArgLength + " or " + (expectedArgLength + 1) + " arguments, " 
+                        + args.length + " provided."));
             }
+            int threadCount = args.length > expectedArgLength? Integer.parseInt(args[3]):
+                Runtime.getRuntime().availableProcessors();
             bgeeToEasyBgee.cleanOutputDir(args[1]);
-            bgeeToEasyBgee.extractBgeeDatabase(CommandRunner.parseListArgumentAsInt(args[2]), args[1]);
+            bgeeToEasyBgee.extractBgeeDatabase(CommandRunner.parseListArgumentAsInt(args[2]), args[1], 
+                    threadCount);
         } else if (args[0].equals("tsvToEasyBgee")) {
             int expectedArgLength = 2;
             if (args.length != expectedArgLength) {
@@ -363,12 +390,20 @@ public class BgeeToEasyBgee extends MySQLDAOUser {
     // XXX: should we use services when it is possible (at least when we don't
     // need internal IDs)?
     public BgeeToEasyBgee() {
-        this(null, new ServiceFactory());
+        this(null, ServiceFactory::new);
     }
 
-    public BgeeToEasyBgee(MySQLDAOManager manager, ServiceFactory serviceFactory) {
+    /**
+     * @param manager                   The {@code MySQLDAOManager} used by this object 
+     *                                  to extract data not specific to a species, 
+     *                                  and to import TSV files. 
+     * @param serviceFactorySupplier    A {@code Supplier} of {@code ServiceFactory}s 
+     *                                  to be able to provide one to each thread 
+     *                                  extracting data of a species.
+     */
+    public BgeeToEasyBgee(MySQLDAOManager manager, Supplier<ServiceFactory> serviceFactorySupplier) {
         super(manager);
-        this.serviceFactory = serviceFactory;
+        this.serviceFactorySupplier = serviceFactorySupplier;
     }
 
     /**
@@ -388,39 +423,152 @@ public class BgeeToEasyBgee extends MySQLDAOUser {
                 file.delete();
             }
         }
+        //also remove part files from a previous failed extraction
+        File[] partFiles = dir.listFiles((d, name) -> name.endsWith(PART_FILE_EXTENSION));
+        if (partFiles != null) {
+            for (File partFile: partFiles) {
+                partFile.delete();
+            }
+        }
+        log.exit();
+    }
+
+    /**
+     * Get the part file where data of one species are written for {@code tsvFile}. 
+     * Part files have no header, they are concatenated in the final file by 
+     * {@link #mergePartFiles(TsvFile, List, String)}.
+     *
+     * @param tsvFile   The {@code TsvFile} for which data are written.
+     * @param speciesId An {@code Integer} that is the ID of the species which data are written.
+     * @param directory A {@code String} that is the directory where to store files.
+     * @return          The {@code File} where to write data of the species.
+     */
+    private static File getPartFile(TsvFile tsvFile, Integer speciesId, String directory) {
+        log.entry(tsvFile, speciesId, directory);
+        return log.exit(new File(directory, tsvFile.getFileName() + "." + speciesId + PART_FILE_EXTENSION));
+    }
+
+    /**
+     * Concatenate the part files of all species into the final file of {@code tsvFile}, 
+     * in the order of {@code speciesIds}, and delete the part files. 
+     *
+     * @param tsvFile       The {@code TsvFile} for which part files are merged.
+     * @param speciesIds    A {@code List} of {@code Integer}s that are the IDs of the species 
+     *                      which part files are merged, in order.
+     * @param directory     A {@code String} that is the directory where files are stored.
+     */
+    private void mergePartFiles(TsvFile tsvFile, List<Integer> speciesIds, String directory) {
+        log.entry(tsvFile, speciesIds, directory);
+        File file = new File(directory, tsvFile.getFileName());
+        log.info("Merging part files into {}", file);
+        try {
+            try (ICsvMapWriter mapWriter = new CsvMapWriter(new FileWriter(file), Utils.TSVCOMMENTED)) {
+                mapWriter.writeHeader(tsvFile.getDatatypes().keySet().toArray(new String[0]));
+            }
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
+                for (Integer speciesId: speciesIds) {
+                    File partFile = getPartFile(tsvFile, speciesId, directory);
+                    Files.copy(partFile.toPath(), out);
+                    Files.delete(partFile.toPath());
+                }
+            }
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException("Can't merge part files into " + file, e));
+        }
         log.exit();
     }
 
     /**
-     * Extract data from the bgee database to intermediate TSV files
+     * Extract data from the bgee database to intermediate TSV files. Genes, global conditions 
+     * and global expression calls are extracted for up to {@code threadCount} species 
+     * in parallel, each species being written to its own part files (see 
+     * {@link #getPartFile(TsvFile, Integer, String)}), that are concatenated 
+     * in the final TSV files once all species have been extracted.
      *
      * @param inputSpeciesIds
      *            A {@code Collection} of {@code Integer}s that are IDs of
      *            species for which to generate files.
      * @param directory
      *            A {@code String} that is the directory where to store files.
+     * @param threadCount
+     *            An {@code int} that is the maximum number of species
+     *            to extract in parallel.
+     * @throws IllegalArgumentException If {@code threadCount} is less than 1.
+     * @throws IllegalStateException    If an error occurred while extracting data
+     *                                  of one of the species.
      */
-    private void extractBgeeDatabase(Collection<Integer> inputSpeciesIds, String directory) {
-        log.entry(inputSpeciesIds, directory);
+    private void extractBgeeDatabase(Collection<Integer> inputSpeciesIds, String directory, 
+            int threadCount) throws IllegalArgumentException, IllegalStateException {
+        log.entry(inputSpeciesIds, directory, threadCount);
+        if (threadCount < 1) {
+            throw log.throwing(new IllegalArgumentException("The number of threads must be at least 1"));
+        }
         SpeciesTOResultSet speciesTOs = getSpeciesDAO().getSpeciesByIds(new HashSet<>(inputSpeciesIds), null);
         // XXX: add check that all provided species IDs are found
-        Set<Integer> speciesIds = extractSpeciesTable(speciesTOs, directory);
+        List<Integer> speciesIds = extractSpeciesTable(speciesTOs, directory);
         extractAnatEntityTable(directory);
         extractStageTable(directory);
-        for (Integer speciesId : speciesIds) {
-            log.info("start to extract genes, conditions and expressions data for species {}", speciesId);
+        //each species is extracted using its own ServiceFactory, we can release
+        //the connection of the main thread
+        getManager().releaseResources();
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(threadCount, speciesIds.size())));
+        try {
+            List<Future<Long>> futures = speciesIds.stream()
+                    .map(speciesId -> executor.submit(() -> this.extractSpeciesTables(speciesId, directory)))
+                    .collect(Collectors.toList());
+            for (Future<Long> future: futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw log.throwing(new IllegalStateException("Extraction of species data interrupted", e));
+        } catch (ExecutionException e) {
+            throw log.throwing(new IllegalStateException("Error while extracting species data", 
+                    e.getCause()));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //keep the order of the species, to be able to compare files between 2 versions
+        for (TsvFile tsvFile: SPECIES_PART_TSV_FILES) {
+            this.mergePartFiles(tsvFile, speciesIds, directory);
+        }
+        log.exit();
+    }
+
+    /**
+     * Extract genes, global conditions and global expression calls of one species 
+     * to part files (see {@link #getPartFile(TsvFile, Integer, String)}). This method 
+     * acquires its own {@code ServiceFactory} from {@link #serviceFactorySupplier}, 
+     * so that it can be called from different threads.
+     *
+     * @param speciesId     An {@code Integer} that is the ID of the species to extract.
+     * @param directory     A {@code String} that is the directory where to store files.
+     * @return              A {@code long} that is the number of expression calls written.
+     */
+    private long extractSpeciesTables(Integer speciesId, String directory) {
+        log.entry(speciesId, directory);
+        log.info("start to extract genes, conditions and expressions data for species {}", speciesId);
+        try (ServiceFactory factory = this.serviceFactorySupplier.get()) {
             // Note: we can map Ensembl ID to one Bgee gene ID because we use
             // data for only 1 species
-            Map<String, Integer> ensemblIdToBgeeGeneId = extractGeneTable(speciesId, directory);
-            Map<Condition, String> condToConditionId = extractGlobalCondTable(speciesId, directory);
-            extractGlobalExpressionTable(ensemblIdToBgeeGeneId, condToConditionId, speciesId, directory);
+            Map<String, Integer> ensemblIdToBgeeGeneId = extractGeneTable(factory, speciesId, directory);
+            Map<String, Map<String, String>> condToConditionId = extractGlobalCondTable(factory, 
+                    speciesId, directory);
+            long exprCount = extractGlobalExpressionTable(factory, ensemblIdToBgeeGeneId, 
+                    condToConditionId, speciesId, directory);
+            log.info("Done extracting data for species {}: {} genes, {} global expression calls", 
+                    speciesId, ensemblIdToBgeeGeneId.size(), exprCount);
+            return log.exit(exprCount);
         }
-        log.exit();
     }
 
-    private void extractGlobalExpressionTable(Map<String, Integer> ensemblIdToBgeeGeneId,
-            Map<Condition, String> condToConditionId, Integer speciesId, String directory) {
-        log.entry(ensemblIdToBgeeGeneId, condToConditionId, speciesId, directory);
+    private long extractGlobalExpressionTable(ServiceFactory factory, 
+            Map<String, Integer> ensemblIdToBgeeGeneId, Map<String, Map<String, String>> condToConditionId, 
+            Integer speciesId, String directory) {
+        log.entry(factory, ensemblIdToBgeeGeneId, condToConditionId, speciesId, directory);
 
         log.info("Start extracting global expressions for the species {}...", speciesId);
 
@@ -440,39 +588,50 @@ public class BgeeToEasyBgee extends MySQLDAOUser {
         orderingAnatOnly.put(CallService.OrderingAttribute.GENE_ID, Service.Direction.ASC);
         orderingAnatOnly.put(CallService.OrderingAttribute.ANAT_ENTITY_ID, Service.Direction.ASC);
 
-        // return calls where both anatEntity and devStage are not null AND with
-        // a SILVER quality
-        final List<Map<String, String>> callsInformation = 
-                getGlobalExpressionMap(speciesId, ensemblIdToBgeeGeneId, condToConditionId,
-                        EnumSet.of(CallService.Attribute.GENE, CallService.Attribute.DATA_QUALITY,
-                        		CallService.Attribute.ANAT_ENTITY_ID, CallService.Attribute.DEV_STAGE_ID, 
-                                CallService.Attribute.MEAN_RANK, CallService.Attribute.EXPRESSION_SCORE,
-                                CallService.Attribute.CALL_TYPE, CallService.Attribute.OBSERVED_DATA),
-                        orderingAnatStage);
-
-        // return calls with null devStage AND with a SILVER quality
-        callsInformation.addAll(
-        		getGlobalExpressionMap(speciesId,
-                        ensemblIdToBgeeGeneId, condToConditionId, EnumSet.of(CallService.Attribute.GENE, 
-                        		CallService.Attribute.DATA_QUALITY, CallService.Attribute.ANAT_ENTITY_ID, 
-                        		CallService.Attribute.MEAN_RANK, 
-                        		CallService.Attribute.EXPRESSION_SCORE, CallService.Attribute.CALL_TYPE, 
-                        		CallService.Attribute.OBSERVED_DATA),
-                        orderingAnatOnly));
-
         // use TsvFile enum to generate the CellProcessor
         final CellProcessor[] processors = createCellProcessor(TsvFile.GLOBALEXPRESSION_OUTPUT_FILE);
+        File file = getPartFile(TsvFile.GLOBALEXPRESSION_OUTPUT_FILE, speciesId, directory);
 
-        File file = new File(directory, TsvFile.GLOBALEXPRESSION_OUTPUT_FILE.getFileName());
-        writeOutputFile(file, callsInformation, header, processors);
-        log.exit();
+        long callCount = 0;
+        try (TsvRowWriter writer = new TsvRowWriter(file, header, processors)) {
+            // write calls where both anatEntity and devStage are not null AND with
+            // a SILVER quality
+            callCount += writeGlobalExpressionRows(writer, factory, speciesId, ensemblIdToBgeeGeneId, 
+                    condToConditionId, 
+                    EnumSet.of(CallService.Attribute.GENE, CallService.Attribute.DATA_QUALITY,
+                            CallService.Attribute.ANAT_ENTITY_ID, CallService.Attribute.DEV_STAGE_ID, 
+                            CallService.Attribute.MEAN_RANK, CallService.Attribute.EXPRESSION_SCORE,
+                            CallService.Attribute.CALL_TYPE, CallService.Attribute.OBSERVED_DATA),
+                    orderingAnatStage);
+            // write calls with null devStage AND with a SILVER quality
+            callCount += writeGlobalExpressionRows(writer, factory, speciesId, ensemblIdToBgeeGeneId, 
+                    condToConditionId, 
+                    EnumSet.of(CallService.Attribute.GENE, CallService.Attribute.DATA_QUALITY, 
+                            CallService.Attribute.ANAT_ENTITY_ID, CallService.Attribute.MEAN_RANK, 
+                            CallService.Attribute.EXPRESSION_SCORE, CallService.Attribute.CALL_TYPE, 
+                            CallService.Attribute.OBSERVED_DATA),
+                    orderingAnatOnly);
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException("Can't write file " + file, e));
+        }
+        return log.exit(callCount);
     }
 
-    private List<Map<String, String>> getGlobalExpressionMap(Integer speciesId,
-            Map<String, Integer> ensemblIdToBgeeGeneId, Map<Condition, String> condToConditionId,
+    /**
+     * Stream the SILVER expression calls of one species directly to {@code writer}, 
+     * without storing them. 
+     *
+     * @return  A {@code long} that is the number of rows written.
+     * @throws IOException  If an error occurred while writing a row.
+     */
+    private long writeGlobalExpressionRows(TsvRowWriter writer, ServiceFactory factory, 
+            Integer speciesId, Map<String, Integer> ensemblIdToBgeeGeneId, 
+            Map<String, Map<String, String>> condToConditionId,
             Collection<CallService.Attribute> attributes,
-            LinkedHashMap<CallService.OrderingAttribute, Service.Direction> orderingAttributes) {
-        log.entry(speciesId, ensemblIdToBgeeGeneId, condToConditionId, attributes, orderingAttributes);
+            LinkedHashMap<CallService.OrderingAttribute, Service.Direction> orderingAttributes) 
+                    throws IOException {
+        log.entry(writer, factory, speciesId, ensemblIdToBgeeGeneId, condToConditionId, attributes, 
+                orderingAttributes);
 
         // init summaryCallTypeQualityFilter
         Map<SummaryCallType.ExpressionSummary, SummaryQuality> silverCallFilter = new HashMap<>();
@@ -482,55 +641,58 @@ public class BgeeToEasyBgee extends MySQLDAOUser {
         // init callObservedData
         Map<CallType.Expression, Boolean> obsDataFilter = new HashMap<>();
         obsDataFilter.put(null, true);
-        return log.exit(serviceFactory.getCallService()
+
+        long rowCount = 0;
+        //we iterate the Stream rather than using forEach, to be able to propagate IOExceptions
+        Iterator<ExpressionCall> callIterator = factory.getCallService()
                 .loadExpressionCalls(new ExpressionCallFilter(silverCallFilter,
                         Collections.singleton(new GeneFilter(speciesId, ensemblIdToBgeeGeneId.keySet())), null, null,
                         obsDataFilter, null, null), attributes, orderingAttributes)
-                
-
-                .map(call -> {
-                    Map<String, String> headerToValue = new HashMap<>();
-                    headerToValue.put(GlobalExpressionCallDAO.Attribute.BGEE_GENE_ID.name(),
-                            String.valueOf(ensemblIdToBgeeGeneId.get(call.getGene().getEnsemblGeneId())));
-                    Condition updatedCond = new Condition(new AnatEntity(call.getCondition().getAnatEntityId()),
-                            call.getCondition().getDevStageId() == null ? null : new DevStage(call.getCondition().getDevStageId()),
-                                    new Species(call.getCondition().getSpeciesId()));
-                    String conditionId = condToConditionId.get(updatedCond);
-                    headerToValue.put(GlobalExpressionCallDAO.Attribute.GLOBAL_CONDITION_ID.name(), conditionId);
-                    headerToValue.put(GLOBAL_EXPRESSION_SUMMARY_QUALITY,
-                            call.getSummaryQuality().getStringRepresentation());
-                    headerToValue.put(GlobalExpressionCallDAO.Attribute.MEAN_RANK.name(),
-                            call.getMeanRank().toString());
-                    headerToValue.put(GLOBAL_EXPRESSION_MEAN_SCORE, call.getExpressionScore().toString());
-                    headerToValue.put(GLOBAL_EXPRESSION_ORIGIN, dataPropagationToString(call.getDataPropagation()));
-                    headerToValue.put(GLOBAL_EXPRESSION_SUMMARY_CALL_TYPE, call.getSummaryCallType().getStringRepresentation());
-                    return headerToValue;
-                }).collect(Collectors.toList()));
+                .iterator();
+        while (callIterator.hasNext()) {
+            ExpressionCall call = callIterator.next();
+            Map<String, String> stageIdToCondId = condToConditionId.get(call.getCondition().getAnatEntityId());
+            writer.set(GlobalExpressionCallDAO.Attribute.BGEE_GENE_ID.name(),
+                    String.valueOf(ensemblIdToBgeeGeneId.get(call.getGene().getEnsemblGeneId())));
+            writer.set(GlobalExpressionCallDAO.Attribute.GLOBAL_CONDITION_ID.name(), 
+                    stageIdToCondId == null ? null : stageIdToCondId.get(call.getCondition().getDevStageId()));
+            writer.set(GLOBAL_EXPRESSION_SUMMARY_QUALITY, call.getSummaryQuality().getStringRepresentation());
+            writer.set(GlobalExpressionCallDAO.Attribute.MEAN_RANK.name(), call.getMeanRank().toString());
+            writer.set(GLOBAL_EXPRESSION_MEAN_SCORE, call.getExpressionScore().toString());
+            writer.set(GLOBAL_EXPRESSION_ORIGIN, dataPropagationToString(call.getDataPropagation()));
+            writer.set(GLOBAL_EXPRESSION_SUMMARY_CALL_TYPE, call.getSummaryCallType().getStringRepresentation());
+            writer.writeRow();
+            rowCount++;
+        }
+        return log.exit(rowCount);
     }
 
-    private Map<String, Integer> extractGeneTable(Integer speciesId, String directory) {
-        log.entry(speciesId, directory);
+    private Map<String, Integer> extractGeneTable(ServiceFactory factory, Integer speciesId, String directory) {
+        log.entry(factory, speciesId, directory);
         log.info("Start extracting genes for the species {}...", speciesId);
         String[] header = new String[] { GeneDAO.Attribute.ID.name(), GeneDAO.Attribute.ENSEMBL_ID.name(),
                 GeneDAO.Attribute.NAME.name(), GeneDAO.Attribute.DESCRIPTION.name(),
                 GeneDAO.Attribute.SPECIES_ID.name() };
 
-        List<GeneDAO.GeneTO> allTOs = getManager().getGeneDAO()
-                .getGenesBySpeciesIds(Collections.singleton(speciesId)).getAllTOs();
-        List<Map<String, String>> allGenesInformation = allTOs.stream().map(gene -> {
-            Map<String, String> headerToValue = new HashMap<>();
-            headerToValue.put(GeneDAO.Attribute.ID.name(), String.valueOf(gene.getId()));
-            headerToValue.put(GeneDAO.Attribute.ENSEMBL_ID.name(), gene.getGeneId());
-            headerToValue.put(GeneDAO.Attribute.NAME.name(), gene.getName());
-            headerToValue.put(GeneDAO.Attribute.DESCRIPTION.name(), gene.getDescription());
-            headerToValue.put(GeneDAO.Attribute.SPECIES_ID.name(), String.valueOf(gene.getSpeciesId()));
-            return headerToValue;
-        }).collect(Collectors.toList());
         // use TsvFile Enum to generate the CellProcessor
         final CellProcessor[] processors = createCellProcessor(TsvFile.GENE_OUTPUT_FILE);
-        File file = new File(directory, TsvFile.GENE_OUTPUT_FILE.fileName);
-        writeOutputFile(file, allGenesInformation, header, processors);
-        return log.exit(allTOs.stream().collect(Collectors.toMap(to -> to.getGeneId(), to -> to.getId())));
+        File file = getPartFile(TsvFile.GENE_OUTPUT_FILE, speciesId, directory);
+        Map<String, Integer> ensemblIdToBgeeGeneId = new HashMap<>();
+        try (TsvRowWriter writer = new TsvRowWriter(file, header, processors)) {
+            for (GeneDAO.GeneTO gene: factory.getDAOManager().getGeneDAO()
+                    .getGenesBySpeciesIds(Collections.singleton(speciesId)).getAllTOs()) {
+                writer.set(GeneDAO.Attribute.ID.name(), String.valueOf(gene.getId()));
+                writer.set(GeneDAO.Attribute.ENSEMBL_ID.name(), gene.getGeneId());
+                writer.set(GeneDAO.Attribute.NAME.name(), gene.getName());
+                writer.set(GeneDAO.Attribute.DESCRIPTION.name(), gene.getDescription());
+                writer.set(GeneDAO.Attribute.SPECIES_ID.name(), String.valueOf(gene.getSpeciesId()));
+                writer.writeRow();
+                ensemblIdToBgeeGeneId.put(gene.getGeneId(), gene.getId());
+            }
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException("Can't write file " + file, e));
+        }
+        return log.exit(ensemblIdToBgeeGeneId);
     }
 
     private void extractAnatEntityTable(String directory) {
@@ -573,8 +735,20 @@ public class BgeeToEasyBgee extends MySQLDAOUser {
         log.exit();
     }
 
-    private Map<Condition, String> extractGlobalCondTable(Integer speciesId, String directory) {
-        log.entry(speciesId, directory);
+    /**
+     * Extract the global conditions of one species, considering either anatomical entities only, 
+     * or both anatomical entities and developmental stages. 
+     *
+     * @return  A {@code Map} where keys are {@code String}s that are anat. entity IDs, 
+     *          the associated value being a {@code Map} where keys are {@code String}s 
+     *          that are dev. stage IDs (or {@code null} for conditions not considering 
+     *          dev. stages), the associated value being a {@code String} that is 
+     *          the ID of the global condition. This nested {@code Map} allows to retrieve 
+     *          condition IDs without instantiating a {@code Condition} per expression call.
+     */
+    private Map<String, Map<String, String>> extractGlobalCondTable(ServiceFactory factory, 
+            Integer speciesId, String directory) {
+        log.entry(factory, speciesId, directory);
         log.info("Start extracting global conditions for the species {}...", speciesId);
         List<ConditionDAO.Attribute> condAttributesAnatAndStage = 
                 Arrays.asList(ConditionDAO.Attribute.ANAT_ENTITY_ID, ConditionDAO.Attribute.STAGE_ID);
@@ -585,40 +759,38 @@ public class BgeeToEasyBgee extends MySQLDAOUser {
         String[] header = new String[] { ConditionDAO.Attribute.ID.name(), 
                 ConditionDAO.Attribute.ANAT_ENTITY_ID.name(), ConditionDAO.Attribute.STAGE_ID.name(), 
                 ConditionDAO.Attribute.SPECIES_ID.name() };
-        
-        // Retrieve conditions with devStage = null
-        List<ConditionTO> conditionTOs = getManager().getConditionDAO()
-                .getGlobalConditionsBySpeciesIds(Collections.singleton(speciesId), condAttributesAnat, attributes)
-                .getAllTOs();
-        
-        // Retrieve conditions where both anatEntity and devStage are not null
-        conditionTOs.addAll(getManager().getConditionDAO().getGlobalConditionsBySpeciesIds(
-                Collections.singleton(speciesId), condAttributesAnatAndStage, attributes)
-                .getAllTOs());
-        
-        //transformation from a List<ConditionTO> to a List<Map<String, String>> in order to easily write conditions in a file
-        List<Map<String, String>> allGlobalCondInformation = conditionTOs.stream().map(cond -> {
-            Map<String, String> headerToValue = new HashMap<>();
-            headerToValue.put(ConditionDAO.Attribute.ID.name(), String.valueOf(cond.getId()));
-            headerToValue.put(ConditionDAO.Attribute.ANAT_ENTITY_ID.name(), cond.getAnatEntityId());
-            headerToValue.put(ConditionDAO.Attribute.STAGE_ID.name(), cond.getStageId());
-            headerToValue.put(ConditionDAO.Attribute.SPECIES_ID.name(), String.valueOf(cond.getSpeciesId()));
-            return headerToValue;
-        })
-        .collect(Collectors.toList());
-        
+        ConditionDAO condDAO = factory.getDAOManager().getConditionDAO();
+
         //use TsvFile Enum to generate the CellProcessor
         final CellProcessor[] processors = createCellProcessor(TsvFile.GLOBALCOND_OUTPUT_FILE);
-        
-        // write global condition tsv file
-        File file = new File(directory, TsvFile.GLOBALCOND_OUTPUT_FILE.getFileName());
-        writeOutputFile(file, allGlobalCondInformation, header, processors);
-        return log.exit(createCondToConditionIdMap(conditionTOs));
+        File file = getPartFile(TsvFile.GLOBALCOND_OUTPUT_FILE, speciesId, directory);
+        Map<String, Map<String, String>> condToConditionId = new HashMap<>();
+        try (TsvRowWriter writer = new TsvRowWriter(file, header, processors)) {
+            // Write conditions with devStage = null, then conditions where both anatEntity 
+            // and devStage are not null
+            for (List<ConditionDAO.Attribute> condParams: Arrays.asList(condAttributesAnat, 
+                    condAttributesAnatAndStage)) {
+                for (ConditionTO cond: condDAO.getGlobalConditionsBySpeciesIds(
+                        Collections.singleton(speciesId), condParams, attributes).getAllTOs()) {
+                    String condId = String.valueOf(cond.getId());
+                    writer.set(ConditionDAO.Attribute.ID.name(), condId);
+                    writer.set(ConditionDAO.Attribute.ANAT_ENTITY_ID.name(), cond.getAnatEntityId());
+                    writer.set(ConditionDAO.Attribute.STAGE_ID.name(), cond.getStageId());
+                    writer.set(ConditionDAO.Attribute.SPECIES_ID.name(), String.valueOf(cond.getSpeciesId()));
+                    writer.writeRow();
+                    condToConditionId.computeIfAbsent(cond.getAnatEntityId(), k -> new HashMap<>())
+                            .put(cond.getStageId(), condId);
+                }
+            }
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException("Can't write file " + file, e));
+        }
+        return log.exit(condToConditionId);
     }
 
-    private Set<Integer> extractSpeciesTable(SpeciesTOResultSet speciesTOs, String directory) {
+    private List<Integer> extractSpeciesTable(SpeciesTOResultSet speciesTOs, String directory) {
         log.entry(speciesTOs, directory);
-        Set<Integer> speciesIds = new HashSet<>();
+        List<Integer> speciesIds = new ArrayList<>();
         String[] header = new String[] { SpeciesDAO.Attribute.ID.name(), SpeciesDAO.Attribute.GENUS.name(),
                 SpeciesDAO.Attribute.SPECIES_NAME.name(), SpeciesDAO.Attribute.COMMON_NAME.name(),
                 SpeciesDAO.Attribute.GENOME_VERSION.name(), SpeciesDAO.Attribute.GENOME_SPECIES_ID.name() };
@@ -745,31 +917,6 @@ public class BgeeToEasyBgee extends MySQLDAOUser {
         log.exit();
     }
 
-    /**
-     * This method is needed because we can not access to the conditionId when
-     * using {@code Condition}. The resulting {@code Map} is then useful to
-     * retrieve the conditionId from one {@code Condition}.
-     *
-     * @param conditionTOs
-     *            A {@code List} of {@code ConditionTO}s for which we want to be
-     *            able to retrieve the conditionId.
-     * @return A {@code Map} where keys are {@code Condition}s representing
-     *         condition, the associated value being an {@code Integer} that is
-     *         the ID of the associated condition.
-     */
-    private Map<Condition, String> createCondToConditionIdMap(List<ConditionTO> conditionTOs) {
-        log.entry(conditionTOs);
-        return log
-                .exit(conditionTOs.stream()
-                        .collect(
-                                Collectors.toMap(
-                                        
-                                        p -> new Condition(new AnatEntity(p.getAnatEntityId()),
-                                                p.getStageId() == null ? null : new DevStage(p.getStageId()),
-                                                        new Species(p.getSpeciesId())),
-                                        p -> String.valueOf(p.getId()))));
-    }
-
     /**
      * Use all tsv files generated in the previous step of Easy Bgee creation and
      * integrate data in the Easy Bgee relational database
@@ -890,4 +1037,38 @@ public class BgeeToEasyBgee extends MySQLDAOUser {
         throw log.throwing(new IllegalArgumentException("Unknown data propagation status  "
                 + dataPropagation));
     }
+
+    /**
+     * Write rows of a TSV file using a single open {@code ICsvMapWriter} 
+     * and a reusable row buffer, so that no {@code Map} is instantiated per row. 
+     * Values must be set for a row using {@link #set(String, String)}, then the row 
+     * is written using {@link #writeRow()}. No header is written, as this class is used 
+     * to write part files (see {@link BgeeToEasyBgee#getPartFile(TsvFile, Integer, String)}).
+     */
+    private static class TsvRowWriter implements AutoCloseable {
+        private final ICsvMapWriter mapWriter;
+        private final String[] header;
+        private final CellProcessor[] processors;
+        private final Map<String, String> row;
+
+        private TsvRowWriter(File file, String[] header, CellProcessor[] processors) throws IOException {
+            this.mapWriter = new CsvMapWriter(new BufferedWriter(new FileWriter(file)), Utils.TSVCOMMENTED);
+            this.header = header;
+            this.processors = processors;
+            this.row = new HashMap<>(header.length * 2);
+        }
+
+        private void set(String column, String value) {
+            this.row.put(column, value);
+        }
+        private void writeRow() throws IOException {
+            this.mapWriter.write(this.row, this.header, this.processors);
+            this.row.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.mapWriter.close();
+        }
+    }
 }
@@ -0,0 +1,311 @@
+package org.bgee.pipeline.expression;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO;
+import org.bgee.model.dao.api.expressiondata.DAODataType;
+import org.bgee.model.dao.api.expressiondata.DAOExperimentCount;
+import org.bgee.model.dao.api.expressiondata.DAOPropagationState;
+import org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO.GlobalExpressionCallDataTO;
+import org.bgee.model.dao.api.expressiondata.RawExpressionCallDAO.RawExpressionCallTO;
+import org.bgee.model.expressiondata.CallData.ExpressionCallData;
+import org.bgee.model.expressiondata.baseelements.CallType;
+import org.bgee.model.expressiondata.baseelements.DataPropagation;
+import org.bgee.model.expressiondata.baseelements.DataQuality;
+import org.bgee.model.expressiondata.baseelements.DataType;
+import org.bgee.model.expressiondata.baseelements.ExperimentExpressionCount;
+import org.bgee.model.expressiondata.baseelements.PropagationState;
+
+/**
+ * A compact representation of a propagated expression call, held between the computation
+ * threads and the insertion thread of {@link InsertPropagatedCalls}. Rather than
+ * {@code Condition}s, {@code ExpressionCallData}s and {@code Set}s of source
+ * {@code RawExpressionCallTO}s, it only stores primitive arrays:
+ * <ul>
+ * <li>the condition, as an index in the list of conditions of the species
+ * (see {@link InsertPropagatedCalls}).
+ * <li>the IDs of the raw conditions of the source calls from parent, self, and descendant
+ * conditions, that are the only information needed from the source calls
+ * to insert the relations between global conditions and raw conditions.
+ * <li>for each data type with data, the experiment counts as a count vector (see {@link
+ * DAOExperimentCount#getCountVectorIndex(DAOExperimentCount.CallType,
+ * DAOExperimentCount.DataQuality, DAOPropagationState)}), the propagated count,
+ * and the propagation states stored as enum ordinals.
+ * </ul>
+ * The {@code GlobalExpressionCallDataTO}s are only created at insertion time,
+ * see {@link #toCallDataTOs()}.
+ * <p>
+ * The experiments themselves do not need to be stored: they are interned to dense int IDs
+ * in {@code BitSet}s during the propagation (see {@link ConditionSweepPropagator}),
+ * and only their counts are inserted.
+ * <p>
+ * This class is immutable, and does not override {@code hashCode}/{@code equals}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+final class CompactPipelineCall {
+    private final static Logger log = LogManager.getLogger(CompactPipelineCall.class.getName());
+
+    /**
+     * An {@code int} that is the number of {@code int}s stored per data type:
+     * the experiment counts, and the propagated count.
+     */
+    private final static int INT_PER_DATA_TYPE = DAOExperimentCount.COUNT_VECTOR_LENGTH + 1;
+    /**
+     * An {@code int} that is the number of {@code byte}s stored per data type:
+     * the propagation states along the anat. entity and dev. stage, and the observed data state.
+     */
+    private final static int BYTE_PER_DATA_TYPE = 3;
+    /**
+     * An {@code int} stored for missing counts, since {@code null} values are allowed
+     * for {@code ExperimentExpressionCount}s and propagated counts.
+     */
+    private final static int MISSING_VALUE = DAOExperimentCount.MISSING_COUNT;
+    private final static int[] EMPTY_IDS = new int[0];
+
+    private final static DAODataType[] DATA_TYPES = DAODataType.values();
+    private final static DAOPropagationState[] PROPAGATION_STATES = DAOPropagationState.values();
+    private final static Map<DataType, DAODataType> DATA_TYPE_TO_DAO = new EnumMap<>(DataType.class);
+    static {
+        for (DataType dataType: DataType.values()) {
+            DATA_TYPE_TO_DAO.put(dataType, DAODataType.valueOf(dataType.name()));
+        }
+    }
+
+    /**
+     * Create a {@code CompactPipelineCall} from the result of the propagation.
+     *
+     * @param bgeeGeneId                An {@code int} that is the Bgee ID of the gene.
+     * @param conditionIndex            An {@code int} that is the index of the condition of the call.
+     * @param callData                  A {@code Collection} of {@code ExpressionCallData}s
+     *                                  that are the data of the call, one per data type.
+     * @param parentSourceCallTOs       A {@code Collection} of {@code RawExpressionCallTO}s
+     *                                  that are the source calls in parent conditions.
+     *                                  Can be {@code null}.
+     * @param selfSourceCallTOs         Same as {@code parentSourceCallTOs}, for the source calls
+     *                                  in the condition of the call.
+     * @param descendantSourceCallTOs   Same as {@code parentSourceCallTOs}, for the source calls
+     *                                  in descendant conditions.
+     * @return                          The encoded {@code CompactPipelineCall}.
+     * @throws IllegalArgumentException If {@code callData} contains several data for a same
+     *                                  data type, or unsupported values.
+     */
+    static CompactPipelineCall encode(int bgeeGeneId, int conditionIndex,
+            Collection<ExpressionCallData> callData,
+            Collection<RawExpressionCallTO> parentSourceCallTOs,
+            Collection<RawExpressionCallTO> selfSourceCallTOs,
+            Collection<RawExpressionCallTO> descendantSourceCallTOs) throws IllegalArgumentException {
+        log.entry(bgeeGeneId, conditionIndex, callData, parentSourceCallTOs, selfSourceCallTOs,
+                descendantSourceCallTOs);
+
+        Map<DAODataType, ExpressionCallData> dataByDataType = new EnumMap<>(DAODataType.class);
+        for (ExpressionCallData cd: callData) {
+            if (dataByDataType.put(DATA_TYPE_TO_DAO.get(cd.getDataType()), cd) != null) {
+                throw log.throwing(new IllegalArgumentException("Several data for data type "
+                        + cd.getDataType() + ": " + callData));
+            }
+        }
+        int dataTypes = 0;
+        int[] values = new int[dataByDataType.size() * INT_PER_DATA_TYPE];
+        byte[] states = new byte[dataByDataType.size() * BYTE_PER_DATA_TYPE];
+        Arrays.fill(values, MISSING_VALUE);
+        int i = 0;
+        //EnumMap iterates in ordinal order, as expected for decoding
+        for (Map.Entry<DAODataType, ExpressionCallData> e: dataByDataType.entrySet()) {
+            dataTypes |= 1 << e.getKey().ordinal();
+            ExpressionCallData cd = e.getValue();
+            if (cd.getExperimentCounts() == null) {
+                throw log.throwing(new IllegalArgumentException("No count found in: " + cd));
+            }
+            for (ExperimentExpressionCount count: cd.getExperimentCounts()) {
+                values[i * INT_PER_DATA_TYPE + DAOExperimentCount.getCountVectorIndex(
+                        convertCallType(count.getCallType()),
+                        DAOExperimentCount.DataQuality.valueOf(count.getDataQuality().name()),
+                        convertPropState(count.getPropagationState()))] = count.getCount();
+            }
+            if (cd.getPropagatedExperimentCount() != null) {
+                values[i * INT_PER_DATA_TYPE + DAOExperimentCount.COUNT_VECTOR_LENGTH] =
+                        cd.getPropagatedExperimentCount();
+            }
+            DataPropagation dataProp = cd.getDataPropagation();
+            states[i * BYTE_PER_DATA_TYPE] = encodeState(dataProp.getAnatEntityPropagationState());
+            states[i * BYTE_PER_DATA_TYPE + 1] = encodeState(dataProp.getDevStagePropagationState());
+            states[i * BYTE_PER_DATA_TYPE + 2] = dataProp.isIncludingObservedData() == null? 0:
+                dataProp.isIncludingObservedData()? (byte) 2: (byte) 1;
+            i++;
+        }
+
+        return log.exit(new CompactPipelineCall(bgeeGeneId, conditionIndex, (byte) dataTypes,
+                values, states, getRawConditionIds(parentSourceCallTOs),
+                getRawConditionIds(selfSourceCallTOs), getRawConditionIds(descendantSourceCallTOs)));
+    }
+    private static int[] getRawConditionIds(Collection<RawExpressionCallTO> callTOs) {
+        if (callTOs == null || callTOs.isEmpty()) {
+            return EMPTY_IDS;
+        }
+        return callTOs.stream().mapToInt(RawExpressionCallTO::getConditionId).sorted().distinct().toArray();
+    }
+    private static DAOExperimentCount.CallType convertCallType(CallType.Expression callType) {
+        switch(callType) {
+        case EXPRESSED:
+            return DAOExperimentCount.CallType.PRESENT;
+        case NOT_EXPRESSED:
+            return DAOExperimentCount.CallType.ABSENT;
+        default:
+            throw log.throwing(new IllegalArgumentException("Unsupported CallType: " + callType));
+        }
+    }
+    private static DAOPropagationState convertPropState(PropagationState propState) {
+        if (propState == null) {
+            return null;
+        }
+        try {
+            return DAOPropagationState.valueOf(propState.name());
+        } catch (IllegalArgumentException e) {
+            throw log.throwing(new IllegalArgumentException("Unsupported PropagationState: "
+                    + propState, e));
+        }
+    }
+    private static byte encodeState(PropagationState propState) {
+        DAOPropagationState daoState = convertPropState(propState);
+        return daoState == null? 0: (byte) (daoState.ordinal() + 1);
+    }
+    private static DAOPropagationState decodeState(byte state) {
+        return state == 0? null: PROPAGATION_STATES[state - 1];
+    }
+
+    private final int bgeeGeneId;
+    private final int conditionIndex;
+    /**
+     * A {@code byte} that is a bit mask of the ordinals of the {@code DAODataType}s with data.
+     * The data of each data type are stored in {@link #values} and {@link #states}
+     * in ordinal order.
+     */
+    private final byte dataTypes;
+    private final int[] values;
+    private final byte[] states;
+    private final int[] parentRawConditionIds;
+    private final int[] selfRawConditionIds;
+    private final int[] descendantRawConditionIds;
+
+    private CompactPipelineCall(int bgeeGeneId, int conditionIndex, byte dataTypes, int[] values,
+            byte[] states, int[] parentRawConditionIds, int[] selfRawConditionIds,
+            int[] descendantRawConditionIds) {
+        this.bgeeGeneId = bgeeGeneId;
+        this.conditionIndex = conditionIndex;
+        this.dataTypes = dataTypes;
+        this.values = values;
+        this.states = states;
+        this.parentRawConditionIds = parentRawConditionIds;
+        this.selfRawConditionIds = selfRawConditionIds;
+        this.descendantRawConditionIds = descendantRawConditionIds;
+    }
+
+    /**
+     * @return  An {@code int} that is the Bgee ID of the gene of this call.
+     */
+    int getBgeeGeneId() {
+        return this.bgeeGeneId;
+    }
+    /**
+     * @return  An {@code int} that is the index of the condition of this call.
+     */
+    int getConditionIndex() {
+        return this.conditionIndex;
+    }
+    /**
+     * @return  An {@code int} array containing the sorted IDs of the raw conditions
+     *          of the source calls in parent conditions. Must not be modified.
+     */
+    int[] getParentRawConditionIds() {
+        return this.parentRawConditionIds;
+    }
+    /**
+     * @return  An {@code int} array containing the sorted IDs of the raw conditions
+     *          of the source calls in the condition of this call. Must not be modified.
+     */
+    int[] getSelfRawConditionIds() {
+        return this.selfRawConditionIds;
+    }
+    /**
+     * @return  An {@code int} array containing the sorted IDs of the raw conditions
+     *          of the source calls in descendant conditions. Must not be modified.
+     */
+    int[] getDescendantRawConditionIds() {
+        return this.descendantRawConditionIds;
+    }
+
+    /**
+     * @return  A {@code Set} of {@code GlobalExpressionCallDataTO}s that are the data
+     *          of this call, one per data type, to be inserted.
+     */
+    Set<GlobalExpressionCallDataTO> toCallDataTOs() {
+        log.entry();
+        Set<GlobalExpressionCallDataTO> callDataTOs = new HashSet<>();
+        int i = 0;
+        for (DAODataType dataType: DATA_TYPES) {
+            if ((this.dataTypes & (1 << dataType.ordinal())) == 0) {
+                continue;
+            }
+            //the counts are stored in the same layout as the count vectors of the TOs
+            int[] countVector = Arrays.copyOfRange(this.values, i * INT_PER_DATA_TYPE,
+                    i * INT_PER_DATA_TYPE + DAOExperimentCount.COUNT_VECTOR_LENGTH);
+            int propagatedCount = this.values[i * INT_PER_DATA_TYPE + DAOExperimentCount.COUNT_VECTOR_LENGTH];
+
+            //since we have null values permitted in this Map, we cannot use Collectors.toMap
+            Map<ConditionDAO.Attribute, DAOPropagationState> propStates = new HashMap<>();
+            for (ConditionDAO.Attribute attr: ConditionDAO.Attribute.values()) {
+                if (!attr.isConditionParameter()) {
+                    continue;
+                }
+                switch (attr) {
+                case ANAT_ENTITY_ID:
+                    propStates.put(attr, decodeState(this.states[i * BYTE_PER_DATA_TYPE]));
+                    break;
+                case STAGE_ID:
+                    propStates.put(attr, decodeState(this.states[i * BYTE_PER_DATA_TYPE + 1]));
+                    break;
+                default:
+                    throw log.throwing(new IllegalStateException(
+                            "Unsupported condition parameter: " + attr));
+                }
+            }
+            assert !propStates.values().stream().allMatch(s -> s == null);
+            byte observed = this.states[i * BYTE_PER_DATA_TYPE + 2];
+
+            callDataTOs.add(new GlobalExpressionCallDataTO(dataType,
+                    observed == 0? null: observed == 2,
+                    propStates, countVector,
+                    propagatedCount == MISSING_VALUE? null: propagatedCount,
+                    //rank info: computed by the Perl pipeline after generation
+                    //of these global calls
+                    null, null, null));
+            i++;
+        }
+        return log.exit(callDataTOs);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("CompactPipelineCall [bgeeGeneId=").append(bgeeGeneId)
+               .append(", conditionIndex=").append(conditionIndex)
+               .append(", dataTypes=").append(Integer.toBinaryString(dataTypes))
+               .append(", values=").append(Arrays.toString(values))
+               .append(", states=").append(Arrays.toString(states))
+               .append(", parentRawConditionIds=").append(Arrays.toString(parentRawConditionIds))
+               .append(", selfRawConditionIds=").append(Arrays.toString(selfRawConditionIds))
+               .append(", descendantRawConditionIds=").append(Arrays.toString(descendantRawConditionIds))
+               .append("]");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,360 @@
+package org.bgee.pipeline.expression;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO;
+import org.bgee.model.expressiondata.Condition;
+
+/**
+ * An immutable table of the ancestor and descendant conditions of all the {@code Condition}s
+ * of a species for a combination of condition parameters, computed once from a
+ * {@code ConditionGraph} before the propagation of the calls, and shared without
+ * synchronization between the computation threads of {@link InsertPropagatedCalls}.
+ * The relations are stored as arrays of condition indexes, the {@code Set}s returned
+ * by {@link #getAncestorConditions(Condition)} and {@link #getDescendantConditions(Condition)}
+ * being unmodifiable views over these arrays.
+ * <p>
+ * A table can be written to a file (see {@link #write(Path)}) and read back
+ * (see {@link #read(Path, Collection)}), so that reruns of the propagation do not need
+ * to compute the relations again. The conditions are identified in the file by the IDs
+ * of their anatomical entity and developmental stage. A file is considered stale, and is ignored,
+ * if its conditions are not exactly the conditions provided when reading it. The relations
+ * themselves are not checked, so a file should only be reused with the same release
+ * of the ontologies.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+final class ConditionRelationTable {
+    private final static Logger log = LogManager.getLogger(ConditionRelationTable.class.getName());
+
+    /**
+     * An {@code int} written at the beginning of the files, to identify them.
+     */
+    private final static int FILE_MAGIC_NUMBER = 0x42434f4e;
+    /**
+     * An {@code int} that is the version of the file format, to be incremented
+     * when the format changes.
+     */
+    private final static int FILE_FORMAT_VERSION = 1;
+    /**
+     * A {@code Comparator} defining the order of the conditions in a {@code ConditionRelationTable},
+     * so that a same table is always written in the same way.
+     */
+    private final static Comparator<Condition> CONDITION_COMPARATOR =
+            Comparator.comparing(Condition::getAnatEntityId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Condition::getDevStageId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /**
+     * Compute the relations between {@code Condition}s.
+     *
+     * @param conditions            A {@code Collection} of {@code Condition}s that are
+     *                              all the conditions to store relations for.
+     * @param ancestorProvider      A {@code Function} returning the ancestors of a {@code Condition},
+     *                              all part of {@code conditions}.
+     * @param descendantProvider    A {@code Function} returning the descendants of a {@code Condition},
+     *                              all part of {@code conditions}.
+     * @return                      The {@code ConditionRelationTable} holding the relations.
+     * @throws IllegalArgumentException If a provider returns a {@code Condition}
+     *                                  not part of {@code conditions}.
+     */
+    static ConditionRelationTable build(Collection<Condition> conditions,
+            Function<Condition, Set<Condition>> ancestorProvider,
+            Function<Condition, Set<Condition>> descendantProvider) throws IllegalArgumentException {
+        log.entry(conditions, ancestorProvider, descendantProvider);
+
+        List<Condition> sortedConditions = conditions.stream().distinct()
+                .sorted(CONDITION_COMPARATOR)
+                .collect(Collectors.toList());
+        Map<Condition, Integer> condIndexes = getConditionIndexes(sortedConditions);
+        int[][] ancestorIndexes = new int[sortedConditions.size()][];
+        int[][] descendantIndexes = new int[sortedConditions.size()][];
+        //each index is written by a single thread
+        IntStream.range(0, sortedConditions.size()).parallel().forEach(i -> {
+            ancestorIndexes[i] = toIndexes(ancestorProvider.apply(sortedConditions.get(i)), condIndexes);
+            descendantIndexes[i] = toIndexes(descendantProvider.apply(sortedConditions.get(i)), condIndexes);
+        });
+        return log.exit(new ConditionRelationTable(sortedConditions, condIndexes,
+                ancestorIndexes, descendantIndexes));
+    }
+
+    /**
+     * Read a {@code ConditionRelationTable} written by {@link #write(Path)}.
+     *
+     * @param file          The {@code Path} of the file to read.
+     * @param conditions    A {@code Collection} of {@code Condition}s that are the conditions
+     *                      expected in the file. The returned table uses these instances.
+     * @return              The {@code ConditionRelationTable} read, or {@code null}
+     *                      if {@code file} does not exist, was written using another format,
+     *                      or if its conditions are not {@code conditions}.
+     * @throws UncheckedIOException If an error occurred while reading the file.
+     */
+    static ConditionRelationTable read(Path file, Collection<Condition> conditions)
+            throws UncheckedIOException {
+        log.entry(file, conditions);
+
+        List<Condition> sortedConditions = conditions.stream().distinct()
+                .sorted(CONDITION_COMPARATOR)
+                .collect(Collectors.toList());
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC_NUMBER || in.readInt() != FILE_FORMAT_VERSION) {
+                log.info("Ignoring file with unsupported format: {}", file);
+                return log.exit(null);
+            }
+            int condCount = in.readInt();
+            boolean sameConditions = condCount == sortedConditions.size();
+            for (int i = 0; i < condCount; i++) {
+                String anatEntityId = readNullableString(in);
+                String devStageId = readNullableString(in);
+                sameConditions = sameConditions &&
+                        Objects.equals(anatEntityId, sortedConditions.get(i).getAnatEntityId()) &&
+                        Objects.equals(devStageId, sortedConditions.get(i).getDevStageId());
+            }
+            if (!sameConditions) {
+                log.info("Ignoring stale file, conditions differ: {}", file);
+                return log.exit(null);
+            }
+            int[][] ancestorIndexes = readIndexes(in, condCount);
+            int[][] descendantIndexes = readIndexes(in, condCount);
+            return log.exit(new ConditionRelationTable(sortedConditions,
+                    getConditionIndexes(sortedConditions), ancestorIndexes, descendantIndexes));
+        } catch (NoSuchFileException e) {
+            log.catching(Level.DEBUG, e);
+            return log.exit(null);
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException(e));
+        }
+    }
+
+    /**
+     * @param speciesId     An {@code int} that is the ID of a species.
+     * @param condParams    A {@code Collection} of {@code ConditionDAO.Attribute}s that is
+     *                      a combination of condition parameters.
+     * @return              A {@code String} that is the name of the file to write
+     *                      the {@code ConditionRelationTable} of the species and combination to.
+     */
+    static String getFileName(int speciesId, Collection<ConditionDAO.Attribute> condParams) {
+        log.entry(speciesId, condParams);
+        return log.exit("conditionRelations_" + speciesId + "_"
+                + condParams.stream().sorted().map(a -> a.name()).collect(Collectors.joining("-"))
+                + ".bin");
+    }
+
+    private static Map<Condition, Integer> getConditionIndexes(List<Condition> sortedConditions) {
+        Map<Condition, Integer> condIndexes = new HashMap<>();
+        for (int i = 0; i < sortedConditions.size(); i++) {
+            condIndexes.put(sortedConditions.get(i), i);
+        }
+        return Collections.unmodifiableMap(condIndexes);
+    }
+    private static int[] toIndexes(Set<Condition> conditions, Map<Condition, Integer> condIndexes) {
+        int[] indexes = new int[conditions.size()];
+        int i = 0;
+        for (Condition cond: conditions) {
+            Integer index = condIndexes.get(cond);
+            if (index == null) {
+                throw log.throwing(new IllegalArgumentException("Unknown related condition: " + cond));
+            }
+            indexes[i] = index;
+            i++;
+        }
+        Arrays.sort(indexes);
+        return indexes;
+    }
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean()? in.readUTF(): null;
+    }
+    private static void writeNullableString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+    private static int[][] readIndexes(DataInputStream in, int condCount) throws IOException {
+        int[][] indexes = new int[condCount][];
+        for (int i = 0; i < condCount; i++) {
+            indexes[i] = new int[in.readInt()];
+            for (int j = 0; j < indexes[i].length; j++) {
+                indexes[i][j] = in.readInt();
+                if (indexes[i][j] < 0 || indexes[i][j] >= condCount) {
+                    throw log.throwing(new IOException("Invalid condition index: " + indexes[i][j]));
+                }
+            }
+        }
+        return indexes;
+    }
+    private static void writeIndexes(DataOutputStream out, int[][] indexes) throws IOException {
+        for (int[] condIndexes: indexes) {
+            out.writeInt(condIndexes.length);
+            for (int index: condIndexes) {
+                out.writeInt(index);
+            }
+        }
+    }
+
+    /**
+     * An unmodifiable {@code Set} of {@code Condition}s backed by a sorted array
+     * of condition indexes.
+     */
+    private final class ConditionSet extends AbstractSet<Condition> {
+        private final int[] indexes;
+
+        private ConditionSet(int[] indexes) {
+            this.indexes = indexes;
+        }
+        @Override
+        public Iterator<Condition> iterator() {
+            return new Iterator<Condition>() {
+                private int next = 0;
+                @Override
+                public boolean hasNext() {
+                    return next < indexes.length;
+                }
+                @Override
+                public Condition next() {
+                    if (!this.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return conditions.get(indexes[next++]);
+                }
+            };
+        }
+        @Override
+        public int size() {
+            return this.indexes.length;
+        }
+        @Override
+        public boolean contains(Object o) {
+            Integer index = conditionIndexes.get(o);
+            return index != null && Arrays.binarySearch(this.indexes, index) >= 0;
+        }
+    }
+
+    /**
+     * An unmodifiable {@code List} of the {@code Condition}s of this table,
+     * the index of a {@code Condition} identifying it in the relation arrays.
+     */
+    private final List<Condition> conditions;
+    /**
+     * An unmodifiable {@code Map} where keys are the {@code Condition}s of this table,
+     * the associated value being their index in {@link #conditions}.
+     */
+    private final Map<Condition, Integer> conditionIndexes;
+    /**
+     * An array of sorted {@code int} arrays, containing at each index of a condition
+     * the indexes of its ancestor conditions.
+     */
+    private final int[][] ancestorIndexes;
+    /**
+     * An array of sorted {@code int} arrays, containing at each index of a condition
+     * the indexes of its descendant conditions.
+     */
+    private final int[][] descendantIndexes;
+    private final List<Set<Condition>> ancestorSets;
+    private final List<Set<Condition>> descendantSets;
+
+    private ConditionRelationTable(List<Condition> conditions, Map<Condition, Integer> conditionIndexes,
+            int[][] ancestorIndexes, int[][] descendantIndexes) {
+        this.conditions = Collections.unmodifiableList(conditions);
+        this.conditionIndexes = conditionIndexes;
+        this.ancestorIndexes = ancestorIndexes;
+        this.descendantIndexes = descendantIndexes;
+        this.ancestorSets = Collections.unmodifiableList(Arrays.stream(ancestorIndexes)
+                .map(indexes -> new ConditionSet(indexes))
+                .collect(Collectors.toList()));
+        this.descendantSets = Collections.unmodifiableList(Arrays.stream(descendantIndexes)
+                .map(indexes -> new ConditionSet(indexes))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Write this table to a file, to be read by {@link #read(Path, Collection)}.
+     * The data are first written to a temporary file, then moved atomically to {@code file},
+     * so that a partially written file is never read.
+     *
+     * @param file  The {@code Path} of the file to write.
+     * @throws UncheckedIOException If an error occurred while writing the file.
+     */
+    void write(Path file) throws UncheckedIOException {
+        log.entry(file);
+        Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(tmpFile)))) {
+                out.writeInt(FILE_MAGIC_NUMBER);
+                out.writeInt(FILE_FORMAT_VERSION);
+                out.writeInt(this.conditions.size());
+                for (Condition cond: this.conditions) {
+                    writeNullableString(out, cond.getAnatEntityId());
+                    writeNullableString(out, cond.getDevStageId());
+                }
+                writeIndexes(out, this.ancestorIndexes);
+                writeIndexes(out, this.descendantIndexes);
+            }
+            Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException(e));
+        }
+        log.exit();
+    }
+
+    /**
+     * @return  An unmodifiable {@code Set} of the {@code Condition}s of this table.
+     */
+    Set<Condition> getConditions() {
+        return this.conditionIndexes.keySet();
+    }
+    /**
+     * @param cond  A {@code Condition} of this table.
+     * @return      An unmodifiable {@code Set} of the {@code Condition}s that are
+     *              the ancestors of {@code cond}.
+     * @throws IllegalArgumentException If {@code cond} is not part of this table.
+     */
+    Set<Condition> getAncestorConditions(Condition cond) throws IllegalArgumentException {
+        return this.ancestorSets.get(this.getConditionIndex(cond));
+    }
+    /**
+     * @param cond  A {@code Condition} of this table.
+     * @return      An unmodifiable {@code Set} of the {@code Condition}s that are
+     *              the descendants of {@code cond}.
+     * @throws IllegalArgumentException If {@code cond} is not part of this table.
+     */
+    Set<Condition> getDescendantConditions(Condition cond) throws IllegalArgumentException {
+        return this.descendantSets.get(this.getConditionIndex(cond));
+    }
+    private int getConditionIndex(Condition cond) throws IllegalArgumentException {
+        Integer index = this.conditionIndexes.get(cond);
+        if (index == null) {
+            throw log.throwing(new IllegalArgumentException("Unknown condition: " + cond));
+        }
+        return index;
+    }
+}
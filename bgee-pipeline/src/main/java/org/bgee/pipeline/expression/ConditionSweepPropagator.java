@@ -0,0 +1,532 @@
+package org.bgee.pipeline.expression;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.api.expressiondata.ExperimentExpressionDAO.ExperimentExpressionTO;
+import org.bgee.model.dao.api.expressiondata.ExperimentExpressionDAO.ExperimentExpressionTO.CallDirection;
+import org.bgee.model.dao.api.expressiondata.ExperimentExpressionDAO.ExperimentExpressionTO.CallQuality;
+import org.bgee.model.dao.api.expressiondata.RawExpressionCallDAO.RawExpressionCallTO;
+import org.bgee.model.expressiondata.CallData.ExpressionCallData;
+import org.bgee.model.expressiondata.Condition;
+import org.bgee.model.expressiondata.baseelements.CallType;
+import org.bgee.model.expressiondata.baseelements.DataPropagation;
+import org.bgee.model.expressiondata.baseelements.DataQuality;
+import org.bgee.model.expressiondata.baseelements.DataType;
+import org.bgee.model.expressiondata.baseelements.ExperimentExpressionCount;
+import org.bgee.model.expressiondata.baseelements.PropagationState;
+
+/**
+ * Propagates and reconciles the expression data of one gene for a combination
+ * of condition parameters, producing the same results as the propagation of each source call
+ * to each of its ancestor and descendant conditions, followed by the reconciliation
+ * of the calls in each condition (see {@link InsertPropagatedCalls}), without creating
+ * an object for each pair of source condition and propagated condition.
+ * <p>
+ * For each gene, the source conditions and their ancestors are assigned dense IDs
+ * in topological order (descendants first), and the experiments of each data type
+ * are assigned dense IDs. Experiments supporting each call direction and quality
+ * are stored as {@code BitSet}s, and the data from descendant conditions are accumulated
+ * in a single sweep, each condition pushing its accumulated data to its direct parents
+ * among the conditions of the {@code ConditionGraph}. The data from parent conditions
+ * are only propagated to one sub-level, and are pushed directly from the source conditions.
+ * <p>
+ * This class is thread-safe: it only stores the direct parents of conditions,
+ * which do not depend on the gene considered.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ * @see InsertPropagatedCalls
+ */
+final class ConditionSweepPropagator {
+    private final static Logger log = LogManager.getLogger(ConditionSweepPropagator.class.getName());
+
+    //Indexes of the experiment BitSets in the arrays stored for each data type,
+    //in decreasing order of "best" call: "present" calls always win over "absent" calls,
+    //high quality wins over low quality.
+    private final static int PRESENT_HIGH = 0;
+    private final static int PRESENT_LOW = 1;
+    private final static int ABSENT_HIGH = 2;
+    private final static int ABSENT_LOW = 3;
+    private final static int CALL_CATEGORY_COUNT = 4;
+
+    /**
+     * The result of the propagation and reconciliation of the data of a gene in one condition.
+     */
+    static final class PropagatedCall {
+        private final Condition condition;
+        private final DataPropagation dataPropagation;
+        private final Set<ExpressionCallData> callData;
+        private final Set<RawExpressionCallTO> parentSourceCallTOs;
+        private final Set<RawExpressionCallTO> selfSourceCallTOs;
+        private final Set<RawExpressionCallTO> descendantSourceCallTOs;
+
+        private PropagatedCall(Condition condition, DataPropagation dataPropagation,
+                Set<ExpressionCallData> callData, Set<RawExpressionCallTO> parentSourceCallTOs,
+                Set<RawExpressionCallTO> selfSourceCallTOs,
+                Set<RawExpressionCallTO> descendantSourceCallTOs) {
+            this.condition = condition;
+            this.dataPropagation = dataPropagation;
+            this.callData = callData;
+            this.parentSourceCallTOs = parentSourceCallTOs;
+            this.selfSourceCallTOs = selfSourceCallTOs;
+            this.descendantSourceCallTOs = descendantSourceCallTOs;
+        }
+
+        Condition getCondition() {
+            return condition;
+        }
+        DataPropagation getDataPropagation() {
+            return dataPropagation;
+        }
+        Set<ExpressionCallData> getCallData() {
+            return callData;
+        }
+        Set<RawExpressionCallTO> getParentSourceCallTOs() {
+            return parentSourceCallTOs;
+        }
+        Set<RawExpressionCallTO> getSelfSourceCallTOs() {
+            return selfSourceCallTOs;
+        }
+        Set<RawExpressionCallTO> getDescendantSourceCallTOs() {
+            return descendantSourceCallTOs;
+        }
+    }
+
+    /**
+     * The data accumulated for a condition of a gene.
+     */
+    private static final class Node {
+        private final Condition condition;
+        /**
+         * The index of the source condition, -1 if this condition has no data itself.
+         */
+        private int sourceIndex;
+        /**
+         * The indexes of the source conditions descendants of this condition.
+         */
+        private final BitSet descendantSources;
+        /**
+         * The indexes of the source conditions parents of this condition.
+         */
+        private final BitSet parentSources;
+        /**
+         * For each data type, the experiments with a "present" call in a descendant condition,
+         * at indexes {@link #PRESENT_HIGH} and {@link #PRESENT_LOW}.
+         */
+        private final Map<DataType, BitSet[]> descendantExps;
+        /**
+         * For each data type, the experiments with an "absent" call in a parent condition,
+         * at indexes {@link #ABSENT_HIGH} and {@link #ABSENT_LOW}.
+         */
+        private final Map<DataType, BitSet[]> parentExps;
+
+        private Node(Condition condition) {
+            this.condition = condition;
+            this.sourceIndex = -1;
+            this.descendantSources = new BitSet();
+            this.parentSources = new BitSet();
+            this.descendantExps = new EnumMap<>(DataType.class);
+            this.parentExps = new EnumMap<>(DataType.class);
+        }
+    }
+
+    /**
+     * The {@code DataPropagation} of the data observed in a source condition.
+     */
+    private final DataPropagation selfDataProp;
+    private final BinaryOperator<DataPropagation> dataPropMerger;
+    private final DataPropagation dataPropIdentity;
+    /**
+     * A {@code Function} returning the ancestors of a {@code Condition}, to which
+     * data are propagated.
+     */
+    private final Function<Condition, Set<Condition>> ancestorProvider;
+    /**
+     * A {@code Function} returning the descendants of a {@code Condition}, to which
+     * data are propagated.
+     */
+    private final Function<Condition, Set<Condition>> descendantProvider;
+    /**
+     * A {@code ConcurrentMap} where keys are {@code Condition}s, the associated value
+     * being a {@code List} of {@code Condition}s that are their direct parents, computed
+     * from {@link #ancestorProvider}.
+     */
+    private final ConcurrentMap<Condition, List<Condition>> condToDirectParents;
+
+    /**
+     * @param selfDataProp          The {@code DataPropagation} of the data observed
+     *                              in a source condition.
+     * @param dataPropMerger        A {@code BinaryOperator} merging {@code DataPropagation}s.
+     * @param dataPropIdentity      The identity {@code DataPropagation} for {@code dataPropMerger}.
+     * @param ancestorProvider      A {@code Function} returning the ancestors of a {@code Condition},
+     *                              to which data are propagated. The ancestor relation
+     *                              must be transitive.
+     * @param descendantProvider    A {@code Function} returning the descendants of a {@code Condition},
+     *                              to which data are propagated.
+     */
+    ConditionSweepPropagator(DataPropagation selfDataProp,
+            BinaryOperator<DataPropagation> dataPropMerger, DataPropagation dataPropIdentity,
+            Function<Condition, Set<Condition>> ancestorProvider,
+            Function<Condition, Set<Condition>> descendantProvider) {
+        this.selfDataProp = selfDataProp;
+        this.dataPropMerger = dataPropMerger;
+        this.dataPropIdentity = dataPropIdentity;
+        this.ancestorProvider = ancestorProvider;
+        this.descendantProvider = descendantProvider;
+        this.condToDirectParents = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Propagate and reconcile the data of one gene.
+     *
+     * @param selfCallTOs   A {@code Map} where keys are {@code Condition}s with data for the gene,
+     *                      the associated value being the {@code Set} of {@code RawExpressionCallTO}s
+     *                      mapped to this condition.
+     * @param selfData      A {@code Map} where keys are {@code Condition}s with data for the gene,
+     *                      the associated value being a {@code Map} where keys are {@code DataType}s,
+     *                      the associated value being the {@code ExperimentExpressionTO}s
+     *                      in this condition.
+     * @return              A {@code List} of {@code PropagatedCall}s, one for each condition
+     *                      with valid data after propagation.
+     */
+    List<PropagatedCall> propagate(Map<Condition, Set<RawExpressionCallTO>> selfCallTOs,
+            Map<Condition, Map<DataType, Set<ExperimentExpressionTO>>> selfData) {
+        log.entry(selfCallTOs, selfData);
+
+        //Dense IDs of the source conditions, and of the experiments of each data type
+        List<Condition> sources = new ArrayList<>(selfCallTOs.keySet());
+        Map<DataType, Map<String, Integer>> expIdsByDataType = new EnumMap<>(DataType.class);
+        List<Map<DataType, BitSet[]>> sourceExps = new ArrayList<>(sources.size());
+        for (Condition source: sources) {
+            Map<DataType, BitSet[]> exps = new EnumMap<>(DataType.class);
+            for (Entry<DataType, Set<ExperimentExpressionTO>> e:
+                    selfData.getOrDefault(source, Collections.emptyMap()).entrySet()) {
+                Map<String, Integer> expIds = expIdsByDataType.computeIfAbsent(e.getKey(),
+                        k -> new HashMap<>());
+                BitSet[] bits = exps.computeIfAbsent(e.getKey(), k -> newBitSets());
+                for (ExperimentExpressionTO eeTO: e.getValue()) {
+                    bits[getCallCategory(eeTO)].set(expIds.computeIfAbsent(eeTO.getExperimentId(),
+                            k -> expIds.size()));
+                }
+            }
+            sourceExps.add(exps);
+        }
+
+        //The source conditions and their ancestors, sorted in topological order:
+        //a descendant has strictly more ancestors than its ancestors, so sorting
+        //by descending number of ancestors puts the descendants first.
+        Map<Condition, Node> nodes = new HashMap<>();
+        for (int i = 0; i < sources.size(); i++) {
+            nodes.computeIfAbsent(sources.get(i), Node::new).sourceIndex = i;
+            for (Condition ancestor: this.ancestorProvider.apply(sources.get(i))) {
+                nodes.computeIfAbsent(ancestor, Node::new);
+            }
+        }
+        List<Node> sweepOrder = new ArrayList<>(nodes.values());
+        sweepOrder.sort(Comparator.comparingInt(
+                (Node n) -> this.ancestorProvider.apply(n.condition).size()).reversed());
+
+        //Descendant sweep: each condition pushes its own data and the data accumulated
+        //from its descendants to its direct parents
+        for (Node node: sweepOrder) {
+            BitSet pushedSources = (BitSet) node.descendantSources.clone();
+            Map<DataType, BitSet[]> pushedExps = new EnumMap<>(DataType.class);
+            for (Entry<DataType, BitSet[]> e: node.descendantExps.entrySet()) {
+                or(pushedExps.computeIfAbsent(e.getKey(), k -> newBitSets()), e.getValue(),
+                        PRESENT_HIGH, PRESENT_LOW);
+            }
+            if (node.sourceIndex >= 0) {
+                pushedSources.set(node.sourceIndex);
+                for (Entry<DataType, BitSet[]> e: sourceExps.get(node.sourceIndex).entrySet()) {
+                    or(pushedExps.computeIfAbsent(e.getKey(), k -> newBitSets()), e.getValue(),
+                            PRESENT_HIGH, PRESENT_LOW);
+                }
+            }
+            for (Condition parent: this.getDirectParents(node.condition)) {
+                Node parentNode = nodes.get(parent);
+                assert parentNode != null: "Missing ancestor " + parent + " of " + node.condition;
+                parentNode.descendantSources.or(pushedSources);
+                for (Entry<DataType, BitSet[]> e: pushedExps.entrySet()) {
+                    or(parentNode.descendantExps.computeIfAbsent(e.getKey(), k -> newBitSets()),
+                            e.getValue(), PRESENT_HIGH, PRESENT_LOW);
+                }
+            }
+        }
+        //Parent propagation: source conditions push their data to their descendants
+        for (int i = 0; i < sources.size(); i++) {
+            for (Condition descendant: this.descendantProvider.apply(sources.get(i))) {
+                Node node = nodes.computeIfAbsent(descendant, Node::new);
+                node.parentSources.set(i);
+                for (Entry<DataType, BitSet[]> e: sourceExps.get(i).entrySet()) {
+                    or(node.parentExps.computeIfAbsent(e.getKey(), k -> newBitSets()), e.getValue(),
+                            ABSENT_HIGH, ABSENT_LOW);
+                }
+            }
+        }
+
+        List<PropagatedCall> calls = new ArrayList<>();
+        for (Node node: nodes.values()) {
+            PropagatedCall call = this.reconcile(node, sources, selfCallTOs, sourceExps);
+            if (call != null) {
+                calls.add(call);
+            }
+        }
+        return log.exit(calls);
+    }
+
+    /**
+     * Reconcile the data accumulated for a condition.
+     *
+     * @return  The {@code PropagatedCall} for this condition, {@code null} if there was
+     *          no valid data (e.g., only "present" calls in parent conditions).
+     */
+    private PropagatedCall reconcile(Node node, List<Condition> sources,
+            Map<Condition, Set<RawExpressionCallTO>> selfCallTOs, List<Map<DataType, BitSet[]>> sourceExps) {
+        log.entry(node, sources, selfCallTOs, sourceExps);
+
+        Map<DataType, BitSet[]> selfExps = node.sourceIndex >= 0? sourceExps.get(node.sourceIndex):
+            Collections.emptyMap();
+        Set<DataType> dataTypes = EnumSet.noneOf(DataType.class);
+        dataTypes.addAll(selfExps.keySet());
+        dataTypes.addAll(node.descendantExps.keySet());
+        dataTypes.addAll(node.parentExps.keySet());
+
+        Set<ExpressionCallData> callData = new HashSet<>();
+        for (DataType dataType: dataTypes) {
+            BitSet[] self = selfExps.getOrDefault(dataType, newBitSets());
+            BitSet[] parent = node.parentExps.getOrDefault(dataType, newBitSets());
+            BitSet[] desc = node.descendantExps.getOrDefault(dataType, newBitSets());
+
+            //we keep only ABSENT calls from parent conditions, and PRESENT calls
+            //from descendant conditions
+            BitSet[] total = newBitSets();
+            for (int cat = 0; cat < CALL_CATEGORY_COUNT; cat++) {
+                total[cat].or(self[cat]);
+            }
+            or(total, desc, PRESENT_HIGH, PRESENT_LOW);
+            or(total, parent, ABSENT_HIGH, ABSENT_LOW);
+
+            //keep the best call for each experiment
+            BitSet[] bestTotal = getBestCalls(total);
+            BitSet[] bestSelf = getBestCalls(self);
+            BitSet[] bestParent = getBestCalls(keep(parent, ABSENT_HIGH, ABSENT_LOW));
+            BitSet[] bestDesc = getBestCalls(keep(desc, PRESENT_HIGH, PRESENT_LOW));
+
+            int totalExpCount = 0;
+            int sameAsSelfCount = 0;
+            for (int cat = 0; cat < CALL_CATEGORY_COUNT; cat++) {
+                totalExpCount += bestTotal[cat].cardinality();
+                BitSet sameAsSelf = (BitSet) bestTotal[cat].clone();
+                sameAsSelf.and(bestSelf[cat]);
+                sameAsSelfCount += sameAsSelf.cardinality();
+            }
+            //In case there is no data valid to be propagated (e.g., only expression calls in parents)
+            if (totalExpCount == 0) {
+                continue;
+            }
+
+            DataPropagation dataProp = this.dataPropIdentity;
+            if (!isEmpty(self, PRESENT_HIGH, ABSENT_LOW)) {
+                dataProp = this.dataPropMerger.apply(dataProp, this.selfDataProp);
+            }
+            dataProp = this.mergeRelativeDataProps(dataProp, node.condition, sources,
+                    node.parentSources, sourceExps, dataType, false);
+            dataProp = this.mergeRelativeDataProps(dataProp, node.condition, sources,
+                    node.descendantSources, sourceExps, dataType, true);
+
+            Set<ExperimentExpressionCount> counts = new HashSet<>();
+            counts.add(new ExperimentExpressionCount(CallType.Expression.EXPRESSED, DataQuality.HIGH,
+                PropagationState.SELF, bestSelf[PRESENT_HIGH].cardinality()));
+            counts.add(new ExperimentExpressionCount(CallType.Expression.EXPRESSED, DataQuality.LOW,
+                PropagationState.SELF, bestSelf[PRESENT_LOW].cardinality()));
+            counts.add(new ExperimentExpressionCount(CallType.Expression.NOT_EXPRESSED, DataQuality.HIGH,
+                PropagationState.SELF, bestSelf[ABSENT_HIGH].cardinality()));
+            counts.add(new ExperimentExpressionCount(CallType.Expression.NOT_EXPRESSED, DataQuality.LOW,
+                PropagationState.SELF, bestSelf[ABSENT_LOW].cardinality()));
+            counts.add(new ExperimentExpressionCount(CallType.Expression.EXPRESSED, DataQuality.HIGH,
+                PropagationState.DESCENDANT, bestDesc[PRESENT_HIGH].cardinality()));
+            counts.add(new ExperimentExpressionCount(CallType.Expression.EXPRESSED, DataQuality.LOW,
+                PropagationState.DESCENDANT, bestDesc[PRESENT_LOW].cardinality()));
+            counts.add(new ExperimentExpressionCount(CallType.Expression.NOT_EXPRESSED, DataQuality.HIGH,
+                PropagationState.ANCESTOR, bestParent[ABSENT_HIGH].cardinality()));
+            counts.add(new ExperimentExpressionCount(CallType.Expression.NOT_EXPRESSED, DataQuality.LOW,
+                PropagationState.ANCESTOR, bestParent[ABSENT_LOW].cardinality()));
+            counts.add(new ExperimentExpressionCount(CallType.Expression.EXPRESSED, DataQuality.HIGH,
+                PropagationState.ALL, bestTotal[PRESENT_HIGH].cardinality()));
+            counts.add(new ExperimentExpressionCount(CallType.Expression.EXPRESSED, DataQuality.LOW,
+                PropagationState.ALL, bestTotal[PRESENT_LOW].cardinality()));
+            counts.add(new ExperimentExpressionCount(CallType.Expression.NOT_EXPRESSED, DataQuality.HIGH,
+                PropagationState.ALL, bestTotal[ABSENT_HIGH].cardinality()));
+            counts.add(new ExperimentExpressionCount(CallType.Expression.NOT_EXPRESSED, DataQuality.LOW,
+                PropagationState.ALL, bestTotal[ABSENT_LOW].cardinality()));
+
+            //the experiments part of the "total" count without an as good call in "self"
+            callData.add(new ExpressionCallData(dataType, counts, totalExpCount - sameAsSelfCount,
+                    null, null, null, dataProp));
+        }
+        if (callData.isEmpty()) {
+            log.trace("No valid data to propagate");
+            return log.exit(null);
+        }
+
+        DataPropagation dataProp = callData.stream().map(cd -> cd.getDataPropagation())
+                .reduce(this.dataPropIdentity, this.dataPropMerger);
+        Set<RawExpressionCallTO> selfSourceCallTOs = node.sourceIndex >= 0?
+                new HashSet<>(selfCallTOs.get(node.condition)): new HashSet<>();
+        return log.exit(new PropagatedCall(node.condition, dataProp, callData,
+                getSourceCallTOs(node.parentSources, sources, selfCallTOs),
+                selfSourceCallTOs,
+                getSourceCallTOs(node.descendantSources, sources, selfCallTOs)));
+    }
+
+    /**
+     * Merge the {@code DataPropagation}s of the data propagated from relative source conditions.
+     *
+     * @param dataProp          The {@code DataPropagation} to merge the relative ones into.
+     * @param condition         The {@code Condition} the data are propagated to.
+     * @param sources           The {@code List} of source {@code Condition}s.
+     * @param relativeSources   A {@code BitSet} containing the indexes of the relative
+     *                          source conditions.
+     * @param sourceExps        The experiments of each source condition.
+     * @param dataType          The {@code DataType} considered.
+     * @param fromDescendants   A {@code boolean} that is {@code true} if the relative source
+     *                          conditions are descendants of {@code condition}, {@code false}
+     *                          if they are parents.
+     * @return                  The merged {@code DataPropagation}.
+     */
+    private DataPropagation mergeRelativeDataProps(DataPropagation dataProp, Condition condition,
+            List<Condition> sources, BitSet relativeSources, List<Map<DataType, BitSet[]>> sourceExps,
+            DataType dataType, boolean fromDescendants) {
+        log.entry(dataProp, condition, sources, relativeSources, sourceExps, dataType, fromDescendants);
+
+        //only PRESENT calls are propagated to ancestors, only ABSENT calls to descendants
+        int firstCat = fromDescendants? PRESENT_HIGH: ABSENT_HIGH;
+        int lastCat = fromDescendants? PRESENT_LOW: ABSENT_LOW;
+        PropagationState relativeState = fromDescendants? PropagationState.DESCENDANT:
+            PropagationState.ANCESTOR;
+        //a same DataPropagation can be produced by many source conditions
+        Set<DataPropagation> seenDataProps = new HashSet<>();
+        DataPropagation mergedDataProp = dataProp;
+        for (int i = relativeSources.nextSetBit(0); i >= 0; i = relativeSources.nextSetBit(i + 1)) {
+            BitSet[] exps = sourceExps.get(i).get(dataType);
+            if (exps == null || isEmpty(exps, firstCat, lastCat)) {
+                continue;
+            }
+            Condition source = sources.get(i);
+            PropagationState anatEntityPropagationState = null;
+            PropagationState devStagePropagationState = null;
+            if (source.getAnatEntityId() != null) {
+                anatEntityPropagationState = source.getAnatEntityId().equals(
+                        condition.getAnatEntityId())? PropagationState.SELF: relativeState;
+            }
+            if (source.getDevStageId() != null) {
+                devStagePropagationState = source.getDevStageId().equals(
+                        condition.getDevStageId())? PropagationState.SELF: relativeState;
+            }
+            DataPropagation relativeDataProp = new DataPropagation(anatEntityPropagationState,
+                    devStagePropagationState, false);
+            if (seenDataProps.add(relativeDataProp)) {
+                mergedDataProp = this.dataPropMerger.apply(mergedDataProp, relativeDataProp);
+            }
+        }
+        return log.exit(mergedDataProp);
+    }
+
+    /**
+     * @param condition A {@code Condition}.
+     * @return          The {@code List} of {@code Condition}s that are the direct parents
+     *                  of {@code condition}: its ancestors that are not ancestors
+     *                  of another of its ancestors.
+     */
+    private List<Condition> getDirectParents(Condition condition) {
+        log.entry(condition);
+        return log.exit(this.condToDirectParents.computeIfAbsent(condition, k -> {
+            Set<Condition> ancestors = this.ancestorProvider.apply(k);
+            Set<Condition> indirectAncestors = new HashSet<>();
+            for (Condition ancestor: ancestors) {
+                indirectAncestors.addAll(this.ancestorProvider.apply(ancestor));
+            }
+            List<Condition> directParents = new ArrayList<>();
+            for (Condition ancestor: ancestors) {
+                if (!indirectAncestors.contains(ancestor)) {
+                    directParents.add(ancestor);
+                }
+            }
+            return Collections.unmodifiableList(directParents);
+        }));
+    }
+
+    private static Set<RawExpressionCallTO> getSourceCallTOs(BitSet sourceIndexes,
+            List<Condition> sources, Map<Condition, Set<RawExpressionCallTO>> selfCallTOs) {
+        log.entry(sourceIndexes, sources, selfCallTOs);
+        Set<RawExpressionCallTO> callTOs = new HashSet<>();
+        for (int i = sourceIndexes.nextSetBit(0); i >= 0; i = sourceIndexes.nextSetBit(i + 1)) {
+            callTOs.addAll(selfCallTOs.get(sources.get(i)));
+        }
+        return log.exit(callTOs);
+    }
+
+    private static int getCallCategory(ExperimentExpressionTO eeTO) {
+        if (CallDirection.PRESENT.equals(eeTO.getCallDirection())) {
+            return CallQuality.HIGH.equals(eeTO.getCallQuality())? PRESENT_HIGH: PRESENT_LOW;
+        }
+        return CallQuality.HIGH.equals(eeTO.getCallQuality())? ABSENT_HIGH: ABSENT_LOW;
+    }
+    /**
+     * @param exps  An array of {@code BitSet}s of experiments for each call category.
+     * @return      An array of {@code BitSet}s where each experiment is only present
+     *              for its best call category.
+     */
+    private static BitSet[] getBestCalls(BitSet[] exps) {
+        BitSet[] best = newBitSets();
+        BitSet seen = new BitSet();
+        for (int cat = 0; cat < CALL_CATEGORY_COUNT; cat++) {
+            best[cat].or(exps[cat]);
+            best[cat].andNot(seen);
+            seen.or(exps[cat]);
+        }
+        return best;
+    }
+    private static BitSet[] keep(BitSet[] exps, int firstCat, int lastCat) {
+        BitSet[] kept = newBitSets();
+        or(kept, exps, firstCat, lastCat);
+        return kept;
+    }
+    private static void or(BitSet[] target, BitSet[] source, int firstCat, int lastCat) {
+        for (int cat = firstCat; cat <= lastCat; cat++) {
+            target[cat].or(source[cat]);
+        }
+    }
+    private static boolean isEmpty(BitSet[] exps, int firstCat, int lastCat) {
+        for (int cat = firstCat; cat <= lastCat; cat++) {
+            if (!exps[cat].isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    private static BitSet[] newBitSets() {
+        BitSet[] bits = new BitSet[CALL_CATEGORY_COUNT];
+        for (int cat = 0; cat < CALL_CATEGORY_COUNT; cat++) {
+            bits[cat] = new BitSet();
+        }
+        return bits;
+    }
+}
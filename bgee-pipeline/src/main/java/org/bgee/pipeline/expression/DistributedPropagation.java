@@ -0,0 +1,985 @@
+package org.bgee.pipeline.expression;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.ServiceFactory;
+import org.bgee.model.dao.api.DAOManager;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO;
+import org.bgee.pipeline.BgeeDBUtils;
+import org.bgee.pipeline.CommandRunner;
+import org.bgee.pipeline.expression.PropagatedCallFileWriter.Table;
+import org.supercsv.io.CsvListReader;
+import org.supercsv.io.CsvListWriter;
+import org.supercsv.io.ICsvListReader;
+import org.supercsv.io.ICsvListWriter;
+import org.supercsv.prefs.CsvPreference;
+
+/**
+ * Distributes the propagation of expression calls over several processes,
+ * possibly running on different hosts, sharing a work directory
+ * (for instance, on a network file system).
+ * <ul>
+ * <li>The coordinator (see {@link #coordinate(List, List, int, Path)}) splits the genes
+ * with data of each requested species into work units, one for each range of gene IDs
+ * and each combination of condition parameters, and publishes them to the work directory.
+ * It then monitors the progress of the workers, and finally merges their outputs.
+ * <li>Workers (see {@link #work()}) claim the work units not yet completed, by acquiring
+ * a lease on them, and compute the propagation for each of them using
+ * {@link InsertPropagatedCalls} in compute-to-file mode, each unit having its own
+ * output directory. A lease is renewed regularly while the unit is processed. A unit
+ * whose lease expired (because its worker crashed or was killed) is claimed again
+ * by another worker, as a unit whose processing failed, up to a maximum number of attempts.
+ * <li>The merge (see {@link #merge(Path)}) reassigns the global condition and global
+ * expression IDs, that are generated independently by each worker, to produce one file
+ * per table and per species, that can be loaded by {@link LoadPropagatedCalls}.
+ * </ul>
+ * Claims only rely on the atomic creation of files: the lease of each attempt
+ * to process a unit is stored in its own file in the directory {@code leases},
+ * named after the unit ID and the attempt number (for instance, {@code u000012.2}),
+ * and created as a hard link to a fully written temporary file, which fails
+ * if the file already exists, so that only one worker can win a given attempt.
+ * A unit is completed when its output directory has been atomically moved
+ * to the directory {@code output}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class DistributedPropagation {
+    private final static Logger log = LogManager.getLogger(DistributedPropagation.class.getName());
+
+    /**
+     * A {@code long} that is the default duration in milliseconds of a lease
+     * on a work unit, before it can be claimed by another worker if not renewed.
+     */
+    public final static long DEFAULT_LEASE_MILLIS = 10 * 60 * 1000;
+    /**
+     * An {@code int} that is the default maximum number of attempts to process a work unit.
+     */
+    public final static int DEFAULT_MAX_ATTEMPTS = 3;
+    /**
+     * A {@code long} that is the default delay in milliseconds between two checks
+     * of the work directory, by workers waiting for units to claim,
+     * and by the coordinator monitoring the progress.
+     */
+    public final static long DEFAULT_POLL_MILLIS = 30 * 1000;
+    /**
+     * An {@code int} that is the default number of genes per work unit.
+     */
+    public final static int DEFAULT_GENES_PER_UNIT = 2000;
+
+    private final static String JOB_FILE_NAME = "job.properties";
+    private final static String UNIT_DIR_NAME = "units";
+    private final static String LEASE_DIR_NAME = "leases";
+    private final static String OUTPUT_DIR_NAME = "output";
+    private final static String UNIT_FILE_EXTENSION = ".properties";
+    private final static String TMP_FILE_PREFIX = ".";
+
+    private final static String SPECIES_IDS_KEY = "speciesIds";
+    private final static String MAX_COND_ID_KEY = "maxGlobalConditionId";
+    private final static String MAX_EXPR_ID_KEY = "maxGlobalExprId";
+    private final static String UNIT_COUNT_KEY = "unitCount";
+    private final static String SPECIES_ID_KEY = "speciesId";
+    private final static String COND_PARAMS_KEY = "condParams";
+    private final static String FIRST_GENE_ID_KEY = "firstBgeeGeneId";
+    private final static String LAST_GENE_ID_KEY = "lastBgeeGeneId";
+    private final static String WORKER_ID_KEY = "workerId";
+    private final static String EXPIRES_AT_KEY = "expiresAt";
+
+    /**
+     * Main method to distribute the propagation of expression calls. The first element
+     * in {@code args} is the action to perform:
+     * <ul>
+     * <li>"coordinate": publish work units, wait for their completion by workers, and merge
+     * their outputs. Following parameters are:
+     *   <ol>
+     *   <li>the path to the shared work directory, that must not contain a previous job.
+     *   <li>a list of NCBI species IDs, separated by {@link CommandRunner#LIST_SEPARATOR}.
+     *   If empty (see {@link CommandRunner#EMPTY_LIST}), all species in database will be used.
+     *   <li>the combinations of condition parameters, as for {@link InsertPropagatedCalls#main(String[])}.
+     *   <li>the path to the directory where to write the merged files, to be loaded
+     *   by {@link LoadPropagatedCalls}.
+     *   <li>optional: the number of genes per work unit (default {@link #DEFAULT_GENES_PER_UNIT}).
+     *   </ol>
+     * <li>"work": claim and process work units until all are completed or failed.
+     * Following parameters are:
+     *   <ol>
+     *   <li>the path to the shared work directory.
+     *   <li>optional: the ID of the worker, used in logs and leases
+     *   (default: the JVM name, containing the process ID and the host name).
+     *   </ol>
+     * <li>"merge": merge again the outputs of a completed job. Following parameters are:
+     *   <ol>
+     *   <li>the path to the shared work directory.
+     *   <li>the path to the directory where to write the merged files.
+     *   </ol>
+     * </ul>
+     *
+     * @param args  An {@code Array} of {@code String}s containing the requested parameters.
+     * @throws IllegalArgumentException If the arguments are incorrect.
+     * @throws IllegalStateException    If some work units could not be processed.
+     */
+    public static void main(String[] args) throws IllegalArgumentException, IllegalStateException {
+        log.entry((Object[]) args);
+        if (args == null || args.length == 0) {
+            throw log.throwing(new IllegalArgumentException("No arguments are provided. At least one argument"
+                    + "corresponding to the action to do should be provided"));
+        }
+        if (args[0].equalsIgnoreCase("coordinate")) {
+            int expectedArgLength = 5;
+            if (args.length != expectedArgLength && args.length != expectedArgLength + 1) {
+                throw log.throwing(new IllegalArgumentException("Incorrect number of arguments provided, expected "
+                        + expectedArgLength + " or " + (expectedArgLength + 1) + " arguments, "
+                        + args.length + " provided."));
+            }
+            int genesPerUnit = args.length > expectedArgLength? Integer.parseInt(args[expectedArgLength]):
+                DEFAULT_GENES_PER_UNIT;
+            new DistributedPropagation(Paths.get(args[1])).coordinate(
+                    CommandRunner.parseListArgumentAsInt(args[2]),
+                    InsertPropagatedCalls.parseCondParamCombinations(args[3]),
+                    genesPerUnit, Paths.get(args[4]));
+        } else if (args[0].equalsIgnoreCase("work")) {
+            int expectedArgLength = 2;
+            if (args.length != expectedArgLength && args.length != expectedArgLength + 1) {
+                throw log.throwing(new IllegalArgumentException("Incorrect number of arguments provided, expected "
+                        + expectedArgLength + " or " + (expectedArgLength + 1) + " arguments, "
+                        + args.length + " provided."));
+            }
+            String workerId = args.length > expectedArgLength? args[expectedArgLength]:
+                ManagementFactory.getRuntimeMXBean().getName();
+            new DistributedPropagation(Paths.get(args[1]), workerId).work();
+        } else if (args[0].equalsIgnoreCase("merge")) {
+            int expectedArgLength = 3;
+            if (args.length != expectedArgLength) {
+                throw log.throwing(new IllegalArgumentException("Incorrect number of arguments provided, expected "
+                        + expectedArgLength + " arguments, " + args.length + " provided."));
+            }
+            new DistributedPropagation(Paths.get(args[1])).merge(Paths.get(args[2]));
+        } else {
+            throw log.throwing(new IllegalArgumentException(args[0] + " is not recognized as an action"));
+        }
+        log.exit();
+    }
+
+    /**
+     * A functional interface for the processing of a work unit.
+     */
+    @FunctionalInterface
+    static interface UnitProcessor {
+        /**
+         * @param unit          The {@code WorkUnit} to process.
+         * @param outputDir     A {@code Path} to the directory, not yet existing,
+         *                      where to write the files of the unit
+         *                      (see {@link PropagatedCallFileWriter}).
+         * @throws Exception    If an error occurred.
+         */
+        void process(WorkUnit unit, Path outputDir) throws Exception;
+    }
+
+    /**
+     * A work unit: the propagation of the calls of a range of genes of a species,
+     * for one combination of condition parameters.
+     */
+    static final class WorkUnit {
+        private final String id;
+        private final int speciesId;
+        private final Set<ConditionDAO.Attribute> condParams;
+        private final int firstBgeeGeneId;
+        private final int lastBgeeGeneId;
+
+        WorkUnit(String id, int speciesId, Set<ConditionDAO.Attribute> condParams,
+                int firstBgeeGeneId, int lastBgeeGeneId) {
+            this.id = id;
+            this.speciesId = speciesId;
+            this.condParams = Collections.unmodifiableSet(EnumSet.copyOf(condParams));
+            this.firstBgeeGeneId = firstBgeeGeneId;
+            this.lastBgeeGeneId = lastBgeeGeneId;
+        }
+
+        String getId() {
+            return this.id;
+        }
+        int getSpeciesId() {
+            return this.speciesId;
+        }
+        Set<ConditionDAO.Attribute> getCondParams() {
+            return this.condParams;
+        }
+        int getFirstBgeeGeneId() {
+            return this.firstBgeeGeneId;
+        }
+        int getLastBgeeGeneId() {
+            return this.lastBgeeGeneId;
+        }
+
+        @Override
+        public String toString() {
+            return "WorkUnit [id=" + id + ", speciesId=" + speciesId + ", condParams=" + condParams
+                    + ", firstBgeeGeneId=" + firstBgeeGeneId + ", lastBgeeGeneId=" + lastBgeeGeneId + "]";
+        }
+    }
+
+    /**
+     * The lease of an attempt to process a work unit.
+     */
+    private static final class Lease {
+        private final String unitId;
+        private final int attempt;
+        private final String workerId;
+        private final long expiresAt;
+
+        private Lease(String unitId, int attempt, String workerId, long expiresAt) {
+            this.unitId = unitId;
+            this.attempt = attempt;
+            this.workerId = workerId;
+            this.expiresAt = expiresAt;
+        }
+        private String getFileName() {
+            return this.unitId + "." + this.attempt;
+        }
+        private boolean isExpired() {
+            return this.expiresAt <= System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * A {@code Path} to the shared work directory.
+     */
+    private final Path workDir;
+    /**
+     * A {@code String} that is the ID of this worker, stored in the leases it holds.
+     */
+    private final String workerId;
+    /**
+     * A {@code long} that is the duration in milliseconds of a lease.
+     */
+    private final long leaseMillis;
+    /**
+     * An {@code int} that is the maximum number of attempts to process a work unit.
+     */
+    private final int maxAttempts;
+    /**
+     * A {@code long} that is the delay in milliseconds between two checks of the work directory.
+     */
+    private final long pollMillis;
+    /**
+     * The {@code UnitProcessor} used to process the work units claimed by this worker.
+     */
+    private final UnitProcessor unitProcessor;
+    /**
+     * The {@code Supplier} of {@code DAOManager}s used by the coordinator
+     * to retrieve the genes with data and the maximum IDs already used in database.
+     */
+    private final Supplier<DAOManager> daoManagerSupplier;
+
+    /**
+     * Constructor to use for the coordinator, or to merge the outputs of a job.
+     *
+     * @param workDir   A {@code Path} to the shared work directory.
+     */
+    public DistributedPropagation(Path workDir) {
+        this(workDir, ManagementFactory.getRuntimeMXBean().getName());
+    }
+    /**
+     * Constructor to use for a worker, using the default {@code DAOManager} and
+     * {@code ServiceFactory} to compute the propagation.
+     *
+     * @param workDir   A {@code Path} to the shared work directory.
+     * @param workerId  A {@code String} that is the ID of this worker.
+     */
+    public DistributedPropagation(Path workDir, String workerId) {
+        this(workDir, workerId, DAOManager::getDAOManager, ServiceFactory::new);
+    }
+    /**
+     * @param workDir                   A {@code Path} to the shared work directory.
+     * @param workerId                  A {@code String} that is the ID of this worker.
+     * @param daoManagerSupplier        The {@code Supplier} of {@code DAOManager} to use.
+     * @param serviceFactoryProvider    The {@code Function} accepting a {@code DAOManager} as argument
+     *                                  and returning a new {@code ServiceFactory}.
+     */
+    public DistributedPropagation(Path workDir, String workerId,
+            final Supplier<DAOManager> daoManagerSupplier,
+            final Function<DAOManager, ServiceFactory> serviceFactoryProvider) {
+        this(workDir, workerId, DEFAULT_LEASE_MILLIS, DEFAULT_MAX_ATTEMPTS, DEFAULT_POLL_MILLIS,
+                (unit, outputDir) -> new InsertPropagatedCalls(
+                        () -> serviceFactoryProvider.apply(daoManagerSupplier.get()),
+                        Collections.singletonList(unit.getCondParams()), unit.getSpeciesId(),
+                        outputDir, unit.getFirstBgeeGeneId(), unit.getLastBgeeGeneId())
+                    .insertOneSpecies(),
+                daoManagerSupplier);
+    }
+    /**
+     * @param workDir               A {@code Path} to the shared work directory.
+     * @param workerId              A {@code String} that is the ID of this worker.
+     * @param leaseMillis           A {@code long} that is the duration in milliseconds of a lease.
+     * @param maxAttempts           An {@code int} that is the maximum number of attempts
+     *                              to process a work unit.
+     * @param pollMillis            A {@code long} that is the delay in milliseconds between
+     *                              two checks of the work directory.
+     * @param unitProcessor         The {@code UnitProcessor} used to process work units.
+     * @param daoManagerSupplier    The {@code Supplier} of {@code DAOManager} used by the coordinator.
+     */
+    DistributedPropagation(Path workDir, String workerId, long leaseMillis, int maxAttempts,
+            long pollMillis, UnitProcessor unitProcessor, Supplier<DAOManager> daoManagerSupplier) {
+        if (workDir == null || workerId == null || workerId.isEmpty() || leaseMillis <= 0 ||
+                maxAttempts <= 0 || pollMillis <= 0) {
+            throw log.throwing(new IllegalArgumentException("Incorrect parameters"));
+        }
+        this.workDir = workDir;
+        this.workerId = workerId;
+        this.leaseMillis = leaseMillis;
+        this.maxAttempts = maxAttempts;
+        this.pollMillis = pollMillis;
+        this.unitProcessor = unitProcessor;
+        this.daoManagerSupplier = daoManagerSupplier;
+    }
+
+    //*************************************************************************
+    // COORDINATOR
+    //*************************************************************************
+    /**
+     * Publish the work units, wait for their completion by workers, and merge their outputs.
+     *
+     * @param speciesIds            A {@code List} of {@code Integer}s that are the IDs
+     *                              of the species to propagate calls for. If {@code null}
+     *                              or empty, all species in database are considered.
+     * @param condParamCombinations A {@code List} of {@code Set}s of {@code ConditionDAO.Attribute}s,
+     *                              each {@code Set} being a combination of condition parameters
+     *                              to propagate calls for.
+     * @param genesPerUnit          An {@code int} that is the maximum number of genes per work unit.
+     * @param outputDir             A {@code Path} to the directory where to write the merged files.
+     * @throws IllegalStateException    If some work units could not be processed.
+     */
+    public void coordinate(List<Integer> speciesIds,
+            List<Set<ConditionDAO.Attribute>> condParamCombinations, int genesPerUnit, Path outputDir)
+                    throws IllegalStateException {
+        log.entry(speciesIds, condParamCombinations, genesPerUnit, outputDir);
+        this.publish(speciesIds, condParamCombinations, genesPerUnit);
+        this.awaitCompletion();
+        this.merge(outputDir);
+        log.exit();
+    }
+
+    /**
+     * Split the genes with data of the requested species into work units,
+     * and publish them to the work directory.
+     *
+     * @param speciesIds            See {@link #coordinate(List, List, int, Path)}.
+     * @param condParamCombinations See {@link #coordinate(List, List, int, Path)}.
+     * @param genesPerUnit          See {@link #coordinate(List, List, int, Path)}.
+     */
+    void publish(List<Integer> speciesIds, List<Set<ConditionDAO.Attribute>> condParamCombinations,
+            int genesPerUnit) {
+        log.entry(speciesIds, condParamCombinations, genesPerUnit);
+        if (condParamCombinations == null || condParamCombinations.isEmpty() || genesPerUnit <= 0) {
+            throw log.throwing(new IllegalArgumentException("Incorrect parameters"));
+        }
+        List<WorkUnit> units = new ArrayList<>();
+        List<Integer> speciesIdsToUse;
+        int maxCondId;
+        int maxExprId;
+        try (DAOManager manager = this.daoManagerSupplier.get()) {
+            speciesIdsToUse = BgeeDBUtils.checkAndGetSpeciesIds(speciesIds, manager.getSpeciesDAO());
+            maxCondId = manager.getConditionDAO().getMaxGlobalConditionId();
+            maxExprId = manager.getGlobalExpressionCallDAO().getMaxGlobalExprId();
+            for (int speciesId: speciesIdsToUse) {
+                List<Integer> geneIds = manager.getGeneDAO()
+                        .getGenesWithDataBySpeciesIds(Collections.singleton(speciesId))
+                        .stream().map(g -> g.getId())
+                        .sorted()
+                        .collect(Collectors.toList());
+                for (Set<ConditionDAO.Attribute> condParams: condParamCombinations) {
+                    for (int i = 0; i < geneIds.size(); i += genesPerUnit) {
+                        units.add(new WorkUnit(String.format("u%06d", units.size() + 1), speciesId,
+                                condParams, geneIds.get(i),
+                                geneIds.get(Math.min(i + genesPerUnit, geneIds.size()) - 1)));
+                    }
+                }
+            }
+        }
+        this.publishUnits(units, speciesIdsToUse, maxCondId, maxExprId);
+        log.exit();
+    }
+
+    /**
+     * Write the work units to the work directory, then the job description, that signals
+     * to the workers that the units can be claimed.
+     *
+     * @param units         A {@code List} of {@code WorkUnit}s to publish.
+     * @param speciesIds    A {@code List} of {@code Integer}s that are the IDs of the species
+     *                      of the job, in the order their files are merged.
+     * @param maxCondId     An {@code int} that is the maximum global condition ID already
+     *                      used in database.
+     * @param maxExprId     An {@code int} that is the maximum global expression ID already
+     *                      used in database.
+     * @throws IllegalStateException    If the work directory already contains a job.
+     */
+    void publishUnits(List<WorkUnit> units, List<Integer> speciesIds, int maxCondId, int maxExprId)
+            throws IllegalStateException {
+        log.entry(units, speciesIds, maxCondId, maxExprId);
+        if (Files.exists(this.workDir.resolve(JOB_FILE_NAME))) {
+            throw log.throwing(new IllegalStateException("A job already exists in " + this.workDir));
+        }
+        try {
+            Files.createDirectories(this.workDir.resolve(UNIT_DIR_NAME));
+            Files.createDirectories(this.workDir.resolve(LEASE_DIR_NAME));
+            Files.createDirectories(this.workDir.resolve(OUTPUT_DIR_NAME));
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException(e));
+        }
+        for (WorkUnit unit: units) {
+            Properties props = new Properties();
+            props.setProperty(SPECIES_ID_KEY, String.valueOf(unit.getSpeciesId()));
+            props.setProperty(COND_PARAMS_KEY, unit.getCondParams().stream()
+                    .map(a -> a.name()).collect(Collectors.joining(CommandRunner.LIST_SEPARATOR)));
+            props.setProperty(FIRST_GENE_ID_KEY, String.valueOf(unit.getFirstBgeeGeneId()));
+            props.setProperty(LAST_GENE_ID_KEY, String.valueOf(unit.getLastBgeeGeneId()));
+            this.writeProperties(this.workDir.resolve(UNIT_DIR_NAME)
+                    .resolve(unit.getId() + UNIT_FILE_EXTENSION), props);
+        }
+        Properties job = new Properties();
+        job.setProperty(SPECIES_IDS_KEY, speciesIds.stream().map(id -> id.toString())
+                .collect(Collectors.joining(CommandRunner.LIST_SEPARATOR)));
+        job.setProperty(MAX_COND_ID_KEY, String.valueOf(maxCondId));
+        job.setProperty(MAX_EXPR_ID_KEY, String.valueOf(maxExprId));
+        job.setProperty(UNIT_COUNT_KEY, String.valueOf(units.size()));
+        this.writeProperties(this.workDir.resolve(JOB_FILE_NAME), job);
+        log.info("{} work units published to {}", units.size(), this.workDir);
+        log.exit();
+    }
+
+    /**
+     * Wait for all work units to be completed or failed, logging the progress.
+     *
+     * @throws IllegalStateException    If some work units failed.
+     */
+    void awaitCompletion() throws IllegalStateException {
+        log.entry();
+        List<WorkUnit> units = this.loadUnits();
+        while (true) {
+            Map<String, Integer> attempts = this.loadCurrentAttempts();
+            int done = 0;
+            int running = 0;
+            int expired = 0;
+            int pending = 0;
+            List<String> failed = new ArrayList<>();
+            for (WorkUnit unit: units) {
+                if (this.isDone(unit)) {
+                    done++;
+                    continue;
+                }
+                Lease lease = this.readLease(unit.getId(), attempts.get(unit.getId()));
+                if (lease == null) {
+                    pending++;
+                } else if (!lease.isExpired()) {
+                    running++;
+                } else if (lease.attempt >= this.maxAttempts) {
+                    failed.add(unit.getId());
+                } else {
+                    expired++;
+                }
+            }
+            log.info("Progress: {}/{} units done, {} running, {} to retry, {} pending, {} failed",
+                    done, units.size(), running, expired, pending, failed.size());
+            if (done + failed.size() == units.size()) {
+                if (!failed.isEmpty()) {
+                    throw log.throwing(new IllegalStateException("Work units failed after "
+                            + this.maxAttempts + " attempts: " + failed));
+                }
+                break;
+            }
+            this.sleep();
+        }
+        log.exit();
+    }
+
+    //*************************************************************************
+    // WORKER
+    //*************************************************************************
+    /**
+     * Claim and process work units, until all units are completed or failed.
+     * If no job has been published yet, wait for it.
+     */
+    public void work() {
+        log.entry();
+        while (!Files.exists(this.workDir.resolve(JOB_FILE_NAME))) {
+            log.info("Waiting for a job to be published in {}", this.workDir);
+            this.sleep();
+        }
+        List<WorkUnit> units = this.loadUnits();
+        log.info("Worker {} started, {} work units in job", this.workerId, units.size());
+
+        ScheduledExecutorService leaseRenewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lease-renewer");
+            t.setDaemon(true);
+            return t;
+        });
+        int processed = 0;
+        try {
+            while (true) {
+                boolean remaining = false;
+                boolean claimed = false;
+                Map<String, Integer> attempts = this.loadCurrentAttempts();
+                for (WorkUnit unit: units) {
+                    if (this.isDone(unit)) {
+                        continue;
+                    }
+                    Integer attempt = attempts.get(unit.getId());
+                    Lease current = this.readLease(unit.getId(), attempt);
+                    if (current != null && current.isExpired() && current.attempt >= this.maxAttempts) {
+                        //failed unit
+                        continue;
+                    }
+                    remaining = true;
+                    Lease lease = this.tryClaim(unit, current);
+                    if (lease != null) {
+                        claimed = true;
+                        this.process(unit, lease, leaseRenewer);
+                        processed++;
+                    }
+                }
+                if (!remaining) {
+                    break;
+                }
+                if (!claimed) {
+                    //units are processed by other workers, wait for their completion,
+                    //or for their lease to expire
+                    this.sleep();
+                }
+            }
+        } finally {
+            leaseRenewer.shutdownNow();
+        }
+        log.info("Worker {} finished, {} work units processed", this.workerId, processed);
+        log.exit();
+    }
+
+    /**
+     * Try to claim a work unit.
+     *
+     * @param unit      The {@code WorkUnit} to claim.
+     * @param current   The current {@code Lease} on {@code unit}, {@code null} if none.
+     * @return          The new {@code Lease} acquired, {@code null} if the unit is still
+     *                  leased by another worker, or was claimed concurrently.
+     */
+    private Lease tryClaim(WorkUnit unit, Lease current) {
+        log.entry(unit, current);
+        if (current != null && !current.isExpired()) {
+            return log.exit(null);
+        }
+        int attempt = current == null? 1: current.attempt + 1;
+        if (current != null) {
+            log.info("Lease of unit {} by worker {} expired (attempt {}/{})", unit.getId(),
+                    current.workerId, current.attempt, this.maxAttempts);
+        }
+        Lease lease = new Lease(unit.getId(), attempt, this.workerId,
+                System.currentTimeMillis() + this.leaseMillis);
+        //The lease is written to a temporary file, then hard-linked to the lease file:
+        //the link creation fails atomically if another worker already claimed this attempt,
+        //and other workers never read a partially written lease.
+        Path leaseFile = this.workDir.resolve(LEASE_DIR_NAME).resolve(lease.getFileName());
+        Path tmpFile = leaseFile.resolveSibling(TMP_FILE_PREFIX + lease.getFileName() + "." + this.workerId);
+        try {
+            try (OutputStream os = Files.newOutputStream(tmpFile)) {
+                getLeaseProperties(lease).store(os, null);
+            }
+            try {
+                Files.createLink(leaseFile, tmpFile);
+            } catch (FileAlreadyExistsException e) {
+                log.debug("Unit {} attempt {} claimed by another worker", unit.getId(), attempt);
+                return log.exit(null);
+            } finally {
+                Files.delete(tmpFile);
+            }
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException(e));
+        }
+        log.info("Unit {} claimed by worker {}, attempt {}/{}", unit.getId(), this.workerId,
+                attempt, this.maxAttempts);
+        return log.exit(lease);
+    }
+
+    /**
+     * Process a claimed work unit, renewing its lease regularly. If the processing fails,
+     * the lease is released so that the unit can be claimed again, possibly by another worker.
+     *
+     * @param unit          The {@code WorkUnit} to process.
+     * @param lease         The {@code Lease} acquired on {@code unit}.
+     * @param leaseRenewer  The {@code ScheduledExecutorService} used to renew the lease.
+     */
+    private void process(WorkUnit unit, Lease lease, ScheduledExecutorService leaseRenewer) {
+        log.entry(unit, lease, leaseRenewer);
+        Path outputDir = this.workDir.resolve(OUTPUT_DIR_NAME);
+        Path tmpDir = outputDir.resolve(TMP_FILE_PREFIX + lease.getFileName());
+        long renewalPeriod = Math.max(1, this.leaseMillis / 3);
+        ScheduledFuture<?> renewal = leaseRenewer.scheduleAtFixedRate(() -> this.renew(lease),
+                renewalPeriod, renewalPeriod, TimeUnit.MILLISECONDS);
+        try {
+            deleteRecursively(tmpDir);
+            this.unitProcessor.process(unit, tmpDir);
+            renewal.cancel(false);
+            try {
+                Files.move(tmpDir, outputDir.resolve(unit.getId()), StandardCopyOption.ATOMIC_MOVE);
+                log.info("Unit {} completed by worker {}", unit.getId(), this.workerId);
+            } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+                //The lease expired while this worker was processing the unit,
+                //and the unit was completed by another worker.
+                log.warn("Unit {} already completed by another worker, output discarded", unit.getId());
+                deleteRecursively(tmpDir);
+            }
+        } catch (Exception e) {
+            renewal.cancel(false);
+            log.catching(e);
+            log.error("Processing of unit {} failed, attempt {}/{}", unit.getId(), lease.attempt,
+                    this.maxAttempts);
+            try {
+                deleteRecursively(tmpDir);
+            } catch (UncheckedIOException e2) {
+                log.catching(e2);
+            }
+            //release the lease for the unit to be retried
+            this.writeLease(new Lease(lease.unitId, lease.attempt, lease.workerId, 0));
+        }
+        log.exit();
+    }
+
+    /**
+     * Renew a lease, unless the unit was claimed by another worker after expiration
+     * of the lease.
+     *
+     * @param lease The {@code Lease} to renew.
+     */
+    private void renew(Lease lease) {
+        log.entry(lease);
+        try {
+            Integer currentAttempt = this.loadCurrentAttempts().get(lease.unitId);
+            if (currentAttempt != null && currentAttempt > lease.attempt) {
+                log.warn("Lease of unit {} lost by worker {}", lease.unitId, this.workerId);
+            } else {
+                this.writeLease(new Lease(lease.unitId, lease.attempt, lease.workerId,
+                        System.currentTimeMillis() + this.leaseMillis));
+            }
+        } catch (RuntimeException e) {
+            //do not throw, otherwise the renewal would not be scheduled anymore
+            log.catching(e);
+        }
+        log.exit();
+    }
+
+    //*************************************************************************
+    // MERGE
+    //*************************************************************************
+    /**
+     * Merge the outputs of all the work units into one file per table and per species,
+     * that can be loaded by {@link LoadPropagatedCalls}. Global conditions generated
+     * by different units are deduplicated, global condition IDs and global expression IDs
+     * are reassigned, starting after the maximum IDs in database when the job was published.
+     *
+     * @param outputDir A {@code Path} to the directory where to write the merged files.
+     * @throws IllegalStateException    If some work units are not completed.
+     */
+    public void merge(Path outputDir) throws IllegalStateException {
+        log.entry(outputDir);
+        Properties job = this.readProperties(this.workDir.resolve(JOB_FILE_NAME));
+        List<WorkUnit> units = this.loadUnits();
+        List<String> notDone = units.stream().filter(u -> !this.isDone(u))
+                .map(u -> u.getId()).collect(Collectors.toList());
+        if (!notDone.isEmpty()) {
+            throw log.throwing(new IllegalStateException("Work units not completed: " + notDone));
+        }
+        List<Integer> speciesIds = CommandRunner.parseListArgumentAsInt(job.getProperty(SPECIES_IDS_KEY));
+        int condId = Integer.parseInt(job.getProperty(MAX_COND_ID_KEY));
+        int exprId = Integer.parseInt(job.getProperty(MAX_EXPR_ID_KEY));
+
+        int condIdIndex = Table.GLOBAL_COND.getColumns().indexOf("globalConditionId");
+        int relCondIdIndex = Table.GLOBAL_COND_TO_COND.getColumns().indexOf("globalConditionId");
+        int exprIdIndex = Table.GLOBAL_EXPRESSION.getColumns().indexOf("globalExpressionId");
+        int exprCondIdIndex = Table.GLOBAL_EXPRESSION.getColumns().indexOf("globalConditionId");
+        try {
+            Files.createDirectories(outputDir);
+            for (int speciesId: speciesIds) {
+                log.info("Merging files for species {}...", speciesId);
+                //global conditions are identified by their values other than their ID
+                Map<List<String>, Integer> condKeyToId = new HashMap<>();
+                //relations are identified by their raw condition ID and global condition ID
+                Set<List<String>> relKeys = new HashSet<>();
+                try (ICsvListWriter condWriter = newWriter(outputDir, Table.GLOBAL_COND, speciesId);
+                     ICsvListWriter relWriter = newWriter(outputDir, Table.GLOBAL_COND_TO_COND, speciesId);
+                     ICsvListWriter exprWriter = newWriter(outputDir, Table.GLOBAL_EXPRESSION, speciesId)) {
+
+                    for (WorkUnit unit: units) {
+                        if (unit.getSpeciesId() != speciesId) {
+                            continue;
+                        }
+                        Path unitDir = this.workDir.resolve(OUTPUT_DIR_NAME).resolve(unit.getId());
+                        Map<String, String> unitCondIdToCondId = new HashMap<>();
+
+                        try (ICsvListReader reader = newReader(unitDir, Table.GLOBAL_COND, speciesId)) {
+                            List<String> row;
+                            while ((row = reader.read()) != null) {
+                                List<String> key = new ArrayList<>(row);
+                                String unitCondId = key.remove(condIdIndex);
+                                Integer id = condKeyToId.get(key);
+                                if (id == null) {
+                                    id = ++condId;
+                                    condKeyToId.put(key, id);
+                                    row.set(condIdIndex, id.toString());
+                                    condWriter.write(row);
+                                }
+                                unitCondIdToCondId.put(unitCondId, id.toString());
+                            }
+                        }
+                        try (ICsvListReader reader = newReader(unitDir, Table.GLOBAL_COND_TO_COND, speciesId)) {
+                            List<String> row;
+                            while ((row = reader.read()) != null) {
+                                row.set(relCondIdIndex, getMappedId(unitCondIdToCondId,
+                                        row.get(relCondIdIndex), unit));
+                                if (relKeys.add(Arrays.asList(row.get(0), row.get(relCondIdIndex)))) {
+                                    relWriter.write(row);
+                                }
+                            }
+                        }
+                        try (ICsvListReader reader = newReader(unitDir, Table.GLOBAL_EXPRESSION, speciesId)) {
+                            List<String> row;
+                            while ((row = reader.read()) != null) {
+                                row.set(exprIdIndex, String.valueOf(++exprId));
+                                row.set(exprCondIdIndex, getMappedId(unitCondIdToCondId,
+                                        row.get(exprCondIdIndex), unit));
+                                exprWriter.write(row);
+                            }
+                        }
+                    }
+                }
+                log.info("Done merging files for species {}: {} global conditions", speciesId,
+                        condKeyToId.size());
+            }
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException(e));
+        }
+        log.exit();
+    }
+
+    private static String getMappedId(Map<String, String> unitCondIdToCondId, String unitCondId,
+            WorkUnit unit) throws IllegalStateException {
+        String id = unitCondIdToCondId.get(unitCondId);
+        if (id == null) {
+            throw log.throwing(new IllegalStateException("Unknown global condition ID "
+                    + unitCondId + " in output of unit " + unit.getId()));
+        }
+        return id;
+    }
+    private static ICsvListWriter newWriter(Path dir, Table table, int speciesId) throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(dir.resolve(table.getFileName(speciesId)),
+                StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
+        ICsvListWriter listWriter = new CsvListWriter(writer, CsvPreference.TAB_PREFERENCE);
+        listWriter.writeHeader(table.getColumns().toArray(new String[0]));
+        return listWriter;
+    }
+    private static ICsvListReader newReader(Path dir, Table table, int speciesId) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(dir.resolve(table.getFileName(speciesId)),
+                StandardCharsets.UTF_8);
+        ICsvListReader listReader = new CsvListReader(reader, CsvPreference.TAB_PREFERENCE);
+        listReader.getHeader(true);
+        return listReader;
+    }
+
+    //*************************************************************************
+    // WORK DIRECTORY
+    //*************************************************************************
+    /**
+     * @return  A {@code List} of the {@code WorkUnit}s of the job, ordered by ID.
+     */
+    private List<WorkUnit> loadUnits() {
+        log.entry();
+        Properties job = this.readProperties(this.workDir.resolve(JOB_FILE_NAME));
+        List<WorkUnit> units = new ArrayList<>();
+        try (Stream<Path> files = Files.list(this.workDir.resolve(UNIT_DIR_NAME))) {
+            for (Path file: files.filter(f -> f.getFileName().toString().endsWith(UNIT_FILE_EXTENSION))
+                    .sorted().collect(Collectors.toList())) {
+                String fileName = file.getFileName().toString();
+                Properties props = this.readProperties(file);
+                units.add(new WorkUnit(
+                        fileName.substring(0, fileName.length() - UNIT_FILE_EXTENSION.length()),
+                        Integer.parseInt(props.getProperty(SPECIES_ID_KEY)),
+                        CommandRunner.parseListArgument(props.getProperty(COND_PARAMS_KEY)).stream()
+                            .map(s -> ConditionDAO.Attribute.valueOf(s))
+                            .collect(Collectors.toSet()),
+                        Integer.parseInt(props.getProperty(FIRST_GENE_ID_KEY)),
+                        Integer.parseInt(props.getProperty(LAST_GENE_ID_KEY))));
+            }
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException(e));
+        }
+        if (units.size() != Integer.parseInt(job.getProperty(UNIT_COUNT_KEY))) {
+            throw log.throwing(new IllegalStateException("Incorrect number of work units in "
+                    + this.workDir + ", expected " + job.getProperty(UNIT_COUNT_KEY) + ", found "
+                    + units.size()));
+        }
+        return log.exit(units);
+    }
+
+    /**
+     * @return  A {@code Map} where keys are IDs of work units, the associated value being
+     *          the number of their last attempt.
+     */
+    private Map<String, Integer> loadCurrentAttempts() {
+        log.entry();
+        Map<String, Integer> attempts = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.workDir.resolve(LEASE_DIR_NAME))) {
+            for (Path file: files) {
+                String fileName = file.getFileName().toString();
+                int sepIndex = fileName.lastIndexOf('.');
+                if (fileName.startsWith(TMP_FILE_PREFIX) || sepIndex <= 0) {
+                    continue;
+                }
+                attempts.merge(fileName.substring(0, sepIndex),
+                        Integer.parseInt(fileName.substring(sepIndex + 1)), Math::max);
+            }
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException(e));
+        }
+        return log.exit(attempts);
+    }
+
+    /**
+     * @param unitId    A {@code String} that is the ID of a work unit.
+     * @param attempt   An {@code Integer} that is the attempt number to read the lease for.
+     *                  If {@code null}, {@code null} is returned.
+     * @return          The {@code Lease} read. If the lease file is still being written
+     *                  by a worker, its expiration is computed from the file modification time.
+     */
+    private Lease readLease(String unitId, Integer attempt) {
+        log.entry(unitId, attempt);
+        if (attempt == null) {
+            return log.exit(null);
+        }
+        Path leaseFile = this.workDir.resolve(LEASE_DIR_NAME).resolve(unitId + "." + attempt);
+        try {
+            Properties props = new Properties();
+            try (InputStream is = Files.newInputStream(leaseFile)) {
+                props.load(is);
+            }
+            String expiresAt = props.getProperty(EXPIRES_AT_KEY);
+            if (expiresAt == null) {
+                return log.exit(new Lease(unitId, attempt, null,
+                        Files.getLastModifiedTime(leaseFile).toMillis() + this.leaseMillis));
+            }
+            return log.exit(new Lease(unitId, attempt, props.getProperty(WORKER_ID_KEY),
+                    Long.parseLong(expiresAt)));
+        } catch (NoSuchFileException e) {
+            throw log.throwing(new IllegalStateException("Lease file removed: " + leaseFile, e));
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException(e));
+        }
+    }
+    /**
+     * Replace atomically the file of a lease owned by this worker.
+     *
+     * @param lease The {@code Lease} to write.
+     */
+    private void writeLease(Lease lease) {
+        log.entry(lease);
+        this.writeProperties(this.workDir.resolve(LEASE_DIR_NAME).resolve(lease.getFileName()),
+                getLeaseProperties(lease));
+        log.exit();
+    }
+    private static Properties getLeaseProperties(Lease lease) {
+        Properties props = new Properties();
+        props.setProperty(WORKER_ID_KEY, lease.workerId);
+        props.setProperty(EXPIRES_AT_KEY, String.valueOf(lease.expiresAt));
+        return props;
+    }
+
+    private boolean isDone(WorkUnit unit) {
+        return Files.isDirectory(this.workDir.resolve(OUTPUT_DIR_NAME).resolve(unit.getId()));
+    }
+
+    private Properties readProperties(Path file) {
+        log.entry(file);
+        Properties props = new Properties();
+        try (InputStream is = Files.newInputStream(file)) {
+            props.load(is);
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException(e));
+        }
+        return log.exit(props);
+    }
+    /**
+     * Write properties to a temporary file, then move it atomically to {@code file},
+     * so that other processes never read a partially written file.
+     */
+    private void writeProperties(Path file, Properties props) {
+        log.entry(file, props);
+        Path tmpFile = file.resolveSibling(TMP_FILE_PREFIX + file.getFileName() + "." + this.workerId);
+        try {
+            try (OutputStream os = Files.newOutputStream(tmpFile)) {
+                props.store(os, null);
+            }
+            Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException(e));
+        }
+        log.exit();
+    }
+
+    private static void deleteRecursively(Path dir) throws UncheckedIOException {
+        log.entry(dir);
+        if (!Files.exists(dir)) {
+            log.exit();
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path: paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException(e));
+        }
+        log.exit();
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(this.pollMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw log.throwing(new IllegalStateException(e));
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.bgee.pipeline.expression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.api.DAOManager;
+
+/**
+ * Loads asynchronously the data of groups of genes, so that the data of the next groups
+ * are retrieved from the data source while the computations for the current groups
+ * are performed. Used by {@link InsertPropagatedCalls} to hide the latency of the queries
+ * retrieving raw calls and experiment expressions behind the propagation of the calls.
+ * <p>
+ * The data are loaded by {@code prefetchDepth} threads, each using its own {@code DAOManager}
+ * obtained from the {@code Supplier} provided at instantiation. At most {@code prefetchDepth}
+ * groups are loaded, or being loaded, without having been retrieved through {@link #take()}:
+ * the loading threads wait for groups to be taken before loading new ones, so that
+ * the memory used by the prefetched data is bounded.
+ * <p>
+ * Groups are returned by {@link #take()} in the order their loading completed, which is not
+ * necessarily the order of the {@code List} provided at instantiation. If the loading
+ * of a group fails, the exception is rethrown by all subsequent calls to {@link #take()}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ *
+ * @param <T>   The type of the data loaded for each group of genes.
+ */
+class GeneGroupPrefetcher<T> implements AutoCloseable {
+    private final static Logger log = LogManager.getLogger(GeneGroupPrefetcher.class.getName());
+
+    /**
+     * A function loading the data of a group of genes.
+     *
+     * @param <T>   The type of the data loaded for each group of genes.
+     */
+    @FunctionalInterface
+    static interface GroupLoader<T> {
+        /**
+         * @param daoManager    The {@code DAOManager} to use to query the data source.
+         * @param geneIds       A {@code Set} of {@code Integer}s that are the Bgee IDs
+         *                      of the genes to load the data for.
+         * @return              The loaded data. Should not be lazily loaded from the data source.
+         */
+        T load(DAOManager daoManager, Set<Integer> geneIds);
+    }
+
+    /**
+     * An unmodifiable {@code List} of {@code Set}s of {@code Integer}s, each {@code Set}
+     * containing the Bgee IDs of the genes of a group.
+     */
+    private final List<Set<Integer>> geneGroups;
+    /**
+     * A {@code Supplier} of {@code DAOManager}s, called once by each loading thread.
+     */
+    private final Supplier<DAOManager> daoManagerSupplier;
+    /**
+     * The {@code GroupLoader} used to load the data of each group.
+     */
+    private final GroupLoader<T> loader;
+    /**
+     * A {@code Semaphore} with as many permits as the prefetch depth. A permit is acquired
+     * before loading a group and released when the group is taken.
+     */
+    private final Semaphore prefetchSlots;
+    /**
+     * A {@code BlockingQueue} containing the {@code CompletableFuture}s of the groups
+     * loaded and not yet taken. A {@code CompletableFuture} completed exceptionally
+     * is never removed, to be seen by all consumers.
+     */
+    private final BlockingQueue<CompletableFuture<T>> loadedGroups;
+    /**
+     * An {@code AtomicInteger} that is the index in {@link #geneGroups} of the next group to load.
+     */
+    private final AtomicInteger nextGroupIndex;
+    /**
+     * An {@code AtomicInteger} that is the number of calls to {@link #take()}.
+     */
+    private final AtomicInteger takeCount;
+    /**
+     * The {@code ExecutorService} running the loading threads.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * @param geneGroups            A {@code List} of {@code Set}s of {@code Integer}s, each
+     *                              {@code Set} containing the Bgee IDs of the genes of a group.
+     * @param prefetchDepth         An {@code int} that is the maximum number of groups loaded,
+     *                              or being loaded, and not yet taken. It is also the number
+     *                              of loading threads, and of {@code DAOManager}s used.
+     * @param daoManagerSupplier    A {@code Supplier} of {@code DAOManager}s, called once
+     *                              by each loading thread. The {@code DAOManager}s are closed
+     *                              when all groups have been loaded.
+     * @param loader                The {@code GroupLoader} used to load the data of each group.
+     * @throws IllegalArgumentException If {@code prefetchDepth} is less than 1,
+     *                                  or any other argument is {@code null}.
+     */
+    GeneGroupPrefetcher(List<Set<Integer>> geneGroups, int prefetchDepth,
+            Supplier<DAOManager> daoManagerSupplier, GroupLoader<T> loader)
+                    throws IllegalArgumentException {
+        if (geneGroups == null || daoManagerSupplier == null || loader == null) {
+            throw log.throwing(new IllegalArgumentException("No argument can be null"));
+        }
+        if (prefetchDepth < 1) {
+            throw log.throwing(new IllegalArgumentException("Invalid prefetch depth: "
+                    + prefetchDepth));
+        }
+        this.geneGroups = Collections.unmodifiableList(new ArrayList<>(geneGroups));
+        this.daoManagerSupplier = daoManagerSupplier;
+        this.loader = loader;
+        this.prefetchSlots = new Semaphore(prefetchDepth);
+        this.loadedGroups = new LinkedBlockingQueue<>();
+        this.nextGroupIndex = new AtomicInteger(0);
+        this.takeCount = new AtomicInteger(0);
+
+        int threadCount = Math.max(1, Math.min(prefetchDepth, this.geneGroups.size()));
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        this.executor = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread t = new Thread(r, "gene-group-prefetcher-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < threadCount; i++) {
+            this.executor.execute(this::loadGroups);
+        }
+        //no more tasks, threads terminate once all groups are loaded
+        this.executor.shutdown();
+    }
+
+    /**
+     * Load groups until all groups are loaded, an error occurs, or the thread is interrupted.
+     */
+    private void loadGroups() {
+        log.entry();
+        try (DAOManager daoManager = this.daoManagerSupplier.get()) {
+            while (true) {
+                this.prefetchSlots.acquire();
+                int groupIndex = this.nextGroupIndex.getAndIncrement();
+                if (groupIndex >= this.geneGroups.size()) {
+                    this.prefetchSlots.release();
+                    break;
+                }
+                Set<Integer> geneIds = this.geneGroups.get(groupIndex);
+                log.debug("Prefetching data of {} genes", geneIds.size());
+                this.loadedGroups.add(CompletableFuture.completedFuture(
+                        this.loader.load(daoManager, geneIds)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            //any error must be provided to the consumers, otherwise they would wait forever
+            log.catching(e);
+            CompletableFuture<T> failure = new CompletableFuture<>();
+            failure.completeExceptionally(e);
+            this.loadedGroups.add(failure);
+        }
+        log.exit();
+    }
+
+    /**
+     * Retrieve the data of the next loaded group, waiting for its loading to complete if needed.
+     *
+     * @return                          The data of a group, or {@code null} if the data
+     *                                  of all groups have already been taken.
+     * @throws InterruptedException     If the current thread was interrupted while waiting.
+     * @throws IllegalStateException    If the loading of a group failed.
+     */
+    T take() throws InterruptedException, IllegalStateException {
+        log.entry();
+        if (this.takeCount.getAndIncrement() >= this.geneGroups.size()) {
+            return log.exit(null);
+        }
+        CompletableFuture<T> group = this.loadedGroups.take();
+        if (group.isCompletedExceptionally()) {
+            //put it back for the other consumers waiting for groups
+            this.loadedGroups.add(group);
+            try {
+                group.join();
+            } catch (CompletionException e) {
+                throw log.throwing(new IllegalStateException("Error while loading data of genes",
+                        e.getCause()));
+            }
+        }
+        this.prefetchSlots.release();
+        return log.exit(group.join());
+    }
+
+    /**
+     * Stop the loading threads. Queries already running are not killed by this method.
+     */
+    @Override
+    public void close() {
+        log.entry();
+        this.executor.shutdownNow();
+        log.exit();
+    }
+}
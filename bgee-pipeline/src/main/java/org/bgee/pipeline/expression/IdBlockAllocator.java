@@ -0,0 +1,403 @@
+package org.bgee.pipeline.expression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Allocates IDs of rows to insert by contiguous blocks, so that several threads or processes
+ * can generate IDs concurrently, without sharing a counter. Each worker obtains
+ * an {@link IdBlock} through {@link #newIdBlock(String)}, which hands out the IDs
+ * of a block reserved from this allocator, reserving a new block when the current one
+ * is exhausted, and returns the unused IDs of its block to the allocator when closed.
+ * IDs are allocated independently for each sequence, identified by a {@code String}
+ * (for instance, one sequence for the IDs of global conditions, another one for the IDs
+ * of global expression calls).
+ * <p>
+ * If a {@code Path} to a file is provided at instantiation, the state of the allocator
+ * (for each sequence, the next ID never reserved, and the ranges of IDs returned
+ * and not reserved again) is stored in this file, locked during each reservation
+ * or release: several processes using a same file never receive a same ID.
+ * The file must then be on a file system supporting file locks, and should be specific
+ * to a release of Bgee. If no file is provided, the state is held in memory and IDs
+ * are unique only in the current JVM.
+ * <p>
+ * This class is thread-safe, but {@code IdBlock}s are not: each worker should use its own.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+final class IdBlockAllocator {
+    private final static Logger log = LogManager.getLogger(IdBlockAllocator.class.getName());
+
+    /**
+     * An {@code Object} used as lock for all reservations and releases in the current JVM.
+     * Needed because a file lock is held on behalf of the whole JVM, and a same file
+     * cannot be locked by several threads.
+     */
+    private final static Object JVM_LOCK = new Object();
+    private final static String NEXT_ID_KEY_SUFFIX = ".next";
+    private final static String FREE_RANGES_KEY_SUFFIX = ".free";
+
+    /**
+     * A range of consecutive IDs.
+     */
+    static final class IdRange {
+        private final int first;
+        private final int last;
+
+        /**
+         * @param first An {@code int} that is the first ID of the range.
+         * @param last  An {@code int} that is the last ID of the range, inclusive.
+         * @throws IllegalArgumentException If {@code first} is less than 1,
+         *                                  or {@code last} is less than {@code first}.
+         */
+        IdRange(int first, int last) throws IllegalArgumentException {
+            if (first < 1 || last < first) {
+                throw log.throwing(new IllegalArgumentException("Invalid range: "
+                        + first + "-" + last));
+            }
+            this.first = first;
+            this.last = last;
+        }
+
+        /**
+         * @return  An {@code int} that is the first ID of the range.
+         */
+        int getFirst() {
+            return first;
+        }
+        /**
+         * @return  An {@code int} that is the last ID of the range, inclusive.
+         */
+        int getLast() {
+            return last;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + first;
+            result = prime * result + last;
+            return result;
+        }
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            IdRange other = (IdRange) obj;
+            return first == other.first && last == other.last;
+        }
+        @Override
+        public String toString() {
+            return first + "-" + last;
+        }
+    }
+
+    /**
+     * Hands out the IDs of blocks reserved from the {@code IdBlockAllocator}
+     * that created it, for one sequence. Not thread-safe. Blocks are reserved lazily,
+     * so that no IDs are reserved if no IDs are requested.
+     */
+    final class IdBlock implements AutoCloseable {
+        private final String sequence;
+        private int nextId;
+        private int lastId;
+        private boolean closed;
+
+        private IdBlock(String sequence) {
+            this.sequence = sequence;
+            this.nextId = 1;
+            this.lastId = 0;
+            this.closed = false;
+        }
+
+        /**
+         * @return                          An {@code int} that is the next ID of the sequence
+         *                                  for this {@code IdBlock}.
+         * @throws IllegalStateException    If this {@code IdBlock} was closed.
+         */
+        int nextId() throws IllegalStateException {
+            if (this.closed) {
+                throw log.throwing(new IllegalStateException("IdBlock already closed"));
+            }
+            if (this.nextId > this.lastId) {
+                IdRange range = reserve(this.sequence);
+                this.nextId = range.getFirst();
+                this.lastId = range.getLast();
+            }
+            return this.nextId++;
+        }
+
+        /**
+         * Return the IDs reserved and not handed out to the allocator. IDs handed out
+         * are never returned, even if they ended up not being used.
+         */
+        @Override
+        public void close() {
+            log.entry();
+            if (this.closed) {
+                log.exit(); return;
+            }
+            this.closed = true;
+            if (this.nextId <= this.lastId) {
+                release(this.sequence, new IdRange(this.nextId, this.lastId));
+            }
+            log.exit();
+        }
+    }
+
+    /**
+     * The state of the allocation of the IDs of a sequence.
+     */
+    private static final class SequenceState {
+        /**
+         * An {@code int} that is the next ID never reserved.
+         */
+        private int nextId;
+        /**
+         * A {@code TreeMap} where keys are the first IDs of ranges returned and not reserved
+         * again, the associated values being their last IDs. Ranges are disjoint
+         * and not adjacent.
+         */
+        private final TreeMap<Integer, Integer> freeRanges;
+
+        private SequenceState() {
+            this.nextId = 1;
+            this.freeRanges = new TreeMap<>();
+        }
+
+        private static SequenceState fromProperties(Properties props, String sequence) {
+            SequenceState state = new SequenceState();
+            String nextId = props.getProperty(sequence + NEXT_ID_KEY_SUFFIX);
+            if (nextId != null) {
+                state.nextId = Integer.parseInt(nextId);
+            }
+            String freeRanges = props.getProperty(sequence + FREE_RANGES_KEY_SUFFIX, "");
+            for (String range: freeRanges.split(",")) {
+                if (range.isEmpty()) {
+                    continue;
+                }
+                String[] bounds = range.split("-");
+                state.freeRanges.put(Integer.parseInt(bounds[0]), Integer.parseInt(bounds[1]));
+            }
+            return state;
+        }
+
+        private void toProperties(Properties props, String sequence) {
+            props.setProperty(sequence + NEXT_ID_KEY_SUFFIX, String.valueOf(this.nextId));
+            props.setProperty(sequence + FREE_RANGES_KEY_SUFFIX, this.freeRanges.entrySet().stream()
+                    .map(e -> e.getKey() + "-" + e.getValue())
+                    .collect(Collectors.joining(",")));
+        }
+    }
+
+    /**
+     * A {@code Path} to the file storing the state of the allocator, {@code null}
+     * if the state is held in memory.
+     */
+    private final Path file;
+    /**
+     * An {@code int} that is the maximum number of IDs reserved at once.
+     */
+    private final int blockSize;
+    /**
+     * A {@code Map} where keys are {@code String}s that are sequences, the associated values
+     * being their {@code SequenceState}. Used only if {@link #file} is {@code null}.
+     */
+    private final Map<String, SequenceState> states;
+
+    /**
+     * @param file      A {@code Path} to the file storing the state of the allocator,
+     *                  created if needed. If {@code null}, the state is held in memory.
+     * @param blockSize An {@code int} that is the maximum number of IDs reserved at once.
+     * @throws IllegalArgumentException If {@code blockSize} is less than 1.
+     */
+    IdBlockAllocator(Path file, int blockSize) throws IllegalArgumentException {
+        if (blockSize < 1) {
+            throw log.throwing(new IllegalArgumentException("Invalid block size: " + blockSize));
+        }
+        this.file = file;
+        this.blockSize = blockSize;
+        this.states = new HashMap<>();
+    }
+
+    /**
+     * Make sure that the IDs of a sequence reserved from now on are greater
+     * than {@code maxUsedId}, for instance the maximum ID present in database.
+     * IDs returned to this allocator that are greater than {@code maxUsedId} remain available,
+     * returned IDs less than or equal to {@code maxUsedId} are discarded, since they were
+     * used since they were returned.
+     *
+     * @param sequence  A {@code String} that is the sequence to initialize.
+     * @param maxUsedId An {@code int} that is the maximum ID already used.
+     * @throws UncheckedIOException If the file storing the state could not be read or written.
+     */
+    void initialize(String sequence, int maxUsedId) throws UncheckedIOException {
+        log.entry(sequence, maxUsedId);
+        this.update(sequence, state -> {
+            state.nextId = Math.max(state.nextId, maxUsedId + 1);
+            //discard the free ranges starting at or below maxUsedId,
+            //a range straddling maxUsedId is trimmed
+            Entry<Integer, Integer> straddling = state.freeRanges.floorEntry(maxUsedId);
+            state.freeRanges.headMap(maxUsedId, true).clear();
+            if (straddling != null && straddling.getValue() > maxUsedId) {
+                state.freeRanges.put(maxUsedId + 1, straddling.getValue());
+            }
+            return null;
+        });
+        log.exit();
+    }
+
+    /**
+     * @param sequence  A {@code String} that is the sequence to create an {@code IdBlock} for.
+     * @return          A new {@code IdBlock} handing out IDs of {@code sequence}.
+     */
+    IdBlock newIdBlock(String sequence) {
+        log.entry(sequence);
+        return log.exit(new IdBlock(sequence));
+    }
+
+    /**
+     * Reserve a block of consecutive IDs, taken preferably from the IDs previously returned.
+     *
+     * @param sequence  A {@code String} that is the sequence to reserve IDs from.
+     * @return          An {@code IdRange} containing at most {@code blockSize} IDs.
+     * @throws IllegalStateException    If there are no more IDs available.
+     * @throws UncheckedIOException     If the file storing the state could not be read or written.
+     */
+    IdRange reserve(String sequence) throws IllegalStateException, UncheckedIOException {
+        log.entry(sequence);
+        IdRange range = this.update(sequence, state -> {
+            Entry<Integer, Integer> free = state.freeRanges.pollFirstEntry();
+            if (free != null) {
+                int last = (int) Math.min((long) free.getKey() + this.blockSize - 1, free.getValue());
+                if (last < free.getValue()) {
+                    state.freeRanges.put(last + 1, free.getValue());
+                }
+                return new IdRange(free.getKey(), last);
+            }
+            long last = (long) state.nextId + this.blockSize - 1;
+            if (last >= Integer.MAX_VALUE) {
+                throw log.throwing(new IllegalStateException("No more IDs available for sequence "
+                        + sequence));
+            }
+            IdRange newRange = new IdRange(state.nextId, (int) last);
+            state.nextId = (int) last + 1;
+            return newRange;
+        });
+        log.debug("IDs reserved for sequence {}: {}", sequence, range);
+        return log.exit(range);
+    }
+
+    /**
+     * Return IDs previously reserved and never used, so that they can be reserved again.
+     *
+     * @param sequence  A {@code String} that is the sequence the IDs were reserved from.
+     * @param range     An {@code IdRange} containing the IDs to return.
+     * @throws IllegalArgumentException If {@code range} contains IDs never reserved,
+     *                                  or already returned.
+     * @throws UncheckedIOException     If the file storing the state could not be read or written.
+     */
+    void release(String sequence, IdRange range) throws IllegalArgumentException,
+            UncheckedIOException {
+        log.entry(sequence, range);
+        this.update(sequence, state -> {
+            Entry<Integer, Integer> previous = state.freeRanges.floorEntry(range.getLast());
+            if (range.getLast() >= state.nextId ||
+                    previous != null && previous.getValue() >= range.getFirst()) {
+                throw log.throwing(new IllegalArgumentException("Range not reserved for sequence "
+                        + sequence + ": " + range));
+            }
+            int first = range.getFirst();
+            int last = range.getLast();
+            //merge with adjacent free ranges
+            if (previous != null && previous.getValue() == first - 1) {
+                state.freeRanges.remove(previous.getKey());
+                first = previous.getKey();
+            }
+            Integer nextLast = state.freeRanges.remove(last + 1);
+            if (nextLast != null) {
+                last = nextLast;
+            }
+            if (last == state.nextId - 1) {
+                state.nextId = first;
+            } else {
+                state.freeRanges.put(first, last);
+            }
+            return null;
+        });
+        log.exit();
+    }
+
+    /**
+     * Apply {@code operation} to the state of {@code sequence}, holding the locks
+     * and storing the modified state.
+     */
+    private <T> T update(String sequence, Function<SequenceState, T> operation)
+            throws UncheckedIOException {
+        log.entry(sequence, operation);
+        synchronized (JVM_LOCK) {
+            if (this.file == null) {
+                return log.exit(operation.apply(
+                        this.states.computeIfAbsent(sequence, s -> new SequenceState())));
+            }
+            try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+                //lock held while reading and writing the state
+                FileLock lock = channel.lock();
+                try {
+                    Properties props = new Properties();
+                    ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                        //read until the buffer is filled
+                    }
+                    props.load(new ByteArrayInputStream(buffer.array()));
+
+                    SequenceState state = SequenceState.fromProperties(props, sequence);
+                    T result = operation.apply(state);
+                    state.toProperties(props, sequence);
+
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    props.store(out, "Bgee ID block allocator");
+                    channel.truncate(0);
+                    ByteBuffer data = ByteBuffer.wrap(out.toByteArray());
+                    long position = 0;
+                    while (data.hasRemaining()) {
+                        position += channel.write(data, position);
+                    }
+                    channel.force(true);
+                    return log.exit(result);
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                throw log.throwing(new UncheckedIOException(e));
+            }
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package org.bgee.pipeline.expression;
 
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -24,7 +28,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -46,17 +49,15 @@ import org.bgee.model.dao.api.exception.DAOException;
 import org.bgee.model.dao.api.expressiondata.ConditionDAO;
 import org.bgee.model.dao.api.expressiondata.ConditionDAO.ConditionTO;
 import org.bgee.model.dao.api.expressiondata.ConditionDAO.GlobalConditionToRawConditionTO;
-import org.bgee.model.dao.api.expressiondata.DAOExperimentCount;
-import org.bgee.model.dao.api.expressiondata.DAOPropagationState;
 import org.bgee.model.dao.api.expressiondata.ExperimentExpressionDAO;
 import org.bgee.model.dao.api.expressiondata.ExperimentExpressionDAO.ExperimentExpressionTO;
 import org.bgee.model.dao.api.expressiondata.ExperimentExpressionDAO.ExperimentExpressionTO.CallDirection;
 import org.bgee.model.dao.api.expressiondata.ExperimentExpressionDAO.ExperimentExpressionTO.CallQuality;
 import org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO;
-import org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO.GlobalExpressionCallDataTO;
 import org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO.GlobalExpressionCallTO;
 import org.bgee.model.dao.api.expressiondata.RawExpressionCallDAO;
 import org.bgee.model.dao.api.expressiondata.RawExpressionCallDAO.RawExpressionCallTO;
+import org.bgee.model.dao.api.expressiondata.rawdata.RawDataConditionDAO;
 import org.bgee.model.dao.api.expressiondata.rawdata.RawDataConditionDAO.RawDataConditionTO;
 import org.bgee.model.dao.api.expressiondata.rawdata.RawDataConditionDAO.RawDataConditionTOResultSet;
 import org.bgee.model.dao.mysql.connector.MySQLDAOManager;
@@ -75,13 +76,15 @@ import org.bgee.model.expressiondata.baseelements.DataType;
 import org.bgee.model.expressiondata.baseelements.ExperimentExpressionCount;
 import org.bgee.pipeline.BgeeDBUtils;
 import org.bgee.pipeline.CommandRunner;
+import org.bgee.pipeline.PipelineMetrics;
+import org.bgee.pipeline.expression.ConditionSweepPropagator.PropagatedCall;
 
 /**
  * Class responsible for inserting the propagated expression into the Bgee database.
  * 
  * @author  Valentine Rech de Laval
  * @author  Frederic Bastian
- * @version Bgee 14, May 2019
+ * @version Bgee 14, Jan. 2020
  * @since   Bgee 14, Jan. 2017
  */
 public class InsertPropagatedCalls extends CallService {
@@ -111,13 +114,124 @@ public class InsertPropagatedCalls extends CallService {
      * than insertion in some cases).
      */
     private final static int MAX_NUMBER_OF_CALLS_TO_INSERT = 100;
+    /**
+     * An {@code int} that is the maximum number of groups of genes (of size
+     * {@link #GENE_PARALLEL_GROUP_SIZE}) for which the raw calls and experiment expressions
+     * are loaded in advance by a {@link GeneGroupPrefetcher}, while the computations
+     * are performed for other groups. Each prefetched group is loaded using its own connection
+     * to the database, and is held in memory until a computation thread takes it,
+     * so this value bounds both the number of connections used for reading and the memory
+     * used by the prefetched data. If 0, each computation thread queries itself the data
+     * of the group it processes, lazily consuming the results.
+     * Set through the System property {@code bgee.pipeline.propagation.prefetchDepth}.
+     */
+    private final static int PREFETCH_DEPTH =
+            Integer.getInteger("bgee.pipeline.propagation.prefetchDepth", 0);
+    /**
+     * A {@code String} that is the path to a directory where the {@link ConditionRelationTable}s
+     * computed for each species and combination of condition parameters are written,
+     * and read from in subsequent runs, so that the relations between conditions
+     * do not need to be computed again. The directory should be specific to a release of Bgee.
+     * If {@code null}, the tables are computed at each run.
+     * Set through the System property {@code bgee.pipeline.propagation.conditionRelationDir}.
+     */
+    private final static String CONDITION_RELATION_DIR =
+            System.getProperty("bgee.pipeline.propagation.conditionRelationDir");
+    /**
+     * An {@code int} that is the maximum number of species whose propagated calls are computed
+     * and inserted concurrently by {@link #insert(List, Collection, Supplier, Function, Path)},
+     * see {@link SpeciesScheduler}. All species share the threads of the common pool
+     * used for computations, and each species uses its own connections to the database.
+     * If 1, species are processed one after the other.
+     * Set through the System property {@code bgee.pipeline.propagation.maxConcurrentSpecies}.
+     */
+    private final static int MAX_CONCURRENT_SPECIES =
+            Integer.getInteger("bgee.pipeline.propagation.maxConcurrentSpecies", 1);
+    /**
+     * A {@code long} that is the maximum sum of the sizes of the species processed concurrently,
+     * the size of a species being its number of genes with data multiplied by its number
+     * of raw conditions, see {@link #loadSpeciesSizes(DAOManager, Collection)}. A species
+     * whose size exceeds this budget is processed alone. If 0, the size of the largest
+     * requested species is used, so that the memory needed is close to what is needed
+     * to process the largest species alone. Only used if {@link #MAX_CONCURRENT_SPECIES}
+     * is greater than 1.
+     * Set through the System property {@code bgee.pipeline.propagation.speciesSizeBudget}.
+     */
+    private final static long SPECIES_SIZE_BUDGET =
+            Long.getLong("bgee.pipeline.propagation.speciesSizeBudget", 0L);
+
+    /**
+     * A {@code boolean} defining whether the calls produced by the sweep propagation
+     * should be compared to the calls produced by the original propagation of each call
+     * to each ancestor and descendant condition, an {@code IllegalStateException} being thrown
+     * if they differ. Much slower, to use on small species to validate the sweep propagation.
+     * Set through the System property {@code bgee.pipeline.propagation.validate}.
+     */
+    private final static boolean VALIDATE_SWEEP_PROPAGATION =
+            Boolean.getBoolean("bgee.pipeline.propagation.validate");
 
     private final static Set<PropagationState> ALLOWED_PROP_STATES_BEFORE_MERGE = EnumSet.of(
             PropagationState.SELF, PropagationState.ANCESTOR, PropagationState.DESCENDANT);
 
     private final static List<Set<ConditionDAO.Attribute>> COND_PARAM_COMB_LIST;
-    private final static AtomicInteger COND_ID_COUNTER = new AtomicInteger(0);
-    private final static AtomicInteger EXPR_ID_COUNTER = new AtomicInteger(0);
+    /**
+     * A {@code String} that is the path to the file storing the state of the {@link #ID_ALLOCATOR},
+     * so that several processes propagating calls for different species or groups of genes
+     * at the same time never generate a same global condition ID or global expression ID.
+     * The file must be shared by all these processes, and should be specific to a release
+     * of Bgee. If {@code null}, IDs are unique only in the current JVM.
+     * Set through the System property {@code bgee.pipeline.propagation.idAllocatorFile}.
+     */
+    private final static String ID_ALLOCATOR_FILE =
+            System.getProperty("bgee.pipeline.propagation.idAllocatorFile");
+    /**
+     * An {@code int} that is the number of IDs reserved at once by each insertion thread
+     * from the {@link #ID_ALLOCATOR}. Unused IDs are returned to the allocator
+     * when the insertion thread completes.
+     * Set through the System property {@code bgee.pipeline.propagation.idBlockSize}.
+     */
+    private final static int ID_BLOCK_SIZE =
+            Integer.getInteger("bgee.pipeline.propagation.idBlockSize", 10000);
+    /**
+     * The {@code IdBlockAllocator} used to generate the IDs of global conditions
+     * (sequence {@link #COND_ID_SEQUENCE}) and of global expression calls
+     * (sequence {@link #EXPR_ID_SEQUENCE}).
+     */
+    private final static IdBlockAllocator ID_ALLOCATOR = new IdBlockAllocator(
+            ID_ALLOCATOR_FILE == null? null: Paths.get(ID_ALLOCATOR_FILE), ID_BLOCK_SIZE);
+    private final static String COND_ID_SEQUENCE = "globalCond";
+    private final static String EXPR_ID_SEQUENCE = "globalExpression";
+
+    /**
+     * The {@code PipelineMetrics} used to monitor rows read and inserted, depth of
+     * {@link #callsToInsert}, time spent by computation threads blocked on a full queue
+     * versus time spent by the insertion thread waiting for data (to identify insert-bound
+     * versus compute-bound phases), busy time of computation threads and insertion time.
+     */
+    private final static PipelineMetrics METRICS = PipelineMetrics.getInstance();
+    private final static String METRIC_PREFIX = "propagation.";
+    private final static PipelineMetrics.Counter RAW_CALLS_READ =
+            METRICS.counter(METRIC_PREFIX + "rawCalls.read");
+    private final static PipelineMetrics.Counter EXP_EXPRS_READ =
+            METRICS.counter(METRIC_PREFIX + "experimentExpressions.read");
+    private final static PipelineMetrics.Counter GENES_COMPUTED =
+            METRICS.counter(METRIC_PREFIX + "genes.computed");
+    private final static PipelineMetrics.Counter GENES_INSERTED =
+            METRICS.counter(METRIC_PREFIX + "genes.inserted");
+    private final static PipelineMetrics.Counter GLOBAL_CONDS_INSERTED =
+            METRICS.counter(METRIC_PREFIX + "globalConditions.inserted");
+    private final static PipelineMetrics.Counter GLOBAL_COND_TO_RAW_CONDS_INSERTED =
+            METRICS.counter(METRIC_PREFIX + "globalCondToRawConds.inserted");
+    private final static PipelineMetrics.Counter GLOBAL_CALLS_INSERTED =
+            METRICS.counter(METRIC_PREFIX + "globalCalls.inserted");
+    private final static PipelineMetrics.Timer QUEUE_PUT_WAIT =
+            METRICS.timer(METRIC_PREFIX + "insertQueue.putWait");
+    private final static PipelineMetrics.Timer QUEUE_TAKE_WAIT =
+            METRICS.timer(METRIC_PREFIX + "insertQueue.takeWait");
+    private final static PipelineMetrics.Timer DB_INSERT =
+            METRICS.timer(METRIC_PREFIX + "db.insert");
+    private final static String QUEUE_DEPTH_GAUGE = METRIC_PREFIX + "insertQueue.depth";
+    private final static String WORKER_BUSY_TIMER_PREFIX = METRIC_PREFIX + "worker.busy.";
     
     private final static DataPropagation getSelfDataProp(Set<ConditionDAO.Attribute> condParams) {
         log.entry(condParams);
@@ -164,6 +278,10 @@ public class InsertPropagatedCalls extends CallService {
      * <li> a {@code Map} where keys are whatever, and each value is a set of strings, 
      * corresponding to {@code ConditionDAO.Attribute}s, allowing to target a specific
      * condition parameter combination. Example: 1//ANAT_ENTITY_ID,2//ANAT_ENTITY_ID--STAGE_ID
+     * <li> optional: the path to a directory where to write the propagated calls,
+     * rather than inserting them into the database. They can then be bulk-loaded
+     * by {@link LoadPropagatedCalls}, possibly after running the computations
+     * on a different machine.
      * </ol>
      * 
      * @param args           An {@code Array} of {@code String}s containing the requested parameters.
@@ -174,14 +292,36 @@ public class InsertPropagatedCalls extends CallService {
 
         int expectedArgLength = 2;
 
-        if (args.length != expectedArgLength) {
+        if (args.length != expectedArgLength && args.length != expectedArgLength + 1) {
             throw log.throwing(new IllegalArgumentException("Incorrect number of arguments " +
-                "provided, expected " + expectedArgLength + " arguments, " + args.length + 
-                " provided."));
+                "provided, expected " + expectedArgLength + " or " + (expectedArgLength + 1)
+                + " arguments, " + args.length + " provided."));
         }
 
         List<Integer> speciesIds = CommandRunner.parseListArgumentAsInt(args[0]);
-        LinkedHashMap<String, List<String>> condParamCombMap = CommandRunner.parseMapArgument(args[1]);
+        List<Set<ConditionDAO.Attribute>> condParamCombinations = parseCondParamCombinations(args[1]);
+        Path outputDirectory = args.length > expectedArgLength? Paths.get(args[expectedArgLength]): null;
+
+        InsertPropagatedCalls.insert(speciesIds, condParamCombinations, outputDirectory);
+
+        log.exit();
+    }
+
+    /**
+     * Parse the combinations of condition parameters provided as a command line argument,
+     * see {@link #main(String[])}.
+     *
+     * @param condParamArg  A {@code String} that is the argument to parse.
+     * @return              A {@code List} of {@code Set}s of {@code ConditionDAO.Attribute}s,
+     *                      each {@code Set} being a requested combination of condition parameters,
+     *                      in the order requested. If {@code condParamArg} is empty,
+     *                      all the combinations allowed are returned.
+     * @throws IllegalArgumentException If a combination is not recognized.
+     */
+    static List<Set<ConditionDAO.Attribute>> parseCondParamCombinations(String condParamArg)
+            throws IllegalArgumentException {
+        log.entry(condParamArg);
+        LinkedHashMap<String, List<String>> condParamCombMap = CommandRunner.parseMapArgument(condParamArg);
         //we keep the order of combinations requested by the user
         List<Set<ConditionDAO.Attribute>> condParamCombinations = condParamCombMap.values().stream()
                 .distinct()
@@ -195,10 +335,7 @@ public class InsertPropagatedCalls extends CallService {
             throw log.throwing(new IllegalArgumentException("Unrecognized condition parameter combination: "
                     + condParamCombinations));
         }
-
-        InsertPropagatedCalls.insert(speciesIds, condParamCombinations);
-
-        log.exit();
+        return log.exit(condParamCombinations);
     }
 
     /**
@@ -485,6 +622,37 @@ public class InsertPropagatedCalls extends CallService {
         }
     }
     
+    /**
+     * Holds the raw calls and experiment expressions of a group of genes, retrieved in advance
+     * by a {@link GeneGroupPrefetcher}. The elements are stored in the order they were
+     * retrieved from the database, as needed by {@link CallSpliterator}.
+     *
+     * @version Bgee 14, Jan. 2020
+     * @since   Bgee 14, Jan. 2020
+     */
+    private static class GeneGroupData {
+        private final Set<Integer> geneIds;
+        private final List<RawExpressionCallTO> rawCallTOs;
+        private final Map<DataType, List<ExperimentExpressionTO>> expExprTOsByDataType;
+
+        private GeneGroupData(Set<Integer> geneIds, List<RawExpressionCallTO> rawCallTOs,
+                Map<DataType, List<ExperimentExpressionTO>> expExprTOsByDataType) {
+            this.geneIds = geneIds;
+            this.rawCallTOs = rawCallTOs;
+            this.expExprTOsByDataType = expExprTOsByDataType;
+        }
+
+        public Set<Integer> getGeneIds() {
+            return geneIds;
+        }
+        public List<RawExpressionCallTO> getRawCallTOs() {
+            return rawCallTOs;
+        }
+        public Map<DataType, List<ExperimentExpressionTO>> getExpExprTOsByDataType() {
+            return expExprTOsByDataType;
+        }
+    }
+
     /**
      * This class describes the calls related to gene baseline expression specific to pipeline.
      * <p>
@@ -496,7 +664,7 @@ public class InsertPropagatedCalls extends CallService {
      * @version Bgee 14, Jan. 2017
      * @since   Bgee 14, Jan. 2017
      */
-    private static class PipelineCall extends ExpressionCall {
+    static class PipelineCall extends ExpressionCall {
 
         private int bgeeGeneId;
         
@@ -727,10 +895,25 @@ public class InsertPropagatedCalls extends CallService {
          * used by this object.
          */
         private final InsertPropagatedCalls callPropagator;
+        /**
+         * The {@code PropagatedCallFileWriter} used to write the data to files rather than
+         * inserting them into the database, {@code null} if data are inserted into the database.
+         * See {@link InsertPropagatedCalls#outputDirectory}.
+         */
+        private PropagatedCallFileWriter fileWriter;
+        /**
+         * The {@code IdBlockAllocator.IdBlock}s used to generate the IDs of the global conditions
+         * and global expression calls inserted by this thread, without contention
+         * with other insertion threads or processes.
+         */
+        private final IdBlockAllocator.IdBlock condIds;
+        private final IdBlockAllocator.IdBlock exprIds;
 
         private InsertJob(InsertPropagatedCalls callPropagator) {
             log.entry(callPropagator);
             this.callPropagator = callPropagator;
+            this.condIds = ID_ALLOCATOR.newIdBlock(COND_ID_SEQUENCE);
+            this.exprIds = ID_ALLOCATOR.newIdBlock(EXPR_ID_SEQUENCE);
         }
 
         @Override
@@ -743,8 +926,9 @@ public class InsertPropagatedCalls extends CallService {
             final DAOManager daoManager = factory.getDAOManager();
             final ConditionDAO condDAO = daoManager.getConditionDAO();
             final GlobalExpressionCallDAO exprDAO = daoManager.getGlobalExpressionCallDAO();
-            //in order to insert globalConditions
-            final Map<Condition, Integer> insertedCondMap = new HashMap<>();
+            //in order to insert globalConditions: global condition IDs indexed
+            //as the conditions of the CompactPipelineCalls, 0 for conditions not yet inserted
+            final int[] globalCondIds = new int[this.callPropagator.indexedConditions.size()];
             //relations between globalConditions and raw conditions
             final Set<PipelineGlobalCondToRawCondTO> globalCondToRawConds = new HashSet<>();
             
@@ -761,8 +945,14 @@ public class InsertPropagatedCalls extends CallService {
                     throw log.throwing(new IllegalStateException(
                             "Global conditions already exist for species " + this.callPropagator.speciesId));
                 }
+                if (this.callPropagator.outputDirectory != null) {
+                    log.info("Writing propagated calls to directory {}", this.callPropagator.outputDirectory);
+                    this.fileWriter = new PropagatedCallFileWriter(this.callPropagator.outputDirectory,
+                            this.callPropagator.speciesId);
+                }
                 
-                boolean firstInsert = true;
+                //no transaction needed when data are written to files
+                boolean firstInsert = this.fileWriter == null;
                 INSERT: while ((!this.callPropagator.jobCompleted || 
                             //important to check that there is no remaining calls to insert,
                             //as other thread might set the jobCompleted flag to true
@@ -772,12 +962,17 @@ public class InsertPropagatedCalls extends CallService {
                        this.callPropagator.errorOccured == null) {
 
                     //wait for consuming new data
-                    Map<Set<ConditionDAO.Attribute>, Set<PipelineCall>> toInsert = null;
+                    Map<Set<ConditionDAO.Attribute>, List<CompactPipelineCall>> toInsert = null;
                     try {
                         log.trace(BLOCKING_QUEUE_MARKER, "Trying to take Set of PipelineCalls");
                         //here we ask to wait indefinitely 
-                        toInsert = this.callPropagator.callsToInsert.take();
-                        log.trace(BLOCKING_QUEUE_MARKER, "Done taking Set of {} PipelineCalls",
+                        long waitStart = System.nanoTime();
+                        try {
+                            toInsert = this.callPropagator.callsToInsert.take();
+                        } finally {
+                            QUEUE_TAKE_WAIT.recordSince(waitStart);
+                        }
+                        log.trace(BLOCKING_QUEUE_MARKER, "Done taking Map of {} CompactPipelineCall Lists",
                                 toInsert.size());
                     } catch (InterruptedException e) {
                         //this Thread will be interrupted if an error occurred in an other Thread
@@ -821,21 +1016,14 @@ public class InsertPropagatedCalls extends CallService {
                         firstInsert = false;
                     }
 
-                    for (Entry<Set<ConditionDAO.Attribute>, Set<PipelineCall>> calls: toInsert.entrySet()) {
-                        // Here, we insert new conditions, and add them to the known conditions
-                        Map<Condition, Integer> newCondMap = this.insertNewGlobalConditions(
-                                calls.getValue(), insertedCondMap.keySet(), condDAO);
-                        if (!Collections.disjoint(insertedCondMap.keySet(), newCondMap.keySet())) {
-                            throw log.throwing(new IllegalStateException("Error, new conditions already seen. "
-                                    + "new conditions: " + newCondMap.keySet() + " - existing conditions: "
-                                    + insertedCondMap.keySet()));
+                    for (Entry<Set<ConditionDAO.Attribute>, List<CompactPipelineCall>> calls: toInsert.entrySet()) {
+                        if (calls.getValue().isEmpty()) {
+                            continue;
                         }
-                        if (!Collections.disjoint(insertedCondMap.values(), newCondMap.values())) {
-                            throw log.throwing(new IllegalStateException("Error, condition IDs reused. "
-                                    + "new IDs: " + newCondMap.values() + " - existing IDs: "
-                                    + insertedCondMap.values()));
-                        }
-                        insertedCondMap.putAll(newCondMap);
+                        // Here, we insert new conditions, and add them to the known conditions.
+                        //Condition IDs are generated from a counter, and each condition index
+                        //is assigned an ID only once, so IDs cannot be reused.
+                        this.insertNewGlobalConditions(calls.getValue(), globalCondIds, condDAO);
 
                         //Now, we insert relations between globalConditions and source raw conditions,
                         //to be able to later retrieve relations between globalExpressions to expressions,
@@ -843,7 +1031,7 @@ public class InsertPropagatedCalls extends CallService {
                         //(more than 10 billions rows for 29 species).
                         Set<PipelineGlobalCondToRawCondTO> newGlobalCondToRawConds =
                                 this.insertGlobalCondToRawConds(calls.getValue(), globalCondToRawConds,
-                                        insertedCondMap, condDAO);
+                                        globalCondIds, condDAO);
                         if (!Collections.disjoint(globalCondToRawConds, newGlobalCondToRawConds)) {
                             throw log.throwing(new IllegalStateException("Error, new condition relations already seen. "
                                     + "new relations: " + newGlobalCondToRawConds + " - existing relations: "
@@ -866,13 +1054,14 @@ public class InsertPropagatedCalls extends CallService {
 
 
                         // And we finish by inserting the computed calls
-                        this.insertPropagatedCalls(calls.getValue(), insertedCondMap, exprDAO);
+                        this.insertPropagatedCalls(calls.getValue(), globalCondIds, exprDAO);
                         log.debug("{} calls inserted for one gene in combination {}",
                                 calls.getValue().size(), calls.getKey());
                     }
                     
                     log.trace(INSERTION_MARKER, "Calls inserted.");
                     groupsInserted++;
+                    GENES_INSERTED.increment();
                     if (log.isInfoEnabled() && groupsInserted % 100 == 0) {
                         log.info(INSERTION_MARKER, "{} genes inserted.", groupsInserted);
                     }
@@ -898,14 +1087,19 @@ public class InsertPropagatedCalls extends CallService {
                     try {
                         //recheck the jobCompleted flag in case this Thread was interrupted
                         //for unknown reason
-                        if (this.callPropagator.jobCompleted && this.callPropagator.errorOccured == null) {
+                        if (this.fileWriter != null) {
+                            //no transaction when data are written to files. In case of error,
+                            //the files are incomplete and must not be loaded.
+                            log.info("{} genes written, closing files", groupsInserted);
+                            this.fileWriter.close();
+                        } else if (this.callPropagator.jobCompleted && this.callPropagator.errorOccured == null) {
                             log.info("{} genes inserted, committing transaction", groupsInserted);
                             ((MySQLDAOManager) daoManager).getConnection().commit();
                         } else {
                             log.info("Rollbacking transaction");
                             ((MySQLDAOManager) daoManager).getConnection().rollback();
                         }
-                    } catch (SQLException e) {
+                    } catch (SQLException | UncheckedIOException e) {
                         if (errorInThisThread) {
                             //we are already going to throw an exception, so that's enough
                             log.catching(e);
@@ -916,6 +1110,15 @@ public class InsertPropagatedCalls extends CallService {
                             throw log.throwing(new IllegalStateException(e));
                         }
                     } finally {
+                        //return the IDs reserved and not used. If it fails,
+                        //these IDs will simply never be used.
+                        for (IdBlockAllocator.IdBlock ids: Arrays.asList(this.condIds, this.exprIds)) {
+                            try {
+                                ids.close();
+                            } catch (UncheckedIOException e) {
+                                log.catching(e);
+                            }
+                        }
                         //notify the producer that the insertion is completed
                         synchronized(this.callPropagator.insertFinished) {
                             this.callPropagator.insertFinished.set(true);
@@ -950,80 +1153,72 @@ public class InsertPropagatedCalls extends CallService {
 
         /**
          * 
-         * @param propagatedCalls           A {@code Set} of {@code PipelineCall}s that are 
+         * @param propagatedCalls           A {@code List} of {@code CompactPipelineCall}s that are 
          *                                  all the calls for one gene.
-         * @param insertedGlobalConditions  A {@code Set} of {@code Condition}s already inserted
-         *                                  into the database.
+         * @param globalCondIds             An {@code int} array containing the IDs of the global
+         *                                  conditions already inserted into the database, indexed
+         *                                  as the conditions of the {@code CompactPipelineCall}s,
+         *                                  0 for conditions not yet inserted. The IDs of newly
+         *                                  inserted conditions are set in this array.
          * @param condDAO                   A {@code ConditionDAO} to perform the insertions.
-         * @return  A {@code Map} containing only newly inserted {@code Condition}s as keys, 
-         *          associated to their corresponding {@code Integer} ID.
          */
-        private Map<Condition, Integer> insertNewGlobalConditions(Set<PipelineCall> propagatedCalls,
-                Set<Condition> insertedGlobalConditions, ConditionDAO condDAO) {
-            log.entry(propagatedCalls, insertedGlobalConditions, condDAO);
+        private void insertNewGlobalConditions(List<CompactPipelineCall> propagatedCalls,
+                int[] globalCondIds, ConditionDAO condDAO) {
+            log.entry(propagatedCalls, globalCondIds, condDAO);
             
-            //First, we retrieve the conditions not already present in the database
-            Set<Condition> conds = propagatedCalls.stream()
-                    .map(c -> c.getCondition()).collect(Collectors.toSet());
-            conds.removeAll(insertedGlobalConditions);
-
-            //now we create the Map associating each Condition to insert to a generated ID for insertion
-            Map<Condition, Integer> newConds = conds.stream()
-                    .collect(Collectors.toMap(c -> c, c -> COND_ID_COUNTER.incrementAndGet()));
+            //First, we retrieve the conditions not already present in the database,
+            //and we generate their ID for insertion
+            Set<ConditionTO> condTOs = new HashSet<>();
+            for (CompactPipelineCall call: propagatedCalls) {
+                int condIndex = call.getConditionIndex();
+                if (globalCondIds[condIndex] == 0) {
+                    globalCondIds[condIndex] = this.condIds.nextId();
+                    condTOs.add(mapConditionToConditionTO(globalCondIds[condIndex],
+                            this.callPropagator.indexedConditions.get(condIndex)));
+                }
+            }
             
             //now we insert the conditions
-            Set<ConditionTO> condTOs = newConds.entrySet().stream()
-                    .map(e -> mapConditionToConditionTO(e.getValue(), e.getKey()))
-                    .collect(Collectors.toSet());
             if (!condTOs.isEmpty()) {
-                condDAO.insertGlobalConditions(condTOs);
+                if (this.fileWriter != null) {
+                    this.fileWriter.writeGlobalConditions(condTOs);
+                } else {
+                    long insertStart = System.nanoTime();
+                    condDAO.insertGlobalConditions(condTOs);
+                    DB_INSERT.recordSince(insertStart);
+                }
+                GLOBAL_CONDS_INSERTED.add(condTOs.size());
             }
             
-            //return new conditions with IDs
-            return log.exit(newConds);
+            log.exit();
         }
 
         private Set<PipelineGlobalCondToRawCondTO> insertGlobalCondToRawConds(
-                Set<PipelineCall> propagatedCalls, Set<PipelineGlobalCondToRawCondTO> insertedRels,
-                Map<Condition, Integer> condMap, ConditionDAO condDAO) {
-            log.entry(propagatedCalls, insertedRels, condMap, condDAO);
-
-            //We map PipelineCalls to GlobalConditionToRawConditionTOs and remove those already inserted
-            Set<PipelineGlobalCondToRawCondTO> newRels = propagatedCalls.stream()
-                    .flatMap(c -> {
-                        Integer globalCondId = condMap.get(c.getCondition());
-                        if (globalCondId == null) {
-                            throw log.throwing(new IllegalArgumentException("Missing inserted condition: "
-                                    + c.getCondition()));
-                        }
-
-                        Set<PipelineGlobalCondToRawCondTO> relTOs = new HashSet<>();
-                        if (c.getParentSourceCallTOs() != null) {
-                            relTOs.addAll(c.getParentSourceCallTOs().stream()
-                                    .map(source -> new PipelineGlobalCondToRawCondTO(
-                                            source.getConditionId(),
-                                            globalCondId,
-                                            GlobalConditionToRawConditionTO.ConditionRelationOrigin.PARENT))
-                                    .collect(Collectors.toSet()));
-                        }
-                        if (c.getSelfSourceCallTOs() != null) {
-                            relTOs.addAll(c.getSelfSourceCallTOs().stream()
-                                    .map(source -> new PipelineGlobalCondToRawCondTO(
-                                            source.getConditionId(),
-                                            globalCondId,
-                                            GlobalConditionToRawConditionTO.ConditionRelationOrigin.SELF))
-                                    .collect(Collectors.toSet()));
-                        }
-                        if (c.getDescendantSourceCallTOs() != null) {
-                            relTOs.addAll(c.getDescendantSourceCallTOs().stream()
-                                    .map(source -> new PipelineGlobalCondToRawCondTO(
-                                            source.getConditionId(),
-                                            globalCondId,
-                                            GlobalConditionToRawConditionTO.ConditionRelationOrigin.DESCENDANT))
-                                    .collect(Collectors.toSet()));
-                        }
-                        return relTOs.stream();
-                    }).collect(Collectors.toSet());
+                List<CompactPipelineCall> propagatedCalls, Set<PipelineGlobalCondToRawCondTO> insertedRels,
+                int[] globalCondIds, ConditionDAO condDAO) {
+            log.entry(propagatedCalls, insertedRels, globalCondIds, condDAO);
+
+            //We map CompactPipelineCalls to GlobalConditionToRawConditionTOs and remove those already inserted
+            Set<PipelineGlobalCondToRawCondTO> newRels = new HashSet<>();
+            for (CompactPipelineCall c: propagatedCalls) {
+                int globalCondId = globalCondIds[c.getConditionIndex()];
+                if (globalCondId == 0) {
+                    throw log.throwing(new IllegalArgumentException("Missing inserted condition: "
+                            + this.callPropagator.indexedConditions.get(c.getConditionIndex())));
+                }
+                for (int rawCondId: c.getParentRawConditionIds()) {
+                    newRels.add(new PipelineGlobalCondToRawCondTO(rawCondId, globalCondId,
+                            GlobalConditionToRawConditionTO.ConditionRelationOrigin.PARENT));
+                }
+                for (int rawCondId: c.getSelfRawConditionIds()) {
+                    newRels.add(new PipelineGlobalCondToRawCondTO(rawCondId, globalCondId,
+                            GlobalConditionToRawConditionTO.ConditionRelationOrigin.SELF));
+                }
+                for (int rawCondId: c.getDescendantRawConditionIds()) {
+                    newRels.add(new PipelineGlobalCondToRawCondTO(rawCondId, globalCondId,
+                            GlobalConditionToRawConditionTO.ConditionRelationOrigin.DESCENDANT));
+                }
+            }
             newRels.removeAll(insertedRels);
 
             //Deactivate this assert, it is very slow and, anyway, there is
@@ -1042,25 +1237,40 @@ public class InsertPropagatedCalls extends CallService {
 
             //now we insert the relations
             if (!newRels.isEmpty()) {
-                condDAO.insertGlobalConditionToRawCondition(newRels.stream()
+                Set<GlobalConditionToRawConditionTO> relTOs = newRels.stream()
                         .map(c -> (GlobalConditionToRawConditionTO) c)
-                        .collect(Collectors.toSet()));
+                        .collect(Collectors.toSet());
+                if (this.fileWriter != null) {
+                    this.fileWriter.writeGlobalCondToRawConds(relTOs);
+                } else {
+                    long insertStart = System.nanoTime();
+                    condDAO.insertGlobalConditionToRawCondition(relTOs);
+                    DB_INSERT.recordSince(insertStart);
+                }
+                GLOBAL_COND_TO_RAW_CONDS_INSERTED.add(newRels.size());
             }
 
             //return new rels
             return log.exit(newRels);
         }
 
-        private void insertPropagatedCalls(Set<PipelineCall> propagatedCalls,
-            Map<Condition, Integer> condMap, GlobalExpressionCallDAO dao) {
-            log.entry(propagatedCalls, condMap, dao);
+        private void insertPropagatedCalls(List<CompactPipelineCall> propagatedCalls,
+            int[] globalCondIds, GlobalExpressionCallDAO dao) {
+            log.entry(propagatedCalls, globalCondIds, dao);
         
-            //Now, insert. We associate each PipelineCall to its generated TO for easier retrieval
-            Map<GlobalExpressionCallTO, PipelineCall> callMap = propagatedCalls.stream()
+            //Now, insert. We associate each CompactPipelineCall to its generated TO for easier retrieval.
+            //The GlobalExpressionCallDataTOs are only created now, to save memory in the queue
+            //of calls to insert.
+            Map<GlobalExpressionCallTO, CompactPipelineCall> callMap = propagatedCalls.stream()
                     .collect(Collectors.toMap(
-                            c -> convertPipelineCallToGlobalExprCallTO(
-                                    EXPR_ID_COUNTER.incrementAndGet(), 
-                                    condMap.get(c.getCondition()), c), 
+                            c -> new GlobalExpressionCallTO(this.exprIds.nextId(),
+                                    c.getBgeeGeneId(), globalCondIds[c.getConditionIndex()],
+                                    //GlobalMeanRank: not a real attribute of the table. Maybe we should
+                                    //create a subclass of GlobalExpressionCallTO to be returned
+                                    //by getGlobalExpressionCalls
+                                    null,
+                                    //GlobalExpressionCallDataTOs
+                                    c.toCallDataTOs()), 
                             c -> c
                     ));
             log.trace("Inserting {} GlobalExpressionCallTOs", callMap.keySet().size());
@@ -1068,7 +1278,14 @@ public class InsertPropagatedCalls extends CallService {
             //at once. But I think our max_allowed_packet_size is big enough and should be OK.
             //Worst case scenario we'll add a loop here.
             assert !callMap.isEmpty();
-            dao.insertGlobalCalls(callMap.keySet());
+            if (this.fileWriter != null) {
+                this.fileWriter.writeGlobalCalls(callMap.keySet());
+            } else {
+                long insertStart = System.nanoTime();
+                dao.insertGlobalCalls(callMap.keySet());
+                DB_INSERT.recordSince(insertStart);
+            }
+            GLOBAL_CALLS_INSERTED.add(callMap.size());
             log.trace("Done inserting GlobalExpressionCallTOs");
             
             //Note: actually, we don't fill this globalExpressionToExpression table anymore,
@@ -1114,154 +1331,6 @@ public class InsertPropagatedCalls extends CallService {
             log.exit();
         }
 
-        private static GlobalExpressionCallTO convertPipelineCallToGlobalExprCallTO(int exprId, int condId, 
-                PipelineCall pipelineCall) {
-            log.entry(exprId, condId, pipelineCall);
-            
-            return log.exit(new GlobalExpressionCallTO(exprId, pipelineCall.getBgeeGeneId(), condId,
-                    //GlobalMeanRank: not a real attribute of the table. Maybe we should
-                    //create a subclass of GlobalExpressionCallTO to be returned by getGlobalExpressionCalls
-                    null,
-                    //GlobalExpressionCallDataTOs
-                    convertPipelineCallToExpressionCallDataTOs(pipelineCall)));
-        }
-        
-        private static Set<GlobalExpressionCallDataTO> convertPipelineCallToExpressionCallDataTOs(
-                PipelineCall pipelineCall) {
-            log.entry(pipelineCall);
-
-            return log.exit(pipelineCall.getCallData().stream()
-                    .map(cd -> {
-                        //Experiment expression counts
-                        if (cd.getExperimentCounts() == null) {
-                            throw log.throwing(new IllegalArgumentException("No count found in: "
-                                    + pipelineCall));
-                        }
-                        Set<DAOExperimentCount> daoCounts = cd.getExperimentCounts().stream()
-                                .map(c -> convertExperimentExpressionCountToDAOExperimentCount(c))
-                                .collect(Collectors.toSet());
-
-                        //Propagated experiment count
-                        Integer expPropagatedCount = cd.getPropagatedExperimentCount();
-
-                        //Rank info: computed by the Perl pipeline after generation
-                        //of these global calls
-//                        BigDecimal meanRank = cd.getRank();
-//                        BigDecimal meanRankNorm = cd.getNormalizedRank();
-//                        BigDecimal weightForMeanRank = cd.getWeightForMeanRank();
-
-                        //Observed data boolean per condition parameter
-                        Map<ConditionDAO.Attribute, DAOPropagationState> daoPropStates =
-                                convertDataPropToDAOPropStates(cd.getDataPropagation());
-                        assert !daoPropStates.isEmpty();
-                        
-                        return new GlobalExpressionCallDataTO(
-                                //data type
-                                convertDataTypeToDAODataType(Collections.singleton(cd.getDataType())).iterator().next(),
-                                //observedData Boolean
-                                cd.getDataPropagation().isIncludingObservedData(),
-                                //DataPropagation Map
-                                daoPropStates,
-                                //experimentCounts
-                                daoCounts,
-                                //propagated count
-                                expPropagatedCount,
-                                //rank info: computed by the Perl pipeline after generation
-                                //of these global calls
-//                                meanRank, meanRankNorm, weightForMeanRank
-                                null, null, null
-                                );
-                    }).collect(Collectors.toSet()));
-        }
-        private static Map<ConditionDAO.Attribute, DAOPropagationState> convertDataPropToDAOPropStates(
-                DataPropagation dp) {
-            log.entry(dp);
-            
-            Map<ConditionDAO.Attribute, DAOPropagationState> map =
-                    EnumSet.allOf(ConditionDAO.Attribute.class).stream()
-                    .filter(c -> c.isConditionParameter())
-                    .map(c -> {
-                        switch (c) {
-                        case ANAT_ENTITY_ID:
-                            return new AbstractMap.SimpleEntry<>(c, convertPropStateToDAOPropState(
-                                    dp.getAnatEntityPropagationState()));
-                        case STAGE_ID:
-                            return new AbstractMap.SimpleEntry<>(c, convertPropStateToDAOPropState(
-                                    dp.getDevStagePropagationState()));
-                        default:
-                            throw log.throwing(new IllegalStateException(
-                                    "Unsupported condition parameter: " + c));
-                        }
-                    })
-                    //since we have null values permitted in this Map, we cannot use Collectors.toMap
-                    //(see http://stackoverflow.com/a/24634007/1768736)
-                    .collect(HashMap::new, (m, v) -> m.put(v.getKey(), v.getValue()), HashMap::putAll);
-
-            assert !map.values().stream().allMatch(s -> s == null);
-            return log.exit(map);
-        }
-        
-        private static DAOExperimentCount convertExperimentExpressionCountToDAOExperimentCount(
-                ExperimentExpressionCount count) {
-            log.entry(count);
-            return log.exit(new DAOExperimentCount(
-                    convertCallTypeToDAOCallType(count.getCallType()),
-                    convertDataQualityToDAODataQuality(count.getDataQuality()),
-                    convertPropStateToDAOPropState(count.getPropagationState()),
-                    count.getCount()
-                    ));
-        }
-        private static DAOExperimentCount.CallType convertCallTypeToDAOCallType(
-                CallType.Expression callType) {
-            log.entry(callType);
-
-            switch(callType) {
-            case EXPRESSED:
-                return log.exit(DAOExperimentCount.CallType.PRESENT);
-            case NOT_EXPRESSED:
-                return log.exit(DAOExperimentCount.CallType.ABSENT);
-            default:
-                throw log.throwing(new IllegalArgumentException("Unsupported CallType: " + callType));
-            }
-        }
-        private static DAOExperimentCount.DataQuality convertDataQualityToDAODataQuality(DataQuality qual) {
-            log.entry(qual);
-
-            switch(qual) {
-            case LOW:
-                return log.exit(DAOExperimentCount.DataQuality.LOW);
-            case HIGH:
-                return log.exit(DAOExperimentCount.DataQuality.HIGH);
-            default:
-                throw log.throwing(new IllegalArgumentException("Unsupported DataQuality: " + qual));
-            }
-        }
-        private static DAOPropagationState convertPropStateToDAOPropState(PropagationState propState) {
-            log.entry(propState);
-
-            if (propState == null) {
-                return log.exit(null);
-            }
-            switch(propState) {
-            case SELF:
-                return log.exit(DAOPropagationState.SELF);
-            case ALL:
-                return log.exit(DAOPropagationState.ALL);
-            case DESCENDANT:
-                return log.exit(DAOPropagationState.DESCENDANT);
-            case ANCESTOR:
-                return log.exit(DAOPropagationState.ANCESTOR);
-            case SELF_AND_ANCESTOR:
-                return log.exit(DAOPropagationState.SELF_AND_ANCESTOR);
-            case SELF_AND_DESCENDANT:
-                return log.exit(DAOPropagationState.SELF_AND_DESCENDANT);
-            case ANCESTOR_AND_DESCENDANT:
-                return log.exit(DAOPropagationState.ANCESTOR_AND_DESCENDANT);
-            default:
-                throw log.throwing(new IllegalArgumentException("Unsupported PropagationState: "
-                    + propState));
-            }
-        }
     }
     
     /**
@@ -1276,8 +1345,27 @@ public class InsertPropagatedCalls extends CallService {
     public static void insert(List<Integer> speciesIds, 
             Collection<Set<ConditionDAO.Attribute>> conditionParamsCollection) {
         log.entry(speciesIds, conditionParamsCollection);
+        InsertPropagatedCalls.insert(speciesIds, conditionParamsCollection, null);
+        log.exit();
+    }
+    /**
+     * 
+     * @param speciesIds
+     * @param conditionParamsCollection A {@code Collection} of {@code Set}s of 
+     *                                  {@code ConditionDAO.Attribute}s. Each {@code Collection}
+     *                                  element defines a combination of condition parameters that 
+     *                                  are requested for queries, allowing to determine 
+     *                                  which condition and expression information to target.
+     * @param outputDirectory           A {@code Path} to the directory where to write
+     *                                  the propagated calls, to be loaded later by
+     *                                  {@link LoadPropagatedCalls}. If {@code null},
+     *                                  the propagated calls are inserted into the database.
+     */
+    public static void insert(List<Integer> speciesIds, 
+            Collection<Set<ConditionDAO.Attribute>> conditionParamsCollection, Path outputDirectory) {
+        log.entry(speciesIds, conditionParamsCollection, outputDirectory);
         InsertPropagatedCalls.insert(speciesIds, conditionParamsCollection,
-                DAOManager::getDAOManager, ServiceFactory::new);  
+                DAOManager::getDAOManager, ServiceFactory::new, outputDirectory);
         log.exit();
     }
     /**
@@ -1301,6 +1389,33 @@ public class InsertPropagatedCalls extends CallService {
             final Supplier<DAOManager> daoManagerSupplier, 
             final Function<DAOManager, ServiceFactory> serviceFactoryProvider) {
         log.entry(speciesIds, conditionParamsCollection, daoManagerSupplier, serviceFactoryProvider);
+        InsertPropagatedCalls.insert(speciesIds, conditionParamsCollection, daoManagerSupplier,
+                serviceFactoryProvider, null);
+        log.exit();
+    }
+    /**
+     * 
+     * @param speciesIds
+     * @param conditionParamsCollection A {@code Collection} of {@code Set}s of 
+     *                                  {@code ConditionDAO.Attribute}s. Each {@code Collection}
+     *                                  element defines a combination of condition parameters that 
+     *                                  are requested for queries, allowing to determine 
+     *                                  which condition and expression information to target.
+     * @param daoManagerSupplier        The {@code Supplier} of {@code DAOManager} to use.
+     * @param serviceFactoryProvider    The {@code Function} accepting a {@code DAOManager} as argument
+     *                                  and returning a new {@code ServiceFactory}.
+     * @param outputDirectory           A {@code Path} to the directory where to write
+     *                                  the propagated calls, to be loaded later by
+     *                                  {@link LoadPropagatedCalls}. If {@code null},
+     *                                  the propagated calls are inserted into the database.
+     */
+    public static void insert(List<Integer> speciesIds, 
+            Collection<Set<ConditionDAO.Attribute>> conditionParamsCollection, 
+            final Supplier<DAOManager> daoManagerSupplier, 
+            final Function<DAOManager, ServiceFactory> serviceFactoryProvider,
+            final Path outputDirectory) {
+        log.entry(speciesIds, conditionParamsCollection, daoManagerSupplier, serviceFactoryProvider,
+                outputDirectory);
 
         // Sanity checks on attributes
         if (conditionParamsCollection == null || conditionParamsCollection.isEmpty()) {
@@ -1326,32 +1441,77 @@ public class InsertPropagatedCalls extends CallService {
             final List<Integer> speciesIdsToUse = BgeeDBUtils.checkAndGetSpeciesIds(speciesIds, 
                     commonManager.getSpeciesDAO());
             
-            //we also need to set the max condition ID and max expression ID
+            //we also need to make sure that generated IDs are greater than the max condition ID
+            //and max expression ID
             ConditionDAO condDAO = commonManager.getConditionDAO();
             GlobalExpressionCallDAO exprDAO = commonManager.getGlobalExpressionCallDAO();
-            COND_ID_COUNTER.set(condDAO.getMaxGlobalConditionId());
-            EXPR_ID_COUNTER.set(exprDAO.getMaxGlobalExprId());
+            ID_ALLOCATOR.initialize(COND_ID_SEQUENCE, condDAO.getMaxGlobalConditionId());
+            ID_ALLOCATOR.initialize(EXPR_ID_SEQUENCE, exprDAO.getMaxGlobalExprId());
             condDAO = null;
             exprDAO = null;
-            
+
+            //sizes are needed only to decide which species can be processed concurrently
+            final Map<Integer, Long> sizeBySpeciesId = MAX_CONCURRENT_SPECIES > 1?
+                    loadSpeciesSizes(commonManager, speciesIdsToUse): new HashMap<>();
+            final long sizeBudget = SPECIES_SIZE_BUDGET > 0? SPECIES_SIZE_BUDGET:
+                sizeBySpeciesId.values().stream().mapToLong(s -> s).max().orElse(0L);
+
             //close connection immediately, but do not close the manager because of
             //the try-with-resource clause.
             commonManager.releaseResources();
 
 
-            //Note: no parallel streams here, because the different streams would lock the same tables
-            //in database. Parallel tasks are used per species.
-            speciesIdsToUse.stream().forEach(speciesId -> {
+            //Note: no parallel streams here, the species processed concurrently are chosen
+            //by the SpeciesScheduler depending on their size. Species processed concurrently
+            //each use their own transaction, and insert rows with distinct IDs
+            //(each insertion thread uses its own blocks of IDs reserved from ID_ALLOCATOR),
+            //for distinct species, so that they do not lock the same rows.
+            //Parallel tasks are also used per species.
+            new SpeciesScheduler(MAX_CONCURRENT_SPECIES, sizeBudget).run(speciesIdsToUse,
+                    sizeBySpeciesId, speciesId -> {
                 //Give as argument a Supplier of ServiceFactory so that this object
                 //can provide a new connection to each parallel thread.
                 InsertPropagatedCalls insert = new InsertPropagatedCalls(
                         () -> serviceFactoryProvider.apply(daoManagerSupplier.get()), 
-                        clonedCondParamList, speciesId);
+                        clonedCondParamList, speciesId, outputDirectory);
                 insert.insertOneSpecies();
             });
         }
         log.exit();
     }
+
+    /**
+     * Estimate the size of the propagation of calls of each requested species,
+     * as the number of genes with data multiplied by the number of raw conditions
+     * of the species, for the scheduling of species by {@link SpeciesScheduler}.
+     *
+     * @param daoManager    The {@code DAOManager} to use to query the database.
+     * @param speciesIds    A {@code Collection} of {@code Integer}s that are the IDs
+     *                      of the requested species.
+     * @return              A {@code Map} where keys are {@code Integer}s that are species IDs,
+     *                      the associated value being a {@code Long} that is the size
+     *                      of the species.
+     */
+    private static Map<Integer, Long> loadSpeciesSizes(DAOManager daoManager,
+            Collection<Integer> speciesIds) {
+        log.entry(daoManager, speciesIds);
+
+        Map<Integer, Long> geneCountBySpeciesId = daoManager.getGeneDAO()
+                .getGenesWithDataBySpeciesIds(speciesIds).stream()
+                .collect(Collectors.groupingBy(g -> g.getSpeciesId(), Collectors.counting()));
+        Map<Integer, Long> condCountBySpeciesId = daoManager.getRawDataConditionDAO()
+                .getRawDataConditionsBySpeciesIds(speciesIds, EnumSet.of(
+                        RawDataConditionDAO.Attribute.ID, RawDataConditionDAO.Attribute.SPECIES_ID))
+                .stream()
+                .collect(Collectors.groupingBy(c -> c.getSpeciesId(), Collectors.counting()));
+
+        Map<Integer, Long> sizeBySpeciesId = speciesIds.stream()
+                .collect(Collectors.toMap(id -> id,
+                        id -> geneCountBySpeciesId.getOrDefault(id, 0L)
+                              * condCountBySpeciesId.getOrDefault(id, 0L)));
+        log.info("Sizes of species (genes x raw conditions): {}", sizeBySpeciesId);
+        return log.exit(sizeBySpeciesId);
+    }
     
     /**
      * A {@code volatile} {@code Throwable} allowing to notify all threads when an error occurs,
@@ -1368,20 +1528,22 @@ public class InsertPropagatedCalls extends CallService {
      */
     private final Supplier<ServiceFactory> serviceFactorySupplier;
     /**
-     * A {@code BlockingQueue} for {@code PipelineCall}s to be inserted. Each element is
+     * A {@code BlockingQueue} for {@code CompactPipelineCall}s to be inserted. Each element is
      * a {@code Map}s where keys are {@code Set} of {@code ConditionDAO.Attribute}s representing
-     * combinations of condition parameters, the associated value being a {@code Set}
-     * of {@code ExpressionCall}s that are propagated and reconciled expression calls
+     * combinations of condition parameters, the associated value being a {@code List}
+     * of {@code CompactPipelineCall}s that are propagated and reconciled expression calls
      * for one gene according to the associated combination.
      * <p>
-     * Each contained {@code Set} is inserted into the database in a single INSERT statement.
-     * We use this {@code Map} rather than a simple {@code Set} of {@code PipelineCall}s
+     * Each contained {@code List} is inserted into the database in a single INSERT statement.
+     * We use this {@code Map} rather than a simple {@code List} of {@code CompactPipelineCall}s
      * so that the INSERT statements are not too big, dealing with one {@code Entry} at a time.
      * <p>
-     * Computational threads will add new {@code PipelineCall}s to be inserted to this queue,
-     * and the insertion thread will remove them from the queue for insertion.
+     * Computational threads will add new {@code CompactPipelineCall}s to be inserted to this queue,
+     * and the insertion thread will remove them from the queue for insertion. The calls
+     * are stored in a compact form because the heap used by the calls waiting in this queue
+     * limits the number of genes that can be processed in parallel.
      */
-    private final BlockingQueue<Map<Set<ConditionDAO.Attribute>, Set<PipelineCall>>> callsToInsert;
+    private final BlockingQueue<Map<Set<ConditionDAO.Attribute>, List<CompactPipelineCall>>> callsToInsert;
     /**
      * An {@code AtomicBoolean} that will allow the main thread to acquire a lock and wait on it,
      * to be notified by the insert thread when all calls are inserted (computations can be faster
@@ -1406,31 +1568,57 @@ public class InsertPropagatedCalls extends CallService {
      */
     private final int speciesId;
     /**
-     * A {@code ConcurrentMap} where keys are {@code Condition}s, the associated value
-     * being a {@code Set} of {@code Condition}s that are their ancestral conditions,
-     * as retrieved in the method {@link #propagatePipelineCalls(Map, ConditionGraph)}.
-     * This {@code ConcurrentMap} serves as a cache, to not query the {@code ConditionGraph}
-     * each time. 
+     * A {@code Path} to the directory where the propagated calls are written,
+     * using a {@link PropagatedCallFileWriter}, to be loaded later by {@link LoadPropagatedCalls}.
+     * If {@code null}, the propagated calls are inserted into the database.
+     */
+    private final Path outputDirectory;
+    /**
+     * An {@code Integer} that is the lowest Bgee gene ID of the genes to propagate calls for.
+     * If {@code null}, there is no lower bound. Used by {@link DistributedPropagation}
+     * to split the computations of a species into several work units.
+     */
+    private final Integer firstBgeeGeneId;
+    /**
+     * An {@code Integer} that is the highest Bgee gene ID of the genes to propagate calls for.
+     * If {@code null}, there is no upper bound.
+     *
+     * @see #firstBgeeGeneId
+     */
+    private final Integer lastBgeeGeneId;
+    /**
+     * A {@code List} of all the {@code Condition}s of the species, for all requested
+     * combinations of condition parameters. The index of a {@code Condition} in this {@code List}
+     * identifies it in the {@code CompactPipelineCall}s. Set before starting the computations
+     * and the insertion thread.
      */
-    //Should a similar mechanism be directly implemented in ConditionGraph?
-    //Seems complicated and might not worth it in all situations.
-    //But it seems to result in a 30% speed increase in this class.
-    private final ConcurrentMap<Condition, Set<Condition>> condToAncestors;
+    private List<Condition> indexedConditions;
     /**
-     * A {@code ConcurrentMap} where keys are {@code Condition}s, the associated value
-     * being a {@code Set} of {@code Condition}s that are their descendant conditions,
-     * as retrieved in the method {@link #propagatePipelineCalls(Map, ConditionGraph)}.
-     * This {@code ConcurrentMap} serves as a cache, to not query the {@code ConditionGraph}
-     * each time. 
+     * A {@code Map} where keys are {@code Condition}s, the associated value being
+     * their index in {@link #indexedConditions}.
      */
-    //Should a similar mechanism be directly implemented in ConditionGraph?
-    //Seems complicated and might not worth it in all situations.
-    //But it seems to result in a 30% speed increase in this class.
-    private final ConcurrentMap<Condition, Set<Condition>> condToDescendants;
+    private Map<Condition, Integer> conditionIndexes;
+    /**
+     * A {@code ConcurrentMap} where keys are {@code Set}s of {@code ConditionDAO.Attribute}s
+     * representing combinations of condition parameters, the associated value being
+     * the {@code ConditionSweepPropagator} used to propagate calls for this combination.
+     */
+    private final ConcurrentMap<Set<ConditionDAO.Attribute>, ConditionSweepPropagator>
+    sweepPropagatorsByComb;
 
 
     public InsertPropagatedCalls(Supplier<ServiceFactory> serviceFactorySupplier, 
             List<Set<ConditionDAO.Attribute>> condParamCombinations, int speciesId) {
+        this(serviceFactorySupplier, condParamCombinations, speciesId, null);
+    }
+    public InsertPropagatedCalls(Supplier<ServiceFactory> serviceFactorySupplier, 
+            List<Set<ConditionDAO.Attribute>> condParamCombinations, int speciesId,
+            Path outputDirectory) {
+        this(serviceFactorySupplier, condParamCombinations, speciesId, outputDirectory, null, null);
+    }
+    InsertPropagatedCalls(Supplier<ServiceFactory> serviceFactorySupplier, 
+            List<Set<ConditionDAO.Attribute>> condParamCombinations, int speciesId,
+            Path outputDirectory, Integer firstBgeeGeneId, Integer lastBgeeGeneId) {
         super(serviceFactorySupplier.get());
         if (condParamCombinations == null || condParamCombinations.isEmpty()) {
             throw log.throwing(new IllegalArgumentException("Condition attributes should not be empty"));
@@ -1438,6 +1626,9 @@ public class InsertPropagatedCalls extends CallService {
         this.serviceFactorySupplier = serviceFactorySupplier;
         this.condParamCombinations = Collections.unmodifiableList(new ArrayList<>(condParamCombinations));
         this.speciesId = speciesId;
+        this.outputDirectory = outputDirectory;
+        this.firstBgeeGeneId = firstBgeeGeneId;
+        this.lastBgeeGeneId = lastBgeeGeneId;
         //use a LinkedBlockingDeque because we are going to do lots of insert/remove,
         //and because we don't care about element order. We are going to block
         //if there are too many results waiting to be inserted, to not overload the memory
@@ -1447,11 +1638,10 @@ public class InsertPropagatedCalls extends CallService {
         this.errorOccured = null;
         this.jobCompleted = false;
         
-        this.condToAncestors = new ConcurrentHashMap<>();
-        this.condToDescendants = new ConcurrentHashMap<>();
+        this.sweepPropagatorsByComb = new ConcurrentHashMap<>();
     }
 
-    private void insertOneSpecies() {
+    void insertOneSpecies() {
         log.entry();
         
         log.info("Start inserting of propagated calls for the species {} with combinations of condition parameters {}...",
@@ -1498,6 +1688,25 @@ public class InsertPropagatedCalls extends CallService {
                             condGraphService.loadConditionGraph(e.getValue().values(), true, true))
                     ).collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue()));
             log.info("Done condition inference.");
+
+            //The relations between conditions are computed once, to be shared read-only
+            //by the computation threads
+            Map<Set<ConditionDAO.Attribute>, ConditionRelationTable> relationTableByComb =
+                    conditionGraphByComb.entrySet().stream()
+                    .map(e -> new AbstractMap.SimpleEntry<>(e.getKey(),
+                            this.loadConditionRelationTable(e.getKey(), e.getValue()))
+                    ).collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue()));
+
+            //index the conditions, to identify them by an int in the CompactPipelineCalls
+            this.indexedConditions = Collections.unmodifiableList(conditionGraphByComb.values().stream()
+                    .flatMap(g -> g.getConditions().stream())
+                    .distinct()
+                    .collect(Collectors.toList()));
+            Map<Condition, Integer> condIndexes = new HashMap<>();
+            for (int i = 0; i < this.indexedConditions.size(); i++) {
+                condIndexes.put(this.indexedConditions.get(i), i);
+            }
+            this.conditionIndexes = Collections.unmodifiableMap(condIndexes);
             
             //we retrieve the IDs of genes with expression data. This is because making the computation
             //a whole species at a time can use too much memory for species with large amount of data.
@@ -1506,6 +1715,8 @@ public class InsertPropagatedCalls extends CallService {
                     mainManager.getGeneDAO()
                         .getGenesWithDataBySpeciesIds(Collections.singleton(speciesId))
                         .stream().map(g -> g.getId())
+                        .filter(id -> (this.firstBgeeGeneId == null || id >= this.firstBgeeGeneId) &&
+                                (this.lastBgeeGeneId == null || id <= this.lastBgeeGeneId))
                         .collect(Collectors.toList()));
             log.info("{} genes with data retrieved for species {}", bgeeGeneIds.size(), speciesId);
             
@@ -1515,62 +1726,111 @@ public class InsertPropagatedCalls extends CallService {
             mainManager.releaseResources();
 
             //PARALLEL EXECUTION: start the insertion Thread
+            //one gauge per species, species can be processed concurrently
+            METRICS.gauge(QUEUE_DEPTH_GAUGE + "." + this.speciesId, () -> this.callsToInsert.size());
             insertThread.start();
 
             //PARALLEL EXECUTION: we generate groups of genes of size GENES_PER_ITERATION
             //and run the computations in parallel between groups
             //(important to convert to float here before dividing, otherwise the rounding could be incorrect)
             int iterationCount = (int) Math.ceil((float) bgeeGeneIds.size()/(float) GENE_PARALLEL_GROUP_SIZE);
-            IntStream.range(0, iterationCount).parallel()
-            .mapToObj(i -> bgeeGeneIds.subList(i * GENE_PARALLEL_GROUP_SIZE, 
+            final List<Set<Integer>> geneGroups = IntStream.range(0, iterationCount)
+            .mapToObj(i -> (Set<Integer>) new HashSet<>(bgeeGeneIds.subList(i * GENE_PARALLEL_GROUP_SIZE, 
                     ((i + 1) * GENE_PARALLEL_GROUP_SIZE) > bgeeGeneIds.size()? 
-                            bgeeGeneIds.size(): ((i + 1) * GENE_PARALLEL_GROUP_SIZE)))
-            .forEach(subsetGeneIds -> {
-                //check at each iteration if an error occurred in another thread
-                this.checkErrorOccurred();
+                            bgeeGeneIds.size(): ((i + 1) * GENE_PARALLEL_GROUP_SIZE))))
+            .collect(Collectors.toList());
+
+            //PARALLEL EXECUTION: if requested, the data of the groups are loaded in advance
+            //in separate threads, with their own connection, while the computations are performed.
+            //Each DAOManager is registered to be able to kill all queries in case of error.
+            final GeneGroupPrefetcher<GeneGroupData> prefetcher = PREFETCH_DEPTH <= 0? null:
+                new GeneGroupPrefetcher<>(geneGroups, PREFETCH_DEPTH, () -> {
+                    DAOManager prefetchDAOManager = this.serviceFactorySupplier.get().getDAOManager();
+                    this.daoManagers.add(prefetchDAOManager);
+                    return prefetchDAOManager;
+                }, this::loadGeneGroupData);
+            try {
+                IntStream.range(0, geneGroups.size()).parallel()
+                .mapToObj(i -> geneGroups.get(i))
+                .forEach(subsetGeneIds -> {
+                    //check at each iteration if an error occurred in another thread
+                    this.checkErrorOccurred();
+                    //busy time of this thread, excluding time blocked on a full insertion queue
+                    final long busyStart = System.nanoTime();
+                    long queueWait = 0;
                 
-                //We need a new connection to the database for each thread, so we use
-                //a ServiceFactory Supplier
-                final ServiceFactory threadServiceFactory = this.serviceFactorySupplier.get();
+                    //We need a new connection to the database for each thread, so we use
+                    //a ServiceFactory Supplier. Not needed if the data are prefetched.
+                    final ServiceFactory threadServiceFactory = prefetcher != null? null:
+                        this.serviceFactorySupplier.get();
                 
-                try (DAOManager threadDAOManager = threadServiceFactory.getDAOManager()) {
-                    //PARALLEL EXECUTION: each thread-specific DAOManager is registered
-                    //to be able to kill all queries in case of error in any thread.
-                    //The killing will be performed by this.insertThread, as we know this thread
-                    //will be running during the whole process and will be performing fast queries only.
-                    this.daoManagers.add(threadDAOManager);
+                    try (DAOManager threadDAOManager = threadServiceFactory == null? null:
+                        threadServiceFactory.getDAOManager()) {
                     
-                    log.debug("Processing {} genes...", subsetGeneIds.size());
-                    final RawExpressionCallDAO rawCallDAO = threadDAOManager.getRawExpressionCallDAO();
-                    final ExperimentExpressionDAO expExprDAO = threadDAOManager.getExperimentExpressionDAO();
-                    
-                    // We propagate calls. Each Map contains all propagated calls for one gene
-                    final Stream<Map<Set<ConditionDAO.Attribute>, Set<PipelineCall>>> propagatedCalls =
-                            this.generatePropagatedCalls(
-                                    new HashSet<>(subsetGeneIds), condMapByComb, conditionGraphByComb,
+                        // We propagate calls. Each Map contains all propagated calls for one gene
+                        final Stream<Map<Set<ConditionDAO.Attribute>, List<CompactPipelineCall>>> propagatedCalls;
+                        if (prefetcher != null) {
+                            //Each iteration takes exactly one group from the prefetcher,
+                            //so that all groups are processed, but not necessarily subsetGeneIds.
+                            //Time spent waiting for the data is counted as busy time.
+                            GeneGroupData geneGroupData = prefetcher.take();
+                            log.debug("Processing {} prefetched genes...", geneGroupData.getGeneIds().size());
+                            propagatedCalls = this.generatePropagatedCalls(geneGroupData,
+                                    condMapByComb, relationTableByComb);
+                        } else {
+                            //PARALLEL EXECUTION: each thread-specific DAOManager is registered
+                            //to be able to kill all queries in case of error in any thread.
+                            //The killing will be performed by this.insertThread, as we know this thread
+                            //will be running during the whole process and will be performing fast queries only.
+                            this.daoManagers.add(threadDAOManager);
+                        
+                            log.debug("Processing {} genes...", subsetGeneIds.size());
+                            final RawExpressionCallDAO rawCallDAO = threadDAOManager.getRawExpressionCallDAO();
+                            final ExperimentExpressionDAO expExprDAO = threadDAOManager.getExperimentExpressionDAO();
+                            propagatedCalls = this.generatePropagatedCalls(
+                                    subsetGeneIds, condMapByComb, relationTableByComb,
                                     rawCallDAO, expExprDAO);
+                        }
                     
-                    //Provide the calls to insert to the Thread managing the insertions
-                    //through the dedicated BlockingQueue
-                    propagatedCalls.forEach(set -> {
-                        //Check error status
-                        this.checkErrorOccurred();
-                        try {
-                            //wait indefinitely for space in the queue to be available
-                            //(to not overload the memory)
-                            log.trace(BLOCKING_QUEUE_MARKER, "Offering Set of {} PipelineCalls", 
-                                    set.size());
-                            this.callsToInsert.put(set);
-                        } catch (InterruptedException e) {
-                            this.exceptionOccurs(e, insertThread);
+                        //Provide the calls to insert to the Thread managing the insertions
+                        //through the dedicated BlockingQueue
+                        //We don't use forEach, to be able to sum the time spent waiting on the queue
+                        final Iterator<Map<Set<ConditionDAO.Attribute>, List<CompactPipelineCall>>> it =
+                                propagatedCalls.iterator();
+                        while (it.hasNext()) {
+                            Map<Set<ConditionDAO.Attribute>, List<CompactPipelineCall>> set = it.next();
+                            GENES_COMPUTED.increment();
+                            //Check error status
+                            this.checkErrorOccurred();
+                            long waitStart = System.nanoTime();
+                            try {
+                                //wait indefinitely for space in the queue to be available
+                                //(to not overload the memory)
+                                log.trace(BLOCKING_QUEUE_MARKER, "Offering Map of {} CompactPipelineCall Lists", 
+                                        set.size());
+                                this.callsToInsert.put(set);
+                            } catch (InterruptedException e) {
+                                this.exceptionOccurs(e, insertThread);
+                            } finally {
+                                long waitTime = System.nanoTime() - waitStart;
+                                QUEUE_PUT_WAIT.record(waitTime);
+                                queueWait += waitTime;
+                            }
                         }
-                    });
                     
-                    log.debug("Done processing {} genes.", subsetGeneIds.size());
-                } catch (Exception e) {
-                    this.exceptionOccurs(e, insertThread);
+                        log.debug("Done processing group of genes.");
+                    } catch (Exception e) {
+                        this.exceptionOccurs(e, insertThread);
+                    } finally {
+                        METRICS.timer(WORKER_BUSY_TIMER_PREFIX + Thread.currentThread().getName())
+                            .record(System.nanoTime() - busyStart - queueWait);
+                    }
+                });
+            } finally {
+                if (prefetcher != null) {
+                    prefetcher.close();
                 }
-            });
+            }
             
             //very important to set this flag here for the insertion thread to know it should quit.
             this.jobCompleted = true;
@@ -1600,6 +1860,7 @@ public class InsertPropagatedCalls extends CallService {
         }
 
 
+        METRICS.removeGauge(QUEUE_DEPTH_GAUGE + "." + this.speciesId);
         log.info("Done inserting of propagated calls for the species {} with combinations of condition parameters {}...",
             this.speciesId, this.condParamCombinations);
         
@@ -1757,6 +2018,43 @@ public class InsertPropagatedCalls extends CallService {
         .collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue())));
     }
 
+    /**
+     * Retrieve the {@code ConditionRelationTable} for a combination of condition parameters,
+     * read from {@link #CONDITION_RELATION_DIR} if it was written by a previous run
+     * for the same conditions, computed from {@code conditionGraph} otherwise
+     * (and then written to {@link #CONDITION_RELATION_DIR} if defined).
+     *
+     * @param condParams        A {@code Set} of {@code ConditionDAO.Attribute}s that is
+     *                          the combination of condition parameters considered.
+     * @param conditionGraph    The {@code ConditionGraph} containing the {@code Condition}s
+     *                          for {@code condParams}.
+     * @return                  The {@code ConditionRelationTable} for {@code condParams}.
+     */
+    ConditionRelationTable loadConditionRelationTable(Set<ConditionDAO.Attribute> condParams,
+            ConditionGraph conditionGraph) {
+        log.entry(condParams, conditionGraph);
+
+        Path file = CONDITION_RELATION_DIR == null? null: Paths.get(CONDITION_RELATION_DIR)
+                .resolve(ConditionRelationTable.getFileName(this.speciesId, condParams));
+        if (file != null) {
+            ConditionRelationTable table = ConditionRelationTable.read(file,
+                    conditionGraph.getConditions());
+            if (table != null) {
+                log.info("Relations between conditions for {} read from {}", condParams, file);
+                return log.exit(table);
+            }
+        }
+        log.info("Computing relations between conditions for {}...", condParams);
+        ConditionRelationTable table = ConditionRelationTable.build(conditionGraph.getConditions(),
+                c -> conditionGraph.getAncestorConditions(c),
+                c -> conditionGraph.getDescendantConditions(c, false, false, NB_SUBLEVELS_MAX, null));
+        if (file != null) {
+            table.write(file);
+        }
+        log.info("Done computing relations between conditions for {}.", condParams);
+        return log.exit(table);
+    }
+
     /** 
      * Generate propagated and reconciled expression calls.
      * 
@@ -1769,12 +2067,12 @@ public class InsertPropagatedCalls extends CallService {
      *                              the associated value being the corresponding {@code Condition}
      *                              with attributes populated according to the associated combination
      *                              of condition parameters.
-     * @param conditionGraphByComb A {@code Map} where keys are {@code Set} of
+     * @param relationTableByComb  A {@code Map} where keys are {@code Set} of
      *                              {@code ConditionDAO.Attribute}s representing a combination of
-     *                              condition parameters, the associated value being a {@code ConditionGraph}
-     *                              containing the {@code Condition}s and relations considering
-     *                              attributes according to the associated combination
-     *                              of condition parameters.
+     *                              condition parameters, the associated value being a
+     *                              {@code ConditionRelationTable} containing the {@code Condition}s
+     *                              and relations considering attributes according to the associated
+     *                              combination of condition parameters.
      * @param rawCallDAO            The {@code RawExpressionCallDAO} to use to retrieve
      *                              {@code RawExpressionCallTO}s from data source.
      * @param expExprDAO            The {@code ExperimentExpressionDAO} to use to retrieve
@@ -1785,12 +2083,12 @@ public class InsertPropagatedCalls extends CallService {
      *                              of {@code ExpressionCall}s that are propagated and reconciled
      *                              expression calls for one gene according to the associated combination.
      */
-    private Stream<Map<Set<ConditionDAO.Attribute>, Set<PipelineCall>>> generatePropagatedCalls(
+    private Stream<Map<Set<ConditionDAO.Attribute>, List<CompactPipelineCall>>> generatePropagatedCalls(
             Set<Integer> geneIds,
             Map<Set<ConditionDAO.Attribute>, Map<Integer, Condition>> condMapByComb,
-            Map<Set<ConditionDAO.Attribute>, ConditionGraph> conditionGraphByComb, 
+            Map<Set<ConditionDAO.Attribute>, ConditionRelationTable> relationTableByComb, 
             RawExpressionCallDAO rawCallDAO, ExperimentExpressionDAO expExprDAO) {
-        log.entry(geneIds, condMapByComb, conditionGraphByComb, rawCallDAO, expExprDAO);
+        log.entry(geneIds, condMapByComb, relationTableByComb, rawCallDAO, expExprDAO);
         
         log.trace(COMPUTE_MARKER, "Creating Splitereator with DAO queries...");
         this.checkErrorOccurred();
@@ -1800,6 +2098,59 @@ public class InsertPropagatedCalls extends CallService {
         this.checkErrorOccurred();
         final Map<DataType, Stream<ExperimentExpressionTO>> experimentExprTOsByDataType =
             performsExperimentExpressionQuery(geneIds, expExprDAO);
+
+        return log.exit(this.generatePropagatedCalls(streamRawCallTOs, experimentExprTOsByDataType,
+                condMapByComb, relationTableByComb));
+    }
+
+    /** 
+     * Generate propagated and reconciled expression calls from data already retrieved
+     * by a {@link GeneGroupPrefetcher}.
+     * 
+     * @param geneGroupData         The {@code GeneGroupData} holding the raw calls
+     *                              and experiment expressions of a group of genes.
+     * @param condMapByComb         See {@link #generatePropagatedCalls(Set, Map, Map,
+     *                              RawExpressionCallDAO, ExperimentExpressionDAO)}.
+     * @param relationTableByComb   See {@link #generatePropagatedCalls(Set, Map, Map,
+     *                              RawExpressionCallDAO, ExperimentExpressionDAO)}.
+     * @return                      See {@link #generatePropagatedCalls(Set, Map, Map,
+     *                              RawExpressionCallDAO, ExperimentExpressionDAO)}.
+     */
+    private Stream<Map<Set<ConditionDAO.Attribute>, List<CompactPipelineCall>>> generatePropagatedCalls(
+            GeneGroupData geneGroupData,
+            Map<Set<ConditionDAO.Attribute>, Map<Integer, Condition>> condMapByComb,
+            Map<Set<ConditionDAO.Attribute>, ConditionRelationTable> relationTableByComb) {
+        log.entry(geneGroupData, condMapByComb, relationTableByComb);
+        this.checkErrorOccurred();
+        return log.exit(this.generatePropagatedCalls(geneGroupData.getRawCallTOs().stream(),
+                geneGroupData.getExpExprTOsByDataType().entrySet().stream()
+                    .collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue().stream())),
+                condMapByComb, relationTableByComb));
+    }
+
+    /** 
+     * Generate propagated and reconciled expression calls from the provided raw calls
+     * and experiment expressions, ordered by gene ID and expression ID.
+     * 
+     * @param streamRawCallTOs              A {@code Stream} of {@code RawExpressionCallTO}s
+     *                                      ordered by gene ID and expression ID.
+     * @param experimentExprTOsByDataType   A {@code Map} where keys are {@code DataType}s,
+     *                                      the associated value being a {@code Stream}
+     *                                      of {@code ExperimentExpressionTO}s ordered
+     *                                      by gene ID and expression ID.
+     * @param condMapByComb                 See {@link #generatePropagatedCalls(Set, Map, Map,
+     *                                      RawExpressionCallDAO, ExperimentExpressionDAO)}.
+     * @param relationTableByComb           See {@link #generatePropagatedCalls(Set, Map, Map,
+     *                                      RawExpressionCallDAO, ExperimentExpressionDAO)}.
+     * @return                              See {@link #generatePropagatedCalls(Set, Map, Map,
+     *                                      RawExpressionCallDAO, ExperimentExpressionDAO)}.
+     */
+    private Stream<Map<Set<ConditionDAO.Attribute>, List<CompactPipelineCall>>> generatePropagatedCalls(
+            Stream<RawExpressionCallTO> streamRawCallTOs,
+            Map<DataType, Stream<ExperimentExpressionTO>> experimentExprTOsByDataType,
+            Map<Set<ConditionDAO.Attribute>, Map<Integer, Condition>> condMapByComb,
+            Map<Set<ConditionDAO.Attribute>, ConditionRelationTable> relationTableByComb) {
+        log.entry(streamRawCallTOs, experimentExprTOsByDataType, condMapByComb, relationTableByComb);
         
         final CallSpliterator<Map<RawExpressionCallTO, Map<DataType, Set<ExperimentExpressionTO>>>>
             spliterator = new CallSpliterator<>(streamRawCallTOs, experimentExprTOsByDataType);
@@ -1808,121 +2159,301 @@ public class InsertPropagatedCalls extends CallService {
         
         log.trace(COMPUTE_MARKER, "Done creating Splitereator with DAO queries.");
         
-        Stream<Map<Set<ConditionDAO.Attribute>, Set<PipelineCall>>> reconciledCalls =
+        Stream<Map<Set<ConditionDAO.Attribute>, List<CompactPipelineCall>>> reconciledCalls =
         callTOsByGeneStream.map(geneData -> condParamCombinations.stream()
-            // First we convert Map<RawExpressionCallTO, Map<DataType, Set<ExperimentExpressionTO>>
-            // into Map<PipelineCall, Set<PipelineCallData>> having source RawExpressionCallTO,
-            // for each requested condition parameter combination. Since the raw data to use
-            // are exactly the same whatever the condition parameter combination,
-            // and that only the grouping of the conditions according to different condition parameters
-            // is different, we iterate immediately all requested combinations,
+            // Since the raw data to use are exactly the same whatever the condition parameter
+            // combination, and that only the grouping of the conditions according to different
+            // condition parameters is different, we iterate immediately all requested combinations,
             // so that we need less queries to the database.
-            .map(condParams ->
+            .map(condParams -> {
+                List<PropagatedCall> calls = this.propagateAndReconcileBySweep(geneData, condParams,
+                        condMapByComb.get(condParams), relationTableByComb.get(condParams));
+                if (calls.isEmpty()) {
+                    return new AbstractMap.SimpleEntry<>(condParams, new ArrayList<CompactPipelineCall>());
+                }
+                int geneId = geneData.keySet().iterator().next().getBgeeGeneId();
+                if (VALIDATE_SWEEP_PROPAGATION) {
+                    this.validateSweepPropagation(
+                            calls.stream()
+                                .map(c -> new PipelineCall(geneId, c.getCondition(),
+                                    c.getDataPropagation(), c.getCallData(), c.getParentSourceCallTOs(),
+                                    c.getSelfSourceCallTOs(), c.getDescendantSourceCallTOs()))
+                                .collect(Collectors.toSet()),
+                            this.propagateAndReconcileByPairs(geneData, condParams,
+                                condMapByComb.get(condParams), relationTableByComb.get(condParams)));
+                }
+                return new AbstractMap.SimpleEntry<>(condParams, this.compactCalls(geneId, calls));
+            }).collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue()))
+        );
 
-                //This whole code was using Stream mapping when there was no iteration
-                //over several combinations of condition parameters. We could still use Streams, 
-                //but then 'condParams' would not be accessible from the different mapping steps.
-                //Rather than rewriting the mappings, use an Optional, so that we can use existing code.
-                Optional.of(geneData.entrySet().stream()
-                    .collect(Collectors.toMap(
-                        e -> mapRawCallTOToPipelineCall(e.getKey(),
-                                condMapByComb.get(condParams).get(e.getKey().getConditionId()),
-                                condParams),
-                        e -> mapExpExprTOsToPipelineCallData(e.getValue(), condParams)))
-                )
+        return log.exit(reconciledCalls);
+    }
+
+    /**
+     * Propagate and reconcile the calls of one gene for one combination of condition parameters,
+     * using a {@link ConditionSweepPropagator}: the data of each condition are accumulated
+     * in a single sweep over the conditions sorted in topological order, rather than
+     * by creating a {@code PipelineCall} for each pair of source and propagated conditions.
+     *
+     * @param geneData          A {@code Map} where keys are {@code RawExpressionCallTO}s
+     *                          for one gene, the associated value being a {@code Map}
+     *                          where keys are {@code DataType}s, the associated value being
+     *                          the {@code ExperimentExpressionTO}s supporting the call.
+     * @param condParams        A {@code Set} of {@code ConditionDAO.Attribute}s that is
+     *                          the combination of condition parameters to consider.
+     * @param condMap           A {@code Map} where keys are {@code Integer}s that are
+     *                          the IDs of raw conditions, the associated value being
+     *                          the {@code Condition} they are mapped to for {@code condParams}.
+     * @param relationTable     The {@code ConditionRelationTable} containing the {@code Condition}s
+     *                          and their relations for {@code condParams}.
+     * @return                  A {@code List} of {@code PropagatedCall}s that are the propagated
+     *                          and reconciled calls of the gene.
+     */
+    List<PropagatedCall> propagateAndReconcileBySweep(
+            Map<RawExpressionCallTO, Map<DataType, Set<ExperimentExpressionTO>>> geneData,
+            Set<ConditionDAO.Attribute> condParams, Map<Integer, Condition> condMap,
+            ConditionRelationTable relationTable) {
+        log.entry(geneData, condParams, condMap, relationTable);
+        log.trace(COMPUTE_MARKER, "Starting sweep propagation of {} raw calls.", geneData.size());
+        this.checkErrorOccurred();
+
+        if (geneData.isEmpty()) {
+            return log.exit(new ArrayList<>());
+        }
+        Map<Condition, Set<RawExpressionCallTO>> selfCallTOs = new HashMap<>();
+        Map<Condition, Map<DataType, Set<ExperimentExpressionTO>>> selfData = new HashMap<>();
+        for (Entry<RawExpressionCallTO, Map<DataType, Set<ExperimentExpressionTO>>> e:
+                geneData.entrySet()) {
+            Condition cond = condMap.get(e.getKey().getConditionId());
+            if (cond == null) {
+                throw log.throwing(new IllegalArgumentException("No Condition provided for CallTO: "
+                        + e.getKey()));
+            }
+            selfCallTOs.computeIfAbsent(cond, k -> new HashSet<>()).add(e.getKey());
+            Map<DataType, Set<ExperimentExpressionTO>> condData = selfData.computeIfAbsent(cond,
+                    k -> new HashMap<>());
+            for (Entry<DataType, Set<ExperimentExpressionTO>> dataTypeEntry: e.getValue().entrySet()) {
+                condData.computeIfAbsent(dataTypeEntry.getKey(), k -> new HashSet<>())
+                        .addAll(dataTypeEntry.getValue());
+            }
+        }
 
-                //Now, we group all PipelineCalls and PipelineCallDatas mapped to a same Condition
-                //for the requested condition parameter combination.
-                //g: Map<PipelineCall, Set<PipelineCallData>>
-                .map(g -> g.entrySet().stream().collect(Collectors
-                    //we group the entries Entry<PipelineCall, Set<PipelineCallData>> by condition
-                    //and merge them.
-                    .toMap(
-                        e -> e.getKey().getCondition(),
-                        e -> e,
-                        (e1, e2) -> {
-                            PipelineCall call1 = e1.getKey();
-                            PipelineCall call2 = e2.getKey();
-                            assert call1.getParentSourceCallTOs() == null ||
-                                    call1.getParentSourceCallTOs().isEmpty();
-                            assert call1.getDescendantSourceCallTOs() == null ||
-                                    call1.getDescendantSourceCallTOs().isEmpty();
-                            assert call1.getSelfSourceCallTOs() != null &&
-                                    !call1.getSelfSourceCallTOs().isEmpty();
-                            assert call2.getParentSourceCallTOs() == null ||
-                                    call2.getParentSourceCallTOs().isEmpty();
-                            assert call2.getDescendantSourceCallTOs() == null ||
-                                    call2.getDescendantSourceCallTOs().isEmpty();
-                            assert call2.getSelfSourceCallTOs() != null &&
-                                    !call2.getSelfSourceCallTOs().isEmpty();
-
-                            assert Integer.compare(call1.getBgeeGeneId(), call2.getBgeeGeneId()) == 0;
-                            assert call1.getCondition().equals(call2.getCondition());
-                            assert call1.getDataPropagation().equals(call2.getDataPropagation());
-                            assert call1.getDataPropagation().equals(getSelfDataProp(condParams));
-
-                            Set<RawExpressionCallTO> combinedTOs =
-                                    new HashSet<>(call1.getSelfSourceCallTOs());
-                            combinedTOs.addAll(call2.getSelfSourceCallTOs());
-                            PipelineCall combinedCall = new PipelineCall(
-                                    call1.getBgeeGeneId(), call1.getCondition(),
-                                    call1.getDataPropagation(), combinedTOs);
-
-                            Set<PipelineCallData> combinedData = new HashSet<>(e1.getValue());
-                            combinedData.addAll(e2.getValue());
-
-                            return new AbstractMap.SimpleEntry<>(combinedCall, combinedData);
-                        })
-                    )
-                    //Now retrieve the Entries that were reduced, and collect them into a Map.
-                    //The returned value of this map function is of the same type as the input element:
-                    //Map<PipelineCall, Set<PipelineCallData>>
-                    .values().stream().collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue()))
+        ConditionSweepPropagator propagator = this.sweepPropagatorsByComb.computeIfAbsent(condParams,
+                k -> newSweepPropagator(k, cond -> relationTable.getAncestorConditions(cond),
+                        cond -> relationTable.getDescendantConditions(cond)));
+        List<PropagatedCall> calls = propagator.propagate(selfCallTOs, selfData);
+        log.trace(COMPUTE_MARKER, "Done sweep propagation, {} PropagatedCalls produced.", calls.size());
+        return log.exit(calls);
+    }
+
+    /**
+     * Create a {@code ConditionSweepPropagator} merging {@code DataPropagation}s
+     * as the original propagation.
+     *
+     * @param condParams            A {@code Set} of {@code ConditionDAO.Attribute}s that is
+     *                              the combination of condition parameters considered.
+     * @param ancestorProvider      A {@code Function} returning the ancestor {@code Condition}s
+     *                              of a {@code Condition}.
+     * @param descendantProvider    A {@code Function} returning the descendant {@code Condition}s
+     *                              of a {@code Condition} to propagate "absent" calls to.
+     * @return                      A new {@code ConditionSweepPropagator}.
+     */
+    static ConditionSweepPropagator newSweepPropagator(Set<ConditionDAO.Attribute> condParams,
+            Function<Condition, Set<Condition>> ancestorProvider,
+            Function<Condition, Set<Condition>> descendantProvider) {
+        log.entry(condParams, ancestorProvider, descendantProvider);
+        return log.exit(new ConditionSweepPropagator(getSelfDataProp(condParams),
+                (dp1, dp2) -> mergeDataPropagations(dp1, dp2), DATA_PROPAGATION_IDENTITY,
+                ancestorProvider, descendantProvider));
+    }
+
+    /**
+     * Convert the propagated calls of a gene into {@code CompactPipelineCall}s,
+     * to be provided to the insertion thread.
+     *
+     * @param geneId    An {@code int} that is the Bgee ID of the gene.
+     * @param calls     A {@code List} of {@code PropagatedCall}s that are the propagated
+     *                  and reconciled calls of the gene.
+     * @return          A {@code List} of {@code CompactPipelineCall}s corresponding to {@code calls}.
+     * @throws IllegalStateException    If the condition of a call was not indexed.
+     */
+    private List<CompactPipelineCall> compactCalls(int geneId, List<PropagatedCall> calls)
+            throws IllegalStateException {
+        log.entry(geneId, calls);
+        List<CompactPipelineCall> compactCalls = new ArrayList<>(calls.size());
+        for (PropagatedCall call: calls) {
+            Integer condIndex = this.conditionIndexes.get(call.getCondition());
+            if (condIndex == null) {
+                throw log.throwing(new IllegalStateException("Condition not indexed: "
+                        + call.getCondition()));
+            }
+            compactCalls.add(CompactPipelineCall.encode(geneId, condIndex, call.getCallData(),
+                    call.getParentSourceCallTOs(), call.getSelfSourceCallTOs(),
+                    call.getDescendantSourceCallTOs()));
+        }
+        return log.exit(compactCalls);
+    }
+
+    /**
+     * Propagate and reconcile the calls of one gene for one combination of condition parameters,
+     * by propagating each source call to each of its ancestor and descendant conditions,
+     * then by reconciling the calls in each condition. This is the original implementation
+     * of the propagation, used to validate the results of
+     * {@link #propagateAndReconcileBySweep(Map, Set, Map, ConditionRelationTable)}
+     * (see {@link #VALIDATE_SWEEP_PROPAGATION}, and unit tests).
+     *
+     * @param geneData          See {@link #propagateAndReconcileBySweep(Map, Set, Map, ConditionRelationTable)}.
+     * @param condParams        See {@link #propagateAndReconcileBySweep(Map, Set, Map, ConditionRelationTable)}.
+     * @param condMap           See {@link #propagateAndReconcileBySweep(Map, Set, Map, ConditionRelationTable)}.
+     * @param relationTable     See {@link #propagateAndReconcileBySweep(Map, Set, Map, ConditionRelationTable)}.
+     * @return                  A {@code Set} of {@code PipelineCall}s that are the propagated
+     *                          and reconciled calls of the gene.
+     */
+    Set<PipelineCall> propagateAndReconcileByPairs(
+            Map<RawExpressionCallTO, Map<DataType, Set<ExperimentExpressionTO>>> geneData,
+            Set<ConditionDAO.Attribute> condParams, Map<Integer, Condition> condMap,
+            ConditionRelationTable relationTable) {
+        log.entry(geneData, condParams, condMap, relationTable);
+        // First we convert Map<RawExpressionCallTO, Map<DataType, Set<ExperimentExpressionTO>>
+        // into Map<PipelineCall, Set<PipelineCallData>> having source RawExpressionCallTO.
+        //This whole code was using Stream mapping when there was no iteration
+        //over several combinations of condition parameters. We could still use Streams, 
+        //but then 'condParams' would not be accessible from the different mapping steps.
+        //Rather than rewriting the mappings, use an Optional, so that we can use existing code.
+        return log.exit(
+            Optional.of(geneData.entrySet().stream()
+                .collect(Collectors.toMap(
+                    e -> mapRawCallTOToPipelineCall(e.getKey(),
+                            condMap.get(e.getKey().getConditionId()),
+                            condParams),
+                    e -> mapExpExprTOsToPipelineCallData(e.getValue(), condParams)))
+            )
+
+            //Now, we group all PipelineCalls and PipelineCallDatas mapped to a same Condition
+            //for the requested condition parameter combination.
+            //g: Map<PipelineCall, Set<PipelineCallData>>
+            .map(g -> g.entrySet().stream().collect(Collectors
+                //we group the entries Entry<PipelineCall, Set<PipelineCallData>> by condition
+                //and merge them.
+                .toMap(
+                    e -> e.getKey().getCondition(),
+                    e -> e,
+                    (e1, e2) -> {
+                        PipelineCall call1 = e1.getKey();
+                        PipelineCall call2 = e2.getKey();
+                        assert call1.getParentSourceCallTOs() == null ||
+                                call1.getParentSourceCallTOs().isEmpty();
+                        assert call1.getDescendantSourceCallTOs() == null ||
+                                call1.getDescendantSourceCallTOs().isEmpty();
+                        assert call1.getSelfSourceCallTOs() != null &&
+                                !call1.getSelfSourceCallTOs().isEmpty();
+                        assert call2.getParentSourceCallTOs() == null ||
+                                call2.getParentSourceCallTOs().isEmpty();
+                        assert call2.getDescendantSourceCallTOs() == null ||
+                                call2.getDescendantSourceCallTOs().isEmpty();
+                        assert call2.getSelfSourceCallTOs() != null &&
+                                !call2.getSelfSourceCallTOs().isEmpty();
+
+                        assert Integer.compare(call1.getBgeeGeneId(), call2.getBgeeGeneId()) == 0;
+                        assert call1.getCondition().equals(call2.getCondition());
+                        assert call1.getDataPropagation().equals(call2.getDataPropagation());
+                        assert call1.getDataPropagation().equals(getSelfDataProp(condParams));
+
+                        Set<RawExpressionCallTO> combinedTOs =
+                                new HashSet<>(call1.getSelfSourceCallTOs());
+                        combinedTOs.addAll(call2.getSelfSourceCallTOs());
+                        PipelineCall combinedCall = new PipelineCall(
+                                call1.getBgeeGeneId(), call1.getCondition(),
+                                call1.getDataPropagation(), combinedTOs);
+
+                        Set<PipelineCallData> combinedData = new HashSet<>(e1.getValue());
+                        combinedData.addAll(e2.getValue());
+
+                        return new AbstractMap.SimpleEntry<>(combinedCall, combinedData);
+                    })
                 )
+                //Now retrieve the Entries that were reduced, and collect them into a Map.
+                //The returned value of this map function is of the same type as the input element:
+                //Map<PipelineCall, Set<PipelineCallData>>
+                .values().stream().collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue()))
+            )
+            
+            //then we propagate all PipelineCalls of the Map (associated to one gene only), 
+            //and retrieve the original and the propagated calls.
+            //g: Map<PipelineCall, Set<PipelineCallData>>
+            .map(g -> {
+                //propagatePipelineCalls returns only the new propagated calls, 
+                //we need to add the original calls to the Map for following steps
+                Map<PipelineCall, Set<PipelineCallData>> calls = 
+                        this.propagatePipelineCalls(g, relationTable);
+                calls.putAll(g);
+                return calls;
+            })
+            
+            //then we reconcile calls for a same gene-condition
+            //g: Map<PipelineCall, Set<PipelineCallData>>
+            .map(g -> {
+                log.trace(COMPUTE_MARKER, "Starting to reconcile {} PipelineCalls.", g.size());
+                this.checkErrorOccurred();
+                //group calls per Condition (they all are about the same gene already)
+                final Map<Condition, Set<PipelineCall>> callGroup = g.entrySet().stream()
+                        .collect(Collectors.groupingBy(e -> e.getKey().getCondition(),
+                                Collectors.mapping(e2 -> e2.getKey(), Collectors.toSet())));
+                //group CallData per Condition (they all are about the same gene already)
+                final Map<Condition, Set<PipelineCallData>> callDataGroup = g.entrySet().stream()
+                        .collect(Collectors.groupingBy(e -> e.getKey().getCondition(), 
+                                Collectors.mapping(e2 -> e2.getValue(), Collectors.toSet()))) // produce Map<Condition, Set<Set<PipelineCallData>>
+                        .entrySet().stream().collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue()
+                                .stream().flatMap(ps -> ps.stream()).collect(Collectors.toSet()))); // produce Map<Condition, Set<PipelineCallData>>
                 
-                //then we propagate all PipelineCalls of the Map (associated to one gene only), 
-                //and retrieve the original and the propagated calls.
-                //g: Map<PipelineCall, Set<PipelineCallData>>
-                .map(g -> {
-                    //propagatePipelineCalls returns only the new propagated calls, 
-                    //we need to add the original calls to the Map for following steps
-                    Map<PipelineCall, Set<PipelineCallData>> calls = 
-                            this.propagatePipelineCalls(g, conditionGraphByComb.get(condParams));
-                    calls.putAll(g);
-                    return calls;
-                })
-                
-                //then we reconcile calls for a same gene-condition
-                //g: Map<PipelineCall, Set<PipelineCallData>>
-                .map(g -> {
-                    log.trace(COMPUTE_MARKER, "Starting to reconcile {} PipelineCalls.", g.size());
-                    this.checkErrorOccurred();
-                    //group calls per Condition (they all are about the same gene already)
-                    final Map<Condition, Set<PipelineCall>> callGroup = g.entrySet().stream()
-                            .collect(Collectors.groupingBy(e -> e.getKey().getCondition(),
-                                    Collectors.mapping(e2 -> e2.getKey(), Collectors.toSet())));
-                    //group CallData per Condition (they all are about the same gene already)
-                    final Map<Condition, Set<PipelineCallData>> callDataGroup = g.entrySet().stream()
-                            .collect(Collectors.groupingBy(e -> e.getKey().getCondition(), 
-                                    Collectors.mapping(e2 -> e2.getValue(), Collectors.toSet()))) // produce Map<Condition, Set<Set<PipelineCallData>>
-                            .entrySet().stream().collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue()
-                                    .stream().flatMap(ps -> ps.stream()).collect(Collectors.toSet()))); // produce Map<Condition, Set<PipelineCallData>>
-                    
-                    // Reconcile calls and return all of them in one Set
-                    Set<PipelineCall> s = callGroup.keySet().stream()
-                            .map(c -> reconcileGeneCalls(callGroup.get(c), callDataGroup.get(c)))
-                            //reconcileGeneCalls return null if there was no valid data to propagate
-                            //(e.g., only "present" calls in parent conditions)
-                            .filter(c -> c != null)
-                            .collect(Collectors.toSet());
-                    log.trace(COMPUTE_MARKER, "Done reconciliation, {} PipelineCalls produced.", s.size());
-                    return new AbstractMap.SimpleEntry<>(condParams, s);
-                })
-                .get()
-            ).collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue()))
-        );
+                // Reconcile calls and return all of them in one Set
+                Set<PipelineCall> s = callGroup.keySet().stream()
+                        .map(c -> reconcileGeneCalls(callGroup.get(c), callDataGroup.get(c)))
+                        //reconcileGeneCalls return null if there was no valid data to propagate
+                        //(e.g., only "present" calls in parent conditions)
+                        .filter(c -> c != null)
+                        .collect(Collectors.toSet());
+                log.trace(COMPUTE_MARKER, "Done reconciliation, {} PipelineCalls produced.", s.size());
+                return s;
+            })
+            .get());
+    }
 
-        return log.exit(reconciledCalls);
+    /**
+     * Check that the calls produced by {@link #propagateAndReconcileBySweep(Map, Set, Map,
+     * ConditionRelationTable)} are identical to those produced by
+     * {@link #propagateAndReconcileByPairs(Map, Set, Map, ConditionRelationTable)}.
+     *
+     * @param sweepCalls    A {@code Set} of {@code PipelineCall}s produced by the sweep propagation.
+     * @param pairCalls     A {@code Set} of {@code PipelineCall}s produced by the original propagation.
+     * @throws IllegalStateException    If the calls are not identical.
+     */
+    private void validateSweepPropagation(Set<PipelineCall> sweepCalls, Set<PipelineCall> pairCalls)
+            throws IllegalStateException {
+        log.entry(sweepCalls, pairCalls);
+        Map<Condition, PipelineCall> sweepCallsByCond = sweepCalls.stream()
+                .collect(Collectors.toMap(c -> c.getCondition(), c -> c));
+        Map<Condition, PipelineCall> pairCallsByCond = pairCalls.stream()
+                .collect(Collectors.toMap(c -> c.getCondition(), c -> c));
+        if (!sweepCallsByCond.keySet().equals(pairCallsByCond.keySet())) {
+            throw log.throwing(new IllegalStateException(
+                    "Sweep propagation produced calls in different conditions, sweep: "
+                    + sweepCallsByCond.keySet() + " - original: " + pairCallsByCond.keySet()));
+        }
+        for (Entry<Condition, PipelineCall> e: sweepCallsByCond.entrySet()) {
+            PipelineCall sweepCall = e.getValue();
+            PipelineCall pairCall = pairCallsByCond.get(e.getKey());
+            if (!sweepCall.getDataPropagation().equals(pairCall.getDataPropagation()) ||
+                    !new HashSet<>(sweepCall.getCallData()).equals(new HashSet<>(pairCall.getCallData())) ||
+                    !sweepCall.getParentSourceCallTOs().equals(pairCall.getParentSourceCallTOs()) ||
+                    !sweepCall.getSelfSourceCallTOs().equals(pairCall.getSelfSourceCallTOs()) ||
+                    !sweepCall.getDescendantSourceCallTOs().equals(pairCall.getDescendantSourceCallTOs())) {
+                throw log.throwing(new IllegalStateException(
+                        "Sweep propagation produced a different call, sweep: " + sweepCall
+                        + " - original: " + pairCall));
+            }
+        }
+        log.exit();
     }
     
     //*************************************************************************
@@ -1946,11 +2477,42 @@ public class InsertPropagatedCalls extends CallService {
             .getExpressionCallsOrderedByGeneIdAndExprId(geneIds)
             //retrieve the Stream resulting from the query. Note that the query is not executed 
             //as long as the Stream is not consumed (lazy-loading).
-            .stream();
+            .stream()
+            .peek(to -> RAW_CALLS_READ.increment());
 
         return log.exit(expr);
     }
 
+    /**
+     * Retrieve in memory the raw calls and experiment expressions of a group of genes,
+     * to be used by a {@link GeneGroupPrefetcher}. The results of the queries are entirely
+     * consumed, and the query resources released, before returning.
+     *
+     * @param daoManager    The {@code DAOManager} to use to query the data source.
+     * @param geneIds       A {@code Set} of {@code Integer}s that are the Bgee IDs of the genes 
+     *                      for which to retrieve the data.
+     * @return              The {@code GeneGroupData} holding the retrieved data.
+     */
+    private GeneGroupData loadGeneGroupData(DAOManager daoManager, Set<Integer> geneIds) {
+        log.entry(daoManager, geneIds);
+        this.checkErrorOccurred();
+
+        List<RawExpressionCallTO> rawCallTOs;
+        try (Stream<RawExpressionCallTO> stream = this.performsRawExpressionCallTOQuery(geneIds,
+                daoManager.getRawExpressionCallDAO())) {
+            rawCallTOs = stream.collect(Collectors.toList());
+        }
+        Map<DataType, List<ExperimentExpressionTO>> expExprTOsByDataType = new HashMap<>();
+        for (Entry<DataType, Stream<ExperimentExpressionTO>> e: this.performsExperimentExpressionQuery(
+                geneIds, daoManager.getExperimentExpressionDAO()).entrySet()) {
+            this.checkErrorOccurred();
+            try (Stream<ExperimentExpressionTO> stream = e.getValue()) {
+                expExprTOsByDataType.put(e.getKey(), stream.collect(Collectors.toList()));
+            }
+        }
+        return log.exit(new GeneGroupData(geneIds, rawCallTOs, expExprTOsByDataType));
+    }
+
     /**
      * Perform queries to retrieve experiment expressions without the post-processing of
      * the results returned by {@code DAO}s.
@@ -1986,6 +2548,9 @@ public class InsertPropagatedCalls extends CallService {
             }
         }
 
+        //count rows read, queries are executed lazily when the Streams are consumed
+        map.replaceAll((dt, stream) -> stream.peek(to -> EXP_EXPRS_READ.increment()));
+
         return log.exit(map);
     }
     
@@ -1995,30 +2560,30 @@ public class InsertPropagatedCalls extends CallService {
     
     /**
      * Propagate {@code ExpressionCall}s to descendant and ancestor conditions 
-     * from {@code conditionGraph}.
+     * from {@code relationTable}.
      * <p>
      * Returned {@code ExpressionCall}s have {@code DataPropagation}, {@code ExpressionSummary}, 
      * and {@code DataQuality} equal to {@code null}. 
      *  
      * @param calls             A {@code Collection} of {@code ExpressionCall}s to be propagated.
-     * @param conditionGraph    A {@code ConditionGraph} containing at least anat. entity
-     *                          {@code Ontology} to use for the propagation.
+     * @param relationTable     A {@code ConditionRelationTable} containing the relations
+     *                          between conditions to use for the propagation.
      * @return                  A {@code Map} where keys are {@code PipelineCall}, the associated
      *                          values are {@code Set}s of {@code PipelineCallData}. 
-     * @throws IllegalArgumentException If {@code calls} or {@code conditionGraph} are {@code null},
+     * @throws IllegalArgumentException If {@code calls} or {@code relationTable} are {@code null},
      *                                  empty.
      */
     private Map<PipelineCall, Set<PipelineCallData>> propagatePipelineCalls(
-            Map<PipelineCall, Set<PipelineCallData>> data, ConditionGraph conditionGraph)
+            Map<PipelineCall, Set<PipelineCallData>> data, ConditionRelationTable relationTable)
                 throws IllegalArgumentException {
-        log.entry(data, conditionGraph);
+        log.entry(data, relationTable);
         log.trace(COMPUTE_MARKER, "Starting to propagate {} PipelineCalls.", data.size());
 
         Map<PipelineCall, Set<PipelineCallData>> propagatedData = new HashMap<>();
         this.checkErrorOccurred();
 
         assert data != null && !data.isEmpty();
-        assert conditionGraph != null;
+        assert relationTable != null;
         
         Set<PipelineCall> calls = data.keySet();
     
@@ -2027,8 +2592,8 @@ public class InsertPropagatedCalls extends CallService {
                 c.getDataPropagation().isIncludingObservedData()) &&
                 c.getDataPropagation().getAllPropagationStates().size() == 1 &&
                 c.getDataPropagation().getAllPropagationStates().contains(PropagationState.SELF)); 
-        // Check conditionGraph contains all conditions of calls
-        assert conditionGraph.getConditions().containsAll(
+        // Check relationTable contains all conditions of calls
+        assert relationTable.getConditions().containsAll(
                 calls.stream().map(c -> c.getCondition()).collect(Collectors.toSet()));
 
         //*****************************
@@ -2052,9 +2617,8 @@ public class InsertPropagatedCalls extends CallService {
             // Retrieve conditions
             log.trace(COMPUTE_MARKER, "Starting to retrieve ancestral conditions for {}.", 
                     curCall.getCondition());
-            Set<Condition> ancestorConditions = this.condToAncestors.computeIfAbsent(
-                    curCall.getCondition(), 
-                    k -> conditionGraph.getAncestorConditions(k));
+            Set<Condition> ancestorConditions = relationTable.getAncestorConditions(
+                    curCall.getCondition());
             log.trace(COMPUTE_MARKER, "Done retrieving ancestral conditions for {}: {}.", 
                     curCall.getCondition(), ancestorConditions.size());
             log.trace("Ancestor conditions: {}", ancestorConditions);
@@ -2067,10 +2631,8 @@ public class InsertPropagatedCalls extends CallService {
 
             log.trace(COMPUTE_MARKER, "Starting to retrieve descendant conditions for {}.", 
                     curCall.getCondition());
-            Set<Condition> descendantConditions = this.condToDescendants.computeIfAbsent(
-                    curCall.getCondition(), 
-                    k -> conditionGraph.getDescendantConditions(
-                            k, false, false, NB_SUBLEVELS_MAX, null));
+            Set<Condition> descendantConditions = relationTable.getDescendantConditions(
+                    curCall.getCondition());
             log.trace(COMPUTE_MARKER, "Done retrieving descendant conditions for {}: {}.", 
                     curCall.getCondition(), descendantConditions.size());
             log.trace("Descendant conditions: {}", descendantConditions);
@@ -0,0 +1,177 @@
+package org.bgee.pipeline.expression;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.api.exception.DAOException;
+import org.bgee.model.dao.mysql.connector.BgeePreparedStatement;
+import org.bgee.model.dao.mysql.connector.MySQLDAOManager;
+import org.bgee.pipeline.BgeeDBUtils;
+import org.bgee.pipeline.CommandRunner;
+import org.bgee.pipeline.MySQLDAOUser;
+import org.bgee.pipeline.expression.PropagatedCallFileWriter.Table;
+
+/**
+ * Bulk-loads into the database the propagated expression calls written to files
+ * by {@link InsertPropagatedCalls} in compute-to-file mode (see
+ * {@link InsertPropagatedCalls#main(String[])} and {@link PropagatedCallFileWriter}),
+ * using {@code LOAD DATA LOCAL INFILE} statements.
+ * <p>
+ * For each species, the tables {@code globalCond}, {@code globalCondToCond}
+ * and {@code globalExpression} are loaded in this order, in a single transaction,
+ * with unique and foreign key checks disabled for the session. Non-unique indexes
+ * are disabled before the loading and rebuilt after (for MyISAM tables only,
+ * InnoDB ignores this instruction).
+ * The JDBC connection must allow local infile loading (for instance, by using
+ * the parameter {@code allowLoadLocalInfile=true} for MySQL Connector/J).
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class LoadPropagatedCalls extends MySQLDAOUser {
+    private final static Logger log = LogManager.getLogger(LoadPropagatedCalls.class.getName());
+
+    /**
+     * Main method to load propagated calls into the Bgee database. Parameters that must
+     * be provided in order in {@code args} are:
+     * <ol>
+     * <li> the path to the directory containing the files generated by
+     * {@link InsertPropagatedCalls} in compute-to-file mode.
+     * <li> a list of NCBI species IDs (for instance, {@code 9606} for human) to load
+     * the propagated calls for, separated by the {@code String} {@link CommandRunner#LIST_SEPARATOR}.
+     * If empty (see {@link CommandRunner#EMPTY_LIST}), all species in database will be used.
+     * </ol>
+     *
+     * @param args          An {@code Array} of {@code String}s containing the requested parameters.
+     * @throws DAOException If an error occurred while loading the data into the Bgee database.
+     */
+    public static void main(String[] args) throws DAOException {
+        log.entry((Object[]) args);
+
+        int expectedArgLength = 2;
+        if (args.length != expectedArgLength) {
+            throw log.throwing(new IllegalArgumentException("Incorrect number of arguments " +
+                "provided, expected " + expectedArgLength + " arguments, " + args.length +
+                " provided."));
+        }
+
+        LoadPropagatedCalls loader = new LoadPropagatedCalls();
+        loader.load(Paths.get(args[0]), CommandRunner.parseListArgumentAsInt(args[1]));
+
+        log.exit();
+    }
+
+    /**
+     * Default constructor using the default {@code MySQLDAOManager}.
+     */
+    public LoadPropagatedCalls() {
+        this(null);
+    }
+    /**
+     * @param manager   The {@code MySQLDAOManager} to use.
+     */
+    public LoadPropagatedCalls(MySQLDAOManager manager) {
+        super(manager);
+    }
+
+    /**
+     * Load the propagated calls of the requested species. The files of all species
+     * are checked to exist before starting loading.
+     *
+     * @param directory     A {@code Path} to the directory containing the files generated by
+     *                      {@link InsertPropagatedCalls} in compute-to-file mode.
+     * @param speciesIds    A {@code List} of {@code Integer}s that are the IDs of the species
+     *                      to load data for. If {@code null} or empty, all species in database
+     *                      are considered.
+     * @throws IllegalArgumentException If a file is missing.
+     * @throws DAOException             If an error occurred while loading the data.
+     */
+    public void load(Path directory, List<Integer> speciesIds) throws IllegalArgumentException,
+            DAOException {
+        log.entry(directory, speciesIds);
+
+        List<Integer> speciesIdsToUse = BgeeDBUtils.checkAndGetSpeciesIds(speciesIds,
+                this.getSpeciesDAO());
+        List<Path> missingFiles = speciesIdsToUse.stream()
+                .flatMap(speciesId -> Arrays.stream(Table.values())
+                        .map(table -> directory.resolve(table.getFileName(speciesId))))
+                .filter(file -> !Files.isReadable(file))
+                .collect(Collectors.toList());
+        if (!missingFiles.isEmpty()) {
+            throw log.throwing(new IllegalArgumentException("Missing files: " + missingFiles));
+        }
+
+        try {
+            this.executeUpdate("SET unique_checks = 0");
+            this.executeUpdate("SET foreign_key_checks = 0");
+            for (int speciesId: speciesIdsToUse) {
+                this.loadOneSpecies(directory, speciesId);
+            }
+        } finally {
+            this.executeUpdate("SET foreign_key_checks = 1");
+            this.executeUpdate("SET unique_checks = 1");
+            this.getManager().releaseResources();
+        }
+        log.exit();
+    }
+
+    private void loadOneSpecies(Path directory, int speciesId) throws DAOException {
+        log.entry(directory, speciesId);
+        log.info("Start loading propagated calls for species {}...", speciesId);
+
+        //ALTER TABLE statements perform an implicit commit, so they must be executed
+        //outside of the transaction
+        for (Table table: Table.values()) {
+            this.executeUpdate("ALTER TABLE " + table.getTableName() + " DISABLE KEYS");
+        }
+        try {
+            this.getManager().getConnection().startTransaction();
+            for (Table table: Table.values()) {
+                Path file = directory.resolve(table.getFileName(speciesId)).toAbsolutePath();
+                log.info("Loading file {} into table {}...", file, table.getTableName());
+                int rowCount = this.executeUpdate("LOAD DATA LOCAL INFILE '"
+                        + file.toString().replace("\\", "\\\\").replace("'", "\\'") + "' "
+                        + "INTO TABLE " + table.getTableName() + " CHARACTER SET utf8 "
+                        + "FIELDS TERMINATED BY '\\t' LINES TERMINATED BY '\\n' IGNORE 1 LINES "
+                        + table.getColumns().stream().collect(Collectors.joining(", ", "(", ")")));
+                log.info("{} rows loaded into table {}", rowCount, table.getTableName());
+            }
+            this.getManager().getConnection().commit();
+        } catch (SQLException | RuntimeException e) {
+            try {
+                if (this.getManager().getConnection().isOngoingTransaction()) {
+                    this.getManager().getConnection().rollback();
+                }
+            } catch (SQLException e2) {
+                log.catching(e2);
+            }
+            if (e instanceof RuntimeException) {
+                throw log.throwing((RuntimeException) e);
+            }
+            throw log.throwing(new DAOException(e));
+        } finally {
+            for (Table table: Table.values()) {
+                this.executeUpdate("ALTER TABLE " + table.getTableName() + " ENABLE KEYS");
+            }
+        }
+
+        log.info("Done loading propagated calls for species {}.", speciesId);
+        log.exit();
+    }
+
+    private int executeUpdate(String sql) throws DAOException {
+        log.entry(sql);
+        try (BgeePreparedStatement stmt = this.getManager().getConnection().prepareStatement(sql)) {
+            return log.exit(stmt.executeUpdate());
+        } catch (SQLException e) {
+            throw log.throwing(new DAOException(e));
+        }
+    }
+}
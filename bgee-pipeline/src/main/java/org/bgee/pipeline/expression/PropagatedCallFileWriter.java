@@ -0,0 +1,368 @@
+package org.bgee.pipeline.expression;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO.ConditionTO;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO.GlobalConditionToRawConditionTO;
+import org.bgee.model.dao.api.expressiondata.DAODataType;
+import org.bgee.model.dao.api.expressiondata.DAOExperimentCount;
+import org.bgee.model.dao.api.expressiondata.DAOPropagationState;
+import org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO.GlobalExpressionCallDataTO;
+import org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO.GlobalExpressionCallTO;
+import org.supercsv.io.CsvListWriter;
+import org.supercsv.io.ICsvListWriter;
+import org.supercsv.prefs.CsvPreference;
+
+/**
+ * Writes the propagated global conditions, relations between global conditions
+ * and raw conditions, and global expression calls of a species to TSV files,
+ * rather than inserting them into the database, to be bulk-loaded later
+ * by {@link LoadPropagatedCalls}. This allows to run the propagation without being slowed down
+ * by the insertions, on a different machine than the database server, or to rerun it
+ * without modifying the database.
+ * <p>
+ * One file is written per table and per species (see {@link Table#getFileName(int)}),
+ * with a header line containing the column names, and {@code \N} for {@code NULL} values,
+ * as expected by the MySQL statement {@code LOAD DATA INFILE}. The rows of each batch
+ * are sorted by ID: since IDs are generated in increasing order by the insertion thread
+ * of {@link InsertPropagatedCalls}, the rows of the tables {@code globalCond}
+ * and {@code globalExpression} are written in primary key order, which allows
+ * a fast loading into InnoDB tables.
+ * <p>
+ * This class is not thread-safe, it is meant to be used by the insertion thread
+ * of {@link InsertPropagatedCalls} only.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+final class PropagatedCallFileWriter implements AutoCloseable {
+    private final static Logger log = LogManager.getLogger(PropagatedCallFileWriter.class.getName());
+
+    /**
+     * A {@code String} that is the value written for {@code NULL} values,
+     * as expected by {@code LOAD DATA INFILE}.
+     */
+    final static String NULL_VALUE = "\\N";
+
+    /**
+     * The tables filled by the propagation of expression calls, in the order they must be loaded.
+     */
+    enum Table {
+        GLOBAL_COND("globalCond", Arrays.asList("globalConditionId", "speciesId",
+                "anatEntityId", "stageId")),
+        GLOBAL_COND_TO_COND("globalCondToCond", Arrays.asList("conditionId", "globalConditionId",
+                "conditionRelationOrigin")),
+        GLOBAL_EXPRESSION("globalExpression", getGlobalExpressionColumns());
+
+        private final String tableName;
+        private final List<String> columns;
+
+        private Table(String tableName, List<String> columns) {
+            this.tableName = tableName;
+            this.columns = Collections.unmodifiableList(columns);
+        }
+        /**
+         * @return  A {@code String} that is the name of the table in database.
+         */
+        String getTableName() {
+            return this.tableName;
+        }
+        /**
+         * @return  An unmodifiable {@code List} of {@code String}s that are the names
+         *          of the columns written, in order.
+         */
+        List<String> getColumns() {
+            return this.columns;
+        }
+        /**
+         * @param speciesId An {@code int} that is the ID of a species.
+         * @return          A {@code String} that is the name of the file storing the data
+         *                  of this table for the species.
+         */
+        String getFileName(int speciesId) {
+            return this.tableName + "_" + speciesId + ".tsv";
+        }
+    }
+
+    /**
+     * The experiment counts stored in the table {@code globalExpression}, in column order.
+     */
+    private enum CountColumn {
+        PRESENT_HIGH_SELF(DAOExperimentCount.CallType.PRESENT, DAOExperimentCount.DataQuality.HIGH,
+                DAOPropagationState.SELF, "PresentHighSelfCount", true),
+        PRESENT_LOW_SELF(DAOExperimentCount.CallType.PRESENT, DAOExperimentCount.DataQuality.LOW,
+                DAOPropagationState.SELF, "PresentLowSelfCount", true),
+        ABSENT_HIGH_SELF(DAOExperimentCount.CallType.ABSENT, DAOExperimentCount.DataQuality.HIGH,
+                DAOPropagationState.SELF, "AbsentHighSelfCount", false),
+        ABSENT_LOW_SELF(DAOExperimentCount.CallType.ABSENT, DAOExperimentCount.DataQuality.LOW,
+                DAOPropagationState.SELF, "AbsentLowSelfCount", false),
+        PRESENT_HIGH_DESCENDANT(DAOExperimentCount.CallType.PRESENT, DAOExperimentCount.DataQuality.HIGH,
+                DAOPropagationState.DESCENDANT, "PresentHighDescendantCount", true),
+        PRESENT_LOW_DESCENDANT(DAOExperimentCount.CallType.PRESENT, DAOExperimentCount.DataQuality.LOW,
+                DAOPropagationState.DESCENDANT, "PresentLowDescendantCount", true),
+        ABSENT_HIGH_PARENT(DAOExperimentCount.CallType.ABSENT, DAOExperimentCount.DataQuality.HIGH,
+                DAOPropagationState.ANCESTOR, "AbsentHighParentCount", false),
+        ABSENT_LOW_PARENT(DAOExperimentCount.CallType.ABSENT, DAOExperimentCount.DataQuality.LOW,
+                DAOPropagationState.ANCESTOR, "AbsentLowParentCount", false),
+        PRESENT_HIGH_TOTAL(DAOExperimentCount.CallType.PRESENT, DAOExperimentCount.DataQuality.HIGH,
+                DAOPropagationState.ALL, "PresentHighTotalCount", true),
+        PRESENT_LOW_TOTAL(DAOExperimentCount.CallType.PRESENT, DAOExperimentCount.DataQuality.LOW,
+                DAOPropagationState.ALL, "PresentLowTotalCount", true),
+        ABSENT_HIGH_TOTAL(DAOExperimentCount.CallType.ABSENT, DAOExperimentCount.DataQuality.HIGH,
+                DAOPropagationState.ALL, "AbsentHighTotalCount", false),
+        ABSENT_LOW_TOTAL(DAOExperimentCount.CallType.ABSENT, DAOExperimentCount.DataQuality.LOW,
+                DAOPropagationState.ALL, "AbsentLowTotalCount", false);
+
+        private final DAOExperimentCount.CallType callType;
+        private final DAOExperimentCount.DataQuality dataQuality;
+        private final DAOPropagationState propagationState;
+        private final String columnSuffix;
+        /**
+         * A {@code boolean} defining whether this count is stored for EST data
+         * (there are no "absent" calls from EST data).
+         */
+        private final boolean estColumn;
+
+        private CountColumn(DAOExperimentCount.CallType callType, DAOExperimentCount.DataQuality dataQuality,
+                DAOPropagationState propagationState, String columnSuffix, boolean estColumn) {
+            this.callType = callType;
+            this.dataQuality = dataQuality;
+            this.propagationState = propagationState;
+            this.columnSuffix = columnSuffix;
+            this.estColumn = estColumn;
+        }
+        private boolean isStoredFor(DAODataType dataType) {
+            return this.estColumn || !DAODataType.EST.equals(dataType);
+        }
+    }
+
+    /**
+     * The data types in the order of their columns in the table {@code globalExpression}.
+     */
+    private final static List<DAODataType> DATA_TYPE_COLUMN_ORDER = Collections.unmodifiableList(
+            Arrays.asList(DAODataType.EST, DAODataType.AFFYMETRIX, DAODataType.IN_SITU,
+                    DAODataType.RNA_SEQ));
+
+    private static List<String> getGlobalExpressionColumns() {
+        List<String> columns = new ArrayList<>(Arrays.asList("globalExpressionId", "bgeeGeneId",
+                "globalConditionId"));
+        for (DAODataType dataType: DATA_TYPE_COLUMN_ORDER) {
+            String prefix = dataType.getFieldNamePrefix();
+            columns.add(prefix + "AnatEntityPropagationState");
+            columns.add(prefix + "StagePropagationState");
+            columns.add(prefix + "ConditionObservedData");
+            String countPrefix = prefix + (DAODataType.EST.equals(dataType)? "Lib": "Exp");
+            for (CountColumn countColumn: CountColumn.values()) {
+                if (countColumn.isStoredFor(dataType)) {
+                    columns.add(countPrefix + countColumn.columnSuffix);
+                }
+            }
+            columns.add(countPrefix + "PropagatedCount");
+        }
+        return columns;
+    }
+
+    /**
+     * A {@code Map} where keys are {@code Table}s, the associated value being
+     * the {@code ICsvListWriter} used to write its file.
+     */
+    private final Map<Table, ICsvListWriter> writers;
+
+    /**
+     * @param directory     A {@code Path} to the directory where to write the files.
+     * @param speciesId     An {@code int} that is the ID of the species the data are written for.
+     * @throws UncheckedIOException     If a file could not be created, or already exists
+     *                                  (it would otherwise be loaded twice).
+     */
+    PropagatedCallFileWriter(Path directory, int speciesId) throws UncheckedIOException {
+        log.entry(directory, speciesId);
+        this.writers = new EnumMap<>(Table.class);
+        try {
+            Files.createDirectories(directory);
+            for (Table table: Table.values()) {
+                Path file = directory.resolve(table.getFileName(speciesId));
+                BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE_NEW);
+                ICsvListWriter listWriter = new CsvListWriter(writer, CsvPreference.TAB_PREFERENCE);
+                this.writers.put(table, listWriter);
+                listWriter.writeHeader(table.getColumns().toArray(new String[0]));
+            }
+        } catch (IOException e) {
+            this.closeQuietly();
+            throw log.throwing(new UncheckedIOException(e));
+        }
+        log.exit();
+    }
+
+    /**
+     * @param condTOs   A {@code Collection} of {@code ConditionTO}s that are the global conditions
+     *                  to write.
+     * @throws UncheckedIOException If an error occurred while writing.
+     */
+    void writeGlobalConditions(Collection<ConditionTO> condTOs) throws UncheckedIOException {
+        log.entry(condTOs);
+        List<ConditionTO> sortedTOs = new ArrayList<>(condTOs);
+        sortedTOs.sort(Comparator.comparing(ConditionTO::getId));
+        ICsvListWriter writer = this.writers.get(Table.GLOBAL_COND);
+        try {
+            for (ConditionTO condTO: sortedTOs) {
+                writer.write(condTO.getId(), condTO.getSpeciesId(),
+                        toValue(condTO.getAnatEntityId()), toValue(condTO.getStageId()));
+            }
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException(e));
+        }
+        log.exit();
+    }
+
+    /**
+     * @param relTOs    A {@code Collection} of {@code GlobalConditionToRawConditionTO}s that are
+     *                  the relations between global conditions and raw conditions to write.
+     * @throws UncheckedIOException If an error occurred while writing.
+     */
+    void writeGlobalCondToRawConds(Collection<GlobalConditionToRawConditionTO> relTOs)
+            throws UncheckedIOException {
+        log.entry(relTOs);
+        List<GlobalConditionToRawConditionTO> sortedTOs = new ArrayList<>(relTOs);
+        sortedTOs.sort(Comparator.comparing(GlobalConditionToRawConditionTO::getGlobalConditionId)
+                .thenComparing(GlobalConditionToRawConditionTO::getRawConditionId));
+        ICsvListWriter writer = this.writers.get(Table.GLOBAL_COND_TO_COND);
+        try {
+            for (GlobalConditionToRawConditionTO relTO: sortedTOs) {
+                writer.write(relTO.getRawConditionId(), relTO.getGlobalConditionId(),
+                        relTO.getConditionRelationOrigin().getStringRepresentation());
+            }
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException(e));
+        }
+        log.exit();
+    }
+
+    /**
+     * @param callTOs   A {@code Collection} of {@code GlobalExpressionCallTO}s that are
+     *                  the global expression calls to write.
+     * @throws UncheckedIOException If an error occurred while writing.
+     */
+    void writeGlobalCalls(Collection<GlobalExpressionCallTO> callTOs) throws UncheckedIOException {
+        log.entry(callTOs);
+        List<GlobalExpressionCallTO> sortedTOs = new ArrayList<>(callTOs);
+        sortedTOs.sort(Comparator.comparing(GlobalExpressionCallTO::getId));
+        ICsvListWriter writer = this.writers.get(Table.GLOBAL_EXPRESSION);
+        try {
+            for (GlobalExpressionCallTO callTO: sortedTOs) {
+                writer.write(getGlobalExpressionRow(callTO));
+            }
+        } catch (IOException e) {
+            throw log.throwing(new UncheckedIOException(e));
+        }
+        log.exit();
+    }
+
+    /**
+     * @param callTO    A {@code GlobalExpressionCallTO} to write.
+     * @return          A {@code List} of {@code Object}s that are the values to write
+     *                  for {@code callTO}, in the order of {@link Table#getColumns()}.
+     *                  Data types with no data have {@code NULL} propagation states
+     *                  and counts of 0, as when inserted into the database.
+     */
+    static List<Object> getGlobalExpressionRow(GlobalExpressionCallTO callTO) {
+        log.entry(callTO);
+        List<Object> row = new ArrayList<>(Table.GLOBAL_EXPRESSION.getColumns().size());
+        row.add(callTO.getId());
+        row.add(callTO.getBgeeGeneId());
+        row.add(callTO.getConditionId());
+
+        Map<DAODataType, GlobalExpressionCallDataTO> dataTypeToCallDataTO = new EnumMap<>(DAODataType.class);
+        if (callTO.getCallDataTOs() != null) {
+            for (GlobalExpressionCallDataTO callDataTO: callTO.getCallDataTOs()) {
+                dataTypeToCallDataTO.put(callDataTO.getDataType(), callDataTO);
+            }
+        }
+        for (DAODataType dataType: DATA_TYPE_COLUMN_ORDER) {
+            GlobalExpressionCallDataTO callDataTO = dataTypeToCallDataTO.get(dataType);
+            if (callDataTO == null) {
+                row.add(NULL_VALUE);
+                row.add(NULL_VALUE);
+                row.add(NULL_VALUE);
+            } else {
+                row.add(toValue(callDataTO.getDataPropagation().get(ConditionDAO.Attribute.ANAT_ENTITY_ID)));
+                row.add(toValue(callDataTO.getDataPropagation().get(ConditionDAO.Attribute.STAGE_ID)));
+                row.add(callDataTO.isConditionObservedData() == null? NULL_VALUE:
+                    callDataTO.isConditionObservedData()? 1: 0);
+            }
+            for (CountColumn countColumn: CountColumn.values()) {
+                if (!countColumn.isStoredFor(dataType)) {
+                    continue;
+                }
+                if (callDataTO == null) {
+                    row.add(0);
+                    continue;
+                }
+                //we read the count vector of the TO rather than looking up
+                //the DAOExperimentCounts, as when inserting into the database
+                Integer count = callDataTO.getExperimentCount(countColumn.callType,
+                        countColumn.dataQuality, countColumn.propagationState);
+                if (count == null) {
+                    throw log.throwing(new IllegalArgumentException(
+                            "Missing count " + countColumn + " in " + callDataTO));
+                }
+                row.add(count);
+            }
+            row.add(callDataTO == null? 0: callDataTO.getPropagatedCount());
+        }
+        return log.exit(row);
+    }
+
+    private static Object toValue(String value) {
+        return value == null? NULL_VALUE: value;
+    }
+    private static Object toValue(DAOPropagationState propState) {
+        return propState == null? NULL_VALUE: propState.getStringRepresentation();
+    }
+
+    private void closeQuietly() {
+        for (ICsvListWriter writer: this.writers.values()) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.catching(e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws UncheckedIOException {
+        log.entry();
+        IOException exception = null;
+        for (ICsvListWriter writer: this.writers.values()) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                }
+            }
+        }
+        if (exception != null) {
+            throw log.throwing(new UncheckedIOException(exception));
+        }
+        log.exit();
+    }
+}
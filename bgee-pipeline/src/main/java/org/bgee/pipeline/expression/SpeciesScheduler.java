@@ -0,0 +1,185 @@
+package org.bgee.pipeline.expression;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Schedules the propagation of calls for several species, running several species concurrently
+ * when they are small enough. Each species is associated with a size, estimated
+ * by {@link InsertPropagatedCalls} as its number of genes with data multiplied
+ * by its number of raw conditions, which approximates the memory and computation time
+ * needed to propagate its calls. The species run concurrently are chosen so that
+ * the sum of their sizes does not exceed a budget, and so that their number
+ * does not exceed a maximum. A species whose size exceeds the budget by itself
+ * is started only when no other species is running, and no other species is started
+ * while it is running.
+ * <p>
+ * If there is more than one species allowed at a time, the species are considered
+ * by decreasing size, so that the largest species do not run last, alone; each time
+ * a species completes, the largest remaining species fitting in the remaining budget
+ * is started. Otherwise, the species are run in the order provided.
+ * <p>
+ * If the task of a species fails, no new species are started, and the exception
+ * is rethrown once the running species have completed.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ * @see InsertPropagatedCalls#insert(List, java.util.Collection, java.util.function.Supplier,
+ *      java.util.function.Function, java.nio.file.Path)
+ */
+final class SpeciesScheduler {
+    private final static Logger log = LogManager.getLogger(SpeciesScheduler.class.getName());
+
+    /**
+     * An {@code int} that is the maximum number of species run concurrently.
+     */
+    private final int maxConcurrentSpecies;
+    /**
+     * A {@code long} that is the maximum sum of the sizes of the species run concurrently.
+     */
+    private final long sizeBudget;
+
+    //State of the scheduling, guarded by this object's monitor
+    private int runningCount;
+    private long runningSize;
+    private Throwable error;
+
+    /**
+     * @param maxConcurrentSpecies  An {@code int} that is the maximum number of species
+     *                              run concurrently.
+     * @param sizeBudget            A {@code long} that is the maximum sum of the sizes
+     *                              of the species run concurrently.
+     * @throws IllegalArgumentException If {@code maxConcurrentSpecies} is less than 1,
+     *                                  or {@code sizeBudget} is negative.
+     */
+    SpeciesScheduler(int maxConcurrentSpecies, long sizeBudget) throws IllegalArgumentException {
+        if (maxConcurrentSpecies < 1) {
+            throw log.throwing(new IllegalArgumentException("Invalid maximum number of species: "
+                    + maxConcurrentSpecies));
+        }
+        if (sizeBudget < 0) {
+            throw log.throwing(new IllegalArgumentException("Invalid size budget: " + sizeBudget));
+        }
+        this.maxConcurrentSpecies = maxConcurrentSpecies;
+        this.sizeBudget = sizeBudget;
+    }
+
+    /**
+     * Run {@code task} for each species, and wait for all of them to complete.
+     * This method must not be called concurrently on a same {@code SpeciesScheduler}.
+     *
+     * @param speciesIds        A {@code List} of {@code Integer}s that are the IDs
+     *                          of the species to run {@code task} for.
+     * @param sizeBySpeciesId   A {@code Map} where keys are {@code Integer}s that are
+     *                          species IDs, the associated value being a {@code Long}
+     *                          that is the size of the species. Species missing
+     *                          from this {@code Map} have a size of 0.
+     * @param task              An {@code IntConsumer} run with the ID of each species.
+     * @throws IllegalStateException    If the task of a species threw a checked exception,
+     *                                  or if the current thread was interrupted.
+     *                                  {@code RuntimeException}s and {@code Error}s thrown
+     *                                  by a task are rethrown as is.
+     */
+    synchronized void run(List<Integer> speciesIds, Map<Integer, Long> sizeBySpeciesId,
+            IntConsumer task) throws IllegalStateException {
+        log.entry(speciesIds, sizeBySpeciesId, task);
+
+        List<Integer> remaining = new ArrayList<>(speciesIds);
+        if (this.maxConcurrentSpecies > 1) {
+            remaining.sort(Comparator.comparingLong((Integer id) -> getSize(id, sizeBySpeciesId))
+                    .reversed());
+        }
+        this.runningCount = 0;
+        this.runningSize = 0;
+        this.error = null;
+
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(this.maxConcurrentSpecies, remaining.size())),
+                r -> new Thread(r, "species-scheduler-" + threadIndex.incrementAndGet()));
+        try {
+            while (!remaining.isEmpty() && this.error == null) {
+                Integer speciesId = this.getNextSpecies(remaining, sizeBySpeciesId);
+                if (speciesId == null) {
+                    //releases the monitor until a species completes
+                    this.wait();
+                    continue;
+                }
+                remaining.remove(speciesId);
+                long size = getSize(speciesId, sizeBySpeciesId);
+                this.runningCount++;
+                this.runningSize += size;
+                log.info("Starting species {} of size {}, {} species running, {} remaining",
+                        speciesId, size, this.runningCount, remaining.size());
+                executor.execute(() -> {
+                    try {
+                        task.accept(speciesId);
+                    } catch (Throwable e) {
+                        log.catching(e);
+                        synchronized (this) {
+                            if (this.error == null) {
+                                this.error = e;
+                            }
+                        }
+                    } finally {
+                        synchronized (this) {
+                            this.runningCount--;
+                            this.runningSize -= size;
+                            this.notifyAll();
+                        }
+                    }
+                });
+            }
+            while (this.runningCount > 0) {
+                this.wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw log.throwing(new IllegalStateException(e));
+        } finally {
+            executor.shutdown();
+        }
+
+        if (this.error != null) {
+            if (this.error instanceof RuntimeException) {
+                throw log.throwing((RuntimeException) this.error);
+            }
+            if (this.error instanceof Error) {
+                throw log.throwing((Error) this.error);
+            }
+            throw log.throwing(new IllegalStateException(this.error));
+        }
+        log.exit();
+    }
+
+    /**
+     * @return  The ID of the first species in {@code remaining} that can be started,
+     *          or {@code null} if no species can be started until a running species completes.
+     */
+    private Integer getNextSpecies(List<Integer> remaining, Map<Integer, Long> sizeBySpeciesId) {
+        log.entry(remaining, sizeBySpeciesId);
+        if (this.runningCount >= this.maxConcurrentSpecies) {
+            return log.exit(null);
+        }
+        for (Integer speciesId: remaining) {
+            if (this.runningCount == 0 ||
+                    this.runningSize + getSize(speciesId, sizeBySpeciesId) <= this.sizeBudget) {
+                return log.exit(speciesId);
+            }
+        }
+        return log.exit(null);
+    }
+
+    private static long getSize(Integer speciesId, Map<Integer, Long> sizeBySpeciesId) {
+        return sizeBySpeciesId.getOrDefault(speciesId, 0L);
+    }
+}
@@ -11,6 +11,7 @@ import java.nio.file.StandardCopyOption;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
@@ -34,6 +35,7 @@ import org.bgee.model.Service;
 import org.bgee.model.ServiceFactory;
 import org.bgee.model.anatdev.AnatEntity;
 import org.bgee.model.anatdev.DevStage;
+import org.bgee.model.dao.api.gene.GeneDAO.GeneTO;
 import org.bgee.model.expressiondata.Call.ExpressionCall;
 import org.bgee.model.expressiondata.CallFilter.ExpressionCallFilter;
 import org.bgee.model.expressiondata.CallService;
@@ -50,6 +52,7 @@ import org.bgee.model.gene.GeneFilter;
 import org.bgee.model.ontology.Ontology;
 import org.bgee.model.species.Species;
 import org.bgee.pipeline.CommandRunner;
+import org.bgee.pipeline.JobScheduler;
 import org.bgee.pipeline.Utils;
 import org.bgee.pipeline.uberon.Uberon;
 import org.obolibrary.oboformat.parser.OBOFormatParserException;
@@ -391,7 +394,12 @@ public class GenerateRankFile {
      *   on file considering only Affymetrix, etc). If it is equal to {@code ALL}, then only 
      *   the file considering all data types will be generated, if it is equal to a specific data type 
      *   ({@code AFFYMETRIX}, {@code EST}, {@code IN_SITU}, {@code RNA_SEQ}, ), then only 
-     *   the file for this data type will be generated. 
+     *   the file for this data type will be generated. To generate all possible files 
+     *   while providing the next arguments, use {@link org.bgee.pipeline.CommandRunner#EMPTY_ARG}.
+     *   <li>OPTIONAL: the number of worker threads generating files in parallel. 
+     *   If not provided, the number of available processors is used.
+     *   <li>OPTIONAL: the maximum number of attempts to generate each file. 
+     *   If not provided, {@link #DEFAULT_MAX_ATTEMPTS} is used.
      *   </ol>
      * </ul>
      * 
@@ -406,9 +414,9 @@ public class GenerateRankFile {
         log.entry((Object[]) args);
         
         if (args[0].equalsIgnoreCase("generateRankFiles")) {
-            if (args.length != 5 && args.length != 6) {
+            if (args.length < 5 || args.length > 8) {
                 throw log.throwing(new IllegalArgumentException(
-                        "Incorrect number of arguments provided, expected 5 or 6 arguments, "
+                        "Incorrect number of arguments provided, expected 5 to 8 arguments, "
                         + args.length + " provided."));
             }
             
@@ -421,7 +429,7 @@ public class GenerateRankFile {
             //TODO: to change when a DataType.ALL will be implemented. 
             Set<DataType> dataTypes = new HashSet<DataType>(Arrays.asList(DataType.values()));
             dataTypes.add(null);
-            if (args.length == 6) {
+            if (args.length >= 6 && !CommandRunner.EMPTY_ARG.equals(args[5])) {
                 dataTypes = dataTypes.stream().filter(
                         type -> type == null && args[5].equalsIgnoreCase("ALL") || 
                                 type != null && args[5].equalsIgnoreCase(type.name()))
@@ -432,7 +440,12 @@ public class GenerateRankFile {
                 log.info("datatype(s) for which rank files will be generated : {}", dataTypes);
             }
             
-            GenerateRankFile generator = new GenerateRankFile(pathToUberon);
+            int workerCount = args.length >= 7? Integer.parseInt(args[6]): 
+                Runtime.getRuntime().availableProcessors();
+            int maxAttempts = args.length >= 8? Integer.parseInt(args[7]): DEFAULT_MAX_ATTEMPTS;
+            
+            GenerateRankFile generator = new GenerateRankFile(ServiceFactory::new, new Uberon(pathToUberon), 
+                    workerCount, maxAttempts);
             generator.generateRankFiles(speciesIds, anatEntityOnly, dataTypes, outputDir);
             
         } else {
@@ -445,10 +458,21 @@ public class GenerateRankFile {
     
     
     
+    /**
+     * An {@code int} that is the default maximum number of attempts to generate a file.
+     * @see #GenerateRankFile(Supplier, Uberon, int, int)
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    
     /**
      * A {@code Supplier} of {@code ServiceFactory}s to be able to provide one to each thread.
      */
     private final Supplier<ServiceFactory> serviceFactorySupplier;
+    /**
+     * The {@code JobScheduler} used to generate the files in parallel, with one job 
+     * per species and data type.
+     */
+    private final JobScheduler jobScheduler;
     /**
      * The {@code Uberon} utility to extract XRefs to BTO.
      */
@@ -474,14 +498,32 @@ public class GenerateRankFile {
      * @param uberonOnt                 An {@code Uberon} utiliy to extract XRefs to BTO from.
      */
     public GenerateRankFile(Supplier<ServiceFactory> serviceFactorySupplier, Uberon uberonOnt) {
+        this(serviceFactorySupplier, uberonOnt, Runtime.getRuntime().availableProcessors(), 
+                DEFAULT_MAX_ATTEMPTS);
+    }
+    /**
+     * @param serviceFactorySupplier    A {@code Supplier} of {@code ServiceFactory}s 
+     *                                  to be able to provide one to each thread.
+     * @param uberonOnt                 An {@code Uberon} utiliy to extract XRefs to BTO from.
+     * @param workerCount               An {@code int} that is the number of worker threads 
+     *                                  generating files in parallel.
+     * @param maxAttempts               An {@code int} that is the maximum number of attempts 
+     *                                  to generate each file.
+     * @throws IllegalArgumentException If {@code workerCount} or {@code maxAttempts} is less than 1.
+     */
+    public GenerateRankFile(Supplier<ServiceFactory> serviceFactorySupplier, Uberon uberonOnt, 
+            int workerCount, int maxAttempts) throws IllegalArgumentException {
         this.serviceFactorySupplier = serviceFactorySupplier;
         this.uberonOnt = uberonOnt;
+        this.jobScheduler = new JobScheduler(workerCount, maxAttempts);
     }
     
     
     
     /**
      * Generate rank files for all requested species and data types, in parallel. 
+     * Each file is generated by a job of the {@code JobScheduler} of this object, 
+     * the biggest species (with the highest number of genes with data) being processed first.
      *
      * @param speciesIds        A {@code Set} of {@code String}s that are the IDs of the species 
      *                          for which the files should be generated. If {@code null} or empty, 
@@ -498,8 +540,8 @@ public class GenerateRankFile {
      *                          the generated files.
      * @throws IllegalArgumentException If a species ID is not recognized, or {@code dataTypes} 
      *                                  is {@code null} or empty. 
-     * @throws RuntimeException         If an error occurs while generating the files. 
-     *                                  It is not a checked exception because we use parallel {@code Stream}s.
+     * @throws IllegalStateException    If an error occurs while generating the files, 
+     *                                  after all retries. 
      */
     public void generateRankFiles(Set<Integer> speciesIds, boolean anatEntityOnly, Set<DataType> dataTypes, 
             String outputDir) throws IllegalArgumentException {
@@ -519,19 +561,44 @@ public class GenerateRankFile {
                     .collect(Collectors.toSet()).toString()));
         }
         
+        //No need to estimate species sizes if only one species is requested
+        Map<Integer, Long> speciesIdToSize = retrievedSpeciesIds.size() > 1? 
+                this.loadSpeciesSizes(retrievedSpeciesIds, serviceFactory): new HashMap<>();
+        
         //generation of files are independent, so we can safely go multi-threading
-        retrievedSpeciesIds.parallelStream().forEach(speciesId -> dataTypes.parallelStream().forEach(
-                dataType -> {
-                    try {
-                        this.generateSpeciesRankFile(speciesId, anatEntityOnly, dataType, outputDir);
-                    } catch (IOException e) {
-                        throw log.throwing(new RuntimeException(e));
-                    }
-                }));
+        List<JobScheduler.Job> jobs = new ArrayList<>();
+        for (Integer speciesId: retrievedSpeciesIds) {
+            for (DataType dataType: dataTypes) {
+                jobs.add(new JobScheduler.Job(
+                        "rank file species " + speciesId + " - data type " + 
+                            (dataType == null? "all": dataType.getStringRepresentation()), 
+                        speciesIdToSize.getOrDefault(speciesId, 0L), 
+                        () -> this.generateSpeciesRankFile(speciesId, anatEntityOnly, dataType, outputDir)));
+            }
+        }
+        this.jobScheduler.run(jobs);
         
         log.exit();
     }
     
+    /**
+     * Estimate the size of the species, to be able to generate files for the biggest species first. 
+     * 
+     * @param speciesIds        A {@code Collection} of {@code Integer}s that are the IDs 
+     *                          of the species to estimate the sizes of.
+     * @param serviceFactory    A {@code ServiceFactory} to retrieve Bgee services from.
+     * @return                  A {@code Map} where keys are {@code Integer}s that are species IDs, 
+     *                          the associated value being a {@code Long} that is the number 
+     *                          of genes with data in the species.
+     */
+    private Map<Integer, Long> loadSpeciesSizes(Collection<Integer> speciesIds, 
+            ServiceFactory serviceFactory) {
+        log.entry(speciesIds, serviceFactory);
+        return log.exit(serviceFactory.getDAOManager().getGeneDAO()
+                .getGenesWithDataBySpeciesIds(speciesIds).stream()
+                .collect(Collectors.groupingBy(GeneTO::getSpeciesId, Collectors.counting())));
+    }
+    
     /**
      * Generate a rank file for a given species and data type specification. 
      * 
@@ -545,10 +612,11 @@ public class GenerateRankFile {
      *                          If {@code null}, then all data types are considered. 
      * @param outputDir         A {@code String} that is the path to the directory where to store 
      *                          the generated file.
+     * @return                  A {@code long} that is the number of rows written in the file.
      * @throws IllegalArgumentException If the species ID is not recognized. 
      * @throws IOException             If an error occurs while writing the file. 
      */
-    public void generateSpeciesRankFile(Integer speciesId, boolean anatEntityOnly, DataType dataType, 
+    public long generateSpeciesRankFile(Integer speciesId, boolean anatEntityOnly, DataType dataType, 
             String outputDir) throws IllegalArgumentException, IOException {
         log.entry(speciesId, anatEntityOnly, dataType, outputDir);
 
@@ -596,7 +664,7 @@ public class GenerateRankFile {
         String[] header = getFileHeader(anatEntityOnly, dataType);
         String[] colToAttribute = getColToAttributeMapping(anatEntityOnly, dataType);
         CellProcessor[] processors = getCellProcessors(anatEntityOnly, dataType);
-        boolean rowWritten = false;
+        long rowCount = 0;
         try (ICsvBeanWriter beanWriter = new CsvBeanWriter(new FileWriter(tmpOutputFile), 
                 Utils.TSVCOMMENTED)) {
             
@@ -610,7 +678,6 @@ public class GenerateRankFile {
             String geneId = null;
             String previousGeneId = null;
             while (callIt.hasNext()) {
-                rowWritten = true;
                 ExpressionCall call = callIt.next();
                 geneId = call.getGene().getEnsemblGeneId();
                 
@@ -619,7 +686,7 @@ public class GenerateRankFile {
                         "Calls should be ordered by ascending gene IDs";
                     //launch the computations and writing into file for the previous gene. 
                     //Note that the List will be reordered
-                    this.processAndWriteToFile(singleGeneExprCalls, genes.get(previousGeneId), 
+                    rowCount += this.processAndWriteToFile(singleGeneExprCalls, genes.get(previousGeneId), 
                             anatEntityOnt, devStageOnt, 
                             beanWriter, colToAttribute, processors);
                     //start a new accumulation of calls for the new gene
@@ -631,12 +698,12 @@ public class GenerateRankFile {
             //computation and writing for last iterated gene
             if (!singleGeneExprCalls.isEmpty()) {
                 assert geneId != null && geneId.equals(previousGeneId);
-                this.processAndWriteToFile(singleGeneExprCalls, genes.get(geneId), 
+                rowCount += this.processAndWriteToFile(singleGeneExprCalls, genes.get(geneId), 
                         anatEntityOnt, devStageOnt, 
                         beanWriter, colToAttribute, processors);
             }
         }
-        if (!rowWritten) {
+        if (rowCount == 0) {
             Files.deleteIfExists(tmpOutputFile.toPath());
         } else {
             File outputFile = getOutputFile(species, anatEntityOnly, dataType, outputDir, false);
@@ -644,7 +711,7 @@ public class GenerateRankFile {
             Files.move(tmpOutputFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
         }
         
-        log.exit();
+        return log.exit(rowCount);
     }
     
     /**
@@ -796,26 +863,29 @@ public class GenerateRankFile {
      * @param processors            An {@code Array} of {@code CellProcessor}s in the same order 
      *                              as the columns they should process.
      *                              See {@link #getCellProcessors(boolean, DataType)}.
+     * @return                      An {@code int} that is the number of rows written.
      * @throws RuntimeException         If an error occurs while generating the file. 
      *                                  It is not a checked exception because we use {@code Stream}s.
      */
-    private void processAndWriteToFile(List<ExpressionCall> singleGeneExprCalls, 
+    private int processAndWriteToFile(List<ExpressionCall> singleGeneExprCalls, 
             Gene gene, Ontology<AnatEntity, String> anatEntityOnt, Ontology<DevStage, String> devStageOnt, 
             ICsvBeanWriter beanWriter, String[] colToAttribute, CellProcessor[] processors) 
                     throws RuntimeException {
         log.entry(singleGeneExprCalls, gene, anatEntityOnt, devStageOnt, 
                 beanWriter, colToAttribute, processors);
         
+        int[] rowCount = new int[]{0};
         this.mapCallsToBeans(singleGeneExprCalls, gene, anatEntityOnt, devStageOnt)
         .forEachOrdered(bean -> {
             try {
                 beanWriter.write(bean, colToAttribute, processors);
+                rowCount[0]++;
             } catch (Exception e) {
                 throw log.throwing(new RuntimeException(e));
             }
         });
 
-        log.exit();
+        return log.exit(rowCount[0]);
     }
 
     /**
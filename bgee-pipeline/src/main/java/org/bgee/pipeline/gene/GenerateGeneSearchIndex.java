@@ -0,0 +1,115 @@
+package org.bgee.pipeline.gene;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.ServiceFactory;
+import org.bgee.model.gene.GeneAutocompleteTrie;
+import org.bgee.model.gene.GeneMatchResultService;
+import org.bgee.model.gene.GeneSearchIndex;
+
+/**
+ * Class used to generate the file storing the in-memory gene search index,
+ * loaded by the webapp when the property {@code org.bgee.search.index.file} is defined,
+ * and optionally the file storing the gene autocomplete trie, memory-mapped by the webapp
+ * when the property {@code org.bgee.search.autocomplete.file} is defined.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @see GeneSearchIndex
+ * @see GeneAutocompleteTrie
+ * @since   Bgee 14, Jan. 2020
+ */
+public class GenerateGeneSearchIndex {
+    private final static Logger log = LogManager.getLogger(GenerateGeneSearchIndex.class.getName());
+
+    /**
+     * Launches the generation of the gene search index file.
+     * Parameters that must be provided in order in {@code args} are:
+     * <ol>
+     * <li>path to the index file to generate.
+     * <li>optional: path to the autocomplete trie file to generate.
+     * </ol>
+     *
+     * @param args          An {@code Array} of {@code String}s containing the requested parameters.
+     * @throws IOException  If an error occurred while writing the file.
+     */
+    public static void main(String[] args) throws IOException {
+        log.entry((Object[]) args);
+
+        int expectedArgLengthMin = 1;
+        int expectedArgLengthMax = 2;
+        if (args.length < expectedArgLengthMin || args.length > expectedArgLengthMax) {
+            throw log.throwing(new IllegalArgumentException("Incorrect number of arguments " +
+                "provided, expected " + expectedArgLengthMin + " to " + expectedArgLengthMax +
+                " arguments, " + args.length + " provided."));
+        }
+
+        GenerateGeneSearchIndex generate = new GenerateGeneSearchIndex();
+        generate.generate(Paths.get(args[0]), args.length > 1? Paths.get(args[1]): null);
+
+        log.exit();
+    }
+
+    private final Supplier<ServiceFactory> serviceFactorySupplier;
+
+    /**
+     * Default constructor, using the default {@code ServiceFactory}.
+     */
+    public GenerateGeneSearchIndex() {
+        this(ServiceFactory::new);
+    }
+    /**
+     * @param serviceFactorySupplier    A {@code Supplier} of {@code ServiceFactory}s
+     *                                  to use to retrieve the data.
+     */
+    public GenerateGeneSearchIndex(Supplier<ServiceFactory> serviceFactorySupplier) {
+        if (serviceFactorySupplier == null) {
+            throw log.throwing(new IllegalArgumentException("ServiceFactory supplier cannot be null"));
+        }
+        this.serviceFactorySupplier = serviceFactorySupplier;
+    }
+
+    /**
+     * Build the gene search index from the data source and write it into {@code file}.
+     *
+     * @param file          A {@code Path} that is the index file to generate.
+     * @throws IOException  If an error occurred while writing the file.
+     */
+    public void generate(Path file) throws IOException {
+        log.entry(file);
+        this.generate(file, null);
+        log.exit();
+    }
+    /**
+     * Build the gene search index from the data source and write it into {@code file},
+     * then, if {@code trieFile} is not {@code null}, write the gene autocomplete trie
+     * built from the index into {@code trieFile}.
+     *
+     * @param file          A {@code Path} that is the index file to generate.
+     * @param trieFile      A {@code Path} that is the autocomplete trie file to generate,
+     *                      {@code null} if it should not be generated.
+     * @throws IOException  If an error occurred while writing the files.
+     */
+    public void generate(Path file, Path trieFile) throws IOException {
+        log.entry(file, trieFile);
+        log.info("Building gene search index...");
+        GeneSearchIndex index;
+        try (ServiceFactory serviceFactory = this.serviceFactorySupplier.get()) {
+            index = GeneMatchResultService.loadSearchIndex(serviceFactory);
+        }
+        log.info("Writing {} genes to {}...", index.getGeneCount(), file);
+        index.writeToFile(file);
+        if (trieFile != null) {
+            log.info("Building gene autocomplete trie...");
+            GeneAutocompleteTrie trie = index.buildAutocompleteTrie(GeneAutocompleteTrie.DEFAULT_K);
+            log.info("Writing {} completions to {}...", trie.getCompletionCount(), trieFile);
+            trie.writeToFile(trieFile);
+        }
+        log.info("Done.");
+        log.exit();
+    }
+}
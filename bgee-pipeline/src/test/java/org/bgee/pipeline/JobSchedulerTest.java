@@ -0,0 +1,102 @@
+package org.bgee.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link JobScheduler}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class JobSchedulerTest extends TestAncestor {
+    private final static Logger log = LogManager.getLogger(JobSchedulerTest.class.getName());
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Test that jobs are started by decreasing size, and that results are correctly reported.
+     */
+    @Test
+    public void shouldRunBiggestJobsFirst() {
+        List<String> executionOrder = Collections.synchronizedList(new ArrayList<>());
+        JobScheduler scheduler = new JobScheduler(1, 1);
+        List<JobScheduler.JobResult> results = scheduler.run(Arrays.asList(
+                new JobScheduler.Job("small", 1, () -> {executionOrder.add("small"); return 1;}),
+                new JobScheduler.Job("big", 100, () -> {executionOrder.add("big"); return 100;}),
+                new JobScheduler.Job("medium", 10, () -> {executionOrder.add("medium"); return 10;})));
+
+        assertEquals(Arrays.asList("big", "medium", "small"), executionOrder);
+        assertEquals(Arrays.asList("big", "medium", "small"), results.stream()
+                .map(r -> r.getJob().getName()).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(100L, 10L, 1L), results.stream()
+                .map(r -> r.getRowCount()).collect(Collectors.toList()));
+        assertTrue(results.stream().allMatch(r -> r.isSuccessful() && r.getAttemptCount() == 1));
+    }
+
+    /**
+     * Test that a failing job is retried.
+     */
+    @Test
+    public void shouldRetryFailedJobs() {
+        AtomicInteger callCount = new AtomicInteger(0);
+        JobScheduler scheduler = new JobScheduler(2, 3);
+        List<JobScheduler.JobResult> results = scheduler.run(Arrays.asList(
+                new JobScheduler.Job("flaky", 1, () -> {
+                    if (callCount.incrementAndGet() < 3) {
+                        throw new IllegalStateException("Fail");
+                    }
+                    return 5;
+                })));
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).isSuccessful());
+        assertEquals(3, results.get(0).getAttemptCount());
+        assertEquals(5, results.get(0).getRowCount());
+    }
+
+    /**
+     * Test that an exception is thrown once all jobs are completed,
+     * if a job failed after all retries.
+     */
+    @Test
+    public void shouldFailAfterAllAttempts() {
+        AtomicInteger callCount = new AtomicInteger(0);
+        AtomicInteger otherJobCount = new AtomicInteger(0);
+        JobScheduler scheduler = new JobScheduler(2, 2);
+        try {
+            scheduler.run(Arrays.asList(
+                    new JobScheduler.Job("failing", 1, () -> {
+                        callCount.incrementAndGet();
+                        throw new IllegalStateException("Fail");
+                    }),
+                    new JobScheduler.Job("ok", 1, () -> otherJobCount.incrementAndGet())));
+            fail("An exception should be thrown when a job fails after all attempts");
+        } catch (IllegalStateException e) {
+            //test passed
+        }
+        assertEquals(2, callCount.get());
+        assertEquals(1, otherJobCount.get());
+    }
+
+    /**
+     * Test that incorrect arguments are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectIncorrectWorkerCount() {
+        new JobScheduler(0, 1);
+    }
+}
@@ -0,0 +1,108 @@
+package org.bgee.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link PipelineMetrics}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class PipelineMetricsTest extends TestAncestor {
+    private final static Logger log = LogManager.getLogger(PipelineMetricsTest.class.getName());
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    @Rule
+    public final TemporaryFolder testFolder = new TemporaryFolder();
+
+    /**
+     * Test that counters, timers and gauges are correctly reported in snapshots.
+     */
+    @Test
+    public void shouldSnapshotMetrics() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.counter("rows.read").add(3);
+        metrics.counter("rows.read").increment();
+        metrics.timer("db.wait").record(TimeUnit.MILLISECONDS.toNanos(10));
+        metrics.timer("db.wait").record(TimeUnit.MILLISECONDS.toNanos(30));
+        AtomicLong queueSize = new AtomicLong(5);
+        metrics.gauge("queue.depth", queueSize::get);
+
+        SortedMap<String, Long> snapshot = metrics.snapshot();
+        assertEquals(4L, snapshot.get("rows.read").longValue());
+        assertEquals(2L, snapshot.get("db.wait.count").longValue());
+        assertEquals(40L, snapshot.get("db.wait.totalMs").longValue());
+        assertEquals(30L, snapshot.get("db.wait.maxMs").longValue());
+        assertEquals(5L, snapshot.get("queue.depth").longValue());
+        assertTrue(snapshot.containsKey("timestamp"));
+
+        queueSize.set(7);
+        assertEquals(7L, metrics.snapshot().get("queue.depth").longValue());
+        metrics.removeGauge("queue.depth");
+        assertTrue(!metrics.snapshot().containsKey("queue.depth"));
+    }
+
+    /**
+     * Test {@link PipelineMetrics#writeToFile(Path)}.
+     */
+    @Test
+    public void shouldWriteToFile() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.counter("rows.inserted").add(12);
+        Path file = testFolder.newFile("metrics.tsv").toPath();
+        metrics.writeToFile(file);
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertTrue(lines.contains("rows.inserted\t12"));
+        assertTrue(lines.stream().allMatch(l -> l.split("\t").length == 2));
+        assertTrue(Files.notExists(file.resolveSibling("metrics.tsv.tmp")));
+    }
+
+    /**
+     * Test that metrics are served over HTTP.
+     */
+    @Test
+    public void shouldServeOverHttp() throws Exception {
+        try (PipelineMetrics metrics = new PipelineMetrics()) {
+            metrics.counter("rows.inserted").add(42);
+            metrics.startHttpServer(0);
+            int port = metrics.getHttpPort();
+            assertTrue(port > 0);
+
+            HttpURLConnection connection = (HttpURLConnection) new URL("http",
+                    InetAddress.getLoopbackAddress().getHostAddress(), port,
+                    PipelineMetrics.HTTP_CONTEXT).openConnection();
+            List<String> lines;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    connection.getInputStream(), StandardCharsets.UTF_8))) {
+                lines = reader.lines().collect(Collectors.toList());
+            }
+            assertEquals(200, connection.getResponseCode());
+            assertTrue(lines.contains("rows.inserted\t42"));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.bgee.pipeline.expression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.anatdev.AnatEntity;
+import org.bgee.model.dao.api.expressiondata.RawExpressionCallDAO.RawExpressionCallTO;
+import org.bgee.model.expressiondata.CallData.ExpressionCallData;
+import org.bgee.model.expressiondata.Condition;
+import org.bgee.model.expressiondata.baseelements.CallType;
+import org.bgee.model.expressiondata.baseelements.DataPropagation;
+import org.bgee.model.expressiondata.baseelements.DataQuality;
+import org.bgee.model.expressiondata.baseelements.DataType;
+import org.bgee.model.expressiondata.baseelements.ExperimentExpressionCount;
+import org.bgee.model.expressiondata.baseelements.PropagationState;
+import org.bgee.model.species.Species;
+
+/**
+ * Compare the heap retained by calls waiting to be inserted, when held as the objects
+ * previously referenced by the calls in the insertion queue of {@link InsertPropagatedCalls}
+ * (conditions, data propagations, call data and {@code Set}s of source call TOs),
+ * and when held as {@link CompactPipelineCall}s. The raw call TOs and the conditions
+ * are shared between calls, as during the propagation.
+ * <p>
+ * This is not a unit test, since the measures depend on the garbage collector:
+ * it is not run by surefire, and must be launched manually, e.g.:
+ * {@code java -cp <test classpath> org.bgee.pipeline.expression.CompactPipelineCallBenchmark 100000}.
+ * The retained bytes per call are logged, and printed to the standard output.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class CompactPipelineCallBenchmark {
+    private final static Logger log = LogManager.getLogger(CompactPipelineCallBenchmark.class.getName());
+
+    /**
+     * @param args  An {@code Array} of {@code String}s containing optionally one element,
+     *              the number of calls to create (default 20000).
+     */
+    public static void main(String[] args) {
+        log.entry((Object[]) args);
+        int callCount = args.length > 0? Integer.parseInt(args[0]): 20000;
+
+        Species species = new Species(1);
+        List<Condition> conditions = new ArrayList<>();
+        List<RawExpressionCallTO> callTOs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            conditions.add(new Condition(new AnatEntity("UBERON:" + i), null, species));
+            callTOs.add(new RawExpressionCallTO(i, 1, i));
+        }
+        DataPropagation dataProp = new DataPropagation(PropagationState.SELF_AND_DESCENDANT, null, true);
+
+        long start = getUsedHeap();
+        List<List<Object>> previousCalls = new ArrayList<>(callCount);
+        for (int i = 0; i < callCount; i++) {
+            previousCalls.add(Arrays.asList(conditions.get(i % 100), dataProp,
+                    getCallData(i, dataProp),
+                    new HashSet<>(callTOs.subList(0, i % 5)),
+                    new HashSet<>(callTOs.subList(i % 100, i % 100 + 1)),
+                    new HashSet<>(callTOs.subList(50, 50 + i % 10))));
+        }
+        long previousBytes = getUsedHeap() - start;
+        //keep the calls reachable until the heap was measured
+        log.trace("Previous calls created: {}", previousCalls.size());
+        previousCalls = null;
+
+        start = getUsedHeap();
+        List<CompactPipelineCall> compactCalls = new ArrayList<>(callCount);
+        for (int i = 0; i < callCount; i++) {
+            compactCalls.add(CompactPipelineCall.encode(1, i % 100, getCallData(i, dataProp),
+                    callTOs.subList(0, i % 5), callTOs.subList(i % 100, i % 100 + 1),
+                    callTOs.subList(50, 50 + i % 10)));
+        }
+        long compactBytes = getUsedHeap() - start;
+        log.trace("Compact calls created: {}", compactCalls.size());
+
+        String result = "Retained bytes per call over " + callCount
+                + " calls - previous representation: " + previousBytes / callCount
+                + " - CompactPipelineCall: " + compactBytes / callCount;
+        log.info(result);
+        System.out.println(result);
+        log.exit();
+    }
+
+    private static Set<ExpressionCallData> getCallData(int i, DataPropagation dataProp) {
+        return new HashSet<>(Arrays.asList(
+                new ExpressionCallData(DataType.AFFYMETRIX, new HashSet<>(Arrays.asList(
+                        new ExperimentExpressionCount(CallType.Expression.EXPRESSED, DataQuality.HIGH,
+                                PropagationState.SELF, i % 3 + 1),
+                        new ExperimentExpressionCount(CallType.Expression.EXPRESSED, DataQuality.HIGH,
+                                PropagationState.DESCENDANT, i % 7),
+                        new ExperimentExpressionCount(CallType.Expression.EXPRESSED, DataQuality.HIGH,
+                                PropagationState.ALL, i % 3 + i % 7 + 1))),
+                        i % 3 + i % 7 + 1, null, null, null, dataProp),
+                new ExpressionCallData(DataType.RNA_SEQ, new HashSet<>(Arrays.asList(
+                        new ExperimentExpressionCount(CallType.Expression.EXPRESSED, DataQuality.LOW,
+                                PropagationState.SELF, i % 2 + 1),
+                        new ExperimentExpressionCount(CallType.Expression.EXPRESSED, DataQuality.LOW,
+                                PropagationState.ALL, i % 2 + 1))),
+                        i % 2 + 1, null, null, null, dataProp)));
+    }
+
+    private static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,124 @@
+package org.bgee.pipeline.expression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO;
+import org.bgee.model.dao.api.expressiondata.DAODataType;
+import org.bgee.model.dao.api.expressiondata.DAOExperimentCount;
+import org.bgee.model.dao.api.expressiondata.DAOPropagationState;
+import org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO.GlobalExpressionCallDataTO;
+import org.bgee.model.dao.api.expressiondata.RawExpressionCallDAO.RawExpressionCallTO;
+import org.bgee.model.expressiondata.CallData.ExpressionCallData;
+import org.bgee.model.expressiondata.baseelements.CallType;
+import org.bgee.model.expressiondata.baseelements.DataPropagation;
+import org.bgee.model.expressiondata.baseelements.DataQuality;
+import org.bgee.model.expressiondata.baseelements.DataType;
+import org.bgee.model.expressiondata.baseelements.ExperimentExpressionCount;
+import org.bgee.model.expressiondata.baseelements.PropagationState;
+import org.bgee.pipeline.TestAncestor;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CompactPipelineCall}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class CompactPipelineCallTest extends TestAncestor {
+    private final static Logger log = LogManager.getLogger(CompactPipelineCallTest.class.getName());
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Test that the {@code GlobalExpressionCallDataTO}s and raw condition IDs
+     * retrieved from a {@code CompactPipelineCall} match the data it was encoded from.
+     */
+    @Test
+    public void shouldEncodeAndDecode() {
+        DataPropagation affyDataProp = new DataPropagation(PropagationState.SELF_AND_DESCENDANT,
+                null, true);
+        DataPropagation rnaSeqDataProp = new DataPropagation(PropagationState.ANCESTOR,
+                null, false);
+        Set<ExpressionCallData> callData = new HashSet<>(Arrays.asList(
+                new ExpressionCallData(DataType.AFFYMETRIX, new HashSet<>(Arrays.asList(
+                        new ExperimentExpressionCount(CallType.Expression.EXPRESSED, DataQuality.HIGH,
+                                PropagationState.SELF, 2),
+                        new ExperimentExpressionCount(CallType.Expression.EXPRESSED, DataQuality.LOW,
+                                PropagationState.DESCENDANT, 1),
+                        new ExperimentExpressionCount(CallType.Expression.EXPRESSED, DataQuality.HIGH,
+                                PropagationState.ALL, 3))),
+                        5, null, null, null, affyDataProp),
+                new ExpressionCallData(DataType.RNA_SEQ, new HashSet<>(Arrays.asList(
+                        new ExperimentExpressionCount(CallType.Expression.NOT_EXPRESSED, DataQuality.LOW,
+                                PropagationState.ANCESTOR, 4),
+                        new ExperimentExpressionCount(CallType.Expression.NOT_EXPRESSED, DataQuality.LOW,
+                                PropagationState.ALL, 4))),
+                        null, null, null, null, rnaSeqDataProp)));
+
+        CompactPipelineCall call = CompactPipelineCall.encode(10, 3, callData,
+                new HashSet<>(Arrays.asList(new RawExpressionCallTO(1, 10, 7),
+                        new RawExpressionCallTO(2, 10, 5))),
+                Collections.singleton(new RawExpressionCallTO(3, 10, 6)),
+                null);
+
+        assertEquals("Incorrect gene ID", 10, call.getBgeeGeneId());
+        assertEquals("Incorrect condition index", 3, call.getConditionIndex());
+        assertArrayEquals("Incorrect parent raw conditions", new int[]{5, 7},
+                call.getParentRawConditionIds());
+        assertArrayEquals("Incorrect self raw conditions", new int[]{6},
+                call.getSelfRawConditionIds());
+        assertArrayEquals("Incorrect descendant raw conditions", new int[0],
+                call.getDescendantRawConditionIds());
+
+        Map<ConditionDAO.Attribute, DAOPropagationState> affyStates = new HashMap<>();
+        affyStates.put(ConditionDAO.Attribute.ANAT_ENTITY_ID, DAOPropagationState.SELF_AND_DESCENDANT);
+        affyStates.put(ConditionDAO.Attribute.STAGE_ID, null);
+        Map<ConditionDAO.Attribute, DAOPropagationState> rnaSeqStates = new HashMap<>();
+        rnaSeqStates.put(ConditionDAO.Attribute.ANAT_ENTITY_ID, DAOPropagationState.ANCESTOR);
+        rnaSeqStates.put(ConditionDAO.Attribute.STAGE_ID, null);
+        //GlobalExpressionCallDataTO does not implement hashCode/equals
+        Map<DAODataType, GlobalExpressionCallDataTO> callDataTOs = call.toCallDataTOs().stream()
+                .collect(Collectors.toMap(to -> to.getDataType(), to -> to));
+        assertEquals("Incorrect data types", EnumSet.of(DAODataType.AFFYMETRIX, DAODataType.RNA_SEQ),
+                callDataTOs.keySet());
+
+        GlobalExpressionCallDataTO affyTO = callDataTOs.get(DAODataType.AFFYMETRIX);
+        assertEquals("Incorrect observed data", true, affyTO.isConditionObservedData());
+        assertEquals("Incorrect data propagation", affyStates, affyTO.getDataPropagation());
+        assertEquals("Incorrect experiment counts", new HashSet<>(Arrays.asList(
+                new DAOExperimentCount(DAOExperimentCount.CallType.PRESENT,
+                        DAOExperimentCount.DataQuality.HIGH, DAOPropagationState.SELF, 2),
+                new DAOExperimentCount(DAOExperimentCount.CallType.PRESENT,
+                        DAOExperimentCount.DataQuality.LOW, DAOPropagationState.DESCENDANT, 1),
+                new DAOExperimentCount(DAOExperimentCount.CallType.PRESENT,
+                        DAOExperimentCount.DataQuality.HIGH, DAOPropagationState.ALL, 3))),
+                affyTO.getExperimentCounts());
+        assertEquals("Incorrect propagated count", Integer.valueOf(5), affyTO.getPropagatedCount());
+
+        GlobalExpressionCallDataTO rnaSeqTO = callDataTOs.get(DAODataType.RNA_SEQ);
+        assertEquals("Incorrect observed data", false, rnaSeqTO.isConditionObservedData());
+        assertEquals("Incorrect data propagation", rnaSeqStates, rnaSeqTO.getDataPropagation());
+        assertEquals("Incorrect experiment counts", new HashSet<>(Arrays.asList(
+                new DAOExperimentCount(DAOExperimentCount.CallType.ABSENT,
+                        DAOExperimentCount.DataQuality.LOW, DAOPropagationState.ANCESTOR, 4),
+                new DAOExperimentCount(DAOExperimentCount.CallType.ABSENT,
+                        DAOExperimentCount.DataQuality.LOW, DAOPropagationState.ALL, 4))),
+                rnaSeqTO.getExperimentCounts());
+        assertEquals("Incorrect propagated count", null, rnaSeqTO.getPropagatedCount());
+    }
+}
@@ -0,0 +1,133 @@
+package org.bgee.pipeline.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.anatdev.AnatEntity;
+import org.bgee.model.anatdev.DevStage;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO;
+import org.bgee.model.expressiondata.Condition;
+import org.bgee.model.species.Species;
+import org.bgee.pipeline.TestAncestor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link ConditionRelationTable}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class ConditionRelationTableTest extends TestAncestor {
+    private final static Logger log = LogManager.getLogger(ConditionRelationTableTest.class.getName());
+
+    @Rule
+    public final TemporaryFolder testFolder = new TemporaryFolder();
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    private final Species spe = new Species(1);
+    private final Condition condA = new Condition(new AnatEntity("A"), new DevStage("S1"), spe);
+    private final Condition condB = new Condition(new AnatEntity("B"), new DevStage("S1"), spe);
+    private final Condition condC = new Condition(new AnatEntity("C"), new DevStage("S1"), spe);
+    private final Condition condD = new Condition(new AnatEntity("C"), new DevStage("S2"), spe);
+
+    /**
+     * Build a table for the conditions A > B > C, and A > D.
+     */
+    private ConditionRelationTable buildTable() {
+        Map<Condition, Set<Condition>> ancestors = new HashMap<>();
+        ancestors.put(condA, new HashSet<>());
+        ancestors.put(condB, new HashSet<>(Arrays.asList(condA)));
+        ancestors.put(condC, new HashSet<>(Arrays.asList(condA, condB)));
+        ancestors.put(condD, new HashSet<>(Arrays.asList(condA)));
+        Map<Condition, Set<Condition>> descendants = new HashMap<>();
+        descendants.put(condA, new HashSet<>(Arrays.asList(condB, condD)));
+        descendants.put(condB, new HashSet<>(Arrays.asList(condC)));
+        descendants.put(condC, new HashSet<>());
+        descendants.put(condD, new HashSet<>());
+        return ConditionRelationTable.build(Arrays.asList(condD, condC, condB, condA),
+                ancestors::get, descendants::get);
+    }
+
+    /**
+     * Test {@link ConditionRelationTable#build(java.util.Collection, java.util.function.Function,
+     * java.util.function.Function)}.
+     */
+    @Test
+    public void shouldBuildTable() {
+        ConditionRelationTable table = this.buildTable();
+        assertEquals("Incorrect conditions", new HashSet<>(Arrays.asList(condA, condB, condC, condD)),
+                table.getConditions());
+        assertEquals("Incorrect ancestors", new HashSet<>(Arrays.asList(condA, condB)),
+                table.getAncestorConditions(condC));
+        assertEquals("Incorrect ancestors", new HashSet<>(),
+                table.getAncestorConditions(condA));
+        assertEquals("Incorrect descendants", new HashSet<>(Arrays.asList(condB, condD)),
+                table.getDescendantConditions(condA));
+        assertTrue("Incorrect contains", table.getAncestorConditions(condC).contains(condB));
+        assertFalse("Incorrect contains", table.getAncestorConditions(condC).contains(condD));
+        assertEquals("Incorrect size", 2, table.getDescendantConditions(condA).size());
+    }
+
+    /**
+     * Test {@link ConditionRelationTable#write(Path)} and
+     * {@link ConditionRelationTable#read(Path, java.util.Collection)}.
+     */
+    @Test
+    public void shouldWriteAndRead() throws IOException {
+        Path file = testFolder.newFolder().toPath().resolve(ConditionRelationTable.getFileName(1,
+                EnumSet.of(ConditionDAO.Attribute.ANAT_ENTITY_ID, ConditionDAO.Attribute.STAGE_ID)));
+        assertNull("No table should be read from a missing file",
+                ConditionRelationTable.read(file, Arrays.asList(condA, condB, condC, condD)));
+
+        ConditionRelationTable table = this.buildTable();
+        table.write(file);
+
+        //use other instances of equal conditions
+        List<Condition> conditions = Arrays.asList(
+                new Condition(new AnatEntity("A"), new DevStage("S1"), spe),
+                new Condition(new AnatEntity("C"), new DevStage("S2"), spe),
+                new Condition(new AnatEntity("B"), new DevStage("S1"), spe),
+                new Condition(new AnatEntity("C"), new DevStage("S1"), spe));
+        ConditionRelationTable readTable = ConditionRelationTable.read(file, conditions);
+        for (Condition cond: Arrays.asList(condA, condB, condC, condD)) {
+            assertEquals("Incorrect ancestors read", table.getAncestorConditions(cond),
+                    readTable.getAncestorConditions(cond));
+            assertEquals("Incorrect descendants read", table.getDescendantConditions(cond),
+                    readTable.getDescendantConditions(cond));
+        }
+
+        assertNull("A stale file should be ignored", ConditionRelationTable.read(file,
+                Arrays.asList(condA, condB, condC)));
+        assertNull("A stale file should be ignored", ConditionRelationTable.read(file,
+                Arrays.asList(condA, condB, condC,
+                        new Condition(new AnatEntity("D"), new DevStage("S2"), spe))));
+    }
+
+    /**
+     * Test that an exception is thrown when requesting relations of an unknown condition.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownCondition() {
+        this.buildTable().getAncestorConditions(new Condition(new AnatEntity("D"), null, spe));
+    }
+}
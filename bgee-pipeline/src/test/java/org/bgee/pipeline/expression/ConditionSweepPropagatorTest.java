@@ -0,0 +1,364 @@
+package org.bgee.pipeline.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.ServiceFactory;
+import org.bgee.model.anatdev.AnatEntity;
+import org.bgee.model.anatdev.DevStage;
+import org.bgee.model.dao.api.DAOManager;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO;
+import org.bgee.model.dao.api.expressiondata.DAODataType;
+import org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO.GlobalExpressionCallDataTO;
+import org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO.GlobalExpressionCallTO;
+import org.bgee.model.dao.api.expressiondata.ExperimentExpressionDAO.ExperimentExpressionTO;
+import org.bgee.model.dao.api.expressiondata.ExperimentExpressionDAO.ExperimentExpressionTO.CallDirection;
+import org.bgee.model.dao.api.expressiondata.ExperimentExpressionDAO.ExperimentExpressionTO.CallQuality;
+import org.bgee.model.dao.api.expressiondata.RawExpressionCallDAO.RawExpressionCallTO;
+import org.bgee.model.expressiondata.CallData.ExpressionCallData;
+import org.bgee.model.expressiondata.Condition;
+import org.bgee.model.expressiondata.ConditionGraph;
+import org.bgee.model.expressiondata.baseelements.CallType;
+import org.bgee.model.expressiondata.baseelements.DataPropagation;
+import org.bgee.model.expressiondata.baseelements.DataQuality;
+import org.bgee.model.expressiondata.baseelements.DataType;
+import org.bgee.model.expressiondata.baseelements.ExperimentExpressionCount;
+import org.bgee.model.expressiondata.baseelements.PropagationState;
+import org.bgee.model.species.Species;
+import org.bgee.pipeline.TestAncestor;
+import org.bgee.pipeline.expression.ConditionSweepPropagator.PropagatedCall;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ConditionSweepPropagator}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class ConditionSweepPropagatorTest extends TestAncestor {
+    private final static Logger log = LogManager.getLogger(ConditionSweepPropagatorTest.class.getName());
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Test {@link ConditionSweepPropagator#propagate(Map, Map)} on a chain of 3 conditions
+     * A > B > C, with data in A and C: "present" calls must be propagated to all ancestors,
+     * "absent" calls to direct children only, and the best call kept for each experiment.
+     */
+    @Test
+    public void shouldPropagate() {
+        Species spe = new Species(1);
+        Condition condA = new Condition(new AnatEntity("A"), null, spe);
+        Condition condB = new Condition(new AnatEntity("B"), null, spe);
+        Condition condC = new Condition(new AnatEntity("C"), null, spe);
+        Map<Condition, Set<Condition>> ancestors = new HashMap<>();
+        ancestors.put(condA, new HashSet<>());
+        ancestors.put(condB, new HashSet<>(Arrays.asList(condA)));
+        ancestors.put(condC, new HashSet<>(Arrays.asList(condA, condB)));
+        Map<Condition, Set<Condition>> descendants = new HashMap<>();
+        descendants.put(condA, new HashSet<>(Arrays.asList(condB)));
+        descendants.put(condB, new HashSet<>(Arrays.asList(condC)));
+        descendants.put(condC, new HashSet<>());
+
+        RawExpressionCallTO callTOC = new RawExpressionCallTO(1, 1, 1);
+        RawExpressionCallTO callTOA = new RawExpressionCallTO(2, 1, 2);
+        Map<Condition, Set<RawExpressionCallTO>> selfCallTOs = new HashMap<>();
+        selfCallTOs.put(condC, Collections.singleton(callTOC));
+        selfCallTOs.put(condA, Collections.singleton(callTOA));
+        Map<Condition, Map<DataType, Set<ExperimentExpressionTO>>> selfData = new HashMap<>();
+        selfData.put(condC, Collections.singletonMap(DataType.AFFYMETRIX, new HashSet<>(Arrays.asList(
+                new ExperimentExpressionTO(1, "exp1", 1, 0, 0, 0, CallQuality.HIGH, CallDirection.PRESENT),
+                new ExperimentExpressionTO(2, "exp2", 0, 0, 0, 1, CallQuality.LOW, CallDirection.ABSENT)))));
+        selfData.put(condA, Collections.singletonMap(DataType.AFFYMETRIX, new HashSet<>(Arrays.asList(
+                new ExperimentExpressionTO(3, "exp3", 0, 0, 1, 0, CallQuality.HIGH, CallDirection.ABSENT),
+                new ExperimentExpressionTO(4, "exp1", 0, 0, 0, 1, CallQuality.LOW, CallDirection.ABSENT)))));
+
+        DataPropagation selfDataProp = new DataPropagation(PropagationState.SELF, null, true);
+        ConditionSweepPropagator propagator = InsertPropagatedCalls.newSweepPropagator(
+                EnumSet.of(ConditionDAO.Attribute.ANAT_ENTITY_ID), ancestors::get, descendants::get);
+        Map<Condition, PropagatedCall> calls = propagator.propagate(selfCallTOs, selfData).stream()
+                .collect(Collectors.toMap(c -> c.getCondition(), Function.identity()));
+        assertEquals("Incorrect conditions", new HashSet<>(Arrays.asList(condA, condB, condC)),
+                calls.keySet());
+
+        //condition C: only its own data, "absent" calls from A are propagated to B only
+        PropagatedCall callC = calls.get(condC);
+        assertEquals("Incorrect data propagation", selfDataProp, callC.getDataPropagation());
+        assertEquals("Incorrect call data", Collections.singleton(new ExpressionCallData(
+                DataType.AFFYMETRIX, getCounts(1, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 1), 0,
+                null, null, null, selfDataProp)), callC.getCallData());
+        assertEquals("Incorrect self TOs", Collections.singleton(callTOC), callC.getSelfSourceCallTOs());
+        assertEquals("Incorrect parent TOs", Collections.emptySet(), callC.getParentSourceCallTOs());
+        assertEquals("Incorrect descendant TOs", Collections.emptySet(), callC.getDescendantSourceCallTOs());
+
+        //condition B: "absent" calls from A, "present" calls from C,
+        //the "present" call for exp1 wins over the "absent" call
+        PropagatedCall callB = calls.get(condB);
+        DataPropagation dataPropB = new DataPropagation(PropagationState.ANCESTOR_AND_DESCENDANT,
+                null, false);
+        assertEquals("Incorrect data propagation", dataPropB, callB.getDataPropagation());
+        assertEquals("Incorrect call data", Collections.singleton(new ExpressionCallData(
+                DataType.AFFYMETRIX, getCounts(0, 0, 0, 0, 1, 0, 1, 1, 1, 0, 1, 0), 2,
+                null, null, null, dataPropB)), callB.getCallData());
+        assertEquals("Incorrect self TOs", Collections.emptySet(), callB.getSelfSourceCallTOs());
+        assertEquals("Incorrect parent TOs", Collections.singleton(callTOA), callB.getParentSourceCallTOs());
+        assertEquals("Incorrect descendant TOs", Collections.singleton(callTOC),
+                callB.getDescendantSourceCallTOs());
+
+        //condition A: its own data and "present" calls from C, propagated through B
+        PropagatedCall callA = calls.get(condA);
+        DataPropagation dataPropA = new DataPropagation(PropagationState.SELF_AND_DESCENDANT,
+                null, true);
+        assertEquals("Incorrect data propagation", dataPropA, callA.getDataPropagation());
+        assertEquals("Incorrect call data", Collections.singleton(new ExpressionCallData(
+                DataType.AFFYMETRIX, getCounts(0, 0, 1, 1, 1, 0, 0, 0, 1, 0, 1, 0), 1,
+                null, null, null, dataPropA)), callA.getCallData());
+        assertEquals("Incorrect self TOs", Collections.singleton(callTOA), callA.getSelfSourceCallTOs());
+        assertEquals("Incorrect parent TOs", Collections.emptySet(), callA.getParentSourceCallTOs());
+        assertEquals("Incorrect descendant TOs", Collections.singleton(callTOC),
+                callA.getDescendantSourceCallTOs());
+    }
+
+    /**
+     * Test that no call is produced in a condition receiving only "present" calls
+     * from its parent.
+     */
+    @Test
+    public void shouldNotPropagatePresentCallsToChildren() {
+        Species spe = new Species(1);
+        Condition condA = new Condition(new AnatEntity("A"), null, spe);
+        Condition condB = new Condition(new AnatEntity("B"), null, spe);
+        Map<Condition, Set<Condition>> ancestors = new HashMap<>();
+        ancestors.put(condA, new HashSet<>());
+        ancestors.put(condB, new HashSet<>(Arrays.asList(condA)));
+        Map<Condition, Set<Condition>> descendants = new HashMap<>();
+        descendants.put(condA, new HashSet<>(Arrays.asList(condB)));
+        descendants.put(condB, new HashSet<>());
+
+        RawExpressionCallTO callTOA = new RawExpressionCallTO(1, 1, 1);
+        ConditionSweepPropagator propagator = InsertPropagatedCalls.newSweepPropagator(
+                EnumSet.of(ConditionDAO.Attribute.ANAT_ENTITY_ID), ancestors::get, descendants::get);
+        Set<Condition> conds = propagator.propagate(Collections.singletonMap(condA,
+                Collections.singleton(callTOA)),
+                Collections.singletonMap(condA, Collections.singletonMap(DataType.RNA_SEQ,
+                        Collections.singleton(new ExperimentExpressionTO(1, "exp1", 1, 0, 0, 0,
+                                CallQuality.HIGH, CallDirection.PRESENT)))))
+                .stream().map(c -> c.getCondition()).collect(Collectors.toSet());
+        assertEquals("Incorrect conditions", Collections.singleton(condA), conds);
+    }
+
+    /**
+     * Test that {@link InsertPropagatedCalls#propagateAndReconcileBySweep(Map, Set, Map,
+     * ConditionRelationTable)} produces the same {@code GlobalExpressionCallTO}s as
+     * the original propagation {@link InsertPropagatedCalls#propagateAndReconcileByPairs(Map,
+     * Set, Map, ConditionRelationTable)}, on a fixture species with anatomical entities
+     * A > B > C and A > D, and developmental stages S1 > S2 and S1 > S3, for all combinations
+     * of condition parameters.
+     */
+    @Test
+    public void shouldProduceSameCallsAsOriginalPropagation() {
+        Map<String, String> anatParents = new HashMap<>();
+        anatParents.put("B", "A");
+        anatParents.put("C", "B");
+        anatParents.put("D", "A");
+        Map<String, String> stageParents = new HashMap<>();
+        stageParents.put("S2", "S1");
+        stageParents.put("S3", "S1");
+        //raw condition IDs associated to their anat. entity and stage IDs,
+        //raw conditions 1 and 2 are mapped to a same condition
+        Map<Integer, List<String>> rawConds = new HashMap<>();
+        rawConds.put(1, Arrays.asList("C", "S2"));
+        rawConds.put(2, Arrays.asList("C", "S2"));
+        rawConds.put(3, Arrays.asList("B", "S3"));
+        rawConds.put(4, Arrays.asList("D", "S2"));
+        rawConds.put(5, Arrays.asList("A", "S1"));
+        rawConds.put(6, Arrays.asList("C", "S3"));
+
+        //raw calls of one gene with their experiment expressions, with conflicting calls
+        //for a same experiment in different conditions
+        int geneId = 1;
+        Map<RawExpressionCallTO, Map<DataType, Set<ExperimentExpressionTO>>> geneData = new HashMap<>();
+        addRawCall(geneData, geneId, 1, DataType.AFFYMETRIX, "exp1", CallQuality.HIGH, CallDirection.PRESENT);
+        addRawCall(geneData, geneId, 1, DataType.RNA_SEQ, "exp2", CallQuality.LOW, CallDirection.ABSENT);
+        addRawCall(geneData, geneId, 2, DataType.AFFYMETRIX, "exp3", CallQuality.LOW, CallDirection.PRESENT);
+        addRawCall(geneData, geneId, 3, DataType.AFFYMETRIX, "exp1", CallQuality.HIGH, CallDirection.ABSENT);
+        addRawCall(geneData, geneId, 3, DataType.RNA_SEQ, "exp2", CallQuality.HIGH, CallDirection.PRESENT);
+        addRawCall(geneData, geneId, 4, DataType.RNA_SEQ, "exp4", CallQuality.HIGH, CallDirection.ABSENT);
+        addRawCall(geneData, geneId, 5, DataType.AFFYMETRIX, "exp5", CallQuality.LOW, CallDirection.ABSENT);
+        addRawCall(geneData, geneId, 5, DataType.RNA_SEQ, "exp4", CallQuality.LOW, CallDirection.PRESENT);
+        addRawCall(geneData, geneId, 6, DataType.AFFYMETRIX, "exp1", CallQuality.LOW, CallDirection.PRESENT);
+
+        Species spe = new Species(1);
+        DAOManager manager = mock(DAOManager.class);
+        ServiceFactory serviceFactory = mock(ServiceFactory.class);
+        when(serviceFactory.getDAOManager()).thenReturn(manager);
+
+        for (Set<ConditionDAO.Attribute> condParams: Arrays.asList(
+                EnumSet.of(ConditionDAO.Attribute.ANAT_ENTITY_ID),
+                EnumSet.of(ConditionDAO.Attribute.ANAT_ENTITY_ID, ConditionDAO.Attribute.STAGE_ID))) {
+            boolean withStage = condParams.contains(ConditionDAO.Attribute.STAGE_ID);
+            Map<Integer, Condition> condMap = rawConds.entrySet().stream()
+                    .collect(Collectors.toMap(e -> e.getKey(), e -> new Condition(
+                            new AnatEntity(e.getValue().get(0)),
+                            withStage? new DevStage(e.getValue().get(1)): null, spe)));
+
+            //all conditions, including inferred ancestral conditions
+            List<Condition> conditions = new ArrayList<>();
+            for (String anatEntityId: Arrays.asList("A", "B", "C", "D")) {
+                for (String stageId: withStage? Arrays.asList("S1", "S2", "S3"):
+                        Collections.<String>singletonList(null)) {
+                    conditions.add(new Condition(new AnatEntity(anatEntityId),
+                            stageId == null? null: new DevStage(stageId), spe));
+                }
+            }
+            ConditionGraph graph = mock(ConditionGraph.class);
+            when(graph.getConditions()).thenReturn(new HashSet<>(conditions));
+            for (Condition cond: conditions) {
+                when(graph.getAncestorConditions(cond)).thenReturn(conditions.stream()
+                        .filter(c -> !c.equals(cond) &&
+                                isSelfOrAncestor(c.getAnatEntityId(), cond.getAnatEntityId(), anatParents) &&
+                                isSelfOrAncestor(c.getDevStageId(), cond.getDevStageId(), stageParents))
+                        .collect(Collectors.toSet()));
+                //"absent" calls are propagated to direct descendants only
+                when(graph.getDescendantConditions(cond, false, false,
+                        InsertPropagatedCalls.NB_SUBLEVELS_MAX, null)).thenReturn(conditions.stream()
+                        .filter(c -> !c.equals(cond) &&
+                                isSelfOrParent(cond.getAnatEntityId(), c.getAnatEntityId(), anatParents) &&
+                                isSelfOrParent(cond.getDevStageId(), c.getDevStageId(), stageParents))
+                        .collect(Collectors.toSet()));
+            }
+
+            InsertPropagatedCalls propagation = new InsertPropagatedCalls(() -> serviceFactory,
+                    Collections.singletonList(condParams), spe.getId());
+            ConditionRelationTable relationTable = propagation.loadConditionRelationTable(
+                    condParams, graph);
+            Map<Condition, Integer> condIndexes = IntStream.range(0, conditions.size()).boxed()
+                    .collect(Collectors.toMap(i -> conditions.get(i), i -> i));
+
+            Set<List<Object>> sweepTOs = propagation.propagateAndReconcileBySweep(geneData,
+                    condParams, condMap, relationTable).stream()
+                    .map(c -> toComparableCallTO(geneId, condIndexes.get(c.getCondition()),
+                            c.getCallData(), c.getParentSourceCallTOs(), c.getSelfSourceCallTOs(),
+                            c.getDescendantSourceCallTOs()))
+                    .collect(Collectors.toSet());
+            Set<List<Object>> pairTOs = propagation.propagateAndReconcileByPairs(geneData,
+                    condParams, condMap, relationTable).stream()
+                    .map(c -> toComparableCallTO(geneId, condIndexes.get(c.getCondition()),
+                            c.getCallData(), c.getParentSourceCallTOs(), c.getSelfSourceCallTOs(),
+                            c.getDescendantSourceCallTOs()))
+                    .collect(Collectors.toSet());
+
+            assertFalse("No calls produced for " + condParams, pairTOs.isEmpty());
+            assertEquals("Different calls produced for " + condParams, pairTOs, sweepTOs);
+        }
+    }
+
+    /**
+     * Add to {@code geneData} the raw call in raw condition {@code rawCondId},
+     * with one experiment expression for {@code dataType}.
+     */
+    private static void addRawCall(
+            Map<RawExpressionCallTO, Map<DataType, Set<ExperimentExpressionTO>>> geneData,
+            int geneId, int rawCondId, DataType dataType, String expId, CallQuality quality,
+            CallDirection direction) {
+        //the ID of the raw call is the ID of its raw condition
+        RawExpressionCallTO callTO = geneData.keySet().stream()
+                .filter(c -> c.getConditionId() == rawCondId)
+                .findAny().orElse(new RawExpressionCallTO(rawCondId, geneId, rawCondId));
+        boolean present = direction == CallDirection.PRESENT;
+        boolean high = quality == CallQuality.HIGH;
+        geneData.computeIfAbsent(callTO, k -> new HashMap<>())
+                .computeIfAbsent(dataType, k -> new HashSet<>())
+                .add(new ExperimentExpressionTO(rawCondId, expId,
+                        present && high? 1: 0, present && !high? 1: 0,
+                        !present && high? 1: 0, !present && !high? 1: 0, quality, direction));
+    }
+
+    private static boolean isSelfOrAncestor(String ancestorId, String id, Map<String, String> parents) {
+        for (String current = id; current != null; current = parents.get(current)) {
+            if (current.equals(ancestorId)) {
+                return true;
+            }
+        }
+        return ancestorId == null && id == null;
+    }
+    private static boolean isSelfOrParent(String parentId, String id, Map<String, String> parents) {
+        return parentId == null && id == null ||
+                id != null && (id.equals(parentId) || parentId != null && parentId.equals(parents.get(id)));
+    }
+
+    /**
+     * @return  A {@code List} representing the {@code GlobalExpressionCallTO} inserted
+     *          for the provided call, with its data, and the raw conditions of its source calls,
+     *          that can be compared with {@code equals}.
+     */
+    private static List<Object> toComparableCallTO(int geneId, int condIndex,
+            Collection<ExpressionCallData> callData, Set<RawExpressionCallTO> parentSourceCallTOs,
+            Set<RawExpressionCallTO> selfSourceCallTOs, Set<RawExpressionCallTO> descendantSourceCallTOs) {
+        CompactPipelineCall call = CompactPipelineCall.encode(geneId, condIndex, callData,
+                parentSourceCallTOs, selfSourceCallTOs, descendantSourceCallTOs);
+        GlobalExpressionCallTO callTO = new GlobalExpressionCallTO(null, call.getBgeeGeneId(),
+                call.getConditionIndex(), null, call.toCallDataTOs());
+        //GlobalExpressionCallDataTOs do not implement equals
+        Map<DAODataType, List<Object>> callDataByDataType = new TreeMap<>();
+        for (GlobalExpressionCallDataTO dataTO: callTO.getCallDataTOs()) {
+            callDataByDataType.put(dataTO.getDataType(), Arrays.asList(
+                    dataTO.isConditionObservedData(), new TreeMap<>(dataTO.getDataPropagation()),
+                    Arrays.toString(dataTO.getExperimentCountVector()), dataTO.getPropagatedCount()));
+        }
+        return Arrays.asList(callTO.getBgeeGeneId(), callTO.getConditionId(), callDataByDataType,
+                Arrays.toString(call.getParentRawConditionIds()),
+                Arrays.toString(call.getSelfRawConditionIds()),
+                Arrays.toString(call.getDescendantRawConditionIds()));
+    }
+
+    /**
+     * @return  The {@code Set} of {@code ExperimentExpressionCount}s with the provided counts,
+     *          in the order: self present high, self present low, self absent high, self absent low,
+     *          descendant present high, descendant present low, ancestor absent high,
+     *          ancestor absent low, all present high, all present low, all absent high,
+     *          all absent low.
+     */
+    private static Set<ExperimentExpressionCount> getCounts(int... counts) {
+        PropagationState[] states = new PropagationState[]{
+                PropagationState.SELF, PropagationState.SELF, PropagationState.SELF, PropagationState.SELF,
+                PropagationState.DESCENDANT, PropagationState.DESCENDANT,
+                PropagationState.ANCESTOR, PropagationState.ANCESTOR,
+                PropagationState.ALL, PropagationState.ALL, PropagationState.ALL, PropagationState.ALL};
+        CallType.Expression[] callTypes = new CallType.Expression[]{
+                CallType.Expression.EXPRESSED, CallType.Expression.EXPRESSED,
+                CallType.Expression.NOT_EXPRESSED, CallType.Expression.NOT_EXPRESSED,
+                CallType.Expression.EXPRESSED, CallType.Expression.EXPRESSED,
+                CallType.Expression.NOT_EXPRESSED, CallType.Expression.NOT_EXPRESSED,
+                CallType.Expression.EXPRESSED, CallType.Expression.EXPRESSED,
+                CallType.Expression.NOT_EXPRESSED, CallType.Expression.NOT_EXPRESSED};
+        Set<ExperimentExpressionCount> expCounts = new HashSet<>();
+        for (int i = 0; i < counts.length; i++) {
+            expCounts.add(new ExperimentExpressionCount(callTypes[i],
+                    i % 2 == 0? DataQuality.HIGH: DataQuality.LOW, states[i], counts[i]));
+        }
+        return expCounts;
+    }
+}
@@ -0,0 +1,235 @@
+package org.bgee.pipeline.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO.ConditionTO;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO.GlobalConditionToRawConditionTO;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO.GlobalConditionToRawConditionTO.ConditionRelationOrigin;
+import org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO.GlobalExpressionCallTO;
+import org.bgee.pipeline.TestAncestor;
+import org.bgee.pipeline.expression.DistributedPropagation.UnitProcessor;
+import org.bgee.pipeline.expression.DistributedPropagation.WorkUnit;
+import org.bgee.pipeline.expression.PropagatedCallFileWriter.Table;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link DistributedPropagation}. The propagation is replaced by
+ * a fake {@code UnitProcessor} producing, for each gene, one call in one of two
+ * global conditions, with IDs local to each work unit.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class DistributedPropagationTest extends TestAncestor {
+    private final static Logger log = LogManager.getLogger(DistributedPropagationTest.class.getName());
+
+    private final static int SPECIES_ID = 9606;
+    private final static int GENE_COUNT = 8;
+
+    /**
+     * A fake {@code UnitProcessor}: genes with an even ID have data in condition "UBERON:0",
+     * others in condition "UBERON:1". Global condition IDs and global expression IDs
+     * start at 1 in each unit.
+     */
+    private final static UnitProcessor FAKE_PROCESSOR = (unit, outputDir) -> {
+        try (PropagatedCallFileWriter writer = new PropagatedCallFileWriter(outputDir,
+                unit.getSpeciesId())) {
+            Set<ConditionTO> condTOs = new HashSet<>();
+            Set<GlobalConditionToRawConditionTO> relTOs = new HashSet<>();
+            List<GlobalExpressionCallTO> callTOs = new ArrayList<>();
+            int exprId = 0;
+            for (int geneId = unit.getFirstBgeeGeneId(); geneId <= unit.getLastBgeeGeneId(); geneId++) {
+                int condId = geneId % 2 + 1;
+                condTOs.add(new ConditionTO(condId, "UBERON:" + (geneId % 2), null,
+                        unit.getSpeciesId(), null));
+                relTOs.add(new GlobalConditionToRawConditionTO(10 + geneId % 2, condId,
+                        ConditionRelationOrigin.SELF));
+                callTOs.add(new GlobalExpressionCallTO(++exprId, geneId, condId, null, null));
+            }
+            writer.writeGlobalConditions(condTOs);
+            writer.writeGlobalCondToRawConds(new ArrayList<>(relTOs));
+            writer.writeGlobalCalls(callTOs);
+        }
+    };
+
+    /**
+     * A worker running in a separate JVM, see {@link DistributedPropagationTest#shouldRunWorkersInSeveralJVMs()}.
+     */
+    public static class Worker {
+        /**
+         * @param args  The path to the work directory, and the worker ID.
+         */
+        public static void main(String[] args) {
+            new DistributedPropagation(Paths.get(args[0]), args[1], 60000, 3, 50, FAKE_PROCESSOR, null)
+                .work();
+        }
+    }
+
+    @Rule
+    public final TemporaryFolder testFolder = new TemporaryFolder();
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Test the processing of work units by several workers, with a unit failing
+     * at its first attempt, and a unit whose lease expired, then the merge of the outputs.
+     */
+    @Test
+    public void shouldProcessAndMergeUnits() throws Exception {
+        Path workDir = this.testFolder.getRoot().toPath().resolve("work");
+        DistributedPropagation coordinator = new DistributedPropagation(workDir, "coordinator",
+                60000, 3, 50, FAKE_PROCESSOR, null);
+        coordinator.publishUnits(getUnits(), Collections.singletonList(SPECIES_ID), 100, 1000);
+        //lease of a worker that died
+        Files.write(workDir.resolve("leases").resolve("u000003.1"),
+                Arrays.asList("workerId=dead", "expiresAt=1"), StandardCharsets.ISO_8859_1);
+
+        Set<String> failedOnce = ConcurrentHashMap.newKeySet();
+        UnitProcessor failingOnce = (unit, outputDir) -> {
+            if (unit.getId().equals("u000002") && failedOnce.add(unit.getId())) {
+                throw new IllegalStateException("Fake error");
+            }
+            FAKE_PROCESSOR.process(unit, outputDir);
+        };
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            DistributedPropagation worker = new DistributedPropagation(workDir, "worker" + i,
+                    60000, 3, 50, failingOnce, null);
+            workers.add(new Thread(() -> worker.work()));
+        }
+        workers.forEach(t -> t.start());
+        for (Thread t: workers) {
+            t.join();
+        }
+        coordinator.awaitCompletion();
+        assertTrue("Unit failing once not retried",
+                Files.exists(workDir.resolve("leases").resolve("u000002.2")));
+        assertTrue("Expired unit not claimed again",
+                Files.exists(workDir.resolve("leases").resolve("u000003.2")));
+
+        Path outputDir = this.testFolder.getRoot().toPath().resolve("merged");
+        coordinator.merge(outputDir);
+        this.checkMergedFiles(outputDir);
+    }
+
+    /**
+     * Test that a unit failing at all attempts makes the job fail.
+     */
+    @Test
+    public void shouldFailAfterMaxAttempts() throws Exception {
+        Path workDir = this.testFolder.getRoot().toPath().resolve("work");
+        DistributedPropagation coordinator = new DistributedPropagation(workDir, "coordinator",
+                60000, 2, 50, FAKE_PROCESSOR, null);
+        coordinator.publishUnits(getUnits(), Collections.singletonList(SPECIES_ID), 100, 1000);
+        new DistributedPropagation(workDir, "worker", 60000, 2, 50, (unit, outputDir) -> {
+            if (unit.getId().equals("u000004")) {
+                throw new IllegalStateException("Fake error");
+            }
+            FAKE_PROCESSOR.process(unit, outputDir);
+        }, null).work();
+
+        try {
+            coordinator.awaitCompletion();
+            fail("An exception should be thrown when a unit failed");
+        } catch (IllegalStateException e) {
+            //test passed
+        }
+        assertTrue("Incorrect number of attempts",
+                Files.exists(workDir.resolve("leases").resolve("u000004.2")) &&
+                !Files.exists(workDir.resolve("leases").resolve("u000004.3")));
+    }
+
+    /**
+     * Test the processing of work units by workers running in several local JVMs.
+     */
+    @Test
+    public void shouldRunWorkersInSeveralJVMs() throws Exception {
+        Path workDir = this.testFolder.getRoot().toPath().resolve("work");
+        DistributedPropagation coordinator = new DistributedPropagation(workDir, "coordinator",
+                60000, 3, 50, FAKE_PROCESSOR, null);
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    Worker.class.getName(), workDir.toString(), "jvm" + i)
+                .redirectErrorStream(true)
+                .redirectOutput(new File(this.testFolder.getRoot(), "jvm" + i + ".log"))
+                .start());
+        }
+        //workers wait for the job to be published
+        coordinator.publishUnits(getUnits(), Collections.singletonList(SPECIES_ID), 100, 1000);
+        coordinator.awaitCompletion();
+        for (Process process: processes) {
+            assertEquals("Worker failed", 0, process.waitFor());
+        }
+
+        Path outputDir = this.testFolder.getRoot().toPath().resolve("merged");
+        coordinator.merge(outputDir);
+        this.checkMergedFiles(outputDir);
+    }
+
+    /**
+     * @return  A {@code List} of {@code WorkUnit}s, each covering 2 genes.
+     */
+    private static List<WorkUnit> getUnits() {
+        List<WorkUnit> units = new ArrayList<>();
+        for (int i = 1; i <= GENE_COUNT; i += 2) {
+            units.add(new WorkUnit(String.format("u%06d", units.size() + 1), SPECIES_ID,
+                    EnumSet.of(ConditionDAO.Attribute.ANAT_ENTITY_ID), i, i + 1));
+        }
+        return units;
+    }
+
+    private void checkMergedFiles(Path outputDir) throws Exception {
+        List<String> lines = Files.readAllLines(outputDir.resolve(Table.GLOBAL_COND.getFileName(SPECIES_ID)),
+                StandardCharsets.UTF_8);
+        assertEquals("Incorrect global conditions", Arrays.asList(
+                String.join("\t", Table.GLOBAL_COND.getColumns()),
+                "101\t9606\tUBERON:0\t\\N",
+                "102\t9606\tUBERON:1\t\\N"), lines);
+
+        lines = Files.readAllLines(outputDir.resolve(Table.GLOBAL_COND_TO_COND.getFileName(SPECIES_ID)),
+                StandardCharsets.UTF_8);
+        assertEquals("Incorrect relations", Arrays.asList(
+                String.join("\t", Table.GLOBAL_COND_TO_COND.getColumns()),
+                "10\t101\tself",
+                "11\t102\tself"), lines);
+
+        lines = Files.readAllLines(outputDir.resolve(Table.GLOBAL_EXPRESSION.getFileName(SPECIES_ID)),
+                StandardCharsets.UTF_8);
+        assertEquals("Incorrect number of calls", GENE_COUNT + 1, lines.size());
+        List<String> expected = new ArrayList<>();
+        for (int geneId = 1; geneId <= GENE_COUNT; geneId++) {
+            expected.add((1000 + geneId) + "\t" + geneId + "\t" + (geneId % 2 == 0? 101: 102));
+        }
+        assertEquals("Incorrect calls", expected, lines.subList(1, lines.size()).stream()
+                .map(l -> Arrays.stream(l.split("\t")).limit(3).collect(Collectors.joining("\t")))
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,138 @@
+package org.bgee.pipeline.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.api.DAOManager;
+import org.bgee.pipeline.TestAncestor;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link GeneGroupPrefetcher}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class GeneGroupPrefetcherTest extends TestAncestor {
+    private final static Logger log = LogManager.getLogger(GeneGroupPrefetcherTest.class.getName());
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Test that all groups are loaded and taken, at most one {@code DAOManager} being used
+     * by each loading thread, and closed once all groups are loaded.
+     */
+    @Test
+    public void shouldTakeAllGroups() throws InterruptedException {
+        List<Set<Integer>> geneGroups = IntStream.range(0, 10)
+                .mapToObj(i -> (Set<Integer>) new HashSet<>(Arrays.asList(2 * i, 2 * i + 1)))
+                .collect(Collectors.toList());
+        List<DAOManager> managers = Collections.synchronizedList(new ArrayList<>());
+
+        Set<Set<Integer>> takenGroups = new HashSet<>();
+        try (GeneGroupPrefetcher<Set<Integer>> prefetcher = new GeneGroupPrefetcher<>(geneGroups, 3,
+                () -> {
+                    DAOManager manager = mock(DAOManager.class);
+                    managers.add(manager);
+                    return manager;
+                }, (manager, geneIds) -> geneIds)) {
+            Set<Integer> group;
+            while ((group = prefetcher.take()) != null) {
+                takenGroups.add(group);
+            }
+            assertNull("No more groups should be returned", prefetcher.take());
+        }
+        assertEquals("Incorrect groups taken", new HashSet<>(geneGroups), takenGroups);
+        //a loading thread can still be starting after all groups were taken
+        List<DAOManager> usedManagers;
+        synchronized (managers) {
+            usedManagers = new ArrayList<>(managers);
+        }
+        assertTrue("Incorrect number of DAOManagers used",
+                usedManagers.size() >= 1 && usedManagers.size() <= 3);
+        for (DAOManager manager: usedManagers) {
+            verify(manager, timeout(5000)).close();
+        }
+    }
+
+    /**
+     * Test that no more groups than the prefetch depth are loaded without being taken.
+     */
+    @Test
+    public void shouldBoundPrefetchedGroups() throws InterruptedException {
+        List<Set<Integer>> geneGroups = IntStream.range(0, 20)
+                .mapToObj(i -> Collections.singleton(i))
+                .collect(Collectors.toList());
+        AtomicInteger loadedCount = new AtomicInteger(0);
+        CountDownLatch depthReached = new CountDownLatch(2);
+        Set<Integer> loadingThreads = ConcurrentHashMap.newKeySet();
+
+        try (GeneGroupPrefetcher<Set<Integer>> prefetcher = new GeneGroupPrefetcher<>(geneGroups, 2,
+                () -> mock(DAOManager.class), (manager, geneIds) -> {
+                    loadingThreads.add(System.identityHashCode(Thread.currentThread()));
+                    loadedCount.incrementAndGet();
+                    depthReached.countDown();
+                    return geneIds;
+                })) {
+            assertTrue("Groups not prefetched", depthReached.await(10, TimeUnit.SECONDS));
+            //give the loading threads the opportunity to load more groups than allowed
+            Thread.sleep(200);
+            assertEquals("Incorrect number of prefetched groups", 2, loadedCount.get());
+
+            prefetcher.take();
+            long start = System.currentTimeMillis();
+            while (loadedCount.get() < 3 && System.currentTimeMillis() - start < 10000) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+            assertEquals("Incorrect number of prefetched groups after take", 3, loadedCount.get());
+        }
+        assertTrue("Incorrect number of loading threads", loadingThreads.size() <= 2);
+    }
+
+    /**
+     * Test that an error while loading a group is rethrown to all consumers.
+     */
+    @Test
+    public void shouldRethrowLoadingError() throws InterruptedException {
+        List<Set<Integer>> geneGroups = IntStream.range(0, 5)
+                .mapToObj(i -> Collections.singleton(i))
+                .collect(Collectors.toList());
+        try (GeneGroupPrefetcher<Set<Integer>> prefetcher = new GeneGroupPrefetcher<>(geneGroups, 1,
+                () -> mock(DAOManager.class), (manager, geneIds) -> {
+                    throw new IllegalArgumentException("Test loading error");
+                })) {
+            for (int i = 0; i < 2; i++) {
+                try {
+                    prefetcher.take();
+                    fail("An exception should have been thrown");
+                } catch (IllegalStateException e) {
+                    assertTrue("Incorrect cause", e.getCause() instanceof IllegalArgumentException);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.bgee.pipeline.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.pipeline.TestAncestor;
+import org.bgee.pipeline.expression.IdBlockAllocator.IdBlock;
+import org.bgee.pipeline.expression.IdBlockAllocator.IdRange;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link IdBlockAllocator}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class IdBlockAllocatorTest extends TestAncestor {
+    private final static Logger log = LogManager.getLogger(IdBlockAllocatorTest.class.getName());
+
+    @Rule
+    public final TemporaryFolder testFolder = new TemporaryFolder();
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Test the reservation and release of ranges of IDs, with a state held in memory.
+     */
+    @Test
+    public void shouldReserveAndRelease() {
+        IdBlockAllocator allocator = new IdBlockAllocator(null, 10);
+        allocator.initialize("cond", 100);
+        assertEquals("Incorrect range", new IdRange(101, 110), allocator.reserve("cond"));
+        assertEquals("Incorrect range", new IdRange(111, 120), allocator.reserve("cond"));
+        assertEquals("Sequences should be independent", new IdRange(1, 10),
+                allocator.reserve("expr"));
+
+        //returned IDs not at the end of the sequence are reserved again
+        allocator.release("cond", new IdRange(105, 110));
+        assertEquals("Incorrect range", new IdRange(105, 110), allocator.reserve("cond"));
+        //returned IDs at the end of the sequence are simply not reserved yet
+        allocator.release("cond", new IdRange(115, 120));
+        assertEquals("Incorrect range", new IdRange(115, 124), allocator.reserve("cond"));
+
+        //initializing with a lower ID has no effect
+        allocator.initialize("cond", 50);
+        assertEquals("Incorrect range", new IdRange(125, 134), allocator.reserve("cond"));
+    }
+
+    /**
+     * Test that adjacent returned ranges are merged.
+     */
+    @Test
+    public void shouldMergeReleasedRanges() {
+        IdBlockAllocator allocator = new IdBlockAllocator(null, 10);
+        allocator.reserve("cond");
+        allocator.reserve("cond");
+        allocator.reserve("cond");
+        allocator.release("cond", new IdRange(3, 5));
+        allocator.release("cond", new IdRange(6, 7));
+        assertEquals("Incorrect range", new IdRange(3, 7), allocator.reserve("cond"));
+        allocator.release("cond", new IdRange(11, 20));
+        allocator.release("cond", new IdRange(21, 30));
+        assertEquals("Incorrect range", new IdRange(11, 20), allocator.reserve("cond"));
+    }
+
+    /**
+     * Test that returned IDs less than or equal to the maximum ID used provided
+     * at initialization are not reserved again, as when returned IDs were persisted
+     * and then used by another process.
+     */
+    @Test
+    public void shouldDiscardUsedReleasedRanges() {
+        IdBlockAllocator allocator = new IdBlockAllocator(null, 10);
+        allocator.reserve("cond");
+        allocator.reserve("cond");
+        allocator.reserve("cond");
+        allocator.reserve("cond");
+        allocator.release("cond", new IdRange(3, 5));
+        allocator.release("cond", new IdRange(11, 20));
+        allocator.release("cond", new IdRange(25, 28));
+
+        allocator.initialize("cond", 14);
+        assertEquals("Incorrect range", new IdRange(15, 20), allocator.reserve("cond"));
+        assertEquals("Incorrect range", new IdRange(25, 28), allocator.reserve("cond"));
+        assertEquals("Incorrect range", new IdRange(41, 50), allocator.reserve("cond"));
+
+        //free ranges entirely below the maximum ID used are discarded
+        allocator.release("cond", new IdRange(45, 50));
+        allocator.release("cond", new IdRange(30, 35));
+        allocator.initialize("cond", 40);
+        assertEquals("Incorrect range", new IdRange(45, 54), allocator.reserve("cond"));
+    }
+
+    /**
+     * Test that an exception is thrown when returning IDs never reserved.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnreservedRange() {
+        IdBlockAllocator allocator = new IdBlockAllocator(null, 10);
+        allocator.reserve("cond");
+        allocator.release("cond", new IdRange(5, 15));
+    }
+
+    /**
+     * Test that allocators using a same file, as in different processes, never hand out
+     * a same ID, and that the unused IDs of closed {@code IdBlock}s are reserved again.
+     */
+    @Test
+    public void shouldShareStateThroughFile() throws IOException, Exception {
+        Path file = testFolder.newFolder().toPath().resolve("idAllocator.properties");
+        IdBlockAllocator allocator1 = new IdBlockAllocator(file, 7);
+        allocator1.initialize("expr", 1000);
+        IdBlockAllocator allocator2 = new IdBlockAllocator(file, 7);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<List<Integer>>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 4; i++) {
+                IdBlockAllocator allocator = i % 2 == 0? allocator1: allocator2;
+                futures.add(executor.submit(() -> {
+                    List<Integer> ids = new ArrayList<>();
+                    try (IdBlock block = allocator.newIdBlock("expr")) {
+                        for (int j = 0; j < 50; j++) {
+                            ids.add(block.nextId());
+                        }
+                    }
+                    return ids;
+                }));
+            }
+            Set<Integer> allIds = new HashSet<>();
+            for (Future<List<Integer>> future: futures) {
+                for (Integer id: future.get()) {
+                    assertTrue("ID handed out twice: " + id, allIds.add(id));
+                    assertTrue("ID already used: " + id, id > 1000);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        //the unused IDs of a closed IdBlock are reserved again by another allocator
+        try (IdBlock block = allocator1.newIdBlock("cond")) {
+            assertEquals("Incorrect ID", 1, block.nextId());
+            assertEquals("Incorrect ID", 2, block.nextId());
+        }
+        //the returned tail was at the end of the sequence, a full block is reserved
+        assertEquals("Unused IDs not returned", new IdRange(3, 9), allocator2.reserve("cond"));
+    }
+}
@@ -0,0 +1,82 @@
+package org.bgee.pipeline.expression;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO.ConditionTO;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO.GlobalConditionToRawConditionTO;
+import org.bgee.model.dao.api.expressiondata.ConditionDAO.GlobalConditionToRawConditionTO.ConditionRelationOrigin;
+import org.bgee.model.dao.api.expressiondata.GlobalExpressionCallDAO.GlobalExpressionCallTO;
+import org.bgee.pipeline.TestAncestor;
+import org.bgee.pipeline.expression.PropagatedCallFileWriter.Table;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link PropagatedCallFileWriter}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class PropagatedCallFileWriterTest extends TestAncestor {
+    private final static Logger log = LogManager.getLogger(PropagatedCallFileWriterTest.class.getName());
+
+    @Rule
+    public final TemporaryFolder testFolder = new TemporaryFolder();
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Test that the files written by {@link PropagatedCallFileWriter} have a header
+     * matching the table columns, rows sorted by ID, and {@code \N} for {@code NULL} values.
+     */
+    @Test
+    public void shouldWriteFiles() throws Exception {
+        Path dir = this.testFolder.getRoot().toPath().resolve("calls");
+        try (PropagatedCallFileWriter writer = new PropagatedCallFileWriter(dir, 9606)) {
+            writer.writeGlobalConditions(Arrays.asList(
+                    new ConditionTO(2, "UBERON:2", null, 9606, null),
+                    new ConditionTO(1, "UBERON:1", "UBERON:S", 9606, null)));
+            writer.writeGlobalCondToRawConds(Arrays.asList(
+                    new GlobalConditionToRawConditionTO(5, 2, ConditionRelationOrigin.DESCENDANT),
+                    new GlobalConditionToRawConditionTO(3, 1, ConditionRelationOrigin.SELF)));
+            writer.writeGlobalCalls(Collections.singleton(
+                    new GlobalExpressionCallTO(1, 10, 2, null, null)));
+        }
+
+        List<String> lines = Files.readAllLines(dir.resolve(Table.GLOBAL_COND.getFileName(9606)),
+                StandardCharsets.UTF_8);
+        assertEquals("Incorrect globalCond file", Arrays.asList(
+                String.join("\t", Table.GLOBAL_COND.getColumns()),
+                "1\t9606\tUBERON:1\tUBERON:S",
+                "2\t9606\tUBERON:2\t\\N"), lines);
+
+        lines = Files.readAllLines(dir.resolve(Table.GLOBAL_COND_TO_COND.getFileName(9606)),
+                StandardCharsets.UTF_8);
+        assertEquals("Incorrect globalCondToCond file", Arrays.asList(
+                String.join("\t", Table.GLOBAL_COND_TO_COND.getColumns()),
+                "3\t1\tself",
+                "5\t2\tdescendant"), lines);
+
+        lines = Files.readAllLines(dir.resolve(Table.GLOBAL_EXPRESSION.getFileName(9606)),
+                StandardCharsets.UTF_8);
+        assertEquals("Incorrect number of lines", 2, lines.size());
+        String[] values = lines.get(1).split("\t");
+        assertEquals("Incorrect number of values", Table.GLOBAL_EXPRESSION.getColumns().size(),
+                values.length);
+        assertEquals("Incorrect values", Arrays.asList("1", "10", "2", "\\N", "\\N", "\\N"),
+                Arrays.asList(values).subList(0, 6));
+    }
+}
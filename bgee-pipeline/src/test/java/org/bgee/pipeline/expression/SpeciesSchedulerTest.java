@@ -0,0 +1,120 @@
+package org.bgee.pipeline.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.pipeline.TestAncestor;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SpeciesScheduler}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class SpeciesSchedulerTest extends TestAncestor {
+    private final static Logger log = LogManager.getLogger(SpeciesSchedulerTest.class.getName());
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Test that species are run in the order provided when only one species
+     * is allowed at a time.
+     */
+    @Test
+    public void shouldRunSequentially() {
+        List<Integer> runOrder = Collections.synchronizedList(new ArrayList<>());
+        Map<Integer, Long> sizes = new HashMap<>();
+        sizes.put(1, 1L);
+        sizes.put(2, 100L);
+        sizes.put(3, 10L);
+        new SpeciesScheduler(1, 1000L).run(Arrays.asList(1, 2, 3), sizes, runOrder::add);
+        assertEquals("Incorrect run order", Arrays.asList(1, 2, 3), runOrder);
+    }
+
+    /**
+     * Test that the species run concurrently never exceed the size budget
+     * or the maximum number of species, and that a species larger than the budget
+     * is run alone.
+     */
+    @Test
+    public void shouldRespectBudget() {
+        Map<Integer, Long> sizes = new HashMap<>();
+        sizes.put(1, 150L);
+        sizes.put(2, 60L);
+        sizes.put(3, 40L);
+        sizes.put(4, 30L);
+        sizes.put(5, 20L);
+        sizes.put(6, 10L);
+        sizes.put(7, 10L);
+
+        AtomicInteger runningCount = new AtomicInteger(0);
+        AtomicLong runningSize = new AtomicLong(0);
+        AtomicInteger maxRunningCount = new AtomicInteger(0);
+        Set<Integer> runSpecies = ConcurrentHashMap.newKeySet();
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        new SpeciesScheduler(3, 100L).run(Arrays.asList(7, 6, 5, 4, 3, 2, 1), sizes, speciesId -> {
+            int count = runningCount.incrementAndGet();
+            long size = runningSize.addAndGet(sizes.get(speciesId));
+            maxRunningCount.accumulateAndGet(count, Math::max);
+            if (count > 3) {
+                errors.add("Too many species running: " + count);
+            }
+            if (size > 100L && count > 1) {
+                errors.add("Budget exceeded: " + size);
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            runningSize.addAndGet(-sizes.get(speciesId));
+            runningCount.decrementAndGet();
+            runSpecies.add(speciesId);
+        });
+        assertEquals("Incorrect errors", Collections.emptyList(), errors);
+        assertEquals("Not all species run", new HashSet<>(Arrays.asList(1, 2, 3, 4, 5, 6, 7)),
+                runSpecies);
+        assertTrue("Species should have been run concurrently", maxRunningCount.get() > 1);
+    }
+
+    /**
+     * Test that an exception thrown by a task is rethrown, and that no new species
+     * are started after it.
+     */
+    @Test
+    public void shouldRethrowTaskError() {
+        List<Integer> runOrder = Collections.synchronizedList(new ArrayList<>());
+        try {
+            new SpeciesScheduler(1, 0L).run(Arrays.asList(1, 2, 3), new HashMap<>(), speciesId -> {
+                runOrder.add(speciesId);
+                if (speciesId == 2) {
+                    throw new IllegalArgumentException("Test task error");
+                }
+            });
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            //test passed
+        }
+        assertEquals("Incorrect species run", Arrays.asList(1, 2), runOrder);
+    }
+}
@@ -174,6 +174,60 @@ public class BgeeProperties extends org.bgee.model.BgeeProperties
      */
     public final static String REQUEST_PARAMETERS_STORAGE_DIRECTORY_DEFAULT = 
             System.getProperty("java.io.tmpdir");
+    /**
+     * A {@code String} that is the key to access to the System property that is read at the 
+     * initialization of {@code BgeeProperties} to set the type of storage of request parameters: 
+     * {@code file}, to store each query string in a file named after its key, 
+     * or {@code log}, to store all query strings in a single append-only log file.
+     * 
+     * @see #REQUEST_PARAMETERS_STORAGE_TYPE_DEFAULT
+     * @see #getRequestParametersStorageType()
+     */
+    public final static String REQUEST_PARAMETERS_STORAGE_TYPE_KEY = 
+            "org.bgee.webapp.requestParametersStorageType";
+    /**
+     * A {@code String} that is the default value of the type of storage of request parameters.
+     * 
+     * @see #REQUEST_PARAMETERS_STORAGE_TYPE_KEY
+     * @see #getRequestParametersStorageType()
+     */
+    public final static String REQUEST_PARAMETERS_STORAGE_TYPE_DEFAULT = "file";
+    /**
+     * A {@code String} that is the key to access to the System property that is read at the 
+     * initialization of {@code BgeeProperties} to set the number of query strings kept 
+     * in memory by the {@code log} storage of request parameters.
+     * 
+     * @see #REQUEST_PARAMETERS_STORAGE_CACHE_SIZE_DEFAULT
+     * @see #getRequestParametersStorageCacheSize()
+     */
+    public final static String REQUEST_PARAMETERS_STORAGE_CACHE_SIZE_KEY = 
+            "org.bgee.webapp.requestParametersStorageCacheSize";
+    /**
+     * An {@code int} that is the default number of query strings kept in memory 
+     * by the {@code log} storage of request parameters.
+     * 
+     * @see #REQUEST_PARAMETERS_STORAGE_CACHE_SIZE_KEY
+     * @see #getRequestParametersStorageCacheSize()
+     */
+    public final static int REQUEST_PARAMETERS_STORAGE_CACHE_SIZE_DEFAULT = 1000;
+    /**
+     * A {@code String} that is the key to access to the System property that is read at the 
+     * initialization of {@code BgeeProperties} to set the number of days after their last access 
+     * when query strings are removed by the {@code log} storage of request parameters.
+     * 
+     * @see #REQUEST_PARAMETERS_STORAGE_TTL_DEFAULT
+     * @see #getRequestParametersStorageTTL()
+     */
+    public final static String REQUEST_PARAMETERS_STORAGE_TTL_KEY = 
+            "org.bgee.webapp.requestParametersStorageTTLInDays";
+    /**
+     * An {@code int} that is the default number of days after their last access 
+     * when stored query strings are removed. 0 means they are never removed.
+     * 
+     * @see #REQUEST_PARAMETERS_STORAGE_TTL_KEY
+     * @see #getRequestParametersStorageTTL()
+     */
+    public final static int REQUEST_PARAMETERS_STORAGE_TTL_DEFAULT = 0;
 
     /**
      * A {@code String} that is the key to access to the System property that is read at the 
@@ -525,6 +579,41 @@ public class BgeeProperties extends org.bgee.model.BgeeProperties
      */
     public final static String WEBPAGES_CACHE_CONFIG_FILE_NAME_DEFAULT = 
             "/ehcache-webpages.xml";
+    /**
+     * A {@code String} that is the key to access to the System property that contains 
+     * the maximum size in megabytes of the in-heap tier of the web pages cache, 
+     * in front of the ehcache storage.
+     * 
+     * @see #WEBPAGES_CACHE_HEAP_MAX_SIZE_DEFAULT
+     * @see #getWebpagesCacheHeapMaxSize()
+     */
+    public final static String WEBPAGES_CACHE_HEAP_MAX_SIZE_KEY = 
+            "org.bgee.webapp.webpages-cache.heapMaxSizeInMB";
+    /**
+     * An {@code int} that is the default maximum size in megabytes of the in-heap tier 
+     * of the web pages cache. 0 disables the in-heap tier.
+     * 
+     * @see #WEBPAGES_CACHE_HEAP_MAX_SIZE_KEY
+     * @see #getWebpagesCacheHeapMaxSize()
+     */
+    public final static int WEBPAGES_CACHE_HEAP_MAX_SIZE_DEFAULT = 64;
+    /**
+     * A {@code String} that is the key to access to the System property that contains 
+     * the date of the data release, in the format {@code yyyy-MM-dd}, used for the 
+     * {@code Last-Modified} header of cached web pages.
+     * 
+     * @see #DATA_RELEASE_DATE_DEFAULT
+     * @see #getDataReleaseDate()
+     */
+    public final static String DATA_RELEASE_DATE_KEY = "org.bgee.webapp.dataReleaseDate";
+    /**
+     * A {@code String} that is the default value of the date of the data release. 
+     * If {@code null}, the time when the webapp was started is used.
+     * 
+     * @see #DATA_RELEASE_DATE_KEY
+     * @see #getDataReleaseDate()
+     */
+    public final static String DATA_RELEASE_DATE_DEFAULT = null;
     
     /**
      * A {@code String} that is the key to access to the System property that contains the name 
@@ -652,6 +741,56 @@ public class BgeeProperties extends org.bgee.model.BgeeProperties
      */
     public final static Double GENE_SCORE_CLUSTERING_THRESHOLD_DEFAULT = 
             ExpressionCall.DEFAULT_DISTANCE_THRESHOLD; 
+    /**
+     * A {@code String} that is the key to access to the property containing 
+     * the duration in milliseconds above which a request is considered slow,
+     * and is sampled with the SQL queries it executed.
+     * 
+     * @see #SLOW_REQUEST_THRESHOLD_DEFAULT
+     * @see #getSlowRequestThreshold()
+     */
+    public final static String SLOW_REQUEST_THRESHOLD_KEY = "org.bgee.webapp.slowRequestThreshold";
+    /**
+     * An {@code int} that is the default value of the property containing 
+     * the duration in milliseconds above which a request is considered slow.
+     * 
+     * @see #SLOW_REQUEST_THRESHOLD_KEY
+     * @see #getSlowRequestThreshold()
+     */
+    public final static int SLOW_REQUEST_THRESHOLD_DEFAULT = 5000;
+    /**
+     * A {@code String} that is the key to access to the property defining 
+     * whether the request statistics are returned by the stats page with JSON display type.
+     * 
+     * @see #STATS_EXPOSED_DEFAULT
+     * @see #isStatsExposed()
+     */
+    public final static String STATS_EXPOSED_KEY = "org.bgee.webapp.statsExposed";
+    /**
+     * A {@code boolean} that is the default value of the property defining 
+     * whether the request statistics are returned by the stats page with JSON display type.
+     * 
+     * @see #STATS_EXPOSED_KEY
+     * @see #isStatsExposed()
+     */
+    public final static boolean STATS_EXPOSED_DEFAULT = false;
+    /**
+     * A {@code String} that is the key to access to the property containing 
+     * the token to provide to the stats page to obtain the details of the slow requests
+     * (URLs and SQL queries).
+     * 
+     * @see #STATS_ADMIN_TOKEN_DEFAULT
+     * @see #getStatsAdminToken()
+     */
+    public final static String STATS_ADMIN_TOKEN_KEY = "org.bgee.webapp.statsAdminToken";
+    /**
+     * A {@code String} that is the default value of the property containing 
+     * the token to provide to the stats page to obtain the details of the slow requests.
+     * 
+     * @see #STATS_ADMIN_TOKEN_KEY
+     * @see #getStatsAdminToken()
+     */
+    public final static String STATS_ADMIN_TOKEN_DEFAULT = null;
 
     /**
      * @return  An instance of {@code BgeeProperties} with values based on the System properties
@@ -712,6 +851,18 @@ public class BgeeProperties extends org.bgee.model.BgeeProperties
      * from previous large queries are stored. 
      */
     private final String requestParametersStorageDirectory;
+    /**
+     * @see #getRequestParametersStorageType()
+     */
+    private final String requestParametersStorageType;
+    /**
+     * @see #getRequestParametersStorageCacheSize()
+     */
+    private final int requestParametersStorageCacheSize;
+    /**
+     * @see #getRequestParametersStorageTTL()
+     */
+    private final int requestParametersStorageTTL;
 
     /**
      * A {@code String} that defines the root of URLs to Bgee, 
@@ -863,6 +1014,14 @@ public class BgeeProperties extends org.bgee.model.BgeeProperties
      * this properties. The default value is ehcache-webpages.xml
      */
     private final String webpagesCacheConfigFileName;
+    /**
+     * @see #getWebpagesCacheHeapMaxSize()
+     */
+    private final int webpagesCacheHeapMaxSize;
+    /**
+     * @see #getDataReleaseDate()
+     */
+    private final String dataReleaseDate;
     
     /**
      * A {@code String} that is the name of the path to be used in URL to link to a file stored
@@ -907,6 +1066,18 @@ public class BgeeProperties extends org.bgee.model.BgeeProperties
      * @see #getGeneScoreClusteringThreshold()
      */
     private final Double geneScoreClusteringThreshold;
+    /**
+     * @see #getSlowRequestThreshold()
+     */
+    private final int slowRequestThreshold;
+    /**
+     * @see #isStatsExposed()
+     */
+    private final boolean statsExposed;
+    /**
+     * @see #getStatsAdminToken()
+     */
+    private final String statsAdminToken;
 
     /**
      * Private constructor, can be only called through the use of one of the
@@ -937,6 +1108,12 @@ public class BgeeProperties extends org.bgee.model.BgeeProperties
         requestParametersStorageDirectory = getStringOption(prop, SYS_PROPS, FILE_PROPS, 
                 REQUEST_PARAMETERS_STORAGE_DIRECTORY_KEY,  
                 REQUEST_PARAMETERS_STORAGE_DIRECTORY_DEFAULT);
+        requestParametersStorageType = getStringOption(prop, SYS_PROPS, FILE_PROPS, 
+                REQUEST_PARAMETERS_STORAGE_TYPE_KEY, REQUEST_PARAMETERS_STORAGE_TYPE_DEFAULT);
+        requestParametersStorageCacheSize = getIntegerOption(prop, SYS_PROPS, FILE_PROPS, 
+                REQUEST_PARAMETERS_STORAGE_CACHE_SIZE_KEY, REQUEST_PARAMETERS_STORAGE_CACHE_SIZE_DEFAULT);
+        requestParametersStorageTTL = getIntegerOption(prop, SYS_PROPS, FILE_PROPS, 
+                REQUEST_PARAMETERS_STORAGE_TTL_KEY, REQUEST_PARAMETERS_STORAGE_TTL_DEFAULT);
         bgeeRootDirectory = getStringOption(prop, SYS_PROPS, FILE_PROPS, 
                 BGEE_ROOT_DIRECTORY_KEY, BGEE_ROOT_DIRECTORY_DEFAULT);
         bgeeStableRootDirectory = getStringOption(prop, SYS_PROPS, FILE_PROPS,
@@ -988,6 +1165,10 @@ public class BgeeProperties extends org.bgee.model.BgeeProperties
                 URL_MAX_LENGTH_KEY, URL_MAX_LENGTH_DEFAULT);
         webpagesCacheConfigFileName = getStringOption(prop, SYS_PROPS, FILE_PROPS, 
                 WEBPAGES_CACHE_CONFIG_FILE_NAME_KEY, WEBPAGES_CACHE_CONFIG_FILE_NAME_DEFAULT);
+        webpagesCacheHeapMaxSize = getIntegerOption(prop, SYS_PROPS, FILE_PROPS, 
+                WEBPAGES_CACHE_HEAP_MAX_SIZE_KEY, WEBPAGES_CACHE_HEAP_MAX_SIZE_DEFAULT);
+        dataReleaseDate = getStringOption(prop, SYS_PROPS, FILE_PROPS, 
+                DATA_RELEASE_DATE_KEY, DATA_RELEASE_DATE_DEFAULT);
         topAnatResultsUrlDirectory = getStringOption(prop, SYS_PROPS, FILE_PROPS, 
                 TOP_ANAT_RESULTS_URL_DIRECTORY_KEY,
                 TOP_ANAT_RESULTS_URL_DIRECTORY_DEFAULT);
@@ -1003,6 +1184,12 @@ public class BgeeProperties extends org.bgee.model.BgeeProperties
                 GENE_SCORE_CLUSTERING_METHOD_KEY, GENE_SCORE_CLUSTERING_METHOD_DEFAULT);
         geneScoreClusteringThreshold = getDoubleOption(prop, SYS_PROPS, FILE_PROPS, 
                 GENE_SCORE_CLUSTERING_THRESHOLD_KEY, GENE_SCORE_CLUSTERING_THRESHOLD_DEFAULT);
+        slowRequestThreshold = getIntegerOption(prop, SYS_PROPS, FILE_PROPS, 
+                SLOW_REQUEST_THRESHOLD_KEY, SLOW_REQUEST_THRESHOLD_DEFAULT);
+        statsExposed = getBooleanOption(prop, SYS_PROPS, FILE_PROPS, 
+                STATS_EXPOSED_KEY, STATS_EXPOSED_DEFAULT);
+        statsAdminToken = getStringOption(prop, SYS_PROPS, FILE_PROPS, 
+                STATS_ADMIN_TOKEN_KEY, STATS_ADMIN_TOKEN_DEFAULT);
         log.debug("Initialization done.");
         log.exit();
     }
@@ -1051,6 +1238,34 @@ public class BgeeProperties extends org.bgee.model.BgeeProperties
     public String getRequestParametersStorageDirectory() {
         return requestParametersStorageDirectory;
     }
+    /**
+     * @return  A {@code String} that is the type of storage of request parameters, 
+     *          either {@code file} or {@code log}.
+     * @see #REQUEST_PARAMETERS_STORAGE_TYPE_KEY
+     * @see #REQUEST_PARAMETERS_STORAGE_TYPE_DEFAULT
+     */
+    public String getRequestParametersStorageType() {
+        return requestParametersStorageType;
+    }
+    /**
+     * @return  An {@code int} that is the number of query strings kept in memory 
+     *          by the {@code log} storage of request parameters.
+     * @see #REQUEST_PARAMETERS_STORAGE_CACHE_SIZE_KEY
+     * @see #REQUEST_PARAMETERS_STORAGE_CACHE_SIZE_DEFAULT
+     */
+    public int getRequestParametersStorageCacheSize() {
+        return requestParametersStorageCacheSize;
+    }
+    /**
+     * @return  An {@code int} that is the number of days after their last access 
+     *          when query strings are removed by the {@code log} storage of request parameters, 
+     *          0 if they are never removed.
+     * @see #REQUEST_PARAMETERS_STORAGE_TTL_KEY
+     * @see #REQUEST_PARAMETERS_STORAGE_TTL_DEFAULT
+     */
+    public int getRequestParametersStorageTTL() {
+        return requestParametersStorageTTL;
+    }
 
     /**
      * @return  A {@code String} that defines the root of URLs to Bgee, for instance, 
@@ -1268,6 +1483,24 @@ public class BgeeProperties extends org.bgee.model.BgeeProperties
     public String getWebpagesCacheConfigFileName() {
         return webpagesCacheConfigFileName;
     }
+    /**
+     * @return  An {@code int} that is the maximum size in megabytes of the in-heap tier 
+     *          of the web pages cache, 0 if it is disabled.
+     * @see #WEBPAGES_CACHE_HEAP_MAX_SIZE_KEY
+     * @see #WEBPAGES_CACHE_HEAP_MAX_SIZE_DEFAULT
+     */
+    public int getWebpagesCacheHeapMaxSize() {
+        return webpagesCacheHeapMaxSize;
+    }
+    /**
+     * @return  A {@code String} that is the date of the data release, in the format 
+     *          {@code yyyy-MM-dd}, {@code null} if not defined.
+     * @see #DATA_RELEASE_DATE_KEY
+     * @see #DATA_RELEASE_DATE_DEFAULT
+     */
+    public String getDataReleaseDate() {
+        return dataReleaseDate;
+    }
   
     /**
      * @return A {@code String} that is the name of the path to be used in URL to link to a file stored 
@@ -1348,4 +1581,34 @@ public class BgeeProperties extends org.bgee.model.BgeeProperties
     public Double getGeneScoreClusteringThreshold() {
         return geneScoreClusteringThreshold;
     }
+    /**
+     * @return  An {@code int} that is the duration in milliseconds above which a request 
+     *          is considered slow, and is sampled with the SQL queries it executed.
+     * @see #SLOW_REQUEST_THRESHOLD_KEY
+     * @see #SLOW_REQUEST_THRESHOLD_DEFAULT
+     */
+    public int getSlowRequestThreshold() {
+        return slowRequestThreshold;
+    }
+    /**
+     * @return  A {@code boolean} defining whether the request statistics are returned
+     *          by the stats page with JSON display type. If {@code false}, the stats page
+     *          always responds with no content.
+     * @see #STATS_EXPOSED_KEY
+     * @see #STATS_EXPOSED_DEFAULT
+     */
+    public boolean isStatsExposed() {
+        return statsExposed;
+    }
+    /**
+     * @return  A {@code String} that is the token to provide to the stats page,
+     *          in the header {@code X-Bgee-Stats-Token}, to obtain the details
+     *          of the slow requests (URLs and SQL queries). If {@code null} or empty,
+     *          these details are never returned.
+     * @see #STATS_ADMIN_TOKEN_KEY
+     * @see #STATS_ADMIN_TOKEN_DEFAULT
+     */
+    public String getStatsAdminToken() {
+        return statsAdminToken;
+    }
 }
@@ -11,6 +11,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bgee.controller.exception.PageNotFoundException;
+import org.bgee.controller.utils.RequestStats;
+import org.bgee.controller.utils.RequestStats.Phase;
 import org.bgee.model.ServiceFactory;
 import org.bgee.model.anatdev.AnatEntity;
 import org.bgee.model.expressiondata.Call.ExpressionCall;
@@ -156,9 +158,13 @@ public class CommandGene extends CommandParent {
         String search = requestParameters.getQuery();
 
         if (StringUtils.isNotBlank(search)) {
+            long serviceStart = System.nanoTime();
             GeneMatchResult result = serviceFactory.getGeneMatchResultService(this.prop)
                     .searchByTerm(search, null, 0, 1000);
+            RequestStats.recordPhase(Phase.SERVICE, serviceStart);
+            long renderingStart = System.nanoTime();
             display.displayGeneSearchResult(search, result);
+            RequestStats.recordPhase(Phase.RENDERING, renderingStart);
             log.exit(); return;
         }
 
@@ -168,7 +174,9 @@ public class CommandGene extends CommandParent {
         }
 
         // NOTE: we retrieve genes after the sanity check on geneId to avoid to throw an exception
+        long serviceStart = System.nanoTime();
         Set<Gene> genes = serviceFactory.getGeneService().loadGenesByEnsemblId(geneId, true);
+        RequestStats.recordPhase(Phase.SERVICE, serviceStart);
         if (genes.size() == 0) {
             throw log.throwing(new PageNotFoundException("No gene corresponding to " + geneId));
         }
@@ -210,7 +218,12 @@ public class CommandGene extends CommandParent {
             throw log.throwing(new AssertionError("Impossible case"));
         }
 
-        display.displayGene(this.buildGeneResponse(selectedGene));
+        serviceStart = System.nanoTime();
+        GeneResponse geneResponse = this.buildGeneResponse(selectedGene);
+        RequestStats.recordPhase(Phase.SERVICE, serviceStart);
+        long renderingStart = System.nanoTime();
+        display.displayGene(geneResponse);
+        RequestStats.recordPhase(Phase.RENDERING, renderingStart);
         log.exit();
     }
 
@@ -2,10 +2,12 @@ package org.bgee.controller;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -39,6 +41,7 @@ import org.bgee.model.ontology.Ontology;
 import org.bgee.model.ontology.OntologyService;
 import org.bgee.model.species.Species;
 import org.bgee.model.species.SpeciesService;
+import org.bgee.view.ColumnarTableWriter;
 import org.bgee.view.RPackageDisplay;
 import org.bgee.view.ViewFactory;
 
@@ -49,7 +52,7 @@ import org.bgee.view.ViewFactory;
  * direct {@code DAO} calls (handled in {@link CommandDAO}).
  * 
  * @author  Frederic Bastian
- * @version Bgee 14 Mar. 2017
+ * @version Bgee 14 Jan. 2020
  * @see https://www.bioconductor.org/packages/BgeeDB/
  * @since   Bgee 14 Mar. 2017
  */
@@ -151,8 +154,6 @@ public class CommandRPackage extends CommandParent {
     private void processGetExpressionCalls() throws InvalidRequestException, IOException {
         log.entry();
 
-        RPackageDisplay display = this.viewFactory.getRPackageDisplay();
-
         //****************************************
         // Retrieve and filter request parameters
         //****************************************
@@ -224,10 +225,89 @@ public class CommandRPackage extends CommandParent {
                 callFilter,
                 //Attributes requested; no ordering requested
                 attrs, null);
-        display.displayCalls(requestedAttrs, callStream);
+        if (this.requestParameters.isBinaryDisplayType()) {
+            //we write directly to the response outputstream, the RPackageDisplay
+            //must not be acquired, as it calls 'getWriter'
+            this.writeBinaryCalls(requestedAttrs, callStream);
+        } else {
+            RPackageDisplay display = this.viewFactory.getRPackageDisplay();
+            display.displayCalls(requestedAttrs, callStream);
+        }
         
         log.exit();
     }
+
+    /**
+     * Write {@code ExpressionCall}s to the response output stream, using 
+     * the columnar binary format of {@link ColumnarTableWriter}, with compressed row groups. 
+     * Gene, anat. entity and dev. stage IDs are dictionary-encoded, data qualities 
+     * are encoded as {@code byte}s. The response output stream will be closed 
+     * following a call to this method. If the calls cannot all be retrieved,
+     * the end of the table is not written, so that clients detect the incomplete response.
+     *
+     * @param attrs         A {@code List} of {@code String}s that are the requested attributes, 
+     *                      defining the columns of the table.
+     * @param callStream    A {@code Stream} of {@code ExpressionCall}s to write.
+     * @throws IOException  If the response output stream could not be obtained or written.
+     */
+    private void writeBinaryCalls(List<String> attrs, Stream<ExpressionCall> callStream)
+            throws IOException {
+        log.entry(attrs, callStream);
+
+        List<ColumnarTableWriter.Column> columns = new ArrayList<>();
+        for (String attr: attrs) {
+            switch (attr) {
+            case CALLS_GENE_ID_PARAM:
+            case CALLS_ANAT_ENTITY_ID_PARAM:
+            case CALLS_DEV_STAGE_PARAM:
+                columns.add(new ColumnarTableWriter.Column(attr));
+                break;
+            case CALLS_DATA_QUALITY_PARAM:
+                columns.add(new ColumnarTableWriter.Column(attr, 
+                        Arrays.stream(SummaryQuality.values()).map(q -> q.toString())
+                        .collect(Collectors.toList())));
+                break;
+            default:
+                throw log.throwing(new IllegalStateException("Unknow Attribut " + attr));
+            }
+        }
+
+        this.response.setContentType("application/octet-stream");
+        String[] values = new String[columns.size()];
+        try (ColumnarTableWriter writer = new ColumnarTableWriter(
+                this.response.getOutputStream(), columns, true)) {
+            //Use the Stream Iterator to be able to throw checked Exceptions
+            Iterator<ExpressionCall> iterator = callStream.iterator();
+            while (iterator.hasNext()) {
+                ExpressionCall call = iterator.next();
+                for (int i = 0; i < values.length; i++) {
+                    switch (attrs.get(i)) {
+                    case CALLS_GENE_ID_PARAM:
+                        values[i] = call.getGene().getEnsemblGeneId();
+                        break;
+                    case CALLS_ANAT_ENTITY_ID_PARAM:
+                        values[i] = call.getCondition().getAnatEntityId();
+                        break;
+                    case CALLS_DEV_STAGE_PARAM:
+                        values[i] = call.getCondition().getDevStageId();
+                        break;
+                    case CALLS_DATA_QUALITY_PARAM:
+                        values[i] = call.getSummaryQuality() == null? null:
+                            call.getSummaryQuality().toString();
+                        break;
+                    default:
+                        throw log.throwing(new IllegalStateException("Unknow Attribut " + attrs.get(i)));
+                    }
+                }
+                writer.writeRow(values);
+            }
+            //the end of the table is written only if all calls were retrieved,
+            //otherwise the table is left unterminated for clients to detect the failure
+            writer.finish();
+        }
+
+        log.exit();
+    }
     
     /**
      * Performs the query and display the results when requesting {@code AnatEntityTO}s.
@@ -1,6 +1,8 @@
 package org.bgee.controller;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Properties;
 import java.util.function.Supplier;
 
@@ -21,11 +23,15 @@ import org.bgee.controller.servletutils.BgeeHttpServletRequest;
 import org.bgee.controller.user.User;
 import org.bgee.controller.user.UserService;
 import org.bgee.controller.utils.MailSender;
+import org.bgee.controller.utils.RequestStats;
 import org.bgee.controller.exception.InvalidFormatException;
 import org.bgee.controller.exception.InvalidRequestException;
 import org.bgee.controller.exception.JobResultNotFoundException;
+import org.bgee.model.ReferenceDataCache;
 import org.bgee.model.ServiceFactory;
+import org.bgee.model.dao.api.DAOManager;
 import org.bgee.model.dao.api.exception.QueryInterruptedException;
+import org.bgee.model.dao.mysql.connector.StatementProfiler;
 import org.bgee.model.job.JobService;
 import org.bgee.model.job.exception.TooManyJobsException;
 import org.bgee.view.ErrorDisplay;
@@ -40,7 +46,7 @@ import org.bgee.view.ViewFactoryProvider.DisplayType;
  * @author  Mathieu Seppey
  * @author  Frederic Bastian
  * @author  Valentine Rech de Laval
- * @version Bgee 14, May 2019
+ * @version Bgee 14, Jan. 2020
  * @since   Bgee 13, June 2014
  */
 public class FrontController extends HttpServlet {
@@ -52,6 +58,18 @@ public class FrontController extends HttpServlet {
      * which is serializable.
      */
     private static final long serialVersionUID = 2022651427006588913L;
+    /**
+     * The {@code ReferenceDataCache} shared by all {@code ServiceFactory}s instantiated
+     * by default, so that reference data (species, gene biotypes, sources) are loaded once
+     * for the whole application, rather than at each request.
+     */
+    private static final ReferenceDataCache REFERENCE_DATA_CACHE = new ReferenceDataCache();
+    /**
+     * A {@code String} that is the name of the header providing the token allowing
+     * to obtain the details of slow requests from the stats page.
+     * @see BgeeProperties#getStatsAdminToken()
+     */
+    private static final String STATS_ADMIN_TOKEN_HEADER = "X-Bgee-Stats-Token";
 
     /**
      * The {@code BgeeProperties} instance that will be used in the whole application
@@ -87,6 +105,11 @@ public class FrontController extends HttpServlet {
      * The {@code MailSender} used to send emails.
      */
     private final MailSender mailSender;
+    /**
+     * The {@code RequestStats} recording the latency of the requests processed,
+     * displayed in the stats page.
+     */
+    private final RequestStats requestStats;
     
 
     /**
@@ -148,9 +171,11 @@ public class FrontController extends HttpServlet {
         // If the bgee prop object is null, just get the default instance from BgeeProperties
         this.prop = prop != null? prop: BgeeProperties.getBgeeProperties();
 
-        //If serviceFactoryProvider is null, use default constructor of ServiceFactory
+        //If serviceFactoryProvider is null, use the default DAOManager, with the shared
+        //ReferenceDataCache
+        final BgeeProperties serviceProps = this.prop;
         this.serviceFactoryProvider = serviceFactoryProvider != null? serviceFactoryProvider: 
-            ServiceFactory::new;
+            () -> new ServiceFactory(DAOManager.getDAOManager(), serviceProps, REFERENCE_DATA_CACHE);
         
         this.jobService  = jobService != null? jobService: new JobService(this.prop);
         this.userService = userService != null? userService: new UserService();
@@ -176,6 +201,7 @@ public class FrontController extends HttpServlet {
         }
         MailSender.setWaitTimeInMs(this.prop.getMailWaitTime());
         this.mailSender = checkMailSender;
+        this.requestStats = new RequestStats(this.prop.getSlowRequestThreshold());
         
         log.exit();
     }
@@ -200,7 +226,8 @@ public class FrontController extends HttpServlet {
         RequestParameters requestParameters = new RequestParameters(this.urlParameters,
                 this.prop, true, "&");
 
-        try (ServiceFactory serviceFactory = this.serviceFactoryProvider.get()) {
+        try (ServiceFactory serviceFactory = this.serviceFactoryProvider.get();
+                RequestStats.RequestTimer requestTimer = this.requestStats.startRequest()) {
             //First, to handle errors, we "manually" determine the display type, 
             //because loading all the parameters in RequestParameters could throw an exception.
             //This displayType will thus have a chance of being used in the catch clause.
@@ -208,8 +235,11 @@ public class FrontController extends HttpServlet {
 
             //Now, try to load and analyze the request parameters
             request.setCharacterEncoding(RequestParameters.CHAR_ENCODING); 
+            long parametersStart = System.nanoTime();
             requestParameters = new RequestParameters(request, this.urlParameters,
                     this.prop, true, "&");
+            requestTimer.recordPhase(RequestStats.Phase.PARAMETERS, parametersStart);
+            requestTimer.setUrl(requestParameters.getRequestURL());
             log.debug("Analyzed URL: {} - POST data? {}", requestParameters.getRequestURL(), postData);
             
             //Load a User instance to track users between requests
@@ -301,10 +331,21 @@ public class FrontController extends HttpServlet {
                 
             } else if (requestParameters.isAStatsPageCategory()) {
                 //no specific controllers for this for now. 
-                //We simply respond with a 'success no content' so that the client get no errors, 
-                //and so that we get correct information stored in our Apache logs.
+                //If JSON display is requested and statistics are exposed, we return
+                //the request latency statistics and the SQL statement statistics.
+                //The details of slow requests (URLs and SQL queries), and the SQL shapes
+                //of the statements, are returned only if the admin token is provided.
+                //Otherwise, we simply respond with a 'success no content' so that the client
+                //get no errors, and so that we get correct information stored in our Apache logs.
                 //TODO: In the future, this should call our Google Monitoring implementation
-                factory.getGeneralDisplay().respondSuccessNoContent();
+                requestTimer.setCommand("stats");
+                if (requestParameters.isJsonDisplayType() && this.prop.isStatsExposed()) {
+                    factory.getStatsDisplay().displayRequestStats(this.requestStats,
+                            StatementProfiler.getInstance().getStatistics(),
+                            this.hasStatsAdminToken(request));
+                } else {
+                    factory.getGeneralDisplay().respondSuccessNoContent();
+                }
                 setCookie = false;
                 
             } else if (requestParameters.isAAnatSimilarityPageCategory()) {
@@ -315,7 +356,13 @@ public class FrontController extends HttpServlet {
                 throw log.throwing(new PageNotFoundException("Request not recognized."));
             }
             if (controller != null) {
-                controller.processRequest();
+                requestTimer.setCommand(controller.getClass().getSimpleName());
+                long processingStart = System.nanoTime();
+                try {
+                    controller.processRequest();
+                } finally {
+                    requestTimer.recordPhase(RequestStats.Phase.PROCESSING, processingStart);
+                }
             }
             
             //only after the processing we set the tracking cookie: some responses (e.g., redirection) 
@@ -418,6 +465,25 @@ public class FrontController extends HttpServlet {
         log.exit();
     }
 
+    /**
+     * @param request   The {@code HttpServletRequest} to the stats page.
+     * @return          {@code true} if {@code request} provides in the header
+     *                  {@link #STATS_ADMIN_TOKEN_HEADER} the token defined by
+     *                  {@link BgeeProperties#getStatsAdminToken()}, {@code false} otherwise,
+     *                  or if no token is defined.
+     */
+    private boolean hasStatsAdminToken(HttpServletRequest request) {
+        log.entry(request);
+        String expectedToken = this.prop.getStatsAdminToken();
+        String providedToken = request.getHeader(STATS_ADMIN_TOKEN_HEADER);
+        if (expectedToken == null || expectedToken.isEmpty() || providedToken == null) {
+            return log.exit(false);
+        }
+        //constant-time comparison
+        return log.exit(MessageDigest.isEqual(expectedToken.getBytes(StandardCharsets.UTF_8),
+                providedToken.getBytes(StandardCharsets.UTF_8)));
+    }
+
     /**
      * Retrieve from {@code request} the requested display type. This methods only tries 
      * to retrieve the display type, and do not examine/validate other parameters, 
@@ -457,6 +523,8 @@ public class FrontController extends HttpServlet {
                 return log.exit(DisplayType.CSV);
             } else if (fakeParams.isJsonDisplayType()) {
                 return log.exit(DisplayType.JSON);
+            } else if (fakeParams.isBinaryDisplayType()) {
+                return log.exit(DisplayType.BINARY);
             } else {
                 return log.exit(DisplayType.HTML);
             }
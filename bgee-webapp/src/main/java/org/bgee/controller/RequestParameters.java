@@ -1,24 +1,18 @@
 package org.bgee.controller;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -36,6 +30,7 @@ import org.bgee.controller.exception.RequestSizeExceededException;
 import org.bgee.controller.exception.ValueSizeExceededException;
 import org.bgee.controller.exception.InvalidFormatException;
 import org.bgee.controller.servletutils.BgeeHttpServletRequest;
+import org.bgee.controller.utils.RequestParametersStorage;
 import org.bgee.model.expressiondata.baseelements.SummaryQuality;
 
 /**
@@ -92,19 +87,6 @@ public class RequestParameters {
 
     private final static Logger log = LogManager.getLogger(RequestParameters.class.getName());
 
-    /**
-     * {@code ConcurrentMap} used to manage concurrent access to 
-     * the read/write locks that are used to manage concurrent reading and writing 
-     * of the files storing query strings holding storable parameters. 
-     * The generated key of the {@code RequestParameters} object to be 
-     * loaded or stored is associated to the lock in this {@code Map}.
-     * 
-     * @see #store()
-     * @see #loadStorableParametersFromKey(String)
-     */
-    private static final ConcurrentMap<String, ReentrantReadWriteLock> readWriteLocks = 
-            new ConcurrentHashMap<>();
-    
     /**
      * A {@code String} that is the default value of character encoding for encoding and 
      * decoding query strings.
@@ -484,6 +466,13 @@ public class RequestParameters {
      * (see {@link URLParameters#getParamDisplayType()}) to obtain a JSON view.
      */
     public static final String DISPLAY_TYPE_JSON = "json";
+    /**
+     * A {@code String} that is the value taken by the {@code displayType} parameter 
+     * (see {@link URLParameters#getParamDisplayType()}) to obtain expression calls 
+     * for the R package in a binary format (see {@link org.bgee.view.ColumnarTableWriter}). 
+     * Other responses are then sent as TSV.
+     */
+    public static final String DISPLAY_TYPE_BINARY = "bin";
     
     /**
      * A {@code String} that is the separator to use between the search part and hash part 
@@ -840,7 +829,7 @@ public class RequestParameters {
             log.trace("The key is set, load params from the file");
             try {
                 this.loadStorableParametersFromKey(key);
-            } catch (IOException e) {
+            } catch (IOException | UncheckedIOException e) {
                 // Re throw a custom exception instead
                 throw new RequestParametersNotFoundException(key);
             }
@@ -967,13 +956,14 @@ public class RequestParameters {
     }
 
     /**
-     * Load the storable parameters from the file corresponding to the provided key.
+     * Load the storable parameters from the query string stored for the provided key, 
+     * see {@link RequestParametersStorage}.
      * If a key is provided, but no stored query string is found corresponding to this key, 
      * a IOException is thrown.
      * 
      * @throws IOException                              thrown if a error occurs while trying 
-     *                                                  to read the file associated to the key,
-     *                                                  containing the query string to be used.
+     *                                                  to read the query string associated 
+     *                                                  to the key, or if none is stored.
      *                                                  
      * @throws MultipleValuesNotAllowedException        if more than one value is present in the
      *                                                  {@code request}
@@ -991,34 +981,18 @@ public class RequestParameters {
     MultipleValuesNotAllowedException, InvalidFormatException {
         log.entry(key);
 
-        ReentrantReadWriteLock lock = this.getReadWriteLock(key);
-        try {
-            lock.readLock().lock();
-
-            while (readWriteLocks.get(key) == null ||  
-                    !readWriteLocks.get(key).equals(lock)) {
-                lock = this.getReadWriteLock(key);
-                lock.readLock().lock();
-            }
-            try (BufferedReader br = new BufferedReader(new FileReader(
-                    prop.getRequestParametersStorageDirectory() + key))) {
-                String retrievedQueryString;
-                //just one line in the file, a query string including storable parameters, 
-                //that will be used to recover storable parameters
-                if ((retrievedQueryString = br.readLine()) != null) {
-                    //here we create a fake HttpServletRequest using the query 
-                    // string we retrieved.
-                    //this way we do not duplicate code to load parameters into 
-                    // this RequestParameters object.
-                    HttpServletRequest request = new BgeeHttpServletRequest(
-                            retrievedQueryString, this.getCharacterEncoding());
-                    this.loadParametersFromRequest(request.getParameterMap(), true);
-                }
-            }
-
-        } finally {
-            lock.readLock().unlock();
-            this.removeLockIfPossible(key);
+        String retrievedQueryString = RequestParametersStorage.getStorage(this.prop).get(key)
+                .orElseThrow(() -> new IOException("No stored parameters for key " + key));
+        //a query string including storable parameters, 
+        //that will be used to recover storable parameters
+        if (!retrievedQueryString.isEmpty()) {
+            //here we create a fake HttpServletRequest using the query 
+            // string we retrieved.
+            //this way we do not duplicate code to load parameters into 
+            // this RequestParameters object.
+            HttpServletRequest request = new BgeeHttpServletRequest(
+                    retrievedQueryString, this.getCharacterEncoding());
+            this.loadParametersFromRequest(request.getParameterMap(), true);
         }
 
         log.exit();
@@ -1026,17 +1000,17 @@ public class RequestParameters {
     }
 
     /**
-     * Store the part of the query string holding storable parameters into a file: 
+     * Store the part of the query string holding storable parameters: 
      * get the part of the query string containing "storable" parameters 
-     * generate a key based on that string, and store the string in a file named as the key.
+     * generate a key based on that string, and store the string associated to the key 
+     * in the {@link RequestParametersStorage}.
      * This allows to store parameters too lengthy to be put in URL, to replace these parameters 
      * by the key, which is stored in the {@code URLParameters.Parameter} DATA 
      * and to store these parameters to retrieve them at later pages 
      * using that key.
      * 
      * @throws RequestParametersNotStorableException    if an error occur while trying to use
-     *                                                  the key or to write the query string in
-     *                                                  a file
+     *                                                  the key or to store the query string
      * @see #generateParametersQuery(Set, boolean, boolean, String, Collection, boolean)
      * @see URLParameters#getParamData
      */
@@ -1048,125 +1022,22 @@ public class RequestParameters {
             throw new RequestParametersNotStorableException(
                     "No key was generated before trying to store the associated parameters.");
         }
-        //first check whether these parameters have already been serialized
-        File storageFile = new File(prop.getRequestParametersStorageDirectory() 
-                + this.getFirstValue(this.getKeyParam()));
-        if (storageFile.exists()) {
-            //file already exists, no need to continue
-            return;
-        }
-        ReentrantReadWriteLock lock = this.getReadWriteLock(this.getFirstValue(
-                this.getKeyParam()));
         try {
-            lock.writeLock().lock();
-            while (readWriteLocks.get(this.getDataKey()) == null ||  
-                    !readWriteLocks.get(this.getDataKey()).equals(lock)) {
-                lock = this.getReadWriteLock(this.getDataKey());
-                lock.writeLock().lock();
-            }
-            try (BufferedWriter bufferedWriter = new BufferedWriter(
-                    new FileWriter(prop.getRequestParametersStorageDirectory() 
-                            + this.getFirstValue(this.getKeyParam())))) {
-                // we cannot store an URL-decoded query string, to store encoding-independent values, 
-                // because of cases where, e.g., a parameter value include a character such as '&': 
-                // we couldn't distinguish it anymore from real parameter separators.
-                bufferedWriter.write(generateParametersQuery(null, true, false, "&", null, false));
-            }
-        } catch (IOException e) {
+            // we cannot store an URL-decoded query string, to store encoding-independent values, 
+            // because of cases where, e.g., a parameter value include a character such as '&': 
+            // we couldn't distinguish it anymore from real parameter separators.
+            RequestParametersStorage.getStorage(this.prop).putIfAbsent(
+                    this.getFirstValue(this.getKeyParam()),
+                    generateParametersQuery(null, true, false, "&", null, false));
+        } catch (IOException | UncheckedIOException e) {
             log.catching(e);
-            //delete the file if something went wrong
-            storageFile = new File(prop.getRequestParametersStorageDirectory() 
-                    + this.getFirstValue(this.getKeyParam()));
-            if (storageFile.exists()) {
-                if (!storageFile.delete()) {
-                    log.error("The file was not deleted before before throwing the exception");
-                }
-            }
             throw new RequestParametersNotStorableException(
                     "An error occurred and it was not possible to store the parameters.");
-        } finally {
-            lock.writeLock().unlock();
-            this.removeLockIfPossible(this.getFirstValue(
-                    this.getKeyParam()));
-        }
-
-        log.exit();
-    }
-
-    /**
-     * Try to remove the {@code ReentrantReadWriteLock} corresponding to 
-     * the argument {@code key}, from the {@code ConcurrentHashMap} 
-     * {@link #readWriteLocks}.
-     * The lock will be removed from the map only if there are no read or write locks, 
-     * and no ongoing request for a read or write lock.
-     * <p>
-     * Note: there might be here a race, where another thread acquired the lock and 
-     * actually locked it, i) just after this method tests the presence of read or write locks 
-     * and ongoing requests for a read or write lock, 
-     * and ii) just before removing it from the map.
-     * To solve this issue, methods acquiring a lock must check after locking it 
-     * whether it is still in the readWriteLocks map, 
-     * or whether the element present in the map for the key is equal to the acquired lock. 
-     * If it is not, they must generate a new lock to be used.
-     * 
-     * @param key   a {@code String} corresponding to the key to retrieve the lock from 
-     *              {@code readWriteLocks}, to remove it. This key is generated by the method
-     *              {@code generateKey}
-     * @see         #generateKey(String)
-     * @see         #readWriteLocks
-     */
-    private void removeLockIfPossible(String key) {
-        log.entry(key);
-
-        //check if there is already a lock stored for this key
-        ReentrantReadWriteLock lock = readWriteLocks.get(key);
-        //there is a lock to remove
-        if (lock != null) {
-            //there is no thread with write lock, or read lock, or waiting to acquire a lock
-            if (!lock.isWriteLocked() && lock.getReadLockCount() == 0 && !lock.hasQueuedThreads()) {
-                readWriteLocks.remove(key);
-            }
         }
 
         log.exit();
     }
 
-    /**
-     * Obtain a {@code ReentrantReadWriteLock}, for the param {@code key}.
-     * 
-     * This method tries to obtain {@code ReentrantReadWriteLock} corresponding to the key, 
-     * from the {@code ConcurrentHashMap} {@code readWriteLocks}. 
-     * If the lock is not already stored, 
-     * create a new one, and put it in {@code readWriteLocks}, to be used by other threads.
-     * 
-     * @param key   a {@code String} corresponding to the key to retrieve the lock from 
-     *              {@code readWriteLocks}. This key is generated by the method {@code generateKey}
-     * @return  a {@code ReentrantReadWriteLock} corresponding to the key.
-     * @see #generateKey(String)
-     * @see #readWriteLocks
-     */
-    private ReentrantReadWriteLock getReadWriteLock(String key) {
-        log.entry(key);
-
-        //check if there is already a lock stored for this key
-        ReentrantReadWriteLock readWritelock = readWriteLocks.get(key);
-
-        //no lock already stored
-        if (readWritelock == null) {
-            ReentrantReadWriteLock newReadWriteLock = new ReentrantReadWriteLock(true);
-            //try to put the new lock in the ConcurrentHashMap
-            readWritelock = readWriteLocks.putIfAbsent(key, newReadWriteLock);
-            //if readWritelock is null, the newLock has been successfully put in the map, and we use it.
-            //otherwise, it means that another thread has inserted a new lock for this key in the mean time.
-            //readWritelock then corresponds to this value, that we should use.
-            if (readWritelock == null) {
-                readWritelock = newReadWriteLock;
-            }
-        }
-
-        return log.exit(readWritelock);
-    }
-
     /**
      * Generate the search and hash parts of URLs. This method takes care 
      * of checking whether the generated URL is too long, and if it is, 
@@ -2521,6 +2392,19 @@ public class RequestParameters {
         }
         return log.exit(false);
     }
+    /**
+     * @return  A {@code boolean} to tell whether the display is binary or not
+     * @see #DISPLAY_TYPE_BINARY
+     */
+    public boolean isBinaryDisplayType() {
+        log.entry();
+        if(this.getFirstValue(this.urlParametersInstance.getParamDisplayType()) != null &&
+                this.getFirstValue(this.urlParametersInstance.getParamDisplayType()).equals(
+                        DISPLAY_TYPE_BINARY)){
+            return log.exit(true);
+        }
+        return log.exit(false);
+    }
 
     /**
      * Allow to know if this request has been performed through AJAX. 
@@ -3122,6 +3006,30 @@ public class RequestParameters {
         return log.exit(true);
     }
 
+    /**
+     * Generate a canonical query string for this {@code RequestParameters}, so that requests
+     * with the same parameters produce the same query string, whatever the order
+     * of the parameters in the request. Parameters are sorted by name, repeated values
+     * of a parameter are removed, and storable parameters retrieved from a key
+     * are expanded: the key itself is not included.
+     *
+     * @return  A {@code String} that is the canonical query string of this
+     *          {@code RequestParameters}.
+     * @see org.bgee.controller.servletutils.BgeeWebCache#calculateKey(HttpServletRequest)
+     */
+    public String getCanonicalQuery() {
+        log.entry();
+        return log.exit(this.urlParametersInstance.getList().stream()
+                .filter(parameter -> !parameter.equals(this.getKeyParam()))
+                .sorted(Comparator.comparing((URLParameters.Parameter<?> parameter) -> parameter.getName()))
+                .map(parameter -> this.generateParameterQueryStringFragment(parameter,
+                        Optional.ofNullable(this.getValues(parameter))
+                        .map(values -> values.stream().distinct().collect(Collectors.toList()))
+                        .orElse(null), "&"))
+                .filter(StringUtils::isNotBlank)
+                .collect(Collectors.joining("&")));
+    }
+
     /**
      * Perform security controls and prepare the submitted {@code String} for use, 
      * corresponding to the value of the provided parameter.
@@ -5,6 +5,7 @@ import javax.servlet.ServletContextListener;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bgee.controller.utils.RequestParametersStorage;
 import org.bgee.model.BgeeProperties;
 import org.bgee.model.dao.api.DAOManager;
 
@@ -36,6 +37,7 @@ public class BgeeServletContextListener implements ServletContextListener {
 	    log.entry();
 		DAOManager.closeAll();
 		BgeeProperties.releaseAll();
+		RequestParametersStorage.closeAll();
 		log.exit();
 	}
 
@@ -1,21 +1,33 @@
 package org.bgee.controller.servletutils;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.zip.DataFormatException;
 
 import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import net.sf.ehcache.CacheException;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.constructs.blocking.LockTimeoutException;
 import net.sf.ehcache.constructs.web.AlreadyCommittedException;
 import net.sf.ehcache.constructs.web.AlreadyGzippedException;
 import net.sf.ehcache.constructs.web.PageInfo;
+import net.sf.ehcache.constructs.web.ResponseHeadersNotModifiableException;
 import net.sf.ehcache.constructs.web.filter.CachingFilter;
 import net.sf.ehcache.constructs.web.filter.FilterNonReentrantException;
 
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bgee.controller.BgeeProperties;
@@ -45,10 +57,21 @@ import org.bgee.controller.exception.InvalidFormatException;
  * 
  * To use ehcache, the ehcache configuration xml file has to be present in
  * the resources folder
- * 
+ * <p>
+ * Keys are computed from the canonical query string of the request (see
+ * {@link RequestParameters#getCanonicalQuery()}), so that requests with the same parameters
+ * in a different order, or with storable parameters provided through a key, share 
+ * the same cached page. The most recently used pages are also kept in a bounded in-heap tier, 
+ * in front of the ehcache storage (see {@link BgeeProperties#getWebpagesCacheHeapMaxSize()}).
+ * <p>
+ * Cached pages are sent with {@code ETag} and {@code Last-Modified} headers derived from 
+ * the data release (see {@link BgeeProperties#getMajorVersion()}, 
+ * {@link BgeeProperties#getMinorVersion()}, and {@link BgeeProperties#getDataReleaseDate()}), 
+ * so that conditional {@code GET} requests are answered with a {@code 304 Not Modified} 
+ * response, without building or sending the page.
  * 
  * @author Mathieu Seppey
- * @version Bgee 13, Aug 2014
+ * @version Bgee 14, Jan. 2020
  * @see javax.servlet.Filter
  * @see net.sf.ehcache.constructs.web.filter.CachingFilter
  * @see net.sf.ehcache.constructs.web.PageInfo
@@ -63,9 +86,122 @@ public class BgeeWebCache extends CachingFilter
 
     private final static Logger log = LogManager.getLogger(BgeeWebCache.class.getName());
 
+    /**
+     * A {@code String} that is the name of the request attribute storing the key
+     * computed in {@link #doFilter(HttpServletRequest, HttpServletResponse, FilterChain)}.
+     */
+    private final static String CACHE_KEY_ATTRIBUTE = BgeeWebCache.class.getName() + ".key";
+
+    /**
+     * A bounded in-heap cache of {@code PageInfo}s, evicting the least recently used pages
+     * when their total size exceeds a maximum size. Thread-safe.
+     */
+    static class HeapTier {
+        private final long maxSizeInBytes;
+        private final LinkedHashMap<String, PageInfo> pages;
+        private long sizeInBytes;
+
+        HeapTier(long maxSizeInBytes) {
+            this.maxSizeInBytes = maxSizeInBytes;
+            this.pages = new LinkedHashMap<>(16, 0.75f, true);
+            this.sizeInBytes = 0;
+        }
+
+        synchronized PageInfo get(String key) {
+            return this.pages.get(key);
+        }
+        synchronized void put(String key, PageInfo pageInfo) {
+            long pageSize = getSize(pageInfo);
+            if (pageSize > this.maxSizeInBytes) {
+                return;
+            }
+            PageInfo previous = this.pages.put(key, pageInfo);
+            if (previous != null) {
+                this.sizeInBytes -= getSize(previous);
+            }
+            this.sizeInBytes += pageSize;
+            while (this.sizeInBytes > this.maxSizeInBytes) {
+                Map.Entry<String, PageInfo> eldest = this.pages.entrySet().iterator().next();
+                this.sizeInBytes -= getSize(eldest.getValue());
+                this.pages.remove(eldest.getKey());
+            }
+        }
+        synchronized long getSizeInBytes() {
+            return this.sizeInBytes;
+        }
+        private static long getSize(PageInfo pageInfo) {
+            if (pageInfo.hasGzippedBody()) {
+                return pageInfo.getGzippedBody().length;
+            }
+            try {
+                return pageInfo.hasUngzippedBody()? pageInfo.getUngzippedBody().length: 0;
+            } catch (IOException e) {
+                //cannot happen, the body is not gzipped
+                throw log.throwing(new IllegalStateException(e));
+            }
+        }
+    }
+
+    /**
+     * A {@code String} that is the version of the data release, part of the {@code ETag}s.
+     */
+    private String releaseVersion;
+    /**
+     * A {@code long} that is the time in milliseconds of the data release,
+     * sent in {@code Last-Modified} headers.
+     */
+    private long lastModified;
+    /**
+     * The {@code HeapTier} in front of the ehcache storage, {@code null} if disabled.
+     */
+    private HeapTier heapTier;
+
+    /**
+     * Default constructor used by the servlet container, the release information
+     * and the in-heap tier are initialized from the {@code BgeeProperties}
+     * in {@link #doInit(FilterConfig)}.
+     */
+    public BgeeWebCache() {
+        this(null, System.currentTimeMillis(), 0);
+    }
+    /**
+     * @param releaseVersion        A {@code String} that is the version of the data release.
+     * @param lastModified          A {@code long} that is the time in milliseconds
+     *                              of the data release.
+     * @param heapTierMaxSizeInMB   An {@code int} that is the maximum size in megabytes
+     *                              of the in-heap tier, 0 to disable it.
+     */
+    BgeeWebCache(String releaseVersion, long lastModified, int heapTierMaxSizeInMB) {
+        this.init(releaseVersion, lastModified, heapTierMaxSizeInMB);
+    }
+    private void init(String releaseVersion, long lastModified, int heapTierMaxSizeInMB) {
+        this.releaseVersion = releaseVersion;
+        //HTTP dates have a precision of one second
+        this.lastModified = lastModified - lastModified % 1000;
+        this.heapTier = heapTierMaxSizeInMB > 0?
+                new HeapTier(heapTierMaxSizeInMB * 1024L * 1024L): null;
+    }
+
+    @Override
+    public void doInit(FilterConfig filterConfig) throws CacheException {
+        log.entry(filterConfig);
+        super.doInit(filterConfig);
+        BgeeProperties prop = BgeeProperties.getBgeeProperties();
+        long releaseTime = StringUtils.isBlank(prop.getDataReleaseDate())? System.currentTimeMillis():
+            LocalDate.parse(prop.getDataReleaseDate()).atStartOfDay(ZoneOffset.UTC)
+            .toInstant().toEpochMilli();
+        this.init(prop.getMajorVersion() + "." + prop.getMinorVersion(), releaseTime,
+                prop.getWebpagesCacheHeapMaxSize());
+        log.exit();
+    }
+
     /**
      * Compute a key for the current request. Same parameters and the same http method
-     * will generate the same key.
+     * will generate the same key, whatever the order of the parameters, and ignoring
+     * repeated values. If the request was processed by
+     * {@link #doFilter(HttpServletRequest, HttpServletResponse, FilterChain)}, the key
+     * is computed from {@link RequestParameters#getCanonicalQuery()}, otherwise
+     * from the parameters of the request.
      * 
      * @param httpRequest   the {@code HttpServletRequest}being currently processed
      * @return              a {@code String}corresponding to the key
@@ -74,17 +210,71 @@ public class BgeeWebCache extends CachingFilter
     protected String calculateKey(HttpServletRequest httpRequest)
     {   
         log.entry(httpRequest);
-        // Return the key. Note : the order of parameters does not matter
-        return log.exit(DigestUtils.sha1Hex(httpRequest.getParameterMap().toString() 
-                + httpRequest.getMethod()));
+        Object key = httpRequest.getAttribute(CACHE_KEY_ATTRIBUTE);
+        if (key != null) {
+            return log.exit(key.toString());
+        }
+        String canonicalQuery = new TreeMap<>(httpRequest.getParameterMap()).entrySet().stream()
+                .flatMap(e -> Arrays.stream(e.getValue()).distinct().map(v -> e.getKey() + "=" + v))
+                .collect(Collectors.joining("&"));
+        return log.exit(calculateKey(httpRequest.getMethod(), canonicalQuery));
+    }
+    /**
+     * @param method            A {@code String} that is the HTTP method of a request.
+     * @param canonicalQuery    A {@code String} that is the canonical query string of a request.
+     * @return                  A {@code String} that is the key of the request.
+     */
+    private static String calculateKey(String method, String canonicalQuery) {
+        return DigestUtils.sha1Hex(method + "?" + canonicalQuery);
+    }
+    /**
+     * @param key   A {@code String} that is the key of a request.
+     * @return      A {@code String} that is the (weak, as pages can be sent gzipped or not)
+     *              {@code ETag} of the page for the current data release.
+     */
+    String getETag(String key) {
+        return "W/\"" + this.releaseVersion + "-" + key + "\"";
+    }
+    /**
+     * Determine whether the client already has the current version of the requested page,
+     * from the {@code If-None-Match} header, or, if absent, from the {@code If-Modified-Since}
+     * header of the request. The {@code If-None-Match} header must contain exactly
+     * {@code eTag}, the wildcard {@code *} is not accepted. Conditional requests
+     * are not handled when the data release is unknown, since the pages are then sent
+     * without {@code ETag} and {@code Last-Modified} headers.
+     *
+     * @param request   The {@code HttpServletRequest} being currently processed.
+     * @param eTag      A {@code String} that is the {@code ETag} of the requested page.
+     * @return          {@code true} if a {@code 304 Not Modified} response can be sent.
+     */
+    boolean isNotModified(HttpServletRequest request, String eTag) {
+        log.entry(request, eTag);
+        if (this.releaseVersion == null || !"GET".equalsIgnoreCase(request.getMethod())) {
+            return log.exit(false);
+        }
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return log.exit(Arrays.stream(ifNoneMatch.split(","))
+                    .map(String::trim)
+                    .anyMatch(tag -> tag.equals(eTag)));
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+            return log.exit(ifModifiedSince >= 0 && ifModifiedSince >= this.lastModified);
+        } catch (IllegalArgumentException e) {
+            //invalid date, the page is sent
+            return log.exit(false);
+        }
     }
 
     /**
      * Perform the filtering for a request. It overrides the parent method because not all pages
      * should be cached, for example those with login information. Consequently, it uses a
      * {@code RequestParameters} to assess whether the request is cacheable.
-     * When it is the case, the {@link CachingFilter#doFilter} behavior takes place, and when it
-     * is not the case, the request is directly forwarded to the next element in the chain
+     * When it is the case, a {@code 304 Not Modified} response is sent if the client
+     * already has the current version of the page, otherwise the page is sent from
+     * the in-heap tier if present, or the {@link CachingFilter#doFilter} behavior takes place.
+     * When it is not the case, the request is directly forwarded to the next element in the chain
      * 
      * @param request   the {@code HttpServletRequest} being currently processed
      * @param response  the {@code HttpServletResponse} to send responses to the client 
@@ -100,11 +290,26 @@ public class BgeeWebCache extends CachingFilter
         log.entry(request, response, chain);
         BgeeProperties prop = BgeeProperties.getBgeeProperties();
         try {
-            if (new RequestParameters(request,
-                    new URLParameters(),prop, true, "&")
-            .isACacheableRequest()){
-                // Cacheble, forward it to the super class
-                super.doFilter(request, response, chain);
+            RequestParameters requestParameters = new RequestParameters(request,
+                    new URLParameters(),prop, true, "&");
+            if (requestParameters.isACacheableRequest()){
+                String key = calculateKey(request.getMethod(), requestParameters.getCanonicalQuery());
+                request.setAttribute(CACHE_KEY_ATTRIBUTE, key);
+                String eTag = this.getETag(key);
+                if (this.isNotModified(request, eTag)) {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    response.setHeader("ETag", eTag);
+                    response.setDateHeader("Last-Modified", this.lastModified);
+                    log.exit();
+                    return;
+                }
+                PageInfo pageInfo = this.heapTier == null? null: this.heapTier.get(key);
+                if (pageInfo != null) {
+                    this.writeResponse(request, response, pageInfo);
+                } else {
+                    // Cacheble, forward it to the super class
+                    super.doFilter(request, response, chain);
+                }
             } else {
                 // Not cachable, leave the caching process
                 chain.doFilter(request, response);
@@ -124,6 +329,23 @@ public class BgeeWebCache extends CachingFilter
         log.exit();
     }
 
+    /**
+     * Write the cached page, with {@code ETag} and {@code Last-Modified} headers
+     * for the current data release. Only pages built successfully are written by this method.
+     */
+    @Override
+    protected void writeResponse(HttpServletRequest request, HttpServletResponse response,
+            PageInfo pageInfo) throws IOException, DataFormatException,
+            ResponseHeadersNotModifiableException {
+        log.entry(request, response, pageInfo);
+        if (this.releaseVersion != null) {
+            response.setHeader("ETag", this.getETag(this.calculateKey(request)));
+            response.setDateHeader("Last-Modified", this.lastModified);
+        }
+        super.writeResponse(request, response, pageInfo);
+        log.exit();
+    }
+
     /**
      * Gets the {@code CacheManager} for this {@code CachingFilter}.
      * It creates a cache based on the config xml file declared in 
@@ -161,6 +383,9 @@ public class BgeeWebCache extends CachingFilter
         if(! returnedPageInfo.isOk()){
             throw new PageNotFoundException();
         }
+        if (this.heapTier != null) {
+            this.heapTier.put(this.calculateKey(request), returnedPageInfo);
+        }
         return log.exit(returnedPageInfo);
     }
 }
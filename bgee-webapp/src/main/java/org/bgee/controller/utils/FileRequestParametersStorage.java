@@ -0,0 +1,195 @@
+package org.bgee.controller.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A {@code RequestParametersStorage} storing each query string in a file named after its key,
+ * in the request parameters storage directory.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class FileRequestParametersStorage extends RequestParametersStorage {
+    private final static Logger log = LogManager.getLogger(FileRequestParametersStorage.class.getName());
+
+    /**
+     * {@code ConcurrentMap} used to manage concurrent access to
+     * the read/write locks that are used to manage concurrent reading and writing
+     * of the files storing query strings holding storable parameters.
+     * The key of the query string to be loaded or stored is associated to the lock
+     * in this {@code Map}.
+     *
+     * @see #get(String)
+     * @see #putIfAbsent(String, String)
+     */
+    private static final ConcurrentMap<String, ReentrantReadWriteLock> readWriteLocks =
+            new ConcurrentHashMap<>();
+
+    /**
+     * A {@code String} that is the directory where files are stored, used as prefix
+     * of the file names.
+     */
+    private final String directory;
+
+    /**
+     * @param directory A {@code String} that is the directory where files are stored,
+     *                  used as prefix of the file names.
+     */
+    public FileRequestParametersStorage(String directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Optional<String> get(String key) throws IOException {
+        log.entry(key);
+        File storageFile = new File(this.directory + key);
+        if (!storageFile.exists()) {
+            return log.exit(Optional.empty());
+        }
+
+        ReentrantReadWriteLock lock = this.getReadWriteLock(key);
+        try {
+            lock.readLock().lock();
+
+            while (readWriteLocks.get(key) == null ||
+                    !readWriteLocks.get(key).equals(lock)) {
+                lock = this.getReadWriteLock(key);
+                lock.readLock().lock();
+            }
+            try (BufferedReader br = new BufferedReader(new FileReader(storageFile))) {
+                //just one line in the file, a query string including storable parameters
+                String retrievedQueryString = br.readLine();
+                return log.exit(Optional.of(retrievedQueryString == null? "": retrievedQueryString));
+            }
+        } finally {
+            lock.readLock().unlock();
+            this.removeLockIfPossible(key);
+        }
+    }
+
+    @Override
+    public void putIfAbsent(String key, String queryString) throws IOException {
+        log.entry(key, queryString);
+
+        //first check whether these parameters have already been serialized
+        File storageFile = new File(this.directory + key);
+        if (storageFile.exists()) {
+            //file already exists, no need to continue
+            log.exit();
+            return;
+        }
+        ReentrantReadWriteLock lock = this.getReadWriteLock(key);
+        try {
+            lock.writeLock().lock();
+            while (readWriteLocks.get(key) == null ||
+                    !readWriteLocks.get(key).equals(lock)) {
+                lock = this.getReadWriteLock(key);
+                lock.writeLock().lock();
+            }
+            try (BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(storageFile))) {
+                bufferedWriter.write(queryString);
+            }
+        } catch (IOException e) {
+            //delete the file if something went wrong
+            if (storageFile.exists()) {
+                if (!storageFile.delete()) {
+                    log.error("The file was not deleted before before throwing the exception");
+                }
+            }
+            throw log.throwing(e);
+        } finally {
+            lock.writeLock().unlock();
+            this.removeLockIfPossible(key);
+        }
+
+        log.exit();
+    }
+
+    @Override
+    public void close() {
+        //nothing to release
+    }
+
+    /**
+     * Try to remove the {@code ReentrantReadWriteLock} corresponding to
+     * the argument {@code key}, from the {@code ConcurrentHashMap}
+     * {@link #readWriteLocks}.
+     * The lock will be removed from the map only if there are no read or write locks,
+     * and no ongoing request for a read or write lock.
+     * <p>
+     * Note: there might be here a race, where another thread acquired the lock and
+     * actually locked it, i) just after this method tests the presence of read or write locks
+     * and ongoing requests for a read or write lock,
+     * and ii) just before removing it from the map.
+     * To solve this issue, methods acquiring a lock must check after locking it
+     * whether it is still in the readWriteLocks map,
+     * or whether the element present in the map for the key is equal to the acquired lock.
+     * If it is not, they must generate a new lock to be used.
+     *
+     * @param key   a {@code String} corresponding to the key to retrieve the lock from
+     *              {@code readWriteLocks}, to remove it.
+     * @see         #readWriteLocks
+     */
+    private void removeLockIfPossible(String key) {
+        log.entry(key);
+
+        //check if there is already a lock stored for this key
+        ReentrantReadWriteLock lock = readWriteLocks.get(key);
+        //there is a lock to remove
+        if (lock != null) {
+            //there is no thread with write lock, or read lock, or waiting to acquire a lock
+            if (!lock.isWriteLocked() && lock.getReadLockCount() == 0 && !lock.hasQueuedThreads()) {
+                readWriteLocks.remove(key);
+            }
+        }
+
+        log.exit();
+    }
+
+    /**
+     * Obtain a {@code ReentrantReadWriteLock}, for the param {@code key}.
+     *
+     * This method tries to obtain {@code ReentrantReadWriteLock} corresponding to the key,
+     * from the {@code ConcurrentHashMap} {@code readWriteLocks}.
+     * If the lock is not already stored,
+     * create a new one, and put it in {@code readWriteLocks}, to be used by other threads.
+     *
+     * @param key   a {@code String} corresponding to the key to retrieve the lock from
+     *              {@code readWriteLocks}.
+     * @return  a {@code ReentrantReadWriteLock} corresponding to the key.
+     * @see #readWriteLocks
+     */
+    private ReentrantReadWriteLock getReadWriteLock(String key) {
+        log.entry(key);
+
+        //check if there is already a lock stored for this key
+        ReentrantReadWriteLock readWritelock = readWriteLocks.get(key);
+
+        //no lock already stored
+        if (readWritelock == null) {
+            ReentrantReadWriteLock newReadWriteLock = new ReentrantReadWriteLock(true);
+            //try to put the new lock in the ConcurrentHashMap
+            readWritelock = readWriteLocks.putIfAbsent(key, newReadWriteLock);
+            //if readWritelock is null, the newLock has been successfully put in the map, and we use it.
+            //otherwise, it means that another thread has inserted a new lock for this key in the mean time.
+            //readWritelock then corresponds to this value, that we should use.
+            if (readWritelock == null) {
+                readWritelock = newReadWriteLock;
+            }
+        }
+
+        return log.exit(readWritelock);
+    }
+}
@@ -0,0 +1,571 @@
+package org.bgee.controller.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A {@code RequestParametersStorage} storing all query strings in a single append-only
+ * log file, {@link #LOG_FILE_NAME} in the request parameters storage directory.
+ * <ul>
+ * <li>An in-memory index maps each key to the position of its query string in the log file,
+ * the index is rebuilt by scanning the log when the storage is opened.
+ * A record truncated by a crash at the end of the log is discarded.
+ * <li>The most recently used query strings are kept in memory in a LRU cache.
+ * <li>Query strings are written with a lock striped by key, so that a query string
+ * is written only once, while other keys are not blocked. Reads do not lock the log file.
+ * <li>If a time-to-live is defined, query strings not accessed for this duration
+ * are removed by compacting the log: live records are copied into a new log file,
+ * replacing the old one. Compaction is performed when the storage is opened,
+ * then at most once every {@link #COMPACTION_INTERVAL_IN_MS}, in a background thread.
+ * <li>A {@code FileChannel} is closed when a thread using it is interrupted: the channel
+ * to the log file is then reopened, see {@link #reopenChannel(FileChannel)}, so that
+ * the interruption of a thread does not make the storage unusable.
+ * <li>When the log file is created, the query strings stored in the directory
+ * by a {@link FileRequestParametersStorage} are imported, see {@link #importFiles(Path)}.
+ * </ul>
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class LogRequestParametersStorage extends RequestParametersStorage {
+    private final static Logger log = LogManager.getLogger(LogRequestParametersStorage.class.getName());
+
+    /**
+     * A {@code String} that is the name of the log file in the storage directory.
+     */
+    public final static String LOG_FILE_NAME = "requestParameters.log";
+    /**
+     * A {@code Pattern} matching the names of the files storing query strings
+     * written by {@link FileRequestParametersStorage}: the keys are SHA-1 hashes.
+     */
+    private final static Pattern FILE_KEY_PATTERN = Pattern.compile("[0-9a-f]{40}");
+    /**
+     * A {@code long} that is the minimum duration in milliseconds between two compactions.
+     */
+    public final static long COMPACTION_INTERVAL_IN_MS = TimeUnit.DAYS.toMillis(1);
+    /**
+     * An {@code int} that is the number of locks used to write query strings.
+     */
+    private final static int LOCK_STRIPE_COUNT = 64;
+    /**
+     * An {@code int} that is the size of the header of a record: the time of last access,
+     * the length of the key, the length of the query string, and a checksum.
+     */
+    private final static int RECORD_HEADER_SIZE = Long.BYTES + 3 * Integer.BYTES;
+
+    /**
+     * The position of a query string in the log file, with its time of last access.
+     */
+    /**
+     * An operation using the {@code FileChannel} to the log file.
+     *
+     * @param <T>   The type of the result of the operation.
+     */
+    @FunctionalInterface
+    private static interface ChannelOperation<T> {
+        T apply(FileChannel channel) throws IOException;
+    }
+
+    private static class Entry {
+        private final long valuePosition;
+        private final int valueLength;
+        private volatile long lastAccess;
+
+        private Entry(long valuePosition, int valueLength, long lastAccess) {
+            this.valuePosition = valuePosition;
+            this.valueLength = valueLength;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final Path logFile;
+    private final LongSupplier clock;
+    /**
+     * A {@code long} that is the duration in milliseconds after their last access
+     * when query strings are removed, 0 if they are never removed.
+     */
+    private final long ttlInMs;
+    /**
+     * A {@code ConcurrentMap} where keys are {@code String}s that are keys of query strings,
+     * the associated value being the {@code Entry} locating the query string in the log file.
+     */
+    private final ConcurrentMap<String, Entry> index;
+    /**
+     * A {@code Map} where keys are {@code String}s that are keys of query strings,
+     * the associated value being the query string, in access order, with a maximum size.
+     */
+    private final Map<String, String> cache;
+    private final ReentrantLock[] lockStripes;
+    /**
+     * A {@code ReentrantLock} held while appending to the log file.
+     */
+    private final ReentrantLock appendLock;
+    /**
+     * A {@code ReentrantReadWriteLock} whose write lock is held during compaction
+     * and closing, its read lock being held by any other operation.
+     */
+    private final ReentrantReadWriteLock compactionLock;
+    private final AtomicBoolean compacting;
+    /**
+     * The {@code FileChannel} to read and write the log file, replaced during compaction.
+     */
+    private volatile FileChannel channel;
+    /**
+     * A {@code long} that is the size of the valid part of the log file.
+     * Guarded by {@link #appendLock}.
+     */
+    private long endPosition;
+    private volatile long lastCompaction;
+    /**
+     * A {@code boolean} that is {@code true} if this storage was closed.
+     * Guarded by the write lock of {@link #compactionLock}.
+     */
+    private boolean closed;
+
+    /**
+     * Open the log storage in {@code directory}, creating the log file if needed.
+     *
+     * @param directory     A {@code String} that is the storage directory, used as prefix
+     *                      of the log file name.
+     * @param cacheSize     An {@code int} that is the number of query strings kept in memory.
+     * @param ttlInDays     An {@code int} that is the number of days after their last access
+     *                      when query strings are removed, 0 if they are never removed.
+     * @throws IOException  If an error occurred while opening the log file.
+     */
+    public LogRequestParametersStorage(String directory, int cacheSize, int ttlInDays)
+            throws IOException {
+        this(directory, cacheSize, ttlInDays, System::currentTimeMillis);
+    }
+    /**
+     * Constructor allowing to provide the clock used for the time of last access
+     * of query strings, for unit tests.
+     *
+     * @param directory     A {@code String} that is the storage directory, used as prefix
+     *                      of the log file name.
+     * @param cacheSize     An {@code int} that is the number of query strings kept in memory.
+     * @param ttlInDays     An {@code int} that is the number of days after their last access
+     *                      when query strings are removed, 0 if they are never removed.
+     * @param clock         A {@code LongSupplier} providing the current time in milliseconds.
+     * @throws IOException  If an error occurred while opening the log file.
+     */
+    LogRequestParametersStorage(String directory, int cacheSize, int ttlInDays, LongSupplier clock)
+            throws IOException {
+        log.entry(directory, cacheSize, ttlInDays, clock);
+        this.clock = clock;
+        this.logFile = Paths.get(directory + LOG_FILE_NAME);
+        this.ttlInMs = TimeUnit.DAYS.toMillis(Math.max(ttlInDays, 0));
+        this.index = new ConcurrentHashMap<>();
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return this.size() > cacheSize;
+            }
+        });
+        this.lockStripes = new ReentrantLock[LOCK_STRIPE_COUNT];
+        for (int i = 0; i < LOCK_STRIPE_COUNT; i++) {
+            this.lockStripes[i] = new ReentrantLock();
+        }
+        this.appendLock = new ReentrantLock();
+        this.compactionLock = new ReentrantReadWriteLock();
+        this.compacting = new AtomicBoolean(false);
+        //the compaction at opening is performed below
+        this.lastCompaction = this.clock.getAsLong();
+
+        boolean created = !Files.exists(this.logFile);
+        this.channel = FileChannel.open(this.logFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.endPosition = this.loadIndex(this.logFile, this.index);
+        if (this.endPosition < this.channel.size()) {
+            log.warn("Discarding {} bytes of incomplete records at the end of {}",
+                    this.channel.size() - this.endPosition, this.logFile);
+            this.channel.truncate(this.endPosition);
+        }
+        if (created) {
+            int imported = this.importFiles(this.logFile.toAbsolutePath().getParent());
+            log.info("Created {}, {} stored query strings imported", this.logFile, imported);
+        }
+        if (this.ttlInMs > 0) {
+            this.compact();
+        }
+        log.exit();
+    }
+
+    /**
+     * Scan the log file to index its records.
+     *
+     * @param file          The {@code Path} of the log file to scan.
+     * @param entries       The {@code Map} to fill with the {@code Entry}s of the records.
+     * @return              A {@code long} that is the position of the end of the last
+     *                      complete record.
+     * @throws IOException  If an error occurred while reading the file.
+     */
+    private long loadIndex(Path file, Map<String, Entry> entries) throws IOException {
+        log.entry(file, entries);
+        long position = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file)))) {
+            while (true) {
+                long lastAccess;
+                try {
+                    lastAccess = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                try {
+                    int keyLength = in.readInt();
+                    int valueLength = in.readInt();
+                    int checksum = in.readInt();
+                    if (keyLength < 0 || valueLength < 0) {
+                        break;
+                    }
+                    byte[] key = new byte[keyLength];
+                    byte[] value = new byte[valueLength];
+                    in.readFully(key);
+                    in.readFully(value);
+                    if (checksum(key, value) != checksum) {
+                        break;
+                    }
+                    long valuePosition = position + RECORD_HEADER_SIZE + keyLength;
+                    entries.put(new String(key, StandardCharsets.UTF_8),
+                            new Entry(valuePosition, valueLength, lastAccess));
+                    position = valuePosition + valueLength;
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+        }
+        log.debug("{} query strings indexed from {}", entries.size(), file);
+        return log.exit(position);
+    }
+
+    private static int checksum(byte[] key, byte[] value) {
+        CRC32 crc = new CRC32();
+        crc.update(key);
+        crc.update(value);
+        return (int) crc.getValue();
+    }
+    /**
+     * Write a record at the end of {@code channel}.
+     *
+     * @param channel       The {@code FileChannel} to write to.
+     * @param position      A {@code long} that is the position where to write the record.
+     * @param key           A {@code String} that is the key of the query string.
+     * @param value         A {@code byte} array that is the query string encoded in UTF-8.
+     * @param lastAccess    A {@code long} that is the time of last access of the query string.
+     * @return              The {@code Entry} of the record written.
+     * @throws IOException  If an error occurred while writing.
+     */
+    private static Entry writeRecord(FileChannel channel, long position, String key, byte[] value,
+            long lastAccess) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + keyBytes.length + value.length);
+        record.putLong(lastAccess).putInt(keyBytes.length).putInt(value.length)
+              .putInt(checksum(keyBytes, value)).put(keyBytes).put(value);
+        record.flip();
+        long writePosition = position;
+        while (record.hasRemaining()) {
+            writePosition += channel.write(record, writePosition);
+        }
+        return new Entry(position + RECORD_HEADER_SIZE + keyBytes.length, value.length, lastAccess);
+    }
+    private static byte[] readValue(FileChannel channel, Entry entry) throws IOException {
+        ByteBuffer value = ByteBuffer.allocate(entry.valueLength);
+        long readPosition = entry.valuePosition;
+        while (value.hasRemaining()) {
+            int read = channel.read(value, readPosition);
+            if (read < 0) {
+                throw log.throwing(new EOFException("Unexpected end of the request parameters log"));
+            }
+            readPosition += read;
+        }
+        return value.array();
+    }
+
+    @Override
+    public Optional<String> get(String key) throws IOException {
+        log.entry(key);
+        Optional<String> value = this.runOnChannel(channel -> {
+            Entry entry = this.index.get(key);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            entry.lastAccess = this.clock.getAsLong();
+            String queryString = this.cache.get(key);
+            if (queryString == null) {
+                queryString = new String(readValue(channel, entry), StandardCharsets.UTF_8);
+                this.cache.put(key, queryString);
+            }
+            return Optional.of(queryString);
+        });
+        if (value.isPresent()) {
+            this.compactIfNeeded();
+        }
+        return log.exit(value);
+    }
+
+    @Override
+    public void putIfAbsent(String key, String queryString) throws IOException {
+        log.entry(key, queryString);
+        ReentrantLock stripe = this.lockStripes[Math.floorMod(key.hashCode(), LOCK_STRIPE_COUNT)];
+        boolean written = this.runOnChannel(channel -> {
+            stripe.lock();
+            try {
+                if (this.index.containsKey(key)) {
+                    return false;
+                }
+                byte[] value = queryString.getBytes(StandardCharsets.UTF_8);
+                Entry entry;
+                this.appendLock.lock();
+                try {
+                    //if the write fails, endPosition is not updated: an incomplete record
+                    //is overwritten by the next record, or discarded when opening the log
+                    entry = writeRecord(channel, this.endPosition, key, value,
+                            this.clock.getAsLong());
+                    this.endPosition = entry.valuePosition + entry.valueLength;
+                } finally {
+                    this.appendLock.unlock();
+                }
+                //the record is indexed only once completely written
+                this.index.put(key, entry);
+                this.cache.put(key, queryString);
+                return true;
+            } finally {
+                stripe.unlock();
+            }
+        });
+        if (written) {
+            this.compactIfNeeded();
+        }
+        log.exit();
+    }
+
+    /**
+     * Run {@code operation} on the {@code FileChannel} to the log file, holding the read lock
+     * of {@link #compactionLock}. If the channel was closed, because a thread was interrupted
+     * while using it, the channel is reopened, and the operation is run again,
+     * unless the current thread is the one interrupted.
+     *
+     * @param operation     The {@code ChannelOperation} to run.
+     * @param <T>           The type of the result of {@code operation}.
+     * @return              The result of {@code operation}.
+     * @throws IOException  If an error occurred while running {@code operation},
+     *                      or while reopening the channel.
+     */
+    private <T> T runOnChannel(ChannelOperation<T> operation) throws IOException {
+        log.entry(operation);
+        while (true) {
+            FileChannel usedChannel = null;
+            ClosedChannelException closedException = null;
+            this.compactionLock.readLock().lock();
+            try {
+                usedChannel = this.channel;
+                return log.exit(operation.apply(usedChannel));
+            } catch (ClosedChannelException e) {
+                //the channel is reopened below, it requires the write lock
+                closedException = e;
+            } finally {
+                this.compactionLock.readLock().unlock();
+            }
+            this.reopenChannel(usedChannel);
+            if (closedException instanceof ClosedByInterruptException) {
+                throw log.throwing(closedException);
+            }
+            log.debug("Channel closed by another thread, running the operation again");
+        }
+    }
+
+    /**
+     * Reopen the {@code FileChannel} to the log file, if {@code closedChannel}
+     * is still the current channel and was closed, for instance because a thread
+     * was interrupted while using it.
+     *
+     * @param closedChannel The {@code FileChannel} found closed.
+     * @throws IOException  If this storage was closed, or if the channel could not be reopened.
+     */
+    private void reopenChannel(FileChannel closedChannel) throws IOException {
+        log.entry(closedChannel);
+        this.compactionLock.writeLock().lock();
+        try {
+            if (this.closed) {
+                throw log.throwing(new IOException("The request parameters storage was closed"));
+            }
+            if (this.channel == closedChannel && !closedChannel.isOpen()) {
+                log.warn("Channel to {} closed, probably following a thread interruption, reopening it",
+                        this.logFile);
+                this.channel = FileChannel.open(this.logFile, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+            }
+        } finally {
+            this.compactionLock.writeLock().unlock();
+        }
+        log.exit();
+    }
+
+    /**
+     * Import the query strings stored in {@code directory} by a {@link FileRequestParametersStorage}.
+     * Files are not deleted, query strings already stored are not imported again.
+     *
+     * @param directory     The {@code Path} of the directory to import files from.
+     * @return              An {@code int} that is the number of files imported.
+     * @throws IOException  If an error occurred while reading the files or writing the log.
+     */
+    public int importFiles(Path directory) throws IOException {
+        log.entry(directory);
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(directory)) {
+            files = paths.filter(p -> Files.isRegularFile(p) &&
+                    FILE_KEY_PATTERN.matcher(p.getFileName().toString()).matches())
+                    .collect(Collectors.toList());
+        }
+        int imported = 0;
+        for (Path file: files) {
+            String key = file.getFileName().toString();
+            if (this.index.containsKey(key)) {
+                continue;
+            }
+            try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                //just one line in the file, a query string including storable parameters
+                String queryString = br.readLine();
+                this.putIfAbsent(key, queryString == null? "": queryString);
+                imported++;
+            }
+        }
+        return log.exit(imported);
+    }
+
+    /**
+     * Launch a compaction in a background thread if a time-to-live is defined,
+     * and if the last compaction is older than {@link #COMPACTION_INTERVAL_IN_MS}.
+     */
+    private void compactIfNeeded() {
+        if (this.ttlInMs <= 0 ||
+                this.clock.getAsLong() - this.lastCompaction < COMPACTION_INTERVAL_IN_MS ||
+                !this.compacting.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                this.compact();
+            } catch (IOException e) {
+                log.catching(e);
+                log.error("Compaction of {} failed", this.logFile);
+            } finally {
+                this.compacting.set(false);
+            }
+        }, "RequestParametersStorage-compaction");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Compact the log file: copy the records of query strings accessed during
+     * the time-to-live into a new log file, replacing the old one. All other operations
+     * are blocked during the compaction.
+     *
+     * @throws IOException  If an error occurred while compacting the log file.
+     */
+    public void compact() throws IOException {
+        log.entry();
+        long minLastAccess = this.ttlInMs > 0? this.clock.getAsLong() - this.ttlInMs: Long.MIN_VALUE;
+        Path tmpFile = this.logFile.resolveSibling(this.logFile.getFileName() + ".compact");
+        this.compactionLock.writeLock().lock();
+        try {
+            Map<String, Entry> newIndex = new ConcurrentHashMap<>();
+            long position = 0;
+            try (FileChannel newChannel = FileChannel.open(tmpFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (Map.Entry<String, Entry> entry: this.index.entrySet()) {
+                    if (entry.getValue().lastAccess < minLastAccess) {
+                        continue;
+                    }
+                    Entry newEntry = writeRecord(newChannel, position, entry.getKey(),
+                            readValue(this.channel, entry.getValue()), entry.getValue().lastAccess);
+                    newIndex.put(entry.getKey(), newEntry);
+                    position = newEntry.valuePosition + newEntry.valueLength;
+                }
+                newChannel.force(true);
+            } catch (ClosedChannelException e) {
+                //the compacting thread was interrupted, the channel to the log file
+                //can have been closed
+                this.reopenChannel(this.channel);
+                throw log.throwing(e);
+            }
+            this.channel.close();
+            Files.move(tmpFile, this.logFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            this.channel = FileChannel.open(this.logFile, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            log.info("Compaction of {}: {} query strings kept out of {}", this.logFile,
+                    newIndex.size(), this.index.size());
+            this.index.keySet().retainAll(newIndex.keySet());
+            this.index.putAll(newIndex);
+            this.cache.keySet().retainAll(newIndex.keySet());
+            this.appendLock.lock();
+            try {
+                this.endPosition = position;
+            } finally {
+                this.appendLock.unlock();
+            }
+        } finally {
+            this.lastCompaction = this.clock.getAsLong();
+            this.compactionLock.writeLock().unlock();
+        }
+        log.exit();
+    }
+
+    /**
+     * @return  An {@code int} that is the number of query strings stored.
+     */
+    public int size() {
+        return this.index.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.entry();
+        this.compactionLock.writeLock().lock();
+        try {
+            this.closed = true;
+            if (this.channel.isOpen()) {
+                this.channel.force(true);
+                this.channel.close();
+            }
+        } finally {
+            this.compactionLock.writeLock().unlock();
+        }
+        log.exit();
+    }
+}
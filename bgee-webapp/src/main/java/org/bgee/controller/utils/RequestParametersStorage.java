@@ -0,0 +1,142 @@
+package org.bgee.controller.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.controller.BgeeProperties;
+
+/**
+ * Storage of the query strings holding storable parameters of {@code RequestParameters},
+ * too long to be put in URLs, associated to the key generated from them.
+ * Stored query strings are never modified: a query string is only stored
+ * if none is already stored for its key.
+ * <p>
+ * Storages are shared by all threads, and obtained through {@link #getStorage(BgeeProperties)},
+ * depending on {@link BgeeProperties#getRequestParametersStorageType()}:
+ * {@link FileRequestParametersStorage} for the type {@code file},
+ * {@link LogRequestParametersStorage} for the type {@code log}.
+ * Implementations must be thread-safe.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @see org.bgee.controller.RequestParameters
+ * @since   Bgee 14, Jan. 2020
+ */
+public abstract class RequestParametersStorage {
+    private final static Logger log = LogManager.getLogger(RequestParametersStorage.class.getName());
+
+    /**
+     * A {@code String} that is the type of storage of {@link FileRequestParametersStorage}.
+     */
+    public final static String FILE_STORAGE_TYPE = "file";
+    /**
+     * A {@code String} that is the type of storage of {@link LogRequestParametersStorage}.
+     */
+    public final static String LOG_STORAGE_TYPE = "log";
+
+    /**
+     * A {@code ConcurrentMap} where keys are {@code String}s that are the type of a storage
+     * and its directory, the associated value being the {@code RequestParametersStorage}
+     * shared by all threads.
+     */
+    private final static ConcurrentMap<String, RequestParametersStorage> STORAGES =
+            new ConcurrentHashMap<>();
+    /**
+     * An {@code Object} used to make sure a storage is opened only once, held while opening it.
+     * Storages are not opened in a mapping function of {@link #STORAGES}, since opening
+     * a storage can involve long I/O operations (import of files, compaction).
+     */
+    private final static Object OPEN_LOCK = new Object();
+
+    /**
+     * Obtain the {@code RequestParametersStorage} shared by all threads for the type
+     * and directory defined in {@code props}, opened at the first call.
+     *
+     * @param props The {@code BgeeProperties} defining the storage to use.
+     * @return      The shared {@code RequestParametersStorage}.
+     * @throws IllegalArgumentException If the type of storage is unknown.
+     * @throws UncheckedIOException     If the storage could not be opened.
+     */
+    public static RequestParametersStorage getStorage(BgeeProperties props)
+            throws IllegalArgumentException, UncheckedIOException {
+        log.entry(props);
+        String type = props.getRequestParametersStorageType();
+        if (!FILE_STORAGE_TYPE.equals(type) && !LOG_STORAGE_TYPE.equals(type)) {
+            throw log.throwing(new IllegalArgumentException(
+                    "Unknown type of request parameters storage: " + type));
+        }
+        String directory = props.getRequestParametersStorageDirectory();
+        String storageKey = type + ":" + directory;
+        RequestParametersStorage storage = STORAGES.get(storageKey);
+        if (storage != null) {
+            return log.exit(storage);
+        }
+        synchronized (OPEN_LOCK) {
+            storage = STORAGES.get(storageKey);
+            if (storage == null) {
+                if (FILE_STORAGE_TYPE.equals(type)) {
+                    storage = new FileRequestParametersStorage(directory);
+                } else {
+                    try {
+                        storage = new LogRequestParametersStorage(directory,
+                                props.getRequestParametersStorageCacheSize(),
+                                props.getRequestParametersStorageTTL());
+                    } catch (IOException e) {
+                        throw log.throwing(new UncheckedIOException(
+                                "Could not open the request parameters storage in " + directory, e));
+                    }
+                }
+                STORAGES.put(storageKey, storage);
+            }
+        }
+        return log.exit(storage);
+    }
+    /**
+     * Close all shared {@code RequestParametersStorage}s, for instance when the webapp
+     * is shut down.
+     */
+    public static void closeAll() {
+        log.entry();
+        for (String key: STORAGES.keySet()) {
+            RequestParametersStorage storage = STORAGES.remove(key);
+            if (storage != null) {
+                try {
+                    storage.close();
+                } catch (IOException e) {
+                    log.catching(e);
+                    log.error("Could not close request parameters storage {}", key);
+                }
+            }
+        }
+        log.exit();
+    }
+
+    /**
+     * Retrieve the query string stored for {@code key}.
+     *
+     * @param key           A {@code String} that is the key of the query string to retrieve.
+     * @return              An {@code Optional} containing the query string stored for {@code key},
+     *                      empty if none was stored.
+     * @throws IOException  If an error occurred while reading the storage.
+     */
+    public abstract Optional<String> get(String key) throws IOException;
+    /**
+     * Store {@code queryString} for {@code key}, if no query string is already stored
+     * for {@code key}.
+     *
+     * @param key           A {@code String} that is the key of the query string to store.
+     * @param queryString   A {@code String} that is the query string to store.
+     * @throws IOException  If an error occurred while writing the storage.
+     */
+    public abstract void putIfAbsent(String key, String queryString) throws IOException;
+    /**
+     * Release the resources used by this storage.
+     *
+     * @throws IOException  If an error occurred while closing the storage.
+     */
+    public abstract void close() throws IOException;
+}
@@ -0,0 +1,423 @@
+package org.bgee.controller.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.model.dao.mysql.connector.BgeePreparedStatement;
+
+/**
+ * Records the latency of the requests processed by the webapp: for each command
+ * (for instance, {@code CommandGene}), a latency histogram is maintained for each
+ * {@link Phase} of the processing (parameter parsing, service calls, time spent
+ * executing SQL queries, rendering...). Requests slower than a threshold are sampled,
+ * with the SQL queries they executed, the {@link #MAX_SLOW_REQUESTS} most recent ones
+ * being kept.
+ * <p>
+ * The processing of a request is tracked by a {@link RequestTimer}, obtained
+ * from {@link #startRequest()} and bound to the current thread, so that commands
+ * can record the duration of their phases by calling the static method
+ * {@link #recordPhase(Phase, long)}, without needing a reference to the {@code RequestTimer}.
+ * Time spent executing SQL queries is recorded through a
+ * {@code BgeePreparedStatement.QueryListener}.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class RequestStats {
+    private final static Logger log = LogManager.getLogger(RequestStats.class.getName());
+
+    /**
+     * The phases of the processing of a request.
+     */
+    public static enum Phase {
+        /**
+         * Loading and analyzing the request parameters.
+         */
+        PARAMETERS,
+        /**
+         * The whole processing of the request by the command, including {@link #SERVICE},
+         * {@link #DAO} and {@link #RENDERING}.
+         */
+        PROCESSING,
+        /**
+         * Calls to services of the Bgee API, as recorded by commands.
+         */
+        SERVICE,
+        /**
+         * Execution of the SQL queries, not including the iteration of results.
+         */
+        DAO,
+        /**
+         * Generation of the response by views, as recorded by commands.
+         */
+        RENDERING,
+        /**
+         * The whole processing of the request.
+         */
+        TOTAL;
+    }
+
+    /**
+     * An {@code Array} of {@code long}s that are the upper bounds in milliseconds,
+     * inclusive, of the buckets of the latency histograms. An additional bucket counts
+     * the durations greater than the last bound.
+     */
+    private final static long[] BUCKET_UPPER_BOUNDS_IN_MS =
+            {10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+    /**
+     * An {@code int} that is the maximum number of slow requests kept.
+     */
+    public final static int MAX_SLOW_REQUESTS = 20;
+    /**
+     * An {@code int} that is the maximum number of SQL queries stored for each request.
+     */
+    public final static int MAX_QUERIES_PER_REQUEST = 50;
+
+    /**
+     * A {@code ThreadLocal} storing the {@code RequestTimer} of the request
+     * processed by the current thread.
+     */
+    private final static ThreadLocal<RequestTimer> CURRENT_REQUEST = new ThreadLocal<>();
+
+    /**
+     * @return  An {@code Array} of {@code long}s that are the upper bounds in milliseconds,
+     *          inclusive, of the buckets of the latency {@code Histogram}s. {@code Histogram}s
+     *          have an additional bucket, with no upper bound.
+     */
+    public static long[] getBucketUpperBoundsInMs() {
+        return BUCKET_UPPER_BOUNDS_IN_MS.clone();
+    }
+
+    /**
+     * Record the duration of {@code phase} for the request processed by the current thread.
+     * Does nothing if no request is tracked in the current thread.
+     *
+     * @param phase         The {@code Phase} to record the duration of.
+     * @param startNanos    A {@code long} that is the value returned by
+     *                      {@code System.nanoTime()} when {@code phase} started.
+     */
+    public static void recordPhase(Phase phase, long startNanos) {
+        RequestTimer timer = CURRENT_REQUEST.get();
+        if (timer != null) {
+            timer.recordPhase(phase, startNanos);
+        }
+    }
+
+    /**
+     * A latency histogram with fixed buckets.
+     */
+    public static class Histogram {
+        private final AtomicLongArray bucketCounts;
+        private final LongAdder count;
+        private final LongAdder totalNanos;
+        private final LongAccumulator maxNanos;
+
+        private Histogram() {
+            this.bucketCounts = new AtomicLongArray(BUCKET_UPPER_BOUNDS_IN_MS.length + 1);
+            this.count = new LongAdder();
+            this.totalNanos = new LongAdder();
+            this.maxNanos = new LongAccumulator(Math::max, 0);
+        }
+
+        private void record(long durationInNanos) {
+            long durationInMs = TimeUnit.NANOSECONDS.toMillis(durationInNanos);
+            int i = 0;
+            while (i < BUCKET_UPPER_BOUNDS_IN_MS.length && durationInMs > BUCKET_UPPER_BOUNDS_IN_MS[i]) {
+                i++;
+            }
+            this.bucketCounts.incrementAndGet(i);
+            this.count.increment();
+            this.totalNanos.add(durationInNanos);
+            this.maxNanos.accumulate(durationInNanos);
+        }
+
+        /**
+         * @return  An {@code Array} of {@code long}s that are the counts in each bucket
+         *          (see {@link RequestStats#getBucketUpperBoundsInMs()}).
+         */
+        public long[] getBucketCounts() {
+            long[] counts = new long[this.bucketCounts.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = this.bucketCounts.get(i);
+            }
+            return counts;
+        }
+        public long getCount() {
+            return this.count.sum();
+        }
+        public long getTotalInMs() {
+            return TimeUnit.NANOSECONDS.toMillis(this.totalNanos.sum());
+        }
+        public long getMaxInMs() {
+            return TimeUnit.NANOSECONDS.toMillis(this.maxNanos.get());
+        }
+    }
+
+    /**
+     * A SQL query executed while processing a request, with its execution time.
+     */
+    public static class QueryTiming {
+        private final String sql;
+        private final long durationInMs;
+
+        private QueryTiming(String sql, long durationInMs) {
+            this.sql = sql;
+            this.durationInMs = durationInMs;
+        }
+        public String getSql() {
+            return sql;
+        }
+        public long getDurationInMs() {
+            return durationInMs;
+        }
+    }
+
+    /**
+     * A request whose processing took longer than the slow request threshold.
+     */
+    public static class SlowRequest {
+        private final String command;
+        private final String url;
+        private final long timestamp;
+        private final Map<Phase, Long> phaseDurationsInMs;
+        private final int queryCount;
+        private final List<QueryTiming> queries;
+
+        private SlowRequest(String command, String url, long timestamp,
+                Map<Phase, Long> phaseDurationsInMs, int queryCount, List<QueryTiming> queries) {
+            this.command = command;
+            this.url = url;
+            this.timestamp = timestamp;
+            this.phaseDurationsInMs = Collections.unmodifiableMap(phaseDurationsInMs);
+            this.queryCount = queryCount;
+            this.queries = Collections.unmodifiableList(queries);
+        }
+
+        public String getCommand() {
+            return command;
+        }
+        public String getUrl() {
+            return url;
+        }
+        /**
+         * @return  A {@code long} that is the value of {@code System.currentTimeMillis()}
+         *          when the request completed.
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+        public Map<Phase, Long> getPhaseDurationsInMs() {
+            return phaseDurationsInMs;
+        }
+        /**
+         * @return  An {@code int} that is the number of SQL queries executed,
+         *          possibly greater than the size of {@link #getQueries()}.
+         */
+        public int getQueryCount() {
+            return queryCount;
+        }
+        /**
+         * @return  A {@code List} of the first {@link RequestStats#MAX_QUERIES_PER_REQUEST}
+         *          {@code QueryTiming}s executed.
+         */
+        public List<QueryTiming> getQueries() {
+            return queries;
+        }
+    }
+
+    /**
+     * Tracks the processing of one request. It is bound to the thread that called
+     * {@link RequestStats#startRequest()}, and must be closed by this thread
+     * once the request is processed. This class is not thread-safe.
+     */
+    public class RequestTimer implements BgeePreparedStatement.QueryListener, AutoCloseable {
+        private final long startNanos;
+        private String url;
+        private String command;
+        private final EnumMap<Phase, Long> phaseNanos;
+        private final List<QueryTiming> queries;
+        private int queryCount;
+        private boolean closed;
+
+        private RequestTimer() {
+            this.startNanos = System.nanoTime();
+            this.url = null;
+            this.command = null;
+            this.phaseNanos = new EnumMap<>(Phase.class);
+            this.queries = new ArrayList<>();
+            this.queryCount = 0;
+            this.closed = false;
+        }
+
+        /**
+         * @param url   A {@code String} that is the URL of the request, stored if the request
+         *              is slow.
+         */
+        public void setUrl(String url) {
+            this.url = url;
+        }
+        /**
+         * @param command   A {@code String} that is the name of the command processing
+         *                  the request, used to group latency histograms.
+         */
+        public void setCommand(String command) {
+            this.command = command;
+        }
+        /**
+         * Record the duration of {@code phase}. If this method is called several times
+         * for a same phase, the durations are summed.
+         *
+         * @param phase         The {@code Phase} to record the duration of.
+         * @param startNanos    A {@code long} that is the value returned by
+         *                      {@code System.nanoTime()} when {@code phase} started.
+         */
+        public void recordPhase(Phase phase, long startNanos) {
+            this.addPhaseDuration(phase, System.nanoTime() - startNanos);
+        }
+        private void addPhaseDuration(Phase phase, long durationInNanos) {
+            this.phaseNanos.merge(phase, durationInNanos, Long::sum);
+        }
+
+        @Override
+        public void queryExecuted(String sql, long durationInNanos) {
+            this.addPhaseDuration(Phase.DAO, durationInNanos);
+            this.queryCount++;
+            if (this.queries.size() < MAX_QUERIES_PER_REQUEST) {
+                this.queries.add(new QueryTiming(sql,
+                        TimeUnit.NANOSECONDS.toMillis(durationInNanos)));
+            }
+        }
+
+        /**
+         * Record the total duration of the request, update the statistics,
+         * and unbind this {@code RequestTimer} from the current thread.
+         */
+        @Override
+        public void close() {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            this.addPhaseDuration(Phase.TOTAL, System.nanoTime() - this.startNanos);
+            if (CURRENT_REQUEST.get() == this) {
+                CURRENT_REQUEST.remove();
+                BgeePreparedStatement.removeThreadQueryListener();
+            }
+            RequestStats.this.requestCompleted(this);
+        }
+    }
+
+    /**
+     * A {@code ConcurrentMap} where keys are {@code String}s that are names of commands,
+     * the associated value being a {@code ConcurrentMap} storing the {@code Histogram}
+     * of each {@code Phase}.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<Phase, Histogram>> histograms;
+    /**
+     * A {@code Deque} of the most recent {@code SlowRequest}s, the most recent first.
+     * Accesses must be synchronized on this {@code Deque}.
+     */
+    private final Deque<SlowRequest> slowRequests;
+    /**
+     * A {@code long} that is the duration in milliseconds above which a request
+     * is considered slow.
+     */
+    private final long slowRequestThresholdInMs;
+
+    /**
+     * @param slowRequestThresholdInMs  A {@code long} that is the duration in milliseconds
+     *                                  above which a request is considered slow and sampled.
+     */
+    public RequestStats(long slowRequestThresholdInMs) {
+        this.histograms = new ConcurrentHashMap<>();
+        this.slowRequests = new LinkedList<>();
+        this.slowRequestThresholdInMs = slowRequestThresholdInMs;
+    }
+
+    /**
+     * Start tracking a request processed by the current thread. The returned
+     * {@code RequestTimer} must be closed by the current thread once the request is processed.
+     *
+     * @return  The {@code RequestTimer} bound to the current thread.
+     */
+    public RequestTimer startRequest() {
+        log.entry();
+        RequestTimer timer = new RequestTimer();
+        CURRENT_REQUEST.set(timer);
+        BgeePreparedStatement.setThreadQueryListener(timer);
+        return log.exit(timer);
+    }
+
+    private void requestCompleted(RequestTimer timer) {
+        log.entry(timer);
+        String command = timer.command != null? timer.command: "unknown";
+        ConcurrentMap<Phase, Histogram> commandHistograms =
+                this.histograms.computeIfAbsent(command, k -> new ConcurrentHashMap<>());
+        timer.phaseNanos.forEach((phase, nanos) ->
+                commandHistograms.computeIfAbsent(phase, k -> new Histogram()).record(nanos));
+
+        long totalInMs = TimeUnit.NANOSECONDS.toMillis(timer.phaseNanos.get(Phase.TOTAL));
+        if (totalInMs > this.slowRequestThresholdInMs) {
+            Map<Phase, Long> durations = new EnumMap<>(Phase.class);
+            timer.phaseNanos.forEach((phase, nanos) ->
+                    durations.put(phase, TimeUnit.NANOSECONDS.toMillis(nanos)));
+            SlowRequest slowRequest = new SlowRequest(command, timer.url,
+                    System.currentTimeMillis(), durations, timer.queryCount, timer.queries);
+            log.info("Slow request ({} ms) processed by {}: {}", totalInMs, command, timer.url);
+            synchronized (this.slowRequests) {
+                this.slowRequests.addFirst(slowRequest);
+                while (this.slowRequests.size() > MAX_SLOW_REQUESTS) {
+                    this.slowRequests.removeLast();
+                }
+            }
+        }
+        log.exit();
+    }
+
+    /**
+     * @return  A {@code Map} where keys are {@code String}s that are names of commands,
+     *          the associated value being a {@code Map} storing the {@code Histogram}
+     *          of each {@code Phase} recorded for this command. Commands are ordered
+     *          by their name, phases by their natural order.
+     */
+    public Map<String, Map<Phase, Histogram>> getHistograms() {
+        Map<String, Map<Phase, Histogram>> map = new TreeMap<>();
+        this.histograms.forEach((command, phaseMap) -> {
+            Map<Phase, Histogram> orderedPhaseMap = new EnumMap<>(Phase.class);
+            orderedPhaseMap.putAll(phaseMap);
+            map.put(command, Collections.unmodifiableMap(orderedPhaseMap));
+        });
+        return Collections.unmodifiableMap(map);
+    }
+    /**
+     * @return  A {@code List} of the most recent {@code SlowRequest}s, the most recent first.
+     */
+    public List<SlowRequest> getSlowRequests() {
+        synchronized (this.slowRequests) {
+            return Collections.unmodifiableList(new ArrayList<>(this.slowRequests));
+        }
+    }
+    /**
+     * @return  A {@code long} that is the duration in milliseconds above which a request
+     *          is considered slow and sampled.
+     */
+    public long getSlowRequestThresholdInMs() {
+        return slowRequestThresholdInMs;
+    }
+}
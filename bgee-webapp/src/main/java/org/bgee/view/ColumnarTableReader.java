@@ -0,0 +1,158 @@
+package org.bgee.view;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.view.ColumnarTableWriter.Column;
+
+/**
+ * Reads tables written by a {@link ColumnarTableWriter}, see this class
+ * for a description of the format. This class is not thread-safe.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ * @see ColumnarTableWriter
+ */
+public class ColumnarTableReader implements Closeable {
+    private final static Logger log = LogManager.getLogger(ColumnarTableReader.class.getName());
+
+    private final DataInputStream in;
+    private final List<Column> columns;
+    private final boolean compressed;
+    /**
+     * A {@code List} storing, for each column, the values associated to their code
+     * (index in the {@code List}).
+     */
+    private final List<List<String>> valuesByCode;
+    private boolean endReached;
+
+    /**
+     * Instantiate a {@code ColumnarTableReader}. The header is immediately read.
+     *
+     * @param in    The {@code InputStream} to read the table from.
+     * @throws IOException  If the header could not be read, or is incorrect.
+     */
+    public ColumnarTableReader(InputStream in) throws IOException {
+        log.entry(in);
+        this.in = new DataInputStream(in);
+        if (this.in.readInt() != ColumnarTableWriter.MAGIC) {
+            throw log.throwing(new IOException("Not a columnar table"));
+        }
+        short version = this.in.readShort();
+        if (version != ColumnarTableWriter.FORMAT_VERSION) {
+            throw log.throwing(new IOException("Unsupported format version: " + version));
+        }
+        this.compressed = (this.in.readByte() & ColumnarTableWriter.FLAG_DEFLATE) != 0;
+
+        int columnCount = this.in.readShort();
+        List<Column> columns = new ArrayList<>();
+        this.valuesByCode = new ArrayList<>();
+        for (int i = 0; i < columnCount; i++) {
+            String name = this.in.readUTF();
+            byte type = this.in.readByte();
+            List<String> values = new ArrayList<>();
+            if (type == ColumnarTableWriter.TYPE_ENUM) {
+                int labelCount = this.in.readShort();
+                for (int j = 0; j < labelCount; j++) {
+                    values.add(this.in.readUTF());
+                }
+                columns.add(new Column(name, values));
+            } else if (type == ColumnarTableWriter.TYPE_DICTIONARY) {
+                columns.add(new Column(name));
+            } else {
+                throw log.throwing(new IOException("Unsupported column type: " + type));
+            }
+            this.valuesByCode.add(values);
+        }
+        this.columns = Collections.unmodifiableList(columns);
+        this.endReached = false;
+        log.exit();
+    }
+
+    /**
+     * Read the next row group of the table.
+     *
+     * @return  A {@code List} of arrays of {@code String}s, each array being a row,
+     *          with values in the order of the columns. {@code null} if the end
+     *          of the table was reached.
+     * @throws IOException  If the row group could not be read.
+     */
+    public List<String[]> readRowGroup() throws IOException {
+        log.entry();
+        if (this.endReached) {
+            return log.exit(null);
+        }
+        int rowCount = this.in.readInt();
+        if (rowCount == 0) {
+            this.endReached = true;
+            return log.exit(null);
+        }
+        byte[] bytes = new byte[this.in.readInt()];
+        this.in.readFully(bytes);
+
+        List<String[]> rows = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            rows.add(new String[this.columns.size()]);
+        }
+        InputStream bodyStream = new ByteArrayInputStream(bytes);
+        try (DataInputStream body = new DataInputStream(this.compressed?
+                new InflaterInputStream(bodyStream): bodyStream)) {
+            for (int i = 0; i < this.columns.size(); i++) {
+                if (this.columns.get(i).getType() != ColumnarTableWriter.TYPE_DICTIONARY) {
+                    continue;
+                }
+                int newEntryCount = body.readInt();
+                for (int j = 0; j < newEntryCount; j++) {
+                    this.valuesByCode.get(i).add(body.readUTF());
+                }
+            }
+            for (int i = 0; i < this.columns.size(); i++) {
+                boolean isEnum = this.columns.get(i).getType() == ColumnarTableWriter.TYPE_ENUM;
+                List<String> values = this.valuesByCode.get(i);
+                for (int row = 0; row < rowCount; row++) {
+                    int code = isEnum? body.readByte(): body.readInt();
+                    rows.get(row)[i] = code == -1? null: values.get(code);
+                }
+            }
+        }
+        return log.exit(rows);
+    }
+
+    /**
+     * Read all the remaining rows of the table.
+     *
+     * @return  A {@code List} of arrays of {@code String}s, each array being a row,
+     *          with values in the order of the columns.
+     * @throws IOException  If the rows could not be read.
+     */
+    public List<String[]> readAllRows() throws IOException {
+        log.entry();
+        List<String[]> rows = new ArrayList<>();
+        List<String[]> rowGroup;
+        while ((rowGroup = this.readRowGroup()) != null) {
+            rows.addAll(rowGroup);
+        }
+        return log.exit(rows);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    /**
+     * @return  An unmodifiable {@code List} of {@code Column}s that are the columns of the table.
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+}
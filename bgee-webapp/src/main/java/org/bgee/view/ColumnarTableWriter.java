@@ -0,0 +1,404 @@
+package org.bgee.view;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Writes a table of {@code String} values in a compact columnar binary format,
+ * notably used to send expression calls to the BgeeDB R package
+ * (see {@link org.bgee.controller.CommandRPackage}). The table can be read back
+ * using a {@link ColumnarTableReader}.
+ * <p>
+ * Rows are buffered and written in row groups of {@link #getRowGroupSize()} rows,
+ * so that the table can be written while it is produced, without storing it in memory.
+ * All numbers are written in big-endian order, {@code String}s are written
+ * in modified UTF-8 (see {@code DataOutput#writeUTF(String)}). The format is:
+ * <ul>
+ * <li>header:
+ *   <ul>
+ *   <li>{@code int}: {@link #MAGIC}
+ *   <li>{@code short}: {@link #FORMAT_VERSION}
+ *   <li>{@code byte}: flags, {@link #FLAG_DEFLATE} if row groups are compressed
+ *   <li>{@code short}: number of columns, followed for each column by: its name ({@code String}),
+ *   its type ({@code byte}, {@link #TYPE_DICTIONARY} or {@link #TYPE_ENUM}), and,
+ *   for {@code TYPE_ENUM} columns, the number of labels ({@code short}) followed by
+ *   the labels ({@code String}s).
+ *   </ul>
+ * <li>row groups, each made of: the number of rows ({@code int}), the length in bytes
+ * of the body of the row group ({@code int}), and the body of the row group, compressed
+ * with DEFLATE if {@link #FLAG_DEFLATE} is set. The body contains:
+ *   <ul>
+ *   <li>for each {@code TYPE_DICTIONARY} column, in order: the number of new dictionary entries
+ *   ({@code int}), followed by the new entries ({@code String}s). The code of an entry
+ *   is its index in the dictionary of the column, built across all previous row groups.
+ *   <li>for each column, in order: the code of the value of each row, as an {@code int}
+ *   for {@code TYPE_DICTIONARY} columns, as a {@code byte} for {@code TYPE_ENUM} columns
+ *   (index of the label in the header). {@code null} values have the code {@code -1}.
+ *   </ul>
+ * <li>end of table: an {@code int} equal to 0 (a row group with no rows).
+ * </ul>
+ * The end of the table is written only by {@link #finish()}, to be called once all rows
+ * were written: if the production of the rows fails, the table is left unterminated,
+ * so that readers fail rather than receiving a truncated table.
+ * This class is not thread-safe.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ * @see ColumnarTableReader
+ */
+public class ColumnarTableWriter implements Closeable {
+    private final static Logger log = LogManager.getLogger(ColumnarTableWriter.class.getName());
+
+    /**
+     * An {@code int} that is the magic number starting the tables ("BGCT").
+     */
+    public final static int MAGIC = 0x42474354;
+    /**
+     * A {@code short} that is the version of the format written.
+     */
+    public final static short FORMAT_VERSION = 1;
+    /**
+     * A {@code byte} that is the flag set in the header when row groups are compressed.
+     */
+    public final static byte FLAG_DEFLATE = 1;
+    /**
+     * A {@code byte} that is the type of columns whose values are encoded
+     * using a dictionary built while writing.
+     */
+    public final static byte TYPE_DICTIONARY = 1;
+    /**
+     * A {@code byte} that is the type of columns whose values belong to a small set of labels
+     * declared in the header.
+     */
+    public final static byte TYPE_ENUM = 2;
+    /**
+     * An {@code int} that is the default number of rows per row group.
+     */
+    public final static int DEFAULT_ROW_GROUP_SIZE = 10000;
+
+    /**
+     * A column of a table written by a {@code ColumnarTableWriter}.
+     *
+     * @version Bgee 14, Jan. 2020
+     * @since   Bgee 14, Jan. 2020
+     */
+    public static class Column {
+        private final String name;
+        private final byte type;
+        private final List<String> labels;
+
+        /**
+         * Instantiate a {@code TYPE_DICTIONARY} column.
+         *
+         * @param name  A {@code String} that is the name of the column.
+         */
+        public Column(String name) {
+            this(name, TYPE_DICTIONARY, null);
+        }
+        /**
+         * Instantiate a {@code TYPE_ENUM} column.
+         *
+         * @param name      A {@code String} that is the name of the column.
+         * @param labels    A {@code List} of {@code String}s that are the values
+         *                  the column can take.
+         * @throws IllegalArgumentException If {@code labels} is {@code null}, empty,
+         *                                  or contains more than 127 elements.
+         */
+        public Column(String name, List<String> labels) throws IllegalArgumentException {
+            this(name, TYPE_ENUM, labels);
+        }
+        private Column(String name, byte type, List<String> labels) throws IllegalArgumentException {
+            if (name == null) {
+                throw log.throwing(new IllegalArgumentException("A column name must be provided"));
+            }
+            if (type == TYPE_ENUM && (labels == null || labels.isEmpty() ||
+                    labels.size() > Byte.MAX_VALUE)) {
+                throw log.throwing(new IllegalArgumentException(
+                        "Between 1 and 127 labels must be provided for column " + name));
+            }
+            this.name = name;
+            this.type = type;
+            this.labels = labels == null? null: Collections.unmodifiableList(new ArrayList<>(labels));
+        }
+
+        /**
+         * @return  A {@code String} that is the name of the column.
+         */
+        public String getName() {
+            return name;
+        }
+        /**
+         * @return  A {@code byte} that is the type of the column, {@link #TYPE_DICTIONARY}
+         *          or {@link #TYPE_ENUM}.
+         */
+        public byte getType() {
+            return type;
+        }
+        /**
+         * @return  An unmodifiable {@code List} of {@code String}s that are the labels
+         *          of a {@code TYPE_ENUM} column, {@code null} for other columns.
+         */
+        public List<String> getLabels() {
+            return labels;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append("Column [name=").append(name).append(", type=").append(type)
+                   .append(", labels=").append(labels).append("]");
+            return builder.toString();
+        }
+    }
+
+    private final DataOutputStream out;
+    private final List<Column> columns;
+    private final boolean compress;
+    private final int rowGroupSize;
+    /**
+     * A {@code List} storing, for each column, a {@code Map} associating values to their code.
+     */
+    private final List<Map<String, Integer>> codesByValue;
+    /**
+     * A {@code List} storing, for each column, the dictionary entries added
+     * since the last row group was written.
+     */
+    private final List<List<String>> newEntries;
+    /**
+     * An array storing, for each column, the codes of the rows of the current row group.
+     */
+    private final int[][] rowGroupCodes;
+    private int rowCount;
+    /**
+     * A {@code boolean} that is {@code true} if the end of the table was written
+     * by {@link #finish()}.
+     */
+    private boolean finished;
+
+    /**
+     * Instantiate a {@code ColumnarTableWriter} with rows groups
+     * of {@link #DEFAULT_ROW_GROUP_SIZE} rows. The header is immediately written.
+     *
+     * @param out       The {@code OutputStream} to write the table to.
+     * @param columns   A {@code List} of {@code Column}s that are the columns of the table.
+     * @param compress  A {@code boolean} defining whether row groups are compressed.
+     * @throws IOException  If the header could not be written.
+     */
+    public ColumnarTableWriter(OutputStream out, List<Column> columns, boolean compress)
+            throws IOException {
+        this(out, columns, compress, DEFAULT_ROW_GROUP_SIZE);
+    }
+    /**
+     * Instantiate a {@code ColumnarTableWriter}. The header is immediately written.
+     *
+     * @param out           The {@code OutputStream} to write the table to.
+     * @param columns       A {@code List} of {@code Column}s that are the columns of the table.
+     * @param compress      A {@code boolean} defining whether row groups are compressed.
+     * @param rowGroupSize  An {@code int} that is the number of rows per row group.
+     * @throws IllegalArgumentException    If {@code columns} is {@code null} or empty,
+     *                                      or {@code rowGroupSize} is not positive.
+     * @throws IOException                  If the header could not be written.
+     */
+    public ColumnarTableWriter(OutputStream out, List<Column> columns, boolean compress,
+            int rowGroupSize) throws IllegalArgumentException, IOException {
+        log.entry(out, columns, compress, rowGroupSize);
+        if (columns == null || columns.isEmpty()) {
+            throw log.throwing(new IllegalArgumentException("Columns must be provided"));
+        }
+        if (rowGroupSize <= 0) {
+            throw log.throwing(new IllegalArgumentException("Incorrect row group size: "
+                    + rowGroupSize));
+        }
+        this.out = new DataOutputStream(out);
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        this.compress = compress;
+        this.rowGroupSize = rowGroupSize;
+        this.codesByValue = new ArrayList<>();
+        this.newEntries = new ArrayList<>();
+        for (Column column: this.columns) {
+            Map<String, Integer> codes = new HashMap<>();
+            if (column.getType() == TYPE_ENUM) {
+                for (String label: column.getLabels()) {
+                    codes.put(label, codes.size());
+                }
+            }
+            this.codesByValue.add(codes);
+            this.newEntries.add(new ArrayList<>());
+        }
+        this.rowGroupCodes = new int[this.columns.size()][rowGroupSize];
+        this.rowCount = 0;
+
+        this.writeHeader();
+        log.exit();
+    }
+
+    private void writeHeader() throws IOException {
+        log.entry();
+        this.out.writeInt(MAGIC);
+        this.out.writeShort(FORMAT_VERSION);
+        this.out.writeByte(this.compress? FLAG_DEFLATE: 0);
+        this.out.writeShort(this.columns.size());
+        for (Column column: this.columns) {
+            this.out.writeUTF(column.getName());
+            this.out.writeByte(column.getType());
+            if (column.getType() == TYPE_ENUM) {
+                this.out.writeShort(column.getLabels().size());
+                for (String label: column.getLabels()) {
+                    this.out.writeUTF(label);
+                }
+            }
+        }
+        log.exit();
+    }
+
+    /**
+     * Add a row to the table. The row is written when its row group is complete,
+     * or when {@link #finish()} is called.
+     *
+     * @param values    The {@code String}s that are the values of the row,
+     *                  in the order of the columns. Values can be {@code null}.
+     * @throws IllegalArgumentException If the number of values does not match
+     *                                  the number of columns, or if a value of
+     *                                  a {@code TYPE_ENUM} column is not one of its labels.
+     * @throws IllegalStateException    If {@link #finish()} was already called.
+     * @throws IOException              If the row group could not be written.
+     */
+    public void writeRow(String... values) throws IllegalArgumentException, IllegalStateException,
+            IOException {
+        log.entry((Object[]) values);
+        if (this.finished) {
+            throw log.throwing(new IllegalStateException("The table was already finished"));
+        }
+        if (values.length != this.columns.size()) {
+            throw log.throwing(new IllegalArgumentException("Incorrect number of values: "
+                    + values.length + " - expected: " + this.columns.size()));
+        }
+        for (int i = 0; i < values.length; i++) {
+            int code = -1;
+            if (values[i] != null) {
+                Map<String, Integer> codes = this.codesByValue.get(i);
+                Integer existingCode = codes.get(values[i]);
+                if (existingCode != null) {
+                    code = existingCode;
+                } else if (this.columns.get(i).getType() == TYPE_ENUM) {
+                    throw log.throwing(new IllegalArgumentException("Incorrect value for column "
+                            + this.columns.get(i).getName() + ": " + values[i]));
+                } else {
+                    code = codes.size();
+                    codes.put(values[i], code);
+                    this.newEntries.get(i).add(values[i]);
+                }
+            }
+            this.rowGroupCodes[i][this.rowCount] = code;
+        }
+        this.rowCount++;
+        if (this.rowCount == this.rowGroupSize) {
+            this.writeRowGroup();
+        }
+        log.exit();
+    }
+
+    /**
+     * Write the rows currently buffered, and flush the underlying {@code OutputStream}.
+     *
+     * @throws IOException  If the row group could not be written.
+     */
+    private void writeRowGroup() throws IOException {
+        log.entry();
+        if (this.rowCount == 0) {
+            log.exit(); return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream body = new DataOutputStream(this.compress?
+                new DeflaterOutputStream(bytes): bytes)) {
+            for (int i = 0; i < this.columns.size(); i++) {
+                if (this.columns.get(i).getType() != TYPE_DICTIONARY) {
+                    continue;
+                }
+                List<String> entries = this.newEntries.get(i);
+                body.writeInt(entries.size());
+                for (String entry: entries) {
+                    body.writeUTF(entry);
+                }
+                entries.clear();
+            }
+            for (int i = 0; i < this.columns.size(); i++) {
+                boolean isEnum = this.columns.get(i).getType() == TYPE_ENUM;
+                for (int row = 0; row < this.rowCount; row++) {
+                    if (isEnum) {
+                        body.writeByte(this.rowGroupCodes[i][row]);
+                    } else {
+                        body.writeInt(this.rowGroupCodes[i][row]);
+                    }
+                }
+            }
+        }
+        log.trace("Writing row group of {} rows, {} bytes", this.rowCount, bytes.size());
+        this.out.writeInt(this.rowCount);
+        this.out.writeInt(bytes.size());
+        bytes.writeTo(this.out);
+        this.out.flush();
+        this.rowCount = 0;
+        log.exit();
+    }
+
+    /**
+     * Write the rows currently buffered and the end of the table, and flush
+     * the underlying {@code OutputStream}. This method must be called once all rows
+     * were written, and before {@link #close()}.
+     *
+     * @throws IllegalStateException    If this method was already called.
+     * @throws IOException              If the table could not be written.
+     */
+    public void finish() throws IllegalStateException, IOException {
+        log.entry();
+        if (this.finished) {
+            throw log.throwing(new IllegalStateException("The table was already finished"));
+        }
+        this.writeRowGroup();
+        this.out.writeInt(0);
+        this.out.flush();
+        this.finished = true;
+        log.exit();
+    }
+
+    /**
+     * Close the underlying {@code OutputStream}. The end of the table is not written
+     * if {@link #finish()} was not called, so that readers detect an incomplete table.
+     */
+    @Override
+    public void close() throws IOException {
+        log.entry();
+        if (!this.finished) {
+            log.warn("Table closed before being finished, {} buffered rows discarded",
+                    this.rowCount);
+        }
+        this.out.close();
+        log.exit();
+    }
+
+    /**
+     * @return  An unmodifiable {@code List} of {@code Column}s that are the columns of the table.
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+    /**
+     * @return  An {@code int} that is the number of rows per row group.
+     */
+    public int getRowGroupSize() {
+        return rowGroupSize;
+    }
+}
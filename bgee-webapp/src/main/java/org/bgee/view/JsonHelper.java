@@ -10,16 +10,32 @@ import org.apache.logging.log4j.Logger;
 import org.bgee.controller.BgeeProperties;
 import org.bgee.controller.RequestParameters;
 import org.bgee.controller.URLParameters;
+import org.bgee.model.XRef;
+import org.bgee.model.anatdev.AnatEntity;
+import org.bgee.model.anatdev.DevStage;
+import org.bgee.model.expressiondata.Call;
+import org.bgee.model.expressiondata.Call.ExpressionCall;
+import org.bgee.model.expressiondata.CallData.ExpressionCallData;
 import org.bgee.model.expressiondata.CallService;
+import org.bgee.model.expressiondata.Condition;
+import org.bgee.model.expressiondata.baseelements.DataPropagation;
+import org.bgee.model.expressiondata.baseelements.DataType;
+import org.bgee.model.expressiondata.baseelements.ExpressionLevelInfo;
+import org.bgee.model.expressiondata.baseelements.SummaryCallType.ExpressionSummary;
 import org.bgee.model.file.DownloadFile;
+import org.bgee.model.gene.Gene;
 import org.bgee.model.job.Job;
+import org.bgee.model.species.Species;
 import org.bgee.model.topanat.TopAnatResults;
 import org.bgee.model.topanat.TopAnatResults.TopAnatResultRow;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 
 /**
@@ -29,12 +45,20 @@ import java.util.stream.Stream;
  * @author  Philippe Moret
  * @author  Frederic Bastian
  * @author  Valentine Rech de Laval
- * @version Bgee 14, Apr. 2017
+ * @version Bgee 14, Jan. 2020
  * @since   Bgee 13, Oct. 2015
  */
 public class JsonHelper {
     
     private static final Logger log = LogManager.getLogger(JsonHelper.class.getName());
+
+    /**
+     * An {@code int} that is the number of elements of a {@code Stream}, or of rows 
+     * of a {@code TopAnatResults}, after which the underlying writer is flushed. 
+     * When writing to a response, this allows to send large results to the client 
+     * incrementally (chunked transfer), rather than buffering the whole response.
+     */
+    public static final int FLUSH_ELEMENT_COUNT = 1000;
     
     /**
      * A {@code TypeAdapterFactory} made to return {@code StreamTypeAdapter}s, capable 
@@ -115,11 +139,17 @@ public class JsonHelper {
      * we would need to declare one for each implementation; or to make the custom 
      * {@code TypeAdapterFactory} to return the same {@code TypeAdapter} for all implementations.
      * <p>
-     * For now, this factory manages only {@code Stream}s, but we could use it 
-     * for other complex types.
+     * <p>
+     * This factory also provides the {@code TypeAdapter}s for the model classes 
+     * that can be dumped in large numbers ({@code ExpressionCall}, {@code Gene}, 
+     * {@code AnatEntity}, {@code Condition}, {@code TopAnatResultRow}). These adapters 
+     * write the fields directly, rather than going through the reflection-based 
+     * {@code TypeAdapter}s of {@code Gson}, and they retrieve the {@code TypeAdapter}s 
+     * of their sub-elements once, when created: as {@code Gson} caches the {@code TypeAdapter}s 
+     * returned by factories, they are created only once per {@code Gson} object.
      * 
      * @author Frederic Bastian
-     * @version Bgee 13 Nov. 2015
+     * @version Bgee 14 Jan. 2020
      * @since Bgee 13 Nov. 2015
      * @see StreamTypeAdapter
      *
@@ -130,15 +160,27 @@ public class JsonHelper {
         public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
             log.entry(gson, typeToken);
             
-            if (!Stream.class.isAssignableFrom(typeToken.getRawType())) {
-              return log.exit(null);
+            Class<? super T> rawType = typeToken.getRawType();
+            TypeAdapter<?> result = null;
+            if (Stream.class.isAssignableFrom(rawType)) {
+                result = new StreamTypeAdapter<>(gson);
+            } else if (ExpressionCall.class.equals(rawType)) {
+                result = new ExpressionCallTypeAdapter(gson);
+            } else if (Gene.class.equals(rawType)) {
+                result = new GeneTypeAdapter(gson);
+            } else if (AnatEntity.class.equals(rawType)) {
+                result = new AnatEntityTypeAdapter();
+            } else if (Condition.class.equals(rawType)) {
+                result = new ConditionTypeAdapter(gson);
+            } else if (TopAnatResultRow.class.equals(rawType)) {
+                result = new TopAnatResultRowTypeAdapter();
             }
             //it is mandatory to cast the returned factory, the test isAssignableFrom 
             //is not enough for the warning to disappear. Note that this is also the case 
             //in Gson factory implementations
             @SuppressWarnings("unchecked")
-            TypeAdapter<T> result = (TypeAdapter<T>) new StreamTypeAdapter<>(gson);
-            return log.exit(result);
+            TypeAdapter<T> castResult = (TypeAdapter<T>) result;
+            return log.exit(castResult);
         }
     }
     /**
@@ -146,8 +188,12 @@ public class JsonHelper {
      * the iterated elements, by retrieving the correct {@code TypeAdapter} corresponding to 
      * their actual type. Recursion is not a problem ({@code Stream} of {@code Stream}s).
      * 
+     * <p>
+     * The underlying writer is flushed every {@link #FLUSH_ELEMENT_COUNT} elements, 
+     * so that large {@code Stream}s are sent progressively to the client.
+     * 
      * @author Frederic Bastian
-     * @version Bgee 13 Nov. 2015
+     * @version Bgee 14 Jan. 2020
      * @since Bgee 13 Nov. 2015
      * @see BgeeTypeAdapterFactory
      *
@@ -178,8 +224,17 @@ public class JsonHelper {
             
             //Use the Stream Iterator to be able to throw checked Exceptions
             Iterator<T> iterator = stream.iterator();
+            //The TypeAdapter used for the previous element, most Streams contain 
+            //elements of a same type
+            Class<?> previousClass = null;
+            TypeAdapter<T> typeAdapter = null;
+            int elementCount = 0;
             while (iterator.hasNext()) {
                 T e = iterator.next();
+                elementCount++;
+                if (elementCount % FLUSH_ELEMENT_COUNT == 0) {
+                    out.flush();
+                }
                 if (e == null) {
                     out.nullValue();
                     continue;
@@ -191,12 +246,16 @@ public class JsonHelper {
                 //but maybe the Stream contains elements of mix-types, 
                 //and we can't use the generic type declaration to decide which Adapter to use. 
                 //So, we always use the Adapter corresponding to the actual type of the element, 
-                //not to its declared type.
-                
-                //it is a mandatory to cast the returned factory, note that this is also the case 
-                //in Gson factory implementations
-                @SuppressWarnings("unchecked")
-                TypeAdapter<T> typeAdapter = (TypeAdapter<T>) gson.getAdapter(e.getClass());
+                //not to its declared type. We only avoid retrieving it again when the element 
+                //has the same type as the previous one.
+                if (!e.getClass().equals(previousClass)) {
+                    previousClass = e.getClass();
+                    //it is a mandatory to cast the returned factory, note that this is also the case 
+                    //in Gson factory implementations
+                    @SuppressWarnings("unchecked")
+                    TypeAdapter<T> newTypeAdapter = (TypeAdapter<T>) gson.getAdapter(previousClass);
+                    typeAdapter = newTypeAdapter;
+                }
                 typeAdapter.write(out, e);
             }
             
@@ -348,11 +407,16 @@ public class JsonHelper {
          * The {@code RequestParameters} corresponding to the current request to the webapp.
          */
         private final RequestParameters requestParameters;
+        /**
+         * The {@code TopAnatResultRowTypeAdapter} used to write the rows of the results.
+         */
+        private final TopAnatResultRowTypeAdapter rowAdapter;
         /**
          * @param requestParameters The {@code RequestParameters} corresponding to the current request 
          *                          to the webapp.
          */
         private TopAnatResultsTypeAdapter(RequestParameters requestParameters) {
+            this.rowAdapter = new TopAnatResultRowTypeAdapter();
             if (requestParameters == null) {
                 this.requestParameters = null;
             } else {
@@ -386,29 +450,13 @@ public class JsonHelper {
             out.name("results");
             out.beginArray();
             
+            int rowCount = 0;
             for (TopAnatResultRow row: results.getRows()) {
-                out.beginObject();
-                
-                out.name("anatEntityId").value(row.getAnatEntitiesId());
-                out.name("anatEntityName").value(row.getAnatEntitiesName());
-                out.name("annotated").value(row.getAnnotated());
-                out.name("significant").value(row.getSignificant());
-                out.name("expected");
-                if (Double.isInfinite(row.getExpected()) || Double.isNaN(row.getExpected())) {
-                    out.value("NA");
-                } else {
-                    out.value(row.getExpected());
-                }
-                out.name("foldEnrichment");
-                if (Double.isInfinite(row.getEnrich()) || Double.isNaN(row.getEnrich())) {
-                    out.value("NA");
-                } else {
-                    out.value(row.getEnrich());
+                this.rowAdapter.write(out, row);
+                rowCount++;
+                if (rowCount % FLUSH_ELEMENT_COUNT == 0) {
+                    out.flush();
                 }
-                out.name("pValue").value(row.getPval());
-                out.name("FDR").value(row.getFdr());
-                
-                out.endObject();
             }
             
             out.endArray();
@@ -426,6 +474,257 @@ public class JsonHelper {
         
     }
 
+    /**
+     * A {@code TypeAdapter} to write {@code TopAnatResultRow}s in JSON. This adapter 
+     * is needed to write "NA" for infinite or undefined values, and to use the names 
+     * of the columns of TopAnat result files.
+     */
+    private static final class TopAnatResultRowTypeAdapter extends TypeAdapter<TopAnatResultRow> {
+        @Override
+        public void write(JsonWriter out, TopAnatResultRow row) throws IOException {
+            log.entry(out, row);
+            if (row == null) {
+                out.nullValue();
+                log.exit(); return;
+            }
+            out.beginObject();
+            
+            out.name("anatEntityId").value(row.getAnatEntitiesId());
+            out.name("anatEntityName").value(row.getAnatEntitiesName());
+            out.name("annotated").value(row.getAnnotated());
+            out.name("significant").value(row.getSignificant());
+            out.name("expected");
+            if (Double.isInfinite(row.getExpected()) || Double.isNaN(row.getExpected())) {
+                out.value("NA");
+            } else {
+                out.value(row.getExpected());
+            }
+            out.name("foldEnrichment");
+            if (Double.isInfinite(row.getEnrich()) || Double.isNaN(row.getEnrich())) {
+                out.value("NA");
+            } else {
+                out.value(row.getEnrich());
+            }
+            out.name("pValue").value(row.getPval());
+            out.name("FDR").value(row.getFdr());
+            
+            out.endObject();
+            log.exit();
+        }
+        
+        @Override
+        public TopAnatResultRow read(JsonReader in) throws IOException {
+            //for now, we never read JSON values
+            throw log.throwing(new UnsupportedOperationException("No custom JSON reader for TopAnatResultRow."));
+        }
+    }
+
+    /**
+     * A {@code TypeAdapter} to write {@code AnatEntity}s in JSON, producing the same output 
+     * as the reflection-based {@code TypeAdapter} of {@code Gson}, without using reflection.
+     */
+    private static final class AnatEntityTypeAdapter extends TypeAdapter<AnatEntity> {
+        @Override
+        public void write(JsonWriter out, AnatEntity value) throws IOException {
+            log.entry(out, value);
+            if (value == null) {
+                out.nullValue();
+                log.exit(); return;
+            }
+            out.beginObject();
+            //null values are not written, as for the default TypeAdapters
+            out.name("name").value(value.getName());
+            out.name("description").value(value.getDescription());
+            out.name("id").value(value.getId());
+            out.endObject();
+            log.exit();
+        }
+        
+        @Override
+        public AnatEntity read(JsonReader in) throws IOException {
+            //for now, we never read JSON values
+            throw log.throwing(new UnsupportedOperationException("No custom JSON reader for AnatEntity."));
+        }
+    }
+
+    /**
+     * A {@code TypeAdapter} to write {@code Gene}s in JSON, producing the same output 
+     * as the reflection-based {@code TypeAdapter} of {@code Gson}. The {@code TypeAdapter}s 
+     * for {@code Species} and {@code XRef}s are retrieved once at instantiation.
+     */
+    private static final class GeneTypeAdapter extends TypeAdapter<Gene> {
+        private final TypeAdapter<Species> speciesAdapter;
+        private final TypeAdapter<Set<XRef>> xRefsAdapter;
+
+        /**
+         * @param gson  The {@code Gson} object to retrieve the {@code TypeAdapter}s 
+         *              of sub-elements from.
+         */
+        private GeneTypeAdapter(Gson gson) {
+            this.speciesAdapter = gson.getAdapter(Species.class);
+            this.xRefsAdapter = gson.getAdapter(new TypeToken<Set<XRef>>(){});
+        }
+        @Override
+        public void write(JsonWriter out, Gene value) throws IOException {
+            log.entry(out, value);
+            if (value == null) {
+                out.nullValue();
+                log.exit(); return;
+            }
+            out.beginObject();
+            out.name("ensemblGeneId").value(value.getEnsemblGeneId());
+            out.name("name").value(value.getName());
+            out.name("description").value(value.getDescription());
+            out.name("synonyms");
+            if (value.getSynonyms() == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (String synonym: value.getSynonyms()) {
+                    out.value(synonym);
+                }
+                out.endArray();
+            }
+            out.name("xRefs");
+            this.xRefsAdapter.write(out, value.getXRefs());
+            out.name("species");
+            this.speciesAdapter.write(out, value.getSpecies());
+            out.name("geneBioType");
+            if (value.getGeneBioType() == null) {
+                out.nullValue();
+            } else {
+                out.beginObject();
+                out.name("name").value(value.getGeneBioType().getName());
+                out.endObject();
+            }
+            out.name("geneMappedToSameEnsemblGeneIdCount").value(
+                    value.getGeneMappedToSameEnsemblGeneIdCount());
+            out.endObject();
+            log.exit();
+        }
+        
+        @Override
+        public Gene read(JsonReader in) throws IOException {
+            //for now, we never read JSON values
+            throw log.throwing(new UnsupportedOperationException("No custom JSON reader for Gene."));
+        }
+    }
+
+    /**
+     * A {@code TypeAdapter} to write {@code Condition}s in JSON. The {@code TypeAdapter}s 
+     * for the condition parameters are retrieved once at instantiation.
+     */
+    private static final class ConditionTypeAdapter extends TypeAdapter<Condition> {
+        private final TypeAdapter<AnatEntity> anatEntityAdapter;
+        private final TypeAdapter<DevStage> devStageAdapter;
+        private final TypeAdapter<Species> speciesAdapter;
+        private final TypeAdapter<Map<DataType, BigDecimal>> ranksAdapter;
+
+        /**
+         * @param gson  The {@code Gson} object to retrieve the {@code TypeAdapter}s 
+         *              of sub-elements from.
+         */
+        private ConditionTypeAdapter(Gson gson) {
+            this.anatEntityAdapter = gson.getAdapter(AnatEntity.class);
+            this.devStageAdapter = gson.getAdapter(DevStage.class);
+            this.speciesAdapter = gson.getAdapter(Species.class);
+            this.ranksAdapter = gson.getAdapter(new TypeToken<Map<DataType, BigDecimal>>(){});
+        }
+        @Override
+        public void write(JsonWriter out, Condition value) throws IOException {
+            log.entry(out, value);
+            if (value == null) {
+                out.nullValue();
+                log.exit(); return;
+            }
+            out.beginObject();
+            out.name("maxRanksByDataType");
+            this.ranksAdapter.write(out, value.getMaxRanksByDataType());
+            out.name("globalMaxRanksByDataType");
+            this.ranksAdapter.write(out, value.getGlobalMaxRanksByDataType());
+            out.name("anatEntity");
+            this.anatEntityAdapter.write(out, value.getAnatEntity());
+            out.name("devStage");
+            this.devStageAdapter.write(out, value.getDevStage());
+            out.name("species");
+            this.speciesAdapter.write(out, value.getSpecies());
+            out.endObject();
+            log.exit();
+        }
+        
+        @Override
+        public Condition read(JsonReader in) throws IOException {
+            //for now, we never read JSON values
+            throw log.throwing(new UnsupportedOperationException("No custom JSON reader for Condition."));
+        }
+    }
+
+    /**
+     * A {@code TypeAdapter} to write {@code ExpressionCall}s in JSON. The {@code TypeAdapter}s 
+     * for {@code Gene}s, {@code Condition}s and call data are retrieved once at instantiation, 
+     * source calls are written recursively by this adapter.
+     */
+    private static final class ExpressionCallTypeAdapter extends TypeAdapter<ExpressionCall> {
+        private final TypeAdapter<Gene> geneAdapter;
+        private final TypeAdapter<Condition> conditionAdapter;
+        private final TypeAdapter<DataPropagation> dataPropagationAdapter;
+        private final TypeAdapter<ExpressionLevelInfo> expressionLevelInfoAdapter;
+        private final TypeAdapter<Set<ExpressionCallData>> callDataAdapter;
+
+        /**
+         * @param gson  The {@code Gson} object to retrieve the {@code TypeAdapter}s 
+         *              of sub-elements from.
+         */
+        private ExpressionCallTypeAdapter(Gson gson) {
+            this.geneAdapter = gson.getAdapter(Gene.class);
+            this.conditionAdapter = gson.getAdapter(Condition.class);
+            this.dataPropagationAdapter = gson.getAdapter(DataPropagation.class);
+            this.expressionLevelInfoAdapter = gson.getAdapter(ExpressionLevelInfo.class);
+            this.callDataAdapter = gson.getAdapter(new TypeToken<Set<ExpressionCallData>>(){});
+        }
+        @Override
+        public void write(JsonWriter out, ExpressionCall value) throws IOException {
+            log.entry(out, value);
+            if (value == null) {
+                out.nullValue();
+                log.exit(); return;
+            }
+            out.beginObject();
+            out.name("dataPropagation");
+            this.dataPropagationAdapter.write(out, value.getDataPropagation());
+            out.name("expressionLevelInfo");
+            this.expressionLevelInfoAdapter.write(out, value.getExpressionLevelInfo());
+            out.name("gene");
+            this.geneAdapter.write(out, value.getGene());
+            out.name("condition");
+            this.conditionAdapter.write(out, value.getCondition());
+            out.name("summaryCallType").value(value.getSummaryCallType() == null? null:
+                value.getSummaryCallType().name());
+            out.name("summaryQuality").value(value.getSummaryQuality() == null? null:
+                value.getSummaryQuality().name());
+            out.name("callData");
+            this.callDataAdapter.write(out, value.getCallData());
+            out.name("sourceCalls");
+            if (value.getSourceCalls() == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (Call<ExpressionSummary, ExpressionCallData> sourceCall: value.getSourceCalls()) {
+                    this.write(out, (ExpressionCall) sourceCall);
+                }
+                out.endArray();
+            }
+            out.endObject();
+            log.exit();
+        }
+        
+        @Override
+        public ExpressionCall read(JsonReader in) throws IOException {
+            //for now, we never read JSON values
+            throw log.throwing(new UnsupportedOperationException("No custom JSON reader for ExpressionCall."));
+        }
+    }
+
     /**
      * A {@code TypeAdapter} to read/write {@code Job}s in JSON. This adapter 
      * is needed to not display some information, notably about the running {@code Thread} 
@@ -0,0 +1,32 @@
+package org.bgee.view;
+
+import java.util.Map;
+
+import org.bgee.controller.utils.RequestStats;
+import org.bgee.model.dao.mysql.connector.StatementProfiler;
+
+/**
+ * Interface that defines the methods a display for the stats category, i.e. page=stats
+ * has to implements
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public interface StatsDisplay {
+
+    /**
+     * Display the latency statistics of the requests processed by the webapp,
+     * and the statistics of the SQL statements executed.
+     *
+     * @param requestStats      The {@code RequestStats} containing the statistics to display.
+     * @param queryStats        A {@code Map} where keys are {@code String}s that are SQL shapes,
+     *                          the associated value being the {@code ShapeStatistics}
+     *                          aggregated for them.
+     * @param includeDetails    A {@code boolean} defining whether the details of slow requests
+     *                          (URLs and SQL queries), and the SQL shapes of the statements,
+     *                          should be displayed. Should be
+     *                          {@code true} only for authorized clients.
+     */
+    public void displayRequestStats(RequestStats requestStats,
+            Map<String, StatementProfiler.ShapeStatistics> queryStats, boolean includeDetails);
+}
@@ -247,4 +247,13 @@ public abstract class ViewFactory {
      *                      response output.
      */
     public abstract AnatomicalSimilarityDisplay getAnatomicalSimilarityDisplay() throws IOException;
+
+    /**
+     *
+     * @return A {@code StatsDisplay} instance of the appropriate display type.
+     *
+     * @throws IOException  If an error occurs with the {@code PrintWriter} when writing the
+     *                      response output.
+     */
+    public abstract StatsDisplay getStatsDisplay() throws IOException;
 }
@@ -25,10 +25,11 @@ public class ViewFactoryProvider {
     
     /**
      * An {@code enum} of the different display types: {@code HTML}, {@code XML}, 
-     * {@code JSON}, {@code CSV}, {@code TSV}.
+     * {@code JSON}, {@code CSV}, {@code TSV}, {@code BINARY}. {@code BINARY} is used 
+     * only to send expression calls to the R package, other responses are then sent as TSV.
      */
     public static enum DisplayType {
-        HTML, XML, JSON, CSV, TSV;
+        HTML, XML, JSON, CSV, TSV, BINARY;
     }
     
     /**
@@ -80,6 +81,8 @@ public class ViewFactoryProvider {
             displayType = DisplayType.CSV;
         } else if (requestParameters.isTsvDisplayType()) {
             displayType = DisplayType.TSV;
+        } else if (requestParameters.isBinaryDisplayType()) {
+            displayType = DisplayType.BINARY;
         }
         return log.exit(getFactory(response, displayType, requestParameters));
     }
@@ -113,7 +116,7 @@ public class ViewFactoryProvider {
         if (displayType == DisplayType.CSV) {
             return new CsvFactory(response, requestParameters, this.prop, Delimiter.COMMA);
         }
-        if (displayType == DisplayType.TSV) {
+        if (displayType == DisplayType.TSV || displayType == DisplayType.BINARY) {
             return new CsvFactory(response, requestParameters, this.prop, Delimiter.TAB);
         }
         return log.exit(new HtmlFactory(response, requestParameters, this.prop));
@@ -148,4 +148,9 @@ public class CsvFactory extends ViewFactory {
     public AnatomicalSimilarityDisplay getAnatomicalSimilarityDisplay() {
         throw log.throwing(new UnsupportedOperationException("Not available for TSV/CSV display"));
     }
+
+    @Override
+    public StatsDisplay getStatsDisplay() {
+        throw log.throwing(new UnsupportedOperationException("Not available for TSV/CSV display"));
+    }
 }
\ No newline at end of file
@@ -324,7 +324,7 @@ public class HtmlExpressionComparisonDisplay extends HtmlParentDisplay
                 .collect(Collectors.joining(ENTITIES_SEPARATOR))).append("</td>");
         row.append("<td>").append(expressedGenes.size()).append("</td>");
         row.append("<td>").append(notExpressedGenes.size()).append("</td>");
-        row.append("<td>").append(condToCounts.getValue().getGenesWithNoData().size()).append("</td>");
+        row.append("<td>").append(condToCounts.getValue().getGenesWithNoDataCount()).append("</td>");
         if (isMultiSpecies) {
             row.append("<td>")
                     .append(expressedGenes.stream().map(Gene::getSpecies).distinct().count())
@@ -191,4 +191,9 @@ public class HtmlFactory extends ViewFactory {
         return log.exit(new HtmlAnatomicalSimilarityDisplay(
                 this.response, this.requestParameters, this.prop, this));
     }
+
+    @Override
+    public StatsDisplay getStatsDisplay() {
+        throw log.throwing(new UnsupportedOperationException("Not available for HTML display"));
+    }
 }
@@ -164,4 +164,11 @@ public class JsonFactory extends ViewFactory {
     public AnatomicalSimilarityDisplay getAnatomicalSimilarityDisplay() {
         throw log.throwing(new UnsupportedOperationException("Not available for JSON display"));
     }
+
+    @Override
+    public StatsDisplay getStatsDisplay() throws IOException {
+        log.entry();
+        return log.exit(new JsonStatsDisplay(this.response, this.requestParameters,
+            this.prop, this.jsonHelper, this));
+    }
 }
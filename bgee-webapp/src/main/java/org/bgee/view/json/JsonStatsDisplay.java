@@ -0,0 +1,129 @@
+package org.bgee.view.json;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.controller.BgeeProperties;
+import org.bgee.controller.RequestParameters;
+import org.bgee.controller.utils.RequestStats;
+import org.bgee.model.dao.mysql.connector.StatementProfiler;
+import org.bgee.view.JsonHelper;
+import org.bgee.view.StatsDisplay;
+
+/**
+ * This class is the JSON view of the {@code StatsDisplay}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class JsonStatsDisplay extends JsonParentDisplay implements StatsDisplay {
+
+    private final static Logger log = LogManager.getLogger(JsonStatsDisplay.class.getName());
+
+    /**
+     * Constructor providing the necessary dependencies.
+     *
+     * @param response          A {@code HttpServletResponse} that will be used to display the
+     *                          page to the client
+     * @param requestParameters The {@code RequestParameters} handling the parameters of the
+     *                          current request.
+     * @param prop              A {@code BgeeProperties} instance that contains the properties
+     *                          to use.
+     * @param jsonHelper        A {@code JsonHelper} used to dump variables into Json.
+     * @param factory           The {@code JsonFactory} that instantiated this object.
+     *
+     * @throws IllegalArgumentException If {@code factory} or {@code jsonHelper} is {@code null}.
+     * @throws IOException      If there is an issue when trying to get or to use the
+     *                          {@code PrintWriter}
+     */
+    public JsonStatsDisplay(HttpServletResponse response,
+            RequestParameters requestParameters, BgeeProperties prop,
+            JsonHelper jsonHelper, JsonFactory factory) throws IllegalArgumentException, IOException {
+        super(response, requestParameters, prop, jsonHelper, factory);
+    }
+
+    @Override
+    public void displayRequestStats(RequestStats requestStats,
+            Map<String, StatementProfiler.ShapeStatistics> queryStats, boolean includeDetails) {
+        log.entry(requestStats, queryStats, includeDetails);
+
+        LinkedHashMap<String, Object> histograms = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<RequestStats.Phase, RequestStats.Histogram>> commandEntry:
+                requestStats.getHistograms().entrySet()) {
+            LinkedHashMap<String, Object> phases = new LinkedHashMap<>();
+            for (Map.Entry<RequestStats.Phase, RequestStats.Histogram> phaseEntry:
+                    commandEntry.getValue().entrySet()) {
+                RequestStats.Histogram histogram = phaseEntry.getValue();
+                LinkedHashMap<String, Object> histogramData = new LinkedHashMap<>();
+                histogramData.put("count", histogram.getCount());
+                histogramData.put("totalInMs", histogram.getTotalInMs());
+                histogramData.put("maxInMs", histogram.getMaxInMs());
+                histogramData.put("bucketCounts", histogram.getBucketCounts());
+                phases.put(phaseEntry.getKey().name(), histogramData);
+            }
+            histograms.put(commandEntry.getKey(), phases);
+        }
+
+        //URLs and SQL queries can contain user data, they are displayed only if authorized
+        List<LinkedHashMap<String, Object>> slowRequests = !includeDetails? null:
+                requestStats.getSlowRequests().stream()
+                .map(r -> {
+                    LinkedHashMap<String, Object> requestData = new LinkedHashMap<>();
+                    requestData.put("command", r.getCommand());
+                    requestData.put("url", r.getUrl());
+                    requestData.put("timestamp", r.getTimestamp());
+                    requestData.put("phaseDurationsInMs", r.getPhaseDurationsInMs().entrySet().stream()
+                            .collect(Collectors.toMap(e -> e.getKey().name(), e -> e.getValue(),
+                                    (v1, v2) -> v1, LinkedHashMap::new)));
+                    requestData.put("queryCount", r.getQueryCount());
+                    requestData.put("queries", r.getQueries().stream()
+                            .map(q -> {
+                                LinkedHashMap<String, Object> queryData = new LinkedHashMap<>();
+                                queryData.put("sql", q.getSql());
+                                queryData.put("durationInMs", q.getDurationInMs());
+                                return queryData;
+                            }).collect(Collectors.toList()));
+                    return requestData;
+                }).collect(Collectors.toList());
+
+        List<LinkedHashMap<String, Object>> queries = queryStats.values().stream()
+                .map(q -> {
+                    LinkedHashMap<String, Object> queryData = new LinkedHashMap<>();
+                    queryData.put("id", q.getId());
+                    //SQL shapes reveal the schema, they are displayed only if authorized
+                    if (includeDetails) {
+                        queryData.put("sql", q.getShape());
+                    }
+                    queryData.put("count", q.getCount());
+                    queryData.put("totalInMs", q.getTotalExecutionInMs());
+                    queryData.put("maxInMs", q.getMaxExecutionInMs());
+                    queryData.put("meanTimeToFirstRowInMs", q.getMeanTimeToFirstRowInMs());
+                    queryData.put("rowCount", q.getRowCount());
+                    queryData.put("maxParameterCount", q.getMaxParameterCount());
+                    queryData.put("canceledCount", q.getCanceledCount());
+                    queryData.put("slowCount", q.getSlowCount());
+                    return queryData;
+                }).collect(Collectors.toList());
+
+        LinkedHashMap<String, Object> data = new LinkedHashMap<>();
+        data.put("slowRequestThresholdInMs", requestStats.getSlowRequestThresholdInMs());
+        data.put("bucketUpperBoundsInMs", RequestStats.getBucketUpperBoundsInMs());
+        data.put("histograms", histograms);
+        if (slowRequests != null) {
+            data.put("slowRequests", slowRequests);
+        }
+        data.put("slowQueryThresholdInMs", StatementProfiler.getInstance().getSlowQueryThresholdInMs());
+        data.put("queries", queries);
+
+        this.sendResponse("Request statistics", data);
+
+        log.exit();
+    }
+}
@@ -3,6 +3,7 @@ package org.bgee.controller;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -743,6 +744,32 @@ public class RequestParametersTest extends TestAncestor {
                 );
     }
 
+    /**
+     * Test {@link RequestParameters#getCanonicalQuery()}: storable parameters
+     * retrieved from a key are expanded, and parameters are sorted by name.
+     */
+    @Test
+    public void testGetCanonicalQuery() throws RequestParametersNotFoundException,
+    MultipleValuesNotAllowedException, InvalidFormatException {
+        BgeeHttpServletRequest mockHttpServletRequest = mock(BgeeHttpServletRequest.class);
+        Map<String, String[]> parameterMap = new HashMap<>();
+        parameterMap.put("test_string", new String[]{"string1"});
+        parameterMap.put("test_list", new String[]{"s1", "s2"});
+        parameterMap.put("test_boolean", new String[]{"true","false"});
+        parameterMap.put("test_integer", new String[]{"1234","2345"});
+        when(mockHttpServletRequest.getParameterMap()).thenReturn(parameterMap);
+        RequestParameters rp = new RequestParameters(mockHttpServletRequest,
+                RequestParametersTest.testURLParameters, BgeeProperties.getBgeeProperties(),
+                true, "&");
+        this.addParamsToExceedThreshold(rp);
+
+        String canonicalQuery = this.requestParametersHavingAKey.getCanonicalQuery();
+        assertEquals("Incorrect canonical query", rp.getCanonicalQuery(), canonicalQuery);
+        assertEquals("Incorrect canonical query", -1, canonicalQuery.indexOf("data="));
+        assertTrue("Parameters should be sorted by name",
+                canonicalQuery.indexOf("test_boolean=") < canonicalQuery.indexOf("test_integer="));
+    }
+
     /**
      * Test that trying to load too much values for a param that does not
      * allow multiple values throws an exception
@@ -1,9 +1,13 @@
 package org.bgee.controller.servletutils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -11,13 +15,15 @@ import javax.servlet.http.HttpServletRequest;
 import org.junit.Before;
 import org.junit.Test;
 
+import net.sf.ehcache.constructs.web.PageInfo;
+
 /**
  * This class tests {@code BgeeWebCache} methods. The class mostly uses methods
  * of its parent class {@code net.sf.ehcache.constructs.web.filter.CachingFilter}.
  * These tests are focused only on the overridden methods
  * 
  * @author Mathieu Seppey
- * @version Bgee 13
+ * @version Bgee 14, Jan. 2020
  * @since Bgee 13
  */
 public class BgeeWebCacheTest {
@@ -37,12 +43,12 @@ public class BgeeWebCacheTest {
     @Before
     public void initMockObject(){
         this.mockRequest = mock(HttpServletRequest.class);
-        @SuppressWarnings("unchecked")
-        Map<String,String[]> mockParamMap = mock(Map.class);
-        when(this.mockRequest.getParameterMap()).thenReturn(mockParamMap);
+        Map<String,String[]> paramMap = new LinkedHashMap<>();
+        paramMap.put("page", new String[]{"gene"});
+        paramMap.put("gene_id", new String[]{"ENSG1", "ENSG2"});
+        when(this.mockRequest.getParameterMap()).thenReturn(paramMap);
         when(this.mockRequest.getMethod()).thenReturn("GET");
-        when(mockParamMap.toString()).thenReturn("Param map values");
-        this.filterToTest = new BgeeWebCache();
+        this.filterToTest = new BgeeWebCache("14.1", 1580515200000L, 1);
     }
     /**
      * Test that the key is correctly generated
@@ -50,7 +56,85 @@ public class BgeeWebCacheTest {
     @Test
     public void testCalculateKey(){
         assertEquals("The key returned is not as expected",
-                "58b43f3ae408a68ceb02985f9c7cae3ff8cc7207",
+                "57787ea869a77843244e3156d0f7fa8312417c52",
                 this.filterToTest.calculateKey(mockRequest));
+
+        //order of parameters and repeated values do not matter
+        HttpServletRequest otherRequest = mock(HttpServletRequest.class);
+        Map<String,String[]> paramMap = new LinkedHashMap<>();
+        paramMap.put("gene_id", new String[]{"ENSG1", "ENSG2", "ENSG1"});
+        paramMap.put("page", new String[]{"gene"});
+        when(otherRequest.getParameterMap()).thenReturn(paramMap);
+        when(otherRequest.getMethod()).thenReturn("GET");
+        assertEquals(this.filterToTest.calculateKey(mockRequest),
+                this.filterToTest.calculateKey(otherRequest));
+
+        when(otherRequest.getMethod()).thenReturn("POST");
+        assertNotEquals(this.filterToTest.calculateKey(mockRequest),
+                this.filterToTest.calculateKey(otherRequest));
+
+        //key computed in doFilter from the canonical query of the RequestParameters
+        when(otherRequest.getAttribute(BgeeWebCache.class.getName() + ".key")).thenReturn("key1");
+        assertEquals("key1", this.filterToTest.calculateKey(otherRequest));
+    }
+
+    /**
+     * Test the conditional GET requests answered with a 304 response.
+     */
+    @Test
+    public void testIsNotModified() {
+        String eTag = this.filterToTest.getETag("key1");
+        assertEquals("W/\"14.1-key1\"", eTag);
+        when(this.mockRequest.getDateHeader("If-Modified-Since")).thenReturn(-1L);
+        assertFalse(this.filterToTest.isNotModified(this.mockRequest, eTag));
+
+        when(this.mockRequest.getHeader("If-None-Match")).thenReturn("W/\"14.0-key1\", " + eTag);
+        assertTrue(this.filterToTest.isNotModified(this.mockRequest, eTag));
+        when(this.mockRequest.getHeader("If-None-Match")).thenReturn("W/\"14.0-key1\"");
+        assertFalse(this.filterToTest.isNotModified(this.mockRequest, eTag));
+        //the wildcard is not accepted
+        when(this.mockRequest.getHeader("If-None-Match")).thenReturn("*");
+        assertFalse(this.filterToTest.isNotModified(this.mockRequest, eTag));
+
+        when(this.mockRequest.getHeader("If-None-Match")).thenReturn(null);
+        when(this.mockRequest.getDateHeader("If-Modified-Since")).thenReturn(1580515200000L);
+        assertTrue(this.filterToTest.isNotModified(this.mockRequest, eTag));
+        when(this.mockRequest.getDateHeader("If-Modified-Since")).thenReturn(1580515199000L);
+        assertFalse(this.filterToTest.isNotModified(this.mockRequest, eTag));
+
+        when(this.mockRequest.getMethod()).thenReturn("POST");
+        when(this.mockRequest.getDateHeader("If-Modified-Since")).thenReturn(1580515200000L);
+        assertFalse(this.filterToTest.isNotModified(this.mockRequest, eTag));
+
+        //no conditional requests if the data release is unknown
+        when(this.mockRequest.getMethod()).thenReturn("GET");
+        BgeeWebCache noReleaseFilter = new BgeeWebCache(null, 1580515200000L, 1);
+        String noReleaseETag = noReleaseFilter.getETag("key1");
+        assertFalse(noReleaseFilter.isNotModified(this.mockRequest, noReleaseETag));
+        when(this.mockRequest.getHeader("If-None-Match")).thenReturn(noReleaseETag);
+        assertFalse(noReleaseFilter.isNotModified(this.mockRequest, noReleaseETag));
+    }
+
+    /**
+     * Test the eviction of pages from the in-heap tier.
+     */
+    @Test
+    public void testHeapTier() throws Exception {
+        BgeeWebCache.HeapTier heapTier = new BgeeWebCache.HeapTier(250);
+        PageInfo page1 = new PageInfo(200, "text/html", null, new byte[100], false, 0, null);
+        PageInfo page2 = new PageInfo(200, "text/html", null, new byte[100], false, 0, null);
+        PageInfo page3 = new PageInfo(200, "text/html", null, new byte[100], false, 0, null);
+        heapTier.put("key1", page1);
+        heapTier.put("key2", page2);
+        //key1 becomes the most recently used
+        heapTier.get("key1");
+        heapTier.put("key3", page3);
+        assertEquals(200, heapTier.getSizeInBytes());
+        assertEquals(page1, heapTier.get("key1"));
+        assertEquals(null, heapTier.get("key2"));
+        assertEquals(page3, heapTier.get("key3"));
+        //pages bigger than the tier are not kept
+        heapTier.put("key4", new PageInfo(200, "text/html", null, new byte[300], false, 0, null));
+        assertEquals(null, heapTier.get("key4"));
     }
 }
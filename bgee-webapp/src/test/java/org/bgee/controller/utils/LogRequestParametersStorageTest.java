@@ -0,0 +1,157 @@
+package org.bgee.controller.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.TestAncestor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link LogRequestParametersStorage}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class LogRequestParametersStorageTest extends TestAncestor {
+
+    private final static Logger log = LogManager.getLogger(LogRequestParametersStorageTest.class.getName());
+
+    private final static String KEY1 = "0123456789abcdef0123456789abcdef01234567";
+    private final static String KEY2 = "1123456789abcdef0123456789abcdef01234567";
+
+    @Rule
+    public final TemporaryFolder testFolder = new TemporaryFolder();
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    private String getDirectory() {
+        return testFolder.getRoot().getPath() + "/";
+    }
+
+    /**
+     * Test storing and retrieving query strings, including after reopening the storage.
+     */
+    @Test
+    public void shouldStoreAndRetrieve() throws IOException {
+        LogRequestParametersStorage storage = new LogRequestParametersStorage(getDirectory(), 1, 0);
+        storage.putIfAbsent(KEY1, "page=gene&gene_id=ENSG1");
+        storage.putIfAbsent(KEY2, "page=top_anat&fg_list=é");
+        //query strings are never modified
+        storage.putIfAbsent(KEY1, "page=other");
+        assertEquals(Optional.of("page=gene&gene_id=ENSG1"), storage.get(KEY1));
+        assertEquals(Optional.of("page=top_anat&fg_list=é"), storage.get(KEY2));
+        assertFalse(storage.get("unknown").isPresent());
+        storage.close();
+
+        //simulate a record truncated by a crash
+        Path logFile = testFolder.getRoot().toPath().resolve(LogRequestParametersStorage.LOG_FILE_NAME);
+        Files.write(logFile, new byte[]{0, 0, 1}, StandardOpenOption.APPEND);
+
+        storage = new LogRequestParametersStorage(getDirectory(), 10, 0);
+        assertEquals(2, storage.size());
+        assertEquals(Optional.of("page=gene&gene_id=ENSG1"), storage.get(KEY1));
+        //new records are written after the discarded bytes
+        storage.putIfAbsent("key3", "page=about");
+        storage.close();
+        storage = new LogRequestParametersStorage(getDirectory(), 10, 0);
+        assertEquals(3, storage.size());
+        assertEquals(Optional.of("page=about"), storage.get("key3"));
+        storage.close();
+    }
+
+    /**
+     * Test that the storage remains usable after a thread was interrupted while using it,
+     * which closes the {@code FileChannel} to the log file.
+     */
+    @Test
+    public void shouldRecoverFromInterruption() throws IOException {
+        //cache size of 1 to read the log file
+        LogRequestParametersStorage storage = new LogRequestParametersStorage(getDirectory(), 1, 0);
+        storage.putIfAbsent(KEY1, "page=gene&gene_id=ENSG1");
+
+        Thread.currentThread().interrupt();
+        try {
+            storage.putIfAbsent(KEY2, "page=top_anat");
+            fail("An exception should have been thrown following the interruption");
+        } catch (ClosedByInterruptException e) {
+            //test passed
+        } finally {
+            //clear the interrupted status
+            Thread.interrupted();
+        }
+        assertFalse(storage.get(KEY2).isPresent());
+        assertEquals(Optional.of("page=gene&gene_id=ENSG1"), storage.get(KEY1));
+        storage.putIfAbsent(KEY2, "page=top_anat");
+        assertEquals(Optional.of("page=gene&gene_id=ENSG1"), storage.get(KEY1));
+        assertEquals(Optional.of("page=top_anat"), storage.get(KEY2));
+        storage.close();
+
+        storage = new LogRequestParametersStorage(getDirectory(), 10, 0);
+        assertEquals(2, storage.size());
+        assertEquals(Optional.of("page=top_anat"), storage.get(KEY2));
+        storage.close();
+    }
+
+    /**
+     * Test the import of files written by {@link FileRequestParametersStorage}
+     * when the log is created.
+     */
+    @Test
+    public void shouldImportFiles() throws IOException {
+        Files.write(testFolder.getRoot().toPath().resolve(KEY1),
+                "page=gene&gene_id=ENSG1".getBytes(StandardCharsets.UTF_8));
+        Files.write(testFolder.getRoot().toPath().resolve("notAKey"),
+                "page=gene".getBytes(StandardCharsets.UTF_8));
+
+        LogRequestParametersStorage storage = new LogRequestParametersStorage(getDirectory(), 10, 0);
+        assertEquals(1, storage.size());
+        assertEquals(Optional.of("page=gene&gene_id=ENSG1"), storage.get(KEY1));
+        storage.close();
+    }
+
+    /**
+     * Test the removal of query strings not accessed during the time-to-live.
+     */
+    @Test
+    public void shouldCompact() throws IOException {
+        AtomicLong time = new AtomicLong(TimeUnit.DAYS.toMillis(100));
+        LogRequestParametersStorage storage = new LogRequestParametersStorage(getDirectory(),
+                10, 1, time::get);
+        storage.putIfAbsent(KEY1, "page=gene&gene_id=ENSG1");
+        storage.putIfAbsent(KEY2, "page=gene&gene_id=ENSG2");
+        time.addAndGet(TimeUnit.HOURS.toMillis(12));
+        storage.get(KEY2);
+        time.addAndGet(TimeUnit.HOURS.toMillis(18));
+        storage.compact();
+
+        assertEquals(1, storage.size());
+        assertFalse(storage.get(KEY1).isPresent());
+        assertEquals(Optional.of("page=gene&gene_id=ENSG2"), storage.get(KEY2));
+        storage.putIfAbsent(KEY1, "page=gene&gene_id=ENSG3");
+        storage.close();
+
+        //the time of last access is kept in the compacted log
+        storage = new LogRequestParametersStorage(getDirectory(), 10, 1, time::get);
+        assertEquals(2, storage.size());
+        assertEquals(Optional.of("page=gene&gene_id=ENSG3"), storage.get(KEY1));
+        storage.close();
+    }
+}
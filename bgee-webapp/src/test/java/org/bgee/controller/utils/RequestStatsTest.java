@@ -0,0 +1,96 @@
+package org.bgee.controller.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.TestAncestor;
+import org.bgee.controller.utils.RequestStats.Phase;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link RequestStats}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class RequestStatsTest extends TestAncestor {
+
+    private final static Logger log = LogManager.getLogger(RequestStatsTest.class.getName());
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Test that phase durations and queries are recorded in histograms, per command.
+     */
+    @Test
+    public void shouldRecordRequests() {
+        RequestStats stats = new RequestStats(Long.MAX_VALUE);
+        try (RequestStats.RequestTimer timer = stats.startRequest()) {
+            timer.setCommand("CommandGene");
+            timer.recordPhase(Phase.PARAMETERS, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(20));
+            //phases recorded through the static method are attributed to the current request
+            RequestStats.recordPhase(Phase.SERVICE, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(200));
+            timer.queryExecuted("SELECT 1", TimeUnit.MILLISECONDS.toNanos(30));
+            timer.queryExecuted("SELECT 2", TimeUnit.MILLISECONDS.toNanos(40));
+        }
+        try (RequestStats.RequestTimer timer = stats.startRequest()) {
+            timer.setCommand("CommandGene");
+        }
+        //no request tracked anymore, should be no-op
+        RequestStats.recordPhase(Phase.SERVICE, System.nanoTime());
+
+        Map<String, Map<Phase, RequestStats.Histogram>> histograms = stats.getHistograms();
+        assertEquals(1, histograms.size());
+        Map<Phase, RequestStats.Histogram> geneHistograms = histograms.get("CommandGene");
+        assertEquals(Arrays.asList(Phase.PARAMETERS, Phase.SERVICE, Phase.DAO, Phase.TOTAL),
+                Arrays.asList(geneHistograms.keySet().toArray()));
+        assertEquals(2, geneHistograms.get(Phase.TOTAL).getCount());
+        assertEquals(1, geneHistograms.get(Phase.SERVICE).getCount());
+
+        RequestStats.Histogram daoHistogram = geneHistograms.get(Phase.DAO);
+        assertEquals(1, daoHistogram.getCount());
+        assertEquals(70, daoHistogram.getTotalInMs());
+        assertEquals(70, daoHistogram.getMaxInMs());
+        long[] expectedCounts = new long[RequestStats.getBucketUpperBoundsInMs().length + 1];
+        //bucket (50, 100]
+        expectedCounts[3] = 1;
+        assertArrayEquals(expectedCounts, daoHistogram.getBucketCounts());
+
+        assertTrue(stats.getSlowRequests().isEmpty());
+    }
+
+    /**
+     * Test that slow requests are sampled with their queries.
+     */
+    @Test
+    public void shouldSampleSlowRequests() {
+        RequestStats stats = new RequestStats(-1);
+        for (int i = 0; i < RequestStats.MAX_SLOW_REQUESTS + 5; i++) {
+            try (RequestStats.RequestTimer timer = stats.startRequest()) {
+                timer.setUrl("/?page=gene&gene_id=" + i);
+                for (int j = 0; j < RequestStats.MAX_QUERIES_PER_REQUEST + 1; j++) {
+                    timer.queryExecuted("SELECT " + j, 0);
+                }
+            }
+        }
+        assertEquals(RequestStats.MAX_SLOW_REQUESTS, stats.getSlowRequests().size());
+        RequestStats.SlowRequest lastRequest = stats.getSlowRequests().get(0);
+        assertEquals("/?page=gene&gene_id=" + (RequestStats.MAX_SLOW_REQUESTS + 4),
+                lastRequest.getUrl());
+        assertEquals("unknown", lastRequest.getCommand());
+        assertEquals(RequestStats.MAX_QUERIES_PER_REQUEST + 1, lastRequest.getQueryCount());
+        assertEquals(RequestStats.MAX_QUERIES_PER_REQUEST, lastRequest.getQueries().size());
+        assertEquals("SELECT 0", lastRequest.getQueries().get(0).getSql());
+        assertTrue(lastRequest.getPhaseDurationsInMs().containsKey(Phase.TOTAL));
+    }
+}
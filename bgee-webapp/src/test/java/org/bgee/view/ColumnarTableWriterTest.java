@@ -0,0 +1,114 @@
+package org.bgee.view;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bgee.TestAncestor;
+import org.bgee.view.ColumnarTableWriter.Column;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ColumnarTableWriter} and {@link ColumnarTableReader}.
+ *
+ * @version Bgee 14, Jan. 2020
+ * @since   Bgee 14, Jan. 2020
+ */
+public class ColumnarTableWriterTest extends TestAncestor {
+
+    private final static Logger log = LogManager.getLogger(ColumnarTableWriterTest.class.getName());
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+    /**
+     * Test writing a table and reading it back, with and without compression,
+     * over several row groups.
+     */
+    @Test
+    public void shouldWriteAndReadTable() throws IOException {
+        List<Column> columns = Arrays.asList(new Column("GENE_ID"), new Column("ANAT_ENTITY_ID"),
+                new Column("DATA_QUALITY_ID", Arrays.asList("BRONZE", "SILVER", "GOLD")));
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            rows.add(new String[]{"ENSG" + (i % 7), i % 5 == 0? null: "UBERON:" + (i % 3),
+                    i % 2 == 0? "GOLD": "SILVER"});
+        }
+
+        for (boolean compress: Arrays.asList(true, false)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (ColumnarTableWriter writer = new ColumnarTableWriter(out, columns, compress, 10)) {
+                for (String[] row: rows) {
+                    writer.writeRow(row);
+                }
+                writer.finish();
+            }
+
+            try (ColumnarTableReader reader = new ColumnarTableReader(
+                    new ByteArrayInputStream(out.toByteArray()))) {
+                assertEquals("Incorrect number of columns", 3, reader.getColumns().size());
+                assertEquals("Incorrect column", "ANAT_ENTITY_ID", reader.getColumns().get(1).getName());
+                assertEquals("Incorrect column labels", Arrays.asList("BRONZE", "SILVER", "GOLD"),
+                        reader.getColumns().get(2).getLabels());
+                List<String[]> readRows = reader.readRowGroup();
+                assertEquals("Incorrect row group size", 10, readRows.size());
+                readRows.addAll(reader.readAllRows());
+                assertEquals("Incorrect number of rows", rows.size(), readRows.size());
+                for (int i = 0; i < rows.size(); i++) {
+                    assertArrayEquals("Incorrect row " + i, rows.get(i), readRows.get(i));
+                }
+                assertNull("End of table not detected", reader.readRowGroup());
+            }
+        }
+    }
+
+    /**
+     * Test that a table closed without being finished, as when the production
+     * of the rows failed, is not terminated, so that reading it fails.
+     */
+    @Test
+    public void shouldNotTerminateUnfinishedTable() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ColumnarTableWriter writer = new ColumnarTableWriter(out,
+                Arrays.asList(new Column("GENE_ID")), true, 2)) {
+            for (int i = 0; i < 3; i++) {
+                writer.writeRow("ENSG" + i);
+            }
+        }
+        try (ColumnarTableReader reader = new ColumnarTableReader(
+                new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("Incorrect row group size", 2, reader.readRowGroup().size());
+            try {
+                reader.readRowGroup();
+                fail("An exception should have been thrown for an unterminated table");
+            } catch (EOFException e) {
+                //test passed
+            }
+        }
+    }
+
+    /**
+     * Test that a value not declared as label of a {@code TYPE_ENUM} column is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownLabel() throws IOException {
+        try (ColumnarTableWriter writer = new ColumnarTableWriter(new ByteArrayOutputStream(),
+                Arrays.asList(new Column("DATA_QUALITY_ID", Arrays.asList("SILVER", "GOLD"))),
+                true)) {
+            writer.writeRow("BRONZE");
+        }
+    }
+}
@@ -195,4 +195,9 @@ public class FakeFactory extends ViewFactory {
     public AnatomicalSimilarityDisplay getAnatomicalSimilarityDisplay() throws IOException {
         return null;
     }
+
+    @Override
+    public StatsDisplay getStatsDisplay() throws IOException {
+        return null;
+    }
 }
\ No newline at end of file
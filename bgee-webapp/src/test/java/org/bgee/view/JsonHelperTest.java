@@ -20,11 +20,19 @@ import org.bgee.controller.exception.MultipleValuesNotAllowedException;
 import org.bgee.controller.exception.RequestParametersNotFoundException;
 import org.bgee.controller.exception.InvalidFormatException;
 import org.bgee.controller.servletutils.BgeeHttpServletRequest;
+import org.bgee.model.anatdev.AnatEntity;
+import org.bgee.model.anatdev.DevStage;
+import org.bgee.model.expressiondata.Call.ExpressionCall;
+import org.bgee.model.expressiondata.Condition;
 import org.bgee.model.expressiondata.baseelements.CallType;
 import org.bgee.model.expressiondata.baseelements.SummaryCallType;
+import org.bgee.model.expressiondata.baseelements.SummaryCallType.ExpressionSummary;
+import org.bgee.model.expressiondata.baseelements.SummaryQuality;
 import org.bgee.model.file.DownloadFile;
 import org.bgee.model.file.SpeciesDataGroup;
 import org.bgee.model.file.DownloadFile.CategoryEnum;
+import org.bgee.model.gene.Gene;
+import org.bgee.model.gene.GeneBioType;
 import org.bgee.model.source.Source;
 import org.bgee.model.species.Species;
 import org.bgee.model.topanat.TopAnatController;
@@ -33,13 +41,16 @@ import org.bgee.model.topanat.TopAnatResults;
 import org.bgee.view.JsonHelper;
 import org.junit.Test;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
 /**
  * Unit tests for {@link JsonHelper}.
  * 
  * @author  Philippe Moret
  * @author  Frederic Bastian
  * @author  Valentine Rech de Laval
- * @version Bgee 14, Mar. 2017
+ * @version Bgee 14, Jan. 2020
  * @since   Bgee 13, Oct. 2015
  */
 public class JsonHelperTest extends TestAncestor {
@@ -226,6 +237,38 @@ public class JsonHelperTest extends TestAncestor {
                 helper.toJson(Stream.of(Stream.of("a", "b"), Stream.of(rp1, rp2))));
     }
 
+    /**
+     * Test that the custom {@code TypeAdapter}s for the model classes dumped in large numbers 
+     * produce the same output as the default reflection-based {@code TypeAdapter}s.
+     */
+    @Test
+    public void testModelClassesToJson() {
+        Gson defaultGson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        JsonHelper helper = new JsonHelper();
+
+        Species species = new Species(9606, "human", null, "Homo", "sapiens", "hsap1", 
+                new Source(1), null, null, null, null, null);
+        AnatEntity anatEntity = new AnatEntity("UBERON:0000955", "brain", null);
+        Gene gene1 = new Gene("ENSG1", "gene1", "desc1", Arrays.asList("syn1", "syn2"), null, 
+                species, new GeneBioType("protein_coding"), 1);
+        Gene gene2 = new Gene("ENSG2", species, new GeneBioType("miRNA"));
+        Condition condition = new Condition(anatEntity, new DevStage("UBERON:0000104"), species);
+        ExpressionCall call = new ExpressionCall(gene1, condition, null, 
+                ExpressionSummary.EXPRESSED, SummaryQuality.GOLD, null, null);
+
+        assertEquals("Incorrect dump of AnatEntity", defaultGson.toJson(anatEntity), 
+                helper.toJson(anatEntity));
+        assertEquals("Incorrect dump of Gene", defaultGson.toJson(gene1), helper.toJson(gene1));
+        assertEquals("Incorrect dump of Gene", defaultGson.toJson(gene2), helper.toJson(gene2));
+        assertEquals("Incorrect dump of Condition", defaultGson.toJson(condition), 
+                helper.toJson(condition));
+        assertEquals("Incorrect dump of ExpressionCall", defaultGson.toJson(call), 
+                helper.toJson(call));
+        assertEquals("Incorrect dump of Stream of Genes", 
+                defaultGson.toJson(Arrays.asList(gene1, gene2)), 
+                helper.toJson(Stream.of(gene1, gene2)));
+    }
+
     /**
      * Unit test of dumping a {@link TopAnatResults} object into JSON.
      */